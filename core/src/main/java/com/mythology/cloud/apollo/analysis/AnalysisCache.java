@@ -0,0 +1,379 @@
+package com.mythology.cloud.apollo.analysis;
+
+import com.mythology.cloud.apollo.analysis.tokenattributes.OffsetAttribute;
+import com.mythology.cloud.apollo.analysis.tokenattributes.PositionIncrementAttribute;
+import com.mythology.cloud.apollo.analysis.tokenattributes.TermToBytesRefAttribute;
+import com.mythology.cloud.apollo.analysis.tokenattributes.UTF8TermAttribute;
+import com.mythology.cloud.apollo.util.Accountable;
+import com.mythology.cloud.apollo.util.ArrayUtil;
+import com.mythology.cloud.apollo.util.BytesRef;
+import com.mythology.cloud.apollo.util.BytesRefBuilder;
+import com.mythology.cloud.apollo.util.IntsRef;
+import com.mythology.cloud.apollo.util.IntsRefBuilder;
+import com.mythology.cloud.apollo.util.RamUsageEstimator;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A least-recently-used cache of analyzed field values, see
+ * {@link Analyzer#setAnalysisCache(AnalysisCache)}.
+ * <p>
+ * Entries are keyed by field name and the UTF-8 bytes of the value, and hold
+ * the term, position increment and offsets of every token as well as the
+ * final offset and position increment, packed into one {@link BytesRef} of
+ * term bytes and one {@link IntsRef} of integers. When a cached value is
+ * analyzed again, the analyzer replays these tokens instead of running its
+ * tokenizer and filters. Other attributes, such as the token type, are not
+ * cached, and replayed terms are only available through the
+ * {@link TermToBytesRefAttribute}, so this cache is meant for analysis chains
+ * that are consumed by the indexing chain and that are deterministic.
+ * <p>
+ * Only values of at most {@link #getMaxValueLength()} UTF-8 bytes are cached,
+ * and the cache evicts its least recently used entries when its
+ * {@link #ramBytesUsed() RAM usage} exceeds {@link #getMaxRamBytesUsed()}. A
+ * cache is thread-safe and may be shared by several analyzers, as long as they
+ * analyze the same field names the same way.
+ * <p>
+ * 分析结果的LRU缓存：以字段名和值的UTF-8字节为键，把每个词元的词项、位置增量和偏移量打包存放在
+ * {@link BytesRef}和{@link IntsRef}中；再次分析相同的值时，分析器直接回放缓存的词元，
+ * 不再运行分词器和过滤器。只缓存较短的值，内存占用超过上限时淘汰最久未使用的条目。
+ * </p>
+ *
+ * @lucene.experimental
+ */
+public final class AnalysisCache implements Accountable {
+
+    // 4 ints per token: term length, position increment, start offset, end offset
+    private static final int INTS_PER_TOKEN = 4;
+
+    private static final long KEY_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(Key.class)
+            + RamUsageEstimator.shallowSizeOfInstance(BytesRef.class);
+    private static final long ENTRY_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(CachedTokens.class)
+            + RamUsageEstimator.shallowSizeOfInstance(BytesRef.class)
+            + RamUsageEstimator.shallowSizeOfInstance(IntsRef.class)
+            + RamUsageEstimator.LINKED_HASHTABLE_RAM_BYTES_PER_ENTRY;
+
+    private final long maxRamBytesUsed;
+    private final int maxValueLength;
+
+    // guarded by this
+    private final Map<Key, CachedTokens> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Key probe = new Key(null, new BytesRef());
+    private long ramBytesUsed;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    /**
+     * Create a cache.
+     *
+     * @param maxRamBytesUsed the maximum RAM usage of the cache, in bytes
+     * @param maxValueLength  the maximum length in UTF-8 bytes of the values to cache
+     */
+    public AnalysisCache(long maxRamBytesUsed, int maxValueLength) {
+        if (maxRamBytesUsed < 0) {
+            throw new IllegalArgumentException("maxRamBytesUsed must be >= 0, got " + maxRamBytesUsed);
+        }
+        if (maxValueLength < 0) {
+            throw new IllegalArgumentException("maxValueLength must be >= 0, got " + maxValueLength);
+        }
+        this.maxRamBytesUsed = maxRamBytesUsed;
+        this.maxValueLength = maxValueLength;
+    }
+
+    /**
+     * Return the maximum RAM usage of this cache, in bytes.
+     */
+    public long getMaxRamBytesUsed() {
+        return maxRamBytesUsed;
+    }
+
+    /**
+     * Return the maximum length in UTF-8 bytes of the values this cache holds.
+     */
+    public int getMaxValueLength() {
+        return maxValueLength;
+    }
+
+    /**
+     * Return the cached tokens of the given value, or null if it is not cached.
+     */
+    synchronized CachedTokens get(String fieldName, BytesRef value) {
+        probe.fieldName = fieldName;
+        probe.value.bytes = value.bytes;
+        probe.value.offset = value.offset;
+        probe.value.length = value.length;
+        probe.hashCode = Key.hashCode(fieldName, value);
+        final CachedTokens tokens = entries.get(probe);
+        probe.fieldName = null;
+        probe.value.bytes = BytesRef.EMPTY_BYTES;
+        if (tokens == null) {
+            missCount++;
+        } else {
+            hitCount++;
+        }
+        return tokens;
+    }
+
+    /**
+     * Cache the tokens of the given value, which is copied, evicting the least
+     * recently used entries if needed.
+     */
+    synchronized void put(String fieldName, BytesRef value, CachedTokens tokens) {
+        final long bytesUsed = ramBytesUsed(value, tokens);
+        if (bytesUsed > maxRamBytesUsed) {
+            return;
+        }
+        final Key key = new Key(fieldName, BytesRef.deepCopyOf(value));
+        key.hashCode = Key.hashCode(fieldName, value);
+        final CachedTokens previous = entries.put(key, tokens);
+        if (previous != null) {
+            // another thread analyzed the same value concurrently
+            ramBytesUsed -= ramBytesUsed(value, previous);
+        }
+        ramBytesUsed += bytesUsed;
+        for (Iterator<Map.Entry<Key, CachedTokens>> it = entries.entrySet().iterator(); ramBytesUsed > maxRamBytesUsed; ) {
+            final Map.Entry<Key, CachedTokens> eldest = it.next();
+            ramBytesUsed -= ramBytesUsed(eldest.getKey().value, eldest.getValue());
+            it.remove();
+            evictionCount++;
+        }
+    }
+
+    private static long ramBytesUsed(BytesRef value, CachedTokens tokens) {
+        return KEY_BYTES_USED + RamUsageEstimator.alignObjectSize(RamUsageEstimator.NUM_BYTES_ARRAY_HEADER + value.length)
+                + ENTRY_BYTES_USED + RamUsageEstimator.sizeOf(tokens.terms.bytes) + RamUsageEstimator.sizeOf(tokens.ints.ints);
+    }
+
+    /**
+     * Remove all entries from this cache.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        ramBytesUsed = 0;
+    }
+
+    /**
+     * Return the number of cached values.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Return the number of lookups that found cached tokens.
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Return the number of lookups that did not find cached tokens.
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Return the number of entries that were evicted to stay within the RAM budget.
+     */
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    @Override
+    public synchronized long ramBytesUsed() {
+        return ramBytesUsed;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "AnalysisCache(size=" + entries.size()
+                + ",ramBytesUsed=" + ramBytesUsed + "/" + maxRamBytesUsed
+                + ",hits=" + hitCount + ",misses=" + missCount + ",evictions=" + evictionCount + ")";
+    }
+
+    // field name and value; the probe of lookups points to the caller's bytes
+    private static final class Key {
+        String fieldName;
+        final BytesRef value;
+        int hashCode;
+
+        Key(String fieldName, BytesRef value) {
+            this.fieldName = fieldName;
+            this.value = value;
+        }
+
+        static int hashCode(String fieldName, BytesRef value) {
+            return 31 * fieldName.hashCode() + value.hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            final Key other = (Key) obj;
+            return hashCode == other.hashCode && fieldName.equals(other.fieldName) && value.bytesEquals(other.value);
+        }
+    }
+
+    /**
+     * The immutable, packed tokens of an analyzed value.
+     */
+    static final class CachedTokens {
+        final BytesRef terms;
+        final IntsRef ints;
+        final int finalOffset;
+        final int finalPositionIncrement;
+
+        CachedTokens(BytesRef terms, IntsRef ints, int finalOffset, int finalPositionIncrement) {
+            this.terms = terms;
+            this.ints = ints;
+            this.finalOffset = finalOffset;
+            this.finalPositionIncrement = finalPositionIncrement;
+        }
+    }
+
+    /**
+     * Passes the tokens of an analysis chain through, and caches them once the
+     * stream has been {@link #end() consumed entirely}. One recorder is reused
+     * per set of components.
+     */
+    static final class Recorder extends TokenFilter {
+        private final TermToBytesRefAttribute termAtt;
+        private final PositionIncrementAttribute posIncAtt = addAttribute(PositionIncrementAttribute.class);
+        private final OffsetAttribute offsetAtt = addAttribute(OffsetAttribute.class);
+        private final BytesRefBuilder value = new BytesRefBuilder();
+        private final BytesRefBuilder terms = new BytesRefBuilder();
+        private final IntsRefBuilder ints = new IntsRefBuilder();
+        private AnalysisCache cache;
+        private String fieldName;
+        private boolean exhausted;
+
+        Recorder(TokenStream input) {
+            super(input);
+            // chains without a term attribute are passed through but not cached
+            this.termAtt = hasAttribute(TermToBytesRefAttribute.class) ? getAttribute(TermToBytesRefAttribute.class) : null;
+        }
+
+        /**
+         * Record the tokens of the given value until the stream is closed.
+         */
+        Recorder record(AnalysisCache cache, String fieldName, BytesRef value) {
+            if (termAtt != null) {
+                this.cache = cache;
+                this.fieldName = fieldName;
+                this.value.copyBytes(value);
+            }
+            return this;
+        }
+
+        @Override
+        public void reset() throws IOException {
+            super.reset();
+            terms.clear();
+            ints.clear();
+            exhausted = false;
+        }
+
+        @Override
+        public boolean incrementToken() throws IOException {
+            if (input.incrementToken() == false) {
+                exhausted = true;
+                return false;
+            }
+            if (cache != null) {
+                final BytesRef term = termAtt.getBytesRef();
+                terms.append(term);
+                ints.append(term.length);
+                ints.append(posIncAtt.getPositionIncrement());
+                ints.append(offsetAtt.startOffset());
+                ints.append(offsetAtt.endOffset());
+            }
+            return true;
+        }
+
+        @Override
+        public void end() throws IOException {
+            super.end();
+            // streams that were not consumed entirely are not cached
+            if (cache != null && exhausted) {
+                final BytesRef packedTerms = new BytesRef(ArrayUtil.copyOfSubArray(terms.bytes(), 0, terms.length()));
+                final IntsRef packedInts = new IntsRef(ArrayUtil.copyOfSubArray(ints.ints(), 0, ints.length()), 0, ints.length());
+                cache.put(fieldName, value.get(),
+                        new CachedTokens(packedTerms, packedInts, offsetAtt.endOffset(), posIncAtt.getPositionIncrement()));
+                cache = null;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            super.close();
+            cache = null;
+            fieldName = null;
+        }
+    }
+
+    /**
+     * Replays {@link CachedTokens}. One replayer is reused per set of components.
+     */
+    static final class Replayer extends TokenStream {
+        private final UTF8TermAttribute termAtt = addAttribute(UTF8TermAttribute.class);
+        private final PositionIncrementAttribute posIncAtt = addAttribute(PositionIncrementAttribute.class);
+        private final OffsetAttribute offsetAtt = addAttribute(OffsetAttribute.class);
+        private CachedTokens tokens;
+        private int upto;
+        private int termUpto;
+
+        Replayer replay(CachedTokens tokens) {
+            if (this.tokens != null) {
+                throw new IllegalStateException("TokenStream contract violation: close() call missing");
+            }
+            this.tokens = tokens;
+            return this;
+        }
+
+        @Override
+        public void reset() throws IOException {
+            super.reset();
+            upto = 0;
+            termUpto = tokens.terms.offset;
+        }
+
+        @Override
+        public boolean incrementToken() throws IOException {
+            final IntsRef ints = tokens.ints;
+            if (upto == ints.length) {
+                return false;
+            }
+            clearAttributes();
+            final int i = ints.offset + upto;
+            final int termLength = ints.ints[i];
+            termAtt.copyBytes(tokens.terms.bytes, termUpto, termLength);
+            posIncAtt.setPositionIncrement(ints.ints[i + 1]);
+            offsetAtt.setOffset(ints.ints[i + 2], ints.ints[i + 3]);
+            termUpto += termLength;
+            upto += INTS_PER_TOKEN;
+            return true;
+        }
+
+        @Override
+        public void end() throws IOException {
+            super.end();
+            offsetAtt.setOffset(tokens.finalOffset, tokens.finalOffset);
+            posIncAtt.setPositionIncrement(tokens.finalPositionIncrement);
+        }
+
+        @Override
+        public void close() throws IOException {
+            super.close();
+            tokens = null;
+        }
+    }
+}
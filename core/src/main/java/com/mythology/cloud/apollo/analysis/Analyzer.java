@@ -1,4 +1,619 @@
 package com.mythology.cloud.apollo.analysis;
 
-public class Analyzer {
+import com.mythology.cloud.apollo.store.AlreadyClosedException;
+import com.mythology.cloud.apollo.util.ArrayUtil;
+import com.mythology.cloud.apollo.util.BytesRef;
+import com.mythology.cloud.apollo.util.BytesRefBuilder;
+import com.mythology.cloud.apollo.util.CloseableThreadLocal;
+import com.mythology.cloud.apollo.util.UnicodeUtil;
+
+import java.io.Closeable;
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An Analyzer builds TokenStreams, which analyze text.  It thus represents a
+ * policy for extracting index terms from text.
+ * <p>
+ * In order to define what analysis is done, subclasses must define their
+ * {@link TokenStreamComponents TokenStreamComponents} in {@link #createComponents(String)}.
+ * The components are then reused in each call to {@link #tokenStream(String, Reader)}.
+ * <p>
+ * Simple example:
+ * <pre class="prettyprint">
+ * Analyzer analyzer = new Analyzer() {
+ *  {@literal @Override}
+ *   protected TokenStreamComponents createComponents(String fieldName) {
+ *     Tokenizer source = new WhitespaceTokenizer();
+ *     return new TokenStreamComponents(source, new LowerCaseFilter(source));
+ *   }
+ * };
+ * </pre>
+ * <p>
+ * Components are cached per thread, through a {@link ReuseStrategy}: either
+ * one set of components per thread for all fields ({@link #GLOBAL_REUSE_STRATEGY},
+ * the default), or one set per thread and field name ({@link #PER_FIELD_REUSE_STRATEGY})
+ * for analyzers whose chain depends on the field. Once the components of a
+ * thread exist, analyzing a value allocates nothing but what the tokenizer
+ * and filters themselves allocate.
+ * <p>
+ * Analyzers may also define a chain that works directly on UTF-8 bytes in
+ * {@link #createUTF8Components(String)}, which {@link #tokenStream(String, BytesRef)}
+ * uses to analyze UTF-8 text without converting it to chars and the terms
+ * back to UTF-8.
+ * <p>
+ * An {@link AnalysisCache} may be {@link #setAnalysisCache(AnalysisCache) set}
+ * to remember the tokens of short values, which {@link #tokenStream(String, String)}
+ * and {@link #tokenStream(String, BytesRef)} then replay instead of running
+ * the chain again when the same value of the same field is analyzed.
+ * <p>
+ * 分析器：构建把文本分析为词元的{@link TokenStream}；子类在{@link #createComponents(String)}中定义分词器和过滤器，
+ * 这些组件按线程（可选地按字段名）缓存并复用，稳态下分析一个字段值不再创建组件。
+ * </p>
+ */
+public abstract class Analyzer implements Closeable {
+
+    private final ReuseStrategy reuseStrategy;
+
+    private volatile AnalysisCache analysisCache;
+
+    // non final as it gets nulled if closed; pkg private for access by ReuseStrategy's final helper methods:
+    CloseableThreadLocal<Object> storedValue = new CloseableThreadLocal<>();
+
+    /**
+     * Create a new Analyzer, reusing the same set of components per-thread
+     * across calls to {@link #tokenStream(String, Reader)}.
+     */
+    public Analyzer() {
+        this(GLOBAL_REUSE_STRATEGY);
+    }
+
+    /**
+     * Expert: create a new Analyzer with a custom {@link ReuseStrategy}.
+     * <p>
+     * NOTE: if you just want to reuse on a per-field basis, use
+     * {@link #PER_FIELD_REUSE_STRATEGY}.
+     */
+    public Analyzer(ReuseStrategy reuseStrategy) {
+        this.reuseStrategy = reuseStrategy;
+    }
+
+    /**
+     * Creates a new {@link TokenStreamComponents} instance for this analyzer.
+     *
+     * @param fieldName the name of the fields content passed to the
+     *                  {@link TokenStreamComponents} sink as a reader
+     * @return the {@link TokenStreamComponents} for this analyzer.
+     */
+    protected abstract TokenStreamComponents createComponents(String fieldName);
+
+    /**
+     * Creates the components that analyze UTF-8 input for this analyzer, or
+     * returns null, the default, if the analyzer has no such chain. The UTF-8
+     * chain must produce the same tokens as the chain of
+     * {@link #createComponents(String)}; it is not given to
+     * {@link #initReader(String, Reader)}, so analyzers that override that
+     * method should not define one.
+     *
+     * @param fieldName the name of the field whose content is analyzed
+     * @return the {@link UTF8TokenStreamComponents} for this analyzer, or null
+     * @lucene.experimental
+     */
+    protected UTF8TokenStreamComponents createUTF8Components(String fieldName) {
+        return null;
+    }
+
+    /**
+     * Set the cache of analyzed values, or null to stop caching. The cache
+     * only applies to the fields for which {@link #useAnalysisCache(String)}
+     * returns true, and to values passed as a {@code String} or as UTF-8
+     * bytes.
+     *
+     * @lucene.experimental
+     */
+    public final void setAnalysisCache(AnalysisCache analysisCache) {
+        this.analysisCache = analysisCache;
+    }
+
+    /**
+     * Return the cache of analyzed values, or null if values are not cached.
+     *
+     * @lucene.experimental
+     */
+    public final AnalysisCache getAnalysisCache() {
+        return analysisCache;
+    }
+
+    /**
+     * Return whether the values of the given field should go through the
+     * {@link #getAnalysisCache() analysis cache}. The default implementation
+     * returns true; analyzers should return false for fields that mostly have
+     * unique values, whose entries would only evict useful ones.
+     *
+     * @param fieldName the name of the field whose content is analyzed
+     * @lucene.experimental
+     */
+    protected boolean useAnalysisCache(String fieldName) {
+        return true;
+    }
+
+    private TokenStreamComponents reusableComponents(String fieldName) {
+        TokenStreamComponents components = reuseStrategy.getReusableComponents(this, fieldName);
+        if (components == null) {
+            components = createComponents(fieldName);
+            reuseStrategy.setReusableComponents(this, fieldName, components);
+        }
+        return components;
+    }
+
+    /**
+     * Returns a TokenStream suitable for <code>fieldName</code>, tokenizing
+     * the contents of <code>reader</code>.
+     * <p>
+     * This method uses {@link #createComponents(String)} to obtain an
+     * instance of {@link TokenStreamComponents}. It returns the sink of the
+     * components and stores the components internally. Subsequent calls to this
+     * method will reuse the previously stored components after resetting them
+     * through {@link TokenStreamComponents#setReader(Reader)}.
+     * <p>
+     * <b>NOTE:</b> After calling this method, the consumer must follow the
+     * workflow described in {@link TokenStream} to properly consume its contents.
+     * <p>
+     * <b>NOTE:</b> If your data is available as a {@code String}, use
+     * {@link #tokenStream(String, String)} which reuses a {@code StringReader}-like
+     * instance internally.
+     *
+     * @param fieldName the name of the field the created TokenStream is used for
+     * @param reader    the reader the streams source reads from
+     * @return TokenStream for iterating the analyzed content of <code>reader</code>
+     * @throws AlreadyClosedException if the Analyzer is closed.
+     * @see #tokenStream(String, String)
+     */
+    public final TokenStream tokenStream(final String fieldName,
+                                         final Reader reader) {
+        final TokenStreamComponents components = reusableComponents(fieldName);
+        components.setReader(initReader(fieldName, reader));
+        return components.getTokenStream();
+    }
+
+    /**
+     * Returns a TokenStream suitable for <code>fieldName</code>, tokenizing
+     * the contents of <code>text</code>.
+     * <p>
+     * This method uses {@link #createComponents(String)} to obtain an
+     * instance of {@link TokenStreamComponents}. It returns the sink of the
+     * components and stores the components internally. Subsequent calls to this
+     * method will reuse the previously stored components after resetting them
+     * through {@link TokenStreamComponents#setReader(Reader)}.
+     * <p>
+     * <b>NOTE:</b> After calling this method, the consumer must follow the
+     * workflow described in {@link TokenStream} to properly consume its contents.
+     *
+     * @param fieldName the name of the field the created TokenStream is used for
+     * @param text      the String the streams source reads from
+     * @return TokenStream for iterating the analyzed content of <code>reader</code>
+     * @throws AlreadyClosedException if the Analyzer is closed.
+     * @see #tokenStream(String, Reader)
+     */
+    public final TokenStream tokenStream(final String fieldName, final String text) {
+        final TokenStreamComponents components = reusableComponents(fieldName);
+        final AnalysisCache cache = analysisCache;
+        BytesRef cacheKey = null;
+        if (cache != null && text.length() <= cache.getMaxValueLength() && useAnalysisCache(fieldName)) {
+            final BytesRefBuilder key = components.cacheKey == null ? components.cacheKey = new BytesRefBuilder() : components.cacheKey;
+            key.copyChars(text);
+            if (key.length() <= cache.getMaxValueLength()) {
+                cacheKey = key.get();
+                final AnalysisCache.CachedTokens tokens = cache.get(fieldName, cacheKey);
+                if (tokens != null) {
+                    return components.replayer().replay(tokens);
+                }
+            }
+        }
+
+        @SuppressWarnings("resource") final ReusableStringReader strReader =
+                components.reusableStringReader == null ? new ReusableStringReader() : components.reusableStringReader;
+        strReader.setValue(text);
+        components.setReader(initReader(fieldName, strReader));
+        components.reusableStringReader = strReader;
+        if (cacheKey != null) {
+            if (components.recorder == null) {
+                components.recorder = new AnalysisCache.Recorder(components.getTokenStream());
+            }
+            return components.recorder.record(cache, fieldName, cacheKey);
+        }
+        return components.getTokenStream();
+    }
+
+    /**
+     * Returns a TokenStream suitable for <code>fieldName</code>, tokenizing
+     * the UTF-8 text <code>utf8</code>, which must be valid UTF-8 and must not
+     * change until the stream is closed.
+     * <p>
+     * If this analyzer {@link #createUTF8Components(String) has a UTF-8
+     * chain}, the returned stream works on the bytes and its terms are only
+     * available through the
+     * {@link com.mythology.cloud.apollo.analysis.tokenattributes.TermToBytesRefAttribute}.
+     * Otherwise the text is decoded into a reused char buffer and analyzed by
+     * the regular chain. The components are reused like those of
+     * {@link #tokenStream(String, Reader)}.
+     *
+     * @param fieldName the name of the field the created TokenStream is used for
+     * @param utf8      the UTF-8 text the streams source reads from
+     * @return TokenStream for iterating the analyzed content of <code>utf8</code>
+     * @throws AlreadyClosedException if the Analyzer is closed.
+     * @lucene.experimental
+     */
+    public final TokenStream tokenStream(final String fieldName, final BytesRef utf8) {
+        final TokenStreamComponents components = reusableComponents(fieldName);
+        final AnalysisCache cache = analysisCache;
+        final boolean cached = cache != null && utf8.length <= cache.getMaxValueLength() && useAnalysisCache(fieldName);
+        if (cached) {
+            final AnalysisCache.CachedTokens tokens = cache.get(fieldName, utf8);
+            if (tokens != null) {
+                return components.replayer().replay(tokens);
+            }
+        }
+        if (components.utf8Resolved == false) {
+            components.utf8Components = createUTF8Components(fieldName);
+            components.utf8Resolved = true;
+        }
+        if (components.utf8Components != null) {
+            components.utf8Components.setInput(utf8);
+            if (cached) {
+                if (components.utf8Recorder == null) {
+                    components.utf8Recorder = new AnalysisCache.Recorder(components.utf8Components.getTokenStream());
+                }
+                return components.utf8Recorder.record(cache, fieldName, utf8);
+            }
+            return components.utf8Components.getTokenStream();
+        }
+
+        // no UTF-8 chain: decode into the reused chars
+        char[] chars = components.utf8Chars;
+        if (chars == null || chars.length < utf8.length) {
+            chars = components.utf8Chars = new char[ArrayUtil.oversize(utf8.length, Character.BYTES)];
+        }
+        final int length = UnicodeUtil.UTF8toUTF16(utf8.bytes, utf8.offset, utf8.length, chars);
+        @SuppressWarnings("resource") final ReusableStringReader strReader =
+                components.reusableStringReader == null ? new ReusableStringReader() : components.reusableStringReader;
+        strReader.setValue(chars, length);
+        components.setReader(initReader(fieldName, strReader));
+        components.reusableStringReader = strReader;
+        if (cached) {
+            if (components.recorder == null) {
+                components.recorder = new AnalysisCache.Recorder(components.getTokenStream());
+            }
+            return components.recorder.record(cache, fieldName, utf8);
+        }
+        return components.getTokenStream();
+    }
+
+    /**
+     * Override this if you want to add a CharFilter chain.
+     * <p>
+     * The default implementation returns <code>reader</code>
+     * unchanged.
+     *
+     * @param fieldName IndexableField name being indexed
+     * @param reader    original Reader
+     * @return reader, optionally decorated with CharFilter(s)
+     */
+    protected Reader initReader(String fieldName, Reader reader) {
+        return reader;
+    }
+
+    /**
+     * Invoked before indexing a IndexableField instance if
+     * terms have already been added to that field.  This allows custom
+     * analyzers to place an automatic position increment gap between
+     * IndexbleField instances using the same field name.  The default value
+     * position increment gap is 0.  With a 0 position increment gap and
+     * the typical default token position increment of 1, all terms in a field,
+     * including across IndexableField instances, are in successive positions, allowing
+     * exact PhraseQuery matches, for instance, across IndexableField instance boundaries.
+     *
+     * @param fieldName IndexableField name being indexed.
+     * @return position increment gap, added to the next token emitted from {@link #tokenStream(String, Reader)}.
+     * This value must be {@code >= 0}.
+     */
+    public int getPositionIncrementGap(String fieldName) {
+        return 0;
+    }
+
+    /**
+     * Just like {@link #getPositionIncrementGap}, except for
+     * Token offsets instead.  By default this returns 1.
+     * This method is only called if the field
+     * produced at least one token for indexing.
+     *
+     * @param fieldName the field just indexed
+     * @return offset gap, added to the next token emitted from {@link #tokenStream(String, Reader)}.
+     * This value must be {@code >= 0}.
+     */
+    public int getOffsetGap(String fieldName) {
+        return 1;
+    }
+
+    /**
+     * Returns the used {@link ReuseStrategy}.
+     */
+    public final ReuseStrategy getReuseStrategy() {
+        return reuseStrategy;
+    }
+
+    /**
+     * Frees persistent resources used by this Analyzer
+     */
+    @Override
+    public void close() {
+        if (storedValue != null) {
+            storedValue.close();
+            storedValue = null;
+        }
+    }
+
+    /**
+     * This class encapsulates the outer components of a token stream. It provides
+     * access to the source ({@link Tokenizer}) and the outer end (sink), an
+     * instance of {@link TokenFilter} which also serves as the
+     * {@link TokenStream} returned by
+     * {@link Analyzer#tokenStream(String, Reader)}.
+     */
+    public static class TokenStreamComponents {
+        /**
+         * Original source of the tokens.
+         */
+        protected final Tokenizer source;
+        /**
+         * Sink tokenstream, such as the outer tokenfilter decorating
+         * the chain. This can be the source if there are no filters.
+         */
+        protected final TokenStream sink;
+
+        /**
+         * Internal cache only used by {@link Analyzer#tokenStream(String, String)}.
+         */
+        transient ReusableStringReader reusableStringReader;
+
+        /**
+         * Internal caches only used by {@link Analyzer#tokenStream(String, BytesRef)}.
+         */
+        transient UTF8TokenStreamComponents utf8Components;
+        transient boolean utf8Resolved;
+        transient char[] utf8Chars;
+
+        /**
+         * Internal caches only used with an {@link AnalysisCache}.
+         */
+        transient BytesRefBuilder cacheKey;
+        transient AnalysisCache.Recorder recorder;
+        transient AnalysisCache.Recorder utf8Recorder;
+        transient AnalysisCache.Replayer replayer;
+
+        /**
+         * Creates a new {@link TokenStreamComponents} instance.
+         *
+         * @param source the analyzer's tokenizer
+         * @param result the analyzer's resulting token stream
+         */
+        public TokenStreamComponents(final Tokenizer source,
+                                     final TokenStream result) {
+            this.source = source;
+            this.sink = result;
+        }
+
+        /**
+         * Creates a new {@link TokenStreamComponents} instance.
+         *
+         * @param source the analyzer's tokenizer
+         */
+        public TokenStreamComponents(final Tokenizer source) {
+            this.source = source;
+            this.sink = source;
+        }
+
+        /**
+         * Resets the encapsulated components with the given reader. If the components
+         * cannot be reset, an Exception should be thrown.
+         *
+         * @param reader a reader to reset the source component
+         */
+        protected void setReader(final Reader reader) {
+            source.setReader(reader);
+        }
+
+        /**
+         * Returns the sink {@link TokenStream}
+         *
+         * @return the sink {@link TokenStream}
+         */
+        public TokenStream getTokenStream() {
+            return sink;
+        }
+
+        /**
+         * Returns the component's {@link Tokenizer}
+         *
+         * @return Component's {@link Tokenizer}
+         */
+        public Tokenizer getTokenizer() {
+            return source;
+        }
+
+        AnalysisCache.Replayer replayer() {
+            if (replayer == null) {
+                replayer = new AnalysisCache.Replayer();
+            }
+            return replayer;
+        }
+    }
+
+    /**
+     * The components of a chain that analyzes UTF-8 input, from a
+     * {@link UTF8Tokenizer} source to a sink that is returned by
+     * {@link Analyzer#tokenStream(String, BytesRef)}. They are reused together
+     * with the {@link TokenStreamComponents} of the same field.
+     *
+     * @lucene.experimental
+     */
+    public static class UTF8TokenStreamComponents {
+        /**
+         * Original source of the tokens.
+         */
+        protected final UTF8Tokenizer source;
+        /**
+         * Sink tokenstream, such as the outer tokenfilter decorating
+         * the chain. This can be the source if there are no filters.
+         */
+        protected final TokenStream sink;
+
+        /**
+         * Creates a new {@link UTF8TokenStreamComponents} instance.
+         *
+         * @param source the analyzer's tokenizer
+         * @param result the analyzer's resulting token stream
+         */
+        public UTF8TokenStreamComponents(final UTF8Tokenizer source, final TokenStream result) {
+            this.source = source;
+            this.sink = result;
+        }
+
+        /**
+         * Creates a new {@link UTF8TokenStreamComponents} instance.
+         *
+         * @param source the analyzer's tokenizer
+         */
+        public UTF8TokenStreamComponents(final UTF8Tokenizer source) {
+            this.source = source;
+            this.sink = source;
+        }
+
+        /**
+         * Resets the encapsulated components with the given input.
+         *
+         * @param utf8 the input of the source component
+         */
+        protected void setInput(final BytesRef utf8) {
+            source.setInput(utf8);
+        }
+
+        /**
+         * Returns the sink {@link TokenStream}
+         */
+        public TokenStream getTokenStream() {
+            return sink;
+        }
+
+        /**
+         * Returns the component's {@link UTF8Tokenizer}
+         */
+        public UTF8Tokenizer getTokenizer() {
+            return source;
+        }
+    }
+
+    /**
+     * Strategy defining how TokenStreamComponents are reused per call to
+     * {@link Analyzer#tokenStream(String, Reader)}.
+     */
+    public static abstract class ReuseStrategy {
+
+        /**
+         * Sole constructor. (For invocation by subclass constructors, typically implicit.)
+         */
+        public ReuseStrategy() {
+        }
+
+        /**
+         * Gets the reusable TokenStreamComponents for the field with the given name.
+         *
+         * @param analyzer  Analyzer from which to get the reused components. Use
+         *                  {@link #getStoredValue(Analyzer)} and {@link #setStoredValue(Analyzer, Object)}
+         *                  to access the data on the Analyzer.
+         * @param fieldName Name of the field whose reusable TokenStreamComponents
+         *                  are to be retrieved
+         * @return Reusable TokenStreamComponents for the field, or {@code null}
+         * if there was no previous components for the field
+         */
+        public abstract TokenStreamComponents getReusableComponents(Analyzer analyzer, String fieldName);
+
+        /**
+         * Stores the given TokenStreamComponents as the reusable components for the
+         * field with the give name.
+         *
+         * @param fieldName  Name of the field whose TokenStreamComponents are being set
+         * @param components TokenStreamComponents which are to be reused for the field
+         */
+        public abstract void setReusableComponents(Analyzer analyzer, String fieldName, TokenStreamComponents components);
+
+        /**
+         * Returns the currently stored value.
+         *
+         * @return Currently stored value or {@code null} if no value is stored
+         * @throws AlreadyClosedException if the Analyzer is closed.
+         */
+        protected final Object getStoredValue(Analyzer analyzer) {
+            if (analyzer.storedValue == null) {
+                throw new AlreadyClosedException("this Analyzer is closed");
+            }
+            return analyzer.storedValue.get();
+        }
+
+        /**
+         * Sets the stored value.
+         *
+         * @param storedValue Value to store
+         * @throws AlreadyClosedException if the Analyzer is closed.
+         */
+        protected final void setStoredValue(Analyzer analyzer, Object storedValue) {
+            if (analyzer.storedValue == null) {
+                throw new AlreadyClosedException("this Analyzer is closed");
+            }
+            analyzer.storedValue.set(storedValue);
+        }
+    }
+
+    /**
+     * A predefined {@link ReuseStrategy}  that reuses the same components for
+     * every field.
+     */
+    public static final ReuseStrategy GLOBAL_REUSE_STRATEGY = new ReuseStrategy() {
+
+        @Override
+        public TokenStreamComponents getReusableComponents(Analyzer analyzer, String fieldName) {
+            return (TokenStreamComponents) getStoredValue(analyzer);
+        }
+
+        @Override
+        public void setReusableComponents(Analyzer analyzer, String fieldName, TokenStreamComponents components) {
+            setStoredValue(analyzer, components);
+        }
+    };
+
+    /**
+     * A predefined {@link ReuseStrategy} that reuses components per-field by
+     * maintaining a Map of TokenStreamComponent per field name.
+     */
+    public static final ReuseStrategy PER_FIELD_REUSE_STRATEGY = new ReuseStrategy() {
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public TokenStreamComponents getReusableComponents(Analyzer analyzer, String fieldName) {
+            Map<String, TokenStreamComponents> componentsPerField = (Map<String, TokenStreamComponents>) getStoredValue(analyzer);
+            return componentsPerField != null ? componentsPerField.get(fieldName) : null;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public void setReusableComponents(Analyzer analyzer, String fieldName, TokenStreamComponents components) {
+            Map<String, TokenStreamComponents> componentsPerField = (Map<String, TokenStreamComponents>) getStoredValue(analyzer);
+            if (componentsPerField == null) {
+                componentsPerField = new HashMap<>();
+                setStoredValue(analyzer, componentsPerField);
+            }
+            componentsPerField.put(fieldName, components);
+        }
+    };
 }
@@ -0,0 +1,154 @@
+package com.mythology.cloud.apollo.analysis;
+
+import com.mythology.cloud.apollo.analysis.tokenattributes.CharTermAttribute;
+import com.mythology.cloud.apollo.analysis.tokenattributes.OffsetAttribute;
+
+import java.io.IOException;
+
+/**
+ * An abstract base class for simple, character-oriented tokenizers.
+ * <p>
+ * The base class splits the input into maximal runs of code points that
+ * {@link #isTokenChar(int) are token characters}. Supplementary characters
+ * are handled as single code points, also when their surrogate pair is split
+ * across two reads of the input. The input is read through a fixed size
+ * buffer and the term text is written into the {@link CharTermAttribute}
+ * buffer, which only grows, so tokenizing does not allocate once the buffers
+ * are large enough.
+ * <p>
+ * 面向字符的分词器基类：把输入切分为连续的{@link #isTokenChar(int) 词元字符}，按码点处理增补字符；
+ * 输入通过固定大小的缓冲区读取，词元写入只增长不收缩的词元缓冲区，稳态下不分配对象。
+ * </p>
+ */
+public abstract class CharTokenizer extends Tokenizer {
+
+    private static final int IO_BUFFER_SIZE = 4096;
+
+    private final int maxTokenLen;
+
+    private int offset = 0, bufferIndex = 0, dataLen = 0, finalOffset = 0;
+    // whether the last char of the previous read is a high surrogate that is not part of dataLen
+    private boolean pendingHighSurrogate = false;
+    private boolean exhausted = false;
+    private final char[] ioBuffer = new char[IO_BUFFER_SIZE];
+
+    private final CharTermAttribute termAtt = addAttribute(CharTermAttribute.class);
+    private final OffsetAttribute offsetAtt = addAttribute(OffsetAttribute.class);
+
+    /**
+     * Creates a new {@link CharTokenizer} that does not limit the length of tokens.
+     */
+    public CharTokenizer() {
+        this(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Creates a new {@link CharTokenizer} that splits tokens that are longer
+     * than {@code maxTokenLen} chars.
+     *
+     * @param maxTokenLen maximum length of a token, in chars
+     */
+    public CharTokenizer(int maxTokenLen) {
+        if (maxTokenLen < 2) {
+            throw new IllegalArgumentException("maxTokenLen must be greater than 1; got " + maxTokenLen);
+        }
+        this.maxTokenLen = maxTokenLen;
+    }
+
+    /**
+     * Returns true iff a codepoint should be included in a token. This tokenizer
+     * generates as tokens adjacent sequences of codepoints which satisfy this
+     * predicate. Codepoints for which this is false are used to define token
+     * boundaries and are not included in tokens.
+     */
+    protected abstract boolean isTokenChar(int c);
+
+    @Override
+    public final boolean incrementToken() throws IOException {
+        clearAttributes();
+        int length = 0;
+        int start = -1; // this variable is always initialized
+        int end = -1;
+        char[] buffer = termAtt.buffer();
+        while (true) {
+            if (bufferIndex >= dataLen) {
+                offset += dataLen;
+                fill();
+                if (dataLen == 0) {
+                    if (length > 0) {
+                        break;
+                    } else {
+                        finalOffset = correctOffset(offset);
+                        return false;
+                    }
+                }
+                bufferIndex = 0;
+            }
+            final int c = Character.codePointAt(ioBuffer, bufferIndex, dataLen);
+            final int charCount = Character.charCount(c);
+            bufferIndex += charCount;
+
+            if (isTokenChar(c)) {               // if it's a token char
+                if (length == 0) {                // start of token
+                    start = offset + bufferIndex - charCount;
+                    end = start;
+                } else if (length >= buffer.length - 1) { // check if a supplementary could run out of bounds
+                    buffer = termAtt.resizeBuffer(2 + length); // make sure a supplementary fits in the buffer
+                }
+                end += charCount;
+                length += Character.toChars(c, buffer, length); // buffer it
+                if (length >= maxTokenLen) { // buffer overflow! make sure to check for >= surrogate pair could break == test
+                    break;
+                }
+            } else if (length > 0) {           // at non-Letter w/ chars
+                break;                           // return 'em
+            }
+        }
+
+        termAtt.setLength(length);
+        offsetAtt.setOffset(correctOffset(start), finalOffset = correctOffset(end));
+        return true;
+    }
+
+    // reads as many chars as fit into the buffer, holding back a trailing high
+    // surrogate until the next read so that surrogate pairs are never split
+    private void fill() throws IOException {
+        int len = 0;
+        if (pendingHighSurrogate) {
+            ioBuffer[0] = ioBuffer[dataLen];
+            len = 1;
+            pendingHighSurrogate = false;
+        }
+        while (exhausted == false && len < ioBuffer.length) {
+            final int read = input.read(ioBuffer, len, ioBuffer.length - len);
+            if (read == -1) {
+                exhausted = true;
+            } else {
+                len += read;
+            }
+        }
+        if (exhausted == false && len > 1 && Character.isHighSurrogate(ioBuffer[len - 1])) {
+            len--;
+            pendingHighSurrogate = true;
+        }
+        dataLen = len;
+    }
+
+    @Override
+    public final void end() throws IOException {
+        super.end();
+        // set final offset
+        offsetAtt.setOffset(finalOffset, finalOffset);
+    }
+
+    @Override
+    public void reset() throws IOException {
+        super.reset();
+        bufferIndex = 0;
+        offset = 0;
+        dataLen = 0;
+        finalOffset = 0;
+        pendingHighSurrogate = false;
+        exhausted = false;
+    }
+}
@@ -0,0 +1,44 @@
+package com.mythology.cloud.apollo.analysis;
+
+import com.mythology.cloud.apollo.analysis.tokenattributes.CharTermAttribute;
+
+import java.io.IOException;
+
+/**
+ * Normalizes token text to lower case, in place, code point by code point.
+ * <p>
+ * 将词元文本原地转换为小写的过滤器。
+ * </p>
+ */
+public final class LowerCaseFilter extends TokenFilter {
+    private final CharTermAttribute termAtt = addAttribute(CharTermAttribute.class);
+
+    /**
+     * Create a new LowerCaseFilter, that normalizes token text to lower case.
+     *
+     * @param in TokenStream to filter
+     */
+    public LowerCaseFilter(TokenStream in) {
+        super(in);
+    }
+
+    @Override
+    public boolean incrementToken() throws IOException {
+        if (input.incrementToken()) {
+            toLowerCase(termAtt.buffer(), 0, termAtt.length());
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    // lower-cases the given chars in place; a supplementary character and its
+    // lower case variant always have the same length
+    private static void toLowerCase(final char[] buffer, final int offset, final int limit) {
+        for (int i = offset; i < limit; ) {
+            i += Character.toChars(
+                    Character.toLowerCase(
+                            Character.codePointAt(buffer, i, limit)), buffer, i);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.mythology.cloud.apollo.analysis;
+
+import com.mythology.cloud.apollo.util.BytesRef;
+
+import java.io.Reader;
+
+/**
+ * Internal class to enable reuse of the string reader by {@link Analyzer#tokenStream(String, String)},
+ * and of the reader over decoded chars by {@link Analyzer#tokenStream(String, BytesRef)}
+ */
+final class ReusableStringReader extends Reader {
+    private int pos = 0, size = 0;
+    private String s = null;
+    private char[] chars = null;
+
+    void setValue(String s) {
+        this.s = s;
+        this.chars = null;
+        this.size = s.length();
+        this.pos = 0;
+    }
+
+    void setValue(char[] chars, int length) {
+        this.s = null;
+        this.chars = chars;
+        this.size = length;
+        this.pos = 0;
+    }
+
+    @Override
+    public int read() {
+        if (pos < size) {
+            return s != null ? s.charAt(pos++) : chars[pos++];
+        } else {
+            s = null;
+            chars = null;
+            return -1;
+        }
+    }
+
+    @Override
+    public int read(char[] c, int off, int len) {
+        if (pos < size) {
+            len = Math.min(len, size - pos);
+            if (s != null) {
+                s.getChars(pos, pos + len, c, off);
+            } else {
+                System.arraycopy(chars, pos, c, off, len);
+            }
+            pos += len;
+            return len;
+        } else {
+            s = null;
+            chars = null;
+            return -1;
+        }
+    }
+
+    @Override
+    public void close() {
+        pos = size; // this prevents NPE when reading after close!
+        s = null;
+        chars = null;
+    }
+}
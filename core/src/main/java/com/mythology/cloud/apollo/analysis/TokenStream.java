@@ -0,0 +1,130 @@
+package com.mythology.cloud.apollo.analysis;
+
+import com.mythology.cloud.apollo.util.Attribute;
+import com.mythology.cloud.apollo.util.AttributeImpl;
+import com.mythology.cloud.apollo.util.AttributeSource;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A <code>TokenStream</code> enumerates the sequence of tokens, either from
+ * fields of a document or from query text.
+ * <p>
+ * This is an abstract class; concrete subclasses are:
+ * <ul>
+ * <li>{@link Tokenizer}, a <code>TokenStream</code> whose input is a Reader; and
+ * <li>{@link TokenFilter}, a <code>TokenStream</code> whose input is another
+ * <code>TokenStream</code>.
+ * </ul>
+ * A <code>TokenStream</code> provides access to its token data through
+ * {@link Attribute}s, which are registered once, when the stream is built, and
+ * then overwritten for every token.
+ * <p>
+ * <b>The workflow of the new <code>TokenStream</code> API is as follows:</b>
+ * <ol>
+ * <li>Instantiation of <code>TokenStream</code>/{@link TokenFilter}s which add/get
+ * attributes to/from the {@link AttributeSource}.
+ * <li>The consumer calls {@link TokenStream#reset()}.
+ * <li>The consumer retrieves attributes from the stream and stores local
+ * references to all attributes it wants to access.
+ * <li>The consumer calls {@link #incrementToken()} until it returns false
+ * consuming the attributes after each call.
+ * <li>The consumer calls {@link #end()} so that any end-of-stream operations
+ * can be performed.
+ * <li>The consumer calls {@link #close()} to release any resource when finished
+ * using the <code>TokenStream</code>.
+ * </ol>
+ * <p>
+ * 词元流：通过属性（{@link Attribute}）逐个暴露词元，属性在构建时注册一次，之后每个词元覆盖其值，因此遍历词元不分配对象。
+ * </p>
+ */
+public abstract class TokenStream extends AttributeSource implements Closeable {
+
+    /**
+     * A TokenStream using the default attribute factory.
+     */
+    protected TokenStream() {
+        super();
+    }
+
+    /**
+     * A TokenStream that uses the same attributes as the supplied one.
+     */
+    protected TokenStream(AttributeSource input) {
+        super(input);
+    }
+
+    /**
+     * Consumers (i.e., {@link com.mythology.cloud.apollo.index.IndexWriter}) use this method to advance the stream to
+     * the next token. Implementing classes must implement this method and update
+     * the appropriate {@link AttributeImpl}s with the attributes of the next
+     * token.
+     * <p>
+     * The producer must make no assumptions about the attributes after the method
+     * has been returned: the caller may arbitrarily change it. If the producer
+     * needs to preserve the state for subsequent calls, it can use its own copy.
+     * <p>
+     * This method is called for every token of a document, so an efficient
+     * implementation is crucial for good performance. To avoid calls to
+     * {@link #addAttribute(Class)} and {@link #getAttribute(Class)},
+     * references to all {@link AttributeImpl}s that this stream uses should be
+     * retrieved during instantiation.
+     * <p>
+     * To ensure that filters and consumers know which attributes are available,
+     * the attributes must be added during instantiation. Filters and consumers
+     * are not required to check for availability of attributes in
+     * {@link #incrementToken()}.
+     *
+     * @return false for end of stream; true otherwise
+     */
+    public abstract boolean incrementToken() throws IOException;
+
+    /**
+     * This method is called by the consumer after the last token has been
+     * consumed, after {@link #incrementToken()} returned <code>false</code>
+     * (using the new <code>TokenStream</code> API). Streams implementing the old API
+     * should upgrade to use this feature.
+     * <p>
+     * This method can be used to perform any end-of-stream operations, such as
+     * setting the final offset of a stream. The final offset of a stream might
+     * differ from the offset of the last token eg in case one or more whitespaces
+     * followed after the last token, but a WhitespaceTokenizer was used.
+     * <p>
+     * Additionally any skipped positions (such as those removed by a stopfilter)
+     * can be applied to the position increment, or any adjustment of other
+     * attributes where the end-of-stream value may be important.
+     * <p>
+     * If you override this method, always call {@code super.end()}.
+     *
+     * @throws IOException If an I/O error occurs
+     */
+    public void end() throws IOException {
+        endAttributes(); // LUCENE-3849: don't consume dirty data
+    }
+
+    /**
+     * This method is called by a consumer before it begins consumption using
+     * {@link #incrementToken()}.
+     * <p>
+     * Resets this stream to a clean state. Stateful implementations must implement
+     * this method so that they can be reused, just as if they had been created fresh.
+     * <p>
+     * If you override this method, always call {@code super.reset()}, otherwise
+     * some internal state will not be correctly reset (e.g., {@link Tokenizer} will
+     * throw {@link IllegalStateException} on further usage).
+     */
+    public void reset() throws IOException {
+    }
+
+    /**
+     * Releases resources associated with this stream.
+     * <p>
+     * If you override this method, always call {@code super.close()}, otherwise
+     * some internal state will not be correctly reset (e.g., {@link Tokenizer} will
+     * throw {@link IllegalStateException} on reuse).
+     */
+    @Override
+    public void close() throws IOException {
+    }
+}
@@ -0,0 +1,97 @@
+package com.mythology.cloud.apollo.analysis;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * A Tokenizer is a TokenStream whose input is a Reader.
+ * <p>
+ * This is an abstract class; subclasses must override {@link #incrementToken()}
+ * <p>
+ * NOTE: Subclasses overriding {@link #incrementToken()} must
+ * call {@link #clearAttributes()} before
+ * setting attributes.
+ * <p>
+ * 输入为{@link Reader}的词元流；通过{@link #setReader(Reader)}设置新的输入后即可复用。
+ * </p>
+ */
+public abstract class Tokenizer extends TokenStream {
+    /**
+     * The text source for this Tokenizer.
+     */
+    protected Reader input = ILLEGAL_STATE_READER;
+
+    /**
+     * Pending reader: not actually assigned to input until reset()
+     */
+    private Reader inputPending = ILLEGAL_STATE_READER;
+
+    /**
+     * Construct a tokenizer with no input, awaiting a call to {@link #setReader(Reader)}
+     * to provide input.
+     */
+    protected Tokenizer() {
+        //
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * <b>NOTE:</b>
+     * The default implementation closes the input Reader, so
+     * be sure to call <code>super.close()</code> when overriding this method.
+     */
+    @Override
+    public void close() throws IOException {
+        input.close();
+        // LUCENE-2387: don't hold onto Reader after close, so
+        // GC can reclaim
+        inputPending = input = ILLEGAL_STATE_READER;
+    }
+
+    /**
+     * Return the corrected offset. The default implementation returns the
+     * offset unchanged, tokenizers whose reader transforms the text may
+     * override it to map offsets back to the original text.
+     *
+     * @param currentOff offset as seen in the output
+     * @return corrected offset based on the input
+     */
+    protected int correctOffset(int currentOff) {
+        return currentOff;
+    }
+
+    /**
+     * Expert: Set a new reader on the Tokenizer.  Typically, an
+     * analyzer (in its tokenStream method) will use
+     * this to re-use a previously created tokenizer.
+     */
+    public final void setReader(Reader input) {
+        if (input == null) {
+            throw new NullPointerException("input must not be null");
+        } else if (this.input != ILLEGAL_STATE_READER) {
+            throw new IllegalStateException("TokenStream contract violation: close() call missing");
+        }
+        this.inputPending = input;
+    }
+
+    @Override
+    public void reset() throws IOException {
+        super.reset();
+        input = inputPending;
+        inputPending = ILLEGAL_STATE_READER;
+    }
+
+    private static final Reader ILLEGAL_STATE_READER = new Reader() {
+        @Override
+        public int read(char[] cbuf, int off, int len) {
+            throw new IllegalStateException("TokenStream contract violation: reset()/close() call missing, " +
+                    "reset() called multiple times, or subclass does not call super.reset(). " +
+                    "Please see Javadocs of TokenStream class for more information about the correct consuming workflow.");
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+}
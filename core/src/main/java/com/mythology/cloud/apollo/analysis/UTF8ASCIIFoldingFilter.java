@@ -0,0 +1,190 @@
+package com.mythology.cloud.apollo.analysis;
+
+import com.mythology.cloud.apollo.analysis.tokenattributes.UTF8TermAttribute;
+import com.mythology.cloud.apollo.util.ArrayUtil;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+
+/**
+ * Converts the Latin letters with diacritics, ligatures and typographic
+ * punctuation of UTF-8 terms to their ASCII equivalents, e.g. "&eacute;" to
+ * "e", "&szlig;" to "ss" and "&rsquo;" to "'". Other characters are kept.
+ * <p>
+ * The folded forms of the Latin-1 Supplement, Latin Extended-A and B and
+ * Latin Extended Additional blocks are computed once from their canonical
+ * decompositions. ASCII terms are returned unchanged without being copied.
+ * <p>
+ * 把UTF-8词元中带变音符号的拉丁字母、连字和排版标点转换为ASCII等价形式的过滤器；ASCII词元不做任何复制。
+ * </p>
+ *
+ * @lucene.experimental
+ */
+public final class UTF8ASCIIFoldingFilter extends TokenFilter {
+
+    private static final int LATIN_START = 0x80;
+    private static final int LATIN_END = 0x250;
+    private static final int LATIN_ADDITIONAL_START = 0x1E00;
+    private static final int LATIN_ADDITIONAL_END = 0x1F00;
+    private static final int PUNCTUATION_START = 0x2010;
+    private static final int PUNCTUATION_END = 0x2040;
+
+    private static final byte[][] LATIN = new byte[LATIN_END - LATIN_START][];
+    private static final byte[][] LATIN_ADDITIONAL = new byte[LATIN_ADDITIONAL_END - LATIN_ADDITIONAL_START][];
+    private static final byte[][] PUNCTUATION = new byte[PUNCTUATION_END - PUNCTUATION_START][];
+
+    static {
+        for (int cp = LATIN_START; cp < LATIN_END; cp++) {
+            LATIN[cp - LATIN_START] = decompose(cp);
+        }
+        for (int cp = LATIN_ADDITIONAL_START; cp < LATIN_ADDITIONAL_END; cp++) {
+            LATIN_ADDITIONAL[cp - LATIN_ADDITIONAL_START] = decompose(cp);
+        }
+        // letters without decomposition
+        fold(0x00C6, "AE");
+        fold(0x00D0, "D");
+        fold(0x00D8, "O");
+        fold(0x00DE, "TH");
+        fold(0x00DF, "ss");
+        fold(0x00E6, "ae");
+        fold(0x00F0, "d");
+        fold(0x00F8, "o");
+        fold(0x00FE, "th");
+        fold(0x0110, "D");
+        fold(0x0111, "d");
+        fold(0x0126, "H");
+        fold(0x0127, "h");
+        fold(0x0131, "i");
+        fold(0x0132, "IJ");
+        fold(0x0133, "ij");
+        fold(0x013F, "L");
+        fold(0x0140, "l");
+        fold(0x0141, "L");
+        fold(0x0142, "l");
+        fold(0x014A, "N");
+        fold(0x014B, "n");
+        fold(0x0152, "OE");
+        fold(0x0153, "oe");
+        fold(0x0166, "T");
+        fold(0x0167, "t");
+        fold(0x0180, "b");
+        fold(0x0197, "I");
+        fold(0x019A, "l");
+        fold(0x01B5, "Z");
+        fold(0x01B6, "z");
+        fold(0x01E4, "G");
+        fold(0x01E5, "g");
+        fold(0x1E9E, "SS");
+        // typographic punctuation
+        fold(0x2010, "-");
+        fold(0x2011, "-");
+        fold(0x2012, "-");
+        fold(0x2013, "-");
+        fold(0x2014, "-");
+        fold(0x2018, "'");
+        fold(0x2019, "'");
+        fold(0x201A, "'");
+        fold(0x201B, "'");
+        fold(0x201C, "\"");
+        fold(0x201D, "\"");
+        fold(0x201E, "\"");
+        fold(0x2026, "...");
+        fold(0x2039, "<");
+        fold(0x203A, ">");
+    }
+
+    // the ASCII base letter of a letter followed by combining marks, or null
+    private static byte[] decompose(int cp) {
+        if (Character.isLetter(cp) == false) {
+            return null;
+        }
+        final String decomposed = Normalizer.normalize(new String(Character.toChars(cp)), Normalizer.Form.NFKD);
+        final StringBuilder folded = new StringBuilder();
+        for (int i = 0; i < decomposed.length(); i++) {
+            final char c = decomposed.charAt(i);
+            if (c < 0x80) {
+                folded.append(c);
+            } else if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                return null;
+            }
+        }
+        return folded.length() == 0 ? null : folded.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static void fold(int cp, String ascii) {
+        final byte[] bytes = ascii.getBytes(StandardCharsets.US_ASCII);
+        if (cp < LATIN_END) {
+            LATIN[cp - LATIN_START] = bytes;
+        } else if (cp >= LATIN_ADDITIONAL_START && cp < LATIN_ADDITIONAL_END) {
+            LATIN_ADDITIONAL[cp - LATIN_ADDITIONAL_START] = bytes;
+        } else {
+            PUNCTUATION[cp - PUNCTUATION_START] = bytes;
+        }
+    }
+
+    // the ASCII folding of a non-ASCII code point, or null if it is kept
+    private static byte[] folding(int cp) {
+        if (cp < LATIN_END) {
+            return LATIN[cp - LATIN_START];
+        } else if (cp >= LATIN_ADDITIONAL_START && cp < LATIN_ADDITIONAL_END) {
+            return LATIN_ADDITIONAL[cp - LATIN_ADDITIONAL_START];
+        } else if (cp >= PUNCTUATION_START && cp < PUNCTUATION_END) {
+            return PUNCTUATION[cp - PUNCTUATION_START];
+        }
+        return null;
+    }
+
+    private final UTF8TermAttribute termAtt = addAttribute(UTF8TermAttribute.class);
+    private byte[] scratch = new byte[0];
+
+    /**
+     * Create a new UTF8ASCIIFoldingFilter on the given input.
+     */
+    public UTF8ASCIIFoldingFilter(TokenStream input) {
+        super(input);
+    }
+
+    @Override
+    public boolean incrementToken() throws IOException {
+        if (input.incrementToken() == false) {
+            return false;
+        }
+        final byte[] term = termAtt.buffer();
+        final int length = termAtt.length();
+        for (int i = 0; i < length; i++) {
+            if (term[i] < 0) {
+                foldToASCII(term, length, i);
+                break;
+            }
+        }
+        return true;
+    }
+
+    // folds the term from the first non-ASCII byte; no folding is more than
+    // twice as long as the UTF-8 encoding of the folded character
+    private void foldToASCII(byte[] term, int length, int from) {
+        scratch = ArrayUtil.grow(scratch, length * 2);
+        System.arraycopy(term, 0, scratch, 0, from);
+        int out = from;
+        for (int i = from; i < length; ) {
+            final byte b = term[i];
+            if (b >= 0) {
+                scratch[out++] = b;
+                i++;
+                continue;
+            }
+            final int len = UTF8Util.sequenceLength(b);
+            final byte[] folded = folding(UTF8Util.codePointAt(term, i, len));
+            if (folded == null) {
+                System.arraycopy(term, i, scratch, out, len);
+                out += len;
+            } else {
+                System.arraycopy(folded, 0, scratch, out, folded.length);
+                out += folded.length;
+            }
+            i += len;
+        }
+        termAtt.copyBytes(scratch, 0, out);
+    }
+}
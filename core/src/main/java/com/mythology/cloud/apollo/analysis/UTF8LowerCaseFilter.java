@@ -0,0 +1,70 @@
+package com.mythology.cloud.apollo.analysis;
+
+import com.mythology.cloud.apollo.analysis.tokenattributes.UTF8TermAttribute;
+import com.mythology.cloud.apollo.util.ArrayUtil;
+
+import java.io.IOException;
+
+/**
+ * The UTF-8 equivalent of {@link LowerCaseFilter}. ASCII terms are lower
+ * cased in place, terms with other characters are decoded and re-encoded
+ * code point by code point, since their lower case may have a different
+ * UTF-8 length.
+ * <p>
+ * 与{@link LowerCaseFilter}等价的UTF-8过滤器：ASCII词元原地转换，其它词元逐码点转换。
+ * </p>
+ *
+ * @lucene.experimental
+ */
+public final class UTF8LowerCaseFilter extends TokenFilter {
+    private final UTF8TermAttribute termAtt = addAttribute(UTF8TermAttribute.class);
+    private byte[] scratch = new byte[0];
+
+    /**
+     * Create a new UTF8LowerCaseFilter, that normalizes token text to lower case.
+     *
+     * @param in TokenStream to filter
+     */
+    public UTF8LowerCaseFilter(TokenStream in) {
+        super(in);
+    }
+
+    @Override
+    public boolean incrementToken() throws IOException {
+        if (input.incrementToken() == false) {
+            return false;
+        }
+        final byte[] term = termAtt.buffer();
+        final int length = termAtt.length();
+        for (int i = 0; i < length; i++) {
+            final byte b = term[i];
+            if (b < 0) {
+                lowerCase(term, length, i);
+                break;
+            } else if (b >= 'A' && b <= 'Z') {
+                term[i] = (byte) (b + ('a' - 'A'));
+            }
+        }
+        return true;
+    }
+
+    // lower-cases the term from the first non-ASCII byte
+    private void lowerCase(byte[] term, int length, int from) {
+        // a lower case code point is at most one byte longer
+        scratch = ArrayUtil.grow(scratch, length * 2);
+        System.arraycopy(term, 0, scratch, 0, from);
+        int out = from;
+        for (int i = from; i < length; ) {
+            final byte b = term[i];
+            if (b >= 0) {
+                scratch[out++] = b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+                i++;
+            } else {
+                final int len = UTF8Util.sequenceLength(b);
+                out = UTF8Util.encode(Character.toLowerCase(UTF8Util.codePointAt(term, i, len)), scratch, out);
+                i += len;
+            }
+        }
+        termAtt.copyBytes(scratch, 0, out);
+    }
+}
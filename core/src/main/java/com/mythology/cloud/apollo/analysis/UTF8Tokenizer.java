@@ -0,0 +1,160 @@
+package com.mythology.cloud.apollo.analysis;
+
+import com.mythology.cloud.apollo.analysis.tokenattributes.OffsetAttribute;
+import com.mythology.cloud.apollo.analysis.tokenattributes.UTF8TermAttribute;
+import com.mythology.cloud.apollo.util.BytesRef;
+
+import java.io.IOException;
+
+/**
+ * A tokenizer whose input is UTF-8 bytes, and which writes the term bytes
+ * directly into a {@link UTF8TermAttribute}, without decoding the input to
+ * chars and encoding the terms back to UTF-8.
+ * <p>
+ * Like {@link CharTokenizer}, it splits the input into maximal runs of code
+ * points that {@link #isTokenChar(int) are token characters}. The input is
+ * validated while it is decoded, the same way as
+ * {@link com.mythology.cloud.apollo.util.UnicodeUtil#codePointCount(BytesRef)}
+ * does, and an {@link IllegalArgumentException} is thrown on invalid UTF-8.
+ * Offsets are counted in UTF-16 chars, so that they are the same as those of
+ * the equivalent char based tokenizer.
+ * <p>
+ * Filters of UTF-8 chains must work on the {@link UTF8TermAttribute}, such as
+ * {@link UTF8LowerCaseFilter} and {@link UTF8ASCIIFoldingFilter}.
+ * <p>
+ * 输入为UTF-8字节的分词器：直接把词元字节写入{@link UTF8TermAttribute}，避免先解码为字符再编码回UTF-8；
+ * 解码的同时校验输入，偏移量按UTF-16字符计算，与基于字符的分词器一致。
+ * </p>
+ *
+ * @lucene.experimental
+ */
+public abstract class UTF8Tokenizer extends TokenStream {
+
+    // input set by setInput, not read until reset()
+    private byte[] pendingBytes;
+    private int pendingOffset, pendingLength;
+
+    private byte[] bytes;
+    private int start, upto, limit;
+    // offset of upto in UTF-16 chars
+    private int charOffset;
+    private int finalOffset;
+
+    private final UTF8TermAttribute termAtt = addAttribute(UTF8TermAttribute.class);
+    private final OffsetAttribute offsetAtt = addAttribute(OffsetAttribute.class);
+
+    /**
+     * Construct a tokenizer with no input, awaiting a call to {@link #setInput(byte[], int, int)}.
+     */
+    protected UTF8Tokenizer() {
+    }
+
+    /**
+     * Returns true iff a codepoint should be included in a token.
+     *
+     * @see CharTokenizer#isTokenChar(int)
+     */
+    protected abstract boolean isTokenChar(int c);
+
+    /**
+     * Set the UTF-8 input of this tokenizer. The bytes are not copied, and must
+     * not change until the tokenizer is {@link #close() closed}.
+     */
+    public final void setInput(byte[] bytes, int offset, int length) {
+        if (bytes == null) {
+            throw new NullPointerException("bytes must not be null");
+        } else if (this.bytes != null) {
+            throw new IllegalStateException("TokenStream contract violation: close() call missing");
+        }
+        this.pendingBytes = bytes;
+        this.pendingOffset = offset;
+        this.pendingLength = length;
+    }
+
+    /**
+     * Set the UTF-8 input of this tokenizer, see {@link #setInput(byte[], int, int)}.
+     */
+    public final void setInput(BytesRef utf8) {
+        setInput(utf8.bytes, utf8.offset, utf8.length);
+    }
+
+    @Override
+    public final boolean incrementToken() throws IOException {
+        clearAttributes();
+        final byte[] bytes = this.bytes;
+        final int limit = this.limit;
+        int upto = this.upto;
+        int charOffset = this.charOffset;
+        int tokenStart = -1;
+        int tokenStartChar = 0;
+        while (upto < limit) {
+            final int lead = bytes[upto];
+            final int codePoint;
+            final int length;
+            if (lead >= 0) {
+                codePoint = lead;
+                length = 1;
+            } else {
+                length = UTF8Util.sequenceLength(lead);
+                if (length == 0 || upto + length > limit) {
+                    throw new IllegalArgumentException("Invalid UTF-8 at byte " + (upto - start) + " of the input");
+                }
+                codePoint = UTF8Util.codePointAt(bytes, upto, length);
+            }
+            if (isTokenChar(codePoint)) {
+                if (tokenStart == -1) {
+                    tokenStart = upto;
+                    tokenStartChar = charOffset;
+                }
+            } else if (tokenStart != -1) {
+                break;
+            }
+            upto += length;
+            // supplementary characters are two UTF-16 chars
+            charOffset += length == 4 ? 2 : 1;
+        }
+        this.upto = upto;
+        this.charOffset = charOffset;
+
+        if (tokenStart == -1) {
+            finalOffset = charOffset;
+            return false;
+        }
+        termAtt.copyBytes(bytes, tokenStart, upto - tokenStart);
+        offsetAtt.setOffset(tokenStartChar, charOffset);
+        return true;
+    }
+
+    @Override
+    public final void end() throws IOException {
+        super.end();
+        // set final offset
+        offsetAtt.setOffset(finalOffset, finalOffset);
+    }
+
+    @Override
+    public void reset() throws IOException {
+        super.reset();
+        if (pendingBytes == null) {
+            throw new IllegalStateException("TokenStream contract violation: setInput()/reset() or close() call missing");
+        }
+        bytes = pendingBytes;
+        start = upto = pendingOffset;
+        limit = pendingOffset + pendingLength;
+        pendingBytes = null;
+        charOffset = 0;
+        finalOffset = 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * <b>NOTE:</b>
+     * The default implementation releases the input, so
+     * be sure to call <code>super.close()</code> when overriding this method.
+     */
+    @Override
+    public void close() throws IOException {
+        bytes = pendingBytes = null;
+    }
+}
@@ -0,0 +1,76 @@
+package com.mythology.cloud.apollo.analysis;
+
+/**
+ * Encoding and decoding of single code points in UTF-8 bytes, for the UTF-8
+ * analysis chains. Decoding assumes well-formed input, as validated by
+ * {@link UTF8Tokenizer}.
+ */
+final class UTF8Util {
+
+    private UTF8Util() {
+    } // no instance
+
+    /**
+     * Returns the number of bytes of the UTF-8 sequence with the given lead
+     * byte, or 0 if the byte cannot start a sequence.
+     */
+    static int sequenceLength(int lead) {
+        lead &= 0xFF;
+        if (lead < /* 0xxx xxxx */ 0x80) {
+            return 1;
+        } else if (lead < /* 110x xxxx */ 0xC0) {
+            return 0;
+        } else if (lead < /* 1110 xxxx */ 0xE0) {
+            return 2;
+        } else if (lead < /* 1111 0xxx */ 0xF0) {
+            return 3;
+        } else if (lead < /* 1111 1xxx */ 0xF8) {
+            return 4;
+        } else {
+            // 5 and 6 byte sequences are invalid
+            return 0;
+        }
+    }
+
+    /**
+     * Decodes the code point of the sequence of the given length at {@code pos}.
+     */
+    static int codePointAt(byte[] bytes, int pos, int length) {
+        switch (length) {
+            case 1:
+                return bytes[pos];
+            case 2:
+                return ((bytes[pos] & 0x1F) << 6) | (bytes[pos + 1] & 0x3F);
+            case 3:
+                return ((bytes[pos] & 0x0F) << 12) | ((bytes[pos + 1] & 0x3F) << 6) | (bytes[pos + 2] & 0x3F);
+            case 4:
+                return ((bytes[pos] & 0x07) << 18) | ((bytes[pos + 1] & 0x3F) << 12)
+                        | ((bytes[pos + 2] & 0x3F) << 6) | (bytes[pos + 3] & 0x3F);
+            default:
+                throw new AssertionError("invalid sequence length: " + length);
+        }
+    }
+
+    /**
+     * Encodes a code point at {@code pos}, which must have room for 4 bytes,
+     * and returns the position after it.
+     */
+    static int encode(int codePoint, byte[] out, int pos) {
+        if (codePoint < 0x80) {
+            out[pos++] = (byte) codePoint;
+        } else if (codePoint < 0x800) {
+            out[pos++] = (byte) (0xC0 | (codePoint >> 6));
+            out[pos++] = (byte) (0x80 | (codePoint & 0x3F));
+        } else if (codePoint < 0x10000) {
+            out[pos++] = (byte) (0xE0 | (codePoint >> 12));
+            out[pos++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+            out[pos++] = (byte) (0x80 | (codePoint & 0x3F));
+        } else {
+            out[pos++] = (byte) (0xF0 | (codePoint >> 18));
+            out[pos++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+            out[pos++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+            out[pos++] = (byte) (0x80 | (codePoint & 0x3F));
+        }
+        return pos;
+    }
+}
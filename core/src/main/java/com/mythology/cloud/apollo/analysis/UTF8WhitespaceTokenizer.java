@@ -0,0 +1,28 @@
+package com.mythology.cloud.apollo.analysis;
+
+/**
+ * The UTF-8 equivalent of {@link WhitespaceTokenizer}: divides UTF-8 text at
+ * whitespace characters as defined by {@link Character#isWhitespace(int)}.
+ * <p>
+ * 与{@link WhitespaceTokenizer}等价的UTF-8分词器。
+ * </p>
+ *
+ * @lucene.experimental
+ */
+public final class UTF8WhitespaceTokenizer extends UTF8Tokenizer {
+
+    /**
+     * Construct a new UTF8WhitespaceTokenizer.
+     */
+    public UTF8WhitespaceTokenizer() {
+    }
+
+    /**
+     * Collects only characters which do not satisfy
+     * {@link Character#isWhitespace(int)}.
+     */
+    @Override
+    protected boolean isTokenChar(int c) {
+        return !Character.isWhitespace(c);
+    }
+}
@@ -0,0 +1,27 @@
+package com.mythology.cloud.apollo.analysis;
+
+/**
+ * An Analyzer that uses {@link WhitespaceTokenizer}, or {@link UTF8WhitespaceTokenizer}
+ * for UTF-8 input.
+ * <p>
+ * 使用{@link WhitespaceTokenizer}的分析器，是{@link com.mythology.cloud.apollo.index.IndexWriterConfig}的默认分析器。
+ * </p>
+ */
+public final class WhitespaceAnalyzer extends Analyzer {
+
+    /**
+     * Creates a new {@link WhitespaceAnalyzer}.
+     */
+    public WhitespaceAnalyzer() {
+    }
+
+    @Override
+    protected TokenStreamComponents createComponents(final String fieldName) {
+        return new TokenStreamComponents(new WhitespaceTokenizer());
+    }
+
+    @Override
+    protected UTF8TokenStreamComponents createUTF8Components(final String fieldName) {
+        return new UTF8TokenStreamComponents(new UTF8WhitespaceTokenizer());
+    }
+}
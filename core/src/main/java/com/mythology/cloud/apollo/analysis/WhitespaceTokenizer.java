@@ -0,0 +1,35 @@
+package com.mythology.cloud.apollo.analysis;
+
+/**
+ * A tokenizer that divides text at whitespace characters as defined by
+ * {@link Character#isWhitespace(int)}.  Note: That definition explicitly excludes the non-breaking space.
+ * Adjacent sequences of non-Whitespace characters form tokens.
+ * <p>
+ * 按{@link Character#isWhitespace(int)}定义的空白字符切分文本的分词器。
+ * </p>
+ */
+public final class WhitespaceTokenizer extends CharTokenizer {
+
+    /**
+     * Construct a new WhitespaceTokenizer.
+     */
+    public WhitespaceTokenizer() {
+    }
+
+    /**
+     * Construct a new WhitespaceTokenizer that splits tokens that are longer
+     * than {@code maxTokenLen} chars.
+     */
+    public WhitespaceTokenizer(int maxTokenLen) {
+        super(maxTokenLen);
+    }
+
+    /**
+     * Collects only characters which do not satisfy
+     * {@link Character#isWhitespace(int)}.
+     */
+    @Override
+    protected boolean isTokenChar(int c) {
+        return !Character.isWhitespace(c);
+    }
+}
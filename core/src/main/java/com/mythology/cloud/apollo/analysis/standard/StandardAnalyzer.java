@@ -0,0 +1,59 @@
+package com.mythology.cloud.apollo.analysis.standard;
+
+import com.mythology.cloud.apollo.analysis.Analyzer;
+import com.mythology.cloud.apollo.analysis.LowerCaseFilter;
+import com.mythology.cloud.apollo.analysis.TokenStream;
+
+import java.io.Reader;
+
+/**
+ * Filters {@link StandardTokenizer} with {@link LowerCaseFilter}.
+ * <p>
+ * 使用{@link StandardTokenizer}分词并转换为小写的分析器。
+ * </p>
+ */
+public final class StandardAnalyzer extends Analyzer {
+
+    private int maxTokenLength = StandardTokenizer.DEFAULT_MAX_TOKEN_LENGTH;
+
+    /**
+     * Builds an analyzer with the default max token length.
+     */
+    public StandardAnalyzer() {
+    }
+
+    /**
+     * Set the max allowed token length.  Tokens larger than this will be chopped
+     * up at this token length and emitted as multiple tokens.
+     * <p>
+     * This setting only takes effect the next time tokenStream is called.
+     */
+    public void setMaxTokenLength(int length) {
+        maxTokenLength = length;
+    }
+
+    /**
+     * Returns the current maximum token length
+     *
+     * @see #setMaxTokenLength
+     */
+    public int getMaxTokenLength() {
+        return maxTokenLength;
+    }
+
+    @Override
+    protected TokenStreamComponents createComponents(final String fieldName) {
+        final StandardTokenizer src = new StandardTokenizer();
+        src.setMaxTokenLength(maxTokenLength);
+        TokenStream tok = new LowerCaseFilter(src);
+        return new TokenStreamComponents(src, tok) {
+            @Override
+            protected void setReader(final Reader reader) {
+                // So that if maxTokenLength was changed, the change takes
+                // effect next time tokenStream is called:
+                src.setMaxTokenLength(StandardAnalyzer.this.maxTokenLength);
+                super.setReader(reader);
+            }
+        };
+    }
+}
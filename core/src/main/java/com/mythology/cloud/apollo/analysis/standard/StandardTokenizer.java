@@ -0,0 +1,165 @@
+package com.mythology.cloud.apollo.analysis.standard;
+
+import com.mythology.cloud.apollo.analysis.Tokenizer;
+import com.mythology.cloud.apollo.analysis.tokenattributes.CharTermAttribute;
+import com.mythology.cloud.apollo.analysis.tokenattributes.OffsetAttribute;
+import com.mythology.cloud.apollo.analysis.tokenattributes.TypeAttribute;
+
+import java.io.IOException;
+
+/**
+ * A grammar-based tokenizer that implements the Word Break rules from the
+ * Unicode Text Segmentation algorithm, as specified in
+ * <a href="http://unicode.org/reports/tr29/">Unicode Standard Annex #29</a>.
+ * <p>
+ * Words are returned with their {@link TypeAttribute type}, one of
+ * {@link #TOKEN_TYPES}. Words longer than {@link #setMaxTokenLength(int) the
+ * max token length} are split.
+ * <p>
+ * The scanner is a table-driven DFA with a lookup table for ASCII chars, so
+ * that mostly ASCII text is tokenized without {@link java.text.BreakIterator}
+ * or regular expressions, see {@code StandardTokenizerImpl}.
+ * <p>
+ * 实现UAX#29词边界规则的分词器：扫描器为查表驱动的DFA，ASCII字符通过查表快速分类；
+ * 超过最大长度的词会被切分。
+ * </p>
+ */
+public final class StandardTokenizer extends Tokenizer {
+
+    /**
+     * Alpha/numeric token type
+     */
+    public static final int ALPHANUM = 0;
+    /**
+     * Numeric token type
+     */
+    public static final int NUM = 1;
+    /**
+     * Southeast Asian token type
+     */
+    public static final int SOUTHEAST_ASIAN = 2;
+    /**
+     * Ideographic token type
+     */
+    public static final int IDEOGRAPHIC = 3;
+    /**
+     * Hiragana token type
+     */
+    public static final int HIRAGANA = 4;
+    /**
+     * Katakana token type
+     */
+    public static final int KATAKANA = 5;
+    /**
+     * Hangul token type
+     */
+    public static final int HANGUL = 6;
+
+    /**
+     * String token types that correspond to token type int constants
+     */
+    public static final String[] TOKEN_TYPES = new String[]{
+            "<ALPHANUM>",
+            "<NUM>",
+            "<SOUTHEAST_ASIAN>",
+            "<IDEOGRAPHIC>",
+            "<HIRAGANA>",
+            "<KATAKANA>",
+            "<HANGUL>"
+    };
+
+    /**
+     * Default maximum allowed token length
+     */
+    public static final int DEFAULT_MAX_TOKEN_LENGTH = 255;
+
+    /**
+     * Absolute maximum sized token
+     */
+    public static final int MAX_TOKEN_LENGTH_LIMIT = 1024 * 1024;
+
+    /**
+     * A private instance of the scanner
+     */
+    private final StandardTokenizerImpl scanner;
+
+    private int maxTokenLength = DEFAULT_MAX_TOKEN_LENGTH;
+
+    private final CharTermAttribute termAtt = addAttribute(CharTermAttribute.class);
+    private final OffsetAttribute offsetAtt = addAttribute(OffsetAttribute.class);
+    private final TypeAttribute typeAtt = addAttribute(TypeAttribute.class);
+
+    /**
+     * Creates a new instance of the {@link StandardTokenizer}.  Attaches
+     * the <code>input</code> to the newly created scanner.
+     */
+    public StandardTokenizer() {
+        this.scanner = new StandardTokenizerImpl(input);
+    }
+
+    /**
+     * Set the max allowed token length.  Tokens larger than this will be chopped
+     * up at this token length and emitted as multiple tokens.  If you need to
+     * skip such large tokens, you could increase this max length, and then
+     * filter out the long tokens.
+     *
+     * @throws IllegalArgumentException if the given length is outside of the
+     *                                  range [1, {@value #MAX_TOKEN_LENGTH_LIMIT}].
+     */
+    public void setMaxTokenLength(int length) {
+        if (length < 1) {
+            throw new IllegalArgumentException("maxTokenLength must be greater than zero");
+        } else if (length > MAX_TOKEN_LENGTH_LIMIT) {
+            throw new IllegalArgumentException("maxTokenLength may not exceed " + MAX_TOKEN_LENGTH_LIMIT);
+        }
+        if (length != maxTokenLength) {
+            maxTokenLength = length;
+            scanner.setMaxTokenLength(length);
+        }
+    }
+
+    /**
+     * Returns the current maximum token length
+     *
+     * @see #setMaxTokenLength
+     */
+    public int getMaxTokenLength() {
+        return maxTokenLength;
+    }
+
+    @Override
+    public boolean incrementToken() throws IOException {
+        clearAttributes();
+
+        final int tokenType = scanner.getNextToken();
+        if (tokenType == StandardTokenizerImpl.YYEOF) {
+            return false;
+        }
+
+        scanner.getText(termAtt);
+        final int start = scanner.yychar();
+        offsetAtt.setOffset(correctOffset(start), correctOffset(start + termAtt.length()));
+        typeAtt.setType(TOKEN_TYPES[tokenType]);
+        return true;
+    }
+
+    @Override
+    public void end() throws IOException {
+        super.end();
+        // set final offset
+        final int finalOffset = correctOffset(scanner.numCharsRead());
+        offsetAtt.setOffset(finalOffset, finalOffset);
+    }
+
+    @Override
+    public void close() throws IOException {
+        super.close();
+        scanner.yyreset(input);
+    }
+
+    @Override
+    public void reset() throws IOException {
+        super.reset();
+        scanner.yyreset(input);
+    }
+}
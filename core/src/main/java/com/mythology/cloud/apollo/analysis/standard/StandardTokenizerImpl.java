@@ -0,0 +1,469 @@
+package com.mythology.cloud.apollo.analysis.standard;
+
+import com.mythology.cloud.apollo.analysis.tokenattributes.CharTermAttribute;
+import com.mythology.cloud.apollo.util.ArrayUtil;
+import com.mythology.cloud.apollo.util.UnicodeUtil;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Scanner of {@link StandardTokenizer}: a table-driven DFA over word break
+ * classes that implements the word boundary rules of
+ * <a href="http://unicode.org/reports/tr29/">UAX#29</a> and returns the
+ * longest match at every position.
+ * <p>
+ * Chars are read from the reader into a {@code char[]} buffer. ASCII chars are
+ * classified through a 128-entry table, other chars of the basic multilingual
+ * plane through a table computed once from the {@link Character} properties,
+ * and surrogate pairs are decoded with {@link UnicodeUtil#toCodePoint(char, char)}.
+ * <p>
+ * Word_Break properties are approximated from the general categories and
+ * scripts that the JDK knows about. Like in Lucene's grammar, ideographs and
+ * hiragana are single char tokens, runs of Southeast Asian letters are single
+ * tokens, and segments without letters, digits or ideographs (whitespace,
+ * punctuation, symbols, emoji) are not returned.
+ * <p>
+ * {@link StandardTokenizer}的扫描器：基于词边界类别的查表DFA，实现UAX#29词边界规则并在每个位置取最长匹配；
+ * ASCII字符通过128项的表分类，其它BMP字符通过预先计算的表分类，代理对由{@link UnicodeUtil}解码。
+ * </p>
+ */
+final class StandardTokenizerImpl {
+
+    /**
+     * Returned by {@link #getNextToken()} at the end of the input.
+     */
+    static final int YYEOF = -1;
+
+    private static final int INITIAL_BUFFER_SIZE = 4096;
+
+    // word break classes
+    private static final int OTHER = 0;
+    private static final int ALETTER = 1;
+    private static final int HEBREW_LETTER = 2;
+    private static final int HANGUL = 3;
+    private static final int NUMERIC = 4;
+    private static final int KATAKANA = 5;
+    private static final int EXTEND_NUM_LET = 6;
+    private static final int MID_LETTER = 7;
+    private static final int MID_NUM = 8;
+    private static final int MID_NUM_LET = 9;
+    private static final int SINGLE_QUOTE = 10;
+    private static final int DOUBLE_QUOTE = 11;
+    // Extend, Format and ZWJ, which are ignored within a word (WB4)
+    private static final int EXTEND = 12;
+    private static final int IDEOGRAPHIC = 13;
+    private static final int HIRAGANA = 14;
+    private static final int SOUTHEAST_ASIAN = 15;
+    private static final int NUM_CLASSES = 16;
+
+    // states
+    private static final int S_START = 0;
+    private static final int S_LETTER = 1;
+    private static final int S_HEBREW = 2;
+    private static final int S_NUMBER = 3;
+    private static final int S_KATAKANA = 4;
+    // ExtendNumLet after a letter, number or katakana
+    private static final int S_CONNECTED = 5;
+    // ExtendNumLet at the start of the token
+    private static final int S_LEADING_CONNECTOR = 6;
+    // MidLetter, MidNumLet or single quote after a letter, needs a letter
+    private static final int S_LETTER_MID = 7;
+    // MidNum, MidNumLet or single quote after a number, needs a number
+    private static final int S_NUMBER_MID = 8;
+    private static final int S_HEBREW_SINGLE_QUOTE = 9;
+    private static final int S_HEBREW_DOUBLE_QUOTE = 10;
+    private static final int S_IDEOGRAPHIC = 11;
+    private static final int S_HIRAGANA = 12;
+    private static final int S_SOUTHEAST_ASIAN = 13;
+    private static final int NUM_STATES = 14;
+
+    private static final byte[] TRANSITIONS = new byte[NUM_STATES * NUM_CLASSES];
+    // the token type of accepting states, -1 for other states
+    private static final int[] ACCEPT = new int[NUM_STATES];
+
+    // the kinds of chars that a word is made of, to tell its type
+    private static final int WORD_LETTER = 1;
+    private static final int WORD_HANGUL = 1 << 1;
+    private static final int WORD_NUMERIC = 1 << 2;
+    private static final int WORD_KATAKANA = 1 << 3;
+    private static final int[] WORD_BITS = new int[NUM_CLASSES];
+
+    private static final byte[] ASCII_CLASSES = new byte[128];
+    private static final byte[] BMP_CLASSES = new byte[Character.MIN_SUPPLEMENTARY_CODE_POINT];
+
+    static {
+        Arrays.fill(TRANSITIONS, (byte) -1);
+
+        transition(S_START, ALETTER, S_LETTER);
+        transition(S_START, HANGUL, S_LETTER);
+        transition(S_START, HEBREW_LETTER, S_HEBREW);
+        transition(S_START, NUMERIC, S_NUMBER);
+        transition(S_START, KATAKANA, S_KATAKANA);
+        transition(S_START, EXTEND_NUM_LET, S_LEADING_CONNECTOR);
+        transition(S_START, IDEOGRAPHIC, S_IDEOGRAPHIC);
+        transition(S_START, HIRAGANA, S_HIRAGANA);
+        transition(S_START, SOUTHEAST_ASIAN, S_SOUTHEAST_ASIAN);
+
+        for (int state : new int[]{S_LETTER, S_HEBREW, S_NUMBER, S_CONNECTED, S_LEADING_CONNECTOR}) {
+            // WB5, WB9, WB10, WB13b
+            transition(state, ALETTER, S_LETTER);
+            transition(state, HANGUL, S_LETTER);
+            transition(state, HEBREW_LETTER, S_HEBREW);
+            // WB8, WB10, WB13b
+            transition(state, NUMERIC, S_NUMBER);
+            // WB13a
+            transition(state, EXTEND_NUM_LET, S_CONNECTED);
+        }
+        // WB13, WB13a, WB13b
+        transition(S_KATAKANA, KATAKANA, S_KATAKANA);
+        transition(S_KATAKANA, EXTEND_NUM_LET, S_CONNECTED);
+        transition(S_CONNECTED, KATAKANA, S_KATAKANA);
+        transition(S_LEADING_CONNECTOR, KATAKANA, S_KATAKANA);
+
+        // WB6, WB7
+        for (int mid : new int[]{MID_LETTER, MID_NUM_LET, SINGLE_QUOTE}) {
+            transition(S_LETTER, mid, S_LETTER_MID);
+            transition(S_HEBREW, mid, S_LETTER_MID);
+        }
+        for (int state : new int[]{S_LETTER_MID, S_HEBREW_SINGLE_QUOTE}) {
+            transition(state, ALETTER, S_LETTER);
+            transition(state, HANGUL, S_LETTER);
+            transition(state, HEBREW_LETTER, S_HEBREW);
+        }
+        // WB7a, WB7b, WB7c
+        transition(S_HEBREW, SINGLE_QUOTE, S_HEBREW_SINGLE_QUOTE);
+        transition(S_HEBREW, DOUBLE_QUOTE, S_HEBREW_DOUBLE_QUOTE);
+        transition(S_HEBREW_DOUBLE_QUOTE, HEBREW_LETTER, S_HEBREW);
+        // WB11, WB12
+        for (int mid : new int[]{MID_NUM, MID_NUM_LET, SINGLE_QUOTE}) {
+            transition(S_NUMBER, mid, S_NUMBER_MID);
+        }
+        transition(S_NUMBER_MID, NUMERIC, S_NUMBER);
+
+        transition(S_SOUTHEAST_ASIAN, SOUTHEAST_ASIAN, S_SOUTHEAST_ASIAN);
+
+        // WB4
+        for (int state = S_START + 1; state < NUM_STATES; state++) {
+            transition(state, EXTEND, state);
+        }
+
+        Arrays.fill(ACCEPT, -1);
+        ACCEPT[S_LETTER] = StandardTokenizer.ALPHANUM;
+        ACCEPT[S_HEBREW] = StandardTokenizer.ALPHANUM;
+        ACCEPT[S_NUMBER] = StandardTokenizer.ALPHANUM;
+        ACCEPT[S_KATAKANA] = StandardTokenizer.ALPHANUM;
+        ACCEPT[S_CONNECTED] = StandardTokenizer.ALPHANUM;
+        ACCEPT[S_HEBREW_SINGLE_QUOTE] = StandardTokenizer.ALPHANUM;
+        ACCEPT[S_IDEOGRAPHIC] = StandardTokenizer.IDEOGRAPHIC;
+        ACCEPT[S_HIRAGANA] = StandardTokenizer.HIRAGANA;
+        ACCEPT[S_SOUTHEAST_ASIAN] = StandardTokenizer.SOUTHEAST_ASIAN;
+
+        WORD_BITS[ALETTER] = WORD_LETTER;
+        WORD_BITS[HEBREW_LETTER] = WORD_LETTER;
+        WORD_BITS[HANGUL] = WORD_HANGUL;
+        WORD_BITS[NUMERIC] = WORD_NUMERIC;
+        WORD_BITS[KATAKANA] = WORD_KATAKANA;
+
+        for (int c = 0; c < BMP_CLASSES.length; c++) {
+            BMP_CLASSES[c] = (byte) computeClass(c);
+        }
+        System.arraycopy(BMP_CLASSES, 0, ASCII_CLASSES, 0, ASCII_CLASSES.length);
+    }
+
+    private static void transition(int state, int wordBreakClass, int next) {
+        TRANSITIONS[state * NUM_CLASSES + wordBreakClass] = (byte) next;
+    }
+
+    // the word break class of a code point
+    private static int computeClass(int cp) {
+        if (cp < 0x80) {
+            if ((cp >= 'a' && cp <= 'z') || (cp >= 'A' && cp <= 'Z')) {
+                return ALETTER;
+            } else if (cp >= '0' && cp <= '9') {
+                return NUMERIC;
+            }
+            switch (cp) {
+                case '_':
+                    return EXTEND_NUM_LET;
+                case ':':
+                    return MID_LETTER;
+                case ',':
+                case ';':
+                    return MID_NUM;
+                case '.':
+                    return MID_NUM_LET;
+                case '\'':
+                    return SINGLE_QUOTE;
+                case '"':
+                    return DOUBLE_QUOTE;
+                default:
+                    return OTHER;
+            }
+        }
+
+        switch (cp) {
+            case 0x00B7: case 0x0387: case 0x055F: case 0x05F4: case 0x2027: case 0xFE13: case 0xFE55: case 0xFF1A:
+                return MID_LETTER;
+            case 0x037E: case 0x0589: case 0x060C: case 0x060D: case 0x066C: case 0x07F8: case 0x2044:
+            case 0xFE10: case 0xFE14: case 0xFE50: case 0xFE54: case 0xFF0C: case 0xFF1B:
+                return MID_NUM;
+            case 0x2018: case 0x2019: case 0x2024: case 0xFE52: case 0xFF07: case 0xFF0E:
+                return MID_NUM_LET;
+            case 0x202F:
+                return EXTEND_NUM_LET;
+            case 0x200B:
+                return OTHER;
+            case 0x3031: case 0x3032: case 0x3033: case 0x3034: case 0x3035:
+            case 0x309B: case 0x309C: case 0x30A0: case 0x30FC: case 0xFF70:
+                return KATAKANA;
+            default:
+                break;
+        }
+        if (cp >= 0x1F3FB && cp <= 0x1F3FF) {
+            // emoji modifiers
+            return EXTEND;
+        }
+
+        switch (Character.getType(cp)) {
+            case Character.NON_SPACING_MARK:
+            case Character.ENCLOSING_MARK:
+            case Character.COMBINING_SPACING_MARK:
+            case Character.FORMAT:
+                return EXTEND;
+            case Character.CONNECTOR_PUNCTUATION:
+                return EXTEND_NUM_LET;
+            case Character.DECIMAL_DIGIT_NUMBER:
+                return NUMERIC;
+            case Character.SURROGATE:
+                return OTHER;
+            default:
+                break;
+        }
+
+        if (Character.isIdeographic(cp)) {
+            return IDEOGRAPHIC;
+        }
+        if (Character.isAlphabetic(cp) == false) {
+            return OTHER;
+        }
+        switch (Character.UnicodeScript.of(cp)) {
+            case HEBREW:
+                return HEBREW_LETTER;
+            case HANGUL:
+                return HANGUL;
+            case KATAKANA:
+                return KATAKANA;
+            case HIRAGANA:
+                return HIRAGANA;
+            case HAN:
+                return IDEOGRAPHIC;
+            case THAI:
+            case LAO:
+            case MYANMAR:
+            case KHMER:
+            case TAI_LE:
+            case NEW_TAI_LUE:
+            case TAI_THAM:
+            case TAI_VIET:
+                return SOUTHEAST_ASIAN;
+            default:
+                return ALETTER;
+        }
+    }
+
+    private static int wordType(int bits) {
+        switch (bits) {
+            case WORD_NUMERIC:
+                return StandardTokenizer.NUM;
+            case WORD_HANGUL:
+                return StandardTokenizer.HANGUL;
+            case WORD_KATAKANA:
+                return StandardTokenizer.KATAKANA;
+            default:
+                return StandardTokenizer.ALPHANUM;
+        }
+    }
+
+    private Reader input;
+    private char[] buffer = new char[INITIAL_BUFFER_SIZE];
+    // offset of buffer[0] in the input
+    private int offset;
+    // number of valid chars in the buffer
+    private int end;
+    // where the next token is looked for
+    private int pos;
+    private boolean eof;
+
+    private int maxTokenLength = StandardTokenizer.DEFAULT_MAX_TOKEN_LENGTH;
+
+    private int tokenStart;
+    private int tokenLength;
+
+    StandardTokenizerImpl(Reader input) {
+        this.input = input;
+    }
+
+    /**
+     * Set the max length of the tokens, longer words are split.
+     */
+    void setMaxTokenLength(int maxTokenLength) {
+        this.maxTokenLength = maxTokenLength;
+    }
+
+    /**
+     * Reset the scanner to read from a new input.
+     */
+    void yyreset(Reader reader) {
+        input = reader;
+        offset = 0;
+        end = 0;
+        pos = 0;
+        eof = false;
+        tokenStart = 0;
+        tokenLength = 0;
+        if (buffer.length > INITIAL_BUFFER_SIZE) {
+            // don't hold on to the buffer of a huge token
+            buffer = new char[INITIAL_BUFFER_SIZE];
+        }
+    }
+
+    /**
+     * Returns the offset of the current token in the input.
+     */
+    int yychar() {
+        return offset + tokenStart;
+    }
+
+    /**
+     * Returns the length of the current token.
+     */
+    int yylength() {
+        return tokenLength;
+    }
+
+    /**
+     * Returns the number of chars read so far, which is the length of the
+     * input once {@link #getNextToken()} returned {@link #YYEOF}.
+     */
+    int numCharsRead() {
+        return offset + end;
+    }
+
+    /**
+     * Fills CharTermAttribute with the current token text.
+     */
+    void getText(CharTermAttribute t) {
+        t.copyBuffer(buffer, tokenStart, tokenLength);
+    }
+
+    /**
+     * Resumes scanning until the next token is found, and returns its type,
+     * one of {@link StandardTokenizer#TOKEN_TYPES}, or {@link #YYEOF} at the
+     * end of the input.
+     */
+    int getNextToken() throws IOException {
+        int start = pos;
+        while (true) {
+            int state = S_START;
+            int bits = 0;
+            // number of chars consumed from start, and that of the longest match
+            int consumed = 0;
+            int accepted = 0;
+            int acceptedType = -1;
+            // length of the first code point, 0 at the end of the input
+            int first = 0;
+
+            while (true) {
+                final int i = start + consumed;
+                if (i >= end) {
+                    if (eof) {
+                        break;
+                    }
+                    refill(start);
+                    start = 0;
+                    continue;
+                }
+
+                final char c = buffer[i];
+                final int wordBreakClass;
+                int length = 1;
+                if (c < 0x80) {
+                    wordBreakClass = ASCII_CLASSES[c];
+                } else if (c >= UnicodeUtil.UNI_SUR_HIGH_START && c <= UnicodeUtil.UNI_SUR_HIGH_END) {
+                    if (i + 1 == end && eof == false) {
+                        // read the low surrogate
+                        refill(start);
+                        start = 0;
+                        continue;
+                    }
+                    final char low = i + 1 < end ? buffer[i + 1] : 0;
+                    if (low >= UnicodeUtil.UNI_SUR_LOW_START && low <= UnicodeUtil.UNI_SUR_LOW_END) {
+                        wordBreakClass = computeClass(UnicodeUtil.toCodePoint(c, low));
+                        length = 2;
+                    } else {
+                        wordBreakClass = OTHER;
+                    }
+                } else {
+                    wordBreakClass = BMP_CLASSES[c];
+                }
+                if (consumed == 0) {
+                    first = length;
+                }
+
+                final int next = TRANSITIONS[state * NUM_CLASSES + wordBreakClass];
+                if (next < 0) {
+                    break;
+                }
+                state = next;
+                bits |= WORD_BITS[wordBreakClass];
+                consumed += length;
+                if (ACCEPT[state] >= 0) {
+                    accepted = consumed;
+                    acceptedType = ACCEPT[state] == StandardTokenizer.ALPHANUM ? wordType(bits) : ACCEPT[state];
+                }
+                if (consumed >= maxTokenLength) {
+                    break;
+                }
+            }
+
+            if (accepted > 0) {
+                tokenStart = start;
+                tokenLength = accepted;
+                pos = start + accepted;
+                return acceptedType;
+            } else if (first == 0) {
+                pos = start;
+                tokenStart = start;
+                tokenLength = 0;
+                return YYEOF;
+            }
+            // no token starts here
+            start += first;
+        }
+    }
+
+    // moves the chars from 'from' to the start of the buffer, and reads more
+    // chars after them
+    private void refill(int from) throws IOException {
+        assert eof == false;
+        if (from > 0) {
+            System.arraycopy(buffer, from, buffer, 0, end - from);
+            end -= from;
+            offset += from;
+        }
+        if (end == buffer.length) {
+            buffer = ArrayUtil.grow(buffer, end + 1);
+        }
+        int read;
+        do {
+            read = input.read(buffer, end, buffer.length - end);
+        } while (read == 0);
+        if (read == -1) {
+            eof = true;
+        } else {
+            end += read;
+        }
+    }
+}
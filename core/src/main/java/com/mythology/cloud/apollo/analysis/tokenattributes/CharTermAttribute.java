@@ -0,0 +1,72 @@
+package com.mythology.cloud.apollo.analysis.tokenattributes;
+
+import com.mythology.cloud.apollo.util.Attribute;
+
+/**
+ * The term text of a Token.
+ * <p>
+ * 词元的文本。
+ * </p>
+ */
+public interface CharTermAttribute extends Attribute, CharSequence {
+
+    /**
+     * Copies the contents of buffer, starting at offset for
+     * length characters, into the termBuffer array.
+     *
+     * @param buffer the buffer to copy
+     * @param offset the index in the buffer of the first character to copy
+     * @param length the number of characters to copy
+     */
+    void copyBuffer(char[] buffer, int offset, int length);
+
+    /**
+     * Returns the internal termBuffer character array which
+     * you can then directly alter.  If the array is too
+     * small for your token, use {@link
+     * #resizeBuffer(int)} to increase it.  After
+     * altering the buffer be sure to call {@link
+     * #setLength} to record the number of valid
+     * characters that were placed into the termBuffer.
+     * <p>
+     * <b>NOTE</b>: The returned buffer may be larger than
+     * the valid {@link #length()}.
+     */
+    char[] buffer();
+
+    /**
+     * Grows the termBuffer to at least size newSize, preserving the
+     * existing content.
+     *
+     * @param newSize minimum size of the new termBuffer
+     * @return newly created termBuffer with {@code length >= newSize}
+     */
+    char[] resizeBuffer(int newSize);
+
+    /**
+     * Set number of valid characters (length of the term) in
+     * the termBuffer array. Use this to truncate the termBuffer
+     * or to synchronize with external manipulation of the termBuffer.
+     * Note: to grow the size of the array,
+     * use {@link #resizeBuffer(int)} first.
+     *
+     * @param length the truncated length
+     */
+    CharTermAttribute setLength(int length);
+
+    /**
+     * Sets the length of the termBuffer to zero.
+     * Use this method before appending contents.
+     */
+    CharTermAttribute setEmpty();
+
+    /**
+     * Appends the specified {@code String} to this character sequence.
+     */
+    CharTermAttribute append(String s);
+
+    /**
+     * Appends the specified character to this character sequence.
+     */
+    CharTermAttribute append(char c);
+}
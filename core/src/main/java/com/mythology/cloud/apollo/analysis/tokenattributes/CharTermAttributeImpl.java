@@ -0,0 +1,193 @@
+package com.mythology.cloud.apollo.analysis.tokenattributes;
+
+import com.mythology.cloud.apollo.util.ArrayUtil;
+import com.mythology.cloud.apollo.util.AttributeImpl;
+import com.mythology.cloud.apollo.util.BytesRef;
+import com.mythology.cloud.apollo.util.BytesRefBuilder;
+
+/**
+ * Default implementation of {@link CharTermAttribute}.
+ * <p>
+ * {@link CharTermAttribute}的默认实现，词元缓冲区通过{@link ArrayUtil#grow(char[], int)}按需增长并在词元之间复用。
+ * </p>
+ */
+public class CharTermAttributeImpl extends AttributeImpl implements CharTermAttribute, TermToBytesRefAttribute, Cloneable {
+    private static final int MIN_BUFFER_SIZE = 10;
+
+    private char[] termBuffer = new char[ArrayUtil.oversize(MIN_BUFFER_SIZE, Character.BYTES)];
+    private int termLength = 0;
+
+    /**
+     * May be used by subclasses to convert to different charsets / encodings for implementing {@link #getBytesRef()}.
+     */
+    protected BytesRefBuilder builder = new BytesRefBuilder();
+
+    /**
+     * Initialize this attribute with empty term text
+     */
+    public CharTermAttributeImpl() {
+    }
+
+    @Override
+    public final void copyBuffer(char[] buffer, int offset, int length) {
+        growTermBuffer(length);
+        System.arraycopy(buffer, offset, termBuffer, 0, length);
+        termLength = length;
+    }
+
+    @Override
+    public final char[] buffer() {
+        return termBuffer;
+    }
+
+    @Override
+    public final char[] resizeBuffer(int newSize) {
+        if (termBuffer.length < newSize) {
+            // Not big enough; create a new array with slight
+            // over allocation and preserve content
+            termBuffer = ArrayUtil.grow(termBuffer, newSize);
+        }
+        return termBuffer;
+    }
+
+    private void growTermBuffer(int newSize) {
+        if (termBuffer.length < newSize) {
+            // Not big enough; create a new array with slight
+            // over allocation, the content is overwritten anyway
+            termBuffer = new char[ArrayUtil.oversize(newSize, Character.BYTES)];
+        }
+    }
+
+    @Override
+    public final CharTermAttribute setLength(int length) {
+        if (length < 0 || length > termBuffer.length) {
+            throw new IllegalArgumentException("length " + length + " not in range [0.." + termBuffer.length + "]");
+        }
+        termLength = length;
+        return this;
+    }
+
+    @Override
+    public final CharTermAttribute setEmpty() {
+        termLength = 0;
+        return this;
+    }
+
+    // *** TermToBytesRefAttribute interface ***
+    @Override
+    public BytesRef getBytesRef() {
+        builder.copyChars(termBuffer, 0, termLength);
+        return builder.get();
+    }
+
+    // *** CharSequence interface ***
+    @Override
+    public final int length() {
+        return termLength;
+    }
+
+    @Override
+    public final char charAt(int index) {
+        if (index < 0 || index >= termLength) {
+            throw new IndexOutOfBoundsException("index " + index + " out of bounds for length " + termLength);
+        }
+        return termBuffer[index];
+    }
+
+    @Override
+    public final CharSequence subSequence(final int start, final int end) {
+        if (start < 0 || end > termLength || start > end) {
+            throw new IndexOutOfBoundsException("subSequence(" + start + ", " + end + ") out of bounds for length " + termLength);
+        }
+        return new String(termBuffer, start, end - start);
+    }
+
+    // *** Appendable-like methods ***
+    @Override
+    public final CharTermAttribute append(String s) {
+        if (s == null) { // needed for Appendable compliance
+            return appendNull();
+        }
+        final int len = s.length();
+        s.getChars(0, len, resizeBuffer(termLength + len), termLength);
+        termLength += len;
+        return this;
+    }
+
+    @Override
+    public final CharTermAttribute append(char c) {
+        resizeBuffer(termLength + 1)[termLength++] = c;
+        return this;
+    }
+
+    private CharTermAttribute appendNull() {
+        resizeBuffer(termLength + 4);
+        termBuffer[termLength++] = 'n';
+        termBuffer[termLength++] = 'u';
+        termBuffer[termLength++] = 'l';
+        termBuffer[termLength++] = 'l';
+        return this;
+    }
+
+    @Override
+    public int hashCode() {
+        int code = termLength;
+        for (int i = 0; i < termLength; i++) {
+            code = code * 31 + termBuffer[i];
+        }
+        return code;
+    }
+
+    @Override
+    public void clear() {
+        termLength = 0;
+    }
+
+    @Override
+    public CharTermAttributeImpl clone() {
+        CharTermAttributeImpl t = (CharTermAttributeImpl) super.clone();
+        // Do a deep clone
+        t.termBuffer = new char[this.termLength];
+        System.arraycopy(this.termBuffer, 0, t.termBuffer, 0, this.termLength);
+        t.builder = new BytesRefBuilder();
+        t.builder.copyBytes(builder.get());
+        return t;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (other == this) {
+            return true;
+        }
+
+        if (other instanceof CharTermAttributeImpl) {
+            final CharTermAttributeImpl o = ((CharTermAttributeImpl) other);
+            if (termLength != o.termLength) {
+                return false;
+            }
+            for (int i = 0; i < termLength; i++) {
+                if (termBuffer[i] != o.termBuffer[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns solely the term text as specified by the
+     * {@link CharSequence} interface.
+     */
+    @Override
+    public String toString() {
+        return new String(termBuffer, 0, termLength);
+    }
+
+    @Override
+    public void copyTo(AttributeImpl target) {
+        CharTermAttribute t = (CharTermAttribute) target;
+        t.copyBuffer(termBuffer, 0, termLength);
+    }
+}
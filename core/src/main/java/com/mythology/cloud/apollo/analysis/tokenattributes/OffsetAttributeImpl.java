@@ -0,0 +1,88 @@
+package com.mythology.cloud.apollo.analysis.tokenattributes;
+
+import com.mythology.cloud.apollo.util.AttributeImpl;
+
+/**
+ * Default implementation of {@link OffsetAttribute}.
+ * <p>
+ * {@link OffsetAttribute}的默认实现。
+ * </p>
+ */
+public class OffsetAttributeImpl extends AttributeImpl implements OffsetAttribute, Cloneable {
+    private int startOffset;
+    private int endOffset;
+
+    /**
+     * Initialize this attribute with startOffset and endOffset of 0.
+     */
+    public OffsetAttributeImpl() {
+    }
+
+    @Override
+    public int startOffset() {
+        return startOffset;
+    }
+
+    @Override
+    public void setOffset(int startOffset, int endOffset) {
+
+        // TODO: we could assert that this is set-once, ie,
+        // current values are -1?  Very few token filters should
+        // change offsets once set by the tokenizer... and
+        // tokenizer should call clearAtts before re-using
+        // OffsetAtt
+
+        if (startOffset < 0 || endOffset < startOffset) {
+            throw new IllegalArgumentException("startOffset must be non-negative, and endOffset must be >= startOffset; got "
+                    + "startOffset=" + startOffset + ",endOffset=" + endOffset);
+        }
+
+        this.startOffset = startOffset;
+        this.endOffset = endOffset;
+    }
+
+    @Override
+    public int endOffset() {
+        return endOffset;
+    }
+
+    @Override
+    public void clear() {
+        // TODO: we could use -1 as default here?  Then we can
+        // assert in setOffset...
+        startOffset = 0;
+        endOffset = 0;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (other == this) {
+            return true;
+        }
+
+        if (other instanceof OffsetAttributeImpl) {
+            OffsetAttributeImpl o = (OffsetAttributeImpl) other;
+            return o.startOffset == startOffset && o.endOffset == endOffset;
+        }
+
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        int code = startOffset;
+        code = code * 31 + endOffset;
+        return code;
+    }
+
+    @Override
+    public void copyTo(AttributeImpl target) {
+        OffsetAttribute t = (OffsetAttribute) target;
+        t.setOffset(startOffset, endOffset);
+    }
+
+    @Override
+    public String toString() {
+        return "offset=" + startOffset + "-" + endOffset;
+    }
+}
@@ -0,0 +1,50 @@
+package com.mythology.cloud.apollo.analysis.tokenattributes;
+
+import com.mythology.cloud.apollo.util.Attribute;
+
+/**
+ * Determines the position of this token
+ * relative to the previous Token in a TokenStream, used in phrase
+ * searching.
+ *
+ * <p>The default value is one.
+ *
+ * <p>Some common uses for this are:<ul>
+ *
+ * <li>Set it to zero to put multiple terms in the same position.  This is
+ * useful if, e.g., a word has multiple stems.  Searches for phrases
+ * including either stem will match.  In this case, all but the first stem's
+ * increment should be set to zero: the increment of the first instance
+ * should be one.  Repeating a token with an increment of zero can also be
+ * used to boost the scores of matches on that token.
+ *
+ * <li>Set it to values greater than one to inhibit exact phrase matches.
+ * If, for example, one does not want phrases to match across removed stop
+ * words, then one could build a stop word filter that removes stop words and
+ * also sets the increment to the number of stop words removed before each
+ * non-stop word.  Then exact phrase queries will only match when the terms
+ * occur with no intervening stop words.
+ *
+ * </ul>
+ * <p>
+ * 当前词元相对前一个词元的位置增量，默认为1。
+ * </p>
+ */
+public interface PositionIncrementAttribute extends Attribute {
+    /**
+     * Set the position increment. The default value is one.
+     *
+     * @param positionIncrement the distance from the prior term
+     * @throws IllegalArgumentException if <code>positionIncrement</code>
+     *                                  is negative.
+     * @see #getPositionIncrement()
+     */
+    void setPositionIncrement(int positionIncrement);
+
+    /**
+     * Returns the position increment of this Token.
+     *
+     * @see #setPositionIncrement(int)
+     */
+    int getPositionIncrement();
+}
@@ -0,0 +1,24 @@
+package com.mythology.cloud.apollo.analysis.tokenattributes;
+
+import com.mythology.cloud.apollo.util.Attribute;
+import com.mythology.cloud.apollo.util.BytesRef;
+
+/**
+ * This attribute is requested by the indexing chain to retrieve the term as
+ * UTF-8 bytes, whether the analysis chain works on chars
+ * ({@link CharTermAttribute}) or directly on UTF-8 ({@link UTF8TermAttribute}).
+ * <p>
+ * 索引链路通过该属性以UTF-8字节获取词元，无论分析链基于字符还是直接基于UTF-8字节。
+ * </p>
+ */
+public interface TermToBytesRefAttribute extends Attribute {
+
+    /**
+     * Retrieve this attribute's BytesRef. The bytes are updated from the
+     * current term. The implementation may return a new instance or keep the
+     * previous one, and the bytes are only valid until the next token.
+     *
+     * @return a BytesRef to be indexed (only stays valid until token stream gets incremented)
+     */
+    BytesRef getBytesRef();
+}
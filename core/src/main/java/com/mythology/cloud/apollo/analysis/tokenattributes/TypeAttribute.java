@@ -0,0 +1,31 @@
+package com.mythology.cloud.apollo.analysis.tokenattributes;
+
+import com.mythology.cloud.apollo.util.Attribute;
+
+/**
+ * A Token's lexical type. The Default value is "word".
+ * <p>
+ * 词元的词法类型，默认为"word"。
+ * </p>
+ */
+public interface TypeAttribute extends Attribute {
+
+    /**
+     * the default type
+     */
+    String DEFAULT_TYPE = "word";
+
+    /**
+     * Returns this Token's lexical type.  Defaults to "word".
+     *
+     * @see #setType(String)
+     */
+    String type();
+
+    /**
+     * Set the lexical type.
+     *
+     * @see #type()
+     */
+    void setType(String type);
+}
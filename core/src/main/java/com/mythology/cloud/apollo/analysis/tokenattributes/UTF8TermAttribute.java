@@ -0,0 +1,45 @@
+package com.mythology.cloud.apollo.analysis.tokenattributes;
+
+/**
+ * The term of a Token as UTF-8 bytes, which UTF-8 analysis chains write and
+ * filter in place, see {@link com.mythology.cloud.apollo.analysis.UTF8Tokenizer}.
+ * <p>
+ * 以UTF-8字节表示的词元，UTF-8分析链直接在其缓冲区中写入和过滤词元。
+ * </p>
+ */
+public interface UTF8TermAttribute extends TermToBytesRefAttribute {
+
+    /**
+     * Copies the given bytes into the term buffer.
+     */
+    void copyBytes(byte[] bytes, int offset, int length);
+
+    /**
+     * Returns the internal term buffer, which may be larger than the valid
+     * {@link #length()}. Use {@link #resizeBuffer(int)} to grow it and
+     * {@link #setLength(int)} to record the number of valid bytes after
+     * altering it.
+     */
+    byte[] buffer();
+
+    /**
+     * Grows the term buffer to at least {@code newSize} bytes, preserving the
+     * existing content.
+     */
+    byte[] resizeBuffer(int newSize);
+
+    /**
+     * Returns the number of valid bytes of the term buffer.
+     */
+    int length();
+
+    /**
+     * Set number of valid bytes of the term buffer.
+     */
+    UTF8TermAttribute setLength(int length);
+
+    /**
+     * Sets the length of the term to zero.
+     */
+    UTF8TermAttribute setEmpty();
+}
@@ -0,0 +1,133 @@
+package com.mythology.cloud.apollo.analysis.tokenattributes;
+
+import com.mythology.cloud.apollo.util.ArrayUtil;
+import com.mythology.cloud.apollo.util.AttributeImpl;
+import com.mythology.cloud.apollo.util.BytesRef;
+
+/**
+ * Default implementation of {@link UTF8TermAttribute}.
+ * <p>
+ * {@link UTF8TermAttribute}的默认实现，缓冲区通过{@link ArrayUtil#grow(byte[], int)}按需增长并在词元之间复用。
+ * </p>
+ */
+public class UTF8TermAttributeImpl extends AttributeImpl implements UTF8TermAttribute, TermToBytesRefAttribute, Cloneable {
+    private static final int MIN_BUFFER_SIZE = 16;
+
+    private byte[] termBuffer = new byte[ArrayUtil.oversize(MIN_BUFFER_SIZE, Byte.BYTES)];
+    private int termLength = 0;
+    private BytesRef bytes = new BytesRef();
+
+    /**
+     * Initialize this attribute with an empty term.
+     */
+    public UTF8TermAttributeImpl() {
+    }
+
+    @Override
+    public final void copyBytes(byte[] bytes, int offset, int length) {
+        if (termBuffer.length < length) {
+            termBuffer = new byte[ArrayUtil.oversize(length, Byte.BYTES)];
+        }
+        System.arraycopy(bytes, offset, termBuffer, 0, length);
+        termLength = length;
+    }
+
+    @Override
+    public final byte[] buffer() {
+        return termBuffer;
+    }
+
+    @Override
+    public final byte[] resizeBuffer(int newSize) {
+        if (termBuffer.length < newSize) {
+            termBuffer = ArrayUtil.grow(termBuffer, newSize);
+        }
+        return termBuffer;
+    }
+
+    @Override
+    public final int length() {
+        return termLength;
+    }
+
+    @Override
+    public final UTF8TermAttribute setLength(int length) {
+        if (length < 0 || length > termBuffer.length) {
+            throw new IllegalArgumentException("length " + length + " not in range [0.." + termBuffer.length + "]");
+        }
+        termLength = length;
+        return this;
+    }
+
+    @Override
+    public final UTF8TermAttribute setEmpty() {
+        termLength = 0;
+        return this;
+    }
+
+    @Override
+    public BytesRef getBytesRef() {
+        bytes.bytes = termBuffer;
+        bytes.offset = 0;
+        bytes.length = termLength;
+        return bytes;
+    }
+
+    @Override
+    public void clear() {
+        termLength = 0;
+    }
+
+    @Override
+    public UTF8TermAttributeImpl clone() {
+        UTF8TermAttributeImpl t = (UTF8TermAttributeImpl) super.clone();
+        // Do a deep clone
+        t.termBuffer = new byte[termLength];
+        System.arraycopy(termBuffer, 0, t.termBuffer, 0, termLength);
+        t.bytes = new BytesRef();
+        return t;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (other == this) {
+            return true;
+        }
+        if (other instanceof UTF8TermAttributeImpl) {
+            final UTF8TermAttributeImpl o = (UTF8TermAttributeImpl) other;
+            if (termLength != o.termLength) {
+                return false;
+            }
+            for (int i = 0; i < termLength; i++) {
+                if (termBuffer[i] != o.termBuffer[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        int code = termLength;
+        for (int i = 0; i < termLength; i++) {
+            code = code * 31 + termBuffer[i];
+        }
+        return code;
+    }
+
+    @Override
+    public void copyTo(AttributeImpl target) {
+        UTF8TermAttribute t = (UTF8TermAttribute) target;
+        t.copyBytes(termBuffer, 0, termLength);
+    }
+
+    /**
+     * Returns the term decoded as a string.
+     */
+    @Override
+    public String toString() {
+        return new BytesRef(termBuffer, 0, termLength).utf8ToString();
+    }
+}
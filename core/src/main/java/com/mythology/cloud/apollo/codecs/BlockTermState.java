@@ -0,0 +1,52 @@
+package com.mythology.cloud.apollo.codecs;
+
+import com.mythology.cloud.apollo.index.TermState;
+
+/**
+ * Holds all state required for {@link PostingsReaderBase}
+ * to produce a {@link com.mythology.cloud.apollo.index.PostingsEnum} without re-seeking the
+ * terms dict.
+ *
+ * @lucene.internal
+ */
+public class BlockTermState extends TermState {
+    /**
+     * how many docs have this term
+     */
+    public int docFreq;
+    /**
+     * total number of occurrences of this term
+     */
+    public long totalTermFreq;
+
+    /**
+     * the term's ord in the current block
+     */
+    public int termBlockOrd;
+    /**
+     * fp into the terms dict of the block that holds this term
+     */
+    public long blockFilePointer;
+
+    /**
+     * Sole constructor. (For invocation by subclass
+     * constructors, typically implicit.)
+     */
+    protected BlockTermState() {
+    }
+
+    @Override
+    public void copyFrom(TermState _other) {
+        assert _other instanceof BlockTermState : "can not copy from " + _other.getClass().getName();
+        BlockTermState other = (BlockTermState) _other;
+        docFreq = other.docFreq;
+        totalTermFreq = other.totalTermFreq;
+        termBlockOrd = other.termBlockOrd;
+        blockFilePointer = other.blockFilePointer;
+    }
+
+    @Override
+    public String toString() {
+        return "docFreq=" + docFreq + " totalTermFreq=" + totalTermFreq + " termBlockOrd=" + termBlockOrd + " blockFP=" + blockFilePointer;
+    }
+}
@@ -0,0 +1,177 @@
+package com.mythology.cloud.apollo.codecs;
+
+import com.mythology.cloud.apollo.index.CorruptIndexException;
+import com.mythology.cloud.apollo.store.DataInput;
+import com.mythology.cloud.apollo.store.DataOutput;
+import com.mythology.cloud.apollo.store.IndexInput;
+import com.mythology.cloud.apollo.store.IndexOutput;
+import com.mythology.cloud.apollo.util.BytesRef;
+
+import java.io.IOException;
+
+/**
+ * Utility class for reading and writing versioned headers.
+ * <p>
+ * Writing codec headers is useful to ensure that a file is in
+ * the format you think it is.
+ *
+ * <p>
+ * 读写文件头、文件尾的工具类，用于确认文件格式与版本。
+ * </p>
+ *
+ * @lucene.experimental
+ */
+public final class CodecUtil {
+    private CodecUtil() {
+    } // no instance
+
+    /**
+     * Constant to identify the start of a codec header.
+     */
+    public final static int CODEC_MAGIC = 0x3fd76c17;
+    /**
+     * Constant to identify the start of a codec footer.
+     */
+    public final static int FOOTER_MAGIC = ~CODEC_MAGIC;
+
+    /**
+     * Writes a codec header, which records both a string to
+     * identify the file and a version number. This header can
+     * be parsed and validated with
+     * {@link #checkHeader(DataInput, String, int, int) checkHeader()}.
+     * <p>
+     * CodecHeader --&gt; Magic,CodecName,Version
+     * <ul>
+     * <li>Magic --&gt; Uint32. This identifies the start of the header. It is always {@value #CODEC_MAGIC}.
+     * <li>CodecName --&gt; String. This is a string to identify this file.
+     * <li>Version --&gt; Uint32. Records the version of the file.
+     * </ul>
+     * <p>
+     * Note that the length of a codec header depends only upon the
+     * name of the codec, so this length can be computed at any time
+     * with {@link #headerLength(String)}.
+     *
+     * @param out     Output stream
+     * @param codec   String to identify this file. It should be simple ASCII,
+     *                less than 128 characters in length.
+     * @param version Version number
+     * @throws IOException              If there is an I/O error writing to the underlying medium.
+     * @throws IllegalArgumentException If the codec name is not simple ASCII, or is more than 127 characters in length
+     */
+    public static void writeHeader(DataOutput out, String codec, int version) throws IOException {
+        BytesRef bytes = new BytesRef(codec);
+        if (bytes.length != codec.length() || bytes.length >= 128) {
+            throw new IllegalArgumentException("codec must be simple ASCII, less than 128 characters in length [got " + codec + "]");
+        }
+        out.writeInt(CODEC_MAGIC);
+        out.writeString(codec);
+        out.writeInt(version);
+    }
+
+    /**
+     * Computes the length of a codec header.
+     *
+     * @param codec Codec name.
+     * @return length of the entire codec header.
+     * @see #writeHeader(DataOutput, String, int)
+     */
+    public static int headerLength(String codec) {
+        return 9 + codec.length();
+    }
+
+    /**
+     * Reads and validates a header previously written with
+     * {@link #writeHeader(DataOutput, String, int)}.
+     * <p>
+     * When reading a file, supply the expected <code>codec</code> and
+     * an expected version range (<code>minVersion to maxVersion</code>).
+     *
+     * @param in         Input stream, positioned at the point where the
+     *                   header was previously written. Typically this is located
+     *                   at the beginning of the file.
+     * @param codec      The expected codec name.
+     * @param minVersion The minimum supported expected version number.
+     * @param maxVersion The maximum supported expected version number.
+     * @return The actual version found, when a valid header is found
+     * that matches <code>codec</code>, with an actual version
+     * where {@code minVersion <= actual <= maxVersion}.
+     * Otherwise an exception is thrown.
+     * @throws CorruptIndexException If the first four bytes are not
+     *                               {@link #CODEC_MAGIC}, or if the actual codec found is
+     *                               not <code>codec</code>, or the version is out of range.
+     * @throws IOException           If there is an I/O error reading from the underlying medium.
+     */
+    public static int checkHeader(DataInput in, String codec, int minVersion, int maxVersion) throws IOException {
+        // Safety to guard against reading a bogus string:
+        final int actualHeader = in.readInt();
+        if (actualHeader != CODEC_MAGIC) {
+            throw new CorruptIndexException("codec header mismatch: actual header=" + actualHeader + " vs expected header=" + CODEC_MAGIC, in);
+        }
+        final String actualCodec = in.readString();
+        if (!actualCodec.equals(codec)) {
+            throw new CorruptIndexException("codec mismatch: actual codec=" + actualCodec + " vs expected codec=" + codec, in);
+        }
+
+        final int actualVersion = in.readInt();
+        if (actualVersion < minVersion || actualVersion > maxVersion) {
+            throw new CorruptIndexException("Format version is not supported: " + actualVersion
+                    + " (needs to be between " + minVersion + " and " + maxVersion + ")", in);
+        }
+        return actualVersion;
+    }
+
+    /**
+     * Writes a codec footer, which records the end of a file.
+     * <p>
+     * CodecFooter --&gt; Magic,FileLength
+     * <ul>
+     * <li>Magic --&gt; Uint32. This identifies the start of the footer. It is always {@value #FOOTER_MAGIC}.
+     * <li>FileLength --&gt; Uint64. The length of the file up to (and excluding) the footer,
+     * used to detect truncated files.
+     * </ul>
+     *
+     * @param out Output stream
+     * @throws IOException If there is an I/O error writing to the underlying medium.
+     */
+    public static void writeFooter(IndexOutput out) throws IOException {
+        final long length = out.getFilePointer();
+        out.writeInt(FOOTER_MAGIC);
+        out.writeLong(length);
+    }
+
+    /**
+     * Computes the length of a codec footer.
+     *
+     * @return length of the entire codec footer.
+     * @see #writeFooter(IndexOutput)
+     */
+    public static int footerLength() {
+        return 12;
+    }
+
+    /**
+     * Validates the codec footer previously written by {@link #writeFooter}.
+     * The file pointer of {@code in} is left right after the footer.
+     *
+     * @throws CorruptIndexException if the footer is invalid or the file was truncated
+     * @throws IOException           if there is an I/O error reading from the underlying medium.
+     */
+    public static void checkFooter(IndexInput in) throws IOException {
+        final long footerStart = in.length() - footerLength();
+        if (footerStart < 0) {
+            throw new CorruptIndexException("misplaced codec footer (file truncated?): length=" + in.length()
+                    + " but footerLength==" + footerLength(), in);
+        }
+        in.seek(footerStart);
+        final int magic = in.readInt();
+        if (magic != FOOTER_MAGIC) {
+            throw new CorruptIndexException("codec footer mismatch (file truncated?): actual footer=" + magic
+                    + " vs expected footer=" + FOOTER_MAGIC, in);
+        }
+        final long length = in.readLong();
+        if (length != footerStart) {
+            throw new CorruptIndexException("codec footer length mismatch: recorded=" + length
+                    + " vs actual=" + footerStart, in);
+        }
+    }
+}
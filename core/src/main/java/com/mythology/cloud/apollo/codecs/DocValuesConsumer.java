@@ -0,0 +1,712 @@
+package com.mythology.cloud.apollo.codecs;
+
+import com.mythology.cloud.apollo.index.BinaryDocValues;
+import com.mythology.cloud.apollo.index.DocIDMerger;
+import com.mythology.cloud.apollo.index.DocValues;
+import com.mythology.cloud.apollo.index.DocValuesType;
+import com.mythology.cloud.apollo.index.EmptyDocValuesProducer;
+import com.mythology.cloud.apollo.index.FieldInfo;
+import com.mythology.cloud.apollo.index.MergeState;
+import com.mythology.cloud.apollo.index.NumericDocValues;
+import com.mythology.cloud.apollo.index.OrdinalMap;
+import com.mythology.cloud.apollo.index.SortedDocValues;
+import com.mythology.cloud.apollo.index.SortedNumericDocValues;
+import com.mythology.cloud.apollo.index.SortedSetDocValues;
+import com.mythology.cloud.apollo.util.BytesRef;
+import com.mythology.cloud.apollo.util.LongValues;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.mythology.cloud.apollo.search.DocIdSetIterator.NO_MORE_DOCS;
+
+/**
+ * Abstract API that consumes numeric, binary and
+ * sorted docvalues.  Concrete implementations of this
+ * actually do "something" with the docvalues (write it into
+ * the index in a specific format).
+ * <p>
+ * The lifecycle is:
+ * <ol>
+ * <li>DocValuesConsumer is created by the indexing chain when a segment
+ * is flushed, or by the merger when segments are merged.
+ * <li>{@link #addNumericField}, {@link #addBinaryField},
+ * {@link #addSortedField}, {@link #addSortedSetField},
+ * or {@link #addSortedNumericField} are called for each Numeric,
+ * Binary, Sorted, SortedSet, or SortedNumeric docvalues field.
+ * The API is a "pull" rather than "push", and the implementation
+ * is free to iterate over the values multiple times
+ * (by calling the matching {@code getXXX} method of the producer again).
+ * <li>After all fields are added, the consumer is {@link #close}d.
+ * </ol>
+ * <p>
+ * 以"拉取"方式消费DocValues：编码器可以多次遍历同一字段的值，先统计(最小值、GCD、唯一值个数等)再选择编码。
+ * </p>
+ *
+ * @lucene.experimental
+ */
+public abstract class DocValuesConsumer implements Closeable {
+
+    /**
+     * Sole constructor. (For invocation by subclass
+     * constructors, typically implicit.)
+     */
+    protected DocValuesConsumer() {
+    }
+
+    /**
+     * Writes numeric docvalues for a field.
+     *
+     * @param field          field information
+     * @param valuesProducer Numeric values to write.
+     * @throws IOException if an I/O error occurred.
+     */
+    public abstract void addNumericField(FieldInfo field, DocValuesProducer valuesProducer) throws IOException;
+
+    /**
+     * Writes binary docvalues for a field.
+     *
+     * @param field          field information
+     * @param valuesProducer Binary values to write.
+     * @throws IOException if an I/O error occurred.
+     */
+    public abstract void addBinaryField(FieldInfo field, DocValuesProducer valuesProducer) throws IOException;
+
+    /**
+     * Writes pre-sorted binary docvalues for a field.
+     *
+     * @param field          field information
+     * @param valuesProducer produces the values and ordinals to write
+     * @throws IOException if an I/O error occurred.
+     */
+    public abstract void addSortedField(FieldInfo field, DocValuesProducer valuesProducer) throws IOException;
+
+    /**
+     * Writes pre-sorted numeric docvalues for a field
+     *
+     * @param field          field information
+     * @param valuesProducer produces the values to write
+     * @throws IOException if an I/O error occurred.
+     */
+    public abstract void addSortedNumericField(FieldInfo field, DocValuesProducer valuesProducer) throws IOException;
+
+    /**
+     * Writes pre-sorted set docvalues for a field
+     *
+     * @param field          field information
+     * @param valuesProducer produces the values to write
+     * @throws IOException if an I/O error occurred.
+     */
+    public abstract void addSortedSetField(FieldInfo field, DocValuesProducer valuesProducer) throws IOException;
+
+    /**
+     * Merges in the fields from the readers in
+     * <code>mergeState</code>. The default implementation
+     * calls {@link #mergeNumericField}, {@link #mergeBinaryField},
+     * {@link #mergeSortedField}, {@link #mergeSortedSetField},
+     * or {@link #mergeSortedNumericField} for each field,
+     * depending on its type.
+     * Implementations can override this method
+     * for more sophisticated merging (bulk-byte copying, etc).
+     */
+    public void merge(MergeState mergeState) throws IOException {
+        for (FieldInfo mergeFieldInfo : mergeState.mergeFieldInfos) {
+            DocValuesType type = mergeFieldInfo.getDocValuesType();
+            if (type != DocValuesType.NONE) {
+                if (type == DocValuesType.NUMERIC) {
+                    mergeNumericField(mergeFieldInfo, mergeState);
+                } else if (type == DocValuesType.BINARY) {
+                    mergeBinaryField(mergeFieldInfo, mergeState);
+                } else if (type == DocValuesType.SORTED) {
+                    mergeSortedField(mergeFieldInfo, mergeState);
+                } else if (type == DocValuesType.SORTED_SET) {
+                    mergeSortedSetField(mergeFieldInfo, mergeState);
+                } else if (type == DocValuesType.SORTED_NUMERIC) {
+                    mergeSortedNumericField(mergeFieldInfo, mergeState);
+                } else {
+                    throw new AssertionError("type=" + type);
+                }
+            }
+        }
+    }
+
+    // returns the doc values producer of the reader at readerIndex if its
+    // field of the same name has doc values of the given type, null otherwise
+    private static FieldInfo readerFieldInfo(MergeState mergeState, int readerIndex, FieldInfo mergeFieldInfo, DocValuesType type) {
+        if (mergeState.docValuesProducers[readerIndex] == null) {
+            return null;
+        }
+        FieldInfo readerFieldInfo = mergeState.fieldInfos[readerIndex].fieldInfo(mergeFieldInfo.name);
+        if (readerFieldInfo != null && readerFieldInfo.getDocValuesType() == type) {
+            return readerFieldInfo;
+        }
+        return null;
+    }
+
+    /**
+     * Tracks state of one numeric sub-reader that we are merging
+     */
+    private static class NumericDocValuesSub extends DocIDMerger.Sub {
+
+        final NumericDocValues values;
+
+        public NumericDocValuesSub(MergeState.DocMap docMap, NumericDocValues values) {
+            super(docMap);
+            this.values = values;
+            assert values.docID() == -1;
+        }
+
+        @Override
+        public int nextDoc() throws IOException {
+            return values.nextDoc();
+        }
+    }
+
+    /**
+     * Merges the numeric docvalues from <code>MergeState</code>.
+     * <p>
+     * The default implementation calls {@link #addNumericField}, passing
+     * a DocValuesProducer that merges and filters deleted documents on the fly.
+     */
+    public void mergeNumericField(final FieldInfo mergeFieldInfo, final MergeState mergeState) throws IOException {
+        addNumericField(mergeFieldInfo,
+                new EmptyDocValuesProducer() {
+                    @Override
+                    public NumericDocValues getNumeric(FieldInfo fieldInfo) throws IOException {
+                        if (fieldInfo != mergeFieldInfo) {
+                            throw new IllegalArgumentException("wrong fieldInfo");
+                        }
+
+                        // We must make new iterators + DocIDMerger for each iterator:
+                        List<NumericDocValuesSub> subs = new ArrayList<>();
+                        long cost = 0;
+                        for (int i = 0; i < mergeState.docValuesProducers.length; i++) {
+                            FieldInfo readerFieldInfo = readerFieldInfo(mergeState, i, mergeFieldInfo, DocValuesType.NUMERIC);
+                            if (readerFieldInfo != null) {
+                                NumericDocValues values = mergeState.docValuesProducers[i].getNumeric(readerFieldInfo);
+                                cost += values.cost();
+                                subs.add(new NumericDocValuesSub(mergeState.docMaps[i], values));
+                            }
+                        }
+
+                        final DocIDMerger<NumericDocValuesSub> docIDMerger = DocIDMerger.of(subs, mergeState.needsIndexSort);
+                        final long finalCost = cost;
+
+                        return new NumericDocValues() {
+                            private int docID = -1;
+                            private NumericDocValuesSub current;
+
+                            @Override
+                            public int docID() {
+                                return docID;
+                            }
+
+                            @Override
+                            public int nextDoc() throws IOException {
+                                current = docIDMerger.next();
+                                if (current == null) {
+                                    docID = NO_MORE_DOCS;
+                                } else {
+                                    docID = current.mappedDocID;
+                                }
+                                return docID;
+                            }
+
+                            @Override
+                            public int advance(int target) throws IOException {
+                                throw new UnsupportedOperationException();
+                            }
+
+                            @Override
+                            public boolean advanceExact(int target) throws IOException {
+                                throw new UnsupportedOperationException();
+                            }
+
+                            @Override
+                            public long cost() {
+                                return finalCost;
+                            }
+
+                            @Override
+                            public long longValue() throws IOException {
+                                return current.values.longValue();
+                            }
+                        };
+                    }
+                });
+    }
+
+    /**
+     * Tracks state of one binary sub-reader that we are merging
+     */
+    private static class BinaryDocValuesSub extends DocIDMerger.Sub {
+
+        final BinaryDocValues values;
+
+        public BinaryDocValuesSub(MergeState.DocMap docMap, BinaryDocValues values) {
+            super(docMap);
+            this.values = values;
+            assert values.docID() == -1;
+        }
+
+        @Override
+        public int nextDoc() throws IOException {
+            return values.nextDoc();
+        }
+    }
+
+    /**
+     * Merges the binary docvalues from <code>MergeState</code>.
+     * <p>
+     * The default implementation calls {@link #addBinaryField}, passing
+     * a DocValuesProducer that merges and filters deleted documents on the fly.
+     */
+    public void mergeBinaryField(FieldInfo mergeFieldInfo, final MergeState mergeState) throws IOException {
+        addBinaryField(mergeFieldInfo,
+                new EmptyDocValuesProducer() {
+                    @Override
+                    public BinaryDocValues getBinary(FieldInfo fieldInfo) throws IOException {
+                        if (fieldInfo != mergeFieldInfo) {
+                            throw new IllegalArgumentException("wrong fieldInfo");
+                        }
+
+                        List<BinaryDocValuesSub> subs = new ArrayList<>();
+
+                        long cost = 0;
+                        for (int i = 0; i < mergeState.docValuesProducers.length; i++) {
+                            FieldInfo readerFieldInfo = readerFieldInfo(mergeState, i, mergeFieldInfo, DocValuesType.BINARY);
+                            if (readerFieldInfo != null) {
+                                BinaryDocValues values = mergeState.docValuesProducers[i].getBinary(readerFieldInfo);
+                                cost += values.cost();
+                                subs.add(new BinaryDocValuesSub(mergeState.docMaps[i], values));
+                            }
+                        }
+
+                        final DocIDMerger<BinaryDocValuesSub> docIDMerger = DocIDMerger.of(subs, mergeState.needsIndexSort);
+                        final long finalCost = cost;
+
+                        return new BinaryDocValues() {
+                            private BinaryDocValuesSub current;
+                            private int docID = -1;
+
+                            @Override
+                            public int docID() {
+                                return docID;
+                            }
+
+                            @Override
+                            public int nextDoc() throws IOException {
+                                current = docIDMerger.next();
+                                if (current == null) {
+                                    docID = NO_MORE_DOCS;
+                                } else {
+                                    docID = current.mappedDocID;
+                                }
+                                return docID;
+                            }
+
+                            @Override
+                            public int advance(int target) {
+                                throw new UnsupportedOperationException();
+                            }
+
+                            @Override
+                            public boolean advanceExact(int target) throws IOException {
+                                throw new UnsupportedOperationException();
+                            }
+
+                            @Override
+                            public long cost() {
+                                return finalCost;
+                            }
+
+                            @Override
+                            public BytesRef binaryValue() throws IOException {
+                                return current.values.binaryValue();
+                            }
+                        };
+                    }
+                });
+    }
+
+    /**
+     * Tracks state of one sorted numeric sub-reader that we are merging
+     */
+    private static class SortedNumericDocValuesSub extends DocIDMerger.Sub {
+
+        final SortedNumericDocValues values;
+
+        public SortedNumericDocValuesSub(MergeState.DocMap docMap, SortedNumericDocValues values) {
+            super(docMap);
+            this.values = values;
+            assert values.docID() == -1;
+        }
+
+        @Override
+        public int nextDoc() throws IOException {
+            return values.nextDoc();
+        }
+    }
+
+    /**
+     * Merges the sorted docvalues from <code>toMerge</code>.
+     * <p>
+     * The default implementation calls {@link #addSortedNumericField}, passing
+     * iterables that filter deleted documents.
+     */
+    public void mergeSortedNumericField(FieldInfo mergeFieldInfo, final MergeState mergeState) throws IOException {
+
+        addSortedNumericField(mergeFieldInfo,
+                new EmptyDocValuesProducer() {
+                    @Override
+                    public SortedNumericDocValues getSortedNumeric(FieldInfo fieldInfo) throws IOException {
+                        if (fieldInfo != mergeFieldInfo) {
+                            throw new IllegalArgumentException("wrong FieldInfo");
+                        }
+
+                        // We must make new iterators + DocIDMerger for each iterator:
+                        List<SortedNumericDocValuesSub> subs = new ArrayList<>();
+                        long cost = 0;
+                        for (int i = 0; i < mergeState.docValuesProducers.length; i++) {
+                            FieldInfo readerFieldInfo = readerFieldInfo(mergeState, i, mergeFieldInfo, DocValuesType.SORTED_NUMERIC);
+                            SortedNumericDocValues values;
+                            if (readerFieldInfo != null) {
+                                values = mergeState.docValuesProducers[i].getSortedNumeric(readerFieldInfo);
+                            } else {
+                                values = DocValues.emptySortedNumeric();
+                            }
+                            cost += values.cost();
+                            subs.add(new SortedNumericDocValuesSub(mergeState.docMaps[i], values));
+                        }
+
+                        final long finalCost = cost;
+
+                        final DocIDMerger<SortedNumericDocValuesSub> docIDMerger = DocIDMerger.of(subs, mergeState.needsIndexSort);
+
+                        return new SortedNumericDocValues() {
+
+                            private int docID = -1;
+                            private SortedNumericDocValuesSub currentSub;
+
+                            @Override
+                            public int docID() {
+                                return docID;
+                            }
+
+                            @Override
+                            public int nextDoc() throws IOException {
+                                currentSub = docIDMerger.next();
+                                if (currentSub == null) {
+                                    docID = NO_MORE_DOCS;
+                                } else {
+                                    docID = currentSub.mappedDocID;
+                                }
+
+                                return docID;
+                            }
+
+                            @Override
+                            public int advance(int target) throws IOException {
+                                throw new UnsupportedOperationException();
+                            }
+
+                            @Override
+                            public boolean advanceExact(int target) throws IOException {
+                                throw new UnsupportedOperationException();
+                            }
+
+                            @Override
+                            public int docValueCount() {
+                                return currentSub.values.docValueCount();
+                            }
+
+                            @Override
+                            public long cost() {
+                                return finalCost;
+                            }
+
+                            @Override
+                            public long nextValue() throws IOException {
+                                return currentSub.values.nextValue();
+                            }
+                        };
+                    }
+                });
+    }
+
+    /**
+     * Tracks state of one sorted sub-reader that we are merging
+     */
+    private static class SortedDocValuesSub extends DocIDMerger.Sub {
+
+        final SortedDocValues values;
+        final LongValues map;
+
+        public SortedDocValuesSub(MergeState.DocMap docMap, SortedDocValues values, LongValues map) {
+            super(docMap);
+            this.values = values;
+            this.map = map;
+            assert values.docID() == -1;
+        }
+
+        @Override
+        public int nextDoc() throws IOException {
+            return values.nextDoc();
+        }
+    }
+
+    /**
+     * Merges the sorted docvalues from <code>toMerge</code>.
+     * <p>
+     * The default implementation calls {@link #addSortedField}, passing
+     * an Iterable that merges ordinals and values and filters deleted documents .
+     */
+    public void mergeSortedField(FieldInfo fieldInfo, final MergeState mergeState) throws IOException {
+        final int numReaders = mergeState.docValuesProducers.length;
+        final SortedDocValues[] dvs = new SortedDocValues[numReaders];
+        for (int i = 0; i < numReaders; i++) {
+            FieldInfo readerFieldInfo = readerFieldInfo(mergeState, i, fieldInfo, DocValuesType.SORTED);
+            SortedDocValues values = null;
+            if (readerFieldInfo != null) {
+                values = mergeState.docValuesProducers[i].getSorted(readerFieldInfo);
+            }
+            if (values == null) {
+                values = DocValues.emptySorted();
+            }
+            dvs[i] = values;
+        }
+
+        // no deletions, so every term of every segment is still in use
+        final OrdinalMap map = OrdinalMap.build(null, dvs);
+
+        addSortedField(fieldInfo,
+                new EmptyDocValuesProducer() {
+                    @Override
+                    public SortedDocValues getSorted(FieldInfo fieldInfoIn) throws IOException {
+                        if (fieldInfoIn != fieldInfo) {
+                            throw new IllegalArgumentException("wrong FieldInfo");
+                        }
+
+                        // We must make new iterators + DocIDMerger for each iterator:
+
+                        List<SortedDocValuesSub> subs = new ArrayList<>();
+                        long cost = 0;
+                        for (int i = 0; i < numReaders; i++) {
+                            FieldInfo readerFieldInfo = readerFieldInfo(mergeState, i, fieldInfo, DocValuesType.SORTED);
+                            SortedDocValues values = null;
+                            if (readerFieldInfo != null) {
+                                values = mergeState.docValuesProducers[i].getSorted(readerFieldInfo);
+                            }
+                            if (values == null) {
+                                values = DocValues.emptySorted();
+                            }
+                            cost += values.cost();
+
+                            subs.add(new SortedDocValuesSub(mergeState.docMaps[i], values, map.getGlobalOrds(i)));
+                        }
+
+                        final long finalCost = cost;
+
+                        final DocIDMerger<SortedDocValuesSub> docIDMerger = DocIDMerger.of(subs, mergeState.needsIndexSort);
+
+                        return new SortedDocValues() {
+                            private int docID = -1;
+                            private int ord;
+
+                            @Override
+                            public int docID() {
+                                return docID;
+                            }
+
+                            @Override
+                            public int nextDoc() throws IOException {
+                                SortedDocValuesSub sub = docIDMerger.next();
+                                if (sub == null) {
+                                    return docID = NO_MORE_DOCS;
+                                }
+                                int subOrd = sub.values.ordValue();
+                                assert subOrd != -1;
+                                ord = (int) sub.map.get(subOrd);
+                                docID = sub.mappedDocID;
+                                return docID;
+                            }
+
+                            @Override
+                            public int ordValue() {
+                                return ord;
+                            }
+
+                            @Override
+                            public int advance(int target) {
+                                throw new UnsupportedOperationException();
+                            }
+
+                            @Override
+                            public boolean advanceExact(int target) throws IOException {
+                                throw new UnsupportedOperationException();
+                            }
+
+                            @Override
+                            public long cost() {
+                                return finalCost;
+                            }
+
+                            @Override
+                            public int getValueCount() {
+                                return (int) map.getValueCount();
+                            }
+
+                            @Override
+                            public BytesRef lookupOrd(int ord) throws IOException {
+                                int segmentNumber = map.getFirstSegmentNumber(ord);
+                                int segmentOrd = (int) map.getFirstSegmentOrd(ord);
+                                return dvs[segmentNumber].lookupOrd(segmentOrd);
+                            }
+                        };
+                    }
+                });
+    }
+
+    /**
+     * Tracks state of one sorted set sub-reader that we are merging
+     */
+    private static class SortedSetDocValuesSub extends DocIDMerger.Sub {
+
+        final SortedSetDocValues values;
+        final LongValues map;
+
+        public SortedSetDocValuesSub(MergeState.DocMap docMap, SortedSetDocValues values, LongValues map) {
+            super(docMap);
+            this.values = values;
+            this.map = map;
+            assert values.docID() == -1;
+        }
+
+        @Override
+        public int nextDoc() throws IOException {
+            return values.nextDoc();
+        }
+
+        @Override
+        public String toString() {
+            return "SortedSetDocValuesSub(mappedDocID=" + mappedDocID + " values=" + values + ")";
+        }
+    }
+
+    /**
+     * Merges the sortedset docvalues from <code>toMerge</code>.
+     * <p>
+     * The default implementation calls {@link #addSortedSetField}, passing
+     * an Iterable that merges ordinals and values and filters deleted documents .
+     */
+    public void mergeSortedSetField(FieldInfo mergeFieldInfo, final MergeState mergeState) throws IOException {
+        final int numReaders = mergeState.docValuesProducers.length;
+        final SortedSetDocValues[] dvs = new SortedSetDocValues[numReaders];
+        for (int i = 0; i < numReaders; i++) {
+            FieldInfo readerFieldInfo = readerFieldInfo(mergeState, i, mergeFieldInfo, DocValuesType.SORTED_SET);
+            SortedSetDocValues values = null;
+            if (readerFieldInfo != null) {
+                values = mergeState.docValuesProducers[i].getSortedSet(readerFieldInfo);
+            }
+            if (values == null) {
+                values = DocValues.emptySortedSet();
+            }
+            dvs[i] = values;
+        }
+
+        // no deletions, so every term of every segment is still in use
+        final OrdinalMap map = OrdinalMap.build(null, dvs);
+
+        addSortedSetField(mergeFieldInfo,
+                new EmptyDocValuesProducer() {
+                    @Override
+                    public SortedSetDocValues getSortedSet(FieldInfo fieldInfo) throws IOException {
+                        if (fieldInfo != mergeFieldInfo) {
+                            throw new IllegalArgumentException("wrong FieldInfo");
+                        }
+
+                        // We must make new iterators + DocIDMerger for each iterator:
+                        List<SortedSetDocValuesSub> subs = new ArrayList<>();
+
+                        long cost = 0;
+
+                        for (int i = 0; i < numReaders; i++) {
+                            FieldInfo readerFieldInfo = readerFieldInfo(mergeState, i, mergeFieldInfo, DocValuesType.SORTED_SET);
+                            SortedSetDocValues values = null;
+                            if (readerFieldInfo != null) {
+                                values = mergeState.docValuesProducers[i].getSortedSet(readerFieldInfo);
+                            }
+                            if (values == null) {
+                                values = DocValues.emptySortedSet();
+                            }
+                            cost += values.cost();
+                            subs.add(new SortedSetDocValuesSub(mergeState.docMaps[i], values, map.getGlobalOrds(i)));
+                        }
+
+                        final DocIDMerger<SortedSetDocValuesSub> docIDMerger = DocIDMerger.of(subs, mergeState.needsIndexSort);
+
+                        final long finalCost = cost;
+
+                        return new SortedSetDocValues() {
+                            private int docID = -1;
+                            private SortedSetDocValuesSub currentSub;
+
+                            @Override
+                            public int docID() {
+                                return docID;
+                            }
+
+                            @Override
+                            public int nextDoc() throws IOException {
+                                currentSub = docIDMerger.next();
+                                if (currentSub == null) {
+                                    docID = NO_MORE_DOCS;
+                                } else {
+                                    docID = currentSub.mappedDocID;
+                                }
+
+                                return docID;
+                            }
+
+                            @Override
+                            public int advance(int target) throws IOException {
+                                throw new UnsupportedOperationException();
+                            }
+
+                            @Override
+                            public boolean advanceExact(int target) throws IOException {
+                                throw new UnsupportedOperationException();
+                            }
+
+                            @Override
+                            public long nextOrd() throws IOException {
+                                long subOrd = currentSub.values.nextOrd();
+                                if (subOrd == NO_MORE_ORDS) {
+                                    return NO_MORE_ORDS;
+                                }
+                                return currentSub.map.get(subOrd);
+                            }
+
+                            @Override
+                            public long cost() {
+                                return finalCost;
+                            }
+
+                            @Override
+                            public BytesRef lookupOrd(long ord) throws IOException {
+                                int segmentNumber = map.getFirstSegmentNumber(ord);
+                                long segmentOrd = map.getFirstSegmentOrd(ord);
+                                return dvs[segmentNumber].lookupOrd(segmentOrd);
+                            }
+
+                            @Override
+                            public long getValueCount() {
+                                return map.getValueCount();
+                            }
+                        };
+                    }
+                });
+    }
+}
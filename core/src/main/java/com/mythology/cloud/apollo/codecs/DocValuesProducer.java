@@ -0,0 +1,76 @@
+package com.mythology.cloud.apollo.codecs;
+
+import com.mythology.cloud.apollo.index.BinaryDocValues;
+import com.mythology.cloud.apollo.index.FieldInfo;
+import com.mythology.cloud.apollo.index.NumericDocValues;
+import com.mythology.cloud.apollo.index.SortedDocValues;
+import com.mythology.cloud.apollo.index.SortedNumericDocValues;
+import com.mythology.cloud.apollo.index.SortedSetDocValues;
+import com.mythology.cloud.apollo.util.Accountable;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Abstract API that produces numeric, binary, sorted, sortedset,
+ * and sortednumeric docvalues.
+ * <p>
+ * Every call to a {@code getXXX} method returns a new, unpositioned iterator,
+ * so a single producer may be shared by all threads searching a segment.
+ *
+ * @lucene.experimental
+ */
+public abstract class DocValuesProducer implements Closeable, Accountable {
+
+    /**
+     * Sole constructor. (For invocation by subclass
+     * constructors, typically implicit.)
+     */
+    protected DocValuesProducer() {
+    }
+
+    /**
+     * Returns {@link NumericDocValues} for this field.
+     * The returned instance need not be thread-safe: it will only be
+     * used by a single thread.
+     */
+    public abstract NumericDocValues getNumeric(FieldInfo field) throws IOException;
+
+    /**
+     * Returns {@link BinaryDocValues} for this field.
+     * The returned instance need not be thread-safe: it will only be
+     * used by a single thread.
+     */
+    public abstract BinaryDocValues getBinary(FieldInfo field) throws IOException;
+
+    /**
+     * Returns {@link SortedDocValues} for this field.
+     * The returned instance need not be thread-safe: it will only be
+     * used by a single thread.
+     */
+    public abstract SortedDocValues getSorted(FieldInfo field) throws IOException;
+
+    /**
+     * Returns {@link SortedNumericDocValues} for this field.
+     * The returned instance need not be thread-safe: it will only be
+     * used by a single thread.
+     */
+    public abstract SortedNumericDocValues getSortedNumeric(FieldInfo field) throws IOException;
+
+    /**
+     * Returns {@link SortedSetDocValues} for this field.
+     * The returned instance need not be thread-safe: it will only be
+     * used by a single thread.
+     */
+    public abstract SortedSetDocValues getSortedSet(FieldInfo field) throws IOException;
+
+    /**
+     * Returns an instance optimized for merging. This instance may only be
+     * consumed in the thread that called {@link #getMergeInstance()}.
+     * <p>
+     * The default implementation returns {@code this}
+     */
+    public DocValuesProducer getMergeInstance() throws IOException {
+        return this;
+    }
+}
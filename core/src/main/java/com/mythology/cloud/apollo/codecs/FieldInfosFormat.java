@@ -0,0 +1,150 @@
+package com.mythology.cloud.apollo.codecs;
+
+import com.mythology.cloud.apollo.index.CorruptIndexException;
+import com.mythology.cloud.apollo.index.DocValuesType;
+import com.mythology.cloud.apollo.index.FieldInfo;
+import com.mythology.cloud.apollo.index.FieldInfos;
+import com.mythology.cloud.apollo.index.IndexOptions;
+import com.mythology.cloud.apollo.store.Directory;
+import com.mythology.cloud.apollo.store.IndexInput;
+import com.mythology.cloud.apollo.store.IndexOutput;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Persists the {@link FieldInfos} of a segment.
+ * <p>
+ * Field Infos (.fnm) --&gt; Header,FieldsCount, &lt;FieldName,FieldNumber,
+ * FieldBits,IndexOptions,DocValuesType,Attributes,DataDimensionCount[,IndexDimensionCount,DimensionNumBytes]&gt; <sup>FieldsCount</sup>,Footer
+ * <ul>
+ * <li>FieldsCount, FieldNumber, DataDimensionCount, IndexDimensionCount, DimensionNumBytes --&gt; {@link com.mythology.cloud.apollo.store.DataOutput#writeVInt VInt}</li>
+ * <li>FieldName --&gt; {@link com.mythology.cloud.apollo.store.DataOutput#writeString String}</li>
+ * <li>FieldBits, IndexOptions, DocValuesType --&gt; {@link com.mythology.cloud.apollo.store.DataOutput#writeByte Byte}.
+ * FieldBits stores term vectors (0x1), omitted norms (0x2) and payloads (0x4);
+ * IndexOptions and DocValuesType are the ordinals of the enums.</li>
+ * <li>Attributes --&gt; {@link com.mythology.cloud.apollo.store.DataOutput#writeMapOfStrings Map&lt;String,String&gt;}</li>
+ * </ul>
+ * <p>
+ * 字段元信息格式：按字段保存名称、全局编号、索引选项、DocValues类型、属性及Point维度。
+ * </p>
+ *
+ * @lucene.experimental
+ */
+public final class FieldInfosFormat {
+
+    /**
+     * Extension of field infos
+     */
+    public static final String EXTENSION = "fnm";
+
+    static final String CODEC_NAME = "FieldInfos";
+    static final int VERSION_START = 0;
+    static final int VERSION_CURRENT = VERSION_START;
+
+    // Field flags
+    static final byte STORE_TERMVECTOR = 0x1;
+    static final byte OMIT_NORMS = 0x2;
+    static final byte STORE_PAYLOADS = 0x4;
+
+    private static final IndexOptions[] INDEX_OPTIONS = IndexOptions.values();
+    private static final DocValuesType[] DOC_VALUES_TYPES = DocValuesType.values();
+
+    private FieldInfosFormat() {
+    }
+
+    /**
+     * Writes the {@link FieldInfos} of {@code segment}.
+     */
+    public static void write(Directory directory, String segment, FieldInfos infos) throws IOException {
+        try (IndexOutput output = directory.createOutput(fileName(segment))) {
+            CodecUtil.writeHeader(output, CODEC_NAME, VERSION_CURRENT);
+            output.writeVInt(infos.size());
+            for (FieldInfo fi : infos) {
+                fi.checkConsistency();
+
+                output.writeString(fi.name);
+                output.writeVInt(fi.number);
+
+                byte bits = 0x0;
+                if (fi.hasVectors()) bits |= STORE_TERMVECTOR;
+                if (fi.omitsNorms()) bits |= OMIT_NORMS;
+                if (fi.hasPayloads()) bits |= STORE_PAYLOADS;
+                output.writeByte(bits);
+
+                output.writeByte((byte) fi.getIndexOptions().ordinal());
+                output.writeByte((byte) fi.getDocValuesType().ordinal());
+                output.writeMapOfStrings(fi.attributes());
+                final int pointDataDimensionCount = fi.getPointDataDimensionCount();
+                output.writeVInt(pointDataDimensionCount);
+                if (pointDataDimensionCount != 0) {
+                    output.writeVInt(fi.getPointIndexDimensionCount());
+                    output.writeVInt(fi.getPointNumBytes());
+                }
+            }
+            CodecUtil.writeFooter(output);
+        }
+    }
+
+    /**
+     * Reads the {@link FieldInfos} of {@code segment}.
+     */
+    public static FieldInfos read(Directory directory, String segment) throws IOException {
+        try (IndexInput input = directory.openInput(fileName(segment))) {
+            CodecUtil.checkHeader(input, CODEC_NAME, VERSION_START, VERSION_CURRENT);
+            final int size = input.readVInt();
+            final FieldInfo[] infos = new FieldInfo[size];
+            for (int i = 0; i < size; i++) {
+                final String name = input.readString();
+                final int fieldNumber = input.readVInt();
+                if (fieldNumber < 0) {
+                    throw new CorruptIndexException("invalid field number for field: " + name + ", fieldNumber=" + fieldNumber, input);
+                }
+                final byte bits = input.readByte();
+                final boolean storeTermVector = (bits & STORE_TERMVECTOR) != 0;
+                final boolean omitNorms = (bits & OMIT_NORMS) != 0;
+                final boolean storePayloads = (bits & STORE_PAYLOADS) != 0;
+
+                final IndexOptions indexOptions = getIndexOptions(input, input.readByte());
+                final DocValuesType docValuesType = getDocValuesType(input, input.readByte());
+                final Map<String, String> attributes = input.readMapOfStrings();
+                final int pointDataDimensionCount = input.readVInt();
+                int pointIndexDimensionCount = 0;
+                int pointNumBytes = 0;
+                if (pointDataDimensionCount != 0) {
+                    pointIndexDimensionCount = input.readVInt();
+                    pointNumBytes = input.readVInt();
+                }
+                try {
+                    infos[i] = new FieldInfo(name, fieldNumber, storeTermVector, omitNorms, storePayloads,
+                            indexOptions, docValuesType, new HashMap<>(attributes),
+                            pointDataDimensionCount, pointIndexDimensionCount, pointNumBytes);
+                    infos[i].checkConsistency();
+                } catch (IllegalStateException e) {
+                    throw new CorruptIndexException("invalid fieldinfo for field: " + name + ", fieldNumber=" + fieldNumber, input, e);
+                }
+            }
+            CodecUtil.checkFooter(input);
+            return new FieldInfos(infos);
+        }
+    }
+
+    private static IndexOptions getIndexOptions(IndexInput input, byte b) throws IOException {
+        if (b < 0 || b >= INDEX_OPTIONS.length) {
+            throw new CorruptIndexException("invalid IndexOptions byte: " + b, input);
+        }
+        return INDEX_OPTIONS[b];
+    }
+
+    private static DocValuesType getDocValuesType(IndexInput input, byte b) throws IOException {
+        if (b < 0 || b >= DOC_VALUES_TYPES.length) {
+            throw new CorruptIndexException("invalid docvalues byte: " + b, input);
+        }
+        return DOC_VALUES_TYPES[b];
+    }
+
+    static String fileName(String segment) {
+        return segment + "." + EXTENSION;
+    }
+}
@@ -0,0 +1,70 @@
+package com.mythology.cloud.apollo.codecs;
+
+import com.mythology.cloud.apollo.index.Fields;
+import com.mythology.cloud.apollo.index.MappedMultiFields;
+import com.mythology.cloud.apollo.index.MergeState;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Abstract API that consumes terms, doc, freq, prox, offset and
+ * payloads postings.  Concrete implementations of this
+ * actually do "something" with the postings (write it into
+ * the index in a specific format).
+ *
+ * @lucene.experimental
+ */
+public abstract class FieldsConsumer implements Closeable {
+
+    /**
+     * Sole constructor. (For invocation by subclass
+     * constructors, typically implicit.)
+     */
+    protected FieldsConsumer() {
+    }
+
+    /**
+     * Write all fields, terms and postings.  This the "pull"
+     * API, allowing you to iterate more than once over the
+     * postings, somewhat analogous to using a DOM API to
+     * traverse an XML tree.
+     *
+     * <p><b>Notes</b>:
+     *
+     * <ul>
+     * <li> You must compute index statistics,
+     * including each Term's docFreq and totalTermFreq,
+     * as well as the summary sumTotalTermFreq,
+     * sumTotalDocFreq and docCount.
+     *
+     * <li> You must skip terms that have no docs and
+     * fields that have no terms, even though the provided
+     * Fields API will expose them; this typically
+     * requires lazily writing the field or term until
+     * you've actually seen the first term or
+     * document.
+     *
+     * <li> {@link com.mythology.cloud.apollo.index.Terms#getDocCount()} of
+     * the provided terms must be accurate, since it is the only
+     * per-field statistic that cannot be recomputed from the
+     * postings of the individual terms.
+     * </ul>
+     *
+     * @param fields the fields, terms and postings to write
+     * @param norms  the norms of the fields, or {@code null} if no field has norms
+     */
+    public abstract void write(Fields fields, NormsProducer norms) throws IOException;
+
+    /**
+     * Merges in the fields from the readers in
+     * <code>mergeState</code>. The default implementation
+     * writes a {@link MappedMultiFields} view of all the merged segments,
+     * whose postings are remapped to the doc IDs of the new segment.
+     * Implementations can override this method for more sophisticated
+     * merging.
+     */
+    public void merge(MergeState mergeState) throws IOException {
+        write(new MappedMultiFields(mergeState), null);
+    }
+}
@@ -0,0 +1,26 @@
+package com.mythology.cloud.apollo.codecs;
+
+import com.mythology.cloud.apollo.index.Fields;
+import com.mythology.cloud.apollo.util.Accountable;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Abstract API that produces terms, doc, freq, prox, offset and
+ * payloads postings.
+ *
+ * @lucene.experimental
+ */
+public abstract class FieldsProducer extends Fields implements Closeable, Accountable {
+
+    /**
+     * Sole constructor. (For invocation by subclass
+     * constructors, typically implicit.)
+     */
+    protected FieldsProducer() {
+    }
+
+    @Override
+    public abstract void close() throws IOException;
+}
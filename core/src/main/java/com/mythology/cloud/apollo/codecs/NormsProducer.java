@@ -0,0 +1,30 @@
+package com.mythology.cloud.apollo.codecs;
+
+import com.mythology.cloud.apollo.index.FieldInfo;
+import com.mythology.cloud.apollo.index.NumericDocValues;
+import com.mythology.cloud.apollo.util.Accountable;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Abstract API that produces field normalization values
+ *
+ * @lucene.experimental
+ */
+public abstract class NormsProducer implements Closeable, Accountable {
+
+    /**
+     * Sole constructor. (For invocation by subclass
+     * constructors, typically implicit.)
+     */
+    protected NormsProducer() {
+    }
+
+    /**
+     * Returns {@link NumericDocValues} for this field.
+     * The returned instance need not be thread-safe: it will only be
+     * used by a single thread.
+     */
+    public abstract NumericDocValues getNorms(FieldInfo field) throws IOException;
+}
@@ -0,0 +1,30 @@
+package com.mythology.cloud.apollo.codecs;
+
+import com.mythology.cloud.apollo.index.PointValues;
+import com.mythology.cloud.apollo.util.Accountable;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Abstract API to visit point values.
+ *
+ * @lucene.experimental
+ */
+public abstract class PointsReader implements Closeable, Accountable {
+
+    /**
+     * Sole constructor. (For invocation by subclass
+     * constructors, typically implicit.)
+     */
+    protected PointsReader() {
+    }
+
+    /**
+     * Return {@link PointValues} for the given {@code field}, or {@code null}
+     * if the field has no points in this segment. The returned instance is
+     * thread-safe: every call to {@link PointValues#intersect} reads from its
+     * own clone of the underlying input.
+     */
+    public abstract PointValues getValues(String field) throws IOException;
+}
@@ -0,0 +1,160 @@
+package com.mythology.cloud.apollo.codecs;
+
+import com.mythology.cloud.apollo.index.FieldInfo;
+import com.mythology.cloud.apollo.index.FieldInfos;
+import com.mythology.cloud.apollo.index.MergeState;
+import com.mythology.cloud.apollo.index.PointValues;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Abstract API to write points
+ *
+ * @lucene.experimental
+ */
+public abstract class PointsWriter implements Closeable {
+
+    /**
+     * Sole constructor. (For invocation by subclass
+     * constructors, typically implicit.)
+     */
+    protected PointsWriter() {
+    }
+
+    /**
+     * Write all values contained in the provided reader. Values are pulled
+     * with {@link PointValues#intersect} and a visitor that matches every
+     * cell, so any {@link PointValues} works, including the values of a
+     * segment that is being merged.
+     */
+    public abstract void writeField(FieldInfo fieldInfo, PointValues values) throws IOException;
+
+    /**
+     * Default naive merge implementation for one field: it just re-indexes all the values
+     * from the incoming segments.
+     */
+    protected void mergeOneField(MergeState mergeState, FieldInfo fieldInfo) throws IOException {
+        long maxPointCount = 0;
+        int docCount = 0;
+        for (int i = 0; i < mergeState.pointsReaders.length; i++) {
+            PointValues values = readerValues(mergeState, i, fieldInfo.name);
+            if (values != null) {
+                maxPointCount += values.size();
+                docCount += values.getDocCount();
+            }
+        }
+        final long finalMaxPointCount = maxPointCount;
+        final int finalDocCount = docCount;
+        writeField(fieldInfo,
+                new PointValues() {
+
+                    @Override
+                    public void intersect(IntersectVisitor mergedVisitor) throws IOException {
+                        for (int i = 0; i < mergeState.pointsReaders.length; i++) {
+                            PointValues values = readerValues(mergeState, i, fieldInfo.name);
+                            if (values == null) {
+                                continue;
+                            }
+                            MergeState.DocMap docMap = mergeState.docMaps[i];
+                            values.intersect(new IntersectVisitor() {
+                                @Override
+                                public void visit(int docID) {
+                                    // Should never be called because our compare method never returns Relation.CELL_INSIDE_QUERY
+                                    throw new IllegalStateException();
+                                }
+
+                                @Override
+                                public void visit(int docID, byte[] packedValue) throws IOException {
+                                    int newDocID = docMap.get(docID);
+                                    if (newDocID != -1) {
+                                        // Not deleted:
+                                        mergedVisitor.visit(newDocID, packedValue);
+                                    }
+                                }
+
+                                @Override
+                                public Relation compare(byte[] minPackedValue, byte[] maxPackedValue) {
+                                    // Forces this segment's PointsReader to always visit all docs + values:
+                                    return Relation.CELL_CROSSES_QUERY;
+                                }
+                            });
+                        }
+                    }
+
+                    @Override
+                    public long estimatePointCount(IntersectVisitor visitor) {
+                        throw new UnsupportedOperationException();
+                    }
+
+                    @Override
+                    public byte[] getMinPackedValue() {
+                        throw new UnsupportedOperationException();
+                    }
+
+                    @Override
+                    public byte[] getMaxPackedValue() {
+                        throw new UnsupportedOperationException();
+                    }
+
+                    @Override
+                    public int getNumDataDimensions() {
+                        return fieldInfo.getPointDataDimensionCount();
+                    }
+
+                    @Override
+                    public int getNumIndexDimensions() {
+                        return fieldInfo.getPointIndexDimensionCount();
+                    }
+
+                    @Override
+                    public int getBytesPerDimension() {
+                        return fieldInfo.getPointNumBytes();
+                    }
+
+                    @Override
+                    public long size() {
+                        return finalMaxPointCount;
+                    }
+
+                    @Override
+                    public int getDocCount() {
+                        return finalDocCount;
+                    }
+                });
+    }
+
+    // the points of the field in the reader at readerIndex, or null if it has none
+    private static PointValues readerValues(MergeState mergeState, int readerIndex, String field) throws IOException {
+        PointsReader pointsReader = mergeState.pointsReaders[readerIndex];
+        if (pointsReader == null) {
+            // This segment has no points
+            return null;
+        }
+        FieldInfos readerFieldInfos = mergeState.fieldInfos[readerIndex];
+        FieldInfo readerFieldInfo = readerFieldInfos.fieldInfo(field);
+        if (readerFieldInfo == null || readerFieldInfo.getPointDataDimensionCount() == 0) {
+            // This segment never saw this field, or it is not indexed with points
+            return null;
+        }
+        return pointsReader.getValues(field);
+    }
+
+    /**
+     * Default merge implementation to merge incoming points readers by visiting all their points and
+     * adding to this writer
+     */
+    public void merge(MergeState mergeState) throws IOException {
+        for (FieldInfo fieldInfo : mergeState.mergeFieldInfos) {
+            if (fieldInfo.getPointDataDimensionCount() != 0) {
+                mergeOneField(mergeState, fieldInfo);
+            }
+        }
+        finish();
+    }
+
+    /**
+     * Called once at the end before close
+     */
+    public abstract void finish() throws IOException;
+}
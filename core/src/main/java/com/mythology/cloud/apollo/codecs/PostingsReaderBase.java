@@ -0,0 +1,83 @@
+package com.mythology.cloud.apollo.codecs;
+
+import com.mythology.cloud.apollo.index.FieldInfo;
+import com.mythology.cloud.apollo.index.ImpactsEnum;
+import com.mythology.cloud.apollo.index.PostingsEnum;
+import com.mythology.cloud.apollo.search.ScoreMode;
+import com.mythology.cloud.apollo.store.DataInput;
+import com.mythology.cloud.apollo.store.IndexInput;
+import com.mythology.cloud.apollo.util.Accountable;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A terms dictionary interacts with a single instance
+ * of this class to manage creation of {@link PostingsEnum} and
+ * {@link ImpactsEnum} instances.  It provides an
+ * IndexInput (termsIn) where this class may read any
+ * previously stored data that it had written in its
+ * corresponding {@link PostingsWriterBase} at indexing
+ * time.
+ * <p>
+ * 倒排表读取器：根据词典中保存的词项元数据打开倒排表，只读取调用方通过flags请求的数据流。
+ * </p>
+ *
+ * @lucene.experimental
+ */
+public abstract class PostingsReaderBase implements Closeable, Accountable {
+
+    /**
+     * Sole constructor. (For invocation by subclass
+     * constructors, typically implicit.)
+     */
+    protected PostingsReaderBase() {
+    }
+
+    /**
+     * Performs any initialization, such as reading and
+     * verifying the header from the provided terms
+     * dictionary {@link IndexInput}.
+     */
+    public abstract void init(IndexInput termsIn) throws IOException;
+
+    /**
+     * Return a newly created empty TermState
+     */
+    public abstract BlockTermState newTermState();
+
+    /**
+     * Actually decode metadata for next term
+     *
+     * @see PostingsWriterBase#encodeTerm
+     */
+    public abstract void decodeTerm(DataInput in, FieldInfo fieldInfo, BlockTermState state, boolean absolute) throws IOException;
+
+    /**
+     * Must fully consume state, since after this call that
+     * TermState may be reused.
+     */
+    public abstract PostingsEnum postings(FieldInfo fieldInfo, BlockTermState state, PostingsEnum reuse, int flags) throws IOException;
+
+    /**
+     * Return a {@link ImpactsEnum} that exposes the block-max impacts of the postings.
+     *
+     * @see #postings(FieldInfo, BlockTermState, PostingsEnum, int)
+     */
+    public abstract ImpactsEnum impacts(FieldInfo fieldInfo, BlockTermState state, int flags) throws IOException;
+
+    /**
+     * Returns the postings that a query consuming hits with the given
+     * {@link ScoreMode} needs: doc IDs only when scores are not needed, so
+     * that frequencies are never read, doc IDs and frequencies when all
+     * matches are scored, and an {@link ImpactsEnum} when only the top
+     * scoring hits are collected, so that blocks that cannot compete can be
+     * skipped.
+     */
+    public PostingsEnum postings(FieldInfo fieldInfo, BlockTermState state, ScoreMode scoreMode) throws IOException {
+        if (scoreMode == ScoreMode.TOP_SCORES) {
+            return impacts(fieldInfo, state, PostingsEnum.FREQS);
+        }
+        return postings(fieldInfo, state, null, scoreMode.needsScores() ? PostingsEnum.FREQS : PostingsEnum.NONE);
+    }
+}
@@ -0,0 +1,216 @@
+package com.mythology.cloud.apollo.codecs;
+
+import com.mythology.cloud.apollo.index.FieldInfo;
+import com.mythology.cloud.apollo.index.IndexOptions;
+import com.mythology.cloud.apollo.index.NumericDocValues;
+import com.mythology.cloud.apollo.index.PostingsEnum;
+import com.mythology.cloud.apollo.index.TermsEnum;
+import com.mythology.cloud.apollo.store.DataOutput;
+import com.mythology.cloud.apollo.store.IndexOutput;
+import com.mythology.cloud.apollo.util.BytesRef;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Class that plugs into a terms dictionary to write the postings of every
+ * term. The terms dictionary pushes postings with {@link #startTerm},
+ * {@link #startDoc}, {@link #addPosition}, {@link #finishDoc} and
+ * {@link #finishTerm}, or pulls them from a {@link TermsEnum} with
+ * {@link #writeTerm}; the writer then gives back a {@link BlockTermState}
+ * that the terms dictionary records with {@link #encodeTerm}.
+ * <p>
+ * Only the features that the {@link IndexOptions} of the current field
+ * requires are written, see {@link #writeFreqs}, {@link #writePositions},
+ * {@link #writeOffsets} and {@link #writePayloads}.
+ * <p>
+ * 倒排表写入器：由词典驱动，逐词项写入文档、词频、位置、偏移量和负载，并把词项元数据交回词典保存。
+ * </p>
+ *
+ * @lucene.experimental
+ */
+public abstract class PostingsWriterBase implements Closeable {
+
+    /**
+     * {@link FieldInfo} of current field being written.
+     */
+    protected FieldInfo fieldInfo;
+
+    /**
+     * {@link IndexOptions} of current field being written
+     */
+    protected IndexOptions indexOptions;
+
+    /**
+     * True if the current field writes freqs.
+     */
+    protected boolean writeFreqs;
+
+    /**
+     * True if the current field writes positions.
+     */
+    protected boolean writePositions;
+
+    /**
+     * True if the current field writes payloads.
+     */
+    protected boolean writePayloads;
+
+    /**
+     * True if the current field writes offsets.
+     */
+    protected boolean writeOffsets;
+
+    /**
+     * Sole constructor. (For invocation by subclass
+     * constructors, typically implicit.)
+     */
+    protected PostingsWriterBase() {
+    }
+
+    /**
+     * Called once after startup, before any terms have been
+     * added.  Implementations typically write a header to
+     * the provided {@code termsOut}.
+     */
+    public abstract void init(IndexOutput termsOut) throws IOException;
+
+    /**
+     * Return a newly created empty TermState
+     */
+    public abstract BlockTermState newTermState() throws IOException;
+
+    /**
+     * Set the current field being written.
+     */
+    public void setField(FieldInfo fieldInfo) {
+        this.fieldInfo = fieldInfo;
+        indexOptions = fieldInfo.getIndexOptions();
+        if (indexOptions == IndexOptions.NONE) {
+            throw new IllegalArgumentException("field \"" + fieldInfo.name + "\" is not indexed");
+        }
+
+        writeFreqs = indexOptions.compareTo(IndexOptions.DOCS_AND_FREQS) >= 0;
+        writePositions = indexOptions.compareTo(IndexOptions.DOCS_AND_FREQS_AND_POSITIONS) >= 0;
+        writeOffsets = indexOptions.compareTo(IndexOptions.DOCS_AND_FREQS_AND_POSITIONS_AND_OFFSETS) >= 0;
+        writePayloads = writePositions && fieldInfo.hasPayloads();
+    }
+
+    /**
+     * Start a new term.  Note that a matching call to {@link
+     * #finishTerm(BlockTermState)} is done, only if the term has at least one
+     * document.
+     *
+     * @param norms the norms of the current field, positioned before the first
+     *              document, or {@code null} if the field has no norms
+     */
+    public abstract void startTerm(NumericDocValues norms) throws IOException;
+
+    /**
+     * Adds a new doc in this term.
+     * {@code freq} will be -1 when term frequencies are omitted
+     * for the field.
+     */
+    public abstract void startDoc(int docID, int freq) throws IOException;
+
+    /**
+     * Add a new position and payload, and start/end offset.  A
+     * null payload means no payload; a non-null payload with
+     * zero length also means no payload.  Caller may reuse
+     * the {@link BytesRef} for the payload between calls
+     * (method must fully consume the payload). {@code
+     * startOffset} and {@code endOffset} will be -1 when
+     * offsets are not indexed.
+     */
+    public abstract void addPosition(int position, BytesRef payload, int startOffset, int endOffset) throws IOException;
+
+    /**
+     * Called when we are done adding positions and payloads
+     * for each doc.
+     */
+    public abstract void finishDoc() throws IOException;
+
+    /**
+     * Finishes the current term.  The provided {@link
+     * BlockTermState} contains the term's summary statistics,
+     * and holds the file pointers of the postings of the term when returned
+     */
+    public abstract void finishTerm(BlockTermState state) throws IOException;
+
+    /**
+     * Encode the metadata of a term to {@code out}. {@code absolute} controls whether
+     * current term is delta encoded according to latest term: file pointers
+     * always increase when a new term is consumed, so they are usually written
+     * as deltas, and absolutely for the first term of a block of the terms
+     * dictionary.
+     */
+    public abstract void encodeTerm(DataOutput out, FieldInfo fieldInfo, BlockTermState state, boolean absolute) throws IOException;
+
+    /**
+     * Write all postings for one term; use the provided
+     * {@link TermsEnum} to pull a {@link PostingsEnum}.
+     * This method should not re-position the {@code TermsEnum}!  It is already
+     * positioned on the term that should be written.  If no docs were written,
+     * this method returns null, and the terms dict will skip the term.
+     */
+    public final BlockTermState writeTerm(BytesRef term, TermsEnum termsEnum, NumericDocValues norms) throws IOException {
+        startTerm(norms);
+        final int flags;
+        if (writePositions == false) {
+            flags = writeFreqs ? PostingsEnum.FREQS : PostingsEnum.NONE;
+        } else if (writeOffsets) {
+            flags = writePayloads ? PostingsEnum.ALL : PostingsEnum.OFFSETS;
+        } else {
+            flags = writePayloads ? PostingsEnum.PAYLOADS : PostingsEnum.POSITIONS;
+        }
+        final PostingsEnum postingsEnum = termsEnum.postings(null, flags);
+        assert postingsEnum != null;
+
+        int docFreq = 0;
+        long totalTermFreq = 0;
+        while (true) {
+            int docID = postingsEnum.nextDoc();
+            if (docID == PostingsEnum.NO_MORE_DOCS) {
+                break;
+            }
+            docFreq++;
+            int freq;
+            if (writeFreqs) {
+                freq = postingsEnum.freq();
+                totalTermFreq += freq;
+            } else {
+                freq = -1;
+            }
+            startDoc(docID, freq);
+
+            if (writePositions) {
+                for (int i = 0; i < freq; i++) {
+                    int pos = postingsEnum.nextPosition();
+                    BytesRef payload = writePayloads ? postingsEnum.getPayload() : null;
+                    int startOffset;
+                    int endOffset;
+                    if (writeOffsets) {
+                        startOffset = postingsEnum.startOffset();
+                        endOffset = postingsEnum.endOffset();
+                    } else {
+                        startOffset = -1;
+                        endOffset = -1;
+                    }
+                    addPosition(pos, payload, startOffset, endOffset);
+                }
+            }
+
+            finishDoc();
+        }
+
+        if (docFreq == 0) {
+            return null;
+        } else {
+            BlockTermState state = newTermState();
+            state.docFreq = docFreq;
+            state.totalTermFreq = writeFreqs ? totalTermFreq : -1;
+            finishTerm(state);
+            return state;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.mythology.cloud.apollo.codecs;
+
+import com.mythology.cloud.apollo.index.StoredFieldVisitor;
+import com.mythology.cloud.apollo.util.Accountable;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Codec API for reading stored fields.
+ * <p>
+ * You need to implement {@link #visitDocument(int, StoredFieldVisitor)} to
+ * read the stored fields for a document, implement {@link #clone()} (creating
+ * clones of any IndexInputs used, etc), and {@link #close()}
+ *
+ * @lucene.experimental
+ */
+public abstract class StoredFieldsReader implements Cloneable, Closeable, Accountable {
+
+    /**
+     * Sole constructor. (For invocation by subclass
+     * constructors, typically implicit.)
+     */
+    protected StoredFieldsReader() {
+    }
+
+    /**
+     * Visit the stored fields for document <code>docID</code>
+     */
+    public abstract void visitDocument(int docID, StoredFieldVisitor visitor) throws IOException;
+
+    @Override
+    public abstract StoredFieldsReader clone();
+
+    /**
+     * Returns an instance optimized for merging. This instance may not be cloned.
+     * <p>
+     * The default implementation returns {@code this}
+     */
+    public StoredFieldsReader getMergeInstance() {
+        return this;
+    }
+}
@@ -0,0 +1,66 @@
+package com.mythology.cloud.apollo.codecs;
+
+import com.mythology.cloud.apollo.index.Fields;
+import com.mythology.cloud.apollo.util.Accountable;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Codec API for reading term vectors.
+ *
+ * @lucene.experimental
+ */
+public abstract class TermVectorsReader implements Cloneable, Closeable, Accountable {
+
+    /**
+     * Sole constructor. (For invocation by subclass
+     * constructors, typically implicit.)
+     */
+    protected TermVectorsReader() {
+    }
+
+    /**
+     * Returns term vectors for this document, or null if
+     * term vectors were not indexed. If offsets are
+     * available they are exposed by
+     * {@link com.mythology.cloud.apollo.index.PostingsEnum#startOffset()} and
+     * {@link com.mythology.cloud.apollo.index.PostingsEnum#endOffset()}, so
+     * that highlighters can read them without re-analyzing the stored text.
+     */
+    public abstract Fields get(int doc) throws IOException;
+
+    /**
+     * Returns the term vectors of a batch of documents, for instance a page of
+     * hits to highlight, in the order of {@code docIDs}; entries are null for
+     * documents that have no term vectors.
+     * <p>
+     * The default implementation calls {@link #get(int)} for every document,
+     * implementations should override it to read documents in doc ID order
+     * regardless of the order of {@code docIDs}.
+     */
+    public Fields[] get(int[] docIDs) throws IOException {
+        final Fields[] vectors = new Fields[docIDs.length];
+        for (int i = 0; i < docIDs.length; ++i) {
+            vectors[i] = get(docIDs[i]);
+        }
+        return vectors;
+    }
+
+    /**
+     * Create a clone that one caller at a time may use to
+     * read term vectors.
+     */
+    @Override
+    public abstract TermVectorsReader clone();
+
+    /**
+     * Returns an instance optimized for merging. This instance may only be
+     * consumed in the thread that called {@link #getMergeInstance()}.
+     * <p>
+     * The default implementation returns {@code this}
+     */
+    public TermVectorsReader getMergeInstance() {
+        return this;
+    }
+}
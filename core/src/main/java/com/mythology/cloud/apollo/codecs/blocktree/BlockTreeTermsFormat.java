@@ -0,0 +1,126 @@
+package com.mythology.cloud.apollo.codecs.blocktree;
+
+import com.mythology.cloud.apollo.codecs.FieldsConsumer;
+import com.mythology.cloud.apollo.codecs.FieldsProducer;
+import com.mythology.cloud.apollo.codecs.PostingsReaderBase;
+import com.mythology.cloud.apollo.codecs.PostingsWriterBase;
+import com.mythology.cloud.apollo.index.FieldInfos;
+import com.mythology.cloud.apollo.store.Directory;
+import com.mythology.cloud.apollo.util.fst.FST;
+
+import java.io.IOException;
+
+/**
+ * Terms dictionary that groups the sorted terms of every field into blocks
+ * of terms sharing a prefix, and indexes the blocks with an {@link FST}.
+ * <p>
+ * Files:
+ * <ol>
+ * <li><tt>.tim</tt>: the term blocks of every field. A block stores its
+ * shared prefix once, followed by the suffix, the statistics (docFreq,
+ * totalTermFreq) and the postings metadata (see
+ * {@link PostingsWriterBase#encodeTerm}) of each of its terms; the first
+ * term of a block is encoded absolutely so that any block can be decoded on
+ * its own. The file ends with the per-field statistics and file pointers.
+ * <li><tt>.tip</tt>: the terms index of every field, an {@link FST} mapping the
+ * shortest prefix that separates a block from the previous one to the file
+ * pointer of the block in the <tt>.tim</tt> file.
+ * </ol>
+ * <p>
+ * The terms index only holds one key per block, itself usually much shorter
+ * than the terms, and shares both prefixes and suffixes of those keys, so it
+ * is orders of magnitude smaller than the terms themselves. It is read
+ * off-heap by default (memory-mapped when the {@link Directory} maps its
+ * files): only a few bytes per field stay on heap. Looking up a term walks
+ * the FST along the bytes of the term to find the block that may hold it,
+ * then scans that single block, so seeking costs a number of steps
+ * proportional to the length of the term, not to the number of terms.
+ * <p>
+ * 块树词典：每个字段的有序词项按公共前缀分块存储，块由FST索引(键为区分相邻块的最短前缀，值为块的文件指针)；
+ * FST默认不加载到堆上，精确查找与向上取整查找的代价与词项长度成正比。
+ * </p>
+ *
+ * @lucene.experimental
+ */
+public final class BlockTreeTermsFormat {
+
+    /**
+     * Suggested default value for the {@code
+     * minItemsInBlock} parameter to {@link
+     * #fieldsConsumer(Directory, String, FieldInfos, PostingsWriterBase, int, int)}.
+     */
+    public static final int DEFAULT_MIN_BLOCK_SIZE = 25;
+
+    /**
+     * Suggested default value for the {@code
+     * maxItemsInBlock} parameter to {@link
+     * #fieldsConsumer(Directory, String, FieldInfos, PostingsWriterBase, int, int)}.
+     */
+    public static final int DEFAULT_MAX_BLOCK_SIZE = 48;
+
+    /**
+     * Extension of terms file
+     */
+    public static final String TERMS_EXTENSION = "tim";
+
+    /**
+     * Extension of terms index file
+     */
+    public static final String TERMS_INDEX_EXTENSION = "tip";
+
+    static final String TERMS_CODEC_NAME = "BlockTreeTermsDict";
+    static final String TERMS_INDEX_CODEC_NAME = "BlockTreeTermsIndex";
+
+    static final int VERSION_START = 0;
+    static final int VERSION_CURRENT = VERSION_START;
+
+    private BlockTreeTermsFormat() {
+    }
+
+    /**
+     * Returns a {@link FieldsConsumer} that writes the terms dictionary of a
+     * segment and pushes the postings of every term to {@code postingsWriter}.
+     * Blocks hold between {@code minItemsInBlock} and {@code maxItemsInBlock}
+     * terms, except the last block of a field which may be smaller.
+     */
+    public static FieldsConsumer fieldsConsumer(Directory directory, String segment, FieldInfos fieldInfos, PostingsWriterBase postingsWriter,
+                                                int minItemsInBlock, int maxItemsInBlock) throws IOException {
+        return new BlockTreeTermsWriter(directory, segment, fieldInfos, postingsWriter, minItemsInBlock, maxItemsInBlock);
+    }
+
+    /**
+     * Same as {@link #fieldsConsumer(Directory, String, FieldInfos, PostingsWriterBase, int, int)}
+     * with {@link #DEFAULT_MIN_BLOCK_SIZE} and {@link #DEFAULT_MAX_BLOCK_SIZE}.
+     */
+    public static FieldsConsumer fieldsConsumer(Directory directory, String segment, FieldInfos fieldInfos, PostingsWriterBase postingsWriter) throws IOException {
+        return fieldsConsumer(directory, segment, fieldInfos, postingsWriter, DEFAULT_MIN_BLOCK_SIZE, DEFAULT_MAX_BLOCK_SIZE);
+    }
+
+    /**
+     * Returns a {@link FieldsProducer} to read the terms dictionary of a
+     * segment; postings are read with {@code postingsReader}, which is closed
+     * together with the returned producer. When {@code offHeapIndex} is true
+     * the terms index is read from the index file on demand instead of being
+     * loaded on heap.
+     */
+    public static FieldsProducer fieldsProducer(Directory directory, String segment, FieldInfos fieldInfos, PostingsReaderBase postingsReader,
+                                                boolean offHeapIndex) throws IOException {
+        return new BlockTreeTermsReader(directory, segment, fieldInfos, postingsReader, offHeapIndex);
+    }
+
+    /**
+     * Same as {@link #fieldsProducer(Directory, String, FieldInfos, PostingsReaderBase, boolean)}
+     * with the terms index read off-heap.
+     */
+    public static FieldsProducer fieldsProducer(Directory directory, String segment, FieldInfos fieldInfos, PostingsReaderBase postingsReader) throws IOException {
+        return fieldsProducer(directory, segment, fieldInfos, postingsReader, true);
+    }
+
+    static String termsFileName(String segment) {
+        return segment + "." + TERMS_EXTENSION;
+    }
+
+    static String termsIndexFileName(String segment) {
+        return segment + "." + TERMS_INDEX_EXTENSION;
+    }
+}
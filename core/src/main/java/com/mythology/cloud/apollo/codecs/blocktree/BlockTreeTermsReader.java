@@ -0,0 +1,191 @@
+package com.mythology.cloud.apollo.codecs.blocktree;
+
+import com.mythology.cloud.apollo.codecs.CodecUtil;
+import com.mythology.cloud.apollo.codecs.FieldsProducer;
+import com.mythology.cloud.apollo.codecs.PostingsReaderBase;
+import com.mythology.cloud.apollo.index.CorruptIndexException;
+import com.mythology.cloud.apollo.index.FieldInfo;
+import com.mythology.cloud.apollo.index.FieldInfos;
+import com.mythology.cloud.apollo.index.IndexOptions;
+import com.mythology.cloud.apollo.index.Terms;
+import com.mythology.cloud.apollo.store.Directory;
+import com.mythology.cloud.apollo.store.IndexInput;
+import com.mythology.cloud.apollo.util.Accountable;
+import com.mythology.cloud.apollo.util.Accountables;
+import com.mythology.cloud.apollo.util.BytesRef;
+import com.mythology.cloud.apollo.util.BytesRefBuilder;
+import com.mythology.cloud.apollo.util.IOUtils;
+import com.mythology.cloud.apollo.util.fst.FST;
+import com.mythology.cloud.apollo.util.fst.PositiveIntOutputs;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Reads the terms dictionary written by {@link BlockTreeTermsWriter}.
+ * <p>
+ * Only the statistics of every field, its smallest and biggest terms and the
+ * header of its terms index stay on heap; the index itself is read off-heap
+ * unless requested otherwise, and term blocks are read on demand.
+ * <p>
+ * 块树词典读取器：堆上只保留每个字段的统计信息与FST头部，FST索引默认不加载到堆上，词项块按需读取。
+ * </p>
+ *
+ * @lucene.experimental
+ */
+public final class BlockTreeTermsReader extends FieldsProducer {
+
+    // Open input to the main terms dict file (_X.tim)
+    final IndexInput termsIn;
+
+    // Open input to the terms index file (_X.tip)
+    final IndexInput indexIn;
+
+    // Reads the terms dict entries, to gather state to
+    // produce DocsEnum on demand
+    final PostingsReaderBase postingsReader;
+
+    private final TreeMap<String, FieldReader> fields = new TreeMap<>();
+
+    /**
+     * Sole constructor.
+     */
+    public BlockTreeTermsReader(Directory directory, String segment, FieldInfos fieldInfos, PostingsReaderBase postingsReader,
+                                boolean offHeapIndex) throws IOException {
+        this.postingsReader = postingsReader;
+
+        IndexInput termsIn = null;
+        IndexInput indexIn = null;
+        boolean success = false;
+        try {
+            termsIn = directory.openInput(BlockTreeTermsFormat.termsFileName(segment));
+            CodecUtil.checkHeader(termsIn, BlockTreeTermsFormat.TERMS_CODEC_NAME, BlockTreeTermsFormat.VERSION_START, BlockTreeTermsFormat.VERSION_CURRENT);
+
+            // Have PostingsReader init itself
+            postingsReader.init(termsIn);
+
+            indexIn = directory.openInput(BlockTreeTermsFormat.termsIndexFileName(segment));
+            CodecUtil.checkHeader(indexIn, BlockTreeTermsFormat.TERMS_INDEX_CODEC_NAME, BlockTreeTermsFormat.VERSION_START, BlockTreeTermsFormat.VERSION_CURRENT);
+
+            CodecUtil.checkFooter(termsIn);
+            CodecUtil.checkFooter(indexIn);
+
+            // Read per-field details
+            termsIn.seek(termsIn.length() - CodecUtil.footerLength() - Long.BYTES);
+            termsIn.seek(termsIn.readLong());
+
+            final int numFields = termsIn.readVInt();
+            if (numFields < 0) {
+                throw new CorruptIndexException("invalid numFields: " + numFields, termsIn);
+            }
+
+            for (int i = 0; i < numFields; ++i) {
+                final int field = termsIn.readVInt();
+                final FieldInfo fieldInfo = fieldInfos.fieldInfo(field);
+                if (fieldInfo == null) {
+                    throw new CorruptIndexException("invalid field number: " + field, termsIn);
+                }
+                final long numTerms = termsIn.readVLong();
+                if (numTerms <= 0) {
+                    throw new CorruptIndexException("Illegal numTerms for field number: " + field, termsIn);
+                }
+                final long sumTotalTermFreq;
+                final long sumDocFreq;
+                if (fieldInfo.getIndexOptions() == IndexOptions.DOCS) {
+                    sumDocFreq = sumTotalTermFreq = termsIn.readVLong();
+                } else {
+                    sumTotalTermFreq = termsIn.readVLong();
+                    sumDocFreq = termsIn.readVLong();
+                }
+                final int docCount = termsIn.readVInt();
+                if (sumDocFreq < docCount) {  // #postings must be >= #docs with field
+                    throw new CorruptIndexException("invalid sumDocFreq: " + sumDocFreq + " docCount: " + docCount, termsIn);
+                }
+                if (sumTotalTermFreq < sumDocFreq) { // #positions must be >= #postings
+                    throw new CorruptIndexException("invalid sumTotalTermFreq: " + sumTotalTermFreq + " sumDocFreq: " + sumDocFreq, termsIn);
+                }
+                final BytesRef minTerm = BytesRef.deepCopyOf(termsIn.readBytesRef(new BytesRefBuilder()));
+                final BytesRef maxTerm = BytesRef.deepCopyOf(termsIn.readBytesRef(new BytesRefBuilder()));
+                final long blocksStartFP = termsIn.readVLong();
+                final long blocksEndFP = termsIn.readVLong();
+                if (blocksStartFP >= blocksEndFP) {
+                    throw new CorruptIndexException("invalid blocks for field " + fieldInfo.name + ": start=" + blocksStartFP + " end=" + blocksEndFP, termsIn);
+                }
+                final long indexStartFP = termsIn.readVLong();
+
+                indexIn.seek(indexStartFP);
+                final FST<Long> index = FST.read(indexIn, PositiveIntOutputs.getSingleton(), offHeapIndex);
+
+                final FieldReader previous = fields.put(fieldInfo.name, new FieldReader(this, fieldInfo, numTerms,
+                        sumTotalTermFreq, sumDocFreq, docCount, minTerm, maxTerm, blocksStartFP, blocksEndFP, index));
+                if (previous != null) {
+                    throw new CorruptIndexException("duplicate field: " + fieldInfo.name, termsIn);
+                }
+            }
+            this.termsIn = termsIn;
+            this.indexIn = indexIn;
+            success = true;
+        } finally {
+            if (!success) {
+                IOUtils.closeWhileHandlingException(termsIn, indexIn, postingsReader);
+            }
+        }
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return Collections.unmodifiableSet(fields.keySet()).iterator();
+    }
+
+    @Override
+    public Terms terms(String field) throws IOException {
+        assert field != null;
+        return fields.get(field);
+    }
+
+    @Override
+    public int size() {
+        return fields.size();
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        long sizeInBytes = postingsReader.ramBytesUsed();
+        for (FieldReader reader : fields.values()) {
+            sizeInBytes += reader.ramBytesUsed();
+        }
+        return sizeInBytes;
+    }
+
+    @Override
+    public Collection<Accountable> getChildResources() {
+        List<Accountable> resources = new ArrayList<>();
+        for (Map.Entry<String, FieldReader> field : fields.entrySet()) {
+            resources.add(Accountables.namedAccountable("field " + field.getKey(), field.getValue()));
+        }
+        resources.add(Accountables.namedAccountable("delegate", postingsReader));
+        return Collections.unmodifiableList(resources);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            IOUtils.close(termsIn, indexIn, postingsReader);
+        } finally {
+            // Clear so refs to terms index is GCable even if
+            // app hangs onto us:
+            fields.clear();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "(fields=" + fields.size() + ",delegate=" + postingsReader + ")";
+    }
+}
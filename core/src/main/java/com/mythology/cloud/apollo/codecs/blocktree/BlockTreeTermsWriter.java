@@ -0,0 +1,373 @@
+package com.mythology.cloud.apollo.codecs.blocktree;
+
+import com.mythology.cloud.apollo.codecs.BlockTermState;
+import com.mythology.cloud.apollo.codecs.CodecUtil;
+import com.mythology.cloud.apollo.codecs.FieldsConsumer;
+import com.mythology.cloud.apollo.codecs.NormsProducer;
+import com.mythology.cloud.apollo.codecs.PostingsWriterBase;
+import com.mythology.cloud.apollo.index.FieldInfo;
+import com.mythology.cloud.apollo.index.FieldInfos;
+import com.mythology.cloud.apollo.index.Fields;
+import com.mythology.cloud.apollo.index.IndexOptions;
+import com.mythology.cloud.apollo.index.NumericDocValues;
+import com.mythology.cloud.apollo.index.Terms;
+import com.mythology.cloud.apollo.index.TermsEnum;
+import com.mythology.cloud.apollo.store.Directory;
+import com.mythology.cloud.apollo.store.GrowableByteArrayDataOutput;
+import com.mythology.cloud.apollo.store.IndexOutput;
+import com.mythology.cloud.apollo.util.BytesRef;
+import com.mythology.cloud.apollo.util.BytesRefBuilder;
+import com.mythology.cloud.apollo.util.FutureArrays;
+import com.mythology.cloud.apollo.util.IOUtils;
+import com.mythology.cloud.apollo.util.IntsRefBuilder;
+import com.mythology.cloud.apollo.util.fst.Builder;
+import com.mythology.cloud.apollo.util.fst.FST;
+import com.mythology.cloud.apollo.util.fst.PositiveIntOutputs;
+import com.mythology.cloud.apollo.util.fst.Util;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes the terms dictionary described in {@link BlockTreeTermsFormat}.
+ * <p>
+ * Terms of a field are buffered until {@code maxItemsInBlock} of them are
+ * pending; the block is then cut at the last term that still shares the
+ * prefix of the first {@code minItemsInBlock} terms, so that blocks follow
+ * prefix boundaries and the shared prefix is written once per block.
+ * <p>
+ * 块树词典写入器：按前缀边界把有序词项切分为块，写入块数据并用FST记录每个块的最短区分前缀。
+ * </p>
+ *
+ * @lucene.experimental
+ */
+public final class BlockTreeTermsWriter extends FieldsConsumer {
+
+    private final IndexOutput termsOut;
+    private final IndexOutput indexOut;
+    private final FieldInfos fieldInfos;
+    private final int minItemsInBlock;
+    private final int maxItemsInBlock;
+
+    private final PostingsWriterBase postingsWriter;
+
+    private final List<FieldMetaData> fields = new ArrayList<>();
+
+    private boolean closed;
+
+    private static final class FieldMetaData {
+        final FieldInfo fieldInfo;
+        final long numTerms;
+        final long sumTotalTermFreq;
+        final long sumDocFreq;
+        final int docCount;
+        final BytesRef minTerm;
+        final BytesRef maxTerm;
+        final long blocksStartFP;
+        final long blocksEndFP;
+        final long indexStartFP;
+
+        FieldMetaData(FieldInfo fieldInfo, long numTerms, long sumTotalTermFreq, long sumDocFreq, int docCount,
+                      BytesRef minTerm, BytesRef maxTerm, long blocksStartFP, long blocksEndFP, long indexStartFP) {
+            this.fieldInfo = fieldInfo;
+            this.numTerms = numTerms;
+            this.sumTotalTermFreq = sumTotalTermFreq;
+            this.sumDocFreq = sumDocFreq;
+            this.docCount = docCount;
+            this.minTerm = minTerm;
+            this.maxTerm = maxTerm;
+            this.blocksStartFP = blocksStartFP;
+            this.blocksEndFP = blocksEndFP;
+            this.indexStartFP = indexStartFP;
+        }
+    }
+
+    /**
+     * Create a new writer.  The number of items (terms) per
+     * block will aim to be between minItemsPerBlock and
+     * maxItemsPerBlock, though in some cases the blocks may
+     * be smaller than the min.
+     */
+    public BlockTreeTermsWriter(Directory directory, String segment, FieldInfos fieldInfos, PostingsWriterBase postingsWriter,
+                                int minItemsInBlock, int maxItemsInBlock) throws IOException {
+        validateSettings(minItemsInBlock, maxItemsInBlock);
+        this.fieldInfos = fieldInfos;
+        this.minItemsInBlock = minItemsInBlock;
+        this.maxItemsInBlock = maxItemsInBlock;
+        this.postingsWriter = postingsWriter;
+
+        IndexOutput termsOut = null;
+        IndexOutput indexOut = null;
+        boolean success = false;
+        try {
+            termsOut = directory.createOutput(BlockTreeTermsFormat.termsFileName(segment));
+            CodecUtil.writeHeader(termsOut, BlockTreeTermsFormat.TERMS_CODEC_NAME, BlockTreeTermsFormat.VERSION_CURRENT);
+
+            indexOut = directory.createOutput(BlockTreeTermsFormat.termsIndexFileName(segment));
+            CodecUtil.writeHeader(indexOut, BlockTreeTermsFormat.TERMS_INDEX_CODEC_NAME, BlockTreeTermsFormat.VERSION_CURRENT);
+
+            postingsWriter.init(termsOut);                          // have consumer write its format/header
+            success = true;
+        } finally {
+            if (!success) {
+                IOUtils.closeWhileHandlingException(termsOut, indexOut);
+            }
+        }
+        this.termsOut = termsOut;
+        this.indexOut = indexOut;
+    }
+
+    /**
+     * Throws {@code IllegalArgumentException} if any of these settings
+     * is invalid.
+     */
+    public static void validateSettings(int minItemsInBlock, int maxItemsInBlock) {
+        if (minItemsInBlock <= 1) {
+            throw new IllegalArgumentException("minItemsInBlock must be >= 2; got " + minItemsInBlock);
+        }
+        if (minItemsInBlock > maxItemsInBlock) {
+            throw new IllegalArgumentException("maxItemsInBlock must be >= minItemsInBlock; got maxItemsInBlock=" + maxItemsInBlock + " minItemsInBlock=" + minItemsInBlock);
+        }
+    }
+
+    @Override
+    public void write(Fields fields, NormsProducer norms) throws IOException {
+        for (String field : fields) {
+            final Terms terms = fields.terms(field);
+            if (terms == null) {
+                continue;
+            }
+            final FieldInfo fieldInfo = fieldInfos.fieldInfo(field);
+            if (fieldInfo == null) {
+                throw new IllegalArgumentException("field \"" + field + "\" is not in the FieldInfos of this segment");
+            }
+            final boolean hasNorms = norms != null && fieldInfo.hasNorms();
+
+            final TermsEnum termsEnum = terms.iterator();
+            final TermsWriter termsWriter = new TermsWriter(fieldInfo);
+            while (true) {
+                final BytesRef term = termsEnum.next();
+                if (term == null) {
+                    break;
+                }
+                // norms are consumed by the postings writer, so every term
+                // needs its own, unpositioned, iterator
+                termsWriter.write(term, termsEnum, hasNorms ? norms.getNorms(fieldInfo) : null);
+            }
+            termsWriter.finish(terms.getDocCount());
+        }
+    }
+
+    private final class TermsWriter {
+        private final FieldInfo fieldInfo;
+        private final boolean hasFreqs;
+        private final long blocksStartFP;
+        private final Builder<Long> indexBuilder = new Builder<>(PositiveIntOutputs.getSingleton());
+        private final IntsRefBuilder scratchIntsRef = new IntsRefBuilder();
+
+        private long numTerms;
+        private long sumTotalTermFreq;
+        private long sumDocFreq;
+        private BytesRef minTerm;
+        private BytesRef maxTerm;
+
+        // last term of the previous block, to compute the key of the next block
+        private final BytesRefBuilder lastBlockTerm = new BytesRefBuilder();
+        private boolean firstBlock = true;
+
+        private BytesRef[] pendingTerms;
+        private BlockTermState[] pendingStates;
+        private int pendingCount;
+
+        private final GrowableByteArrayDataOutput suffixWriter = new GrowableByteArrayDataOutput(1024);
+        private final GrowableByteArrayDataOutput statsWriter = new GrowableByteArrayDataOutput(64);
+        private final GrowableByteArrayDataOutput metaWriter = new GrowableByteArrayDataOutput(64);
+
+        TermsWriter(FieldInfo fieldInfo) {
+            this.fieldInfo = fieldInfo;
+            hasFreqs = fieldInfo.getIndexOptions().compareTo(IndexOptions.DOCS_AND_FREQS) >= 0;
+            blocksStartFP = termsOut.getFilePointer();
+            pendingTerms = new BytesRef[maxItemsInBlock];
+            pendingStates = new BlockTermState[maxItemsInBlock];
+            postingsWriter.setField(fieldInfo);
+        }
+
+        /**
+         * Writes one term's worth of postings.
+         */
+        void write(BytesRef text, TermsEnum termsEnum, NumericDocValues norms) throws IOException {
+            final BlockTermState state = postingsWriter.writeTerm(text, termsEnum, norms);
+            if (state == null) {
+                return;
+            }
+            assert state.docFreq != 0;
+            assert fieldInfo.getIndexOptions() == IndexOptions.DOCS || state.totalTermFreq >= state.docFreq : "postingsWriter=" + postingsWriter;
+
+            final BytesRef term = BytesRef.deepCopyOf(text);
+            assert maxTerm == null || term.compareTo(maxTerm) > 0 : "terms out of order: " + maxTerm + " vs " + term;
+            if (minTerm == null) {
+                minTerm = term;
+            }
+            maxTerm = term;
+            numTerms++;
+            sumDocFreq += state.docFreq;
+            if (hasFreqs) {
+                sumTotalTermFreq += state.totalTermFreq;
+            }
+
+            pendingTerms[pendingCount] = term;
+            pendingStates[pendingCount] = state;
+            pendingCount++;
+            if (pendingCount == maxItemsInBlock) {
+                writeBlock(chooseBlockEnd());
+            }
+        }
+
+        /**
+         * Returns the number of pending terms to write in the next block: the
+         * biggest count, at least {@code minItemsInBlock}, whose terms all share
+         * the prefix of the first {@code minItemsInBlock} terms.
+         */
+        private int chooseBlockEnd() {
+            final BytesRef first = pendingTerms[0];
+            final int prefixLength = commonPrefixLength(first, pendingTerms[minItemsInBlock - 1]);
+            int end = minItemsInBlock;
+            while (end < pendingCount && commonPrefixLength(first, pendingTerms[end]) >= prefixLength) {
+                end++;
+            }
+            return end;
+        }
+
+        private void writeBlock(int count) throws IOException {
+            assert count > 0 && count <= pendingCount;
+            final long blockFP = termsOut.getFilePointer();
+
+            // the key of this block in the terms index: the shortest prefix of
+            // its first term that is greater than the last term of the previous
+            // block, or the empty string for the first block
+            final BytesRef first = pendingTerms[0];
+            final int keyLength;
+            if (firstBlock) {
+                keyLength = 0;
+                firstBlock = false;
+            } else {
+                keyLength = commonPrefixLength(lastBlockTerm.get(), first) + 1;
+                assert keyLength <= first.length;
+            }
+            indexBuilder.add(Util.toIntsRef(new BytesRef(first.bytes, first.offset, keyLength), scratchIntsRef), blockFP);
+
+            final BytesRef last = pendingTerms[count - 1];
+            final int prefixLength = commonPrefixLength(first, last);
+
+            suffixWriter.reset();
+            statsWriter.reset();
+            metaWriter.reset();
+            for (int i = 0; i < count; i++) {
+                final BytesRef term = pendingTerms[i];
+                final BlockTermState state = pendingStates[i];
+                final int suffixLength = term.length - prefixLength;
+                suffixWriter.writeVInt(suffixLength);
+                suffixWriter.writeBytes(term.bytes, term.offset + prefixLength, suffixLength);
+
+                statsWriter.writeVInt(state.docFreq);
+                if (hasFreqs) {
+                    assert state.totalTermFreq >= state.docFreq;
+                    statsWriter.writeVLong(state.totalTermFreq - state.docFreq);
+                }
+
+                // the first term is written absolutely so that every block can be
+                // decoded on its own
+                postingsWriter.encodeTerm(metaWriter, fieldInfo, state, i == 0);
+            }
+
+            termsOut.writeVInt(count);
+            termsOut.writeVInt(prefixLength);
+            termsOut.writeBytes(first.bytes, first.offset, prefixLength);
+            termsOut.writeVInt(suffixWriter.getPosition());
+            termsOut.writeBytes(suffixWriter.getBytes(), 0, suffixWriter.getPosition());
+            termsOut.writeVInt(statsWriter.getPosition());
+            termsOut.writeBytes(statsWriter.getBytes(), 0, statsWriter.getPosition());
+            termsOut.writeVInt(metaWriter.getPosition());
+            termsOut.writeBytes(metaWriter.getBytes(), 0, metaWriter.getPosition());
+
+            lastBlockTerm.copyBytes(last);
+
+            // shift the remaining pending terms
+            System.arraycopy(pendingTerms, count, pendingTerms, 0, pendingCount - count);
+            System.arraycopy(pendingStates, count, pendingStates, 0, pendingCount - count);
+            for (int i = pendingCount - count; i < pendingCount; i++) {
+                pendingTerms[i] = null;
+                pendingStates[i] = null;
+            }
+            pendingCount -= count;
+        }
+
+        /**
+         * Finishes all terms in this field
+         */
+        void finish(int docCount) throws IOException {
+            if (numTerms == 0) {
+                // fields that have no terms are not written
+                return;
+            }
+            if (pendingCount > 0) {
+                writeBlock(pendingCount);
+            }
+            final long blocksEndFP = termsOut.getFilePointer();
+
+            final FST<Long> index = indexBuilder.finish();
+            final long indexStartFP = indexOut.getFilePointer();
+            index.save(indexOut);
+
+            fields.add(new FieldMetaData(fieldInfo, numTerms,
+                    hasFreqs ? sumTotalTermFreq : sumDocFreq,
+                    sumDocFreq, docCount, minTerm, maxTerm,
+                    blocksStartFP, blocksEndFP, indexStartFP));
+        }
+    }
+
+    private static int commonPrefixLength(BytesRef a, BytesRef b) {
+        final int mismatch = FutureArrays.mismatch(a.bytes, a.offset, a.offset + a.length, b.bytes, b.offset, b.offset + b.length);
+        return mismatch == -1 ? a.length : mismatch;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        boolean success = false;
+        try {
+            final long dirStart = termsOut.getFilePointer();
+            termsOut.writeVInt(fields.size());
+            for (FieldMetaData field : fields) {
+                termsOut.writeVInt(field.fieldInfo.number);
+                assert field.numTerms > 0;
+                termsOut.writeVLong(field.numTerms);
+                if (field.fieldInfo.getIndexOptions() != IndexOptions.DOCS) {
+                    termsOut.writeVLong(field.sumTotalTermFreq);
+                }
+                termsOut.writeVLong(field.sumDocFreq);
+                termsOut.writeVInt(field.docCount);
+                termsOut.writeBytesRef(field.minTerm);
+                termsOut.writeBytesRef(field.maxTerm);
+                termsOut.writeVLong(field.blocksStartFP);
+                termsOut.writeVLong(field.blocksEndFP);
+                termsOut.writeVLong(field.indexStartFP);
+            }
+            termsOut.writeLong(dirStart);
+            CodecUtil.writeFooter(termsOut);
+            CodecUtil.writeFooter(indexOut);
+            success = true;
+        } finally {
+            if (success) {
+                IOUtils.close(termsOut, indexOut, postingsWriter);
+            } else {
+                IOUtils.closeWhileHandlingException(termsOut, indexOut, postingsWriter);
+            }
+        }
+    }
+}
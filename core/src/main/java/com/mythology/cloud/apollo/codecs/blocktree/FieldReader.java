@@ -0,0 +1,136 @@
+package com.mythology.cloud.apollo.codecs.blocktree;
+
+import com.mythology.cloud.apollo.index.FieldInfo;
+import com.mythology.cloud.apollo.index.IndexOptions;
+import com.mythology.cloud.apollo.index.Terms;
+import com.mythology.cloud.apollo.index.TermsEnum;
+import com.mythology.cloud.apollo.util.Accountable;
+import com.mythology.cloud.apollo.util.Accountables;
+import com.mythology.cloud.apollo.util.BytesRef;
+import com.mythology.cloud.apollo.util.RamUsageEstimator;
+import com.mythology.cloud.apollo.util.fst.FST;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * BlockTree's implementation of {@link Terms}.
+ * <p>
+ * 块树词典中单个字段的词项集合：持有字段统计信息与该字段的FST索引。
+ * </p>
+ *
+ * @lucene.internal
+ */
+public final class FieldReader extends Terms implements Accountable {
+
+    private static final long BASE_RAM_BYTES_USED =
+            RamUsageEstimator.shallowSizeOfInstance(FieldReader.class)
+                    + 2 * RamUsageEstimator.shallowSizeOfInstance(BytesRef.class);
+
+    final long numTerms;
+    final FieldInfo fieldInfo;
+    final long sumTotalTermFreq;
+    final long sumDocFreq;
+    final int docCount;
+    final BytesRef minTerm;
+    final BytesRef maxTerm;
+    final long blocksStartFP;
+    final long blocksEndFP;
+    final BlockTreeTermsReader parent;
+
+    final FST<Long> index;
+
+    FieldReader(BlockTreeTermsReader parent, FieldInfo fieldInfo, long numTerms, long sumTotalTermFreq, long sumDocFreq, int docCount,
+                BytesRef minTerm, BytesRef maxTerm, long blocksStartFP, long blocksEndFP, FST<Long> index) {
+        assert numTerms > 0;
+        this.fieldInfo = fieldInfo;
+        this.parent = parent;
+        this.numTerms = numTerms;
+        this.sumTotalTermFreq = sumTotalTermFreq;
+        this.sumDocFreq = sumDocFreq;
+        this.docCount = docCount;
+        this.minTerm = minTerm;
+        this.maxTerm = maxTerm;
+        this.blocksStartFP = blocksStartFP;
+        this.blocksEndFP = blocksEndFP;
+        this.index = index;
+    }
+
+    /**
+     * Returns the smallest term of this field.
+     */
+    public BytesRef getMin() {
+        return minTerm;
+    }
+
+    /**
+     * Returns the biggest term of this field.
+     */
+    public BytesRef getMax() {
+        return maxTerm;
+    }
+
+    @Override
+    public boolean hasFreqs() {
+        return fieldInfo.getIndexOptions().compareTo(IndexOptions.DOCS_AND_FREQS) >= 0;
+    }
+
+    @Override
+    public boolean hasOffsets() {
+        return fieldInfo.getIndexOptions().compareTo(IndexOptions.DOCS_AND_FREQS_AND_POSITIONS_AND_OFFSETS) >= 0;
+    }
+
+    @Override
+    public boolean hasPositions() {
+        return fieldInfo.getIndexOptions().compareTo(IndexOptions.DOCS_AND_FREQS_AND_POSITIONS) >= 0;
+    }
+
+    @Override
+    public boolean hasPayloads() {
+        return fieldInfo.hasPayloads();
+    }
+
+    @Override
+    public TermsEnum iterator() throws IOException {
+        return new SegmentTermsEnum(this);
+    }
+
+    @Override
+    public long size() {
+        return numTerms;
+    }
+
+    @Override
+    public long getSumTotalTermFreq() {
+        return sumTotalTermFreq;
+    }
+
+    @Override
+    public long getSumDocFreq() {
+        return sumDocFreq;
+    }
+
+    @Override
+    public int getDocCount() {
+        return docCount;
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        return BASE_RAM_BYTES_USED
+                + RamUsageEstimator.sizeOf(minTerm.bytes)
+                + RamUsageEstimator.sizeOf(maxTerm.bytes)
+                + index.ramBytesUsed();
+    }
+
+    @Override
+    public Collection<Accountable> getChildResources() {
+        return Collections.singleton(Accountables.namedAccountable("term index", index));
+    }
+
+    @Override
+    public String toString() {
+        return "BlockTreeTerms(seg=" + parent + " terms=" + numTerms + ",postings=" + sumDocFreq + ",positions=" + sumTotalTermFreq + ",docs=" + docCount + ")";
+    }
+}
@@ -0,0 +1,274 @@
+package com.mythology.cloud.apollo.codecs.blocktree;
+
+import com.mythology.cloud.apollo.codecs.BlockTermState;
+import com.mythology.cloud.apollo.index.CorruptIndexException;
+import com.mythology.cloud.apollo.index.PostingsEnum;
+import com.mythology.cloud.apollo.index.TermsEnum;
+import com.mythology.cloud.apollo.store.ByteArrayDataInput;
+import com.mythology.cloud.apollo.store.IndexInput;
+import com.mythology.cloud.apollo.util.ArrayUtil;
+import com.mythology.cloud.apollo.util.BytesRef;
+import com.mythology.cloud.apollo.util.BytesRefBuilder;
+import com.mythology.cloud.apollo.util.fst.BytesRefFSTEnum;
+
+import java.io.IOException;
+
+/**
+ * Iterates through terms in this field.
+ * <p>
+ * Seeking first walks the terms index along the bytes of the target to find
+ * the only block that may contain it, then decodes that block. Suffixes and
+ * statistics of a block are decoded on load, while the postings metadata of
+ * its terms is only decoded up to the term whose postings are requested.
+ * <p>
+ * 词项迭代器：先沿目标词项的字节遍历FST找到唯一可能包含它的块，再在块内顺序查找；
+ * 倒排元数据只在请求倒排表时解码。
+ * </p>
+ */
+final class SegmentTermsEnum extends TermsEnum {
+
+    private final FieldReader fr;
+    private final IndexInput in;
+    private final BytesRefFSTEnum<Long> indexEnum;
+    private final boolean hasFreqs;
+
+    // current term: prefix of the block followed by the suffix of the term
+    private final BytesRefBuilder term = new BytesRefBuilder();
+    private boolean positioned;
+
+    // current block
+    private boolean blockLoaded;
+    private long blockFP;
+    private long nextBlockFP;
+    private int numTerms;
+    private int prefixLength;
+    private int termIdx;
+
+    private byte[] suffixBytes = new byte[128];
+    private final ByteArrayDataInput suffixesReader = new ByteArrayDataInput();
+
+    private byte[] statBytes = new byte[64];
+    private int[] docFreqs = new int[32];
+    private long[] totalTermFreqs = new long[32];
+
+    private byte[] metaBytes = new byte[64];
+    private final ByteArrayDataInput metaReader = new ByteArrayDataInput();
+    private final BlockTermState state;
+    // index of the term whose metadata was last decoded in state, -1 if none
+    private int metaIdx;
+
+    SegmentTermsEnum(FieldReader fr) throws IOException {
+        this.fr = fr;
+        this.in = fr.parent.termsIn.clone();
+        this.indexEnum = new BytesRefFSTEnum<>(fr.index);
+        this.hasFreqs = fr.hasFreqs();
+        this.state = fr.parent.postingsReader.newTermState();
+    }
+
+    private void loadBlock(long fp) throws IOException {
+        in.seek(fp);
+        numTerms = in.readVInt();
+        if (numTerms <= 0) {
+            throw new CorruptIndexException("invalid numTerms=" + numTerms + " in block", in);
+        }
+        prefixLength = in.readVInt();
+        term.grow(prefixLength);
+        in.readBytes(term.bytes(), 0, prefixLength);
+
+        final int suffixLength = in.readVInt();
+        if (suffixBytes.length < suffixLength) {
+            suffixBytes = new byte[ArrayUtil.oversize(suffixLength, 1)];
+        }
+        in.readBytes(suffixBytes, 0, suffixLength);
+        suffixesReader.reset(suffixBytes, 0, suffixLength);
+
+        final int statLength = in.readVInt();
+        if (statBytes.length < statLength) {
+            statBytes = new byte[ArrayUtil.oversize(statLength, 1)];
+        }
+        in.readBytes(statBytes, 0, statLength);
+        if (docFreqs.length < numTerms) {
+            docFreqs = new int[ArrayUtil.oversize(numTerms, Integer.BYTES)];
+            totalTermFreqs = new long[docFreqs.length];
+        }
+        final ByteArrayDataInput statsReader = new ByteArrayDataInput(statBytes, 0, statLength);
+        for (int i = 0; i < numTerms; i++) {
+            docFreqs[i] = statsReader.readVInt();
+            if (hasFreqs) {
+                totalTermFreqs[i] = docFreqs[i] + statsReader.readVLong();
+            } else {
+                totalTermFreqs[i] = -1;
+            }
+        }
+
+        final int metaLength = in.readVInt();
+        if (metaBytes.length < metaLength) {
+            metaBytes = new byte[ArrayUtil.oversize(metaLength, 1)];
+        }
+        in.readBytes(metaBytes, 0, metaLength);
+        metaReader.reset(metaBytes, 0, metaLength);
+
+        nextBlockFP = in.getFilePointer();
+        blockFP = fp;
+        blockLoaded = true;
+        termIdx = -1;
+        metaIdx = -1;
+    }
+
+    // positions the enum before the first term of the current block,
+    // without reading the block again
+    private void rewindBlock() {
+        suffixesReader.setPosition(0);
+        termIdx = -1;
+    }
+
+    private void nextInBlock() {
+        assert termIdx + 1 < numTerms;
+        termIdx++;
+        final int suffixLength = suffixesReader.readVInt();
+        term.setLength(prefixLength);
+        term.grow(prefixLength + suffixLength);
+        suffixesReader.readBytes(term.bytes(), prefixLength, suffixLength);
+        term.setLength(prefixLength + suffixLength);
+    }
+
+    // loads the only block that may contain target, positioned before its
+    // first term
+    private void seekBlock(BytesRef target) throws IOException {
+        final BytesRefFSTEnum.InputOutput<Long> floor = indexEnum.seekFloor(target);
+        // the first block of every field is indexed with the empty key
+        assert floor != null;
+        final long fp = floor.output;
+        if (blockLoaded && fp == blockFP) {
+            rewindBlock();
+        } else {
+            loadBlock(fp);
+        }
+    }
+
+    @Override
+    public boolean seekExact(BytesRef target) throws IOException {
+        if (target.compareTo(fr.minTerm) < 0 || target.compareTo(fr.maxTerm) > 0) {
+            positioned = false;
+            return false;
+        }
+        seekBlock(target);
+        while (termIdx + 1 < numTerms) {
+            nextInBlock();
+            final int cmp = term.get().compareTo(target);
+            if (cmp == 0) {
+                positioned = true;
+                return true;
+            } else if (cmp > 0) {
+                break;
+            }
+        }
+        positioned = false;
+        return false;
+    }
+
+    @Override
+    public SeekStatus seekCeil(BytesRef target) throws IOException {
+        if (target.compareTo(fr.maxTerm) > 0) {
+            positioned = false;
+            return SeekStatus.END;
+        }
+        seekBlock(target);
+        while (termIdx + 1 < numTerms) {
+            nextInBlock();
+            final int cmp = term.get().compareTo(target);
+            if (cmp == 0) {
+                positioned = true;
+                return SeekStatus.FOUND;
+            } else if (cmp > 0) {
+                positioned = true;
+                return SeekStatus.NOT_FOUND;
+            }
+        }
+        // all terms of the block are smaller than the target: the ceiling is
+        // the first term of the next block
+        if (nextBlockFP < fr.blocksEndFP) {
+            loadBlock(nextBlockFP);
+            nextInBlock();
+            positioned = true;
+            return SeekStatus.NOT_FOUND;
+        }
+        positioned = false;
+        return SeekStatus.END;
+    }
+
+    @Override
+    public BytesRef next() throws IOException {
+        if (blockLoaded == false) {
+            // first call: start from the first term
+            loadBlock(fr.blocksStartFP);
+        } else if (positioned == false) {
+            // exhausted, or unpositioned by a failed seek
+            return null;
+        } else if (termIdx + 1 == numTerms) {
+            if (nextBlockFP >= fr.blocksEndFP) {
+                positioned = false;
+                return null;
+            }
+            loadBlock(nextBlockFP);
+        }
+        nextInBlock();
+        positioned = true;
+        return term.get();
+    }
+
+    @Override
+    public BytesRef term() {
+        assert positioned;
+        return term.get();
+    }
+
+    @Override
+    public void seekExact(long ord) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public long ord() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int docFreq() {
+        assert positioned;
+        return docFreqs[termIdx];
+    }
+
+    @Override
+    public long totalTermFreq() {
+        assert positioned;
+        return hasFreqs ? totalTermFreqs[termIdx] : docFreqs[termIdx];
+    }
+
+    @Override
+    public PostingsEnum postings(PostingsEnum reuse, int flags) throws IOException {
+        assert positioned;
+        decodeMetaData();
+        return fr.parent.postingsReader.postings(fr.fieldInfo, state, reuse, flags);
+    }
+
+    // decodes the postings metadata of the current term into state
+    private void decodeMetaData() throws IOException {
+        if (metaIdx > termIdx) {
+            // metadata is delta-coded from the first term of the block
+            metaReader.setPosition(0);
+            metaIdx = -1;
+        }
+        while (metaIdx < termIdx) {
+            metaIdx++;
+            state.docFreq = docFreqs[metaIdx];
+            state.totalTermFreq = totalTermFreqs[metaIdx];
+            fr.parent.postingsReader.decodeTerm(metaReader, fr.fieldInfo, state, metaIdx == 0);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SegmentTermsEnum(field=" + fr.fieldInfo.name + " term=" + (positioned ? term.get().toString() : "unpositioned") + ")";
+    }
+}
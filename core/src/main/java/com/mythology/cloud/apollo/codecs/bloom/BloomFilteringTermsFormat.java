@@ -0,0 +1,93 @@
+package com.mythology.cloud.apollo.codecs.bloom;
+
+import com.mythology.cloud.apollo.codecs.FieldsConsumer;
+import com.mythology.cloud.apollo.codecs.FieldsProducer;
+import com.mythology.cloud.apollo.index.FieldInfos;
+import com.mythology.cloud.apollo.index.TermsEnum;
+import com.mythology.cloud.apollo.store.Directory;
+
+import java.io.IOException;
+import java.util.Collection;
+
+/**
+ * <p>
+ * A terms format that wraps another terms dictionary and, for selected
+ * fields, records every term of a segment in a Bloom filter (a
+ * {@link FuzzySet}) persisted next to the terms.
+ * </p>
+ * <p>
+ * Exact lookups ({@link TermsEnum#seekExact(com.mythology.cloud.apollo.util.BytesRef)})
+ * on a filtered field first ask the filter, and only reach the wrapped terms
+ * dictionary when the filter answers "maybe". This is useful for
+ * primary-key fields, where a key exists in at most one segment: looking it
+ * up in every segment then costs one hash computation for all the segments
+ * that do not contain it, instead of a terms dictionary lookup.
+ * </p>
+ * <p>
+ * Files: <tt>.blm</tt>, the filters of the filtered fields of a segment,
+ * fully loaded on heap when the segment is opened. Filters are sized for the
+ * actual number of terms of the field so that the probability of false
+ * positives is close to the requested one.
+ * </p>
+ * <p>
+ * 布隆过滤词典格式：为指定字段(如主键)的每个段持久化一个布隆过滤器，精确查找时先查过滤器，
+ * 确定不存在的段直接跳过，主键查找/更新的代价随命中数而非段数增长。
+ * </p>
+ *
+ * @lucene.experimental
+ */
+public final class BloomFilteringTermsFormat {
+
+    /**
+     * Extension of Bloom Filters file
+     */
+    public static final String BLOOM_EXTENSION = "blm";
+
+    /**
+     * Suggested default probability of false positives.
+     */
+    public static final double DEFAULT_FALSE_POSITIVE_PROBABILITY = 0.01;
+
+    static final String BLOOM_CODEC_NAME = "BloomFilteringTerms";
+
+    static final int VERSION_START = 0;
+    static final int VERSION_CURRENT = VERSION_START;
+
+    private BloomFilteringTermsFormat() {
+    }
+
+    /**
+     * Returns a {@link FieldsConsumer} that builds a filter for each of the
+     * given {@code fields} and then writes all fields with {@code delegate},
+     * which is closed together with the returned consumer.
+     *
+     * @param falsePositiveProbability the targeted probability that the filter answers
+     *                                 "maybe" for a term that is not in the segment
+     */
+    public static FieldsConsumer fieldsConsumer(Directory directory, String segment, FieldInfos fieldInfos, FieldsConsumer delegate,
+                                                Collection<String> fields, double falsePositiveProbability) throws IOException {
+        return new BloomFilteringTermsWriter(directory, segment, fieldInfos, delegate, fields, falsePositiveProbability);
+    }
+
+    /**
+     * Same as {@link #fieldsConsumer(Directory, String, FieldInfos, FieldsConsumer, Collection, double)}
+     * with {@link #DEFAULT_FALSE_POSITIVE_PROBABILITY}.
+     */
+    public static FieldsConsumer fieldsConsumer(Directory directory, String segment, FieldInfos fieldInfos, FieldsConsumer delegate,
+                                                Collection<String> fields) throws IOException {
+        return fieldsConsumer(directory, segment, fieldInfos, delegate, fields, DEFAULT_FALSE_POSITIVE_PROBABILITY);
+    }
+
+    /**
+     * Returns a {@link FieldsProducer} that reads terms with {@code delegate},
+     * which is closed together with the returned producer, and skips exact
+     * lookups of terms that the filter of their field rules out.
+     */
+    public static FieldsProducer fieldsProducer(Directory directory, String segment, FieldInfos fieldInfos, FieldsProducer delegate) throws IOException {
+        return new BloomFilteringTermsReader(directory, segment, fieldInfos, delegate);
+    }
+
+    static String bloomFileName(String segment) {
+        return segment + "." + BLOOM_EXTENSION;
+    }
+}
@@ -0,0 +1,250 @@
+package com.mythology.cloud.apollo.codecs.bloom;
+
+import com.mythology.cloud.apollo.codecs.CodecUtil;
+import com.mythology.cloud.apollo.codecs.FieldsProducer;
+import com.mythology.cloud.apollo.index.CorruptIndexException;
+import com.mythology.cloud.apollo.index.FieldInfo;
+import com.mythology.cloud.apollo.index.FieldInfos;
+import com.mythology.cloud.apollo.index.PostingsEnum;
+import com.mythology.cloud.apollo.index.Terms;
+import com.mythology.cloud.apollo.index.TermsEnum;
+import com.mythology.cloud.apollo.store.Directory;
+import com.mythology.cloud.apollo.store.IndexInput;
+import com.mythology.cloud.apollo.util.Accountable;
+import com.mythology.cloud.apollo.util.Accountables;
+import com.mythology.cloud.apollo.util.BytesRef;
+import com.mythology.cloud.apollo.util.IOUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads the Bloom filters of {@link BloomFilteringTermsFormat} and wraps the
+ * {@link Terms} of the filtered fields of the delegate producer.
+ * <p>
+ * 布隆过滤器读取器：加载各字段的过滤器，并包装被过滤字段的词项，使精确查找先经过过滤器。
+ * </p>
+ *
+ * @lucene.experimental
+ */
+final class BloomFilteringTermsReader extends FieldsProducer {
+
+    private final FieldsProducer delegate;
+    private final Map<String, FuzzySet> bloomsByFieldName = new HashMap<>();
+
+    BloomFilteringTermsReader(Directory directory, String segment, FieldInfos fieldInfos, FieldsProducer delegate) throws IOException {
+        this.delegate = delegate;
+        boolean success = false;
+        try (IndexInput bloomIn = directory.openInput(BloomFilteringTermsFormat.bloomFileName(segment))) {
+            CodecUtil.checkHeader(bloomIn, BloomFilteringTermsFormat.BLOOM_CODEC_NAME,
+                    BloomFilteringTermsFormat.VERSION_START, BloomFilteringTermsFormat.VERSION_CURRENT);
+            // Load the filters of all filtered fields
+            final int numBlooms = bloomIn.readVInt();
+            for (int i = 0; i < numBlooms; i++) {
+                final int fieldNum = bloomIn.readVInt();
+                final FieldInfo fieldInfo = fieldInfos.fieldInfo(fieldNum);
+                if (fieldInfo == null) {
+                    throw new CorruptIndexException("invalid field number: " + fieldNum, bloomIn);
+                }
+                bloomsByFieldName.put(fieldInfo.name, FuzzySet.deserialize(bloomIn));
+            }
+            CodecUtil.checkFooter(bloomIn);
+            success = true;
+        } finally {
+            if (!success) {
+                IOUtils.closeWhileHandlingException(delegate);
+            }
+        }
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return delegate.iterator();
+    }
+
+    @Override
+    public Terms terms(String field) throws IOException {
+        final FuzzySet filter = bloomsByFieldName.get(field);
+        if (filter == null) {
+            return delegate.terms(field);
+        }
+        final Terms result = delegate.terms(field);
+        if (result == null) {
+            return null;
+        }
+        return new BloomFilteredTerms(result, filter);
+    }
+
+    @Override
+    public int size() {
+        return delegate.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        long sizeInBytes = delegate.ramBytesUsed();
+        for (FuzzySet filter : bloomsByFieldName.values()) {
+            sizeInBytes += filter.ramBytesUsed();
+        }
+        return sizeInBytes;
+    }
+
+    @Override
+    public Collection<Accountable> getChildResources() {
+        List<Accountable> resources = new ArrayList<>();
+        resources.addAll(Accountables.namedAccountables("field", bloomsByFieldName));
+        resources.add(Accountables.namedAccountable("delegate", delegate));
+        return Collections.unmodifiableList(resources);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "(fields=" + bloomsByFieldName.size() + ",delegate=" + delegate + ")";
+    }
+
+    static final class BloomFilteredTerms extends Terms {
+        private final Terms delegateTerms;
+        private final FuzzySet filter;
+
+        BloomFilteredTerms(Terms terms, FuzzySet filter) {
+            this.delegateTerms = terms;
+            this.filter = filter;
+        }
+
+        @Override
+        public TermsEnum iterator() throws IOException {
+            return new BloomFilteredTermsEnum(delegateTerms, filter);
+        }
+
+        @Override
+        public long size() throws IOException {
+            return delegateTerms.size();
+        }
+
+        @Override
+        public long getSumTotalTermFreq() throws IOException {
+            return delegateTerms.getSumTotalTermFreq();
+        }
+
+        @Override
+        public long getSumDocFreq() throws IOException {
+            return delegateTerms.getSumDocFreq();
+        }
+
+        @Override
+        public int getDocCount() throws IOException {
+            return delegateTerms.getDocCount();
+        }
+
+        @Override
+        public boolean hasFreqs() {
+            return delegateTerms.hasFreqs();
+        }
+
+        @Override
+        public boolean hasOffsets() {
+            return delegateTerms.hasOffsets();
+        }
+
+        @Override
+        public boolean hasPositions() {
+            return delegateTerms.hasPositions();
+        }
+
+        @Override
+        public boolean hasPayloads() {
+            return delegateTerms.hasPayloads();
+        }
+    }
+
+    /**
+     * Terms enum that only creates the enum of the wrapped terms dictionary
+     * when a lookup gets past the filter, so that ruling out a term costs no
+     * more than hashing it.
+     */
+    static final class BloomFilteredTermsEnum extends TermsEnum {
+        private final Terms delegateTerms;
+        private final FuzzySet filter;
+        private TermsEnum delegateTermsEnum;
+
+        BloomFilteredTermsEnum(Terms delegateTerms, FuzzySet filter) {
+            this.delegateTerms = delegateTerms;
+            this.filter = filter;
+        }
+
+        private TermsEnum delegate() throws IOException {
+            if (delegateTermsEnum == null) {
+                /* pull the iterator only if we really need it -
+                 * this can be a relativly heavy operation depending on the
+                 * delegate postings format and they underlying directory
+                 * (clone IndexInput) */
+                delegateTermsEnum = delegateTerms.iterator();
+            }
+            return delegateTermsEnum;
+        }
+
+        @Override
+        public final BytesRef next() throws IOException {
+            return delegate().next();
+        }
+
+        @Override
+        public final boolean seekExact(BytesRef text) throws IOException {
+            // The magical fail-fast speed up that is the entire point of all of
+            // this code - save a disk seek if there is a match on an in-memory
+            // structure
+            // that may occasionally give a false positive but guaranteed no false
+            // negatives
+            if (filter.contains(text) == FuzzySet.ContainsResult.NO) {
+                return false;
+            }
+            return delegate().seekExact(text);
+        }
+
+        @Override
+        public final SeekStatus seekCeil(BytesRef text) throws IOException {
+            return delegate().seekCeil(text);
+        }
+
+        @Override
+        public final void seekExact(long ord) throws IOException {
+            delegate().seekExact(ord);
+        }
+
+        @Override
+        public final BytesRef term() throws IOException {
+            return delegate().term();
+        }
+
+        @Override
+        public final long ord() throws IOException {
+            return delegate().ord();
+        }
+
+        @Override
+        public final int docFreq() throws IOException {
+            return delegate().docFreq();
+        }
+
+        @Override
+        public final long totalTermFreq() throws IOException {
+            return delegate().totalTermFreq();
+        }
+
+        @Override
+        public PostingsEnum postings(PostingsEnum reuse, int flags) throws IOException {
+            return delegate().postings(reuse, flags);
+        }
+    }
+}
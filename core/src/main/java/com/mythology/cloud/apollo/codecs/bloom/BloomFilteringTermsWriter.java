@@ -0,0 +1,146 @@
+package com.mythology.cloud.apollo.codecs.bloom;
+
+import com.mythology.cloud.apollo.codecs.CodecUtil;
+import com.mythology.cloud.apollo.codecs.FieldsConsumer;
+import com.mythology.cloud.apollo.codecs.NormsProducer;
+import com.mythology.cloud.apollo.index.FieldInfo;
+import com.mythology.cloud.apollo.index.FieldInfos;
+import com.mythology.cloud.apollo.index.Fields;
+import com.mythology.cloud.apollo.index.PostingsEnum;
+import com.mythology.cloud.apollo.index.Terms;
+import com.mythology.cloud.apollo.index.TermsEnum;
+import com.mythology.cloud.apollo.store.Directory;
+import com.mythology.cloud.apollo.store.IndexOutput;
+import com.mythology.cloud.apollo.util.ArrayUtil;
+import com.mythology.cloud.apollo.util.BytesRef;
+import com.mythology.cloud.apollo.util.IOUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Writes the Bloom filters of {@link BloomFilteringTermsFormat}, then
+ * delegates the terms and postings to the wrapped {@link FieldsConsumer}.
+ * <p>
+ * The terms of a filtered field are hashed in a first pass, so that the
+ * filter can be sized for the exact number of terms that have postings.
+ * <p>
+ * 布隆过滤器写入器：先遍历被过滤字段的词项计算哈希并按实际词项数确定过滤器大小，再交给被包装的词典写入器。
+ * </p>
+ *
+ * @lucene.experimental
+ */
+final class BloomFilteringTermsWriter extends FieldsConsumer {
+
+    private final FieldsConsumer delegate;
+    private final FieldInfos fieldInfos;
+    private final Set<String> fields;
+    private final double falsePositiveProbability;
+    private final IndexOutput bloomOut;
+
+    private final List<FieldInfo> filteredFields = new ArrayList<>();
+    private final List<FuzzySet> filters = new ArrayList<>();
+
+    private long[] hashes = new long[64];
+    private boolean closed;
+
+    BloomFilteringTermsWriter(Directory directory, String segment, FieldInfos fieldInfos, FieldsConsumer delegate,
+                              Collection<String> fields, double falsePositiveProbability) throws IOException {
+        if (falsePositiveProbability <= 0 || falsePositiveProbability >= 1) {
+            throw new IllegalArgumentException("falsePositiveProbability must be in ]0, 1[, got " + falsePositiveProbability);
+        }
+        this.delegate = delegate;
+        this.fieldInfos = fieldInfos;
+        this.fields = new HashSet<>(fields);
+        this.falsePositiveProbability = falsePositiveProbability;
+        boolean success = false;
+        IndexOutput bloomOut = null;
+        try {
+            bloomOut = directory.createOutput(BloomFilteringTermsFormat.bloomFileName(segment));
+            CodecUtil.writeHeader(bloomOut, BloomFilteringTermsFormat.BLOOM_CODEC_NAME, BloomFilteringTermsFormat.VERSION_CURRENT);
+            success = true;
+        } finally {
+            if (!success) {
+                IOUtils.closeWhileHandlingException(bloomOut);
+            }
+        }
+        this.bloomOut = bloomOut;
+    }
+
+    @Override
+    public void write(Fields fields, NormsProducer norms) throws IOException {
+        for (String field : fields) {
+            if (this.fields.contains(field) == false) {
+                continue;
+            }
+            final Terms terms = fields.terms(field);
+            if (terms == null) {
+                continue;
+            }
+            final FieldInfo fieldInfo = fieldInfos.fieldInfo(field);
+            if (fieldInfo == null) {
+                throw new IllegalArgumentException("field \"" + field + "\" is not in the FieldInfos of this segment");
+            }
+
+            final TermsEnum termsEnum = terms.iterator();
+            PostingsEnum postingsEnum = null;
+            int numHashes = 0;
+            while (true) {
+                final BytesRef term = termsEnum.next();
+                if (term == null) {
+                    break;
+                }
+                // terms without postings are not written to the terms dictionary
+                postingsEnum = termsEnum.postings(postingsEnum, PostingsEnum.NONE);
+                if (postingsEnum.nextDoc() == PostingsEnum.NO_MORE_DOCS) {
+                    continue;
+                }
+                if (numHashes == hashes.length) {
+                    hashes = ArrayUtil.grow(hashes, numHashes + 1);
+                }
+                hashes[numHashes++] = FuzzySet.hash(term);
+            }
+            if (numHashes == 0) {
+                continue;
+            }
+
+            final FuzzySet filter = FuzzySet.create(numHashes, falsePositiveProbability);
+            for (int i = 0; i < numHashes; i++) {
+                filter.addHash(hashes[i]);
+            }
+            filteredFields.add(fieldInfo);
+            filters.add(filter);
+        }
+
+        delegate.write(fields, norms);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        boolean success = false;
+        try {
+            bloomOut.writeVInt(filters.size());
+            for (int i = 0; i < filters.size(); i++) {
+                bloomOut.writeVInt(filteredFields.get(i).number);
+                filters.get(i).serialize(bloomOut);
+            }
+            CodecUtil.writeFooter(bloomOut);
+            success = true;
+        } finally {
+            if (success) {
+                IOUtils.close(bloomOut, delegate);
+            } else {
+                IOUtils.closeWhileHandlingException(bloomOut, delegate);
+            }
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.mythology.cloud.apollo.codecs.bloom;
+
+import com.mythology.cloud.apollo.index.CorruptIndexException;
+import com.mythology.cloud.apollo.store.DataInput;
+import com.mythology.cloud.apollo.store.DataOutput;
+import com.mythology.cloud.apollo.util.Accountable;
+import com.mythology.cloud.apollo.util.BytesRef;
+import com.mythology.cloud.apollo.util.RamUsageEstimator;
+import com.mythology.cloud.apollo.util.StringHelper;
+
+import java.io.IOException;
+
+/**
+ * <p>
+ * A class used to represent a set of many, potentially large, values (e.g. many
+ * long strings such as URLs), using a significantly smaller amount of memory.
+ * </p>
+ * <p>
+ * The set is "lossy" in that it cannot definitively state that is does contain
+ * a value but it <em>can</em> definitively say if a value is <em>not</em> in
+ * the set. It can therefore be used as a Bloom Filter.
+ * </p>
+ * <p>
+ * Values are hashed twice with {@link StringHelper#murmurhash3_x86_32(BytesRef, int)}
+ * (with two different seeds), and the {@code k} bits of a value are derived
+ * from these two hashes with double hashing. The number of bits and of hash
+ * functions are chosen from the number of values and the desired false
+ * positive probability.
+ * </p>
+ * <p>
+ * 模糊集合(布隆过滤器)：能确定一个值"不在"集合中，但只能以一定误判率说明"可能在"；用双重哈希由两个murmur3哈希派生k个位。
+ * </p>
+ *
+ * @lucene.experimental
+ */
+public final class FuzzySet implements Accountable {
+
+    private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(FuzzySet.class);
+
+    /**
+     * Result from {@link FuzzySet#contains(BytesRef)}:
+     * can never return definitively YES (always MAYBE),
+     * but can sometimes definitely return NO.
+     */
+    public enum ContainsResult {
+        MAYBE, NO
+    }
+
+    // fixed seeds: the hashes are persisted, they must not depend on the JVM
+    private static final int SEED1 = 0x5bd1e995;
+    private static final int SEED2 = 0x1b873593;
+
+    /**
+     * Largest number of bits of a set.
+     */
+    public static final int MAX_NUM_BITS = 1 << 30;
+
+    private static final int MAX_NUM_HASHES = 16;
+
+    private final long[] bits;
+    private final int numHashes;
+    // numBits - 1, numBits is a power of 2
+    private final int bitMask;
+
+    private FuzzySet(long[] bits, int numHashes) {
+        this.bits = bits;
+        this.numHashes = numHashes;
+        this.bitMask = bits.length * Long.SIZE - 1;
+    }
+
+    /**
+     * Creates an empty set sized to hold {@code expectedValues} values with a
+     * probability of false positives of at most {@code falsePositiveProbability},
+     * or as close to it as {@link #MAX_NUM_BITS} allows.
+     */
+    public static FuzzySet create(long expectedValues, double falsePositiveProbability) {
+        if (falsePositiveProbability <= 0 || falsePositiveProbability >= 1) {
+            throw new IllegalArgumentException("falsePositiveProbability must be in ]0, 1[, got " + falsePositiveProbability);
+        }
+        expectedValues = Math.max(1, expectedValues);
+        // optimal number of bits: -n * ln(p) / ln(2)^2
+        final double optimalBits = -expectedValues * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2));
+        // round up to a power of 2 so that bits are addressed with a mask
+        int numBits = Long.SIZE;
+        while (numBits < optimalBits && numBits < MAX_NUM_BITS) {
+            numBits <<= 1;
+        }
+        // optimal number of hashes for the actual number of bits: m / n * ln(2)
+        final int numHashes = (int) Math.max(1, Math.min(MAX_NUM_HASHES, Math.round((double) numBits / expectedValues * Math.log(2))));
+        return new FuzzySet(new long[numBits / Long.SIZE], numHashes);
+    }
+
+    /**
+     * Computes the two 32-bit hashes of a value, packed in a long.
+     */
+    static long hash(BytesRef value) {
+        final int h1 = StringHelper.murmurhash3_x86_32(value, SEED1);
+        final int h2 = StringHelper.murmurhash3_x86_32(value, SEED2);
+        return ((long) h1 << 32) | (h2 & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Records a value in the set. The referenced bytes are hashed and not retained.
+     */
+    public void addValue(BytesRef value) {
+        addHash(hash(value));
+    }
+
+    /**
+     * Records a value, given its {@link #hash}.
+     */
+    void addHash(long hash) {
+        final int h1 = (int) (hash >>> 32);
+        // odd increment: the probes of a value never collapse onto a single bit
+        final int h2 = (int) hash | 1;
+        for (int i = 0; i < numHashes; i++) {
+            final int bit = (h1 + i * h2) & bitMask;
+            bits[bit >>> 6] |= 1L << bit;
+        }
+    }
+
+    /**
+     * The main method required for a Bloom filter which, given a value determines set membership.
+     * Unlike a conventional set, the fuzzy set returns NO or MAYBE rather than true or false.
+     *
+     * @return NO or MAYBE
+     */
+    public ContainsResult contains(BytesRef value) {
+        final long hash = hash(value);
+        final int h1 = (int) (hash >>> 32);
+        // odd increment: the probes of a value never collapse onto a single bit
+        final int h2 = (int) hash | 1;
+        for (int i = 0; i < numHashes; i++) {
+            final int bit = (h1 + i * h2) & bitMask;
+            if ((bits[bit >>> 6] & (1L << bit)) == 0) {
+                return ContainsResult.NO;
+            }
+        }
+        return ContainsResult.MAYBE;
+    }
+
+    /**
+     * Returns the number of bits of this set.
+     */
+    public int getNumBits() {
+        return bitMask + 1;
+    }
+
+    /**
+     * Returns the number of hash functions of this set.
+     */
+    public int getNumHashes() {
+        return numHashes;
+    }
+
+    /**
+     * Returns the ratio of bits that are set. The probability of false
+     * positives is {@code saturation ^ numHashes}.
+     */
+    public float getSaturation() {
+        long numBitsSet = 0;
+        for (long word : bits) {
+            numBitsSet += Long.bitCount(word);
+        }
+        return (float) numBitsSet / getNumBits();
+    }
+
+    /**
+     * Serializes the data set to file using the following format:
+     * <ul>
+     * <li>FuzzySet --&gt;NumHashes,NumWords,Words<sup>NumWords</sup></li>
+     * <li>NumHashes --&gt; {@link DataOutput#writeVInt VInt}. The number of hash functions.</li>
+     * <li>NumWords --&gt; {@link DataOutput#writeVInt VInt}. The number of longs, a power of 2.</li>
+     * <li>Words --&gt; {@link DataOutput#writeLong Long}. The bits of the set.</li>
+     * </ul>
+     *
+     * @param out Data output stream
+     * @throws IOException If there is a low-level I/O error
+     */
+    public void serialize(DataOutput out) throws IOException {
+        out.writeVInt(numHashes);
+        out.writeVInt(bits.length);
+        for (long word : bits) {
+            out.writeLong(word);
+        }
+    }
+
+    /**
+     * Reads a set previously written with {@link #serialize}.
+     */
+    public static FuzzySet deserialize(DataInput in) throws IOException {
+        final int numHashes = in.readVInt();
+        final int numWords = in.readVInt();
+        if (numHashes < 1 || numHashes > MAX_NUM_HASHES || Integer.bitCount(numWords) != 1 || numWords > MAX_NUM_BITS / Long.SIZE) {
+            throw new CorruptIndexException("invalid fuzzy set: numHashes=" + numHashes + " numWords=" + numWords, in);
+        }
+        final long[] bits = new long[numWords];
+        for (int i = 0; i < numWords; i++) {
+            bits[i] = in.readLong();
+        }
+        return new FuzzySet(bits, numHashes);
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        return BASE_RAM_BYTES_USED + RamUsageEstimator.sizeOf(bits);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "(bits=" + getNumBits() + ",hashes=" + numHashes + ")";
+    }
+}
@@ -0,0 +1,544 @@
+package com.mythology.cloud.apollo.codecs.columnar;
+
+import com.mythology.cloud.apollo.codecs.CodecUtil;
+import com.mythology.cloud.apollo.codecs.DocValuesConsumer;
+import com.mythology.cloud.apollo.codecs.DocValuesProducer;
+import com.mythology.cloud.apollo.index.BinaryDocValues;
+import com.mythology.cloud.apollo.index.DocValues;
+import com.mythology.cloud.apollo.index.EmptyDocValuesProducer;
+import com.mythology.cloud.apollo.index.FieldInfo;
+import com.mythology.cloud.apollo.index.SortedDocValues;
+import com.mythology.cloud.apollo.index.SortedNumericDocValues;
+import com.mythology.cloud.apollo.index.SortedSetDocValues;
+import com.mythology.cloud.apollo.search.DocIdSetIterator;
+import com.mythology.cloud.apollo.store.Directory;
+import com.mythology.cloud.apollo.store.IndexOutput;
+import com.mythology.cloud.apollo.util.BytesRef;
+import com.mythology.cloud.apollo.util.BytesRefBuilder;
+import com.mythology.cloud.apollo.util.FutureArrays;
+import com.mythology.cloud.apollo.util.IOUtils;
+import com.mythology.cloud.apollo.util.MathUtil;
+import com.mythology.cloud.apollo.util.packed.DirectMonotonicWriter;
+import com.mythology.cloud.apollo.util.packed.DirectWriter;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static com.mythology.cloud.apollo.codecs.columnar.ColumnarDocValuesFormat.BINARY;
+import static com.mythology.cloud.apollo.codecs.columnar.ColumnarDocValuesFormat.DIRECT_MONOTONIC_BLOCK_SHIFT;
+import static com.mythology.cloud.apollo.codecs.columnar.ColumnarDocValuesFormat.NUMERIC;
+import static com.mythology.cloud.apollo.codecs.columnar.ColumnarDocValuesFormat.SORTED;
+import static com.mythology.cloud.apollo.codecs.columnar.ColumnarDocValuesFormat.SORTED_NUMERIC;
+import static com.mythology.cloud.apollo.codecs.columnar.ColumnarDocValuesFormat.SORTED_SET;
+import static com.mythology.cloud.apollo.codecs.columnar.ColumnarDocValuesFormat.TERMS_DICT_BLOCK_MASK;
+import static com.mythology.cloud.apollo.codecs.columnar.ColumnarDocValuesFormat.TERMS_DICT_BLOCK_SHIFT;
+
+/**
+ * Writer for {@link ColumnarDocValuesFormat}.
+ *
+ * @lucene.experimental
+ */
+public final class ColumnarDocValuesConsumer extends DocValuesConsumer {
+
+    private IndexOutput data, meta;
+    private final int maxDoc;
+
+    /**
+     * expert: Creates a new writer
+     */
+    public ColumnarDocValuesConsumer(Directory directory, String segment, int maxDoc) throws IOException {
+        boolean success = false;
+        try {
+            data = directory.createOutput(ColumnarDocValuesFormat.dataFileName(segment));
+            CodecUtil.writeHeader(data, ColumnarDocValuesFormat.DATA_CODEC, ColumnarDocValuesFormat.VERSION_CURRENT);
+            meta = directory.createOutput(ColumnarDocValuesFormat.metaFileName(segment));
+            CodecUtil.writeHeader(meta, ColumnarDocValuesFormat.META_CODEC, ColumnarDocValuesFormat.VERSION_CURRENT);
+            this.maxDoc = maxDoc;
+            success = true;
+        } finally {
+            if (!success) {
+                IOUtils.closeWhileHandlingException(this);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        boolean success = false;
+        try {
+            if (meta != null) {
+                meta.writeInt(-1); // write EOF marker
+                CodecUtil.writeFooter(meta); // write checksum
+            }
+            if (data != null) {
+                CodecUtil.writeFooter(data); // write checksum
+            }
+            success = true;
+        } finally {
+            if (success) {
+                IOUtils.close(data, meta);
+            } else {
+                IOUtils.closeWhileHandlingException(data, meta);
+            }
+            meta = data = null;
+        }
+    }
+
+    @Override
+    public void addNumericField(FieldInfo field, DocValuesProducer valuesProducer) throws IOException {
+        meta.writeInt(field.number);
+        meta.writeByte(NUMERIC);
+
+        writeValues(field, new EmptyDocValuesProducer() {
+            @Override
+            public SortedNumericDocValues getSortedNumeric(FieldInfo field) throws IOException {
+                return DocValues.singleton(valuesProducer.getNumeric(field));
+            }
+        });
+    }
+
+    /**
+     * Writes the docs that have a value, either as a marker if all or none of
+     * the docs have a value, or as an {@link IndexedDISI} bitset.
+     */
+    private void writeDocsWithField(int numDocsWithValue, DocIdSetIterator docs) throws IOException {
+        if (numDocsWithValue == 0) {
+            meta.writeLong(-2);
+            meta.writeLong(0L);
+        } else if (numDocsWithValue == maxDoc) {
+            meta.writeLong(-1);
+            meta.writeLong(0L);
+        } else {
+            long offset = data.getFilePointer();
+            meta.writeLong(offset);
+            int count = IndexedDISI.writeBitSet(docs, data, maxDoc);
+            assert count == numDocsWithValue;
+            meta.writeLong(data.getFilePointer() - offset);
+        }
+    }
+
+    /**
+     * Encode all values of a numeric field. Values are first scanned to compute
+     * their minimum, maximum, the greatest common divisor of their deltas and
+     * the number of unique values, and then written with the most compact of
+     * the following encodings:
+     * <ul>
+     * <li>constant: all values are equal, nothing is written but the value,
+     * <li>table: there are at most 256 unique values, the ordinal of every value in
+     * a sorted table is packed, which helps with enum-like fields,
+     * <li>delta + GCD: {@code (value - min) / gcd} is packed, which helps with
+     * fields that have a small range or that are multiples of a common value,
+     * like timestamps rounded to the second.
+     * </ul>
+     *
+     * @return the number of docs that have a value and the total number of values
+     */
+    private long[] writeValues(FieldInfo field, DocValuesProducer valuesProducer) throws IOException {
+        SortedNumericDocValues values = valuesProducer.getSortedNumeric(field);
+        int numDocsWithValue = 0;
+        long numValues = 0;
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        long gcd = 0;
+        long previousValue = 0;
+        Set<Long> uniqueValues = new HashSet<>();
+        for (int doc = values.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = values.nextDoc()) {
+            for (int i = 0, count = values.docValueCount(); i < count; ++i) {
+                long v = values.nextValue();
+
+                if (gcd != 1) {
+                    if (v < Long.MIN_VALUE / 2 || v > Long.MAX_VALUE / 2) {
+                        // in that case v - minValue might overflow and make the GCD computation return
+                        // wrong results. Since these extreme values are unlikely, we just discard
+                        // GCD computation for them
+                        gcd = 1;
+                    } else if (numValues != 0) {
+                        gcd = MathUtil.gcd(gcd, v - previousValue);
+                    }
+                }
+
+                min = Math.min(min, v);
+                max = Math.max(max, v);
+
+                if (uniqueValues != null) {
+                    if (uniqueValues.add(v)) {
+                        if (uniqueValues.size() > 256) {
+                            uniqueValues = null;
+                        }
+                    }
+                }
+
+                previousValue = v;
+                numValues++;
+            }
+            numDocsWithValue++;
+        }
+
+        writeDocsWithField(numDocsWithValue, valuesProducer.getSortedNumeric(field));
+        meta.writeLong(numValues);
+
+        if (min >= max) {
+            // constant or empty
+            min = numValues == 0 ? 0 : min;
+            meta.writeInt(-1); // no table
+            meta.writeByte((byte) 0); // bitsPerValue
+            meta.writeLong(min);
+            meta.writeLong(1L); // gcd
+            meta.writeLong(data.getFilePointer());
+            meta.writeLong(0L);
+            return new long[]{numDocsWithValue, numValues};
+        }
+
+        if (gcd == 0) {
+            gcd = 1;
+        }
+        final int numBitsPerValue;
+        Map<Long, Integer> encode = null;
+        final int gcdBitsPerValue = DirectWriter.unsignedBitsRequired((max - min) / gcd);
+        if (uniqueValues != null
+                && DirectWriter.bitsRequired(uniqueValues.size() - 1) < gcdBitsPerValue) {
+            numBitsPerValue = DirectWriter.bitsRequired(uniqueValues.size() - 1);
+            final Long[] sortedUniqueValues = uniqueValues.toArray(new Long[0]);
+            Arrays.sort(sortedUniqueValues);
+            meta.writeInt(sortedUniqueValues.length);
+            encode = new HashMap<>();
+            for (int i = 0; i < sortedUniqueValues.length; ++i) {
+                meta.writeLong(sortedUniqueValues[i]);
+                encode.put(sortedUniqueValues[i], i);
+            }
+            min = 0;
+            gcd = 1;
+        } else {
+            numBitsPerValue = gcdBitsPerValue;
+            meta.writeInt(-1); // no table
+        }
+        meta.writeByte((byte) numBitsPerValue);
+        meta.writeLong(min);
+        meta.writeLong(gcd);
+
+        final long startOffset = data.getFilePointer();
+        meta.writeLong(startOffset);
+        final DirectWriter writer = DirectWriter.getInstance(data, numValues, numBitsPerValue);
+        values = valuesProducer.getSortedNumeric(field);
+        for (int doc = values.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = values.nextDoc()) {
+            for (int i = 0, count = values.docValueCount(); i < count; ++i) {
+                long v = values.nextValue();
+                if (encode == null) {
+                    writer.add((v - min) / gcd);
+                } else {
+                    writer.add(encode.get(v));
+                }
+            }
+        }
+        writer.finish();
+        meta.writeLong(data.getFilePointer() - startOffset);
+
+        return new long[]{numDocsWithValue, numValues};
+    }
+
+    @Override
+    public void addBinaryField(FieldInfo field, DocValuesProducer valuesProducer) throws IOException {
+        meta.writeInt(field.number);
+        meta.writeByte(BINARY);
+
+        BinaryDocValues values = valuesProducer.getBinary(field);
+        long start = data.getFilePointer();
+        int numDocsWithField = 0;
+        int minLength = Integer.MAX_VALUE;
+        int maxLength = 0;
+        for (int doc = values.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = values.nextDoc()) {
+            numDocsWithField++;
+            BytesRef v = values.binaryValue();
+            int length = v.length;
+            data.writeBytes(v.bytes, v.offset, v.length);
+            minLength = Math.min(length, minLength);
+            maxLength = Math.max(length, maxLength);
+        }
+        assert numDocsWithField <= maxDoc;
+        final long dataLength = data.getFilePointer() - start;
+
+        writeDocsWithField(numDocsWithField, valuesProducer.getBinary(field));
+        meta.writeInt(numDocsWithField);
+        meta.writeLong(start);
+        meta.writeLong(dataLength);
+        meta.writeInt(minLength);
+        meta.writeInt(maxLength);
+        if (maxLength > minLength) {
+            start = data.getFilePointer();
+            meta.writeLong(start);
+            meta.writeVInt(DIRECT_MONOTONIC_BLOCK_SHIFT);
+
+            final DirectMonotonicWriter writer = DirectMonotonicWriter.getInstance(meta, data, numDocsWithField + 1, DIRECT_MONOTONIC_BLOCK_SHIFT);
+            long addr = 0;
+            writer.add(addr);
+            values = valuesProducer.getBinary(field);
+            for (int doc = values.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = values.nextDoc()) {
+                addr += values.binaryValue().length;
+                writer.add(addr);
+            }
+            writer.finish();
+            meta.writeLong(data.getFilePointer() - start);
+        }
+    }
+
+    @Override
+    public void addSortedField(FieldInfo field, DocValuesProducer valuesProducer) throws IOException {
+        meta.writeInt(field.number);
+        meta.writeByte(SORTED);
+        doAddSortedField(field, valuesProducer);
+    }
+
+    private void doAddSortedField(FieldInfo field, DocValuesProducer valuesProducer) throws IOException {
+        SortedDocValues values = valuesProducer.getSorted(field);
+        int numDocsWithField = 0;
+        for (int doc = values.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = values.nextDoc()) {
+            numDocsWithField++;
+        }
+
+        writeDocsWithField(numDocsWithField, valuesProducer.getSorted(field));
+        meta.writeInt(numDocsWithField);
+
+        final int numberOfBitsPerOrd;
+        if (values.getValueCount() <= 1) {
+            numberOfBitsPerOrd = 0;
+        } else {
+            numberOfBitsPerOrd = DirectWriter.unsignedBitsRequired(values.getValueCount() - 1);
+        }
+        meta.writeByte((byte) numberOfBitsPerOrd);
+        long start = data.getFilePointer();
+        meta.writeLong(start);
+        if (numberOfBitsPerOrd != 0) {
+            DirectWriter writer = DirectWriter.getInstance(data, numDocsWithField, numberOfBitsPerOrd);
+            values = valuesProducer.getSorted(field);
+            for (int doc = values.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = values.nextDoc()) {
+                writer.add(values.ordValue());
+            }
+            writer.finish();
+        }
+        meta.writeLong(data.getFilePointer() - start);
+
+        addTermsDict(DocValues.singleton(valuesProducer.getSorted(field)));
+    }
+
+    /**
+     * Writes the sorted unique terms in blocks of
+     * 2<sup>{@link ColumnarDocValuesFormat#TERMS_DICT_BLOCK_SHIFT}</sup> terms.
+     * The first term of a block is written in full so that any block can be
+     * decoded on its own, and the following ones only record the suffix that
+     * they do not share with the previous term.
+     */
+    private void addTermsDict(SortedSetDocValues values) throws IOException {
+        final long size = values.getValueCount();
+        meta.writeVLong(size);
+
+        final long numBlocks = (size + TERMS_DICT_BLOCK_MASK) >>> TERMS_DICT_BLOCK_SHIFT;
+        long[] blockAddresses = new long[(int) numBlocks];
+        BytesRefBuilder previous = new BytesRefBuilder();
+        long ord = 0;
+        long start = data.getFilePointer();
+        int maxLength = 0;
+        for (long o = 0; o < size; ++o) {
+            final BytesRef term = values.lookupOrd(o);
+            if ((ord & TERMS_DICT_BLOCK_MASK) == 0) {
+                blockAddresses[(int) (ord >>> TERMS_DICT_BLOCK_SHIFT)] = data.getFilePointer() - start;
+                data.writeVInt(term.length);
+                data.writeBytes(term.bytes, term.offset, term.length);
+            } else {
+                final int prefixLength = FutureArrays.mismatch(previous.bytes(), 0, previous.length(),
+                        term.bytes, term.offset, term.offset + term.length);
+                final int suffixLength = term.length - prefixLength;
+                assert suffixLength > 0; // terms are unique
+
+                data.writeByte((byte) (Math.min(prefixLength, 15) | (Math.min(15, suffixLength - 1) << 4)));
+                if (prefixLength >= 15) {
+                    data.writeVInt(prefixLength - 15);
+                }
+                if (suffixLength >= 16) {
+                    data.writeVInt(suffixLength - 16);
+                }
+                data.writeBytes(term.bytes, term.offset + prefixLength, term.length - prefixLength);
+            }
+            maxLength = Math.max(maxLength, term.length);
+            previous.copyBytes(term);
+            ++ord;
+        }
+        meta.writeInt(maxLength);
+        meta.writeLong(start);
+        meta.writeLong(data.getFilePointer() - start);
+
+        start = data.getFilePointer();
+        meta.writeLong(start);
+        meta.writeVInt(DIRECT_MONOTONIC_BLOCK_SHIFT);
+        final DirectMonotonicWriter writer = DirectMonotonicWriter.getInstance(meta, data, numBlocks, DIRECT_MONOTONIC_BLOCK_SHIFT);
+        for (long address : blockAddresses) {
+            writer.add(address);
+        }
+        writer.finish();
+        meta.writeLong(data.getFilePointer() - start);
+    }
+
+    @Override
+    public void addSortedNumericField(FieldInfo field, DocValuesProducer valuesProducer) throws IOException {
+        meta.writeInt(field.number);
+        meta.writeByte(SORTED_NUMERIC);
+
+        long[] stats = writeValues(field, valuesProducer);
+        int numDocsWithField = Math.toIntExact(stats[0]);
+        long numValues = stats[1];
+        assert numValues >= numDocsWithField;
+
+        meta.writeInt(numDocsWithField);
+        if (numValues > numDocsWithField) {
+            long start = data.getFilePointer();
+            meta.writeLong(start);
+            meta.writeVInt(DIRECT_MONOTONIC_BLOCK_SHIFT);
+
+            final DirectMonotonicWriter addressesWriter = DirectMonotonicWriter.getInstance(meta, data, numDocsWithField + 1L, DIRECT_MONOTONIC_BLOCK_SHIFT);
+            long addr = 0;
+            addressesWriter.add(addr);
+            SortedNumericDocValues values = valuesProducer.getSortedNumeric(field);
+            for (int doc = values.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = values.nextDoc()) {
+                addr += values.docValueCount();
+                addressesWriter.add(addr);
+            }
+            addressesWriter.finish();
+            meta.writeLong(data.getFilePointer() - start);
+        }
+    }
+
+    @Override
+    public void addSortedSetField(FieldInfo field, DocValuesProducer valuesProducer) throws IOException {
+        meta.writeInt(field.number);
+        meta.writeByte(SORTED_SET);
+
+        SortedSetDocValues values = valuesProducer.getSortedSet(field);
+        int numDocsWithField = 0;
+        long numOrds = 0;
+        for (int doc = values.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = values.nextDoc()) {
+            numDocsWithField++;
+            for (long ord = values.nextOrd(); ord != SortedSetDocValues.NO_MORE_ORDS; ord = values.nextOrd()) {
+                numOrds++;
+            }
+        }
+
+        if (numDocsWithField == numOrds) {
+            // every doc has at most one value: store as SORTED
+            meta.writeByte((byte) 0); // multiValued (0 = singleValued)
+            doAddSortedField(field, new EmptyDocValuesProducer() {
+                @Override
+                public SortedDocValues getSorted(FieldInfo field) throws IOException {
+                    return new SingleValuedSortedSetView(valuesProducer.getSortedSet(field));
+                }
+            });
+            return;
+        }
+        meta.writeByte((byte) 1); // multiValued (1 = multiValued)
+
+        writeDocsWithField(numDocsWithField, valuesProducer.getSortedSet(field));
+        meta.writeInt(numDocsWithField);
+
+        int numberOfBitsPerOrd = DirectWriter.unsignedBitsRequired(values.getValueCount() - 1);
+        meta.writeByte((byte) numberOfBitsPerOrd);
+        long start = data.getFilePointer();
+        meta.writeLong(start);
+        DirectWriter writer = DirectWriter.getInstance(data, numOrds, numberOfBitsPerOrd);
+        values = valuesProducer.getSortedSet(field);
+        for (int doc = values.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = values.nextDoc()) {
+            for (long ord = values.nextOrd(); ord != SortedSetDocValues.NO_MORE_ORDS; ord = values.nextOrd()) {
+                writer.add(ord);
+            }
+        }
+        writer.finish();
+        meta.writeLong(data.getFilePointer() - start);
+
+        start = data.getFilePointer();
+        meta.writeLong(start);
+        meta.writeVInt(DIRECT_MONOTONIC_BLOCK_SHIFT);
+
+        final DirectMonotonicWriter addressesWriter = DirectMonotonicWriter.getInstance(meta, data, numDocsWithField + 1, DIRECT_MONOTONIC_BLOCK_SHIFT);
+        long addr = 0;
+        addressesWriter.add(addr);
+        values = valuesProducer.getSortedSet(field);
+        for (int doc = values.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = values.nextDoc()) {
+            values.nextOrd();
+            addr++;
+            while (values.nextOrd() != SortedSetDocValues.NO_MORE_ORDS) {
+                addr++;
+            }
+            addressesWriter.add(addr);
+        }
+        addressesWriter.finish();
+        meta.writeLong(data.getFilePointer() - start);
+
+        addTermsDict(valuesProducer.getSortedSet(field));
+    }
+
+    /**
+     * {@link SortedDocValues} view of a {@link SortedSetDocValues} whose
+     * documents all have at most one value.
+     */
+    private static final class SingleValuedSortedSetView extends SortedDocValues {
+        private final SortedSetDocValues in;
+        private int ord;
+
+        SingleValuedSortedSetView(SortedSetDocValues in) {
+            this.in = in;
+        }
+
+        @Override
+        public int docID() {
+            return in.docID();
+        }
+
+        @Override
+        public int nextDoc() throws IOException {
+            int doc = in.nextDoc();
+            if (doc != NO_MORE_DOCS) {
+                ord = Math.toIntExact(in.nextOrd());
+            }
+            return doc;
+        }
+
+        @Override
+        public int advance(int target) throws IOException {
+            int doc = in.advance(target);
+            if (doc != NO_MORE_DOCS) {
+                ord = Math.toIntExact(in.nextOrd());
+            }
+            return doc;
+        }
+
+        @Override
+        public boolean advanceExact(int target) throws IOException {
+            if (in.advanceExact(target)) {
+                ord = Math.toIntExact(in.nextOrd());
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public long cost() {
+            return in.cost();
+        }
+
+        @Override
+        public int ordValue() {
+            return ord;
+        }
+
+        @Override
+        public BytesRef lookupOrd(int ord) throws IOException {
+            return in.lookupOrd(ord);
+        }
+
+        @Override
+        public int getValueCount() {
+            return Math.toIntExact(in.getValueCount());
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.mythology.cloud.apollo.codecs.columnar;
+
+import com.mythology.cloud.apollo.codecs.DocValuesConsumer;
+import com.mythology.cloud.apollo.codecs.DocValuesProducer;
+import com.mythology.cloud.apollo.index.DocValuesType;
+import com.mythology.cloud.apollo.index.FieldInfos;
+import com.mythology.cloud.apollo.store.Directory;
+import com.mythology.cloud.apollo.util.packed.DirectMonotonicWriter;
+import com.mythology.cloud.apollo.util.packed.DirectWriter;
+
+import java.io.IOException;
+
+/**
+ * Columnar doc values format: every field is stored as a column of values
+ * that can be accessed by doc ID without decoding its neighbours, so that
+ * sorting and faceting only pay a few random reads per document.
+ * <p>
+ * Documents that have a value for a field are recorded as one of:
+ * <ul>
+ * <li>nothing, if no document has a value,
+ * <li>nothing, if all documents have a value (the value index is the doc ID),
+ * <li>an {@link IndexedDISI} ranked bitset otherwise, so that values only need
+ * to be stored for documents that have one.
+ * </ul>
+ * Values are encoded depending on the {@link DocValuesType}:
+ * <ul>
+ * <li>{@link DocValuesType#NUMERIC NUMERIC}: values are packed with
+ * {@link DirectWriter}, using constant, table or delta+GCD compression.
+ * <li>{@link DocValuesType#BINARY BINARY}: values are concatenated, and
+ * per-document end addresses are written with {@link DirectMonotonicWriter}
+ * unless all values have the same length.
+ * <li>{@link DocValuesType#SORTED SORTED}: per-document ordinals are packed with
+ * {@link DirectWriter}, and the sorted unique values are written in a
+ * prefix-compressed terms dictionary made of blocks of
+ * 2<sup>{@value #TERMS_DICT_BLOCK_SHIFT}</sup> terms.
+ * <li>{@link DocValuesType#SORTED_NUMERIC SORTED_NUMERIC}: like NUMERIC, plus
+ * per-document start addresses if some documents have several values.
+ * <li>{@link DocValuesType#SORTED_SET SORTED_SET}: like SORTED if every
+ * document has at most one value, otherwise packed ordinals plus per-document
+ * start addresses and the terms dictionary.
+ * </ul>
+ * <p>
+ * Files:
+ * <ol>
+ * <li><tt>.dvd</tt>: DocValues data
+ * <li><tt>.dvm</tt>: DocValues metadata, fully loaded in memory when the segment is opened
+ * </ol>
+ * <p>
+ * 列式DocValues格式：每个字段按列存储，可按文档ID直接随机读取，无需像存储字段那样解压整个文档。
+ * </p>
+ *
+ * @lucene.experimental
+ */
+public final class ColumnarDocValuesFormat {
+
+    static final String DATA_CODEC = "ColumnarDocValuesData";
+    static final String DATA_EXTENSION = "dvd";
+    static final String META_CODEC = "ColumnarDocValuesMetadata";
+    static final String META_EXTENSION = "dvm";
+    static final int VERSION_START = 0;
+    static final int VERSION_CURRENT = VERSION_START;
+
+    // indicates docvalues type
+    static final byte NUMERIC = 0;
+    static final byte BINARY = 1;
+    static final byte SORTED = 2;
+    static final byte SORTED_SET = 3;
+    static final byte SORTED_NUMERIC = 4;
+
+    static final int DIRECT_MONOTONIC_BLOCK_SHIFT = 16;
+
+    static final int TERMS_DICT_BLOCK_SHIFT = 4;
+    static final int TERMS_DICT_BLOCK_SIZE = 1 << TERMS_DICT_BLOCK_SHIFT;
+    static final int TERMS_DICT_BLOCK_MASK = TERMS_DICT_BLOCK_SIZE - 1;
+
+    private ColumnarDocValuesFormat() {
+    }
+
+    /**
+     * Returns a {@link DocValuesConsumer} to write doc values of a segment
+     * that has {@code maxDoc} documents.
+     */
+    public static DocValuesConsumer fieldsConsumer(Directory directory, String segment, int maxDoc) throws IOException {
+        return new ColumnarDocValuesConsumer(directory, segment, maxDoc);
+    }
+
+    /**
+     * Returns a {@link DocValuesProducer} to read doc values of a segment
+     * that has {@code maxDoc} documents.
+     */
+    public static DocValuesProducer fieldsProducer(Directory directory, String segment, FieldInfos fieldInfos, int maxDoc) throws IOException {
+        return new ColumnarDocValuesProducer(directory, segment, fieldInfos, maxDoc);
+    }
+
+    static String dataFileName(String segment) {
+        return segment + "." + DATA_EXTENSION;
+    }
+
+    static String metaFileName(String segment) {
+        return segment + "." + META_EXTENSION;
+    }
+}
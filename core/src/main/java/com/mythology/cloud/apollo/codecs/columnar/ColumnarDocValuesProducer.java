@@ -0,0 +1,1162 @@
+package com.mythology.cloud.apollo.codecs.columnar;
+
+import com.mythology.cloud.apollo.codecs.CodecUtil;
+import com.mythology.cloud.apollo.codecs.DocValuesProducer;
+import com.mythology.cloud.apollo.index.BinaryDocValues;
+import com.mythology.cloud.apollo.index.CorruptIndexException;
+import com.mythology.cloud.apollo.index.DocValues;
+import com.mythology.cloud.apollo.index.FieldInfo;
+import com.mythology.cloud.apollo.index.FieldInfos;
+import com.mythology.cloud.apollo.index.NumericDocValues;
+import com.mythology.cloud.apollo.index.SortedDocValues;
+import com.mythology.cloud.apollo.index.SortedNumericDocValues;
+import com.mythology.cloud.apollo.index.SortedSetDocValues;
+import com.mythology.cloud.apollo.store.Directory;
+import com.mythology.cloud.apollo.store.IndexInput;
+import com.mythology.cloud.apollo.util.Accountable;
+import com.mythology.cloud.apollo.util.Accountables;
+import com.mythology.cloud.apollo.util.BytesRef;
+import com.mythology.cloud.apollo.util.IOUtils;
+import com.mythology.cloud.apollo.util.LongValues;
+import com.mythology.cloud.apollo.util.RamUsageEstimator;
+import com.mythology.cloud.apollo.util.packed.DirectMonotonicReader;
+import com.mythology.cloud.apollo.util.packed.DirectReader;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.mythology.cloud.apollo.codecs.columnar.ColumnarDocValuesFormat.TERMS_DICT_BLOCK_MASK;
+import static com.mythology.cloud.apollo.codecs.columnar.ColumnarDocValuesFormat.TERMS_DICT_BLOCK_SHIFT;
+
+/**
+ * Reader for {@link ColumnarDocValuesFormat}.
+ * <p>
+ * Metadata is loaded in memory when the segment is opened. Values stay on
+ * disk (or in the page cache when the directory is memory-mapped) and are
+ * read with absolute reads on demand: looking up the value of a document
+ * costs one read for dense fields, and a few more for sparse fields to rank
+ * the document in the {@link IndexedDISI} bitset.
+ *
+ * @lucene.experimental
+ */
+public final class ColumnarDocValuesProducer extends DocValuesProducer {
+
+    private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(ColumnarDocValuesProducer.class);
+
+    private final Map<String, NumericEntry> numerics = new HashMap<>();
+    private final Map<String, BinaryEntry> binaries = new HashMap<>();
+    private final Map<String, SortedEntry> sorted = new HashMap<>();
+    private final Map<String, SortedSetEntry> sortedSets = new HashMap<>();
+    private final Map<String, SortedNumericEntry> sortedNumerics = new HashMap<>();
+    private long ramBytesUsed;
+    // per-field heap and disk usage, in the order of the metadata file
+    private final List<Accountable> fieldResources = new ArrayList<>();
+    private final IndexInput data;
+    private final int maxDoc;
+
+    /**
+     * expert: instantiates a new reader
+     */
+    public ColumnarDocValuesProducer(Directory directory, String segment, FieldInfos fieldInfos, int maxDoc) throws IOException {
+        this.maxDoc = maxDoc;
+        ramBytesUsed = BASE_RAM_BYTES_USED;
+
+        // read in the entries from the metadata file.
+        try (IndexInput in = directory.openInput(ColumnarDocValuesFormat.metaFileName(segment))) {
+            CodecUtil.checkHeader(in, ColumnarDocValuesFormat.META_CODEC,
+                    ColumnarDocValuesFormat.VERSION_START, ColumnarDocValuesFormat.VERSION_CURRENT);
+            readFields(in, fieldInfos);
+            if (in.getFilePointer() != in.length() - CodecUtil.footerLength()) {
+                throw new CorruptIndexException("unexpected metadata after the last field at fp=" + in.getFilePointer(), in);
+            }
+            CodecUtil.checkFooter(in);
+        }
+
+        IndexInput data = null;
+        boolean success = false;
+        try {
+            data = directory.openInput(ColumnarDocValuesFormat.dataFileName(segment));
+            CodecUtil.checkFooter(data);
+            data.seek(0);
+            CodecUtil.checkHeader(data, ColumnarDocValuesFormat.DATA_CODEC,
+                    ColumnarDocValuesFormat.VERSION_START, ColumnarDocValuesFormat.VERSION_CURRENT);
+            this.data = data;
+            success = true;
+        } finally {
+            if (!success) {
+                IOUtils.closeWhileHandlingException(data);
+            }
+        }
+    }
+
+    private void readFields(IndexInput meta, FieldInfos infos) throws IOException {
+        for (int fieldNumber = meta.readInt(); fieldNumber != -1; fieldNumber = meta.readInt()) {
+            FieldInfo info = infos.fieldInfo(fieldNumber);
+            if (info == null) {
+                throw new CorruptIndexException("Invalid field number: " + fieldNumber, meta);
+            }
+            byte type = meta.readByte();
+            final long ramBytesUsedBefore = ramBytesUsed;
+            final long diskBytesUsed;
+            if (type == ColumnarDocValuesFormat.NUMERIC) {
+                NumericEntry entry = readNumeric(meta);
+                numerics.put(info.name, entry);
+                diskBytesUsed = entry.diskBytesUsed();
+            } else if (type == ColumnarDocValuesFormat.BINARY) {
+                BinaryEntry entry = readBinary(meta);
+                binaries.put(info.name, entry);
+                diskBytesUsed = entry.diskBytesUsed();
+            } else if (type == ColumnarDocValuesFormat.SORTED) {
+                SortedEntry entry = readSorted(meta);
+                sorted.put(info.name, entry);
+                diskBytesUsed = entry.diskBytesUsed();
+            } else if (type == ColumnarDocValuesFormat.SORTED_SET) {
+                SortedSetEntry entry = readSortedSet(meta);
+                sortedSets.put(info.name, entry);
+                diskBytesUsed = entry.diskBytesUsed();
+            } else if (type == ColumnarDocValuesFormat.SORTED_NUMERIC) {
+                SortedNumericEntry entry = readSortedNumeric(meta);
+                sortedNumerics.put(info.name, entry);
+                diskBytesUsed = entry.diskBytesUsed();
+            } else {
+                throw new CorruptIndexException("invalid type: " + type, meta);
+            }
+            fieldResources.add(Accountables.namedAccountable("field '" + info.name + "' [" + info.getDocValuesType()
+                            + ",disk=" + RamUsageEstimator.humanReadableUnits(diskBytesUsed) + "]",
+                    ramBytesUsed - ramBytesUsedBefore));
+        }
+    }
+
+    private NumericEntry readNumeric(IndexInput meta) throws IOException {
+        NumericEntry entry = new NumericEntry();
+        readNumeric(meta, entry);
+        return entry;
+    }
+
+    private void readNumeric(IndexInput meta, NumericEntry entry) throws IOException {
+        entry.docsWithFieldOffset = meta.readLong();
+        entry.docsWithFieldLength = meta.readLong();
+        entry.numValues = meta.readLong();
+        int tableSize = meta.readInt();
+        if (tableSize > 256) {
+            throw new CorruptIndexException("invalid table size: " + tableSize, meta);
+        }
+        if (tableSize >= 0) {
+            entry.table = new long[tableSize];
+            ramBytesUsed += RamUsageEstimator.sizeOf(entry.table);
+            for (int i = 0; i < tableSize; ++i) {
+                entry.table[i] = meta.readLong();
+            }
+        }
+        entry.bitsPerValue = meta.readByte();
+        entry.minValue = meta.readLong();
+        entry.gcd = meta.readLong();
+        entry.valuesOffset = meta.readLong();
+        entry.valuesLength = meta.readLong();
+    }
+
+    private BinaryEntry readBinary(IndexInput meta) throws IOException {
+        BinaryEntry entry = new BinaryEntry();
+        entry.docsWithFieldOffset = meta.readLong();
+        entry.docsWithFieldLength = meta.readLong();
+        entry.numDocsWithField = meta.readInt();
+        entry.dataOffset = meta.readLong();
+        entry.dataLength = meta.readLong();
+        entry.minLength = meta.readInt();
+        entry.maxLength = meta.readInt();
+        if (entry.minLength < entry.maxLength) {
+            entry.addressesOffset = meta.readLong();
+            final int blockShift = meta.readVInt();
+            entry.addressesMeta = DirectMonotonicReader.loadMeta(meta, entry.numDocsWithField + 1L, blockShift);
+            ramBytesUsed += entry.addressesMeta.ramBytesUsed();
+            entry.addressesLength = meta.readLong();
+        }
+        return entry;
+    }
+
+    private SortedEntry readSorted(IndexInput meta) throws IOException {
+        SortedEntry entry = new SortedEntry();
+        entry.docsWithFieldOffset = meta.readLong();
+        entry.docsWithFieldLength = meta.readLong();
+        entry.numDocsWithField = meta.readInt();
+        entry.bitsPerValue = meta.readByte();
+        entry.ordsOffset = meta.readLong();
+        entry.ordsLength = meta.readLong();
+        readTermDict(meta, entry);
+        return entry;
+    }
+
+    private SortedSetEntry readSortedSet(IndexInput meta) throws IOException {
+        SortedSetEntry entry = new SortedSetEntry();
+        byte multiValued = meta.readByte();
+        switch (multiValued) {
+            case 0: // singlevalued
+                entry.singleValueEntry = readSorted(meta);
+                return entry;
+            case 1: // multivalued
+                break;
+            default:
+                throw new CorruptIndexException("Invalid multiValued flag: " + multiValued, meta);
+        }
+        entry.docsWithFieldOffset = meta.readLong();
+        entry.docsWithFieldLength = meta.readLong();
+        entry.numDocsWithField = meta.readInt();
+        entry.bitsPerValue = meta.readByte();
+        entry.ordsOffset = meta.readLong();
+        entry.ordsLength = meta.readLong();
+        entry.addressesOffset = meta.readLong();
+        final int blockShift = meta.readVInt();
+        entry.addressesMeta = DirectMonotonicReader.loadMeta(meta, entry.numDocsWithField + 1L, blockShift);
+        ramBytesUsed += entry.addressesMeta.ramBytesUsed();
+        entry.addressesLength = meta.readLong();
+        readTermDict(meta, entry);
+        return entry;
+    }
+
+    private void readTermDict(IndexInput meta, TermsDictEntry entry) throws IOException {
+        entry.termsDictSize = meta.readVLong();
+        entry.maxTermLength = meta.readInt();
+        entry.termsDataOffset = meta.readLong();
+        entry.termsDataLength = meta.readLong();
+        entry.termsAddressesOffset = meta.readLong();
+        final int blockShift = meta.readVInt();
+        entry.numTermsBlocks = (entry.termsDictSize + TERMS_DICT_BLOCK_MASK) >>> TERMS_DICT_BLOCK_SHIFT;
+        entry.termsAddressesMeta = DirectMonotonicReader.loadMeta(meta, entry.numTermsBlocks, blockShift);
+        ramBytesUsed += entry.termsAddressesMeta.ramBytesUsed();
+        entry.termsAddressesLength = meta.readLong();
+    }
+
+    private SortedNumericEntry readSortedNumeric(IndexInput meta) throws IOException {
+        SortedNumericEntry entry = new SortedNumericEntry();
+        readNumeric(meta, entry);
+        entry.numDocsWithField = meta.readInt();
+        if (entry.numDocsWithField != entry.numValues) {
+            entry.addressesOffset = meta.readLong();
+            final int blockShift = meta.readVInt();
+            entry.addressesMeta = DirectMonotonicReader.loadMeta(meta, entry.numDocsWithField + 1L, blockShift);
+            ramBytesUsed += entry.addressesMeta.ramBytesUsed();
+            entry.addressesLength = meta.readLong();
+        }
+        return entry;
+    }
+
+    @Override
+    public void close() throws IOException {
+        data.close();
+    }
+
+    private static class NumericEntry {
+        long[] table;
+        byte bitsPerValue;
+        long docsWithFieldOffset;
+        long docsWithFieldLength;
+        long numValues;
+        long minValue;
+        long gcd;
+        long valuesOffset;
+        long valuesLength;
+
+        long diskBytesUsed() {
+            return docsWithFieldLength + valuesLength;
+        }
+    }
+
+    private static class BinaryEntry {
+        long dataOffset;
+        long dataLength;
+        long docsWithFieldOffset;
+        long docsWithFieldLength;
+        int numDocsWithField;
+        int minLength;
+        int maxLength;
+        long addressesOffset;
+        long addressesLength;
+        DirectMonotonicReader.Meta addressesMeta;
+
+        long diskBytesUsed() {
+            return docsWithFieldLength + dataLength + addressesLength;
+        }
+    }
+
+    private static class TermsDictEntry {
+        long termsDictSize;
+        long numTermsBlocks;
+        DirectMonotonicReader.Meta termsAddressesMeta;
+        int maxTermLength;
+        long termsDataOffset;
+        long termsDataLength;
+        long termsAddressesOffset;
+        long termsAddressesLength;
+
+        long diskBytesUsed() {
+            return termsDataLength + termsAddressesLength;
+        }
+    }
+
+    private static class SortedEntry extends TermsDictEntry {
+        long docsWithFieldOffset;
+        long docsWithFieldLength;
+        int numDocsWithField;
+        byte bitsPerValue;
+        long ordsOffset;
+        long ordsLength;
+
+        @Override
+        long diskBytesUsed() {
+            return docsWithFieldLength + ordsLength + super.diskBytesUsed();
+        }
+    }
+
+    private static class SortedSetEntry extends TermsDictEntry {
+        SortedEntry singleValueEntry;
+        long docsWithFieldOffset;
+        long docsWithFieldLength;
+        int numDocsWithField;
+        byte bitsPerValue;
+        long ordsOffset;
+        long ordsLength;
+        DirectMonotonicReader.Meta addressesMeta;
+        long addressesOffset;
+        long addressesLength;
+
+        @Override
+        long diskBytesUsed() {
+            if (singleValueEntry != null) {
+                return singleValueEntry.diskBytesUsed();
+            }
+            return docsWithFieldLength + ordsLength + addressesLength + super.diskBytesUsed();
+        }
+    }
+
+    private static class SortedNumericEntry extends NumericEntry {
+        int numDocsWithField;
+        DirectMonotonicReader.Meta addressesMeta;
+        long addressesOffset;
+        long addressesLength;
+
+        @Override
+        long diskBytesUsed() {
+            return super.diskBytesUsed() + addressesLength;
+        }
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        return ramBytesUsed;
+    }
+
+    @Override
+    public Collection<Accountable> getChildResources() {
+        return Collections.unmodifiableList(fieldResources);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "(fields=" + fieldResources.size() + ")";
+    }
+
+    @Override
+    public NumericDocValues getNumeric(FieldInfo field) throws IOException {
+        NumericEntry entry = numerics.get(field.name);
+        return getNumeric(entry);
+    }
+
+    private static abstract class DenseNumericDocValues extends NumericDocValues {
+
+        final int maxDoc;
+        int doc = -1;
+
+        DenseNumericDocValues(int maxDoc) {
+            this.maxDoc = maxDoc;
+        }
+
+        @Override
+        public int docID() {
+            return doc;
+        }
+
+        @Override
+        public int nextDoc() throws IOException {
+            return advance(doc + 1);
+        }
+
+        @Override
+        public int advance(int target) throws IOException {
+            if (target >= maxDoc) {
+                return doc = NO_MORE_DOCS;
+            }
+            return doc = target;
+        }
+
+        @Override
+        public boolean advanceExact(int target) {
+            doc = target;
+            return true;
+        }
+
+        @Override
+        public long cost() {
+            return maxDoc;
+        }
+    }
+
+    private static abstract class SparseNumericDocValues extends NumericDocValues {
+
+        final IndexedDISI disi;
+
+        SparseNumericDocValues(IndexedDISI disi) {
+            this.disi = disi;
+        }
+
+        @Override
+        public int advance(int target) throws IOException {
+            return disi.advance(target);
+        }
+
+        @Override
+        public boolean advanceExact(int target) throws IOException {
+            return disi.advanceExact(target);
+        }
+
+        @Override
+        public int nextDoc() throws IOException {
+            return disi.nextDoc();
+        }
+
+        @Override
+        public int docID() {
+            return disi.docID();
+        }
+
+        @Override
+        public long cost() {
+            return disi.cost();
+        }
+    }
+
+    private IndexedDISI docsWithField(long offset, long length, long cost) throws IOException {
+        return new IndexedDISI(data.randomAccessSlice(offset, length), maxDoc, cost);
+    }
+
+    /**
+     * Returns the decoded values of the entry, indexed by the position of the
+     * value among all values of the field (not by doc ID).
+     */
+    private LongValues getNumericValues(NumericEntry entry) throws IOException {
+        if (entry.bitsPerValue == 0) {
+            final long value = entry.minValue;
+            return new LongValues() {
+                @Override
+                public long get(long index) {
+                    return value;
+                }
+            };
+        }
+        final LongValues values = DirectReader.getInstance(
+                data.randomAccessSlice(entry.valuesOffset, entry.valuesLength), entry.bitsPerValue);
+        if (entry.table != null) {
+            final long[] table = entry.table;
+            return new LongValues() {
+                @Override
+                public long get(long index) {
+                    return table[(int) values.get(index)];
+                }
+            };
+        }
+        final long mul = entry.gcd;
+        final long delta = entry.minValue;
+        if (mul == 1) {
+            if (delta == 0) {
+                return values;
+            }
+            return new LongValues() {
+                @Override
+                public long get(long index) {
+                    return delta + values.get(index);
+                }
+            };
+        }
+        return new LongValues() {
+            @Override
+            public long get(long index) {
+                return mul * values.get(index) + delta;
+            }
+        };
+    }
+
+    private NumericDocValues getNumeric(NumericEntry entry) throws IOException {
+        if (entry.docsWithFieldOffset == -2) {
+            // empty
+            return DocValues.emptyNumeric();
+        }
+        final LongValues values = getNumericValues(entry);
+        if (entry.docsWithFieldOffset == -1) {
+            // dense
+            return new DenseNumericDocValues(maxDoc) {
+                @Override
+                public long longValue() throws IOException {
+                    return values.get(doc);
+                }
+            };
+        } else {
+            // sparse
+            final IndexedDISI disi = docsWithField(entry.docsWithFieldOffset, entry.docsWithFieldLength, entry.numValues);
+            return new SparseNumericDocValues(disi) {
+                @Override
+                public long longValue() throws IOException {
+                    return values.get(disi.index());
+                }
+            };
+        }
+    }
+
+    private static abstract class DenseBinaryDocValues extends BinaryDocValues {
+
+        final int maxDoc;
+        int doc = -1;
+
+        DenseBinaryDocValues(int maxDoc) {
+            this.maxDoc = maxDoc;
+        }
+
+        @Override
+        public int nextDoc() throws IOException {
+            return advance(doc + 1);
+        }
+
+        @Override
+        public int docID() {
+            return doc;
+        }
+
+        @Override
+        public long cost() {
+            return maxDoc;
+        }
+
+        @Override
+        public int advance(int target) throws IOException {
+            if (target >= maxDoc) {
+                return doc = NO_MORE_DOCS;
+            }
+            return doc = target;
+        }
+
+        @Override
+        public boolean advanceExact(int target) throws IOException {
+            doc = target;
+            return true;
+        }
+    }
+
+    private static abstract class SparseBinaryDocValues extends BinaryDocValues {
+
+        final IndexedDISI disi;
+
+        SparseBinaryDocValues(IndexedDISI disi) {
+            this.disi = disi;
+        }
+
+        @Override
+        public int nextDoc() throws IOException {
+            return disi.nextDoc();
+        }
+
+        @Override
+        public int docID() {
+            return disi.docID();
+        }
+
+        @Override
+        public long cost() {
+            return disi.cost();
+        }
+
+        @Override
+        public int advance(int target) throws IOException {
+            return disi.advance(target);
+        }
+
+        @Override
+        public boolean advanceExact(int target) throws IOException {
+            return disi.advanceExact(target);
+        }
+    }
+
+    @Override
+    public BinaryDocValues getBinary(FieldInfo field) throws IOException {
+        BinaryEntry entry = binaries.get(field.name);
+        if (entry.docsWithFieldOffset == -2) {
+            return DocValues.emptyBinary();
+        }
+
+        final IndexInput bytesSlice = data.slice("binary", entry.dataOffset, entry.dataLength);
+
+        if (entry.docsWithFieldOffset == -1) {
+            // dense
+            if (entry.minLength == entry.maxLength) {
+                // fixed length
+                final int length = entry.maxLength;
+                return new DenseBinaryDocValues(maxDoc) {
+                    final BytesRef bytes = new BytesRef(new byte[length], 0, length);
+
+                    @Override
+                    public BytesRef binaryValue() throws IOException {
+                        bytesSlice.seek((long) doc * length);
+                        bytesSlice.readBytes(bytes.bytes, 0, length);
+                        return bytes;
+                    }
+                };
+            } else {
+                // variable length
+                final LongValues addresses = DirectMonotonicReader.getInstance(entry.addressesMeta,
+                        data.randomAccessSlice(entry.addressesOffset, entry.addressesLength));
+                return new DenseBinaryDocValues(maxDoc) {
+                    final BytesRef bytes = new BytesRef(new byte[entry.maxLength], 0, entry.maxLength);
+
+                    @Override
+                    public BytesRef binaryValue() throws IOException {
+                        long startOffset = addresses.get(doc);
+                        bytes.length = (int) (addresses.get(doc + 1L) - startOffset);
+                        bytesSlice.seek(startOffset);
+                        bytesSlice.readBytes(bytes.bytes, 0, bytes.length);
+                        return bytes;
+                    }
+                };
+            }
+        } else {
+            // sparse
+            final IndexedDISI disi = docsWithField(entry.docsWithFieldOffset, entry.docsWithFieldLength, entry.numDocsWithField);
+            if (entry.minLength == entry.maxLength) {
+                // fixed length
+                final int length = entry.maxLength;
+                return new SparseBinaryDocValues(disi) {
+                    final BytesRef bytes = new BytesRef(new byte[length], 0, length);
+
+                    @Override
+                    public BytesRef binaryValue() throws IOException {
+                        bytesSlice.seek((long) disi.index() * length);
+                        bytesSlice.readBytes(bytes.bytes, 0, length);
+                        return bytes;
+                    }
+                };
+            } else {
+                // variable length
+                final LongValues addresses = DirectMonotonicReader.getInstance(entry.addressesMeta,
+                        data.randomAccessSlice(entry.addressesOffset, entry.addressesLength));
+                return new SparseBinaryDocValues(disi) {
+                    final BytesRef bytes = new BytesRef(new byte[entry.maxLength], 0, entry.maxLength);
+
+                    @Override
+                    public BytesRef binaryValue() throws IOException {
+                        final int index = disi.index();
+                        long startOffset = addresses.get(index);
+                        bytes.length = (int) (addresses.get(index + 1L) - startOffset);
+                        bytesSlice.seek(startOffset);
+                        bytesSlice.readBytes(bytes.bytes, 0, bytes.length);
+                        return bytes;
+                    }
+                };
+            }
+        }
+    }
+
+    @Override
+    public SortedDocValues getSorted(FieldInfo field) throws IOException {
+        SortedEntry entry = sorted.get(field.name);
+        return getSorted(entry);
+    }
+
+    private SortedDocValues getSorted(SortedEntry entry) throws IOException {
+        if (entry.docsWithFieldOffset == -2) {
+            return DocValues.emptySorted();
+        }
+
+        final LongValues ords;
+        if (entry.bitsPerValue == 0) {
+            ords = LongValues.ZEROES;
+        } else {
+            ords = DirectReader.getInstance(data.randomAccessSlice(entry.ordsOffset, entry.ordsLength), entry.bitsPerValue);
+        }
+
+        if (entry.docsWithFieldOffset == -1) {
+            // dense
+            return new BaseSortedDocValues(entry) {
+
+                int doc = -1;
+
+                @Override
+                public int nextDoc() throws IOException {
+                    return advance(doc + 1);
+                }
+
+                @Override
+                public int docID() {
+                    return doc;
+                }
+
+                @Override
+                public long cost() {
+                    return maxDoc;
+                }
+
+                @Override
+                public int advance(int target) throws IOException {
+                    if (target >= maxDoc) {
+                        return doc = NO_MORE_DOCS;
+                    }
+                    return doc = target;
+                }
+
+                @Override
+                public boolean advanceExact(int target) {
+                    doc = target;
+                    return true;
+                }
+
+                @Override
+                public int ordValue() {
+                    return (int) ords.get(doc);
+                }
+            };
+        } else {
+            // sparse
+            final IndexedDISI disi = docsWithField(entry.docsWithFieldOffset, entry.docsWithFieldLength, entry.numDocsWithField);
+            return new BaseSortedDocValues(entry) {
+
+                @Override
+                public int nextDoc() throws IOException {
+                    return disi.nextDoc();
+                }
+
+                @Override
+                public int docID() {
+                    return disi.docID();
+                }
+
+                @Override
+                public long cost() {
+                    return disi.cost();
+                }
+
+                @Override
+                public int advance(int target) throws IOException {
+                    return disi.advance(target);
+                }
+
+                @Override
+                public boolean advanceExact(int target) throws IOException {
+                    return disi.advanceExact(target);
+                }
+
+                @Override
+                public int ordValue() {
+                    return (int) ords.get(disi.index());
+                }
+            };
+        }
+    }
+
+    private abstract class BaseSortedDocValues extends SortedDocValues {
+
+        final SortedEntry entry;
+        final TermsDict termsDict;
+
+        BaseSortedDocValues(SortedEntry entry) throws IOException {
+            this.entry = entry;
+            this.termsDict = new TermsDict(entry);
+        }
+
+        @Override
+        public int getValueCount() {
+            return Math.toIntExact(entry.termsDictSize);
+        }
+
+        @Override
+        public BytesRef lookupOrd(int ord) throws IOException {
+            termsDict.seekExact(ord);
+            return termsDict.term;
+        }
+
+        @Override
+        public int lookupTerm(BytesRef key) throws IOException {
+            return (int) termsDict.lookupTerm(key);
+        }
+    }
+
+    private abstract class BaseSortedSetDocValues extends SortedSetDocValues {
+
+        final SortedSetEntry entry;
+        final TermsDict termsDict;
+
+        BaseSortedSetDocValues(SortedSetEntry entry) throws IOException {
+            this.entry = entry;
+            this.termsDict = new TermsDict(entry);
+        }
+
+        @Override
+        public long getValueCount() {
+            return entry.termsDictSize;
+        }
+
+        @Override
+        public BytesRef lookupOrd(long ord) throws IOException {
+            termsDict.seekExact(ord);
+            return termsDict.term;
+        }
+
+        @Override
+        public long lookupTerm(BytesRef key) throws IOException {
+            return termsDict.lookupTerm(key);
+        }
+    }
+
+    /**
+     * Cursor over a prefix-compressed terms dictionary. Seeking to an ordinal
+     * decodes at most one block of terms, and sequential lookups within a
+     * block (e.g. when resolving the ordinals of consecutive facet buckets)
+     * continue from the current position.
+     */
+    private class TermsDict {
+
+        final TermsDictEntry entry;
+        final LongValues blockAddresses;
+        final IndexInput bytes;
+        final BytesRef term;
+        long ord = -1;
+
+        TermsDict(TermsDictEntry entry) throws IOException {
+            this.entry = entry;
+            blockAddresses = DirectMonotonicReader.getInstance(entry.termsAddressesMeta,
+                    data.randomAccessSlice(entry.termsAddressesOffset, entry.termsAddressesLength));
+            bytes = data.slice("terms", entry.termsDataOffset, entry.termsDataLength);
+            term = new BytesRef(entry.maxTermLength);
+        }
+
+        /**
+         * Decode the next term, which must exist.
+         */
+        private void next() throws IOException {
+            ++ord;
+            if ((ord & TERMS_DICT_BLOCK_MASK) == 0L) {
+                term.length = bytes.readVInt();
+                bytes.readBytes(term.bytes, 0, term.length);
+            } else {
+                final int token = Byte.toUnsignedInt(bytes.readByte());
+                int prefixLength = token & 0x0F;
+                int suffixLength = 1 + (token >>> 4);
+                if (prefixLength == 15) {
+                    prefixLength += bytes.readVInt();
+                }
+                if (suffixLength == 16) {
+                    suffixLength += bytes.readVInt();
+                }
+                term.length = prefixLength + suffixLength;
+                bytes.readBytes(term.bytes, prefixLength, suffixLength);
+            }
+        }
+
+        void seekExact(long ord) throws IOException {
+            if (ord < 0 || ord >= entry.termsDictSize) {
+                throw new IndexOutOfBoundsException("ord=" + ord + ", valueCount=" + entry.termsDictSize);
+            }
+            final long blockIndex = ord >>> TERMS_DICT_BLOCK_SHIFT;
+            if (this.ord < 0 || ord < this.ord || (this.ord >>> TERMS_DICT_BLOCK_SHIFT) != blockIndex) {
+                bytes.seek(blockAddresses.get(blockIndex));
+                this.ord = (blockIndex << TERMS_DICT_BLOCK_SHIFT) - 1;
+            }
+            while (this.ord < ord) {
+                next();
+            }
+        }
+
+        private BytesRef firstTermOfBlock(long block) throws IOException {
+            bytes.seek(blockAddresses.get(block));
+            this.ord = (block << TERMS_DICT_BLOCK_SHIFT) - 1;
+            next();
+            return term;
+        }
+
+        /**
+         * Binary search over the first terms of the blocks, then linear scan
+         * within the block that may contain {@code key}.
+         */
+        long lookupTerm(BytesRef key) throws IOException {
+            long lo = 0;
+            long hi = entry.numTermsBlocks - 1;
+            while (lo <= hi) {
+                final long mid = (lo + hi) >>> 1;
+                final int cmp = firstTermOfBlock(mid).compareTo(key);
+                if (cmp < 0) {
+                    lo = mid + 1;
+                } else if (cmp > 0) {
+                    hi = mid - 1;
+                } else {
+                    return mid << TERMS_DICT_BLOCK_SHIFT;
+                }
+            }
+            // hi is the last block whose first term is less than key
+            if (hi < 0) {
+                return -1;
+            }
+            firstTermOfBlock(hi);
+            while (ord + 1 < entry.termsDictSize) {
+                next();
+                final int cmp = term.compareTo(key);
+                if (cmp == 0) {
+                    return ord;
+                } else if (cmp > 0) {
+                    return -1 - ord;
+                }
+            }
+            return -1 - entry.termsDictSize;
+        }
+    }
+
+    @Override
+    public SortedNumericDocValues getSortedNumeric(FieldInfo field) throws IOException {
+        SortedNumericEntry entry = sortedNumerics.get(field.name);
+        if (entry.numValues == entry.numDocsWithField) {
+            return DocValues.singleton(getNumeric(entry));
+        }
+
+        final LongValues addresses = DirectMonotonicReader.getInstance(entry.addressesMeta,
+                data.randomAccessSlice(entry.addressesOffset, entry.addressesLength));
+        final LongValues values = getNumericValues(entry);
+
+        if (entry.docsWithFieldOffset == -1) {
+            // dense
+            return new SortedNumericDocValues() {
+
+                int doc = -1;
+                long start, end;
+                int count;
+
+                @Override
+                public int nextDoc() throws IOException {
+                    return advance(doc + 1);
+                }
+
+                @Override
+                public int docID() {
+                    return doc;
+                }
+
+                @Override
+                public long cost() {
+                    return maxDoc;
+                }
+
+                @Override
+                public int advance(int target) throws IOException {
+                    if (target >= maxDoc) {
+                        return doc = NO_MORE_DOCS;
+                    }
+                    start = addresses.get(target);
+                    end = addresses.get(target + 1L);
+                    count = (int) (end - start);
+                    return doc = target;
+                }
+
+                @Override
+                public boolean advanceExact(int target) throws IOException {
+                    start = addresses.get(target);
+                    end = addresses.get(target + 1L);
+                    count = (int) (end - start);
+                    doc = target;
+                    return true;
+                }
+
+                @Override
+                public long nextValue() throws IOException {
+                    return values.get(start++);
+                }
+
+                @Override
+                public int docValueCount() {
+                    return count;
+                }
+            };
+        } else {
+            // sparse
+            final IndexedDISI disi = docsWithField(entry.docsWithFieldOffset, entry.docsWithFieldLength, entry.numDocsWithField);
+            return new SortedNumericDocValues() {
+
+                boolean set;
+                long start, end;
+                int count;
+
+                @Override
+                public int nextDoc() throws IOException {
+                    set = false;
+                    return disi.nextDoc();
+                }
+
+                @Override
+                public int docID() {
+                    return disi.docID();
+                }
+
+                @Override
+                public long cost() {
+                    return disi.cost();
+                }
+
+                @Override
+                public int advance(int target) throws IOException {
+                    set = false;
+                    return disi.advance(target);
+                }
+
+                @Override
+                public boolean advanceExact(int target) throws IOException {
+                    set = false;
+                    return disi.advanceExact(target);
+                }
+
+                @Override
+                public long nextValue() throws IOException {
+                    set();
+                    return values.get(start++);
+                }
+
+                @Override
+                public int docValueCount() {
+                    set();
+                    return count;
+                }
+
+                private void set() {
+                    if (set == false) {
+                        final int index = disi.index();
+                        start = addresses.get(index);
+                        end = addresses.get(index + 1L);
+                        count = (int) (end - start);
+                        set = true;
+                    }
+                }
+            };
+        }
+    }
+
+    @Override
+    public SortedSetDocValues getSortedSet(FieldInfo field) throws IOException {
+        SortedSetEntry entry = sortedSets.get(field.name);
+        if (entry.singleValueEntry != null) {
+            return DocValues.singleton(getSorted(entry.singleValueEntry));
+        }
+
+        final LongValues ords = DirectReader.getInstance(data.randomAccessSlice(entry.ordsOffset, entry.ordsLength), entry.bitsPerValue);
+        final LongValues addresses = DirectMonotonicReader.getInstance(entry.addressesMeta,
+                data.randomAccessSlice(entry.addressesOffset, entry.addressesLength));
+
+        if (entry.docsWithFieldOffset == -1) {
+            // dense
+            return new BaseSortedSetDocValues(entry) {
+
+                int doc = -1;
+                long start;
+                long end;
+
+                @Override
+                public int nextDoc() throws IOException {
+                    return advance(doc + 1);
+                }
+
+                @Override
+                public int docID() {
+                    return doc;
+                }
+
+                @Override
+                public long cost() {
+                    return maxDoc;
+                }
+
+                @Override
+                public int advance(int target) throws IOException {
+                    if (target >= maxDoc) {
+                        return doc = NO_MORE_DOCS;
+                    }
+                    start = addresses.get(target);
+                    end = addresses.get(target + 1L);
+                    return doc = target;
+                }
+
+                @Override
+                public boolean advanceExact(int target) throws IOException {
+                    start = addresses.get(target);
+                    end = addresses.get(target + 1L);
+                    doc = target;
+                    return true;
+                }
+
+                @Override
+                public long nextOrd() throws IOException {
+                    if (start == end) {
+                        return NO_MORE_ORDS;
+                    }
+                    return ords.get(start++);
+                }
+            };
+        } else {
+            // sparse
+            final IndexedDISI disi = docsWithField(entry.docsWithFieldOffset, entry.docsWithFieldLength, entry.numDocsWithField);
+            return new BaseSortedSetDocValues(entry) {
+
+                boolean set;
+                long start;
+                long end = 0;
+
+                @Override
+                public int nextDoc() throws IOException {
+                    set = false;
+                    return disi.nextDoc();
+                }
+
+                @Override
+                public int docID() {
+                    return disi.docID();
+                }
+
+                @Override
+                public long cost() {
+                    return disi.cost();
+                }
+
+                @Override
+                public int advance(int target) throws IOException {
+                    set = false;
+                    return disi.advance(target);
+                }
+
+                @Override
+                public boolean advanceExact(int target) throws IOException {
+                    set = false;
+                    return disi.advanceExact(target);
+                }
+
+                @Override
+                public long nextOrd() throws IOException {
+                    if (set == false) {
+                        final int index = disi.index();
+                        final long start = addresses.get(index);
+                        this.start = start + 1;
+                        end = addresses.get(index + 1L);
+                        set = true;
+                        return ords.get(start);
+                    } else if (start == end) {
+                        return NO_MORE_ORDS;
+                    } else {
+                        return ords.get(start++);
+                    }
+                }
+            };
+        }
+    }
+}
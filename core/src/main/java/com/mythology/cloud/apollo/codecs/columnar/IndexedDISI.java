@@ -0,0 +1,197 @@
+package com.mythology.cloud.apollo.codecs.columnar;
+
+import com.mythology.cloud.apollo.search.DocIdSetIterator;
+import com.mythology.cloud.apollo.store.IndexOutput;
+import com.mythology.cloud.apollo.store.RandomAccessInput;
+
+import java.io.IOException;
+
+/**
+ * Disk-based implementation of a {@link DocIdSetIterator} which can return
+ * the index of the current document, i.e. the ordinal of the current document
+ * among the list of documents that this iterator can return. This is useful
+ * to implement sparse doc values by only having to encode values for documents
+ * that actually have a value.
+ * <p>
+ * The doc ID space is split into blocks of {@value #BLOCK_SIZE} documents.
+ * Every block is stored as the number of documents that are set in previous
+ * blocks (an {@code int}) followed by {@value #WORDS_PER_BLOCK} {@code long}
+ * words of the bitset. Computing the index of a document thus needs at most
+ * {@value #WORDS_PER_BLOCK} reads, and sequential access (the common case for
+ * sorting and faceting) needs a single read for every 64 documents.
+ * <p>
+ * 文档ID空间按{@value #BLOCK_SIZE}个文档分块，每块先存之前各块的置位总数(rank)，再存位图。
+ * 这样既能判断某文档是否有值，又能常数时间算出其在稀疏值数组中的下标。
+ * </p>
+ *
+ * @lucene.internal
+ */
+final class IndexedDISI extends DocIdSetIterator {
+
+    static final int BLOCK_SHIFT = 9;
+    static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+    static final int WORDS_PER_BLOCK = BLOCK_SIZE >>> 6;
+    static final int BLOCK_BYTES = Integer.BYTES + WORDS_PER_BLOCK * Long.BYTES;
+
+    /**
+     * Writes the docs of {@code it} as a ranked bitset covering {@code [0, maxDoc)}
+     * and returns the number of documents that were written.
+     */
+    static int writeBitSet(DocIdSetIterator it, IndexOutput out, int maxDoc) throws IOException {
+        final long[] words = new long[WORDS_PER_BLOCK];
+        final int numBlocks = numBlocks(maxDoc);
+        int count = 0;
+        int block = 0;
+        int rank = 0;
+        for (int doc = it.nextDoc(); doc != NO_MORE_DOCS; doc = it.nextDoc()) {
+            if (doc >= maxDoc) {
+                throw new IllegalArgumentException("doc=" + doc + " is out of bounds, maxDoc=" + maxDoc);
+            }
+            final int docBlock = doc >>> BLOCK_SHIFT;
+            while (block < docBlock) {
+                writeBlock(out, rank, words);
+                rank = count;
+                block++;
+            }
+            words[(doc >>> 6) & (WORDS_PER_BLOCK - 1)] |= 1L << doc;
+            count++;
+        }
+        while (block < numBlocks) {
+            writeBlock(out, rank, words);
+            rank = count;
+            block++;
+        }
+        return count;
+    }
+
+    private static void writeBlock(IndexOutput out, int rank, long[] words) throws IOException {
+        out.writeInt(rank);
+        for (int i = 0; i < words.length; ++i) {
+            out.writeLong(words[i]);
+            words[i] = 0L;
+        }
+    }
+
+    static int numBlocks(int maxDoc) {
+        return (maxDoc + BLOCK_SIZE - 1) >>> BLOCK_SHIFT;
+    }
+
+    /**
+     * Number of bytes used by the bitset of a segment that has {@code maxDoc} docs.
+     */
+    static long length(int maxDoc) {
+        return (long) numBlocks(maxDoc) * BLOCK_BYTES;
+    }
+
+    private final RandomAccessInput slice;
+    private final int maxDoc;
+    private final int numBlocks;
+    private final long cost;
+
+    private int doc = -1;
+    // the word that contains the current doc, and the number of docs set before it
+    private int wordIndex = -1;
+    private long word;
+    private int wordRank;
+
+    IndexedDISI(RandomAccessInput slice, int maxDoc, long cost) {
+        this.slice = slice;
+        this.maxDoc = maxDoc;
+        this.numBlocks = numBlocks(maxDoc);
+        this.cost = cost;
+    }
+
+    private int blockRank(int block) throws IOException {
+        if (block >= numBlocks) {
+            return (int) cost;
+        }
+        return slice.readInt((long) block * BLOCK_BYTES);
+    }
+
+    private long readWord(int wordIndex) throws IOException {
+        final int block = wordIndex / WORDS_PER_BLOCK;
+        final int wordInBlock = wordIndex & (WORDS_PER_BLOCK - 1);
+        return slice.readLong((long) block * BLOCK_BYTES + Integer.BYTES + (long) wordInBlock * Long.BYTES);
+    }
+
+    /**
+     * Position on the given word, maintaining {@link #wordRank}.
+     */
+    private void moveToWord(int targetWord) throws IOException {
+        final int targetBlock = targetWord / WORDS_PER_BLOCK;
+        int w;
+        int rank;
+        if (wordIndex >= 0 && wordIndex <= targetWord && wordIndex / WORDS_PER_BLOCK == targetBlock) {
+            w = wordIndex;
+            rank = wordRank;
+        } else {
+            w = targetBlock * WORDS_PER_BLOCK;
+            rank = blockRank(targetBlock);
+            word = readWord(w);
+        }
+        while (w < targetWord) {
+            rank += Long.bitCount(word);
+            word = readWord(++w);
+        }
+        wordIndex = w;
+        wordRank = rank;
+    }
+
+    @Override
+    public int docID() {
+        return doc;
+    }
+
+    @Override
+    public int nextDoc() throws IOException {
+        return advance(doc + 1);
+    }
+
+    @Override
+    public int advance(int target) throws IOException {
+        if (target >= maxDoc) {
+            return doc = NO_MORE_DOCS;
+        }
+        moveToWord(target >>> 6);
+        long bits = word & (-1L << target);
+        while (bits == 0) {
+            int nextWord = wordIndex + 1;
+            int block = nextWord / WORDS_PER_BLOCK;
+            if ((nextWord & (WORDS_PER_BLOCK - 1)) == 0) {
+                // skip over empty blocks without reading their words
+                while (block < numBlocks && blockRank(block + 1) == blockRank(block)) {
+                    block++;
+                }
+                if (block >= numBlocks) {
+                    return doc = NO_MORE_DOCS;
+                }
+                nextWord = block * WORDS_PER_BLOCK;
+            }
+            moveToWord(nextWord);
+            bits = word;
+        }
+        final int next = (wordIndex << 6) + Long.numberOfTrailingZeros(bits);
+        return doc = next < maxDoc ? next : NO_MORE_DOCS;
+    }
+
+    /**
+     * Position the iterator on {@code target} and return whether it is set.
+     */
+    boolean advanceExact(int target) throws IOException {
+        doc = target;
+        moveToWord(target >>> 6);
+        return (word & (1L << target)) != 0;
+    }
+
+    /**
+     * Return the index of the current document among the documents of this set.
+     */
+    int index() {
+        return wordRank + Long.bitCount(word & ((1L << doc) - 1));
+    }
+
+    @Override
+    public long cost() {
+        return cost;
+    }
+}
@@ -0,0 +1,352 @@
+package com.mythology.cloud.apollo.codecs.compressing;
+
+import com.mythology.cloud.apollo.codecs.CodecUtil;
+import com.mythology.cloud.apollo.codecs.StoredFieldsReader;
+import com.mythology.cloud.apollo.index.CorruptIndexException;
+import com.mythology.cloud.apollo.index.FieldInfo;
+import com.mythology.cloud.apollo.index.FieldInfos;
+import com.mythology.cloud.apollo.index.StoredFieldVisitor;
+import com.mythology.cloud.apollo.store.AlreadyClosedException;
+import com.mythology.cloud.apollo.store.ByteArrayDataInput;
+import com.mythology.cloud.apollo.store.DataInput;
+import com.mythology.cloud.apollo.store.Directory;
+import com.mythology.cloud.apollo.store.IndexInput;
+import com.mythology.cloud.apollo.util.Accountable;
+import com.mythology.cloud.apollo.util.Accountables;
+import com.mythology.cloud.apollo.util.ArrayUtil;
+import com.mythology.cloud.apollo.util.BytesRef;
+import com.mythology.cloud.apollo.util.CloseableThreadLocal;
+import com.mythology.cloud.apollo.util.IOUtils;
+import com.mythology.cloud.apollo.util.RamUsageEstimator;
+import com.mythology.cloud.apollo.util.compress.LZ4;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+
+import static com.mythology.cloud.apollo.codecs.compressing.CompressingStoredFieldsWriter.BYTE_ARR;
+import static com.mythology.cloud.apollo.codecs.compressing.CompressingStoredFieldsWriter.CODEC_NAME_DAT;
+import static com.mythology.cloud.apollo.codecs.compressing.CompressingStoredFieldsWriter.CODEC_NAME_IDX;
+import static com.mythology.cloud.apollo.codecs.compressing.CompressingStoredFieldsWriter.NUMERIC_DOUBLE;
+import static com.mythology.cloud.apollo.codecs.compressing.CompressingStoredFieldsWriter.NUMERIC_FLOAT;
+import static com.mythology.cloud.apollo.codecs.compressing.CompressingStoredFieldsWriter.NUMERIC_INT;
+import static com.mythology.cloud.apollo.codecs.compressing.CompressingStoredFieldsWriter.NUMERIC_LONG;
+import static com.mythology.cloud.apollo.codecs.compressing.CompressingStoredFieldsWriter.STRING;
+import static com.mythology.cloud.apollo.codecs.compressing.CompressingStoredFieldsWriter.TYPE_BITS;
+import static com.mythology.cloud.apollo.codecs.compressing.CompressingStoredFieldsWriter.TYPE_MASK;
+import static com.mythology.cloud.apollo.codecs.compressing.CompressingStoredFieldsWriter.VERSION_CURRENT;
+import static com.mythology.cloud.apollo.codecs.compressing.CompressingStoredFieldsWriter.VERSION_START;
+
+/**
+ * {@link StoredFieldsReader} impl for {@link CompressingStoredFieldsWriter}.
+ * <p>
+ * The block index (doc base and file pointer of every block) is held in
+ * memory, so locating the block of a document is a binary search over an
+ * {@code int[]}. Every thread keeps the last block it decompressed: visiting
+ * a document decompresses at most one block, and visiting several documents of
+ * the same block (which is typical when hits are loaded in doc ID order)
+ * decompresses it only once.
+ *
+ * @lucene.experimental
+ */
+public final class CompressingStoredFieldsReader extends StoredFieldsReader {
+
+    private final FieldInfos fieldInfos;
+    private final IndexInput fieldsStream;
+    private final byte[] dictionary;
+    private final int numDocs;
+    // docBases[i] is the first doc of block i, docBases[numBlocks] == numDocs
+    private final int[] docBases;
+    private final long[] startPointers;
+    private final CloseableThreadLocal<BlockState> blockStates = new CloseableThreadLocal<BlockState>() {
+        @Override
+        protected BlockState initialValue() {
+            return new BlockState(fieldsStream.clone());
+        }
+    };
+    private boolean closed;
+
+    /**
+     * Sole constructor.
+     */
+    public CompressingStoredFieldsReader(Directory d, String segment, FieldInfos fn) throws IOException {
+        this.fieldInfos = fn;
+        IndexInput fieldsStream = null;
+        boolean success = false;
+        try {
+            // Load the index into memory
+            try (IndexInput indexStream = d.openInput(CompressingStoredFieldsWriter.indexFileName(segment))) {
+                CodecUtil.checkHeader(indexStream, CODEC_NAME_IDX, VERSION_START, VERSION_CURRENT);
+                numDocs = indexStream.readVInt();
+                final int numBlocks = indexStream.readVInt();
+                docBases = new int[numBlocks + 1];
+                startPointers = new long[numBlocks];
+                long startPointer = 0;
+                for (int i = 0; i < numBlocks; ++i) {
+                    docBases[i + 1] = docBases[i] + indexStream.readVInt();
+                    startPointer += indexStream.readVLong();
+                    startPointers[i] = startPointer;
+                }
+                if (docBases[numBlocks] != numDocs) {
+                    throw new CorruptIndexException("block index covers " + docBases[numBlocks] + " docs, expected " + numDocs, indexStream);
+                }
+                CodecUtil.checkFooter(indexStream);
+            }
+
+            fieldsStream = d.openInput(CompressingStoredFieldsWriter.fieldsFileName(segment));
+            CodecUtil.checkFooter(fieldsStream);
+            fieldsStream.seek(0);
+            CodecUtil.checkHeader(fieldsStream, CODEC_NAME_DAT, VERSION_START, VERSION_CURRENT);
+            dictionary = new byte[fieldsStream.readVInt()];
+            fieldsStream.readBytes(dictionary, 0, dictionary.length);
+            this.fieldsStream = fieldsStream;
+
+            success = true;
+        } finally {
+            if (!success) {
+                IOUtils.closeWhileHandlingException(fieldsStream);
+            }
+        }
+    }
+
+    /**
+     * Per-thread state: a clone of the data file and the last decompressed
+     * block, laid out as {@code [dictionary][documents]} so that LZ4 matches
+     * may reference the preset dictionary.
+     */
+    private final class BlockState {
+        private final IndexInput in;
+        private int docBase = -1;
+        private int chunkDocs;
+        private int[] numStoredFields = new int[1];
+        private int[] offsets = new int[2]; // offsets[i] is the start of doc i, relative to the dictionary end
+        private byte[] bytes = Arrays.copyOf(dictionary, dictionary.length);
+        private final ByteArrayDataInput document = new ByteArrayDataInput();
+        private final BytesRef scratch = new BytesRef(); // view of the current string or binary value
+
+        BlockState(IndexInput in) {
+            this.in = in;
+        }
+
+        boolean contains(int docID) {
+            return docID >= docBase && docID < docBase + chunkDocs;
+        }
+
+        /**
+         * Decompress the block that contains {@code docID}.
+         */
+        void load(int docID) throws IOException {
+            // invalidate first: the arrays are overwritten while loading, so a
+            // failed load must not leave the previous block looking valid
+            this.docBase = -1;
+            this.chunkDocs = 0;
+
+            final int block = blockIndex(docID);
+            in.seek(startPointers[block]);
+
+            final int docBase = in.readVInt();
+            final int chunkDocs = in.readVInt();
+            if (docBase != docBases[block] || chunkDocs != docBases[block + 1] - docBase) {
+                throw new CorruptIndexException("Corrupted: docID=" + docID + ", docBase=" + docBase
+                        + ", chunkDocs=" + chunkDocs + ", numDocs=" + numDocs, in);
+            }
+            if (chunkDocs > numStoredFields.length) {
+                numStoredFields = new int[ArrayUtil.oversize(chunkDocs, Integer.BYTES)];
+                offsets = new int[numStoredFields.length + 1];
+            }
+            for (int i = 0; i < chunkDocs; ++i) {
+                numStoredFields[i] = in.readVInt();
+            }
+            for (int i = 0; i < chunkDocs; ++i) {
+                offsets[i + 1] = offsets[i] + in.readVInt();
+            }
+
+            final int totalLength = offsets[chunkDocs];
+            if (bytes.length < dictionary.length + totalLength) {
+                bytes = ArrayUtil.grow(bytes, dictionary.length + totalLength);
+            }
+            final int end = LZ4.decompress(in, totalLength, bytes, dictionary.length);
+            if (end != dictionary.length + totalLength) {
+                throw new CorruptIndexException("Corrupted: expected chunk size=" + totalLength + ", got " + (end - dictionary.length), in);
+            }
+            this.docBase = docBase;
+            this.chunkDocs = chunkDocs;
+        }
+
+        ByteArrayDataInput document(int docID) {
+            final int index = docID - docBase;
+            document.reset(bytes, dictionary.length + offsets[index], offsets[index + 1] - offsets[index]);
+            return document;
+        }
+
+        int numStoredFields(int docID) {
+            return numStoredFields[docID - docBase];
+        }
+    }
+
+    private int blockIndex(int docID) {
+        // docBases has numBlocks + 1 entries and is strictly increasing
+        int index = Arrays.binarySearch(docBases, 0, docBases.length - 1, docID);
+        if (index < 0) {
+            index = -2 - index;
+        }
+        return index;
+    }
+
+    private static void readField(ByteArrayDataInput in, BytesRef scratch, StoredFieldVisitor visitor, FieldInfo info, int bits) throws IOException {
+        switch (bits & TYPE_MASK) {
+            case BYTE_ARR:
+                viewBytes(in, scratch);
+                visitor.binaryField(info, scratch);
+                break;
+            case STRING:
+                viewBytes(in, scratch);
+                visitor.stringField(info, scratch);
+                break;
+            case NUMERIC_INT:
+                visitor.intField(info, in.readZInt());
+                break;
+            case NUMERIC_FLOAT:
+                visitor.floatField(info, Float.intBitsToFloat(in.readInt()));
+                break;
+            case NUMERIC_LONG:
+                visitor.longField(info, in.readZLong());
+                break;
+            case NUMERIC_DOUBLE:
+                visitor.doubleField(info, Double.longBitsToDouble(in.readLong()));
+                break;
+            default:
+                throw new AssertionError("Unknown type flag: " + Integer.toHexString(bits));
+        }
+    }
+
+    /**
+     * Point {@code scratch} at the next length-prefixed value of {@code in},
+     * which reads from the decompressed block, without copying it.
+     */
+    private static void viewBytes(ByteArrayDataInput in, BytesRef scratch) {
+        final int length = in.readVInt();
+        scratch.offset = in.getPosition();
+        scratch.length = length;
+        in.skipBytes(length);
+    }
+
+    private static void skipField(DataInput in, int bits) throws IOException {
+        switch (bits & TYPE_MASK) {
+            case BYTE_ARR:
+            case STRING:
+                final int length = in.readVInt();
+                in.skipBytes(length);
+                break;
+            case NUMERIC_INT:
+                in.readZInt();
+                break;
+            case NUMERIC_FLOAT:
+                in.readInt();
+                break;
+            case NUMERIC_LONG:
+                in.readZLong();
+                break;
+            case NUMERIC_DOUBLE:
+                in.readLong();
+                break;
+            default:
+                throw new AssertionError("Unknown type flag: " + Integer.toHexString(bits));
+        }
+    }
+
+    @Override
+    public void visitDocument(int docID, StoredFieldVisitor visitor) throws IOException {
+        ensureOpen();
+        if (docID < 0 || docID >= numDocs) {
+            throw new IllegalArgumentException("docID must be in [0, " + numDocs + "), got " + docID);
+        }
+        final BlockState state = blockStates.get();
+        if (state.contains(docID) == false) {
+            state.load(docID);
+        }
+
+        final ByteArrayDataInput doc = state.document(docID);
+        // string and binary values are views of the decompressed block
+        final BytesRef scratch = state.scratch;
+        scratch.bytes = state.bytes;
+        final int numStoredFields = state.numStoredFields(docID);
+        for (int fieldIDX = 0; fieldIDX < numStoredFields; fieldIDX++) {
+            final long infoAndBits = doc.readVLong();
+            final int fieldNumber = (int) (infoAndBits >>> TYPE_BITS);
+            final FieldInfo fieldInfo = fieldInfos.fieldInfo(fieldNumber);
+
+            final int bits = (int) (infoAndBits & TYPE_MASK);
+            assert bits <= NUMERIC_DOUBLE : "bits=" + Integer.toHexString(bits);
+
+            switch (visitor.needsField(fieldInfo)) {
+                case YES:
+                    readField(doc, scratch, visitor, fieldInfo, bits);
+                    break;
+                case NO:
+                    if (fieldIDX == numStoredFields - 1) { // don't skipField on last field value; treat like STOP
+                        return;
+                    }
+                    skipField(doc, bits);
+                    break;
+                case STOP:
+                    return;
+            }
+        }
+    }
+
+    /**
+     * Return the number of documents of this segment.
+     */
+    public int getNumDocs() {
+        return numDocs;
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new AlreadyClosedException("this FieldsReader is closed");
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * This reader keeps its per-thread state internally, so it may be shared
+     * across threads and cloning returns {@code this}.
+     */
+    @Override
+    public StoredFieldsReader clone() {
+        ensureOpen();
+        return this;
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        return RamUsageEstimator.sizeOf(docBases) + RamUsageEstimator.sizeOf(startPointers)
+                + RamUsageEstimator.sizeOf(dictionary);
+    }
+
+    @Override
+    public Collection<Accountable> getChildResources() {
+        return Arrays.asList(
+                Accountables.namedAccountable("stored field index",
+                        RamUsageEstimator.sizeOf(docBases) + RamUsageEstimator.sizeOf(startPointers)),
+                Accountables.namedAccountable("preset dictionary", RamUsageEstimator.sizeOf(dictionary)));
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "(blocks=" + startPointers.length + ",dictionary=" + dictionary.length + ")";
+    }
+
+    /**
+     * Close the underlying {@link IndexInput}s.
+     */
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            IOUtils.close(blockStates, fieldsStream);
+        }
+    }
+}
@@ -0,0 +1,327 @@
+package com.mythology.cloud.apollo.codecs.compressing;
+
+import com.mythology.cloud.apollo.codecs.CodecUtil;
+import com.mythology.cloud.apollo.codecs.StoredFieldsWriter;
+import com.mythology.cloud.apollo.index.FieldInfo;
+import com.mythology.cloud.apollo.index.FieldInfos;
+import com.mythology.cloud.apollo.index.IndexableField;
+import com.mythology.cloud.apollo.store.Directory;
+import com.mythology.cloud.apollo.store.GrowableByteArrayDataOutput;
+import com.mythology.cloud.apollo.store.IndexOutput;
+import com.mythology.cloud.apollo.util.ArrayUtil;
+import com.mythology.cloud.apollo.util.BytesRef;
+import com.mythology.cloud.apollo.util.IOUtils;
+import com.mythology.cloud.apollo.util.compress.LZ4;
+
+import java.io.IOException;
+
+/**
+ * {@link StoredFieldsWriter} that packs documents into blocks of
+ * {@code chunkSize} bytes and compresses every block with {@link LZ4}.
+ * <p>
+ * Small documents compress poorly on their own, so buffering many of them
+ * into a single 16-64KB block gives the compressor enough context to find
+ * repetitions across documents. An optional preset dictionary (for instance a
+ * sample of typical documents) is written once in the header of the data file
+ * and prepended to every block so that even the first documents of a block can
+ * reference common byte sequences.
+ * <p>
+ * File formats:
+ * <ul>
+ * <li><tt>.fdt</tt>: Header, DictLength, Dict, &lt;Block&gt;<sup>BlockCount</sup>, Footer
+ * <ul>
+ * <li>Block --&gt; DocBase, ChunkDocs, NumStoredFields<sup>ChunkDocs</sup>, DocLengths<sup>ChunkDocs</sup>, CompressedDocs
+ * <li>CompressedDocs --&gt; LZ4 compressed serialized documents, using Dict as a preset dictionary
+ * </ul>
+ * <li><tt>.fdx</tt>: Header, NumDocs, BlockCount, &lt;BlockDocs, StartPointerDelta&gt;<sup>BlockCount</sup>, Footer
+ * </ul>
+ * The <tt>.fdx</tt> file is small (two vints per block) and is fully loaded
+ * into memory by {@link CompressingStoredFieldsReader}.
+ *
+ * @lucene.experimental
+ */
+public final class CompressingStoredFieldsWriter extends StoredFieldsWriter {
+
+    /**
+     * Extension of stored fields file
+     */
+    public static final String FIELDS_EXTENSION = "fdt";
+
+    /**
+     * Extension of stored fields index file
+     */
+    public static final String FIELDS_INDEX_EXTENSION = "fdx";
+
+    static final String CODEC_NAME_DAT = "CompressingStoredFieldsData";
+    static final String CODEC_NAME_IDX = "CompressingStoredFieldsIndex";
+    static final int VERSION_START = 0;
+    static final int VERSION_CURRENT = VERSION_START;
+
+    static final int STRING = 0x00;
+    static final int BYTE_ARR = 0x01;
+    static final int NUMERIC_INT = 0x02;
+    static final int NUMERIC_FLOAT = 0x03;
+    static final int NUMERIC_LONG = 0x04;
+    static final int NUMERIC_DOUBLE = 0x05;
+
+    static final int TYPE_BITS = 3; // 6 types, so 3 bits are enough
+    static final int TYPE_MASK = 0x07;
+
+    /**
+     * Smallest allowed block size.
+     */
+    public static final int MIN_CHUNK_SIZE = 1 << 14;
+
+    /**
+     * Largest allowed block size: LZ4 can't reference bytes that are more than
+     * 64KB away, so larger blocks would not compress any better.
+     */
+    public static final int MAX_CHUNK_SIZE = 1 << 16;
+
+    /**
+     * Default block size.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = MIN_CHUNK_SIZE;
+
+    /**
+     * Default maximum number of documents per block.
+     */
+    public static final int DEFAULT_MAX_DOCS_PER_CHUNK = 512;
+
+    private IndexOutput fieldsStream;
+    private IndexOutput indexStream;
+
+    private final byte[] dictionary;
+    private final int chunkSize;
+    private final int maxDocsPerChunk;
+    private final LZ4.HashTable hashTable = new LZ4.HashTable();
+
+    // buffered documents, always prefixed with the dictionary
+    private final GrowableByteArrayDataOutput bufferedDocs;
+    private int[] numStoredFields; // number of stored fields
+    private int[] endOffsets; // end offsets in bufferedDocs
+    private int docBase; // doc ID at the beginning of the chunk
+    private int numBufferedDocs; // docBase + numBufferedDocs == current doc ID
+    private int numStoredFieldsInDoc;
+
+    // in-memory block index, written to the index file on finish
+    private int numBlocks;
+    private int[] blockNumDocs = new int[16];
+    private long[] blockStartPointers = new long[16];
+
+    /**
+     * Create a writer with the default block size and no preset dictionary.
+     */
+    public CompressingStoredFieldsWriter(Directory directory, String segment) throws IOException {
+        this(directory, segment, null, DEFAULT_CHUNK_SIZE, DEFAULT_MAX_DOCS_PER_CHUNK);
+    }
+
+    /**
+     * Sole constructor.
+     *
+     * @param dictionary      preset dictionary shared by all blocks, or {@code null}; at most
+     *                        {@link LZ4#MAX_DISTANCE} bytes
+     * @param chunkSize       number of bytes of serialized documents after which a block is compressed,
+     *                        between {@link #MIN_CHUNK_SIZE} and {@link #MAX_CHUNK_SIZE}
+     * @param maxDocsPerChunk maximum number of documents in a block
+     */
+    public CompressingStoredFieldsWriter(Directory directory, String segment, byte[] dictionary,
+                                         int chunkSize, int maxDocsPerChunk) throws IOException {
+        if (chunkSize < MIN_CHUNK_SIZE || chunkSize > MAX_CHUNK_SIZE) {
+            throw new IllegalArgumentException("chunkSize must be in [" + MIN_CHUNK_SIZE + ", " + MAX_CHUNK_SIZE + "], got " + chunkSize);
+        }
+        if (maxDocsPerChunk < 1) {
+            throw new IllegalArgumentException("maxDocsPerChunk must be >= 1, got " + maxDocsPerChunk);
+        }
+        if (dictionary != null && dictionary.length > LZ4.MAX_DISTANCE) {
+            throw new IllegalArgumentException("dictionary must not be larger than " + LZ4.MAX_DISTANCE + " bytes, got " + dictionary.length);
+        }
+        this.dictionary = dictionary == null ? BytesRef.EMPTY_BYTES : dictionary.clone();
+        this.chunkSize = chunkSize;
+        this.maxDocsPerChunk = maxDocsPerChunk;
+        this.docBase = 0;
+        this.bufferedDocs = new GrowableByteArrayDataOutput(this.dictionary.length + chunkSize);
+        this.bufferedDocs.writeBytes(this.dictionary, 0, this.dictionary.length);
+        this.numStoredFields = new int[16];
+        this.endOffsets = new int[16];
+        this.numBufferedDocs = 0;
+
+        boolean success = false;
+        try {
+            fieldsStream = directory.createOutput(fieldsFileName(segment));
+            indexStream = directory.createOutput(indexFileName(segment));
+
+            CodecUtil.writeHeader(fieldsStream, CODEC_NAME_DAT, VERSION_CURRENT);
+            CodecUtil.writeHeader(indexStream, CODEC_NAME_IDX, VERSION_CURRENT);
+
+            fieldsStream.writeVInt(this.dictionary.length);
+            fieldsStream.writeBytes(this.dictionary, 0, this.dictionary.length);
+
+            success = true;
+        } finally {
+            if (!success) {
+                IOUtils.closeWhileHandlingException(fieldsStream, indexStream);
+            }
+        }
+    }
+
+    static String fieldsFileName(String segment) {
+        return segment + "." + FIELDS_EXTENSION;
+    }
+
+    static String indexFileName(String segment) {
+        return segment + "." + FIELDS_INDEX_EXTENSION;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            IOUtils.close(fieldsStream, indexStream);
+        } finally {
+            fieldsStream = null;
+            indexStream = null;
+        }
+    }
+
+    @Override
+    public void startDocument() throws IOException {
+    }
+
+    @Override
+    public void finishDocument() throws IOException {
+        if (numBufferedDocs == this.numStoredFields.length) {
+            final int newLength = ArrayUtil.oversize(numBufferedDocs + 1, 4);
+            this.numStoredFields = ArrayUtil.growExact(this.numStoredFields, newLength);
+            endOffsets = ArrayUtil.growExact(endOffsets, newLength);
+        }
+        this.numStoredFields[numBufferedDocs] = numStoredFieldsInDoc;
+        numStoredFieldsInDoc = 0;
+        endOffsets[numBufferedDocs] = bufferedDocs.getPosition() - dictionary.length;
+        ++numBufferedDocs;
+        if (triggerFlush()) {
+            flush();
+        }
+    }
+
+    private boolean triggerFlush() {
+        return bufferedDocs.getPosition() - dictionary.length >= chunkSize || // chunks of at least chunkSize bytes
+                numBufferedDocs >= maxDocsPerChunk;
+    }
+
+    private void flush() throws IOException {
+        if (numBlocks == blockNumDocs.length) {
+            // both arrays must keep the same length, grow them by the size of the larger element
+            final int newLength = ArrayUtil.oversize(numBlocks + 1, Long.BYTES);
+            blockNumDocs = ArrayUtil.growExact(blockNumDocs, newLength);
+            blockStartPointers = ArrayUtil.growExact(blockStartPointers, newLength);
+        }
+        blockNumDocs[numBlocks] = numBufferedDocs;
+        blockStartPointers[numBlocks] = fieldsStream.getFilePointer();
+        ++numBlocks;
+
+        // block header
+        fieldsStream.writeVInt(docBase);
+        fieldsStream.writeVInt(numBufferedDocs);
+        for (int i = 0; i < numBufferedDocs; ++i) {
+            fieldsStream.writeVInt(numStoredFields[i]);
+        }
+        for (int i = 0; i < numBufferedDocs; ++i) {
+            final int start = i == 0 ? 0 : endOffsets[i - 1];
+            fieldsStream.writeVInt(endOffsets[i] - start);
+        }
+
+        // compress stored fields to fieldsStream
+        final int length = bufferedDocs.getPosition() - dictionary.length;
+        LZ4.compressWithDictionary(bufferedDocs.getBytes(), 0, dictionary.length, length, fieldsStream, hashTable);
+
+        // reset
+        docBase += numBufferedDocs;
+        numBufferedDocs = 0;
+        bufferedDocs.reset();
+        bufferedDocs.writeBytes(dictionary, 0, dictionary.length);
+    }
+
+    @Override
+    public void writeField(FieldInfo info, IndexableField field) throws IOException {
+
+        ++numStoredFieldsInDoc;
+
+        int bits = 0;
+        final BytesRef bytes;
+        final String string;
+
+        Number number = field.numericValue();
+        if (number != null) {
+            if (number instanceof Byte || number instanceof Short || number instanceof Integer) {
+                bits = NUMERIC_INT;
+            } else if (number instanceof Long) {
+                bits = NUMERIC_LONG;
+            } else if (number instanceof Float) {
+                bits = NUMERIC_FLOAT;
+            } else if (number instanceof Double) {
+                bits = NUMERIC_DOUBLE;
+            } else {
+                throw new IllegalArgumentException("cannot store numeric type " + number.getClass());
+            }
+            string = null;
+            bytes = null;
+        } else {
+            bytes = field.binaryValue();
+            if (bytes != null) {
+                bits = BYTE_ARR;
+                string = null;
+            } else {
+                bits = STRING;
+                string = field.stringValue();
+                if (string == null) {
+                    throw new IllegalArgumentException("field " + field.name() + " is stored but does not have binaryValue, stringValue nor numericValue");
+                }
+            }
+        }
+
+        final long infoAndBits = (((long) info.number) << TYPE_BITS) | bits;
+        bufferedDocs.writeVLong(infoAndBits);
+
+        if (bytes != null) {
+            bufferedDocs.writeVInt(bytes.length);
+            bufferedDocs.writeBytes(bytes.bytes, bytes.offset, bytes.length);
+        } else if (string != null) {
+            bufferedDocs.writeString(string);
+        } else {
+            if (number instanceof Byte || number instanceof Short || number instanceof Integer) {
+                bufferedDocs.writeZInt(number.intValue());
+            } else if (number instanceof Long) {
+                bufferedDocs.writeZLong(number.longValue());
+            } else if (number instanceof Float) {
+                bufferedDocs.writeInt(Float.floatToIntBits(number.floatValue()));
+            } else if (number instanceof Double) {
+                bufferedDocs.writeLong(Double.doubleToLongBits(number.doubleValue()));
+            } else {
+                throw new AssertionError("Cannot get here");
+            }
+        }
+    }
+
+    @Override
+    public void finish(FieldInfos fis, int numDocs) throws IOException {
+        if (numBufferedDocs > 0) {
+            flush();
+        } else {
+            assert bufferedDocs.getPosition() == dictionary.length;
+        }
+        if (docBase != numDocs) {
+            throw new RuntimeException("Wrote " + docBase + " docs, finish called with numDocs=" + numDocs);
+        }
+        CodecUtil.writeFooter(fieldsStream);
+
+        indexStream.writeVInt(numDocs);
+        indexStream.writeVInt(numBlocks);
+        long previousStartPointer = 0;
+        for (int i = 0; i < numBlocks; ++i) {
+            indexStream.writeVInt(blockNumDocs[i]);
+            indexStream.writeVLong(blockStartPointers[i] - previousStartPointer);
+            previousStartPointer = blockStartPointers[i];
+        }
+        CodecUtil.writeFooter(indexStream);
+    }
+}
@@ -0,0 +1,88 @@
+package com.mythology.cloud.apollo.codecs.points;
+
+import com.mythology.cloud.apollo.codecs.PointsReader;
+import com.mythology.cloud.apollo.codecs.PointsWriter;
+import com.mythology.cloud.apollo.index.FieldInfos;
+import com.mythology.cloud.apollo.store.Directory;
+import com.mythology.cloud.apollo.util.bkd.BKDReader;
+import com.mythology.cloud.apollo.util.bkd.BKDWriter;
+
+import java.io.IOException;
+
+/**
+ * Points format that indexes every field in its own block KD-tree, see
+ * {@link BKDWriter} for the tree layout.
+ * <p>
+ * Files:
+ * <ol>
+ * <li><tt>.dim</tt>: the leaf blocks of every field, each followed by the index
+ * of its tree; leaf blocks are only read when a query intersects their cell
+ * <li><tt>.dii</tt>: the file pointer of the index of every field, fully loaded
+ * in memory when the segment is opened
+ * </ol>
+ * <p>
+ * Every field is opened as a {@link BKDReader}, which loads the split values
+ * and leaf file pointers of its tree on heap.
+ * <p>
+ * 点值格式：每个字段一棵块KD树，叶子块留在磁盘上，只有树的索引常驻内存。
+ * </p>
+ *
+ * @lucene.experimental
+ */
+public final class BKDPointsFormat {
+
+    static final String DATA_CODEC_NAME = "BKDPointsFormatData";
+    static final String META_CODEC_NAME = "BKDPointsFormatMeta";
+
+    /**
+     * Filename extension for the leaf blocks
+     */
+    public static final String DATA_EXTENSION = "dim";
+
+    /**
+     * Filename extension for the index per field
+     */
+    public static final String INDEX_EXTENSION = "dii";
+
+    static final int DATA_VERSION_START = 0;
+    static final int DATA_VERSION_CURRENT = DATA_VERSION_START;
+
+    static final int INDEX_VERSION_START = 0;
+    static final int INDEX_VERSION_CURRENT = INDEX_VERSION_START;
+
+    private BKDPointsFormat() {
+    }
+
+    /**
+     * Returns a {@link PointsWriter} to write points of a segment that has
+     * {@code maxDoc} documents, with at most {@code maxPointsInLeafNode} points
+     * per leaf block.
+     */
+    public static PointsWriter fieldsWriter(Directory directory, String segment, int maxDoc, int maxPointsInLeafNode) throws IOException {
+        return new BKDPointsWriter(directory, segment, maxDoc, maxPointsInLeafNode);
+    }
+
+    /**
+     * Returns a {@link PointsWriter} to write points of a segment that has
+     * {@code maxDoc} documents, with {@link BKDWriter#DEFAULT_MAX_POINTS_IN_LEAF_NODE}
+     * points per leaf block.
+     */
+    public static PointsWriter fieldsWriter(Directory directory, String segment, int maxDoc) throws IOException {
+        return fieldsWriter(directory, segment, maxDoc, BKDWriter.DEFAULT_MAX_POINTS_IN_LEAF_NODE);
+    }
+
+    /**
+     * Returns a {@link PointsReader} to read points of a segment.
+     */
+    public static PointsReader fieldsReader(Directory directory, String segment, FieldInfos fieldInfos) throws IOException {
+        return new BKDPointsReader(directory, segment, fieldInfos);
+    }
+
+    static String dataFileName(String segment) {
+        return segment + "." + DATA_EXTENSION;
+    }
+
+    static String indexFileName(String segment) {
+        return segment + "." + INDEX_EXTENSION;
+    }
+}
@@ -0,0 +1,117 @@
+package com.mythology.cloud.apollo.codecs.points;
+
+import com.mythology.cloud.apollo.codecs.CodecUtil;
+import com.mythology.cloud.apollo.codecs.PointsReader;
+import com.mythology.cloud.apollo.index.CorruptIndexException;
+import com.mythology.cloud.apollo.index.FieldInfo;
+import com.mythology.cloud.apollo.index.FieldInfos;
+import com.mythology.cloud.apollo.index.PointValues;
+import com.mythology.cloud.apollo.store.Directory;
+import com.mythology.cloud.apollo.store.IndexInput;
+import com.mythology.cloud.apollo.util.Accountable;
+import com.mythology.cloud.apollo.util.Accountables;
+import com.mythology.cloud.apollo.util.IOUtils;
+import com.mythology.cloud.apollo.util.bkd.BKDReader;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads point values previously written with {@link BKDPointsWriter}
+ *
+ * @lucene.experimental
+ */
+public final class BKDPointsReader extends PointsReader {
+
+    final IndexInput dataIn;
+    final Map<String, BKDReader> readers = new HashMap<>();
+
+    /**
+     * expert: instantiates a new reader
+     */
+    public BKDPointsReader(Directory directory, String segment, FieldInfos fieldInfos) throws IOException {
+        final Map<Integer, Long> fieldToFileOffset = new HashMap<>();
+        try (IndexInput indexIn = directory.openInput(BKDPointsFormat.indexFileName(segment))) {
+            CodecUtil.checkHeader(indexIn, BKDPointsFormat.META_CODEC_NAME,
+                    BKDPointsFormat.INDEX_VERSION_START, BKDPointsFormat.INDEX_VERSION_CURRENT);
+            int count = indexIn.readVInt();
+            for (int i = 0; i < count; i++) {
+                int fieldNumber = indexIn.readVInt();
+                long fp = indexIn.readVLong();
+                fieldToFileOffset.put(fieldNumber, fp);
+            }
+            CodecUtil.checkFooter(indexIn);
+        }
+
+        IndexInput dataIn = null;
+        boolean success = false;
+        try {
+            dataIn = directory.openInput(BKDPointsFormat.dataFileName(segment));
+            CodecUtil.checkHeader(dataIn, BKDPointsFormat.DATA_CODEC_NAME,
+                    BKDPointsFormat.DATA_VERSION_START, BKDPointsFormat.DATA_VERSION_CURRENT);
+            for (Map.Entry<Integer, Long> ent : fieldToFileOffset.entrySet()) {
+                FieldInfo info = fieldInfos.fieldInfo(ent.getKey());
+                if (info == null) {
+                    throw new CorruptIndexException("Invalid field number: " + ent.getKey(), dataIn);
+                }
+                dataIn.seek(ent.getValue());
+                BKDReader reader = new BKDReader(dataIn);
+                if (reader.getNumDataDimensions() != info.getPointDataDimensionCount()
+                        || reader.getNumIndexDimensions() != info.getPointIndexDimensionCount()
+                        || reader.getBytesPerDimension() != info.getPointNumBytes()) {
+                    throw new CorruptIndexException("point dimensions of field \"" + info.name + "\" do not match its FieldInfo", dataIn);
+                }
+                readers.put(info.name, reader);
+            }
+            this.dataIn = dataIn;
+            success = true;
+        } finally {
+            if (!success) {
+                IOUtils.closeWhileHandlingException(dataIn);
+            }
+        }
+    }
+
+    /**
+     * Returns the underlying {@link BKDReader}.
+     */
+    @Override
+    public PointValues getValues(String field) {
+        return readers.get(field);
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        long sizeInBytes = 0;
+        for (BKDReader reader : readers.values()) {
+            sizeInBytes += reader.ramBytesUsed();
+        }
+        return sizeInBytes;
+    }
+
+    @Override
+    public Collection<Accountable> getChildResources() {
+        List<Accountable> resources = new ArrayList<>();
+        for (Map.Entry<String, BKDReader> reader : readers.entrySet()) {
+            resources.add(Accountables.namedAccountable("field " + reader.getKey(), reader.getValue()));
+        }
+        return Collections.unmodifiableList(resources);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "(fields=" + readers.size() + ")";
+    }
+
+    @Override
+    public void close() throws IOException {
+        dataIn.close();
+        // Free up heap:
+        readers.clear();
+    }
+}
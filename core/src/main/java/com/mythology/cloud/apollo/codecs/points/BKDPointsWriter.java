@@ -0,0 +1,120 @@
+package com.mythology.cloud.apollo.codecs.points;
+
+import com.mythology.cloud.apollo.codecs.CodecUtil;
+import com.mythology.cloud.apollo.codecs.PointsWriter;
+import com.mythology.cloud.apollo.index.FieldInfo;
+import com.mythology.cloud.apollo.index.PointValues;
+import com.mythology.cloud.apollo.index.PointValues.IntersectVisitor;
+import com.mythology.cloud.apollo.index.PointValues.Relation;
+import com.mythology.cloud.apollo.store.Directory;
+import com.mythology.cloud.apollo.store.IndexOutput;
+import com.mythology.cloud.apollo.util.IOUtils;
+import com.mythology.cloud.apollo.util.bkd.BKDWriter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Writes dimensional values
+ *
+ * @lucene.experimental
+ */
+public final class BKDPointsWriter extends PointsWriter {
+
+    /**
+     * Output used to write the BKD tree data file
+     */
+    private IndexOutput dataOut;
+
+    /**
+     * Maps field number to the file pointer of the index of its tree
+     */
+    private final Map<Integer, Long> indexFPs = new TreeMap<>();
+
+    private final Directory directory;
+    private final String segment;
+    private final int maxDoc;
+    private final int maxPointsInLeafNode;
+    private boolean finished;
+
+    /**
+     * expert: Creates a new writer
+     */
+    public BKDPointsWriter(Directory directory, String segment, int maxDoc, int maxPointsInLeafNode) throws IOException {
+        this.directory = directory;
+        this.segment = segment;
+        this.maxDoc = maxDoc;
+        this.maxPointsInLeafNode = maxPointsInLeafNode;
+        boolean success = false;
+        try {
+            dataOut = directory.createOutput(BKDPointsFormat.dataFileName(segment));
+            CodecUtil.writeHeader(dataOut, BKDPointsFormat.DATA_CODEC_NAME, BKDPointsFormat.DATA_VERSION_CURRENT);
+            success = true;
+        } finally {
+            if (!success) {
+                IOUtils.closeWhileHandlingException(this);
+            }
+        }
+    }
+
+    @Override
+    public void writeField(FieldInfo fieldInfo, PointValues values) throws IOException {
+        if (fieldInfo.getPointDataDimensionCount() == 0) {
+            throw new IllegalArgumentException("field \"" + fieldInfo.name + "\" does not index points");
+        }
+        final BKDWriter writer = new BKDWriter(maxDoc,
+                fieldInfo.getPointDataDimensionCount(),
+                fieldInfo.getPointIndexDimensionCount(),
+                fieldInfo.getPointNumBytes(),
+                maxPointsInLeafNode);
+
+        values.intersect(new IntersectVisitor() {
+            @Override
+            public void visit(int docID) {
+                throw new IllegalStateException();
+            }
+
+            @Override
+            public void visit(int docID, byte[] packedValue) {
+                writer.add(packedValue, docID);
+            }
+
+            @Override
+            public Relation compare(byte[] minPackedValue, byte[] maxPackedValue) {
+                return Relation.CELL_CROSSES_QUERY;
+            }
+        });
+
+        // We could have 0 points on merge since all docs with dimensional fields may be deleted:
+        final long fp = writer.finish(dataOut);
+        if (fp != -1) {
+            indexFPs.put(fieldInfo.number, fp);
+        }
+    }
+
+    @Override
+    public void finish() throws IOException {
+        if (finished) {
+            throw new IllegalStateException("already finished");
+        }
+        finished = true;
+        CodecUtil.writeFooter(dataOut);
+
+        try (IndexOutput indexOut = directory.createOutput(BKDPointsFormat.indexFileName(segment))) {
+            CodecUtil.writeHeader(indexOut, BKDPointsFormat.META_CODEC_NAME, BKDPointsFormat.INDEX_VERSION_CURRENT);
+            indexOut.writeVInt(indexFPs.size());
+            for (Map.Entry<Integer, Long> ent : indexFPs.entrySet()) {
+                indexOut.writeVInt(ent.getKey());
+                indexOut.writeVLong(ent.getValue());
+            }
+            CodecUtil.writeFooter(indexOut);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOUtils.close(dataOut);
+        dataOut = null;
+    }
+}
@@ -0,0 +1,190 @@
+package com.mythology.cloud.apollo.codecs.postings;
+
+import com.mythology.cloud.apollo.codecs.BlockTermState;
+import com.mythology.cloud.apollo.codecs.PostingsReaderBase;
+import com.mythology.cloud.apollo.codecs.PostingsWriterBase;
+import com.mythology.cloud.apollo.index.FieldInfos;
+import com.mythology.cloud.apollo.index.IndexOptions;
+import com.mythology.cloud.apollo.index.TermState;
+import com.mythology.cloud.apollo.store.Directory;
+
+import java.io.IOException;
+
+/**
+ * Block-based postings format, which encodes postings in packed integer
+ * blocks for fast decode.
+ * <p>
+ * Postings of a term are split into blocks of {@link #BLOCK_SIZE} documents:
+ * full blocks are bit-packed with {@link ForUtil} (frame of reference: every
+ * value of a block uses the number of bits of the largest value), and the
+ * last, incomplete block is written with variable-length ints.
+ * <p>
+ * Every kind of data is written to its own stream, so that a reader only
+ * touches the streams that the {@link IndexOptions} of the field and the
+ * flags of the enum need:
+ * <ol>
+ * <li><tt>.doc</tt>: doc deltas of all terms, followed by the skip data of
+ * every term that has more than one block; always read
+ * <li><tt>.frq</tt>: term frequencies, if the field indexes frequencies;
+ * only read when frequencies are requested, so queries that do not score
+ * never touch this file
+ * <li><tt>.pos</tt>: position deltas, if the field indexes positions; only
+ * read when positions are requested
+ * <li><tt>.pay</tt>: payload lengths and bytes, start offset deltas and
+ * offset lengths, if the field indexes payloads or offsets; only read when
+ * payloads or offsets are requested
+ * </ol>
+ * <p>
+ * Skip data has one entry per full block, which gives the last doc of the
+ * block, the file pointers of the next block in every stream and the
+ * competitive (freq, norm) pairs of the block. Entries let
+ * {@link com.mythology.cloud.apollo.search.DocIdSetIterator#advance} jump
+ * over blocks without decoding them, and expose block-max impacts through
+ * {@link com.mythology.cloud.apollo.index.ImpactsEnum} so that top-k
+ * collection can skip blocks whose best score cannot compete.
+ * <p>
+ * The metadata of a term (file pointers into every stream, the doc ID of
+ * terms that occur in a single document, offset of the skip data) is written
+ * to the terms dictionary by {@link PostingsWriterBase#encodeTerm}.
+ * <p>
+ * 块倒排格式：每128篇文档一个帧参考位压缩块；文档、词频、位置、负载/偏移各写入独立文件，
+ * 只在IndexOptions和查询需要时读取；跳表为每个块记录最大影响因子，用于Top-K剪枝。
+ * </p>
+ *
+ * @lucene.experimental
+ */
+public final class BlockPostingsFormat {
+
+    /**
+     * Fixed packed block size, number of integers encoded in
+     * a single packed block.
+     */
+    public static final int BLOCK_SIZE = 128;
+
+    /**
+     * Filename extension for document number and skip data.
+     */
+    public static final String DOC_EXTENSION = "doc";
+
+    /**
+     * Filename extension for term frequencies.
+     */
+    public static final String FREQ_EXTENSION = "frq";
+
+    /**
+     * Filename extension for positions.
+     */
+    public static final String POS_EXTENSION = "pos";
+
+    /**
+     * Filename extension for payloads and offsets.
+     */
+    public static final String PAY_EXTENSION = "pay";
+
+    static final String TERMS_CODEC = "BlockPostingsFormatTerms";
+    static final String DOC_CODEC = "BlockPostingsFormatDoc";
+    static final String FREQ_CODEC = "BlockPostingsFormatFreq";
+    static final String POS_CODEC = "BlockPostingsFormatPos";
+    static final String PAY_CODEC = "BlockPostingsFormatPay";
+
+    static final int VERSION_START = 0;
+    static final int VERSION_CURRENT = VERSION_START;
+
+    private BlockPostingsFormat() {
+    }
+
+    /**
+     * Returns a {@link PostingsWriterBase} to write the postings of a segment.
+     * Files are only created for the features that at least one field of
+     * {@code fieldInfos} indexes.
+     */
+    public static PostingsWriterBase postingsWriter(Directory directory, String segment, FieldInfos fieldInfos) throws IOException {
+        return new BlockPostingsWriter(directory, segment, fieldInfos);
+    }
+
+    /**
+     * Returns a {@link PostingsReaderBase} to read the postings of a segment.
+     */
+    public static PostingsReaderBase postingsReader(Directory directory, String segment, FieldInfos fieldInfos) throws IOException {
+        return new BlockPostingsReader(directory, segment, fieldInfos);
+    }
+
+    static String fileName(String segment, String extension) {
+        return segment + "." + extension;
+    }
+
+    /**
+     * Holds all state required for {@link BlockPostingsReader} to produce a
+     * {@link com.mythology.cloud.apollo.index.PostingsEnum} without re-seeking the terms dict.
+     *
+     * @lucene.internal
+     */
+    public static final class IntBlockTermState extends BlockTermState {
+        /**
+         * file pointer to the start of the doc ids enumeration, in {@link #DOC_EXTENSION} file
+         */
+        public long docStartFP;
+        /**
+         * file pointer to the start of the frequencies, in {@link #FREQ_EXTENSION} file
+         */
+        public long freqStartFP;
+        /**
+         * file pointer to the start of the positions enumeration, in {@link #POS_EXTENSION} file
+         */
+        public long posStartFP;
+        /**
+         * file pointer to the start of the data enumeration, in {@link #PAY_EXTENSION} file
+         */
+        public long payStartFP;
+        /**
+         * file offset for the start of the skip list, relative to docStartFP, if there are more
+         * than {@link #BLOCK_SIZE} docs; otherwise -1
+         */
+        public long skipOffset;
+        /**
+         * file offset for the last position in the last block, if there are more than
+         * {@link #BLOCK_SIZE} positions; otherwise -1
+         */
+        public long lastPosBlockOffset;
+        /**
+         * docid when there is a single pulsed posting, otherwise -1.
+         * freq is always implicitly totalTermFreq in this case.
+         */
+        public int singletonDocID;
+
+        /**
+         * Sole constructor.
+         */
+        public IntBlockTermState() {
+            skipOffset = -1;
+            lastPosBlockOffset = -1;
+            singletonDocID = -1;
+        }
+
+        @Override
+        public IntBlockTermState clone() {
+            IntBlockTermState other = new IntBlockTermState();
+            other.copyFrom(this);
+            return other;
+        }
+
+        @Override
+        public void copyFrom(TermState _other) {
+            super.copyFrom(_other);
+            IntBlockTermState other = (IntBlockTermState) _other;
+            docStartFP = other.docStartFP;
+            freqStartFP = other.freqStartFP;
+            posStartFP = other.posStartFP;
+            payStartFP = other.payStartFP;
+            lastPosBlockOffset = other.lastPosBlockOffset;
+            skipOffset = other.skipOffset;
+            singletonDocID = other.singletonDocID;
+        }
+
+        @Override
+        public String toString() {
+            return super.toString() + " docStartFP=" + docStartFP + " freqStartFP=" + freqStartFP + " posStartFP=" + posStartFP
+                    + " payStartFP=" + payStartFP + " lastPosBlockOffset=" + lastPosBlockOffset + " singletonDocID=" + singletonDocID;
+        }
+    }
+}
@@ -0,0 +1,851 @@
+package com.mythology.cloud.apollo.codecs.postings;
+
+import com.mythology.cloud.apollo.codecs.BlockTermState;
+import com.mythology.cloud.apollo.codecs.CodecUtil;
+import com.mythology.cloud.apollo.codecs.PostingsReaderBase;
+import com.mythology.cloud.apollo.codecs.postings.BlockPostingsFormat.IntBlockTermState;
+import com.mythology.cloud.apollo.index.FieldInfo;
+import com.mythology.cloud.apollo.index.FieldInfos;
+import com.mythology.cloud.apollo.index.Impact;
+import com.mythology.cloud.apollo.index.Impacts;
+import com.mythology.cloud.apollo.index.ImpactsEnum;
+import com.mythology.cloud.apollo.index.IndexOptions;
+import com.mythology.cloud.apollo.index.PostingsEnum;
+import com.mythology.cloud.apollo.store.DataInput;
+import com.mythology.cloud.apollo.store.Directory;
+import com.mythology.cloud.apollo.store.IndexInput;
+import com.mythology.cloud.apollo.util.ArrayUtil;
+import com.mythology.cloud.apollo.util.BytesRef;
+import com.mythology.cloud.apollo.util.IOUtils;
+import com.mythology.cloud.apollo.util.RamUsageEstimator;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.mythology.cloud.apollo.codecs.postings.BlockPostingsFormat.BLOCK_SIZE;
+
+/**
+ * Concrete class that reads docId(maybe frq,pos,offset,payloads) list
+ * with {@link BlockPostingsFormat}.
+ * <p>
+ * Enums only clone and read the streams that both the field and the
+ * requested flags need: the <tt>.frq</tt> file is not read unless
+ * {@link PostingsEnum#FREQS} is requested, the <tt>.pos</tt> file unless
+ * {@link PostingsEnum#POSITIONS} is requested, and the <tt>.pay</tt> file
+ * unless {@link PostingsEnum#OFFSETS} or {@link PostingsEnum#PAYLOADS} is
+ * requested.
+ *
+ * @lucene.experimental
+ */
+public final class BlockPostingsReader extends PostingsReaderBase {
+
+    private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(BlockPostingsReader.class);
+
+    /**
+     * Impacts of postings that have no skip data: any freq and the best norm.
+     */
+    private static final List<Impact> DUMMY_IMPACTS = Collections.singletonList(new Impact(Integer.MAX_VALUE, 1L));
+
+    private final IndexInput docIn;
+    private final IndexInput freqIn;
+    private final IndexInput posIn;
+    private final IndexInput payIn;
+
+    /**
+     * Sole constructor.
+     */
+    public BlockPostingsReader(Directory directory, String segment, FieldInfos fieldInfos) throws IOException {
+        boolean success = false;
+        IndexInput docIn = null;
+        IndexInput freqIn = null;
+        IndexInput posIn = null;
+        IndexInput payIn = null;
+
+        try {
+            docIn = openInput(directory, segment, BlockPostingsFormat.DOC_EXTENSION, BlockPostingsFormat.DOC_CODEC);
+            if (fieldInfos.hasFreq()) {
+                freqIn = openInput(directory, segment, BlockPostingsFormat.FREQ_EXTENSION, BlockPostingsFormat.FREQ_CODEC);
+            }
+            if (fieldInfos.hasProx()) {
+                posIn = openInput(directory, segment, BlockPostingsFormat.POS_EXTENSION, BlockPostingsFormat.POS_CODEC);
+                if (fieldInfos.hasPayloads() || fieldInfos.hasOffsets()) {
+                    payIn = openInput(directory, segment, BlockPostingsFormat.PAY_EXTENSION, BlockPostingsFormat.PAY_CODEC);
+                }
+            }
+
+            this.docIn = docIn;
+            this.freqIn = freqIn;
+            this.posIn = posIn;
+            this.payIn = payIn;
+            success = true;
+        } finally {
+            if (!success) {
+                IOUtils.closeWhileHandlingException(docIn, freqIn, posIn, payIn);
+            }
+        }
+    }
+
+    private static IndexInput openInput(Directory directory, String segment, String extension, String codec) throws IOException {
+        final IndexInput in = directory.openInput(BlockPostingsFormat.fileName(segment, extension));
+        boolean success = false;
+        try {
+            CodecUtil.checkFooter(in);
+            in.seek(0);
+            CodecUtil.checkHeader(in, codec, BlockPostingsFormat.VERSION_START, BlockPostingsFormat.VERSION_CURRENT);
+            success = true;
+            return in;
+        } finally {
+            if (!success) {
+                IOUtils.closeWhileHandlingException(in);
+            }
+        }
+    }
+
+    @Override
+    public void init(IndexInput termsIn) throws IOException {
+        // Make sure we are talking to the matching postings writer
+        CodecUtil.checkHeader(termsIn, BlockPostingsFormat.TERMS_CODEC, BlockPostingsFormat.VERSION_START, BlockPostingsFormat.VERSION_CURRENT);
+        final int indexBlockSize = termsIn.readVInt();
+        if (indexBlockSize != BLOCK_SIZE) {
+            throw new IllegalStateException("index-time BLOCK_SIZE (" + indexBlockSize + ") != read-time BLOCK_SIZE (" + BLOCK_SIZE + ")");
+        }
+    }
+
+    @Override
+    public BlockTermState newTermState() {
+        return new IntBlockTermState();
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOUtils.close(docIn, freqIn, posIn, payIn);
+    }
+
+    @Override
+    public void decodeTerm(DataInput in, FieldInfo fieldInfo, BlockTermState _termState, boolean absolute) throws IOException {
+        final IntBlockTermState termState = (IntBlockTermState) _termState;
+        final IndexOptions indexOptions = fieldInfo.getIndexOptions();
+        final boolean fieldHasFreqs = indexOptions.compareTo(IndexOptions.DOCS_AND_FREQS) >= 0;
+        final boolean fieldHasPositions = indexOptions.compareTo(IndexOptions.DOCS_AND_FREQS_AND_POSITIONS) >= 0;
+        final boolean fieldHasOffsets = indexOptions.compareTo(IndexOptions.DOCS_AND_FREQS_AND_POSITIONS_AND_OFFSETS) >= 0;
+        final boolean fieldHasPayloads = fieldHasPositions && fieldInfo.hasPayloads();
+
+        if (absolute) {
+            termState.docStartFP = 0;
+            termState.freqStartFP = 0;
+            termState.posStartFP = 0;
+            termState.payStartFP = 0;
+        }
+
+        termState.docStartFP += in.readVLong();
+        if (fieldHasFreqs) {
+            termState.freqStartFP += in.readVLong();
+        }
+        if (fieldHasPositions) {
+            termState.posStartFP += in.readVLong();
+            if (fieldHasOffsets || fieldHasPayloads) {
+                termState.payStartFP += in.readVLong();
+            }
+        }
+        if (termState.docFreq == 1) {
+            termState.singletonDocID = in.readVInt();
+        } else {
+            termState.singletonDocID = -1;
+        }
+        if (fieldHasPositions && termState.totalTermFreq > BLOCK_SIZE) {
+            termState.lastPosBlockOffset = in.readVLong();
+        } else {
+            termState.lastPosBlockOffset = -1;
+        }
+        if (termState.docFreq > BLOCK_SIZE) {
+            termState.skipOffset = in.readVLong();
+        } else {
+            termState.skipOffset = -1;
+        }
+    }
+
+    @Override
+    public PostingsEnum postings(FieldInfo fieldInfo, BlockTermState termState, PostingsEnum reuse, int flags) throws IOException {
+        boolean indexHasPositions = fieldInfo.getIndexOptions().compareTo(IndexOptions.DOCS_AND_FREQS_AND_POSITIONS) >= 0;
+
+        if (indexHasPositions == false || PostingsEnum.featureRequested(flags, PostingsEnum.POSITIONS) == false) {
+            BlockDocsEnum docsEnum;
+            if (reuse instanceof BlockDocsEnum) {
+                docsEnum = (BlockDocsEnum) reuse;
+                if (!docsEnum.canReuse(docIn, fieldInfo)) {
+                    docsEnum = new BlockDocsEnum(fieldInfo);
+                }
+            } else {
+                docsEnum = new BlockDocsEnum(fieldInfo);
+            }
+            return docsEnum.reset((IntBlockTermState) termState, flags);
+        } else {
+            EverythingEnum everythingEnum;
+            if (reuse instanceof EverythingEnum) {
+                everythingEnum = (EverythingEnum) reuse;
+                if (!everythingEnum.canReuse(docIn, fieldInfo)) {
+                    everythingEnum = new EverythingEnum(fieldInfo);
+                }
+            } else {
+                everythingEnum = new EverythingEnum(fieldInfo);
+            }
+            return everythingEnum.reset((IntBlockTermState) termState, flags);
+        }
+    }
+
+    @Override
+    public ImpactsEnum impacts(FieldInfo fieldInfo, BlockTermState state, int flags) throws IOException {
+        // both enums read block-max impacts from the skip data
+        return (ImpactsEnum) postings(fieldInfo, state, null, flags);
+    }
+
+    /**
+     * Doc and freq iteration and skipping, shared by all enums.
+     */
+    abstract class AbstractBlockEnum extends ImpactsEnum {
+
+        final ForUtil forUtil = new ForUtil();
+        final int[] docDeltaBuffer = new int[BLOCK_SIZE];
+        final int[] freqBuffer = new int[BLOCK_SIZE];
+
+        int docBufferUpto;
+
+        private BlockSkipReader skipper;
+        private boolean skipped;
+
+        final IndexInput startDocIn;
+
+        IndexInput docIn;
+        IndexInput freqIn;
+        final boolean indexHasFreq;
+        final boolean indexHasPos;
+        final boolean indexHasOffsets;
+        final boolean indexHasPayloads;
+
+        int docFreq;            // number of docs in this posting list
+        long totalTermFreq;     // sum of freqs in this posting list (or docFreq when omitted)
+        int docUpto;            // how many docs we've read
+        int doc;                // doc we last read
+        int accum;              // accumulator for doc deltas
+        int freq;               // freq we last read
+        long posPendingCount;   // number of positions of the docs that were read, that were not consumed
+
+        // Where this term's postings start in the .doc file:
+        long docTermStartFP;
+        // Where this term's postings start in the .frq file:
+        long freqTermStartFP;
+        // Where this term's postings start in the .pos file:
+        long posTermStartFP;
+        // Where this term's payloads/offsets start in the .pay file:
+        long payTermStartFP;
+
+        // Where the skip data of this term starts, relative to docTermStartFP,
+        // or -1 if the term has a single block:
+        long skipOffset;
+
+        // docID for next skip point, we won't use skipper if
+        // target docID is not larger than this
+        private int nextSkipDoc;
+        // number of leading blocks that have been consumed by the skipper
+        private int skipEntry;
+        // skip entry of the block that holds upcoming impacts
+        private int impactEntry;
+        private List<Impact> impacts = DUMMY_IMPACTS;
+
+        private int singletonDocID; // docid when there is a single pulsed posting, otherwise -1
+
+        boolean needsFreq; // true if the caller actually needs frequencies
+
+        AbstractBlockEnum(FieldInfo fieldInfo) {
+            this.startDocIn = BlockPostingsReader.this.docIn;
+            this.docIn = null;
+            indexHasFreq = fieldInfo.getIndexOptions().compareTo(IndexOptions.DOCS_AND_FREQS) >= 0;
+            indexHasPos = fieldInfo.getIndexOptions().compareTo(IndexOptions.DOCS_AND_FREQS_AND_POSITIONS) >= 0;
+            indexHasOffsets = fieldInfo.getIndexOptions().compareTo(IndexOptions.DOCS_AND_FREQS_AND_POSITIONS_AND_OFFSETS) >= 0;
+            indexHasPayloads = indexHasPos && fieldInfo.hasPayloads();
+        }
+
+        boolean canReuse(IndexInput docIn, FieldInfo fieldInfo) {
+            return docIn == startDocIn &&
+                    indexHasFreq == (fieldInfo.getIndexOptions().compareTo(IndexOptions.DOCS_AND_FREQS) >= 0) &&
+                    indexHasPos == (fieldInfo.getIndexOptions().compareTo(IndexOptions.DOCS_AND_FREQS_AND_POSITIONS) >= 0) &&
+                    indexHasOffsets == (fieldInfo.getIndexOptions().compareTo(IndexOptions.DOCS_AND_FREQS_AND_POSITIONS_AND_OFFSETS) >= 0) &&
+                    indexHasPayloads == (indexHasPos && fieldInfo.hasPayloads());
+        }
+
+        void resetTerm(IntBlockTermState termState, boolean needsFreq) throws IOException {
+            docFreq = termState.docFreq;
+            totalTermFreq = indexHasFreq ? termState.totalTermFreq : docFreq;
+            docTermStartFP = termState.docStartFP;
+            freqTermStartFP = termState.freqStartFP;
+            posTermStartFP = termState.posStartFP;
+            payTermStartFP = termState.payStartFP;
+            skipOffset = termState.skipOffset;
+            singletonDocID = termState.singletonDocID;
+            this.needsFreq = needsFreq && indexHasFreq;
+            if (docFreq > 1) {
+                if (docIn == null) {
+                    // lazy init
+                    docIn = startDocIn.clone();
+                }
+                docIn.seek(docTermStartFP);
+                if (this.needsFreq) {
+                    if (freqIn == null) {
+                        freqIn = BlockPostingsReader.this.freqIn.clone();
+                    }
+                    freqIn.seek(freqTermStartFP);
+                }
+            }
+            if (this.needsFreq == false) {
+                // freqs are not read: report 1 for every doc
+                Arrays.fill(freqBuffer, 1);
+            }
+
+            doc = -1;
+            accum = 0;
+            docUpto = 0;
+            posPendingCount = 0;
+            nextSkipDoc = BLOCK_SIZE - 1; // we won't skip if target is found in first block
+            docBufferUpto = BLOCK_SIZE;
+            skipped = false;
+            skipEntry = 0;
+            impactEntry = 0;
+        }
+
+        @Override
+        public int freq() throws IOException {
+            return freq;
+        }
+
+        @Override
+        public int docID() {
+            return doc;
+        }
+
+        private void refillDocs() throws IOException {
+            final int left = docFreq - docUpto;
+            assert left > 0;
+
+            if (left >= BLOCK_SIZE) {
+                forUtil.readBlock(docIn, docDeltaBuffer);
+                if (needsFreq) {
+                    forUtil.readBlock(freqIn, freqBuffer);
+                }
+            } else if (docFreq == 1) {
+                docDeltaBuffer[0] = singletonDocID;
+                if (needsFreq) {
+                    freqBuffer[0] = (int) totalTermFreq;
+                }
+            } else {
+                // Read vInts:
+                for (int i = 0; i < left; ++i) {
+                    docDeltaBuffer[i] = docIn.readVInt();
+                }
+                if (needsFreq) {
+                    for (int i = 0; i < left; ++i) {
+                        freqBuffer[i] = freqIn.readVInt();
+                    }
+                }
+            }
+            docBufferUpto = 0;
+        }
+
+        @Override
+        public int nextDoc() throws IOException {
+            if (docUpto == docFreq) {
+                return doc = NO_MORE_DOCS;
+            }
+            if (docBufferUpto == BLOCK_SIZE) {
+                refillDocs();
+            }
+
+            accum += docDeltaBuffer[docBufferUpto];
+            freq = freqBuffer[docBufferUpto];
+            posPendingCount += freq;
+            docUpto++;
+            docBufferUpto++;
+
+            doc = accum;
+            return doc;
+        }
+
+        private BlockSkipReader skipper() throws IOException {
+            assert docFreq > BLOCK_SIZE;
+            if (skipper == null) {
+                // Lazy init: first time this enum has ever been used for skipping
+                skipper = new BlockSkipReader(startDocIn.clone(), indexHasFreq, indexHasPos, indexHasOffsets, indexHasPayloads);
+            }
+            if (!skipped) {
+                assert skipOffset != -1;
+                // This is the first time this enum has skipped
+                // since reset() was called; load the skip data:
+                skipper.init(docTermStartFP + skipOffset, docTermStartFP, freqTermStartFP, posTermStartFP, payTermStartFP, docFreq);
+                skipped = true;
+            }
+            return skipper;
+        }
+
+        /**
+         * Called after the doc and freq streams have been moved to the block
+         * that follows the given skip entry.
+         */
+        void afterSkip(BlockSkipReader skipper, int entry) {
+        }
+
+        @Override
+        public int advance(int target) throws IOException {
+            // current skip docID < docIDs generated from current buffer <= next skip docID
+            // we don't need to skip if target is buffered already
+            if (docFreq > BLOCK_SIZE && target > nextSkipDoc) {
+                final BlockSkipReader skipper = skipper();
+
+                // all blocks before this entry end before target
+                final int entry = skipper.firstEntryOnOrAfter(skipEntry, target);
+                final int newDocUpto = entry * BLOCK_SIZE;
+
+                if (newDocUpto > docUpto) {
+                    // Skipper moved
+                    assert entry > 0;
+                    docUpto = newDocUpto;
+
+                    // Force to read next block
+                    docBufferUpto = BLOCK_SIZE;
+                    accum = skipper.doc(entry - 1);
+                    docIn.seek(skipper.docFP(entry - 1));
+                    if (needsFreq) {
+                        freqIn.seek(skipper.freqFP(entry - 1));
+                    }
+                    afterSkip(skipper, entry - 1);
+                }
+                skipEntry = entry;
+                // next time we call advance, this is used to
+                // foresee whether skipper is necessary.
+                nextSkipDoc = skipper.docIdUpTo(entry);
+            }
+            if (docUpto == docFreq) {
+                return doc = NO_MORE_DOCS;
+            }
+            if (docBufferUpto == BLOCK_SIZE) {
+                refillDocs();
+            }
+
+            // Now scan... this is an inlined/pared down version
+            // of nextDoc():
+            while (true) {
+                accum += docDeltaBuffer[docBufferUpto];
+                freq = freqBuffer[docBufferUpto];
+                posPendingCount += freq;
+                docUpto++;
+                docBufferUpto++;
+
+                if (accum >= target) {
+                    break;
+                }
+                if (docUpto == docFreq) {
+                    return doc = NO_MORE_DOCS;
+                }
+            }
+
+            return doc = accum;
+        }
+
+        @Override
+        public void advanceShallow(int target) throws IOException {
+            if (docFreq > BLOCK_SIZE) {
+                impactEntry = skipper().firstEntryOnOrAfter(impactEntry, target);
+            }
+        }
+
+        @Override
+        public Impacts getImpacts() throws IOException {
+            if (docFreq > BLOCK_SIZE) {
+                final BlockSkipReader skipper = skipper();
+                impactEntry = skipper.firstEntryOnOrAfter(impactEntry, doc);
+                if (impactEntry < skipper.numEntries()) {
+                    impacts = skipper.impacts(impactEntry);
+                } else {
+                    // the last block has no skip entry
+                    impacts = DUMMY_IMPACTS;
+                }
+            } else {
+                impacts = DUMMY_IMPACTS;
+            }
+            return impactsView;
+        }
+
+        private final Impacts impactsView = new Impacts() {
+            @Override
+            public int numLevels() {
+                return 1;
+            }
+
+            @Override
+            public int getDocIdUpTo(int level) {
+                if (docFreq > BLOCK_SIZE) {
+                    return skipper.docIdUpTo(impactEntry);
+                }
+                return NO_MORE_DOCS;
+            }
+
+            @Override
+            public List<Impact> getImpacts(int level) {
+                return impacts;
+            }
+        };
+
+        @Override
+        public long cost() {
+            return docFreq;
+        }
+    }
+
+    /**
+     * Enum over doc IDs, and freqs only if requested.
+     */
+    final class BlockDocsEnum extends AbstractBlockEnum {
+
+        BlockDocsEnum(FieldInfo fieldInfo) {
+            super(fieldInfo);
+        }
+
+        BlockDocsEnum reset(IntBlockTermState termState, int flags) throws IOException {
+            resetTerm(termState, PostingsEnum.featureRequested(flags, PostingsEnum.FREQS));
+            return this;
+        }
+
+        @Override
+        public int nextPosition() throws IOException {
+            return -1;
+        }
+
+        @Override
+        public int startOffset() throws IOException {
+            return -1;
+        }
+
+        @Override
+        public int endOffset() throws IOException {
+            return -1;
+        }
+
+        @Override
+        public BytesRef getPayload() throws IOException {
+            return null;
+        }
+    }
+
+    /**
+     * Enum over doc IDs, freqs and positions, and offsets and payloads if requested.
+     */
+    final class EverythingEnum extends AbstractBlockEnum {
+
+        private final int[] posDeltaBuffer = new int[BLOCK_SIZE];
+
+        private final int[] payloadLengthBuffer;
+        private final int[] offsetStartDeltaBuffer;
+        private final int[] offsetLengthBuffer;
+
+        private byte[] payloadBytes;
+        private int payloadByteUpto;
+        private int payloadLength;
+
+        private int lastStartOffset;
+        private int startOffset;
+        private int endOffset;
+
+        private int posBufferUpto;
+
+        IndexInput posIn;
+        IndexInput payIn;
+        final BytesRef payload;
+
+        private int position;   // current position
+
+        // Lazy pos seek: if != -1 then we must seek to this FP
+        // before reading positions:
+        private long posPendingFP;
+
+        // Lazy pay seek: if != -1 then we must seek to this FP
+        // before reading payloads/offsets:
+        private long payPendingFP;
+
+        // File pointer where the last (vInt encoded) pos delta
+        // block is.  We need this to know whether to bulk
+        // decode vs vInt decode the block:
+        private long lastPosBlockFP;
+
+        private boolean needsOffsets; // true if we actually need offsets
+        private boolean needsPayloads; // true if we actually need payloads
+
+        EverythingEnum(FieldInfo fieldInfo) throws IOException {
+            super(fieldInfo);
+            this.posIn = BlockPostingsReader.this.posIn.clone();
+            if (indexHasOffsets) {
+                offsetStartDeltaBuffer = new int[BLOCK_SIZE];
+                offsetLengthBuffer = new int[BLOCK_SIZE];
+            } else {
+                offsetStartDeltaBuffer = null;
+                offsetLengthBuffer = null;
+                startOffset = -1;
+                endOffset = -1;
+            }
+
+            if (indexHasPayloads) {
+                payloadLengthBuffer = new int[BLOCK_SIZE];
+                payloadBytes = new byte[128];
+                payload = new BytesRef();
+            } else {
+                payloadLengthBuffer = null;
+                payloadBytes = null;
+                payload = null;
+            }
+        }
+
+        EverythingEnum reset(IntBlockTermState termState, int flags) throws IOException {
+            resetTerm(termState, true);
+            this.needsOffsets = indexHasOffsets && PostingsEnum.featureRequested(flags, PostingsEnum.OFFSETS);
+            this.needsPayloads = indexHasPayloads && PostingsEnum.featureRequested(flags, PostingsEnum.PAYLOADS);
+            if ((needsOffsets || needsPayloads) && payIn == null) {
+                // lazy init: the .pay file is never read unless offsets or payloads are requested
+                payIn = BlockPostingsReader.this.payIn.clone();
+            }
+
+            posPendingFP = posTermStartFP;
+            payPendingFP = payTermStartFP;
+            if (totalTermFreq < BLOCK_SIZE) {
+                lastPosBlockFP = posTermStartFP;
+            } else if (totalTermFreq == BLOCK_SIZE) {
+                lastPosBlockFP = -1;
+            } else {
+                lastPosBlockFP = posTermStartFP + termState.lastPosBlockOffset;
+            }
+            position = 0;
+            lastStartOffset = 0;
+            posBufferUpto = BLOCK_SIZE;
+            return this;
+        }
+
+        @Override
+        public int nextDoc() throws IOException {
+            final int doc = super.nextDoc();
+            position = 0;
+            lastStartOffset = 0;
+            return doc;
+        }
+
+        @Override
+        public int advance(int target) throws IOException {
+            final int doc = super.advance(target);
+            position = 0;
+            lastStartOffset = 0;
+            return doc;
+        }
+
+        @Override
+        void afterSkip(BlockSkipReader skipper, int entry) {
+            posPendingFP = skipper.posFP(entry);
+            payPendingFP = skipper.payFP(entry);
+            posPendingCount = skipper.posBufferUpto(entry);
+            payloadByteUpto = skipper.payloadByteUpto(entry);
+        }
+
+        private void refillPositions() throws IOException {
+            if (posIn.getFilePointer() == lastPosBlockFP) {
+                final int count = (int) (totalTermFreq % BLOCK_SIZE);
+                int payloadLength = 0;
+                int offsetLength = 0;
+                payloadByteUpto = 0;
+                for (int i = 0; i < count; i++) {
+                    int code = posIn.readVInt();
+                    if (indexHasPayloads) {
+                        if ((code & 1) != 0) {
+                            payloadLength = posIn.readVInt();
+                        }
+                        payloadLengthBuffer[i] = payloadLength;
+                        posDeltaBuffer[i] = code >>> 1;
+                        if (payloadLength != 0) {
+                            if (payloadByteUpto + payloadLength > payloadBytes.length) {
+                                payloadBytes = ArrayUtil.grow(payloadBytes, payloadByteUpto + payloadLength);
+                            }
+                            posIn.readBytes(payloadBytes, payloadByteUpto, payloadLength);
+                            payloadByteUpto += payloadLength;
+                        }
+                    } else {
+                        posDeltaBuffer[i] = code;
+                    }
+
+                    if (indexHasOffsets) {
+                        int deltaCode = posIn.readVInt();
+                        if ((deltaCode & 1) != 0) {
+                            offsetLength = posIn.readVInt();
+                        }
+                        offsetStartDeltaBuffer[i] = deltaCode >>> 1;
+                        offsetLengthBuffer[i] = offsetLength;
+                    }
+                }
+                payloadByteUpto = 0;
+            } else {
+                forUtil.readBlock(posIn, posDeltaBuffer);
+
+                if (needsPayloads || needsOffsets) {
+                    if (indexHasPayloads) {
+                        if (needsPayloads) {
+                            forUtil.readBlock(payIn, payloadLengthBuffer);
+                            int numBytes = payIn.readVInt();
+                            if (numBytes > payloadBytes.length) {
+                                payloadBytes = ArrayUtil.grow(payloadBytes, numBytes);
+                            }
+                            payIn.readBytes(payloadBytes, 0, numBytes);
+                        } else {
+                            // this works, because when writing a vint block we always force the first length to be written
+                            forUtil.skipBlock(payIn); // skip over lengths
+                            int numBytes = payIn.readVInt(); // read length of payloadBytes
+                            payIn.seek(payIn.getFilePointer() + numBytes); // skip over payloadBytes
+                        }
+                        payloadByteUpto = 0;
+                    }
+
+                    if (indexHasOffsets) {
+                        if (needsOffsets) {
+                            forUtil.readBlock(payIn, offsetStartDeltaBuffer);
+                            forUtil.readBlock(payIn, offsetLengthBuffer);
+                        } else {
+                            // this works, because when writing a vint block we always force the first length to be written
+                            forUtil.skipBlock(payIn); // skip over starts
+                            forUtil.skipBlock(payIn); // skip over lengths
+                        }
+                    }
+                }
+            }
+        }
+
+        private void skipPositions() throws IOException {
+            // Skip positions now:
+            long toSkip = posPendingCount - freq;
+
+            final int leftInBlock = BLOCK_SIZE - posBufferUpto;
+            if (toSkip < leftInBlock) {
+                int end = (int) (posBufferUpto + toSkip);
+                while (posBufferUpto < end) {
+                    if (needsPayloads) {
+                        payloadByteUpto += payloadLengthBuffer[posBufferUpto];
+                    }
+                    posBufferUpto++;
+                }
+            } else {
+                toSkip -= leftInBlock;
+                while (toSkip >= BLOCK_SIZE) {
+                    assert posIn.getFilePointer() != lastPosBlockFP;
+                    forUtil.skipBlock(posIn);
+
+                    if (needsPayloads || needsOffsets) {
+                        if (indexHasPayloads) {
+                            // Skip payloadLength block:
+                            forUtil.skipBlock(payIn);
+
+                            // Skip payloadBytes block:
+                            int numBytes = payIn.readVInt();
+                            payIn.seek(payIn.getFilePointer() + numBytes);
+                        }
+
+                        if (indexHasOffsets) {
+                            forUtil.skipBlock(payIn);
+                            forUtil.skipBlock(payIn);
+                        }
+                    }
+                    toSkip -= BLOCK_SIZE;
+                }
+                refillPositions();
+                payloadByteUpto = 0;
+                posBufferUpto = 0;
+                while (posBufferUpto < toSkip) {
+                    if (needsPayloads) {
+                        payloadByteUpto += payloadLengthBuffer[posBufferUpto];
+                    }
+                    posBufferUpto++;
+                }
+            }
+
+            position = 0;
+            lastStartOffset = 0;
+        }
+
+        @Override
+        public int nextPosition() throws IOException {
+            assert posPendingCount > 0;
+
+            if (posPendingFP != -1) {
+                posIn.seek(posPendingFP);
+                posPendingFP = -1;
+
+                if (payPendingFP != -1 && payIn != null) {
+                    payIn.seek(payPendingFP);
+                    payPendingFP = -1;
+                }
+
+                // Force buffer refill:
+                posBufferUpto = BLOCK_SIZE;
+            }
+
+            if (posPendingCount > freq) {
+                skipPositions();
+                posPendingCount = freq;
+            }
+
+            if (posBufferUpto == BLOCK_SIZE) {
+                refillPositions();
+                posBufferUpto = 0;
+            }
+            position += posDeltaBuffer[posBufferUpto];
+
+            if (needsPayloads) {
+                payloadLength = payloadLengthBuffer[posBufferUpto];
+                payload.bytes = payloadBytes;
+                payload.offset = payloadByteUpto;
+                payload.length = payloadLength;
+                payloadByteUpto += payloadLength;
+            }
+
+            if (needsOffsets) {
+                startOffset = lastStartOffset + offsetStartDeltaBuffer[posBufferUpto];
+                endOffset = startOffset + offsetLengthBuffer[posBufferUpto];
+                lastStartOffset = startOffset;
+            }
+
+            posBufferUpto++;
+            posPendingCount--;
+            return position;
+        }
+
+        @Override
+        public int startOffset() {
+            return needsOffsets ? startOffset : -1;
+        }
+
+        @Override
+        public int endOffset() {
+            return needsOffsets ? endOffset : -1;
+        }
+
+        @Override
+        public BytesRef getPayload() {
+            if (needsPayloads == false || payloadLength == 0) {
+                return null;
+            } else {
+                return payload;
+            }
+        }
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        return BASE_RAM_BYTES_USED;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "(positions=" + (posIn != null) + ",payloads=" + (payIn != null) + ")";
+    }
+}
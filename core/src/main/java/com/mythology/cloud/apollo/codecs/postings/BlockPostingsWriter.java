@@ -0,0 +1,451 @@
+package com.mythology.cloud.apollo.codecs.postings;
+
+import com.mythology.cloud.apollo.codecs.BlockTermState;
+import com.mythology.cloud.apollo.codecs.CodecUtil;
+import com.mythology.cloud.apollo.codecs.CompetitiveImpactAccumulator;
+import com.mythology.cloud.apollo.codecs.PostingsWriterBase;
+import com.mythology.cloud.apollo.codecs.postings.BlockPostingsFormat.IntBlockTermState;
+import com.mythology.cloud.apollo.index.CorruptIndexException;
+import com.mythology.cloud.apollo.index.FieldInfo;
+import com.mythology.cloud.apollo.index.FieldInfos;
+import com.mythology.cloud.apollo.index.NumericDocValues;
+import com.mythology.cloud.apollo.store.DataOutput;
+import com.mythology.cloud.apollo.store.Directory;
+import com.mythology.cloud.apollo.store.IndexOutput;
+import com.mythology.cloud.apollo.util.ArrayUtil;
+import com.mythology.cloud.apollo.util.BytesRef;
+import com.mythology.cloud.apollo.util.IOUtils;
+
+import java.io.IOException;
+
+import static com.mythology.cloud.apollo.codecs.postings.BlockPostingsFormat.BLOCK_SIZE;
+
+/**
+ * Concrete class that writes docId(maybe frq,pos,offset,payloads) list
+ * with {@link BlockPostingsFormat}.
+ * <p>
+ * Docs, freqs, positions and payloads/offsets go to their own files, and
+ * every full block of docs gets a skip entry with the competitive impacts
+ * of the block, computed from the norms that are passed to
+ * {@link #startTerm}.
+ *
+ * @lucene.experimental
+ */
+public final class BlockPostingsWriter extends PostingsWriterBase {
+
+    IndexOutput docOut;
+    IndexOutput freqOut;
+    IndexOutput posOut;
+    IndexOutput payOut;
+
+    final static IntBlockTermState emptyState = new IntBlockTermState();
+    IntBlockTermState lastState;
+
+    // Holds starting file pointers for current term:
+    private long docStartFP;
+    private long freqStartFP;
+    private long posStartFP;
+    private long payStartFP;
+
+    final int[] docDeltaBuffer;
+    final int[] freqBuffer;
+    private int docBufferUpto;
+
+    final int[] posDeltaBuffer;
+    final int[] payloadLengthBuffer;
+    final int[] offsetStartDeltaBuffer;
+    final int[] offsetLengthBuffer;
+    private int posBufferUpto;
+
+    private byte[] payloadBytes;
+    private int payloadByteUpto;
+
+    private int lastBlockDocID;
+    private long lastBlockPosFP;
+    private long lastBlockPayFP;
+    private int lastBlockPosBufferUpto;
+    private int lastBlockPayloadByteUpto;
+
+    private int lastDocID;
+    private int lastPosition;
+    private int lastStartOffset;
+    private int docCount;
+
+    private final ForUtil forUtil;
+    private final BlockSkipWriter skipWriter;
+
+    private NumericDocValues norms;
+    private final CompetitiveImpactAccumulator competitiveFreqNormAccumulator = new CompetitiveImpactAccumulator();
+
+    /**
+     * Creates a postings writer
+     */
+    public BlockPostingsWriter(Directory directory, String segment, FieldInfos fieldInfos) throws IOException {
+        boolean success = false;
+        try {
+            docOut = directory.createOutput(BlockPostingsFormat.fileName(segment, BlockPostingsFormat.DOC_EXTENSION));
+            CodecUtil.writeHeader(docOut, BlockPostingsFormat.DOC_CODEC, BlockPostingsFormat.VERSION_CURRENT);
+            if (fieldInfos.hasFreq()) {
+                freqOut = directory.createOutput(BlockPostingsFormat.fileName(segment, BlockPostingsFormat.FREQ_EXTENSION));
+                CodecUtil.writeHeader(freqOut, BlockPostingsFormat.FREQ_CODEC, BlockPostingsFormat.VERSION_CURRENT);
+            }
+            if (fieldInfos.hasProx()) {
+                posOut = directory.createOutput(BlockPostingsFormat.fileName(segment, BlockPostingsFormat.POS_EXTENSION));
+                CodecUtil.writeHeader(posOut, BlockPostingsFormat.POS_CODEC, BlockPostingsFormat.VERSION_CURRENT);
+                if (fieldInfos.hasPayloads() || fieldInfos.hasOffsets()) {
+                    payOut = directory.createOutput(BlockPostingsFormat.fileName(segment, BlockPostingsFormat.PAY_EXTENSION));
+                    CodecUtil.writeHeader(payOut, BlockPostingsFormat.PAY_CODEC, BlockPostingsFormat.VERSION_CURRENT);
+                }
+            }
+            success = true;
+        } finally {
+            if (!success) {
+                IOUtils.closeWhileHandlingException(docOut, freqOut, posOut, payOut);
+            }
+        }
+
+        docDeltaBuffer = new int[BLOCK_SIZE];
+        freqBuffer = new int[BLOCK_SIZE];
+
+        if (posOut != null) {
+            posDeltaBuffer = new int[BLOCK_SIZE];
+            payloadLengthBuffer = new int[BLOCK_SIZE];
+            offsetStartDeltaBuffer = new int[BLOCK_SIZE];
+            offsetLengthBuffer = new int[BLOCK_SIZE];
+            payloadBytes = new byte[128];
+        } else {
+            posDeltaBuffer = null;
+            payloadLengthBuffer = null;
+            offsetStartDeltaBuffer = null;
+            offsetLengthBuffer = null;
+            payloadBytes = null;
+        }
+
+        forUtil = new ForUtil();
+        skipWriter = new BlockSkipWriter();
+    }
+
+    @Override
+    public IntBlockTermState newTermState() {
+        return new IntBlockTermState();
+    }
+
+    @Override
+    public void init(IndexOutput termsOut) throws IOException {
+        CodecUtil.writeHeader(termsOut, BlockPostingsFormat.TERMS_CODEC, BlockPostingsFormat.VERSION_CURRENT);
+        termsOut.writeVInt(BLOCK_SIZE);
+    }
+
+    @Override
+    public void setField(FieldInfo fieldInfo) {
+        super.setField(fieldInfo);
+        if (writeFreqs && freqOut == null || writePositions && posOut == null || (writePayloads || writeOffsets) && payOut == null) {
+            throw new IllegalArgumentException("field \"" + fieldInfo.name + "\" indexes " + indexOptions
+                    + " but the field infos of the segment did not when this writer was created");
+        }
+        skipWriter.setField(writeFreqs, writePositions, writeOffsets, writePayloads);
+        lastState = emptyState;
+    }
+
+    @Override
+    public void startTerm(NumericDocValues norms) {
+        docStartFP = docOut.getFilePointer();
+        if (writeFreqs) {
+            freqStartFP = freqOut.getFilePointer();
+        }
+        if (writePositions) {
+            posStartFP = posOut.getFilePointer();
+            if (writePayloads || writeOffsets) {
+                payStartFP = payOut.getFilePointer();
+            }
+        }
+        lastDocID = 0;
+        lastBlockDocID = -1;
+        skipWriter.resetSkip(docStartFP, freqStartFP, posStartFP, payStartFP);
+        this.norms = norms;
+        competitiveFreqNormAccumulator.clear();
+    }
+
+    @Override
+    public void startDoc(int docID, int termDocFreq) throws IOException {
+        // Have collected a block of docs, and get a new doc.
+        // Should write skip data as well as postings list for
+        // current block.
+        if (lastBlockDocID != -1 && docBufferUpto == 0) {
+            skipWriter.bufferSkip(lastBlockDocID,
+                    docOut.getFilePointer(),
+                    writeFreqs ? freqOut.getFilePointer() : 0,
+                    lastBlockPosFP, lastBlockPosBufferUpto,
+                    lastBlockPayFP, lastBlockPayloadByteUpto,
+                    competitiveFreqNormAccumulator);
+            competitiveFreqNormAccumulator.clear();
+        }
+
+        final int docDelta = docID - lastDocID;
+
+        if (docID < 0 || (docCount > 0 && docDelta <= 0)) {
+            throw new CorruptIndexException("docs out of order (" + docID + " <= " + lastDocID + " )", docOut);
+        }
+
+        docDeltaBuffer[docBufferUpto] = docDelta;
+        if (writeFreqs) {
+            freqBuffer[docBufferUpto] = termDocFreq;
+        }
+
+        docBufferUpto++;
+        docCount++;
+
+        if (docBufferUpto == BLOCK_SIZE) {
+            forUtil.writeBlock(docDeltaBuffer, docOut);
+            if (writeFreqs) {
+                forUtil.writeBlock(freqBuffer, freqOut);
+            }
+            // NOTE: don't set docBufferUpto back to 0 here;
+            // finishDoc will do so (because it needs to see that
+            // the block was filled so it can save skip data)
+        }
+
+        lastDocID = docID;
+        lastPosition = 0;
+        lastStartOffset = 0;
+
+        long norm;
+        if (norms != null && norms.advanceExact(docID)) {
+            norm = norms.longValue();
+        } else {
+            // same as fields that omit norms
+            norm = 1L;
+        }
+
+        competitiveFreqNormAccumulator.add(writeFreqs ? termDocFreq : 1, norm);
+    }
+
+    @Override
+    public void addPosition(int position, BytesRef payload, int startOffset, int endOffset) throws IOException {
+        if (position < lastPosition) {
+            throw new CorruptIndexException("position=" + position + " is out of order, last position=" + lastPosition, docOut);
+        }
+        posDeltaBuffer[posBufferUpto] = position - lastPosition;
+        if (writePayloads) {
+            if (payload == null || payload.length == 0) {
+                // no payload
+                payloadLengthBuffer[posBufferUpto] = 0;
+            } else {
+                payloadLengthBuffer[posBufferUpto] = payload.length;
+                if (payloadByteUpto + payload.length > payloadBytes.length) {
+                    payloadBytes = ArrayUtil.grow(payloadBytes, payloadByteUpto + payload.length);
+                }
+                System.arraycopy(payload.bytes, payload.offset, payloadBytes, payloadByteUpto, payload.length);
+                payloadByteUpto += payload.length;
+            }
+        }
+
+        if (writeOffsets) {
+            assert startOffset >= lastStartOffset;
+            assert endOffset >= startOffset;
+            offsetStartDeltaBuffer[posBufferUpto] = startOffset - lastStartOffset;
+            offsetLengthBuffer[posBufferUpto] = endOffset - startOffset;
+            lastStartOffset = startOffset;
+        }
+
+        posBufferUpto++;
+        lastPosition = position;
+        if (posBufferUpto == BLOCK_SIZE) {
+            forUtil.writeBlock(posDeltaBuffer, posOut);
+
+            if (writePayloads) {
+                forUtil.writeBlock(payloadLengthBuffer, payOut);
+                payOut.writeVInt(payloadByteUpto);
+                payOut.writeBytes(payloadBytes, 0, payloadByteUpto);
+                payloadByteUpto = 0;
+            }
+            if (writeOffsets) {
+                forUtil.writeBlock(offsetStartDeltaBuffer, payOut);
+                forUtil.writeBlock(offsetLengthBuffer, payOut);
+            }
+            posBufferUpto = 0;
+        }
+    }
+
+    @Override
+    public void finishDoc() {
+        // Since we don't know df for current term, we had to buffer
+        // those skip data for each block, and when a new doc comes,
+        // write them to skip file.
+        if (docBufferUpto == BLOCK_SIZE) {
+            lastBlockDocID = lastDocID;
+            if (posOut != null) {
+                if (payOut != null) {
+                    lastBlockPayFP = payOut.getFilePointer();
+                }
+                lastBlockPosFP = posOut.getFilePointer();
+                lastBlockPosBufferUpto = posBufferUpto;
+                lastBlockPayloadByteUpto = payloadByteUpto;
+            }
+            docBufferUpto = 0;
+        }
+    }
+
+    /**
+     * Called when we are done adding docs to this term
+     */
+    @Override
+    public void finishTerm(BlockTermState _state) throws IOException {
+        IntBlockTermState state = (IntBlockTermState) _state;
+        assert state.docFreq > 0;
+
+        assert state.docFreq == docCount : state.docFreq + " vs " + docCount;
+
+        // docFreq == 1, don't write the single docid/freq to a separate file along with a pointer to it.
+        final int singletonDocID;
+        if (state.docFreq == 1) {
+            // pulse the singleton docid into the term dictionary, freq is implicitly totalTermFreq
+            singletonDocID = docDeltaBuffer[0];
+        } else {
+            singletonDocID = -1;
+            // vInt encode the remaining doc deltas and freqs:
+            for (int i = 0; i < docBufferUpto; i++) {
+                docOut.writeVInt(docDeltaBuffer[i]);
+                if (writeFreqs) {
+                    freqOut.writeVInt(freqBuffer[i]);
+                }
+            }
+        }
+
+        final long lastPosBlockOffset;
+
+        if (writePositions) {
+            // totalTermFreq is just total number of positions(or payloads, or offsets)
+            // associated with current term.
+            assert state.totalTermFreq != -1;
+            if (state.totalTermFreq > BLOCK_SIZE) {
+                // record file offset for last pos in last block
+                lastPosBlockOffset = posOut.getFilePointer() - posStartFP;
+            } else {
+                lastPosBlockOffset = -1;
+            }
+            if (posBufferUpto > 0) {
+                // vInt encode the remaining positions/payloads/offsets:
+                int lastPayloadLength = -1;  // force first payload length to be written
+                int lastOffsetLength = -1;   // force first offset length to be written
+                int payloadBytesReadUpto = 0;
+                for (int i = 0; i < posBufferUpto; i++) {
+                    final int posDelta = posDeltaBuffer[i];
+                    if (writePayloads) {
+                        final int payloadLength = payloadLengthBuffer[i];
+                        if (payloadLength != lastPayloadLength) {
+                            lastPayloadLength = payloadLength;
+                            posOut.writeVInt((posDelta << 1) | 1);
+                            posOut.writeVInt(payloadLength);
+                        } else {
+                            posOut.writeVInt(posDelta << 1);
+                        }
+
+                        if (payloadLength != 0) {
+                            posOut.writeBytes(payloadBytes, payloadBytesReadUpto, payloadLength);
+                            payloadBytesReadUpto += payloadLength;
+                        }
+                    } else {
+                        posOut.writeVInt(posDelta);
+                    }
+
+                    if (writeOffsets) {
+                        int delta = offsetStartDeltaBuffer[i];
+                        int length = offsetLengthBuffer[i];
+                        if (length == lastOffsetLength) {
+                            posOut.writeVInt(delta << 1);
+                        } else {
+                            posOut.writeVInt(delta << 1 | 1);
+                            posOut.writeVInt(length);
+                            lastOffsetLength = length;
+                        }
+                    }
+                }
+
+                if (writePayloads) {
+                    assert payloadBytesReadUpto == payloadByteUpto;
+                    payloadByteUpto = 0;
+                }
+            }
+        } else {
+            lastPosBlockOffset = -1;
+        }
+
+        long skipOffset;
+        if (docCount > BLOCK_SIZE) {
+            skipOffset = skipWriter.writeSkip(docOut) - docStartFP;
+        } else {
+            skipOffset = -1;
+        }
+
+        state.docStartFP = docStartFP;
+        state.freqStartFP = freqStartFP;
+        state.posStartFP = posStartFP;
+        state.payStartFP = payStartFP;
+        state.singletonDocID = singletonDocID;
+        state.skipOffset = skipOffset;
+        state.lastPosBlockOffset = lastPosBlockOffset;
+        docBufferUpto = 0;
+        posBufferUpto = 0;
+        lastDocID = 0;
+        docCount = 0;
+        norms = null;
+    }
+
+    @Override
+    public void encodeTerm(DataOutput out, FieldInfo fieldInfo, BlockTermState _state, boolean absolute) throws IOException {
+        IntBlockTermState state = (IntBlockTermState) _state;
+        if (absolute) {
+            lastState = emptyState;
+        }
+        out.writeVLong(state.docStartFP - lastState.docStartFP);
+        if (writeFreqs) {
+            out.writeVLong(state.freqStartFP - lastState.freqStartFP);
+        }
+        if (writePositions) {
+            out.writeVLong(state.posStartFP - lastState.posStartFP);
+            if (writePayloads || writeOffsets) {
+                out.writeVLong(state.payStartFP - lastState.payStartFP);
+            }
+        }
+        if (state.singletonDocID != -1) {
+            out.writeVInt(state.singletonDocID);
+        }
+        if (writePositions) {
+            if (state.lastPosBlockOffset != -1) {
+                out.writeVLong(state.lastPosBlockOffset);
+            }
+        }
+        if (state.skipOffset != -1) {
+            out.writeVLong(state.skipOffset);
+        }
+        lastState = state;
+    }
+
+    @Override
+    public void close() throws IOException {
+        boolean success = false;
+        try {
+            if (docOut != null) {
+                CodecUtil.writeFooter(docOut);
+            }
+            if (freqOut != null) {
+                CodecUtil.writeFooter(freqOut);
+            }
+            if (posOut != null) {
+                CodecUtil.writeFooter(posOut);
+            }
+            if (payOut != null) {
+                CodecUtil.writeFooter(payOut);
+            }
+            success = true;
+        } finally {
+            if (success) {
+                IOUtils.close(docOut, freqOut, posOut, payOut);
+            } else {
+                IOUtils.closeWhileHandlingException(docOut, freqOut, posOut, payOut);
+            }
+            docOut = freqOut = posOut = payOut = null;
+        }
+    }
+}
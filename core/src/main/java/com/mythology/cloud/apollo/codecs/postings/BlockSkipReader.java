@@ -0,0 +1,228 @@
+package com.mythology.cloud.apollo.codecs.postings;
+
+import com.mythology.cloud.apollo.index.CorruptIndexException;
+import com.mythology.cloud.apollo.index.Impact;
+import com.mythology.cloud.apollo.search.DocIdSetIterator;
+import com.mythology.cloud.apollo.store.ByteArrayDataInput;
+import com.mythology.cloud.apollo.store.IndexInput;
+import com.mythology.cloud.apollo.util.ArrayUtil;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.mythology.cloud.apollo.codecs.postings.BlockPostingsFormat.BLOCK_SIZE;
+
+/**
+ * Reads the skip entries that {@link BlockSkipWriter} wrote for a term.
+ * <p>
+ * Entries are decoded lazily, in order, and kept in memory for the rest of
+ * the enumeration of the term, so that {@link #firstEntryOnOrAfter} can be
+ * called from independent cursors: one for skipping docs, and one for the
+ * impacts of upcoming blocks.
+ * <p>
+ * Entry {@code i} describes block {@code i}: {@link #doc(int)} is the last doc
+ * of the block, and the file pointers are the ones of the first doc of block
+ * {@code i + 1}.
+ */
+final class BlockSkipReader {
+
+    private final IndexInput skipIn;
+    private final boolean hasFreqs;
+    private final boolean hasPositions;
+    private final boolean hasPayloads;
+    private final boolean hasPayloadsOrOffsets;
+
+    private int numEntries;
+    private int numRead;
+
+    private int[] docs = new int[0];
+    private long[] docFPs = new long[0];
+    private long[] freqFPs = new long[0];
+    private long[] posFPs = new long[0];
+    private int[] posBufferUptos = new int[0];
+    private long[] payFPs = new long[0];
+    private int[] payloadByteUptos = new int[0];
+
+    // impacts of entry i are impactBytes[impactEnds[i-1]:impactEnds[i]]
+    private byte[] impactBytes = new byte[0];
+    private int[] impactEnds = new int[0];
+    private final ByteArrayDataInput impactIn = new ByteArrayDataInput();
+    private final List<Impact> impacts = new ArrayList<>();
+
+    BlockSkipReader(IndexInput skipIn, boolean hasFreqs, boolean hasPositions, boolean hasOffsets, boolean hasPayloads) {
+        this.skipIn = skipIn;
+        this.hasFreqs = hasFreqs;
+        this.hasPositions = hasPositions;
+        this.hasPayloads = hasPayloads;
+        this.hasPayloadsOrOffsets = hasOffsets || hasPayloads;
+    }
+
+    /**
+     * Position this reader on the skip data of a term that has {@code docFreq} docs.
+     */
+    void init(long skipFP, long docStartFP, long freqStartFP, long posStartFP, long payStartFP, int docFreq) throws IOException {
+        assert docFreq > BLOCK_SIZE;
+        skipIn.seek(skipFP);
+        // an entry is written before the first doc of every block but the first one
+        numEntries = (docFreq - 1) / BLOCK_SIZE;
+        numRead = 0;
+        ensureCapacity(1);
+        // virtual entry -1, the start of the postings, is stored at index 0
+        docs[0] = 0;
+        docFPs[0] = docStartFP;
+        freqFPs[0] = freqStartFP;
+        posFPs[0] = posStartFP;
+        payFPs[0] = payStartFP;
+    }
+
+    private void ensureCapacity(int minSize) {
+        if (minSize > docs.length) {
+            final int newSize = ArrayUtil.oversize(minSize, Long.BYTES);
+            docs = ArrayUtil.growExact(docs, newSize);
+            docFPs = ArrayUtil.growExact(docFPs, newSize);
+            freqFPs = ArrayUtil.growExact(freqFPs, newSize);
+            posFPs = ArrayUtil.growExact(posFPs, newSize);
+            posBufferUptos = ArrayUtil.growExact(posBufferUptos, newSize);
+            payFPs = ArrayUtil.growExact(payFPs, newSize);
+            payloadByteUptos = ArrayUtil.growExact(payloadByteUptos, newSize);
+            impactEnds = ArrayUtil.growExact(impactEnds, newSize);
+        }
+    }
+
+    int numEntries() {
+        return numEntries;
+    }
+
+    /**
+     * Return the index of the first entry at or after {@code from} whose last
+     * doc is greater than or equal to {@code target}, or {@link #numEntries()}
+     * if all blocks from {@code from} end before {@code target}.
+     */
+    int firstEntryOnOrAfter(int from, int target) throws IOException {
+        int entry = from;
+        while (entry < numEntries) {
+            if (entry == numRead) {
+                readEntry();
+            }
+            if (doc(entry) >= target) {
+                break;
+            }
+            ++entry;
+        }
+        return entry;
+    }
+
+    private void readEntry() throws IOException {
+        final int prev = numRead;
+        final int slot = numRead + 1;
+        ensureCapacity(slot + 1);
+
+        docs[slot] = docs[prev] + skipIn.readVInt();
+        docFPs[slot] = docFPs[prev] + skipIn.readVLong();
+        freqFPs[slot] = freqFPs[prev];
+        if (hasFreqs) {
+            freqFPs[slot] += skipIn.readVLong();
+        }
+        posFPs[slot] = posFPs[prev];
+        payFPs[slot] = payFPs[prev];
+        if (hasPositions) {
+            posFPs[slot] += skipIn.readVLong();
+            posBufferUptos[slot] = skipIn.readVInt();
+            if (hasPayloadsOrOffsets) {
+                payFPs[slot] += skipIn.readVLong();
+            }
+            if (hasPayloads) {
+                payloadByteUptos[slot] = skipIn.readVInt();
+            }
+        }
+
+        final int impactStart = numRead == 0 ? 0 : impactEnds[numRead - 1];
+        final int impactLength = skipIn.readVInt();
+        if (impactLength == 0) {
+            throw new CorruptIndexException("skip entry " + numRead + " has no impacts", skipIn);
+        }
+        impactBytes = ArrayUtil.grow(impactBytes, impactStart + impactLength);
+        skipIn.readBytes(impactBytes, impactStart, impactLength);
+        impactEnds[numRead] = impactStart + impactLength;
+
+        numRead++;
+    }
+
+    /**
+     * Last doc of the block of the given entry. Entry {@code -1} is the start
+     * of the postings.
+     */
+    int doc(int entry) {
+        assert entry < numRead;
+        return docs[entry + 1];
+    }
+
+    long docFP(int entry) {
+        return docFPs[entry + 1];
+    }
+
+    long freqFP(int entry) {
+        return freqFPs[entry + 1];
+    }
+
+    long posFP(int entry) {
+        return posFPs[entry + 1];
+    }
+
+    int posBufferUpto(int entry) {
+        return posBufferUptos[entry + 1];
+    }
+
+    long payFP(int entry) {
+        return payFPs[entry + 1];
+    }
+
+    int payloadByteUpto(int entry) {
+        return payloadByteUptos[entry + 1];
+    }
+
+    /**
+     * Return the last doc of the block that contains {@code target} given
+     * the entry returned by {@link #firstEntryOnOrAfter}.
+     */
+    int docIdUpTo(int entry) {
+        return entry < numEntries ? doc(entry) : DocIdSetIterator.NO_MORE_DOCS;
+    }
+
+    /**
+     * Decode the impacts of the given entry. The returned list is reused
+     * across calls.
+     */
+    List<Impact> impacts(int entry) throws IOException {
+        assert entry < numRead;
+        final int start = entry == 0 ? 0 : impactEnds[entry - 1];
+        impactIn.reset(impactBytes, start, impactEnds[entry] - start);
+        return readImpacts(impactIn, impacts);
+    }
+
+    static List<Impact> readImpacts(ByteArrayDataInput in, List<Impact> reuse) throws IOException {
+        int numImpacts = 0;
+        int freq = 0;
+        long norm = 0;
+        while (in.eof() == false) {
+            int freqDelta = in.readVInt();
+            freq += 1 + (freqDelta >>> 1);
+            if ((freqDelta & 0x01) != 0) {
+                norm += 1 + in.readZLong();
+            } else {
+                norm++;
+            }
+            if (numImpacts < reuse.size()) {
+                Impact impact = reuse.get(numImpacts);
+                impact.freq = freq;
+                impact.norm = norm;
+            } else {
+                reuse.add(new Impact(freq, norm));
+            }
+            numImpacts++;
+        }
+        reuse.subList(numImpacts, reuse.size()).clear();
+        return reuse;
+    }
+}
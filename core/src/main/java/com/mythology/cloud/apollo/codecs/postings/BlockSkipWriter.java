@@ -0,0 +1,135 @@
+package com.mythology.cloud.apollo.codecs.postings;
+
+import com.mythology.cloud.apollo.codecs.CompetitiveImpactAccumulator;
+import com.mythology.cloud.apollo.index.Impact;
+import com.mythology.cloud.apollo.store.DataOutput;
+import com.mythology.cloud.apollo.store.GrowableByteArrayDataOutput;
+import com.mythology.cloud.apollo.store.IndexOutput;
+
+import java.io.IOException;
+import java.util.Collection;
+
+/**
+ * Write skip lists with one entry per block of postings.
+ * <p>
+ * An entry is buffered when the first doc after a full block is added, and
+ * records the last doc of the block, the file pointers of the next block in
+ * every stream, the number of positions and payload bytes that the next
+ * block has to skip in the current position block, and the competitive
+ * impacts of the block:
+ * <pre>
+ *   SkipEntry --&gt; DocDelta, DocFPDelta, FreqFPDelta?, (PosFPDelta, PosBlockOffset, PayFPDelta?, PayByteUpto?)?, ImpactLength, Impacts
+ *   Impacts --&gt; &lt;FreqDelta, NormDelta?&gt;<sup>NumImpacts</sup>
+ * </pre>
+ * Entries of a term are written to the <tt>.doc</tt> file after the last
+ * block of the term, see {@link #writeSkip}.
+ *
+ * @see BlockSkipReader
+ */
+final class BlockSkipWriter {
+
+    private final GrowableByteArrayDataOutput buffer = new GrowableByteArrayDataOutput(64);
+    private final GrowableByteArrayDataOutput freqNormOut = new GrowableByteArrayDataOutput(64);
+
+    private boolean fieldHasFreqs;
+    private boolean fieldHasPositions;
+    private boolean fieldHasOffsets;
+    private boolean fieldHasPayloads;
+
+    private int lastDoc;
+    private long lastDocFP;
+    private long lastFreqFP;
+    private long lastPosFP;
+    private long lastPayFP;
+
+    BlockSkipWriter() {
+    }
+
+    void setField(boolean fieldHasFreqs, boolean fieldHasPositions, boolean fieldHasOffsets, boolean fieldHasPayloads) {
+        this.fieldHasFreqs = fieldHasFreqs;
+        this.fieldHasPositions = fieldHasPositions;
+        this.fieldHasOffsets = fieldHasOffsets;
+        this.fieldHasPayloads = fieldHasPayloads;
+    }
+
+    /**
+     * Start a new term, whose postings start at the given file pointers.
+     */
+    void resetSkip(long docStartFP, long freqStartFP, long posStartFP, long payStartFP) {
+        buffer.reset();
+        lastDoc = 0;
+        lastDocFP = docStartFP;
+        lastFreqFP = freqStartFP;
+        lastPosFP = posStartFP;
+        lastPayFP = payStartFP;
+    }
+
+    /**
+     * Buffer the entry of a full block.
+     *
+     * @param doc             the last doc of the block
+     * @param docFP           file pointer of the next doc block
+     * @param freqFP          file pointer of the next freq block
+     * @param posFP           file pointer of the position block of the first doc after the block
+     * @param posBufferUpto   number of positions of the block that are buffered in the position block at {@code posFP}
+     * @param payFP           file pointer of the payload/offset block that matches {@code posFP}
+     * @param payloadByteUpto number of payload bytes of the block that are buffered in the payload block at {@code payFP}
+     * @param competitiveFreqNorms the competitive impacts of the docs of the block
+     */
+    void bufferSkip(int doc, long docFP, long freqFP, long posFP, int posBufferUpto, long payFP, int payloadByteUpto,
+                    CompetitiveImpactAccumulator competitiveFreqNorms) throws IOException {
+        assert doc > lastDoc;
+        buffer.writeVInt(doc - lastDoc);
+        buffer.writeVLong(docFP - lastDocFP);
+        lastDoc = doc;
+        lastDocFP = docFP;
+        if (fieldHasFreqs) {
+            buffer.writeVLong(freqFP - lastFreqFP);
+            lastFreqFP = freqFP;
+        }
+        if (fieldHasPositions) {
+            buffer.writeVLong(posFP - lastPosFP);
+            buffer.writeVInt(posBufferUpto);
+            lastPosFP = posFP;
+            if (fieldHasOffsets || fieldHasPayloads) {
+                buffer.writeVLong(payFP - lastPayFP);
+                lastPayFP = payFP;
+            }
+            if (fieldHasPayloads) {
+                buffer.writeVInt(payloadByteUpto);
+            }
+        }
+
+        writeImpacts(competitiveFreqNorms.getCompetitiveFreqNormPairs(), freqNormOut);
+        buffer.writeVInt(freqNormOut.getPosition());
+        buffer.writeBytes(freqNormOut.getBytes(), 0, freqNormOut.getPosition());
+        freqNormOut.reset();
+    }
+
+    /**
+     * Writes the buffered entries to {@code out} and returns the file pointer
+     * of the first entry.
+     */
+    long writeSkip(IndexOutput out) throws IOException {
+        final long skipFP = out.getFilePointer();
+        out.writeBytes(buffer.getBytes(), 0, buffer.getPosition());
+        return skipFP;
+    }
+
+    static void writeImpacts(Collection<Impact> impacts, DataOutput out) throws IOException {
+        Impact previous = new Impact(0, 0);
+        for (Impact impact : impacts) {
+            assert impact.freq > previous.freq;
+            int freqDelta = impact.freq - previous.freq - 1;
+            long normDelta = impact.norm - previous.norm - 1;
+            if (normDelta == 0) {
+                // most of time, norm only increases by 1, so we can fold everything in a single byte
+                out.writeVInt(freqDelta << 1);
+            } else {
+                out.writeVInt((freqDelta << 1) | 1);
+                out.writeZLong(normDelta);
+            }
+            previous = impact;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.mythology.cloud.apollo.codecs.postings;
+
+import com.mythology.cloud.apollo.index.CorruptIndexException;
+import com.mythology.cloud.apollo.store.IndexInput;
+import com.mythology.cloud.apollo.store.IndexOutput;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import static com.mythology.cloud.apollo.codecs.postings.BlockPostingsFormat.BLOCK_SIZE;
+
+/**
+ * Encode all values in normal area with fixed bit width,
+ * which is determined by the max value in this block.
+ * <p>
+ * A block of {@link BlockPostingsFormat#BLOCK_SIZE} values that need
+ * {@code bpv} bits each is stored as {@code 4 * bpv} little-endian ints, in a
+ * vertical layout of 4 lanes: value {@code i} goes to lane {@code i % 4}, and
+ * the {@code 32} values of a lane are packed one after the other into the
+ * ints {@code lane, lane + 4, lane + 8, ...}. Every row of 4 values is
+ * therefore encoded and decoded with the same shifts and masks, so that the
+ * 4 statements of a row can be compiled to a single SIMD instruction, and
+ * blocks never need a per-value branch.
+ * <p>
+ * 帧参考(FOR)位压缩：每个128个整数的块按最大值确定位宽，按4通道纵向布局打包，同一行的4个值使用相同的移位和掩码，便于SIMD并行解码。
+ * </p>
+ */
+final class ForUtil {
+
+    /**
+     * Special number of bits per value used whenever all values to encode are equal.
+     */
+    private static final int ALL_VALUES_EQUAL = 0;
+
+    private static final int LANES = 4;
+    private static final int ROWS = BLOCK_SIZE / LANES;
+
+    private final int[] words = new int[BLOCK_SIZE];
+    private final byte[] encoded = new byte[BLOCK_SIZE * Integer.BYTES];
+
+    /**
+     * Create a new {@link ForUtil} instance. Instances hold scratch buffers and
+     * are not thread-safe.
+     */
+    ForUtil() {
+    }
+
+    /**
+     * Write a block of data (<code>For</code> format).
+     *
+     * @param data the data to write
+     * @param out  the destination output
+     * @throws IOException If there is a low-level I/O error
+     */
+    void writeBlock(int[] data, IndexOutput out) throws IOException {
+        if (isAllEqual(data)) {
+            out.writeByte((byte) ALL_VALUES_EQUAL);
+            out.writeVInt(data[0]);
+            return;
+        }
+
+        final int bitsPerValue = bitsRequired(data);
+        pack(data, bitsPerValue, words);
+
+        final int numWords = LANES * bitsPerValue;
+        for (int i = 0, o = 0; i < numWords; ++i, o += Integer.BYTES) {
+            final int word = words[i];
+            encoded[o] = (byte) word;
+            encoded[o + 1] = (byte) (word >>> 8);
+            encoded[o + 2] = (byte) (word >>> 16);
+            encoded[o + 3] = (byte) (word >>> 24);
+        }
+        out.writeByte((byte) bitsPerValue);
+        out.writeBytes(encoded, numWords * Integer.BYTES);
+    }
+
+    /**
+     * Read the next block of data (<code>For</code> format).
+     *
+     * @param in      the input to use to read data
+     * @param decoded where to write decoded data
+     * @throws IOException If there is a low-level I/O error
+     */
+    void readBlock(IndexInput in, int[] decoded) throws IOException {
+        final int bitsPerValue = readBitsPerValue(in);
+
+        if (bitsPerValue == ALL_VALUES_EQUAL) {
+            final int value = in.readVInt();
+            Arrays.fill(decoded, 0, BLOCK_SIZE, value);
+            return;
+        }
+
+        final int numWords = LANES * bitsPerValue;
+        in.readBytes(encoded, 0, numWords * Integer.BYTES);
+        for (int i = 0, o = 0; i < numWords; ++i, o += Integer.BYTES) {
+            words[i] = (encoded[o] & 0xFF)
+                    | (encoded[o + 1] & 0xFF) << 8
+                    | (encoded[o + 2] & 0xFF) << 16
+                    | (encoded[o + 3] & 0xFF) << 24;
+        }
+        unpack(words, bitsPerValue, decoded);
+    }
+
+    /**
+     * Skip the next block of data.
+     *
+     * @param in the input where to read data
+     * @throws IOException If there is a low-level I/O error
+     */
+    void skipBlock(IndexInput in) throws IOException {
+        final int bitsPerValue = readBitsPerValue(in);
+        if (bitsPerValue == ALL_VALUES_EQUAL) {
+            in.readVInt();
+            return;
+        }
+        in.seek(in.getFilePointer() + LANES * bitsPerValue * Integer.BYTES);
+    }
+
+    private static int readBitsPerValue(IndexInput in) throws IOException {
+        final int bitsPerValue = in.readByte();
+        if (bitsPerValue < 0 || bitsPerValue > Integer.SIZE) {
+            throw new CorruptIndexException("invalid number of bits per value: " + bitsPerValue, in);
+        }
+        return bitsPerValue;
+    }
+
+    private static boolean isAllEqual(final int[] data) {
+        final int v = data[0];
+        for (int i = 1; i < BLOCK_SIZE; ++i) {
+            if (data[i] != v) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compute the number of bits required to serialize any of the ints in
+     * <code>data</code>.
+     */
+    private static int bitsRequired(final int[] data) {
+        int or = 0;
+        for (int i = 0; i < BLOCK_SIZE; ++i) {
+            or |= data[i];
+        }
+        return Math.max(1, Integer.SIZE - Integer.numberOfLeadingZeros(or));
+    }
+
+    /**
+     * Pack {@link BlockPostingsFormat#BLOCK_SIZE} values of {@code bitsPerValue}
+     * bits into {@code 4 * bitsPerValue} words.
+     */
+    static void pack(int[] values, int bitsPerValue, int[] words) {
+        Arrays.fill(words, 0, LANES * bitsPerValue, 0);
+        for (int row = 0, bitOffset = 0; row < ROWS; ++row, bitOffset += bitsPerValue) {
+            final int w = (bitOffset >>> 5) * LANES;
+            final int shift = bitOffset & 31;
+            final int v = row * LANES;
+            words[w] |= values[v] << shift;
+            words[w + 1] |= values[v + 1] << shift;
+            words[w + 2] |= values[v + 2] << shift;
+            words[w + 3] |= values[v + 3] << shift;
+            if (shift + bitsPerValue > Integer.SIZE) {
+                // the values of this row span two words
+                final int rshift = Integer.SIZE - shift;
+                words[w + LANES] |= values[v] >>> rshift;
+                words[w + LANES + 1] |= values[v + 1] >>> rshift;
+                words[w + LANES + 2] |= values[v + 2] >>> rshift;
+                words[w + LANES + 3] |= values[v + 3] >>> rshift;
+            }
+        }
+    }
+
+    /**
+     * Reverse of {@link #pack}.
+     */
+    static void unpack(int[] words, int bitsPerValue, int[] values) {
+        final int mask = (int) ((1L << bitsPerValue) - 1);
+        for (int row = 0, bitOffset = 0; row < ROWS; ++row, bitOffset += bitsPerValue) {
+            final int w = (bitOffset >>> 5) * LANES;
+            final int shift = bitOffset & 31;
+            final int v = row * LANES;
+            if (shift + bitsPerValue <= Integer.SIZE) {
+                values[v] = (words[w] >>> shift) & mask;
+                values[v + 1] = (words[w + 1] >>> shift) & mask;
+                values[v + 2] = (words[w + 2] >>> shift) & mask;
+                values[v + 3] = (words[w + 3] >>> shift) & mask;
+            } else {
+                final int rshift = Integer.SIZE - shift;
+                values[v] = ((words[w] >>> shift) | (words[w + LANES] << rshift)) & mask;
+                values[v + 1] = ((words[w + 1] >>> shift) | (words[w + LANES + 1] << rshift)) & mask;
+                values[v + 2] = ((words[w + 2] >>> shift) | (words[w + LANES + 2] << rshift)) & mask;
+                values[v + 3] = ((words[w + 3] >>> shift) | (words[w + LANES + 3] << rshift)) & mask;
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.mythology.cloud.apollo.codecs.vectors;
+
+import com.mythology.cloud.apollo.codecs.TermVectorsReader;
+import com.mythology.cloud.apollo.codecs.TermVectorsWriter;
+import com.mythology.cloud.apollo.index.FieldInfos;
+import com.mythology.cloud.apollo.store.Directory;
+import com.mythology.cloud.apollo.util.packed.DirectMonotonicWriter;
+
+import java.io.IOException;
+
+/**
+ * Term vectors format that stores the vectors of every document in one
+ * contiguous block.
+ * <p>
+ * A document block lists its vector fields, and for each field its terms in
+ * sorted order. Every term only stores the suffix that it does not share with
+ * the previous term of the field, followed by its frequency and, if the field
+ * was indexed with {@link com.mythology.cloud.apollo.index.IndexableFieldType#storeTermVectorPositions() positions},
+ * {@link com.mythology.cloud.apollo.index.IndexableFieldType#storeTermVectorOffsets() offsets}
+ * or payloads, the delta-coded positions, offsets and payloads of each occurrence.
+ * <p>
+ * The start address of every document block is written with
+ * {@link DirectMonotonicWriter}, so fetching the vectors of a document costs one
+ * lookup plus one sequential read, and fetching the vectors of a page of hits
+ * in doc ID order is a single forward scan over the data file.
+ * <p>
+ * Files:
+ * <ol>
+ * <li><tt>.tvd</tt>: document blocks, followed by the document addresses
+ * <li><tt>.tvx</tt>: metadata of the document addresses, fully loaded in memory when the segment is opened
+ * </ol>
+ * <p>
+ * 词向量格式：每个文档的词向量存为一个连续块，同一字段内有序词项共享前缀，
+ * 按需保存位置、偏移量和负载，供高亮直接使用而无需重新分词。
+ * </p>
+ *
+ * @lucene.experimental
+ */
+public final class BlockTermVectorsFormat {
+
+    static final String DATA_CODEC = "BlockTermVectorsData";
+    static final String DATA_EXTENSION = "tvd";
+    static final String INDEX_CODEC = "BlockTermVectorsIndex";
+    static final String INDEX_EXTENSION = "tvx";
+    static final int VERSION_START = 0;
+    static final int VERSION_CURRENT = VERSION_START;
+
+    // per-field flags
+    static final byte POSITIONS = 0x01;
+    static final byte OFFSETS = 0x02;
+    static final byte PAYLOADS = 0x04;
+
+    static final int DIRECT_MONOTONIC_BLOCK_SHIFT = 16;
+
+    private BlockTermVectorsFormat() {
+    }
+
+    /**
+     * Returns a {@link TermVectorsWriter} to write term vectors of a segment.
+     */
+    public static TermVectorsWriter vectorsWriter(Directory directory, String segment) throws IOException {
+        return new BlockTermVectorsWriter(directory, segment);
+    }
+
+    /**
+     * Returns a {@link TermVectorsReader} to read term vectors of a segment.
+     */
+    public static TermVectorsReader vectorsReader(Directory directory, String segment, FieldInfos fieldInfos) throws IOException {
+        return new BlockTermVectorsReader(directory, segment, fieldInfos);
+    }
+
+    static String dataFileName(String segment) {
+        return segment + "." + DATA_EXTENSION;
+    }
+
+    static String indexFileName(String segment) {
+        return segment + "." + INDEX_EXTENSION;
+    }
+}
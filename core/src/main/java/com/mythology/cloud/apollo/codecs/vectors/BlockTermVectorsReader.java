@@ -0,0 +1,509 @@
+package com.mythology.cloud.apollo.codecs.vectors;
+
+import com.mythology.cloud.apollo.codecs.CodecUtil;
+import com.mythology.cloud.apollo.codecs.TermVectorsReader;
+import com.mythology.cloud.apollo.index.CorruptIndexException;
+import com.mythology.cloud.apollo.index.FieldInfo;
+import com.mythology.cloud.apollo.index.FieldInfos;
+import com.mythology.cloud.apollo.index.Fields;
+import com.mythology.cloud.apollo.index.PostingsEnum;
+import com.mythology.cloud.apollo.index.Terms;
+import com.mythology.cloud.apollo.index.TermsEnum;
+import com.mythology.cloud.apollo.store.ByteArrayDataInput;
+import com.mythology.cloud.apollo.store.Directory;
+import com.mythology.cloud.apollo.store.IndexInput;
+import com.mythology.cloud.apollo.util.Accountable;
+import com.mythology.cloud.apollo.util.Accountables;
+import com.mythology.cloud.apollo.util.ArrayUtil;
+import com.mythology.cloud.apollo.util.BytesRef;
+import com.mythology.cloud.apollo.util.IOUtils;
+import com.mythology.cloud.apollo.util.LongValues;
+import com.mythology.cloud.apollo.util.RamUsageEstimator;
+import com.mythology.cloud.apollo.util.packed.DirectMonotonicReader;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import static com.mythology.cloud.apollo.codecs.vectors.BlockTermVectorsFormat.DIRECT_MONOTONIC_BLOCK_SHIFT;
+import static com.mythology.cloud.apollo.codecs.vectors.BlockTermVectorsFormat.OFFSETS;
+import static com.mythology.cloud.apollo.codecs.vectors.BlockTermVectorsFormat.PAYLOADS;
+import static com.mythology.cloud.apollo.codecs.vectors.BlockTermVectorsFormat.POSITIONS;
+
+/**
+ * Reader for {@link BlockTermVectorsFormat}.
+ * <p>
+ * The block of a document is read with a single sequential read and decoded
+ * in memory. {@link #get(int[])} reads the blocks of several documents in doc
+ * ID order, so that fetching the vectors of a page of hits never seeks
+ * backwards.
+ *
+ * @lucene.experimental
+ */
+public final class BlockTermVectorsReader extends TermVectorsReader {
+
+    private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(BlockTermVectorsReader.class);
+
+    private final FieldInfos fieldInfos;
+    private final int numDocs;
+    private final long addressesStart;
+    private final long addressesLength;
+    private final DirectMonotonicReader.Meta addressesMeta;
+    private final IndexInput data;
+    private final LongValues addresses;
+    private boolean closed;
+
+    /**
+     * expert: instantiates a new reader
+     */
+    public BlockTermVectorsReader(Directory directory, String segment, FieldInfos fieldInfos) throws IOException {
+        this.fieldInfos = fieldInfos;
+        try (IndexInput index = directory.openInput(BlockTermVectorsFormat.indexFileName(segment))) {
+            CodecUtil.checkHeader(index, BlockTermVectorsFormat.INDEX_CODEC,
+                    BlockTermVectorsFormat.VERSION_START, BlockTermVectorsFormat.VERSION_CURRENT);
+            numDocs = index.readVInt();
+            addressesStart = index.readLong();
+            addressesMeta = DirectMonotonicReader.loadMeta(index, numDocs + 1L, DIRECT_MONOTONIC_BLOCK_SHIFT);
+            addressesLength = index.readLong();
+            CodecUtil.checkFooter(index);
+        }
+
+        IndexInput data = null;
+        boolean success = false;
+        try {
+            data = directory.openInput(BlockTermVectorsFormat.dataFileName(segment));
+            CodecUtil.checkHeader(data, BlockTermVectorsFormat.DATA_CODEC,
+                    BlockTermVectorsFormat.VERSION_START, BlockTermVectorsFormat.VERSION_CURRENT);
+            this.data = data;
+            this.addresses = DirectMonotonicReader.getInstance(addressesMeta, data.randomAccessSlice(addressesStart, addressesLength));
+            success = true;
+        } finally {
+            if (!success) {
+                IOUtils.closeWhileHandlingException(data);
+            }
+        }
+    }
+
+    // used by clone
+    private BlockTermVectorsReader(BlockTermVectorsReader reader) {
+        this.fieldInfos = reader.fieldInfos;
+        this.numDocs = reader.numDocs;
+        this.addressesStart = reader.addressesStart;
+        this.addressesLength = reader.addressesLength;
+        this.addressesMeta = reader.addressesMeta;
+        this.data = reader.data.clone();
+        this.addresses = reader.addresses;
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("this TermVectorsReader is closed");
+        }
+    }
+
+    @Override
+    public Fields get(int doc) throws IOException {
+        ensureOpen();
+        if (doc < 0 || doc >= numDocs) {
+            throw new IllegalArgumentException("doc=" + doc + " is out of bounds [0-" + numDocs + ")");
+        }
+        return readDocument(doc);
+    }
+
+    /**
+     * Reads the blocks of the requested documents in increasing doc ID order.
+     */
+    @Override
+    public Fields[] get(int[] docIDs) throws IOException {
+        ensureOpen();
+        final Integer[] order = new Integer[docIDs.length];
+        for (int i = 0; i < docIDs.length; ++i) {
+            if (docIDs[i] < 0 || docIDs[i] >= numDocs) {
+                throw new IllegalArgumentException("doc=" + docIDs[i] + " is out of bounds [0-" + numDocs + ")");
+            }
+            order[i] = i;
+        }
+        ArrayUtil.timSort(order, (a, b) -> Integer.compare(docIDs[a], docIDs[b]));
+        final Fields[] vectors = new Fields[docIDs.length];
+        for (int i = 0; i < order.length; ++i) {
+            final int slot = order[i];
+            if (i > 0 && docIDs[order[i - 1]] == docIDs[slot]) {
+                vectors[slot] = vectors[order[i - 1]];
+            } else {
+                vectors[slot] = readDocument(docIDs[slot]);
+            }
+        }
+        return vectors;
+    }
+
+    private Fields readDocument(int doc) throws IOException {
+        final long start = addresses.get(doc);
+        final long end = addresses.get(doc + 1L);
+        final int length = Math.toIntExact(end - start);
+        if (data.getFilePointer() != start) {
+            data.seek(start);
+        }
+        final byte[] bytes = new byte[length];
+        data.readBytes(bytes, 0, length);
+        final ByteArrayDataInput in = new ByteArrayDataInput(bytes);
+
+        final int numFields = in.readVInt();
+        if (numFields == 0) {
+            return null;
+        }
+        final SortedMap<String, BlockTerms> fields = new TreeMap<>();
+        for (int i = 0; i < numFields; ++i) {
+            final int fieldNumber = in.readVInt();
+            final FieldInfo info = fieldInfos.fieldInfo(fieldNumber);
+            if (info == null) {
+                throw new CorruptIndexException("Invalid field number: " + fieldNumber + " in doc " + doc, data);
+            }
+            fields.put(info.name, readField(in, bytes));
+        }
+        if (in.eof() == false) {
+            throw new CorruptIndexException("doc " + doc + " has " + (length - in.getPosition()) + " trailing bytes", data);
+        }
+        return new BlockFields(fields);
+    }
+
+    private static BlockTerms readField(ByteArrayDataInput in, byte[] bytes) throws IOException {
+        final int flags = in.readByte();
+        final boolean hasPositions = (flags & POSITIONS) != 0;
+        final boolean hasOffsets = (flags & OFFSETS) != 0;
+        final boolean hasPayloads = (flags & PAYLOADS) != 0;
+        final int numTerms = in.readVInt();
+
+        final BlockTerms terms = new BlockTerms(numTerms, hasPositions, hasOffsets, hasPayloads);
+        byte[] lastTerm = BytesRef.EMPTY_BYTES;
+        for (int i = 0; i < numTerms; ++i) {
+            final int prefix = in.readVInt();
+            final int suffix = in.readVInt();
+            final byte[] term = new byte[prefix + suffix];
+            System.arraycopy(lastTerm, 0, term, 0, prefix);
+            in.readBytes(term, prefix, suffix);
+            terms.terms[i] = new BytesRef(term);
+            lastTerm = term;
+
+            final int freq = in.readVInt();
+            terms.freqs[i] = freq;
+            terms.sumTotalTermFreq += freq;
+            if (hasPositions == false && hasOffsets == false) {
+                continue;
+            }
+
+            final int[] positions = hasPositions ? new int[freq] : null;
+            final int[] startOffsets = hasOffsets ? new int[freq] : null;
+            final int[] endOffsets = hasOffsets ? new int[freq] : null;
+            final BytesRef[] payloads = hasPayloads ? new BytesRef[freq] : null;
+            int position = 0;
+            int startOffset = 0;
+            for (int j = 0; j < freq; ++j) {
+                if (hasPositions) {
+                    int code = in.readVInt();
+                    if (hasPayloads) {
+                        if ((code & 1) != 0) {
+                            final int payloadLength = in.readVInt();
+                            // payloads point to the document block
+                            payloads[j] = new BytesRef(bytes, in.getPosition(), payloadLength);
+                            in.skipBytes(payloadLength);
+                        }
+                        code >>>= 1;
+                    }
+                    position += code;
+                    positions[j] = position;
+                }
+                if (hasOffsets) {
+                    startOffset += in.readVInt();
+                    startOffsets[j] = startOffset;
+                    endOffsets[j] = startOffset + in.readVInt();
+                }
+            }
+            if (hasPositions) {
+                terms.positions[i] = positions;
+            }
+            if (hasPayloads) {
+                terms.payloads[i] = payloads;
+            }
+            if (hasOffsets) {
+                terms.startOffsets[i] = startOffsets;
+                terms.endOffsets[i] = endOffsets;
+            }
+        }
+        return terms;
+    }
+
+    @Override
+    public TermVectorsReader clone() {
+        ensureOpen();
+        return new BlockTermVectorsReader(this);
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        return BASE_RAM_BYTES_USED + addressesMeta.ramBytesUsed();
+    }
+
+    @Override
+    public Collection<Accountable> getChildResources() {
+        return Collections.singletonList(Accountables.namedAccountable("term vector index", addressesMeta.ramBytesUsed()));
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            IOUtils.close(data);
+            closed = true;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "(numDocs=" + numDocs + ")";
+    }
+
+    private static final class BlockFields extends Fields {
+
+        private final SortedMap<String, BlockTerms> fields;
+
+        BlockFields(SortedMap<String, BlockTerms> fields) {
+            this.fields = fields;
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            return Collections.unmodifiableSet(fields.keySet()).iterator();
+        }
+
+        @Override
+        public Terms terms(String field) {
+            return fields.get(field);
+        }
+
+        @Override
+        public int size() {
+            return fields.size();
+        }
+    }
+
+    private static final class BlockTerms extends Terms {
+
+        final boolean hasPositions, hasOffsets, hasPayloads;
+        final BytesRef[] terms;
+        final int[] freqs;
+        final int[][] positions, startOffsets, endOffsets;
+        final BytesRef[][] payloads;
+        long sumTotalTermFreq;
+
+        BlockTerms(int numTerms, boolean hasPositions, boolean hasOffsets, boolean hasPayloads) {
+            this.hasPositions = hasPositions;
+            this.hasOffsets = hasOffsets;
+            this.hasPayloads = hasPayloads;
+            this.terms = new BytesRef[numTerms];
+            this.freqs = new int[numTerms];
+            this.positions = hasPositions ? new int[numTerms][] : null;
+            this.startOffsets = hasOffsets ? new int[numTerms][] : null;
+            this.endOffsets = hasOffsets ? new int[numTerms][] : null;
+            this.payloads = hasPayloads ? new BytesRef[numTerms][] : null;
+        }
+
+        @Override
+        public TermsEnum iterator() {
+            return new BlockTermsEnum(this);
+        }
+
+        @Override
+        public long size() {
+            return terms.length;
+        }
+
+        @Override
+        public long getSumTotalTermFreq() {
+            return sumTotalTermFreq;
+        }
+
+        @Override
+        public long getSumDocFreq() {
+            return terms.length;
+        }
+
+        @Override
+        public int getDocCount() {
+            return 1;
+        }
+
+        @Override
+        public boolean hasFreqs() {
+            return true;
+        }
+
+        @Override
+        public boolean hasOffsets() {
+            return hasOffsets;
+        }
+
+        @Override
+        public boolean hasPositions() {
+            return hasPositions;
+        }
+
+        @Override
+        public boolean hasPayloads() {
+            return hasPayloads;
+        }
+    }
+
+    private static final class BlockTermsEnum extends TermsEnum {
+
+        private final BlockTerms terms;
+        private int ord = -1;
+
+        BlockTermsEnum(BlockTerms terms) {
+            this.terms = terms;
+        }
+
+        @Override
+        public BytesRef next() {
+            if (ord + 1 >= terms.terms.length) {
+                ord = terms.terms.length;
+                return null;
+            }
+            return terms.terms[++ord];
+        }
+
+        @Override
+        public SeekStatus seekCeil(BytesRef text) {
+            int lo = 0;
+            int hi = terms.terms.length - 1;
+            while (lo <= hi) {
+                final int mid = (lo + hi) >>> 1;
+                final int cmp = terms.terms[mid].compareTo(text);
+                if (cmp < 0) {
+                    lo = mid + 1;
+                } else if (cmp > 0) {
+                    hi = mid - 1;
+                } else {
+                    ord = mid;
+                    return SeekStatus.FOUND;
+                }
+            }
+            ord = lo;
+            return lo == terms.terms.length ? SeekStatus.END : SeekStatus.NOT_FOUND;
+        }
+
+        @Override
+        public void seekExact(long ord) {
+            if (ord < 0 || ord >= terms.terms.length) {
+                throw new IllegalArgumentException("ord=" + ord + " is out of bounds [0-" + terms.terms.length + ")");
+            }
+            this.ord = (int) ord;
+        }
+
+        @Override
+        public BytesRef term() {
+            return terms.terms[ord];
+        }
+
+        @Override
+        public long ord() {
+            return ord;
+        }
+
+        @Override
+        public int docFreq() {
+            return 1;
+        }
+
+        @Override
+        public long totalTermFreq() {
+            return terms.freqs[ord];
+        }
+
+        @Override
+        public PostingsEnum postings(PostingsEnum reuse, int flags) {
+            final BlockPostingsEnum postings;
+            if (reuse instanceof BlockPostingsEnum) {
+                postings = (BlockPostingsEnum) reuse;
+            } else {
+                postings = new BlockPostingsEnum();
+            }
+            postings.reset(terms.freqs[ord],
+                    terms.hasPositions ? terms.positions[ord] : null,
+                    terms.hasOffsets ? terms.startOffsets[ord] : null,
+                    terms.hasOffsets ? terms.endOffsets[ord] : null,
+                    terms.hasPayloads ? terms.payloads[ord] : null);
+            return postings;
+        }
+    }
+
+    /**
+     * Postings of a term vector: a single document, doc ID 0.
+     */
+    private static final class BlockPostingsEnum extends PostingsEnum {
+
+        private int doc = -1;
+        private int freq;
+        private int[] positions, startOffsets, endOffsets;
+        private BytesRef[] payloads;
+        private int upto;
+
+        void reset(int freq, int[] positions, int[] startOffsets, int[] endOffsets, BytesRef[] payloads) {
+            this.doc = -1;
+            this.freq = freq;
+            this.positions = positions;
+            this.startOffsets = startOffsets;
+            this.endOffsets = endOffsets;
+            this.payloads = payloads;
+            this.upto = -1;
+        }
+
+        @Override
+        public int freq() {
+            return freq;
+        }
+
+        @Override
+        public int nextPosition() {
+            assert upto + 1 < freq;
+            ++upto;
+            return positions == null ? -1 : positions[upto];
+        }
+
+        @Override
+        public int startOffset() {
+            return startOffsets == null || upto < 0 ? -1 : startOffsets[upto];
+        }
+
+        @Override
+        public int endOffset() {
+            return endOffsets == null || upto < 0 ? -1 : endOffsets[upto];
+        }
+
+        @Override
+        public BytesRef getPayload() {
+            return payloads == null || upto < 0 ? null : payloads[upto];
+        }
+
+        @Override
+        public int docID() {
+            return doc;
+        }
+
+        @Override
+        public int nextDoc() {
+            return doc = doc == -1 ? 0 : NO_MORE_DOCS;
+        }
+
+        @Override
+        public int advance(int target) throws IOException {
+            return slowAdvance(target);
+        }
+
+        @Override
+        public long cost() {
+            return 1;
+        }
+    }
+}
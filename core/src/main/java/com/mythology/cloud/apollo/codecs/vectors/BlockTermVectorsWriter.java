@@ -0,0 +1,177 @@
+package com.mythology.cloud.apollo.codecs.vectors;
+
+import com.mythology.cloud.apollo.codecs.CodecUtil;
+import com.mythology.cloud.apollo.codecs.TermVectorsWriter;
+import com.mythology.cloud.apollo.index.FieldInfo;
+import com.mythology.cloud.apollo.index.FieldInfos;
+import com.mythology.cloud.apollo.store.Directory;
+import com.mythology.cloud.apollo.store.IndexOutput;
+import com.mythology.cloud.apollo.util.ArrayUtil;
+import com.mythology.cloud.apollo.util.BytesRef;
+import com.mythology.cloud.apollo.util.BytesRefBuilder;
+import com.mythology.cloud.apollo.util.IOUtils;
+import com.mythology.cloud.apollo.util.StringHelper;
+import com.mythology.cloud.apollo.util.packed.DirectMonotonicWriter;
+
+import java.io.IOException;
+
+import static com.mythology.cloud.apollo.codecs.vectors.BlockTermVectorsFormat.DIRECT_MONOTONIC_BLOCK_SHIFT;
+import static com.mythology.cloud.apollo.codecs.vectors.BlockTermVectorsFormat.OFFSETS;
+import static com.mythology.cloud.apollo.codecs.vectors.BlockTermVectorsFormat.PAYLOADS;
+import static com.mythology.cloud.apollo.codecs.vectors.BlockTermVectorsFormat.POSITIONS;
+
+/**
+ * Writer for {@link BlockTermVectorsFormat}.
+ *
+ * @lucene.experimental
+ */
+public final class BlockTermVectorsWriter extends TermVectorsWriter {
+
+    private IndexOutput data, index;
+    private long[] docStarts = new long[16];
+    private int numDocs;
+
+    // state of the current field/term
+    private int numTermsLeft;
+    private boolean positions, offsets, payloads;
+    private final BytesRefBuilder lastTerm = new BytesRefBuilder();
+    private int numPositionsLeft;
+    private int lastPosition, lastStartOffset;
+
+    /**
+     * expert: Creates a new writer
+     */
+    public BlockTermVectorsWriter(Directory directory, String segment) throws IOException {
+        boolean success = false;
+        try {
+            data = directory.createOutput(BlockTermVectorsFormat.dataFileName(segment));
+            CodecUtil.writeHeader(data, BlockTermVectorsFormat.DATA_CODEC, BlockTermVectorsFormat.VERSION_CURRENT);
+            index = directory.createOutput(BlockTermVectorsFormat.indexFileName(segment));
+            CodecUtil.writeHeader(index, BlockTermVectorsFormat.INDEX_CODEC, BlockTermVectorsFormat.VERSION_CURRENT);
+            success = true;
+        } finally {
+            if (!success) {
+                IOUtils.closeWhileHandlingException(this);
+            }
+        }
+    }
+
+    @Override
+    public void startDocument(int numVectorFields) throws IOException {
+        docStarts = ArrayUtil.grow(docStarts, numDocs + 1);
+        docStarts[numDocs++] = data.getFilePointer();
+        data.writeVInt(numVectorFields);
+    }
+
+    @Override
+    public void startField(FieldInfo info, int numTerms, boolean positions, boolean offsets, boolean payloads) throws IOException {
+        assert numTermsLeft == 0 : "previous field has " + numTermsLeft + " missing terms";
+        if (payloads && positions == false) {
+            throw new IllegalArgumentException("cannot index term vector payloads without term vector positions (field=\"" + info.name + "\")");
+        }
+        this.positions = positions;
+        this.offsets = offsets;
+        this.payloads = payloads;
+        this.numTermsLeft = numTerms;
+        lastTerm.clear();
+
+        data.writeVInt(info.number);
+        int flags = 0;
+        if (positions) {
+            flags |= POSITIONS;
+        }
+        if (offsets) {
+            flags |= OFFSETS;
+        }
+        if (payloads) {
+            flags |= PAYLOADS;
+        }
+        data.writeByte((byte) flags);
+        data.writeVInt(numTerms);
+    }
+
+    @Override
+    public void startTerm(BytesRef term, int freq) throws IOException {
+        assert numPositionsLeft == 0 : "previous term has " + numPositionsLeft + " missing positions";
+        assert numTermsLeft > 0;
+        assert lastTerm.length() == 0 || term.compareTo(lastTerm.get()) > 0 : "terms out of order";
+        numTermsLeft--;
+        if (freq <= 0) {
+            throw new IllegalArgumentException("freq must be positive, got " + freq);
+        }
+
+        // terms of a field are sorted: only write the suffix that is not shared with the previous term
+        final int prefix = lastTerm.length() == 0 ? 0 : StringHelper.bytesDifference(lastTerm.get(), term);
+        final int suffix = term.length - prefix;
+        data.writeVInt(prefix);
+        data.writeVInt(suffix);
+        data.writeBytes(term.bytes, term.offset + prefix, suffix);
+        data.writeVInt(freq);
+        lastTerm.copyBytes(term);
+
+        numPositionsLeft = positions || offsets ? freq : 0;
+        lastPosition = 0;
+        lastStartOffset = 0;
+    }
+
+    @Override
+    public void addPosition(int position, int startOffset, int endOffset, BytesRef payload) throws IOException {
+        assert numPositionsLeft > 0;
+        numPositionsLeft--;
+        if (positions) {
+            final int delta = position - lastPosition;
+            if (delta < 0) {
+                throw new IllegalArgumentException("positions must be non-decreasing, got " + position + " after " + lastPosition);
+            }
+            lastPosition = position;
+            if (payloads) {
+                if (payload != null && payload.length > 0) {
+                    data.writeVInt((delta << 1) | 1);
+                    data.writeVInt(payload.length);
+                    data.writeBytes(payload.bytes, payload.offset, payload.length);
+                } else {
+                    data.writeVInt(delta << 1);
+                }
+            } else {
+                data.writeVInt(delta);
+            }
+        }
+        if (offsets) {
+            if (startOffset < lastStartOffset || endOffset < startOffset) {
+                throw new IllegalArgumentException("offsets must be non-decreasing and endOffset >= startOffset, got startOffset="
+                        + startOffset + ",endOffset=" + endOffset + " after startOffset=" + lastStartOffset);
+            }
+            data.writeVInt(startOffset - lastStartOffset);
+            data.writeVInt(endOffset - startOffset);
+            lastStartOffset = startOffset;
+        }
+    }
+
+    @Override
+    public void finish(FieldInfos fis, int numDocs) throws IOException {
+        if (numDocs != this.numDocs) {
+            throw new RuntimeException("Wrote " + this.numDocs + " docs, finish called with numDocs=" + numDocs);
+        }
+        final long addressesStart = data.getFilePointer();
+        index.writeVInt(numDocs);
+        index.writeLong(addressesStart);
+        final DirectMonotonicWriter addresses = DirectMonotonicWriter.getInstance(index, data, numDocs + 1L, DIRECT_MONOTONIC_BLOCK_SHIFT);
+        for (int i = 0; i < numDocs; ++i) {
+            addresses.add(docStarts[i]);
+        }
+        addresses.add(addressesStart);
+        addresses.finish();
+        index.writeLong(data.getFilePointer() - addressesStart);
+        CodecUtil.writeFooter(index);
+        CodecUtil.writeFooter(data);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            IOUtils.close(data, index);
+        } finally {
+            data = index = null;
+        }
+    }
+}
@@ -1,9 +1,12 @@
 package com.mythology.cloud.apollo.document;
 
+import com.mythology.cloud.apollo.index.IndexableField;
+import com.mythology.cloud.apollo.util.ArrayUtil;
 import com.mythology.cloud.apollo.util.BytesRef;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -19,12 +22,27 @@ import java.util.List;
  * <i>not</i> available in documents retrieved from the index, e.g. with {@link
  * ScoreDoc#doc} or {@link IndexReader#document(int)}.
  *
+ * <p>Lookups by name ({@link #get}, {@link #getField}, {@link #getFields(String)},
+ * {@link #getValues}, ...) go through an index from field names to the positions
+ * of their fields, which is built on the first lookup, kept up to date by
+ * {@link #add} and rebuilt after fields are removed. Fields keep their insertion
+ * order.
+ * <p>
+ * 按名称查找字段时使用字段名到字段位置的索引，在第一次查找时构建，{@link #add}时增量更新，删除字段后重建，
+ * 因此多字段文档的按名查找为常数时间；字段保持插入顺序。
+ * </p>
+ *
  * @author gyli
  * @date 2019/12/10 18:58
  */
 public final class Document implements Iterable<IndexableField> {
 
+    // documents that have fewer fields than this are scanned rather than indexed
+    private static final int MIN_FIELDS_TO_INDEX = 8;
+
     private final List<IndexableField> fields = new ArrayList<>();
+    // lazily built, null if it needs to be (re)built
+    private FieldIndex index;
 
     /**
      * Constructs a new document with no fields.
@@ -34,7 +52,25 @@ public final class Document implements Iterable<IndexableField> {
 
     @Override
     public Iterator<IndexableField> iterator() {
-        return fields.iterator();
+        final Iterator<IndexableField> it = fields.iterator();
+        // removing through the iterator shifts the positions of the next fields
+        return new Iterator<IndexableField>() {
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public IndexableField next() {
+                return it.next();
+            }
+
+            @Override
+            public void remove() {
+                it.remove();
+                index = null;
+            }
+        };
     }
 
     /**
@@ -49,6 +85,9 @@ public final class Document implements Iterable<IndexableField> {
      */
     public final void add(IndexableField field) {
         fields.add(field);
+        if (index != null) {
+            index.add(field.name(), fields.size() - 1);
+        }
     }
 
     /**
@@ -62,13 +101,20 @@ public final class Document implements Iterable<IndexableField> {
      * document has to be added.</p>
      */
     public final void removeField(String name) {
-        Iterator<IndexableField> it = fields.iterator();
-        while (it.hasNext()) {
-            IndexableField field = it.next();
-            if (field.name().equals(name)) {
-                it.remove();
-                return;
+        final int[] positions = positions(name);
+        if (positions == null) {
+            Iterator<IndexableField> it = fields.iterator();
+            while (it.hasNext()) {
+                IndexableField field = it.next();
+                if (field.name().equals(name)) {
+                    it.remove();
+                    index = null;
+                    return;
+                }
             }
+        } else if (positions.length > 0) {
+            fields.remove(positions[0]);
+            index = null;
         }
     }
 
@@ -82,11 +128,16 @@ public final class Document implements Iterable<IndexableField> {
      * document has to be added.</p>
      */
     public final void removeFields(String name) {
+        final int[] positions = positions(name);
+        if (positions != null && positions.length == 0) {
+            return;
+        }
         Iterator<IndexableField> it = fields.iterator();
         while (it.hasNext()) {
             IndexableField field = it.next();
             if (field.name().equals(name)) {
                 it.remove();
+                index = null;
             }
         }
     }
@@ -103,9 +154,19 @@ public final class Document implements Iterable<IndexableField> {
      */
     public final BytesRef[] getBinaryValues(String name) {
         final List<BytesRef> result = new ArrayList<>();
-        for (IndexableField field : fields) {
-            if (field.name().equals(name)) {
-                final BytesRef bytes = field.binaryValue();
+        final int[] positions = positions(name);
+        if (positions == null) {
+            for (IndexableField field : fields) {
+                if (field.name().equals(name)) {
+                    final BytesRef bytes = field.binaryValue();
+                    if (bytes != null) {
+                        result.add(bytes);
+                    }
+                }
+            }
+        } else {
+            for (int position : positions) {
+                final BytesRef bytes = fields.get(position).binaryValue();
                 if (bytes != null) {
                     result.add(bytes);
                 }
@@ -125,9 +186,19 @@ public final class Document implements Iterable<IndexableField> {
      * @return a <code>BytesRef</code> containing the binary field value or <code>null</code>
      */
     public final BytesRef getBinaryValue(String name) {
-        for (IndexableField field : fields) {
-            if (field.name().equals(name)) {
-                final BytesRef bytes = field.binaryValue();
+        final int[] positions = positions(name);
+        if (positions == null) {
+            for (IndexableField field : fields) {
+                if (field.name().equals(name)) {
+                    final BytesRef bytes = field.binaryValue();
+                    if (bytes != null) {
+                        return bytes;
+                    }
+                }
+            }
+        } else {
+            for (int position : positions) {
+                final BytesRef bytes = fields.get(position).binaryValue();
                 if (bytes != null) {
                     return bytes;
                 }
@@ -142,12 +213,16 @@ public final class Document implements Iterable<IndexableField> {
      * first value added.
      */
     public final IndexableField getField(String name) {
-        for (IndexableField field : fields) {
-            if (field.name().equals(name)) {
-                return field;
+        final int[] positions = positions(name);
+        if (positions == null) {
+            for (IndexableField field : fields) {
+                if (field.name().equals(name)) {
+                    return field;
+                }
             }
+            return null;
         }
-        return null;
+        return positions.length == 0 ? null : fields.get(positions[0]);
     }
 
     /**
@@ -159,6 +234,15 @@ public final class Document implements Iterable<IndexableField> {
      * @return a <code>Field[]</code> array
      */
     public IndexableField[] getFields(String name) {
+        final int[] positions = positions(name);
+        if (positions != null) {
+            final IndexableField[] result = new IndexableField[positions.length];
+            for (int i = 0; i < positions.length; ++i) {
+                result[i] = fields.get(positions[i]);
+            }
+            return result;
+        }
+
         List<IndexableField> result = new ArrayList<>();
         for (IndexableField field : fields) {
             if (field.name().equals(name)) {
@@ -196,9 +280,19 @@ public final class Document implements Iterable<IndexableField> {
      */
     public final String[] getValues(String name) {
         List<String> result = new ArrayList<>();
-        for (IndexableField field : fields) {
-            if (field.name().equals(name) && field.stringValue() != null) {
-                result.add(field.stringValue());
+        final int[] positions = positions(name);
+        if (positions == null) {
+            for (IndexableField field : fields) {
+                if (field.name().equals(name) && field.stringValue() != null) {
+                    result.add(field.stringValue());
+                }
+            }
+        } else {
+            for (int position : positions) {
+                final String value = fields.get(position).stringValue();
+                if (value != null) {
+                    result.add(value);
+                }
             }
         }
 
@@ -218,9 +312,19 @@ public final class Document implements Iterable<IndexableField> {
      * the actual numeric field instance back, use {@link #getField}.
      */
     public final String get(String name) {
-        for (IndexableField field : fields) {
-            if (field.name().equals(name) && field.stringValue() != null) {
-                return field.stringValue();
+        final int[] positions = positions(name);
+        if (positions == null) {
+            for (IndexableField field : fields) {
+                if (field.name().equals(name) && field.stringValue() != null) {
+                    return field.stringValue();
+                }
+            }
+        } else {
+            for (int position : positions) {
+                final String value = fields.get(position).stringValue();
+                if (value != null) {
+                    return value;
+                }
             }
         }
         return null;
@@ -249,6 +353,111 @@ public final class Document implements Iterable<IndexableField> {
      */
     public void clear() {
         fields.clear();
+        index = null;
+    }
+
+    /**
+     * Return the positions of the fields called {@code name} in insertion
+     * order, or {@code null} if this document is small enough to be scanned.
+     */
+    private int[] positions(String name) {
+        if (fields.size() < MIN_FIELDS_TO_INDEX) {
+            return null;
+        }
+        if (index == null) {
+            index = new FieldIndex(fields);
+        }
+        return index.positions(name);
+    }
+
+    /**
+     * Open-addressing hash table from field names to the positions of their
+     * fields, with linear probing.
+     */
+    private static final class FieldIndex {
+
+        private static final int[] EMPTY = new int[0];
+
+        private String[] names;
+        private int[][] positions;
+        private int[] counts;
+        private int mask;
+        private int size;
+
+        FieldIndex(List<IndexableField> fields) {
+            // the number of distinct names is not known, size for the worst case
+            final int capacity = Integer.highestOneBit(Math.max(fields.size(), 2) - 1) << 2;
+            names = new String[capacity];
+            positions = new int[capacity][];
+            counts = new int[capacity];
+            mask = capacity - 1;
+            for (int i = 0; i < fields.size(); ++i) {
+                add(fields.get(i).name(), i);
+            }
+        }
+
+        private static int hash(String name) {
+            final int h = name.hashCode() * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+
+        private int slot(String name) {
+            int slot = hash(name) & mask;
+            while (names[slot] != null && names[slot].equals(name) == false) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        void add(String name, int position) {
+            int slot = slot(name);
+            if (names[slot] == null) {
+                if (size + 1 > (mask + 1) >>> 1) {
+                    rehash();
+                    slot = slot(name);
+                }
+                names[slot] = name;
+                positions[slot] = new int[1];
+                size++;
+            } else if (counts[slot] == positions[slot].length) {
+                positions[slot] = ArrayUtil.grow(positions[slot], counts[slot] + 1);
+            }
+            positions[slot][counts[slot]++] = position;
+        }
+
+        int[] positions(String name) {
+            final int slot = slot(name);
+            if (names[slot] == null) {
+                return EMPTY;
+            }
+            final int[] result = positions[slot];
+            final int count = counts[slot];
+            if (result.length != count) {
+                // trim once, so that later lookups don't copy
+                positions[slot] = ArrayUtil.copyOfSubArray(result, 0, count);
+                return positions[slot];
+            }
+            return result;
+        }
+
+        private void rehash() {
+            final String[] oldNames = names;
+            final int[][] oldPositions = positions;
+            final int[] oldCounts = counts;
+            final int capacity = oldNames.length << 1;
+            names = new String[capacity];
+            positions = new int[capacity][];
+            counts = new int[capacity];
+            mask = capacity - 1;
+            for (int i = 0; i < oldNames.length; ++i) {
+                if (oldNames[i] != null) {
+                    final int slot = slot(oldNames[i]);
+                    names[slot] = oldNames[i];
+                    positions[slot] = oldPositions[i];
+                    counts[slot] = oldCounts[i];
+                }
+            }
+        }
     }
 }
 
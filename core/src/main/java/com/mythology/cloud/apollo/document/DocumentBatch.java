@@ -0,0 +1,426 @@
+package com.mythology.cloud.apollo.document;
+
+import com.mythology.cloud.apollo.index.IndexableFieldType;
+import com.mythology.cloud.apollo.util.ArrayUtil;
+import com.mythology.cloud.apollo.util.BytesRef;
+import com.mythology.cloud.apollo.util.FixedBitSet;
+import com.mythology.cloud.apollo.util.UnicodeUtil;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A column-oriented batch of documents that share the same fields, to be
+ * indexed at once with
+ * {@link com.mythology.cloud.apollo.index.IndexWriter#addDocuments(DocumentBatch)}.
+ * <p>
+ * Every field of the batch is a {@link Column} that has at most one value per
+ * document. Numeric values are kept in primitive arrays and string and binary
+ * values are appended to a byte arena per column, so building a batch does
+ * not create objects per value. The indexing chain then looks the field up and
+ * checks its type once per batch rather than once per document, and writes
+ * doc values and points column by column.
+ * <p>
+ * Typical usage:
+ * <pre class="prettyprint">
+ * DocumentBatch batch = new DocumentBatch();
+ * int id = batch.addColumn("id", ID_TYPE, DocumentBatch.ValueType.STRING);
+ * int timestamp = batch.addColumn("timestamp", TIMESTAMP_TYPE, DocumentBatch.ValueType.LONG);
+ * for (Record record : records) {
+ *   batch.addDocument();
+ *   batch.setString(id, record.id());
+ *   batch.setLong(timestamp, record.timestamp());
+ * }
+ * writer.addDocuments(batch);
+ * batch.clear();
+ * </pre>
+ * <p>
+ * Values are always set on the last added document. {@link #clear()} removes
+ * the documents but keeps the columns and their buffers, so that a batch can
+ * be refilled without allocating.
+ * <p>
+ * 列式的文档批次：批次内的文档共享同一组字段，每个字段是一列，每个文档至多一个值；数值保存在基本类型数组中，
+ * 字符串和二进制值追加到每列的字节区中。索引时每批次只查找、校验一次字段类型，并按列写入文档值和点数据。
+ * </p>
+ *
+ * @lucene.experimental
+ */
+public final class DocumentBatch {
+
+    /**
+     * The type of the values of a {@link Column}.
+     */
+    public enum ValueType {
+        /**
+         * {@code int} values.
+         */
+        INT,
+        /**
+         * {@code long} values.
+         */
+        LONG,
+        /**
+         * {@code float} values.
+         */
+        FLOAT,
+        /**
+         * {@code double} values.
+         */
+        DOUBLE,
+        /**
+         * Binary values.
+         */
+        BYTES,
+        /**
+         * String values, kept as UTF-8.
+         */
+        STRING;
+
+        boolean isNumeric() {
+            return this != BYTES && this != STRING;
+        }
+    }
+
+    /**
+     * A field of the batch, with at most one value per document.
+     */
+    public static final class Column {
+
+        private final String name;
+        private final IndexableFieldType fieldType;
+        private final ValueType valueType;
+        private final DocumentBatch batch;
+
+        private FixedBitSet hasValue = new FixedBitSet(64);
+        private int numValues;
+        // numeric values, float and double values are stored as their raw bits
+        private long[] numbers;
+        // BYTES and STRING values: the value of doc i ends at ends[i], and
+        // starts where the value of doc i-1 ends, docs without value have
+        // empty values
+        private byte[] bytes;
+        private int[] ends;
+        private int numEnds;
+
+        Column(DocumentBatch batch, String name, IndexableFieldType fieldType, ValueType valueType) {
+            this.batch = batch;
+            this.name = name;
+            this.fieldType = fieldType;
+            this.valueType = valueType;
+            if (valueType.isNumeric()) {
+                numbers = new long[8];
+            } else {
+                bytes = new byte[64];
+                ends = new int[8];
+            }
+        }
+
+        /**
+         * The name of the field.
+         */
+        public String name() {
+            return name;
+        }
+
+        /**
+         * The type of the field.
+         */
+        public IndexableFieldType fieldType() {
+            return fieldType;
+        }
+
+        /**
+         * The type of the values.
+         */
+        public ValueType valueType() {
+            return valueType;
+        }
+
+        /**
+         * Return the number of documents of the batch.
+         */
+        public int numDocs() {
+            return batch.numDocs;
+        }
+
+        /**
+         * Return the number of documents that have a value.
+         */
+        public int numValues() {
+            return numValues;
+        }
+
+        /**
+         * Return whether the given document has a value.
+         */
+        public boolean hasValue(int doc) {
+            if (doc < 0 || doc >= batch.numDocs) {
+                throw new IndexOutOfBoundsException("doc=" + doc + ", numDocs=" + batch.numDocs);
+            }
+            return doc < hasValue.length() && hasValue.get(doc);
+        }
+
+        /**
+         * Return the value of a document as a {@code long}, like
+         * {@link Number#longValue()}. Only valid for numeric columns and
+         * documents that have a value.
+         */
+        public long longValue(int doc) {
+            assert hasValue(doc);
+            final long bits = numbers[doc];
+            switch (valueType) {
+                case INT:
+                case LONG:
+                    return bits;
+                case FLOAT:
+                    return (long) Float.intBitsToFloat((int) bits);
+                case DOUBLE:
+                    return (long) Double.longBitsToDouble(bits);
+                default:
+                    throw new IllegalStateException("column \"" + name + "\" is not numeric");
+            }
+        }
+
+        /**
+         * Return the value of a document as a boxed {@link Integer},
+         * {@link Long}, {@link Float} or {@link Double}. Only valid for numeric
+         * columns and documents that have a value.
+         */
+        public Number numericValue(int doc) {
+            assert hasValue(doc);
+            final long bits = numbers[doc];
+            switch (valueType) {
+                case INT:
+                    return (int) bits;
+                case LONG:
+                    return bits;
+                case FLOAT:
+                    return Float.intBitsToFloat((int) bits);
+                case DOUBLE:
+                    return Double.longBitsToDouble(bits);
+                default:
+                    throw new IllegalStateException("column \"" + name + "\" is not numeric");
+            }
+        }
+
+        /**
+         * Point {@code scratch} at the bytes of the value of a document, UTF-8
+         * for {@link ValueType#STRING} columns, and return it. Only valid for
+         * documents that have a value. The bytes must not be modified.
+         */
+        public BytesRef bytesValue(int doc, BytesRef scratch) {
+            assert hasValue(doc);
+            if (valueType.isNumeric()) {
+                throw new IllegalStateException("column \"" + name + "\" is numeric");
+            }
+            scratch.bytes = bytes;
+            scratch.offset = doc == 0 ? 0 : ends[doc - 1];
+            scratch.length = ends[doc] - scratch.offset;
+            return scratch;
+        }
+
+        /**
+         * Return the value of a document as a string. Only valid for
+         * {@link ValueType#STRING} columns and documents that have a value.
+         */
+        public String stringValue(int doc) {
+            assert hasValue(doc);
+            if (valueType != ValueType.STRING) {
+                throw new IllegalStateException("column \"" + name + "\" does not have string values");
+            }
+            final int start = doc == 0 ? 0 : ends[doc - 1];
+            return new String(bytes, start, ends[doc] - start, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Return the concatenated bytes of all the values of this column, in
+         * document order. Only valid for {@link ValueType#BYTES} and
+         * {@link ValueType#STRING} columns. The bytes must not be modified.
+         */
+        public BytesRef bytesValues() {
+            if (valueType.isNumeric()) {
+                throw new IllegalStateException("column \"" + name + "\" is numeric");
+            }
+            return new BytesRef(bytes, 0, numEnds == 0 ? 0 : ends[numEnds - 1]);
+        }
+
+        private int currentDoc(ValueType expected) {
+            if (valueType != expected) {
+                throw new IllegalArgumentException("column \"" + name + "\" has " + valueType + " values, not " + expected);
+            }
+            final int doc = batch.numDocs - 1;
+            if (doc < 0) {
+                throw new IllegalStateException("addDocument() must be called before setting values");
+            }
+            hasValue = FixedBitSet.ensureCapacity(hasValue, doc);
+            if (hasValue.getAndSet(doc)) {
+                throw new IllegalArgumentException("column \"" + name + "\" already has a value for the current document");
+            }
+            numValues++;
+            return doc;
+        }
+
+        void setNumber(ValueType expected, long bits) {
+            final int doc = currentDoc(expected);
+            numbers = ArrayUtil.grow(numbers, doc + 1);
+            numbers[doc] = bits;
+        }
+
+        void setBytes(ValueType expected, byte[] value, int offset, int length) {
+            final int doc = currentDoc(expected);
+            final int start = fillEnds(doc);
+            bytes = ArrayUtil.grow(bytes, start + length);
+            System.arraycopy(value, offset, bytes, start, length);
+            ends[numEnds++] = start + length;
+        }
+
+        void setString(String value) {
+            final int doc = currentDoc(ValueType.STRING);
+            final int start = fillEnds(doc);
+            bytes = ArrayUtil.grow(bytes, start + value.length() * UnicodeUtil.MAX_UTF8_BYTES_PER_CHAR);
+            ends[numEnds++] = UnicodeUtil.UTF16toUTF8(value, 0, value.length(), bytes, start);
+        }
+
+        // gives empty values to the previous docs without value, and returns
+        // where the value of doc starts
+        private int fillEnds(int doc) {
+            ends = ArrayUtil.grow(ends, doc + 1);
+            final int start = numEnds == 0 ? 0 : ends[numEnds - 1];
+            while (numEnds < doc) {
+                ends[numEnds++] = start;
+            }
+            return start;
+        }
+
+        void clear() {
+            hasValue.clear(0, hasValue.length());
+            numValues = 0;
+            numEnds = 0;
+        }
+    }
+
+    private final List<Column> columns = new ArrayList<>();
+    private int numDocs;
+
+    /**
+     * Create an empty batch.
+     */
+    public DocumentBatch() {
+    }
+
+    /**
+     * Add a column to this batch and return its index. Columns can only be
+     * added while the batch is empty, and field names must be unique.
+     */
+    public int addColumn(String name, IndexableFieldType fieldType, ValueType valueType) {
+        Objects.requireNonNull(name, "name must not be null");
+        Objects.requireNonNull(fieldType, "fieldType must not be null");
+        Objects.requireNonNull(valueType, "valueType must not be null");
+        if (numDocs != 0) {
+            throw new IllegalStateException("columns can only be added to an empty batch");
+        }
+        for (Column column : columns) {
+            if (column.name.equals(name)) {
+                throw new IllegalArgumentException("column \"" + name + "\" already exists");
+            }
+        }
+        columns.add(new Column(this, name, fieldType, valueType));
+        return columns.size() - 1;
+    }
+
+    /**
+     * Return the number of columns.
+     */
+    public int numColumns() {
+        return columns.size();
+    }
+
+    /**
+     * Return the column at the given index.
+     */
+    public Column column(int index) {
+        return columns.get(index);
+    }
+
+    /**
+     * Return the number of documents.
+     */
+    public int numDocs() {
+        return numDocs;
+    }
+
+    /**
+     * Add a document without values, and return its index. The following
+     * calls to the setters set the values of this document.
+     */
+    public int addDocument() {
+        if (numDocs == Integer.MAX_VALUE) {
+            throw new IllegalStateException("too many documents");
+        }
+        return numDocs++;
+    }
+
+    /**
+     * Set the value of an {@link ValueType#INT} column for the current document.
+     */
+    public void setInt(int column, int value) {
+        columns.get(column).setNumber(ValueType.INT, value);
+    }
+
+    /**
+     * Set the value of a {@link ValueType#LONG} column for the current document.
+     */
+    public void setLong(int column, long value) {
+        columns.get(column).setNumber(ValueType.LONG, value);
+    }
+
+    /**
+     * Set the value of a {@link ValueType#FLOAT} column for the current document.
+     */
+    public void setFloat(int column, float value) {
+        columns.get(column).setNumber(ValueType.FLOAT, Float.floatToRawIntBits(value));
+    }
+
+    /**
+     * Set the value of a {@link ValueType#DOUBLE} column for the current document.
+     */
+    public void setDouble(int column, double value) {
+        columns.get(column).setNumber(ValueType.DOUBLE, Double.doubleToRawLongBits(value));
+    }
+
+    /**
+     * Set the value of a {@link ValueType#BYTES} column for the current
+     * document. The bytes are copied.
+     */
+    public void setBytes(int column, BytesRef value) {
+        columns.get(column).setBytes(ValueType.BYTES, value.bytes, value.offset, value.length);
+    }
+
+    /**
+     * Set the value of a {@link ValueType#STRING} column for the current
+     * document.
+     */
+    public void setString(int column, String value) {
+        columns.get(column).setString(Objects.requireNonNull(value, "value must not be null"));
+    }
+
+    /**
+     * Set the value of a {@link ValueType#STRING} column for the current
+     * document, from its UTF-8 bytes, which are copied.
+     */
+    public void setUTF8String(int column, BytesRef utf8) {
+        columns.get(column).setBytes(ValueType.STRING, utf8.bytes, utf8.offset, utf8.length);
+    }
+
+    /**
+     * Remove all documents, but keep the columns and their buffers.
+     */
+    public void clear() {
+        for (Column column : columns) {
+            column.clear();
+        }
+        numDocs = 0;
+    }
+}
@@ -0,0 +1,181 @@
+package com.mythology.cloud.apollo.document;
+
+import com.mythology.cloud.apollo.index.IndexableFieldType;
+import com.mythology.cloud.apollo.util.ArrayUtil;
+import com.mythology.cloud.apollo.util.BytesRef;
+import com.mythology.cloud.apollo.util.CloseableThreadLocal;
+
+import java.io.Closeable;
+import java.io.Reader;
+
+/**
+ * Builds {@link Document}s out of recycled {@link ReusableField}s, so that
+ * indexing a stream of documents does not allocate a new document, field list
+ * or field object per document.
+ * <p>
+ * Typical usage:
+ * <pre class="prettyprint">
+ * DocumentBuilder builder = pool.acquire();
+ * for (Record record : records) {
+ *   builder.reset()
+ *       .addString("id", ID_TYPE, record.id())
+ *       .addLong("timestamp", TIMESTAMP_TYPE, record.timestamp());
+ *   writer.addDocument(builder.getDocument());
+ * }
+ * </pre>
+ * <p>
+ * {@link #reset()} makes all fields available again, so the document and the
+ * fields returned by a builder may only be used until the next call to
+ * {@link #reset()}. A builder is not thread-safe, use a {@link Pool} to get one
+ * builder per indexing thread.
+ * <p>
+ * 复用{@link Document}和{@link ReusableField}的文档构建器：{@link #reset()}之后字段实例被回收，
+ * 用于下一个文档，避免每个文档分配新的文档、字段列表和字段对象；构建器不是线程安全的，可通过{@link Pool}为每个线程获取一个。
+ * </p>
+ *
+ * @lucene.experimental
+ */
+public final class DocumentBuilder {
+
+    private final Document doc = new Document();
+    private ReusableField[] fields = new ReusableField[0];
+    private int numFields;
+
+    /**
+     * Sole constructor.
+     */
+    public DocumentBuilder() {
+    }
+
+    /**
+     * Clear the document and recycle all its fields.
+     */
+    public DocumentBuilder reset() {
+        doc.clear();
+        numFields = 0;
+        return this;
+    }
+
+    /**
+     * Add a field without value to the document and return it, so that the
+     * caller can set its value.
+     */
+    public ReusableField addField(String name, IndexableFieldType type) {
+        if (numFields == fields.length) {
+            fields = ArrayUtil.grow(fields, numFields + 1);
+        }
+        ReusableField field = fields[numFields];
+        if (field == null) {
+            field = fields[numFields] = new ReusableField(name, type);
+        } else {
+            field.reset(name, type);
+        }
+        numFields++;
+        doc.add(field);
+        return field;
+    }
+
+    /**
+     * Add a field with a string value.
+     */
+    public DocumentBuilder addString(String name, IndexableFieldType type, String value) {
+        addField(name, type).setStringValue(value);
+        return this;
+    }
+
+    /**
+     * Add a field whose value is the given bytes, which are not copied.
+     */
+    public DocumentBuilder addBytes(String name, IndexableFieldType type, BytesRef value) {
+        addField(name, type).setBytesValue(value);
+        return this;
+    }
+
+    /**
+     * Add a field whose value is a slice of the given array, which is not copied.
+     */
+    public DocumentBuilder addBytes(String name, IndexableFieldType type, byte[] value, int offset, int length) {
+        addField(name, type).setBytesValue(value, offset, length);
+        return this;
+    }
+
+    /**
+     * Add a field whose value is read from a reader.
+     */
+    public DocumentBuilder addReader(String name, IndexableFieldType type, Reader value) {
+        addField(name, type).setReaderValue(value);
+        return this;
+    }
+
+    /**
+     * Add a field with an int value.
+     */
+    public DocumentBuilder addInt(String name, IndexableFieldType type, int value) {
+        addField(name, type).setIntValue(value);
+        return this;
+    }
+
+    /**
+     * Add a field with a long value.
+     */
+    public DocumentBuilder addLong(String name, IndexableFieldType type, long value) {
+        addField(name, type).setLongValue(value);
+        return this;
+    }
+
+    /**
+     * Add a field with a float value.
+     */
+    public DocumentBuilder addFloat(String name, IndexableFieldType type, float value) {
+        addField(name, type).setFloatValue(value);
+        return this;
+    }
+
+    /**
+     * Add a field with a double value.
+     */
+    public DocumentBuilder addDouble(String name, IndexableFieldType type, double value) {
+        addField(name, type).setDoubleValue(value);
+        return this;
+    }
+
+    /**
+     * Return the document that is being built. The same instance is returned
+     * after every {@link #reset()}.
+     */
+    public Document getDocument() {
+        return doc;
+    }
+
+    /**
+     * Hands out one {@link DocumentBuilder} per thread. Builders are released
+     * when the thread dies or when the pool is {@link #close() closed}.
+     */
+    public static final class Pool implements Closeable {
+
+        private final CloseableThreadLocal<DocumentBuilder> builders = new CloseableThreadLocal<DocumentBuilder>() {
+            @Override
+            protected DocumentBuilder initialValue() {
+                return new DocumentBuilder();
+            }
+        };
+
+        /**
+         * Sole constructor.
+         */
+        public Pool() {
+        }
+
+        /**
+         * Return the builder of the current thread, after a {@link DocumentBuilder#reset()}.
+         */
+        public DocumentBuilder acquire() {
+            return builders.get().reset();
+        }
+
+        @Override
+        public void close() {
+            builders.close();
+        }
+    }
+}
@@ -1,5 +1,9 @@
 package com.mythology.cloud.apollo.document;
 
+import com.mythology.cloud.apollo.index.FieldInfo;
+import com.mythology.cloud.apollo.index.StoredFieldVisitor;
+import com.mythology.cloud.apollo.util.BytesRef;
+
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.HashSet;
@@ -14,6 +18,9 @@ import java.util.Set;
  * <p>
  * This is used by {@link IndexReader#document(int)} to load a
  * document.
+ * <p>
+ * See {@link LazyDocumentStoredFieldVisitor} for a visitor that only decodes
+ * the fields that are actually read.
  *
  * @lucene.experimental
  * @Author kakalgy
@@ -54,13 +61,24 @@ public class DocumentStoredFieldVisitor extends StoredFieldVisitor {
         doc.add(new StoredField(fieldInfo.name, value));
     }
 
+    @Override
+    public void binaryField(FieldInfo fieldInfo, BytesRef value) throws IOException {
+        // the value is a view of the reader's buffer, the field needs its own copy
+        doc.add(new StoredField(fieldInfo.name, BytesRef.deepCopyOf(value)));
+    }
+
     @Override
     public void stringField(FieldInfo fieldInfo, byte[] value) throws IOException {
+        stringField(fieldInfo, new BytesRef(value));
+    }
+
+    @Override
+    public void stringField(FieldInfo fieldInfo, BytesRef value) throws IOException {
         final FieldType ft = new FieldType(TextField.TYPE_STORED);
         ft.setStoreTermVectors(fieldInfo.hasVectors());
         ft.setOmitNorms(fieldInfo.omitsNorms());
         ft.setIndexOptions(fieldInfo.getIndexOptions());
-        doc.add(new StoredField(fieldInfo.name, new String(value, StandardCharsets.UTF_8), ft));
+        doc.add(new StoredField(fieldInfo.name, new String(value.bytes, value.offset, value.length, StandardCharsets.UTF_8), ft));
     }
 
     @Override
@@ -0,0 +1,346 @@
+package com.mythology.cloud.apollo.document;
+
+import com.mythology.cloud.apollo.index.DocValuesType;
+import com.mythology.cloud.apollo.index.FieldInfo;
+import com.mythology.cloud.apollo.index.IndexOptions;
+import com.mythology.cloud.apollo.index.IndexableField;
+import com.mythology.cloud.apollo.index.IndexableFieldType;
+import com.mythology.cloud.apollo.index.StoredFieldVisitor;
+import com.mythology.cloud.apollo.util.ArrayUtil;
+import com.mythology.cloud.apollo.util.BytesRef;
+
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A {@link StoredFieldVisitor} that creates a {@link Document} whose fields
+ * are only decoded when they are first accessed.
+ * <p>
+ * Unlike {@link DocumentStoredFieldVisitor}, this visitor does not build a
+ * {@code String} or a {@code FieldType} for every stored value. The bytes of
+ * string and binary fields are appended to a buffer that is reused across
+ * documents, and each field only records where its value starts and how long
+ * it is. The value is decoded on the first call to
+ * {@link IndexableField#stringValue()}, {@link IndexableField#binaryValue()} or
+ * {@link IndexableField#numericValue()} and cached by the field. Field types
+ * are shared by all fields that come from the same {@link FieldInfo}.
+ * <p>
+ * The visitor can be reused for several documents by calling {@link #reset()}
+ * between them. Fields of the previous document must not be accessed after
+ * that, since their bytes get overwritten; fields whose value has already
+ * been decoded remain valid.
+ * <p>
+ * 延迟解码的存储字段访问器：字符串和二进制字段的字节追加到跨文档复用的缓冲区中，字段只记录偏移和长度，
+ * 第一次访问时才解码为{@code String}或数值并缓存；同一{@link FieldInfo}的字段共享字段类型。
+ * 调用{@link #reset()}后，上一个文档中尚未解码的字段不能再访问。
+ * </p>
+ *
+ * @lucene.experimental
+ */
+public class LazyDocumentStoredFieldVisitor extends StoredFieldVisitor {
+
+    /**
+     * Type of binary and numeric stored fields.
+     */
+    private static final IndexableFieldType STORED_ONLY = new SharedFieldType(false, false, false, IndexOptions.NONE);
+
+    private final Set<String> fieldsToAdd;
+    // text field types, by the FieldInfo they were created for
+    private final Map<FieldInfo, IndexableFieldType> textTypes = new IdentityHashMap<>();
+
+    private Document doc = new Document();
+    private byte[] buffer = BytesRef.EMPTY_BYTES;
+    private int length;
+
+    /**
+     * Load only fields named in the provided <code>Set&lt;String&gt;</code>.
+     *
+     * @param fieldsToAdd Set of fields to load, or <code>null</code> (all fields).
+     */
+    public LazyDocumentStoredFieldVisitor(Set<String> fieldsToAdd) {
+        this.fieldsToAdd = fieldsToAdd;
+    }
+
+    /**
+     * Load only fields named in the provided fields.
+     */
+    public LazyDocumentStoredFieldVisitor(String... fields) {
+        fieldsToAdd = new HashSet<>(fields.length);
+        for (String field : fields) {
+            fieldsToAdd.add(field);
+        }
+    }
+
+    /**
+     * Load all stored fields.
+     */
+    public LazyDocumentStoredFieldVisitor() {
+        this.fieldsToAdd = null;
+    }
+
+    @Override
+    public void binaryField(FieldInfo fieldInfo, byte[] value) {
+        binaryField(fieldInfo, new BytesRef(value));
+    }
+
+    @Override
+    public void binaryField(FieldInfo fieldInfo, BytesRef value) {
+        doc.add(new LazyField(this, fieldInfo.name, STORED_ONLY, LazyField.BINARY, append(value), value.length));
+    }
+
+    @Override
+    public void stringField(FieldInfo fieldInfo, byte[] value) {
+        stringField(fieldInfo, new BytesRef(value));
+    }
+
+    @Override
+    public void stringField(FieldInfo fieldInfo, BytesRef value) {
+        doc.add(new LazyField(this, fieldInfo.name, textType(fieldInfo), LazyField.STRING, append(value), value.length));
+    }
+
+    @Override
+    public void intField(FieldInfo fieldInfo, int value) {
+        doc.add(new LazyField(this, fieldInfo.name, STORED_ONLY, LazyField.INT, value, 0));
+    }
+
+    @Override
+    public void longField(FieldInfo fieldInfo, long value) {
+        doc.add(new LazyField(this, fieldInfo.name, STORED_ONLY, LazyField.LONG, value, 0));
+    }
+
+    @Override
+    public void floatField(FieldInfo fieldInfo, float value) {
+        doc.add(new LazyField(this, fieldInfo.name, STORED_ONLY, LazyField.FLOAT, Float.floatToRawIntBits(value), 0));
+    }
+
+    @Override
+    public void doubleField(FieldInfo fieldInfo, double value) {
+        doc.add(new LazyField(this, fieldInfo.name, STORED_ONLY, LazyField.DOUBLE, Double.doubleToRawLongBits(value), 0));
+    }
+
+    @Override
+    public Status needsField(FieldInfo fieldInfo) {
+        return fieldsToAdd == null || fieldsToAdd.contains(fieldInfo.name) ? Status.YES : Status.NO;
+    }
+
+    /**
+     * Retrieve the visited document.
+     *
+     * @return {@link Document} populated with lazily decoded stored fields. Note
+     * that only the stored information in the field instances is valid,
+     * data such as indexing options, term vector options, etc is only
+     * approximated from the {@link FieldInfo}.
+     */
+    public Document getDocument() {
+        return doc;
+    }
+
+    /**
+     * Prepare this visitor for the next document. The buffer that holds the
+     * bytes of string and binary fields is reused, so fields of the previous
+     * document that have not been decoded yet must not be accessed anymore.
+     */
+    public void reset() {
+        doc = new Document();
+        length = 0;
+    }
+
+    private IndexableFieldType textType(FieldInfo fieldInfo) {
+        IndexableFieldType type = textTypes.get(fieldInfo);
+        if (type == null) {
+            type = new SharedFieldType(true, fieldInfo.hasVectors(), fieldInfo.omitsNorms(), fieldInfo.getIndexOptions());
+            textTypes.put(fieldInfo, type);
+        }
+        return type;
+    }
+
+    private int append(BytesRef value) {
+        final int offset = length;
+        buffer = ArrayUtil.grow(buffer, offset + value.length);
+        System.arraycopy(value.bytes, value.offset, buffer, offset, value.length);
+        length += value.length;
+        return offset;
+    }
+
+    /**
+     * A stored field whose value is decoded on first access.
+     */
+    private static final class LazyField implements IndexableField {
+
+        static final byte STRING = 0, BINARY = 1, INT = 2, LONG = 3, FLOAT = 4, DOUBLE = 5;
+
+        private final LazyDocumentStoredFieldVisitor owner;
+        private final String name;
+        private final IndexableFieldType type;
+        private final byte kind;
+        // offset into the owner's buffer for string and binary fields, the raw bits otherwise
+        private final long bits;
+        private final int length;
+        private Object value;
+
+        LazyField(LazyDocumentStoredFieldVisitor owner, String name, IndexableFieldType type, byte kind, long bits, int length) {
+            this.owner = owner;
+            this.name = name;
+            this.type = type;
+            this.kind = kind;
+            this.bits = bits;
+            this.length = length;
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+
+        @Override
+        public IndexableFieldType fieldType() {
+            return type;
+        }
+
+        @Override
+        public BytesRef binaryValue() {
+            if (kind != BINARY) {
+                return null;
+            }
+            if (value == null) {
+                value = new BytesRef(ArrayUtil.copyOfSubArray(owner.buffer, (int) bits, (int) bits + length));
+            }
+            return (BytesRef) value;
+        }
+
+        @Override
+        public String stringValue() {
+            switch (kind) {
+                case STRING:
+                    if (value == null) {
+                        value = new String(owner.buffer, (int) bits, length, StandardCharsets.UTF_8);
+                    }
+                    return (String) value;
+                case BINARY:
+                    return null;
+                default:
+                    return numericValue().toString();
+            }
+        }
+
+        @Override
+        public Reader readerValue() {
+            return null;
+        }
+
+        @Override
+        public Number numericValue() {
+            if (value == null) {
+                switch (kind) {
+                    case INT:
+                        value = (int) bits;
+                        break;
+                    case LONG:
+                        value = bits;
+                        break;
+                    case FLOAT:
+                        value = Float.intBitsToFloat((int) bits);
+                        break;
+                    case DOUBLE:
+                        value = Double.longBitsToDouble(bits);
+                        break;
+                    default:
+                        return null;
+                }
+            }
+            return kind == STRING || kind == BINARY ? null : (Number) value;
+        }
+
+        @Override
+        public String toString() {
+            return "stored<" + name + ':' + (kind == BINARY ? binaryValue() : stringValue()) + '>';
+        }
+    }
+
+    /**
+     * Immutable field type of stored fields, shared across fields.
+     */
+    private static final class SharedFieldType implements IndexableFieldType {
+
+        private final boolean tokenized;
+        private final boolean storeTermVectors;
+        private final boolean omitNorms;
+        private final IndexOptions indexOptions;
+
+        SharedFieldType(boolean tokenized, boolean storeTermVectors, boolean omitNorms, IndexOptions indexOptions) {
+            this.tokenized = tokenized;
+            this.storeTermVectors = storeTermVectors;
+            this.omitNorms = omitNorms;
+            this.indexOptions = indexOptions;
+        }
+
+        @Override
+        public boolean stored() {
+            return true;
+        }
+
+        @Override
+        public boolean tokenized() {
+            return tokenized;
+        }
+
+        @Override
+        public boolean storeTermVectors() {
+            return storeTermVectors;
+        }
+
+        @Override
+        public boolean storeTermVectorOffsets() {
+            return false;
+        }
+
+        @Override
+        public boolean storeTermVectorPositions() {
+            return false;
+        }
+
+        @Override
+        public boolean storeTermVectorPayloads() {
+            return false;
+        }
+
+        @Override
+        public boolean omitNorms() {
+            return omitNorms;
+        }
+
+        @Override
+        public IndexOptions indexOptions() {
+            return indexOptions;
+        }
+
+        @Override
+        public DocValuesType docValuesType() {
+            return DocValuesType.NONE;
+        }
+
+        @Override
+        public int pointDataDimensionCount() {
+            return 0;
+        }
+
+        @Override
+        public int pointIndexDimensionCount() {
+            return 0;
+        }
+
+        @Override
+        public int pointNumBytes() {
+            return 0;
+        }
+
+        @Override
+        public Map<String, String> getAttributes() {
+            return null;
+        }
+    }
+}
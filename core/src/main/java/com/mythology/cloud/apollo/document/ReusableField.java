@@ -0,0 +1,162 @@
+package com.mythology.cloud.apollo.document;
+
+import com.mythology.cloud.apollo.index.IndexableField;
+import com.mythology.cloud.apollo.index.IndexableFieldType;
+import com.mythology.cloud.apollo.util.BytesRef;
+
+import java.io.Reader;
+import java.util.Objects;
+
+/**
+ * A mutable {@link IndexableField} whose name, type and value can be changed
+ * so that the same instance can be indexed over and over again.
+ * <p>
+ * A field holds a single value at a time: setting a value of one kind
+ * (string, bytes, reader or number) clears the others. The
+ * {@link com.mythology.cloud.apollo.index.IndexWriter} does not keep references
+ * to fields or their values once
+ * {@link com.mythology.cloud.apollo.index.IndexWriter#addDocument(Iterable)}
+ * returns, so a field may be updated as soon as the document that holds it has
+ * been added.
+ * <p>
+ * 可变的字段实现，名称、类型和值都可以重置，从而在索引多个文档时复用同一实例；
+ * 每次只持有一个值，设置一种类型的值会清除其他类型的值。
+ * </p>
+ *
+ * @lucene.experimental
+ * @see DocumentBuilder
+ */
+public final class ReusableField implements IndexableField {
+
+    private String name;
+    private IndexableFieldType type;
+    // String, BytesRef, Reader or Number, null if the value is not set
+    private Object value;
+    // reused by setBytesValue(byte[], int, int)
+    private final BytesRef bytes = new BytesRef();
+
+    /**
+     * Create a field without value.
+     */
+    public ReusableField(String name, IndexableFieldType type) {
+        reset(name, type);
+    }
+
+    /**
+     * Change the name and type of this field and clear its value.
+     */
+    public ReusableField reset(String name, IndexableFieldType type) {
+        this.name = Objects.requireNonNull(name, "name must not be null");
+        this.type = Objects.requireNonNull(type, "type must not be null");
+        this.value = null;
+        return this;
+    }
+
+    /**
+     * Set the value of this field to a string.
+     */
+    public ReusableField setStringValue(String value) {
+        this.value = Objects.requireNonNull(value, "value must not be null");
+        return this;
+    }
+
+    /**
+     * Set the value of this field to the given bytes, which are not copied.
+     */
+    public ReusableField setBytesValue(BytesRef value) {
+        this.value = Objects.requireNonNull(value, "value must not be null");
+        return this;
+    }
+
+    /**
+     * Set the value of this field to a slice of the given array, which is not
+     * copied. Unlike {@link #setBytesValue(BytesRef)}, this does not require a
+     * {@link BytesRef} per value.
+     */
+    public ReusableField setBytesValue(byte[] value, int offset, int length) {
+        bytes.bytes = Objects.requireNonNull(value, "value must not be null");
+        bytes.offset = offset;
+        bytes.length = length;
+        assert bytes.isValid();
+        this.value = bytes;
+        return this;
+    }
+
+    /**
+     * Set the value of this field to a reader, to be tokenized.
+     */
+    public ReusableField setReaderValue(Reader value) {
+        this.value = Objects.requireNonNull(value, "value must not be null");
+        return this;
+    }
+
+    /**
+     * Set the value of this field to an int.
+     */
+    public ReusableField setIntValue(int value) {
+        this.value = value;
+        return this;
+    }
+
+    /**
+     * Set the value of this field to a long.
+     */
+    public ReusableField setLongValue(long value) {
+        this.value = value;
+        return this;
+    }
+
+    /**
+     * Set the value of this field to a float.
+     */
+    public ReusableField setFloatValue(float value) {
+        this.value = value;
+        return this;
+    }
+
+    /**
+     * Set the value of this field to a double.
+     */
+    public ReusableField setDoubleValue(double value) {
+        this.value = value;
+        return this;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public IndexableFieldType fieldType() {
+        return type;
+    }
+
+    @Override
+    public BytesRef binaryValue() {
+        return value instanceof BytesRef ? (BytesRef) value : null;
+    }
+
+    @Override
+    public String stringValue() {
+        if (value instanceof String || value instanceof Number) {
+            return value.toString();
+        }
+        return null;
+    }
+
+    @Override
+    public Reader readerValue() {
+        return value instanceof Reader ? (Reader) value : null;
+    }
+
+    @Override
+    public Number numericValue() {
+        return value instanceof Number ? (Number) value : null;
+    }
+
+    @Override
+    public String toString() {
+        return name + ':' + value;
+    }
+}
@@ -0,0 +1,27 @@
+package com.mythology.cloud.apollo.index;
+
+import com.mythology.cloud.apollo.util.BytesRef;
+
+import java.io.IOException;
+
+/**
+ * A per-document byte[].
+ */
+public abstract class BinaryDocValues extends DocValuesIterator {
+
+    /**
+     * Sole constructor. (For invocation by subclass
+     * constructors, typically implicit.)
+     */
+    protected BinaryDocValues() {
+    }
+
+    /**
+     * Returns the binary value for the current document ID.
+     * It is illegal to call this method after {@link #advanceExact(int)}
+     * returned {@code false}.
+     *
+     * @return binary value
+     */
+    public abstract BytesRef binaryValue() throws IOException;
+}
@@ -0,0 +1,134 @@
+package com.mythology.cloud.apollo.index;
+
+import com.mythology.cloud.apollo.codecs.DocValuesConsumer;
+import com.mythology.cloud.apollo.util.ArrayUtil;
+import com.mythology.cloud.apollo.util.BytesRef;
+import com.mythology.cloud.apollo.util.RamUsageEstimator;
+
+import java.io.IOException;
+
+/**
+ * Buffers up pending byte[] per doc, then flushes when
+ * segment flushes.
+ */
+final class BinaryDocValuesWriter extends DocValuesWriter {
+
+    private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(BinaryDocValuesWriter.class);
+
+    /**
+     * Maximum length for a binary field.
+     */
+    static final int MAX_LENGTH = ArrayUtil.MAX_ARRAY_LENGTH;
+
+    private int[] docs = new int[16];
+    // values[ends[i-1]:ends[i]] is the value of docs[i]
+    private int[] ends = new int[16];
+    private byte[] bytes = new byte[64];
+    private int count;
+
+    BinaryDocValuesWriter(FieldInfo fieldInfo) {
+        super(fieldInfo);
+    }
+
+    void addValue(int docID, BytesRef value) {
+        if (count > 0 && docID <= docs[count - 1]) {
+            throw new IllegalArgumentException("DocValuesField \"" + fieldInfo.name + "\" appears more than once in this document (only one value is allowed per field)");
+        }
+        if (value == null) {
+            throw new IllegalArgumentException("field=\"" + fieldInfo.name + "\": null value not allowed");
+        }
+        final int start = count == 0 ? 0 : ends[count - 1];
+        if ((long) start + value.length > MAX_LENGTH) {
+            throw new IllegalArgumentException("DocValuesField \"" + fieldInfo.name + "\" is too large, the values of a segment must not exceed " + MAX_LENGTH + " bytes");
+        }
+        if (count == docs.length) {
+            docs = ArrayUtil.grow(docs, count + 1);
+            ends = ArrayUtil.growExact(ends, docs.length);
+        }
+        bytes = ArrayUtil.grow(bytes, start + value.length);
+        System.arraycopy(value.bytes, value.offset, bytes, start, value.length);
+        docs[count] = docID;
+        ends[count] = start + value.length;
+        count++;
+    }
+
+    @Override
+    void flush(int maxDoc, Sorter.DocMap sortMap, DocValuesConsumer consumer) throws IOException {
+        final int[] flushDocs;
+        final int[] flushEnds;
+        final byte[] flushBytes;
+        if (sortMap == null) {
+            flushDocs = docs;
+            flushEnds = ends;
+            flushBytes = bytes;
+        } else {
+            final int[] order = sortDocs(docs, count, sortMap);
+            flushDocs = mapDocs(docs, order, sortMap);
+            flushBytes = new byte[count == 0 ? 0 : ends[count - 1]];
+            flushEnds = permuteRanges(ends, order, bytes, flushBytes);
+        }
+        consumer.addBinaryField(fieldInfo, new EmptyDocValuesProducer() {
+            @Override
+            public BinaryDocValues getBinary(FieldInfo field) {
+                return new BufferedBinaryDocValues(flushDocs, flushEnds, flushBytes, count);
+            }
+        });
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        return BASE_RAM_BYTES_USED + RamUsageEstimator.sizeOf(docs) + RamUsageEstimator.sizeOf(ends) + RamUsageEstimator.sizeOf(bytes);
+    }
+
+    // iterates over the values we have in ram
+    private static final class BufferedBinaryDocValues extends BinaryDocValues {
+        final int[] docs;
+        final int[] ends;
+        final int count;
+        final BytesRef value;
+        int index = -1;
+        int docID = -1;
+
+        BufferedBinaryDocValues(int[] docs, int[] ends, byte[] bytes, int count) {
+            this.docs = docs;
+            this.ends = ends;
+            this.count = count;
+            this.value = new BytesRef(bytes, 0, 0);
+        }
+
+        @Override
+        public int docID() {
+            return docID;
+        }
+
+        @Override
+        public int nextDoc() {
+            return docID = docAt(docs, count, ++index);
+        }
+
+        @Override
+        public int advance(int target) {
+            index = DocValuesWriter.advance(docs, count, Math.max(index, 0), target);
+            return docID = docAt(docs, count, index);
+        }
+
+        @Override
+        public boolean advanceExact(int target) {
+            index = DocValuesWriter.advance(docs, count, Math.max(index, 0), target);
+            docID = target;
+            return index < count && docs[index] == target;
+        }
+
+        @Override
+        public long cost() {
+            return count;
+        }
+
+        @Override
+        public BytesRef binaryValue() {
+            value.offset = index == 0 ? 0 : ends[index - 1];
+            value.length = ends[index] - value.offset;
+            return value;
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.mythology.cloud.apollo.index;
+
+import com.mythology.cloud.apollo.util.BytesRef;
+
+import java.io.IOException;
+
+/**
+ * This class contains utility methods and constants for DocValues
+ * <p>
+ * DocValues工具类：空实现、单值/多值视图之间的转换。
+ * </p>
+ */
+public final class DocValues {
+
+    /* no instantiation */
+    private DocValues() {
+    }
+
+    /**
+     * An empty {@link BinaryDocValues} which returns no documents
+     */
+    public static final BinaryDocValues emptyBinary() {
+        return new BinaryDocValues() {
+            private int doc = -1;
+
+            @Override
+            public int advance(int target) {
+                return doc = NO_MORE_DOCS;
+            }
+
+            @Override
+            public boolean advanceExact(int target) throws IOException {
+                doc = target;
+                return false;
+            }
+
+            @Override
+            public int docID() {
+                return doc;
+            }
+
+            @Override
+            public int nextDoc() {
+                return doc = NO_MORE_DOCS;
+            }
+
+            @Override
+            public long cost() {
+                return 0;
+            }
+
+            @Override
+            public BytesRef binaryValue() {
+                assert false;
+                return null;
+            }
+        };
+    }
+
+    /**
+     * An empty NumericDocValues which returns no documents
+     */
+    public static final NumericDocValues emptyNumeric() {
+        return new NumericDocValues() {
+            private int doc = -1;
+
+            @Override
+            public int advance(int target) {
+                return doc = NO_MORE_DOCS;
+            }
+
+            @Override
+            public boolean advanceExact(int target) throws IOException {
+                doc = target;
+                return false;
+            }
+
+            @Override
+            public int docID() {
+                return doc;
+            }
+
+            @Override
+            public int nextDoc() {
+                return doc = NO_MORE_DOCS;
+            }
+
+            @Override
+            public long cost() {
+                return 0;
+            }
+
+            @Override
+            public long longValue() {
+                assert false;
+                return 0;
+            }
+        };
+    }
+
+    /**
+     * An empty SortedDocValues which returns no documents
+     */
+    public static final SortedDocValues emptySorted() {
+        final BytesRef empty = new BytesRef();
+        return new SortedDocValues() {
+
+            private int doc = -1;
+
+            @Override
+            public int advance(int target) {
+                return doc = NO_MORE_DOCS;
+            }
+
+            @Override
+            public boolean advanceExact(int target) throws IOException {
+                doc = target;
+                return false;
+            }
+
+            @Override
+            public int docID() {
+                return doc;
+            }
+
+            @Override
+            public int nextDoc() {
+                return doc = NO_MORE_DOCS;
+            }
+
+            @Override
+            public long cost() {
+                return 0;
+            }
+
+            @Override
+            public int ordValue() {
+                assert false;
+                return -1;
+            }
+
+            @Override
+            public BytesRef lookupOrd(int ord) {
+                return empty;
+            }
+
+            @Override
+            public int getValueCount() {
+                return 0;
+            }
+        };
+    }
+
+    /**
+     * An empty SortedNumericDocValues which returns no documents
+     */
+    public static final SortedNumericDocValues emptySortedNumeric() {
+        return singleton(emptyNumeric());
+    }
+
+    /**
+     * An empty SortedSetDocValues which returns no documents
+     */
+    public static final SortedSetDocValues emptySortedSet() {
+        return singleton(emptySorted());
+    }
+
+    /**
+     * Returns a multi-valued view over the provided SortedDocValues
+     */
+    public static SortedSetDocValues singleton(SortedDocValues dv) {
+        return new SingletonSortedSetDocValues(dv);
+    }
+
+    /**
+     * Returns a single-valued view of the SortedSetDocValues, if it was previously
+     * wrapped with {@link #singleton(SortedDocValues)}, or null.
+     * <p>
+     * 排序和分面可借此识别单值字段并走按序号比较的快速路径。
+     * </p>
+     */
+    public static SortedDocValues unwrapSingleton(SortedSetDocValues dv) {
+        if (dv instanceof SingletonSortedSetDocValues) {
+            return ((SingletonSortedSetDocValues) dv).getSortedDocValues();
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Returns a single-valued view of the SortedNumericDocValues, if it was previously
+     * wrapped with {@link #singleton(NumericDocValues)}, or null.
+     */
+    public static NumericDocValues unwrapSingleton(SortedNumericDocValues dv) {
+        if (dv instanceof SingletonSortedNumericDocValues) {
+            return ((SingletonSortedNumericDocValues) dv).getNumericDocValues();
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Returns a multi-valued view over the provided NumericDocValues
+     */
+    public static SortedNumericDocValues singleton(NumericDocValues dv) {
+        return new SingletonSortedNumericDocValues(dv);
+    }
+}
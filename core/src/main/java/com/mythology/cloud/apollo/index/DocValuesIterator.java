@@ -0,0 +1,26 @@
+package com.mythology.cloud.apollo.index;
+
+import com.mythology.cloud.apollo.search.DocIdSetIterator;
+
+import java.io.IOException;
+
+/**
+ * Base class for all doc values iterators: a {@link DocIdSetIterator} over the
+ * documents that have a value, which may also be positioned on an arbitrary
+ * document through {@link #advanceExact(int)}.
+ */
+abstract class DocValuesIterator extends DocIdSetIterator {
+
+    /**
+     * Advance the iterator to exactly {@code target} and return whether
+     * {@code target} has a value.
+     * {@code target} must be greater than or equal to the current
+     * {@link #docID() doc ID} and must be a valid doc ID, ie. &ge; 0 and
+     * &lt; {@code maxDoc}.
+     * After this method returns, {@link #docID()} returns {@code target}.
+     * <p>
+     * 将迭代器精确地定位到{@code target}，并返回该文档是否有值。排序和分面按文档取值时使用该方法。
+     * </p>
+     */
+    public abstract boolean advanceExact(int target) throws IOException;
+}
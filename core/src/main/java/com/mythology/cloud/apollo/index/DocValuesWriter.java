@@ -0,0 +1,117 @@
+package com.mythology.cloud.apollo.index;
+
+import com.mythology.cloud.apollo.codecs.DocValuesConsumer;
+import com.mythology.cloud.apollo.search.DocIdSetIterator;
+import com.mythology.cloud.apollo.search.SortField;
+import com.mythology.cloud.apollo.util.Accountable;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Buffers the doc values of one field of an in-memory segment, and hands
+ * them to a {@link DocValuesConsumer} on flush through a
+ * {@link DocValuesProducer} view.
+ * <p>
+ * Documents must be added in increasing doc ID order. When the index is
+ * sorted, the buffers are permuted on flush so that the values are handed
+ * to the consumer in the order of the sorted segment.
+ * <p>
+ * 单个字段DocValues的内存缓冲，刷新时以{@link DocValuesProducer}视图交给写入器。
+ * </p>
+ */
+abstract class DocValuesWriter implements Accountable {
+
+    final FieldInfo fieldInfo;
+
+    DocValuesWriter(FieldInfo fieldInfo) {
+        this.fieldInfo = fieldInfo;
+    }
+
+    /**
+     * Writes the buffered values with {@code consumer}, renumbering the docs
+     * with {@code sortMap} unless it is null.
+     */
+    abstract void flush(int maxDoc, Sorter.DocMap sortMap, DocValuesConsumer consumer) throws IOException;
+
+    /**
+     * Returns a comparator of the docs of the in-memory segment in the order
+     * of {@code sortField}, for the doc values types that an index can be
+     * sorted by.
+     */
+    Sorter.DocComparator getDocComparator(int maxDoc, SortField sortField) throws IOException {
+        throw new IllegalArgumentException("cannot sort the index by field \"" + fieldInfo.name
+                + "\" with doc values type " + fieldInfo.getDocValuesType());
+    }
+
+    /**
+     * Returns the order in which the {@code count} buffered docs, which are
+     * unique and in increasing order, must be visited so that their new doc
+     * IDs are in increasing order. The sort is linear in the number of docs
+     * of the segment.
+     */
+    static int[] sortDocs(int[] docs, int count, Sorter.DocMap sortMap) {
+        final int[] indexOfNewDoc = new int[sortMap.size()];
+        Arrays.fill(indexOfNewDoc, -1);
+        for (int i = 0; i < count; i++) {
+            indexOfNewDoc[sortMap.oldToNew(docs[i])] = i;
+        }
+        final int[] order = new int[count];
+        int upto = 0;
+        for (int index : indexOfNewDoc) {
+            if (index != -1) {
+                order[upto++] = index;
+            }
+        }
+        assert upto == count;
+        return order;
+    }
+
+    /**
+     * Returns the new doc IDs of the buffered docs, in the visiting order
+     * computed by {@link #sortDocs}.
+     */
+    static int[] mapDocs(int[] docs, int[] order, Sorter.DocMap sortMap) {
+        final int[] newDocs = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            newDocs[i] = sortMap.oldToNew(docs[order[i]]);
+        }
+        return newDocs;
+    }
+
+    /**
+     * Permutes the variable-length ranges {@code [ends[i-1]:ends[i]]} of
+     * {@code values} in the visiting order computed by {@link #sortDocs}, and
+     * returns the ends of the permuted ranges. The permuted values are written
+     * to {@code newValues}.
+     */
+    static int[] permuteRanges(int[] ends, int[] order, Object values, Object newValues) {
+        final int[] newEnds = new int[order.length];
+        int upto = 0;
+        for (int i = 0; i < order.length; i++) {
+            final int index = order[i];
+            final int start = index == 0 ? 0 : ends[index - 1];
+            final int length = ends[index] - start;
+            System.arraycopy(values, start, newValues, upto, length);
+            upto += length;
+            newEnds[i] = upto;
+        }
+        return newEnds;
+    }
+
+    /**
+     * Advances one of the buffered iterators, which list the docs that have a
+     * value in {@code docs[0:count]}, up to the first doc that is greater
+     * than or equal to {@code target}, and returns the index of that doc.
+     */
+    static int advance(int[] docs, int count, int index, int target) {
+        while (index < count && docs[index] < target) {
+            index++;
+        }
+        return index;
+    }
+
+    static int docAt(int[] docs, int count, int index) {
+        return index < count ? docs[index] : DocIdSetIterator.NO_MORE_DOCS;
+    }
+}
@@ -0,0 +1,265 @@
+package com.mythology.cloud.apollo.index;
+
+import com.mythology.cloud.apollo.analysis.Analyzer;
+import com.mythology.cloud.apollo.document.DocumentBatch;
+import com.mythology.cloud.apollo.index.DocumentsWriterPerThreadPool.ThreadState;
+import com.mythology.cloud.apollo.search.Sort;
+import com.mythology.cloud.apollo.store.Directory;
+import com.mythology.cloud.apollo.util.Accountable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class accepts multiple added documents and directly
+ * writes segment files.
+ * <p>
+ * Each indexing thread gets a {@link DocumentsWriterPerThread} of its own
+ * from the {@link DocumentsWriterPerThreadPool}, and buffers the document
+ * there without any lock shared with the other indexing threads. The RAM
+ * used by all the in-memory segments is tracked with a single atomic
+ * counter: once it reaches the configured buffer size, the thread that
+ * crossed it flushes the largest in-memory segment, or marks it as pending
+ * if another thread is indexing into it, in which case that thread flushes
+ * it after its current document. The other threads keep indexing meanwhile.
+ * An in-memory segment is also flushed once it holds the configured maximum
+ * number of documents.
+ * <p>
+ * Flushed segments are published to the {@link IndexWriter}, which makes
+ * them part of the next commit and may merge them with other segments.
+ * <p>
+ * 接收文档并直接写出段文件：每个索引线程使用独占的内存段缓冲文档，全部内存段的内存占用用一个原子计数器统计，
+ * 超出缓冲区大小时由越界的线程刷新最大的内存段(若其正被使用则标记为待刷新，由其所有者刷新)，其他线程继续索引。
+ * </p>
+ */
+final class DocumentsWriter implements Closeable, Accountable {
+
+    private final IndexWriter writer;
+    private final Directory directory;
+    private final FieldInfos.FieldNumbers globalFieldNumbers;
+    private final DocumentsWriterPerThreadPool perThreadPool = new DocumentsWriterPerThreadPool();
+
+    private final long ramBufferBytes;
+    private final int maxBufferedDocs;
+    private final Sort indexSort;
+    private final Analyzer analyzer;
+
+    // RAM used by the in-memory segments that are being filled
+    private final AtomicLong activeBytes = new AtomicLong();
+    // RAM used by the in-memory segments that are being flushed
+    private final AtomicLong flushBytes = new AtomicLong();
+
+    private volatile boolean closed;
+
+    DocumentsWriter(IndexWriter writer, IndexWriterConfig config, Directory directory, FieldInfos.FieldNumbers globalFieldNumbers) {
+        this.writer = writer;
+        this.directory = directory;
+        this.globalFieldNumbers = globalFieldNumbers;
+        final double ramBufferSizeMB = config.getRAMBufferSizeMB();
+        this.ramBufferBytes = ramBufferSizeMB == IndexWriterConfig.DISABLE_AUTO_FLUSH
+                ? Long.MAX_VALUE
+                : (long) (ramBufferSizeMB * 1024 * 1024);
+        this.maxBufferedDocs = config.getMaxBufferedDocs();
+        this.indexSort = config.getIndexSort();
+        this.analyzer = config.getAnalyzer();
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("this DocumentsWriter is closed");
+        }
+    }
+
+    /**
+     * Buffers a document, and flushes in-memory segments if this pushed
+     * the buffer over one of its limits.
+     *
+     * @return true if a segment was flushed
+     */
+    boolean addDocument(Iterable<? extends IndexableField> doc) throws IOException {
+        return add(dwpt -> dwpt.addDocument(doc), 1);
+    }
+
+    /**
+     * Buffers a batch of documents in a single in-memory segment, and flushes
+     * in-memory segments if this pushed the buffer over one of its limits.
+     *
+     * @return true if a segment was flushed
+     */
+    boolean addBatch(DocumentBatch batch) throws IOException {
+        return add(dwpt -> dwpt.addBatch(batch), batch.numDocs());
+    }
+
+    // adds documents to the in-memory segment of the current thread
+    private interface Adder {
+        // returns by how many bytes the RAM usage of the segment changed
+        long add(DocumentsWriterPerThread dwpt) throws IOException;
+    }
+
+    private boolean add(Adder adder, int numDocs) throws IOException {
+        final ThreadState state = perThreadPool.getAndLock();
+        boolean added = false;
+        try {
+            ensureOpen();
+            if (state.dwpt == null) {
+                state.dwpt = new DocumentsWriterPerThread(directory, writer.newSegmentName(), globalFieldNumbers, indexSort, analyzer);
+            }
+            final DocumentsWriterPerThread dwpt = state.dwpt;
+            final long delta;
+            try {
+                delta = adder.add(dwpt);
+                added = true;
+            } finally {
+                if (dwpt.isAborted()) {
+                    // the documents of the in-memory segment are lost
+                    state.dwpt = null;
+                    activeBytes.addAndGet(-state.bytesUsed);
+                    state.bytesUsed = 0;
+                    writer.onAbortedDocuments(dwpt.getNumDocsInRAM());
+                }
+            }
+            state.bytesUsed += delta;
+            final long totalBytes = activeBytes.addAndGet(delta);
+
+            if (state.flushPending
+                    || (maxBufferedDocs != IndexWriterConfig.DISABLE_AUTO_FLUSH && dwpt.getNumDocsInRAM() >= maxBufferedDocs)) {
+                return doFlush(state);
+            } else if (totalBytes >= ramBufferBytes) {
+                return flushLargest(state);
+            }
+            return false;
+        } finally {
+            if (added == false) {
+                writer.onAbortedDocuments(numDocs);
+            }
+            perThreadPool.release(state);
+        }
+    }
+
+    // flushes the largest in-memory segment, or asks its owner to flush it
+    // if it is being indexed into
+    private boolean flushLargest(ThreadState current) throws IOException {
+        ThreadState largest = current;
+        for (ThreadState state : perThreadPool.getThreadStates()) {
+            if (state.bytesUsed > largest.bytesUsed) {
+                largest = state;
+            }
+        }
+        if (largest == current) {
+            return doFlush(current);
+        } else if (largest.tryLock()) {
+            try {
+                return doFlush(largest);
+            } finally {
+                largest.unlock();
+            }
+        } else {
+            // its owner flushes it after its current document, rather than
+            // this thread waiting or flushing a small segment of its own
+            largest.flushPending = true;
+            return false;
+        }
+    }
+
+    // the state must be locked by the current thread, returns true if a
+    // segment was written
+    private boolean doFlush(ThreadState state) throws IOException {
+        assert state.isHeldByCurrentThread();
+        final DocumentsWriterPerThread dwpt = state.dwpt;
+        if (dwpt == null) {
+            return false;
+        }
+        final long bytes = state.bytesUsed;
+        state.dwpt = null;
+        state.bytesUsed = 0;
+        state.flushPending = false;
+        // the bytes do not count towards the buffer anymore, so that other
+        // threads do not flush too while this one is flushing
+        activeBytes.addAndGet(-bytes);
+        flushBytes.addAndGet(bytes);
+        boolean success = false;
+        try {
+            final SegmentInfo info = dwpt.flush();
+            if (info != null) {
+                writer.publishFlushedSegment(info);
+            }
+            success = true;
+            return info != null;
+        } finally {
+            flushBytes.addAndGet(-bytes);
+            if (success == false) {
+                writer.onAbortedDocuments(dwpt.getNumDocsInRAM());
+            }
+        }
+    }
+
+    /**
+     * Flushes all in-memory segments. Indexing threads may keep adding
+     * documents concurrently, the ones that are added to in-memory segments
+     * after these were flushed are not guaranteed to be flushed.
+     */
+    void flushAllThreads() throws IOException {
+        ensureOpen();
+        for (ThreadState state : perThreadPool.getThreadStates()) {
+            state.lock();
+            try {
+                doFlush(state);
+            } finally {
+                state.unlock();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of documents that are buffered in memory.
+     */
+    int getNumDocsInRAM() {
+        int numDocs = 0;
+        for (ThreadState state : perThreadPool.getThreadStates()) {
+            state.lock();
+            try {
+                if (state.dwpt != null) {
+                    numDocs += state.dwpt.getNumDocsInRAM();
+                }
+            } finally {
+                state.unlock();
+            }
+        }
+        return numDocs;
+    }
+
+    /**
+     * Discards all buffered documents, and prevents new ones from being
+     * added.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (ThreadState state : perThreadPool.getThreadStates()) {
+            state.lock();
+            try {
+                if (state.dwpt != null) {
+                    state.dwpt.abort();
+                    writer.onAbortedDocuments(state.dwpt.getNumDocsInRAM());
+                    state.dwpt = null;
+                    activeBytes.addAndGet(-state.bytesUsed);
+                    state.bytesUsed = 0;
+                }
+            } finally {
+                state.unlock();
+            }
+        }
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        return activeBytes.get() + flushBytes.get();
+    }
+
+    @Override
+    public String toString() {
+        return "DocumentsWriter(activeBytes=" + activeBytes.get() + ",flushBytes=" + flushBytes.get()
+                + ",threadStates=" + perThreadPool.size() + ")";
+    }
+}
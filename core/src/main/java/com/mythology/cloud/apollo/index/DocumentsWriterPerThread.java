@@ -0,0 +1,981 @@
+package com.mythology.cloud.apollo.index;
+
+import com.mythology.cloud.apollo.analysis.Analyzer;
+import com.mythology.cloud.apollo.analysis.TokenStream;
+import com.mythology.cloud.apollo.analysis.tokenattributes.OffsetAttribute;
+import com.mythology.cloud.apollo.analysis.tokenattributes.PositionIncrementAttribute;
+import com.mythology.cloud.apollo.analysis.tokenattributes.TermToBytesRefAttribute;
+import com.mythology.cloud.apollo.codecs.DocValuesConsumer;
+import com.mythology.cloud.apollo.codecs.FieldInfosFormat;
+import com.mythology.cloud.apollo.codecs.FieldsConsumer;
+import com.mythology.cloud.apollo.codecs.PointsWriter;
+import com.mythology.cloud.apollo.codecs.PostingsWriterBase;
+import com.mythology.cloud.apollo.codecs.blocktree.BlockTreeTermsFormat;
+import com.mythology.cloud.apollo.codecs.columnar.ColumnarDocValuesFormat;
+import com.mythology.cloud.apollo.codecs.points.BKDPointsFormat;
+import com.mythology.cloud.apollo.codecs.postings.BlockPostingsFormat;
+import com.mythology.cloud.apollo.document.DocumentBatch;
+import com.mythology.cloud.apollo.search.Sort;
+import com.mythology.cloud.apollo.search.SortField;
+import com.mythology.cloud.apollo.store.Directory;
+import com.mythology.cloud.apollo.util.Accountable;
+import com.mythology.cloud.apollo.util.ArrayUtil;
+import com.mythology.cloud.apollo.util.BytesRef;
+import com.mythology.cloud.apollo.util.BytesRefBuilder;
+import com.mythology.cloud.apollo.util.BytesRefHash;
+import com.mythology.cloud.apollo.util.IOUtils;
+import com.mythology.cloud.apollo.util.RamUsageEstimator;
+import com.mythology.cloud.apollo.util.UnicodeUtil;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Buffers the documents of one in-memory segment and writes them as a new
+ * segment on {@link #flush()}. An instance is only ever used by one thread
+ * at a time, so it needs no synchronization: concurrency comes from
+ * indexing into several instances at once, see
+ * {@link DocumentsWriterPerThreadPool}.
+ * <p>
+ * Every document is processed in two passes. The first one updates the
+ * {@link FieldInfos} of the segment and validates the document, and throws
+ * an {@link IllegalArgumentException} before anything was buffered if the
+ * document is invalid, in which case this instance can still be used. The
+ * second one inverts, stores and buffers the fields; an exception there
+ * means that the buffer may be inconsistent, so this instance is aborted
+ * and its documents are lost.
+ * <p>
+ * Tokenized fields are analyzed with the {@link Analyzer} of the
+ * {@link IndexWriterConfig}, whose token stream components are reused by
+ * this thread for all documents; untokenized fields are indexed as a single
+ * term. The binary value of a tokenized field, and the string values of a
+ * {@link DocumentBatch}, are UTF-8 text that is analyzed as bytes, see
+ * {@link Analyzer#tokenStream(String, BytesRef)}.
+ * <p>
+ * If the index is sorted, the documents are buffered in indexing order and
+ * sorted on flush: the doc values of the sort fields give a permutation of
+ * the doc IDs, which the postings, doc values and points are written with,
+ * while the stored fields and term vectors are copied from a temporary
+ * segment in the sorted order.
+ * <p>
+ * 单个内存段的文档缓冲，同一时刻只被一个线程使用。每个文档分两遍处理：第一遍校验，
+ * 校验失败时不缓冲任何数据；第二遍倒排、存储、缓冲，失败时放弃整个内存段。
+ * </p>
+ */
+final class DocumentsWriterPerThread implements Accountable {
+
+    private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(DocumentsWriterPerThread.class);
+
+    // per-field state of the segment
+    private static final class PerField {
+        final FieldInfo fieldInfo;
+        FreqProxTermsWriterPerField postings;
+        TermVectorsConsumerPerField termVectors;
+        DocValuesWriter docValues;
+        PointValuesWriter points;
+
+        // doc that was last inverted, and the invert state in that doc
+        int invertDocID = -1;
+        int position;
+        int offset;
+        // validation pass that last saw the field, and the doc values count in that pass
+        int validationGen = -1;
+        int docValuesCount;
+        // interned type that the field info was last updated with, updating
+        // it again with the same immutable type would not change it
+        Schema.Type lastType;
+
+        long bytesUsed;
+
+        PerField(FieldInfo fieldInfo) {
+            this.fieldInfo = fieldInfo;
+        }
+
+        long ramBytesUsed() {
+            long bytes = 0;
+            if (postings != null) {
+                bytes += postings.ramBytesUsed();
+            }
+            if (termVectors != null) {
+                bytes += termVectors.ramBytesUsed();
+            }
+            if (docValues != null) {
+                bytes += docValues.ramBytesUsed();
+            }
+            if (points != null) {
+                bytes += points.ramBytesUsed();
+            }
+            return bytes;
+        }
+    }
+
+    final Directory directory;
+    final String segmentName;
+    private final FieldInfos.Builder fieldInfos;
+    private final Map<String, PerField> fields = new HashMap<>();
+    private final List<PerField> fieldsInDoc = new ArrayList<>();
+    // text of the tokenized fields of the current doc, by field index
+    private final List<String> docTexts = new ArrayList<>();
+    private final TermVectorsConsumer termVectors;
+    private final StoredFieldsConsumer storedFields;
+    private final Sort indexSort;
+    private final Analyzer analyzer;
+
+    private final BytesRefBuilder termBuilder = new BytesRefBuilder();
+    // column values of a batch, see addBatch
+    private int[] scratchDocs = new int[0];
+    private long[] scratchValues = new long[0];
+
+    private int numDocsInRAM;
+    // incremented for every document and every batch, including rejected ones
+    private int validationGen;
+    private long bytesUsed = BASE_RAM_BYTES_USED;
+    private boolean aborted;
+
+    DocumentsWriterPerThread(Directory directory, String segmentName, FieldInfos.FieldNumbers globalFieldNumbers, Sort indexSort,
+                             Analyzer analyzer) {
+        this.directory = directory;
+        this.segmentName = segmentName;
+        this.fieldInfos = new FieldInfos.Builder(globalFieldNumbers);
+        this.indexSort = indexSort;
+        this.analyzer = analyzer;
+        if (indexSort == null) {
+            this.termVectors = new TermVectorsConsumer(directory, segmentName);
+            this.storedFields = new StoredFieldsConsumer(directory, segmentName);
+        } else {
+            this.termVectors = new SortingTermVectorsConsumer(directory, segmentName);
+            this.storedFields = new SortingStoredFieldsConsumer(directory, segmentName);
+        }
+    }
+
+    /**
+     * Adds a document and returns by how many bytes the RAM usage of this
+     * buffer changed.
+     *
+     * @throws IllegalArgumentException if the document is invalid, nothing
+     *                                  was buffered in that case
+     * @throws IOException              on write failure, after which this
+     *                                  instance is {@link #isAborted() aborted}
+     */
+    long addDocument(Iterable<? extends IndexableField> doc) throws IOException {
+        assert aborted == false;
+        final int docID = numDocsInRAM;
+        fieldsInDoc.clear();
+        docTexts.clear();
+        validate(doc);
+
+        final long bytesBefore = bytesUsed;
+        boolean success = false;
+        try {
+            storedFields.startDocument();
+            int fieldIndex = 0;
+            for (IndexableField field : doc) {
+                final PerField perField = fields.get(field.name());
+                final IndexableFieldType fieldType = field.fieldType();
+                final int flags = Schema.flags(fieldType);
+                if ((flags & Schema.Type.INDEXED) != 0) {
+                    final String text = docTexts.get(fieldIndex);
+                    final BytesRef utf8Text = text == null && (flags & Schema.Type.TOKENIZED) != 0 ? field.binaryValue() : null;
+                    invert(perField, field, text, utf8Text, docID);
+                }
+                if ((flags & Schema.Type.STORED) != 0) {
+                    storedFields.writeField(perField.fieldInfo, field);
+                }
+                if ((flags & Schema.Type.DOC_VALUES) != 0) {
+                    indexDocValue(perField, fieldType.docValuesType(), field, docID);
+                }
+                if ((flags & Schema.Type.POINTS) != 0) {
+                    if (perField.points == null) {
+                        perField.points = new PointValuesWriter(perField.fieldInfo);
+                    }
+                    perField.points.addPackedValue(docID, field.binaryValue());
+                }
+                fieldIndex++;
+            }
+            storedFields.finishDocument();
+            termVectors.finishDocument(docID);
+            numDocsInRAM++;
+
+            for (PerField perField : fieldsInDoc) {
+                final long fieldBytes = perField.ramBytesUsed();
+                bytesUsed += fieldBytes - perField.bytesUsed;
+                perField.bytesUsed = fieldBytes;
+            }
+            success = true;
+        } finally {
+            if (success == false) {
+                // the buffer may hold a partial document
+                abort();
+            }
+        }
+        return bytesUsed - bytesBefore;
+    }
+
+    /**
+     * Adds a batch of documents and returns by how many bytes the RAM usage
+     * of this buffer changed. Fields are looked up and validated once per
+     * column rather than once per document, stored fields and postings are
+     * then written document by document, and doc values and points column by
+     * column.
+     *
+     * @throws IllegalArgumentException if a document of the batch is invalid,
+     *                                  nothing was buffered in that case
+     * @throws IOException              on write failure, after which this
+     *                                  instance is {@link #isAborted() aborted}
+     */
+    long addBatch(DocumentBatch batch) throws IOException {
+        assert aborted == false;
+        final PerField[] perFields = validate(batch);
+        final int numDocs = batch.numDocs();
+        final int numColumns = batch.numColumns();
+        final int firstDocID = numDocsInRAM;
+
+        // columns that are written per document
+        int numRowColumns = 0;
+        final int[] rowColumns = new int[numColumns];
+        for (int c = 0; c < numColumns; c++) {
+            final IndexableFieldType fieldType = batch.column(c).fieldType();
+            if (fieldType.indexOptions() != IndexOptions.NONE || fieldType.stored()) {
+                rowColumns[numRowColumns++] = c;
+            }
+        }
+
+        final long bytesBefore = bytesUsed;
+        boolean success = false;
+        try {
+            final BatchField field = new BatchField();
+            final BytesRef utf8Text = new BytesRef();
+            for (int i = 0; i < numDocs; i++) {
+                final int docID = firstDocID + i;
+                storedFields.startDocument();
+                for (int j = 0; j < numRowColumns; j++) {
+                    final DocumentBatch.Column column = batch.column(rowColumns[j]);
+                    if (column.hasValue(i) == false) {
+                        continue;
+                    }
+                    final PerField perField = perFields[rowColumns[j]];
+                    final IndexableFieldType fieldType = column.fieldType();
+                    field.reset(column, i);
+                    if (fieldType.indexOptions() != IndexOptions.NONE) {
+                        // string values are analyzed or indexed as UTF-8, without decoding them
+                        final boolean string = column.valueType() == DocumentBatch.ValueType.STRING;
+                        invert(perField, field, null, string ? column.bytesValue(i, utf8Text) : null, docID);
+                    }
+                    if (fieldType.stored()) {
+                        storedFields.writeField(perField.fieldInfo, field);
+                    }
+                }
+                storedFields.finishDocument();
+                termVectors.finishDocument(docID);
+                numDocsInRAM++;
+            }
+
+            for (int c = 0; c < numColumns; c++) {
+                final DocumentBatch.Column column = batch.column(c);
+                final IndexableFieldType fieldType = column.fieldType();
+                if (fieldType.docValuesType() != DocValuesType.NONE) {
+                    indexDocValues(perFields[c], fieldType.docValuesType(), column, firstDocID);
+                }
+                if (fieldType.pointDataDimensionCount() != 0) {
+                    indexPoints(perFields[c], column, firstDocID);
+                }
+            }
+
+            for (PerField perField : perFields) {
+                final long fieldBytes = perField.ramBytesUsed();
+                bytesUsed += fieldBytes - perField.bytesUsed;
+                perField.bytesUsed = fieldBytes;
+            }
+            success = true;
+        } finally {
+            if (success == false) {
+                // the buffer may hold partial documents
+                abort();
+            }
+        }
+        return bytesUsed - bytesBefore;
+    }
+
+    // first pass of a batch: updates the field infos and checks every column,
+    // returns the per-field state of the columns
+    private PerField[] validate(DocumentBatch batch) throws IOException {
+        final int gen = ++validationGen;
+        final int numDocs = batch.numDocs();
+        final BytesRef scratch = new BytesRef();
+        final PerField[] perFields = new PerField[batch.numColumns()];
+        for (int c = 0; c < perFields.length; c++) {
+            final DocumentBatch.Column column = batch.column(c);
+            final String name = column.name();
+            final IndexableFieldType fieldType = column.fieldType();
+            final DocumentBatch.ValueType valueType = column.valueType();
+            final boolean numeric = valueType != DocumentBatch.ValueType.BYTES && valueType != DocumentBatch.ValueType.STRING;
+            if (fieldType.storeTermVectors() && fieldType.indexOptions() == IndexOptions.NONE) {
+                throw new IllegalArgumentException("cannot store term vectors for a field that is not indexed (field=\"" + name + "\")");
+            }
+            if (fieldType.storeTermVectors() == false
+                    && (fieldType.storeTermVectorPositions() || fieldType.storeTermVectorOffsets() || fieldType.storeTermVectorPayloads())) {
+                throw new IllegalArgumentException("cannot index term vector positions, offsets or payloads without term vectors (field=\"" + name + "\")");
+            }
+            if (fieldType.indexOptions() != IndexOptions.NONE) {
+                if (numeric) {
+                    throw new IllegalArgumentException("indexed field \"" + name + "\" must have string or binary values, got " + valueType);
+                }
+                if (fieldType.tokenized() && valueType != DocumentBatch.ValueType.STRING) {
+                    throw new IllegalArgumentException("tokenized field \"" + name + "\" must have string values, got " + valueType);
+                }
+            }
+            final DocValuesType dvType = fieldType.docValuesType();
+            if (dvType != DocValuesType.NONE) {
+                if (indexSort != null) {
+                    validateIndexSortDVType(name, dvType);
+                }
+                final boolean numericDV = dvType == DocValuesType.NUMERIC || dvType == DocValuesType.SORTED_NUMERIC;
+                if (numericDV != numeric || (numericDV == false && valueType != DocumentBatch.ValueType.BYTES)) {
+                    throw new IllegalArgumentException("field=\"" + name + "\": " + dvType + " doc values require "
+                            + (numericDV ? "a numeric" : "a binary") + " value, got " + valueType);
+                }
+            }
+            final int packedLength = fieldType.pointDataDimensionCount() * fieldType.pointNumBytes();
+            if (packedLength != 0 && valueType != DocumentBatch.ValueType.BYTES) {
+                throw new IllegalArgumentException("field=\"" + name + "\": point values must be binary, got " + valueType);
+            }
+
+            // per-value checks only apply to string and binary values
+            final boolean checkTerms = fieldType.indexOptions() != IndexOptions.NONE;
+            final boolean checkDocValues = dvType == DocValuesType.SORTED || dvType == DocValuesType.SORTED_SET;
+            if ((checkTerms || checkDocValues || packedLength != 0) && column.numValues() > 0) {
+                for (int i = 0; i < numDocs; i++) {
+                    if (column.hasValue(i) == false) {
+                        continue;
+                    }
+                    final BytesRef value = column.bytesValue(i, scratch);
+                    if (checkTerms && valueType == DocumentBatch.ValueType.STRING) {
+                        checkUTF8(name, value);
+                    }
+                    if (checkTerms && value.length > BytesRefHash.MAX_LENGTH) {
+                        if (fieldType.tokenized()) {
+                            // only single tokens may not be too long
+                            checkTokenLengths(name, analyzer.tokenStream(name, value));
+                        } else {
+                            checkTermLength(name, value.length);
+                        }
+                    }
+                    if (checkDocValues && value.length > BytesRefHash.MAX_LENGTH) {
+                        throw new IllegalArgumentException("DocValuesField \"" + name + "\" is too large, must be <= " + BytesRefHash.MAX_LENGTH);
+                    }
+                    if (packedLength != 0 && value.length != packedLength) {
+                        throw new IllegalArgumentException("field=\"" + name + "\": point value has length="
+                                + value.length + " but should be " + packedLength);
+                    }
+                }
+            }
+
+            PerField perField = fields.get(name);
+            final FieldInfo fi = fieldInfos.addOrUpdate(name, fieldType);
+            if (perField == null) {
+                perField = new PerField(fi);
+                fields.put(name, perField);
+            }
+            perField.validationGen = gen;
+            perFields[c] = perField;
+        }
+        return perFields;
+    }
+
+    private void indexDocValues(PerField perField, DocValuesType dvType, DocumentBatch.Column column, int firstDocID) {
+        if (column.numValues() == 0) {
+            return;
+        }
+        if (perField.docValues == null) {
+            perField.docValues = newDocValuesWriter(perField.fieldInfo, dvType);
+        }
+        final int numDocs = column.numDocs();
+        switch (dvType) {
+            case NUMERIC:
+            case SORTED_NUMERIC: {
+                final int num = collectNumericValues(column, firstDocID);
+                if (dvType == DocValuesType.NUMERIC) {
+                    ((NumericDocValuesWriter) perField.docValues).addValues(scratchDocs, scratchValues, num);
+                } else {
+                    ((SortedNumericDocValuesWriter) perField.docValues).addValues(scratchDocs, scratchValues, num);
+                }
+                break;
+            }
+            case BINARY:
+            case SORTED:
+            case SORTED_SET: {
+                // values go through a hash or an arena, one at a time
+                final BytesRef scratch = new BytesRef();
+                for (int i = 0; i < numDocs; i++) {
+                    if (column.hasValue(i)) {
+                        final BytesRef value = column.bytesValue(i, scratch);
+                        if (dvType == DocValuesType.BINARY) {
+                            ((BinaryDocValuesWriter) perField.docValues).addValue(firstDocID + i, value);
+                        } else if (dvType == DocValuesType.SORTED) {
+                            ((SortedDocValuesWriter) perField.docValues).addValue(firstDocID + i, value);
+                        } else {
+                            ((SortedSetDocValuesWriter) perField.docValues).addValue(firstDocID + i, value);
+                        }
+                    }
+                }
+                break;
+            }
+            default:
+                throw new AssertionError("unrecognized DocValues.Type: " + dvType);
+        }
+    }
+
+    private void indexPoints(PerField perField, DocumentBatch.Column column, int firstDocID) {
+        if (column.numValues() == 0) {
+            return;
+        }
+        if (perField.points == null) {
+            perField.points = new PointValuesWriter(perField.fieldInfo);
+        }
+        final int num = collectDocs(column, firstDocID);
+        // docs without value have empty values, so the arena holds the packed
+        // values one after the other
+        perField.points.addPackedValues(scratchDocs, column.bytesValues(), num);
+    }
+
+    // fills scratchDocs with the docs of the column that have a value
+    private int collectDocs(DocumentBatch.Column column, int firstDocID) {
+        final int numDocs = column.numDocs();
+        scratchDocs = ArrayUtil.grow(scratchDocs, column.numValues());
+        int num = 0;
+        for (int i = 0; i < numDocs; i++) {
+            if (column.hasValue(i)) {
+                scratchDocs[num++] = firstDocID + i;
+            }
+        }
+        return num;
+    }
+
+    // fills scratchDocs and scratchValues with the docs of the column that
+    // have a value and their values
+    private int collectNumericValues(DocumentBatch.Column column, int firstDocID) {
+        final int numDocs = column.numDocs();
+        scratchDocs = ArrayUtil.grow(scratchDocs, column.numValues());
+        scratchValues = ArrayUtil.grow(scratchValues, column.numValues());
+        int num = 0;
+        for (int i = 0; i < numDocs; i++) {
+            if (column.hasValue(i)) {
+                scratchDocs[num] = firstDocID + i;
+                scratchValues[num] = column.longValue(i);
+                num++;
+            }
+        }
+        return num;
+    }
+
+    /**
+     * A view of the value of one document of a {@link DocumentBatch.Column},
+     * for the code paths that consume {@link IndexableField}s.
+     */
+    private static final class BatchField implements IndexableField {
+
+        private final BytesRef scratch = new BytesRef();
+        private DocumentBatch.Column column;
+        private int doc;
+        private String string;
+
+        void reset(DocumentBatch.Column column, int doc) {
+            this.column = column;
+            this.doc = doc;
+            this.string = null;
+        }
+
+        @Override
+        public String name() {
+            return column.name();
+        }
+
+        @Override
+        public IndexableFieldType fieldType() {
+            return column.fieldType();
+        }
+
+        @Override
+        public BytesRef binaryValue() {
+            return column.valueType() == DocumentBatch.ValueType.BYTES ? column.bytesValue(doc, scratch) : null;
+        }
+
+        @Override
+        public String stringValue() {
+            if (column.valueType() != DocumentBatch.ValueType.STRING) {
+                return null;
+            }
+            if (string == null) {
+                string = column.stringValue(doc);
+            }
+            return string;
+        }
+
+        @Override
+        public Reader readerValue() {
+            return null;
+        }
+
+        @Override
+        public Number numericValue() {
+            final DocumentBatch.ValueType valueType = column.valueType();
+            return valueType == DocumentBatch.ValueType.BYTES || valueType == DocumentBatch.ValueType.STRING ? null : column.numericValue(doc);
+        }
+    }
+
+    // first pass: updates the field infos and checks the document
+    private void validate(Iterable<? extends IndexableField> doc) throws IOException {
+        final int gen = ++validationGen;
+        for (IndexableField field : doc) {
+            final String name = field.name();
+            final IndexableFieldType fieldType = field.fieldType();
+            final int flags = Schema.flags(fieldType);
+
+            PerField perField = fields.get(name);
+            if (perField == null || perField.lastType != fieldType) {
+                if ((flags & Schema.Type.TERM_VECTORS) != 0 && (flags & Schema.Type.INDEXED) == 0) {
+                    throw new IllegalArgumentException("cannot store term vectors for a field that is not indexed (field=\"" + name + "\")");
+                }
+                if ((flags & Schema.Type.TERM_VECTORS) == 0
+                        && (fieldType.storeTermVectorPositions() || fieldType.storeTermVectorOffsets() || fieldType.storeTermVectorPayloads())) {
+                    throw new IllegalArgumentException("cannot index term vector positions, offsets or payloads without term vectors (field=\"" + name + "\")");
+                }
+                final FieldInfo fi = fieldInfos.addOrUpdate(name, fieldType);
+                if (perField == null) {
+                    perField = new PerField(fi);
+                    fields.put(name, perField);
+                }
+                perField.lastType = fieldType instanceof Schema.Type ? (Schema.Type) fieldType : null;
+            }
+            if (perField.validationGen != gen) {
+                perField.validationGen = gen;
+                perField.docValuesCount = 0;
+                fieldsInDoc.add(perField);
+            }
+
+            String text = null;
+            if ((flags & Schema.Type.INDEXED) != 0) {
+                text = validateIndexedValue(field, fieldType);
+            }
+            docTexts.add(text);
+
+            if ((flags & Schema.Type.STORED) != 0) {
+                final Number number = field.numericValue();
+                if (number != null) {
+                    if ((number instanceof Byte || number instanceof Short || number instanceof Integer
+                            || number instanceof Long || number instanceof Float || number instanceof Double) == false) {
+                        throw new IllegalArgumentException("cannot store numeric type " + number.getClass() + " (field=\"" + name + "\")");
+                    }
+                } else if (field.binaryValue() == null && field.stringValue() == null) {
+                    throw new IllegalArgumentException("stored field \"" + name + "\" must have a numeric, binary or string value");
+                }
+            }
+
+            if ((flags & Schema.Type.DOC_VALUES) != 0) {
+                final DocValuesType dvType = fieldType.docValuesType();
+                if (indexSort != null) {
+                    validateIndexSortDVType(name, dvType);
+                }
+                perField.docValuesCount++;
+                validateDocValue(field, dvType, perField.docValuesCount);
+            }
+
+            if ((flags & Schema.Type.POINTS) != 0) {
+                final BytesRef packed = field.binaryValue();
+                final int expected = fieldType.pointDataDimensionCount() * fieldType.pointNumBytes();
+                if (packed == null || packed.length != expected) {
+                    throw new IllegalArgumentException("field=\"" + name + "\": point value has length="
+                            + (packed == null ? 0 : packed.length) + " but should be " + expected);
+                }
+            }
+        }
+    }
+
+    // the doc values of a sort field must have the type that the field is sorted by
+    private void validateIndexSortDVType(String fieldName, DocValuesType dvType) {
+        for (SortField sortField : indexSort.getSort()) {
+            if (sortField.getField().equals(fieldName)) {
+                final DocValuesType expected = Sorter.getDocValuesType(sortField);
+                if (dvType != expected) {
+                    throw new IllegalArgumentException("invalid doc value type:" + dvType + " for sortField:" + sortField.getField()
+                            + ", expected " + expected);
+                }
+                break;
+            }
+        }
+    }
+
+    // returns the text to tokenize, or null if the value is indexed as a
+    // single term or is UTF-8 text
+    private String validateIndexedValue(IndexableField field, IndexableFieldType fieldType) throws IOException {
+        if (fieldType.tokenized()) {
+            String text = field.stringValue();
+            if (text == null) {
+                final Reader reader = field.readerValue();
+                if (reader == null) {
+                    final BytesRef utf8 = field.binaryValue();
+                    if (utf8 == null) {
+                        throw new IllegalArgumentException("tokenized field \"" + field.name() + "\" must have a string, reader or UTF-8 binary value");
+                    }
+                    checkUTF8(field.name(), utf8);
+                    if (utf8.length > BytesRefHash.MAX_LENGTH) {
+                        checkTokenLengths(field.name(), analyzer.tokenStream(field.name(), utf8));
+                    }
+                    return null;
+                }
+                text = readFully(reader);
+            }
+            if (text.length() * UnicodeUtil.MAX_UTF8_BYTES_PER_CHAR > BytesRefHash.MAX_LENGTH) {
+                checkTokenLengths(field.name(), analyzer.tokenStream(field.name(), text));
+            }
+            return text;
+        }
+
+        final BytesRef binary = field.binaryValue();
+        if (binary != null) {
+            checkTermLength(field.name(), binary.length);
+        } else {
+            final String string = field.stringValue();
+            if (string == null) {
+                throw new IllegalArgumentException("indexed field \"" + field.name() + "\" must have a string or binary value");
+            }
+            checkTermLength(field.name(), UnicodeUtil.calcUTF16toUTF8Length(string, 0, string.length()));
+        }
+        return null;
+    }
+
+    // only single tokens may not be too long, which requires analyzing the text
+    private static void checkTokenLengths(String field, TokenStream tokenStream) throws IOException {
+        try (TokenStream stream = tokenStream) {
+            final TermToBytesRefAttribute termAtt = stream.addAttribute(TermToBytesRefAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                checkTermLength(field, termAtt.getBytesRef().length);
+            }
+            stream.end();
+        }
+    }
+
+    // UTF-8 text is validated before it is analyzed, so that invalid text
+    // does not abort the segment in the second pass
+    private static void checkUTF8(String field, BytesRef utf8) {
+        try {
+            UnicodeUtil.codePointCount(utf8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("field=\"" + field + "\": value is not valid UTF-8", e);
+        }
+    }
+
+    private static void checkTermLength(String field, int length) {
+        if (length > BytesRefHash.MAX_LENGTH) {
+            throw new IllegalArgumentException("Document contains at least one immense term in field=\"" + field
+                    + "\" (whose UTF8 encoding is longer than the max length " + BytesRefHash.MAX_LENGTH + "), all of which were skipped");
+        }
+    }
+
+    private static void validateDocValue(IndexableField field, DocValuesType dvType, int count) {
+        switch (dvType) {
+            case NUMERIC:
+            case SORTED_NUMERIC:
+                if (field.numericValue() == null) {
+                    throw new IllegalArgumentException("field=\"" + field.name() + "\": " + dvType + " doc values require a numeric value");
+                }
+                break;
+            case BINARY:
+            case SORTED:
+            case SORTED_SET:
+                final BytesRef value = field.binaryValue();
+                if (value == null) {
+                    throw new IllegalArgumentException("field=\"" + field.name() + "\": " + dvType + " doc values require a binary value");
+                }
+                if (dvType != DocValuesType.BINARY && value.length > BytesRefHash.MAX_LENGTH) {
+                    throw new IllegalArgumentException("DocValuesField \"" + field.name() + "\" is too large, must be <= " + BytesRefHash.MAX_LENGTH);
+                }
+                break;
+            default:
+                throw new AssertionError("unrecognized DocValues.Type: " + dvType);
+        }
+        if (count > 1 && (dvType == DocValuesType.NUMERIC || dvType == DocValuesType.BINARY || dvType == DocValuesType.SORTED)) {
+            throw new IllegalArgumentException("DocValuesField \"" + field.name() + "\" appears more than once in this document (only one value is allowed per field)");
+        }
+    }
+
+    private static String readFully(Reader reader) throws IOException {
+        final StringBuilder sb = new StringBuilder();
+        final char[] buffer = new char[1024];
+        for (int read = reader.read(buffer); read != -1; read = reader.read(buffer)) {
+            sb.append(buffer, 0, read);
+        }
+        return sb.toString();
+    }
+
+    // second pass: indexes the terms of one field value
+    // text is the text to tokenize, or utf8Text the UTF-8 text to tokenize or to
+    // index as a single term, or both are null if the value of the field is used
+    private void invert(PerField perField, IndexableField field, String text, BytesRef utf8Text, int docID) throws IOException {
+        final FieldInfo fi = perField.fieldInfo;
+        if (perField.postings == null) {
+            perField.postings = new FreqProxTermsWriterPerField(fi);
+        }
+        final boolean first = perField.invertDocID != docID;
+        if (first) {
+            perField.invertDocID = docID;
+            perField.position = -1;
+            perField.offset = 0;
+        }
+
+        final IndexableFieldType fieldType = field.fieldType();
+        TermVectorsConsumerPerField vectors = null;
+        if (fieldType.storeTermVectors()) {
+            if (perField.termVectors == null) {
+                perField.termVectors = new TermVectorsConsumerPerField(fi);
+            }
+            vectors = perField.termVectors;
+            vectors.doVectorPositions |= fieldType.storeTermVectorPositions();
+            vectors.doVectorOffsets |= fieldType.storeTermVectorOffsets();
+            termVectors.addField(vectors);
+        }
+
+        final int base = perField.offset;
+        if (fieldType.tokenized()) {
+            if (first == false) {
+                perField.position += analyzer.getPositionIncrementGap(fi.name);
+            }
+            // the components of the stream are reused, and so are their attributes
+            try (TokenStream stream = text != null ? analyzer.tokenStream(fi.name, text) : analyzer.tokenStream(fi.name, utf8Text)) {
+                final TermToBytesRefAttribute termAtt = stream.addAttribute(TermToBytesRefAttribute.class);
+                final OffsetAttribute offsetAtt = stream.addAttribute(OffsetAttribute.class);
+                final PositionIncrementAttribute posIncrAtt = stream.addAttribute(PositionIncrementAttribute.class);
+                stream.reset();
+                while (stream.incrementToken()) {
+                    perField.position += posIncrAtt.getPositionIncrement();
+                    addTerm(perField, vectors, termAtt.getBytesRef(), docID,
+                            base + offsetAtt.startOffset(), base + offsetAtt.endOffset());
+                }
+                stream.end();
+                // leave a gap between the offsets of two values of the field
+                perField.offset = base + offsetAtt.endOffset() + analyzer.getOffsetGap(fi.name);
+            }
+        } else if (utf8Text != null) {
+            // offsets count UTF-16 code units, as if the value were a String
+            final int length = UnicodeUtil.calcUTF8toUTF16Length(utf8Text);
+            ++perField.position;
+            addTerm(perField, vectors, utf8Text, docID, base, base + length);
+            perField.offset = base + length + 1;
+        } else {
+            final BytesRef binary = field.binaryValue();
+            ++perField.position;
+            if (binary != null) {
+                addTerm(perField, vectors, binary, docID, base, base);
+                perField.offset = base + 1;
+            } else {
+                final String string = field.stringValue();
+                termBuilder.copyChars(string);
+                addTerm(perField, vectors, termBuilder.get(), docID, base, base + string.length());
+                perField.offset = base + string.length() + 1;
+            }
+        }
+    }
+
+    // adds a term at the current position of the field
+    private static void addTerm(PerField perField, TermVectorsConsumerPerField vectors, BytesRef term,
+                                int docID, int startOffset, int endOffset) {
+        final int position = perField.position;
+        perField.postings.add(term, docID, position, startOffset, endOffset);
+        if (vectors != null) {
+            vectors.add(term, position, startOffset, endOffset);
+        }
+    }
+
+    private static void indexDocValue(PerField perField, DocValuesType dvType, IndexableField field, int docID) {
+        if (perField.docValues == null) {
+            perField.docValues = newDocValuesWriter(perField.fieldInfo, dvType);
+        }
+        switch (dvType) {
+            case NUMERIC:
+                ((NumericDocValuesWriter) perField.docValues).addValue(docID, field.numericValue().longValue());
+                break;
+            case BINARY:
+                ((BinaryDocValuesWriter) perField.docValues).addValue(docID, field.binaryValue());
+                break;
+            case SORTED:
+                ((SortedDocValuesWriter) perField.docValues).addValue(docID, field.binaryValue());
+                break;
+            case SORTED_NUMERIC:
+                ((SortedNumericDocValuesWriter) perField.docValues).addValue(docID, field.numericValue().longValue());
+                break;
+            case SORTED_SET:
+                ((SortedSetDocValuesWriter) perField.docValues).addValue(docID, field.binaryValue());
+                break;
+            default:
+                throw new AssertionError("unrecognized DocValues.Type: " + dvType);
+        }
+    }
+
+    private static DocValuesWriter newDocValuesWriter(FieldInfo fi, DocValuesType dvType) {
+        switch (dvType) {
+            case NUMERIC:
+                return new NumericDocValuesWriter(fi);
+            case BINARY:
+                return new BinaryDocValuesWriter(fi);
+            case SORTED:
+                return new SortedDocValuesWriter(fi);
+            case SORTED_NUMERIC:
+                return new SortedNumericDocValuesWriter(fi);
+            case SORTED_SET:
+                return new SortedSetDocValuesWriter(fi);
+            default:
+                throw new AssertionError("unrecognized DocValues.Type: " + dvType);
+        }
+    }
+
+    /**
+     * Writes the buffered documents as a new segment and returns its
+     * {@link SegmentInfo}, or {@code null} if no document was buffered. This
+     * instance can not be used anymore afterwards.
+     */
+    SegmentInfo flush() throws IOException {
+        assert aborted == false;
+        if (numDocsInRAM == 0) {
+            abort();
+            return null;
+        }
+        final int numDocs = numDocsInRAM;
+        boolean success = false;
+        try {
+            final List<FreqProxTermsWriterPerField> postings = new ArrayList<>();
+            boolean hasIndexedFields = false;
+            for (PerField perField : fields.values()) {
+                if (perField.postings != null) {
+                    perField.postings.finish();
+                    postings.add(perField.postings);
+                }
+                hasIndexedFields |= perField.fieldInfo.getIndexOptions() != IndexOptions.NONE;
+            }
+            final FieldInfos infos = fieldInfos.finish();
+            // null if the index is not sorted or the docs are in order already
+            final Sorter.DocMap sortMap = indexSort == null ? null : sortDocs(numDocs);
+
+            if (hasIndexedFields) {
+                writePostings(infos, postings, sortMap);
+            }
+            if (infos.hasDocValues()) {
+                writeDocValues(infos, numDocs, sortMap);
+            }
+            if (infos.hasPointValues()) {
+                try (PointsWriter pointsWriter = BKDPointsFormat.fieldsWriter(directory, segmentName, numDocs)) {
+                    for (PerField perField : fields.values()) {
+                        if (perField.points != null) {
+                            perField.points.flush(pointsWriter, sortMap);
+                        }
+                    }
+                    pointsWriter.finish();
+                }
+            }
+            storedFields.flush(infos, numDocs, sortMap);
+            termVectors.flush(infos, numDocs, sortMap);
+            FieldInfosFormat.write(directory, segmentName, infos);
+
+            final SegmentInfo info = new SegmentInfo(directory, segmentName, numDocs,
+                    SegmentInfo.listFiles(directory, segmentName),
+                    Collections.singletonMap(SegmentInfo.SOURCE, SegmentInfo.SOURCE_FLUSH), indexSort);
+            success = true;
+            return info;
+        } finally {
+            if (success == false) {
+                abort();
+            }
+        }
+    }
+
+    // computes the permutation of the buffered docs that sorts them by the index sort
+    private Sorter.DocMap sortDocs(int numDocs) throws IOException {
+        final SortField[] sortFields = indexSort.getSort();
+        final Sorter.DocComparator[] comparators = new Sorter.DocComparator[sortFields.length];
+        for (int i = 0; i < sortFields.length; i++) {
+            final PerField perField = fields.get(sortFields[i].getField());
+            if (perField == null || perField.docValues == null) {
+                // no doc has a value, they all sort by the missing value
+                comparators[i] = Sorter.getDocComparator(numDocs, sortFields[i], DocValues::emptySorted, DocValues::emptyNumeric);
+            } else {
+                comparators[i] = perField.docValues.getDocComparator(numDocs, sortFields[i]);
+            }
+        }
+        return new Sorter(indexSort).sort(numDocs, comparators);
+    }
+
+    private void writePostings(FieldInfos infos, List<FreqProxTermsWriterPerField> postings, Sorter.DocMap sortMap) throws IOException {
+        final PostingsWriterBase postingsWriter = BlockPostingsFormat.postingsWriter(directory, segmentName, infos);
+        FieldsConsumer consumer = null;
+        try {
+            consumer = BlockTreeTermsFormat.fieldsConsumer(directory, segmentName, infos, postingsWriter);
+        } finally {
+            if (consumer == null) {
+                IOUtils.closeWhileHandlingException(postingsWriter);
+            }
+        }
+        try (FieldsConsumer fieldsConsumer = consumer) {
+            // no norms yet
+            final Fields fields = new FreqProxFields(postings);
+            fieldsConsumer.write(sortMap == null ? fields : new SortingFields(fields, sortMap), null);
+        }
+    }
+
+    private void writeDocValues(FieldInfos infos, int numDocs, Sorter.DocMap sortMap) throws IOException {
+        try (DocValuesConsumer consumer = ColumnarDocValuesFormat.fieldsConsumer(directory, segmentName, numDocs)) {
+            for (FieldInfo fi : infos) {
+                final DocValuesType dvType = fi.getDocValuesType();
+                if (dvType == DocValuesType.NONE) {
+                    continue;
+                }
+                DocValuesWriter writer = fields.get(fi.name).docValues;
+                if (writer == null) {
+                    // the field was only registered by documents that were rejected
+                    writer = newDocValuesWriter(fi, dvType);
+                }
+                writer.flush(numDocs, sortMap, consumer);
+            }
+        }
+    }
+
+    /**
+     * Discards the buffered documents, and deletes the files that were
+     * written so far.
+     */
+    void abort() {
+        aborted = true;
+        storedFields.abort();
+        termVectors.abort();
+        try {
+            IOUtils.deleteFilesIgnoringExceptions(directory, SegmentInfo.listFiles(directory, segmentName));
+        } catch (IOException ignored) {
+            // files that could not be listed are left behind
+        }
+    }
+
+    boolean isAborted() {
+        return aborted;
+    }
+
+    /**
+     * Returns the number of buffered documents.
+     */
+    int getNumDocsInRAM() {
+        return numDocsInRAM;
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        return bytesUsed;
+    }
+
+    @Override
+    public String toString() {
+        return "DocumentsWriterPerThread(segment=" + segmentName + ",docs=" + numDocsInRAM + ",bytes=" + bytesUsed + ")";
+    }
+}
@@ -0,0 +1,90 @@
+package com.mythology.cloud.apollo.index;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hands out {@link ThreadState}s to indexing threads. A {@link ThreadState}
+ * holds a {@link DocumentsWriterPerThread} and is locked by the thread that
+ * indexes into it, so that threads never share an in-memory segment and
+ * index without contention. States are not bound to threads: a released
+ * state goes back to a free list, and new states are only created when all
+ * existing ones are in use, so the number of in-memory segments is bounded
+ * by the peak number of concurrent indexing threads.
+ * <p>
+ * 为索引线程分配{@link ThreadState}：每个状态持有一个内存段并由使用它的线程加锁，
+ * 线程之间不共享内存段；释放的状态回到空闲列表，只有全部状态都被占用时才创建新的。
+ * </p>
+ */
+final class DocumentsWriterPerThreadPool {
+
+    /**
+     * A lockable slot for a {@link DocumentsWriterPerThread}. The writer is
+     * created lazily, and replaced after it was flushed or aborted.
+     */
+    @SuppressWarnings("serial")
+    static final class ThreadState extends ReentrantLock {
+        // guarded by the lock
+        DocumentsWriterPerThread dwpt;
+        // RAM used by dwpt, readable without the lock
+        volatile long bytesUsed;
+        // set by another thread that wants dwpt to be flushed by the owner
+        volatile boolean flushPending;
+
+        ThreadState() {
+        }
+    }
+
+    private final List<ThreadState> threadStates = new ArrayList<>();
+    private final Deque<ThreadState> freeList = new ArrayDeque<>();
+
+    DocumentsWriterPerThreadPool() {
+    }
+
+    /**
+     * Returns a locked {@link ThreadState}, which must be passed to
+     * {@link #release(ThreadState)} once the caller is done with it.
+     */
+    ThreadState getAndLock() {
+        ThreadState state;
+        synchronized (this) {
+            state = freeList.pollLast();
+            if (state == null) {
+                state = new ThreadState();
+                threadStates.add(state);
+            }
+        }
+        // may only block on a flush of all states
+        state.lock();
+        return state;
+    }
+
+    /**
+     * Unlocks {@code state} and makes it available to other threads.
+     */
+    void release(ThreadState state) {
+        state.unlock();
+        synchronized (this) {
+            // the most recently used state is handed out first, as its
+            // in-memory segment is the most likely to be in the CPU caches
+            freeList.addLast(state);
+        }
+    }
+
+    /**
+     * Returns a snapshot of all states.
+     */
+    synchronized List<ThreadState> getThreadStates() {
+        return new ArrayList<>(threadStates);
+    }
+
+    /**
+     * Returns the number of states created so far.
+     */
+    synchronized int size() {
+        return threadStates.size();
+    }
+}
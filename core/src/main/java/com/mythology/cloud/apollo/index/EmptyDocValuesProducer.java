@@ -0,0 +1,60 @@
+package com.mythology.cloud.apollo.index;
+
+import com.mythology.cloud.apollo.codecs.DocValuesProducer;
+
+import java.io.IOException;
+
+/**
+ * Abstract base class implementing a {@link DocValuesProducer} that has no doc values.
+ * Subclasses override the getter of the single type they expose, which is
+ * handy to feed a {@link com.mythology.cloud.apollo.codecs.DocValuesConsumer}
+ * with values that do not come from a segment.
+ *
+ * @lucene.experimental
+ */
+public abstract class EmptyDocValuesProducer extends DocValuesProducer {
+
+    /**
+     * Sole constructor
+     */
+    protected EmptyDocValuesProducer() {
+    }
+
+    @Override
+    public NumericDocValues getNumeric(FieldInfo field) throws IOException {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public BinaryDocValues getBinary(FieldInfo field) throws IOException {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public SortedDocValues getSorted(FieldInfo field) throws IOException {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public SortedNumericDocValues getSortedNumeric(FieldInfo field) throws IOException {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public SortedSetDocValues getSortedSet(FieldInfo field) throws IOException {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Closes this doc values producer.
+     */
+    @Override
+    public void close() throws IOException {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        throw new UnsupportedOperationException();
+    }
+}
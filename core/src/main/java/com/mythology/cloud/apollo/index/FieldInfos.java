@@ -0,0 +1,365 @@
+package com.mythology.cloud.apollo.index;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collection of {@link FieldInfo}s (accessible by number or by name).
+ *
+ * @lucene.experimental
+ */
+public class FieldInfos implements Iterable<FieldInfo> {
+
+    /**
+     * An instance without any fields.
+     */
+    public final static FieldInfos EMPTY = new FieldInfos(new FieldInfo[0]);
+
+    private final boolean hasFreq;
+    private final boolean hasProx;
+    private final boolean hasPayloads;
+    private final boolean hasOffsets;
+    private final boolean hasVectors;
+    private final boolean hasNorms;
+    private final boolean hasDocValues;
+    private final boolean hasPointValues;
+
+    // used only by fieldInfo(int)
+    private final FieldInfo[] byNumber;
+
+    private final HashMap<String, FieldInfo> byName = new HashMap<>();
+    private final Collection<FieldInfo> values; // for an unmodifiable iterator
+
+    /**
+     * Constructs a new FieldInfos from an array of FieldInfo objects
+     */
+    public FieldInfos(FieldInfo[] infos) {
+        boolean hasVectors = false;
+        boolean hasProx = false;
+        boolean hasPayloads = false;
+        boolean hasOffsets = false;
+        boolean hasFreq = false;
+        boolean hasNorms = false;
+        boolean hasDocValues = false;
+        boolean hasPointValues = false;
+
+        int size = 0; // number of elements in byNumberTemp, number of used array slots
+        FieldInfo[] byNumberTemp = new FieldInfo[10]; // initial array capacity of 10
+        for (FieldInfo info : infos) {
+            if (info.number < 0) {
+                throw new IllegalArgumentException("illegal field number: " + info.number + " for field " + info.name);
+            }
+            size = info.number >= size ? info.number + 1 : size;
+            if (info.number >= byNumberTemp.length) { //grow array
+                byNumberTemp = java.util.Arrays.copyOf(byNumberTemp, info.number + 1);
+            }
+            FieldInfo previous = byNumberTemp[info.number];
+            if (previous != null) {
+                throw new IllegalArgumentException("duplicate field numbers: " + previous.name + " and " + info.name + " have: " + info.number);
+            }
+            byNumberTemp[info.number] = info;
+
+            previous = byName.put(info.name, info);
+            if (previous != null) {
+                throw new IllegalArgumentException("duplicate field names: " + previous.number + " and " + info.number + " have: " + info.name);
+            }
+
+            hasVectors |= info.hasVectors();
+            hasProx |= info.getIndexOptions().compareTo(IndexOptions.DOCS_AND_FREQS_AND_POSITIONS) >= 0;
+            hasFreq |= info.getIndexOptions() != IndexOptions.DOCS && info.getIndexOptions() != IndexOptions.NONE;
+            hasOffsets |= info.getIndexOptions().compareTo(IndexOptions.DOCS_AND_FREQS_AND_POSITIONS_AND_OFFSETS) >= 0;
+            hasNorms |= info.hasNorms();
+            hasDocValues |= info.getDocValuesType() != DocValuesType.NONE;
+            hasPayloads |= info.hasPayloads();
+            hasPointValues |= (info.getPointDataDimensionCount() != 0);
+        }
+
+        this.hasVectors = hasVectors;
+        this.hasProx = hasProx;
+        this.hasPayloads = hasPayloads;
+        this.hasOffsets = hasOffsets;
+        this.hasFreq = hasFreq;
+        this.hasNorms = hasNorms;
+        this.hasDocValues = hasDocValues;
+        this.hasPointValues = hasPointValues;
+
+        List<FieldInfo> valuesTemp = new ArrayList<>();
+        byNumber = new FieldInfo[size];
+        for (int i = 0; i < size; i++) {
+            byNumber[i] = byNumberTemp[i];
+            if (byNumberTemp[i] != null) {
+                valuesTemp.add(byNumberTemp[i]);
+            }
+        }
+        values = Collections.unmodifiableCollection(valuesTemp);
+    }
+
+    /**
+     * Returns true if any fields have freqs
+     */
+    public boolean hasFreq() {
+        return hasFreq;
+    }
+
+    /**
+     * Returns true if any fields have positions
+     */
+    public boolean hasProx() {
+        return hasProx;
+    }
+
+    /**
+     * Returns true if any fields have payloads
+     */
+    public boolean hasPayloads() {
+        return hasPayloads;
+    }
+
+    /**
+     * Returns true if any fields have offsets
+     */
+    public boolean hasOffsets() {
+        return hasOffsets;
+    }
+
+    /**
+     * Returns true if any fields have vectors
+     */
+    public boolean hasVectors() {
+        return hasVectors;
+    }
+
+    /**
+     * Returns true if any fields have norms
+     */
+    public boolean hasNorms() {
+        return hasNorms;
+    }
+
+    /**
+     * Returns true if any fields have DocValues
+     */
+    public boolean hasDocValues() {
+        return hasDocValues;
+    }
+
+    /**
+     * Returns true if any fields have PointValues
+     */
+    public boolean hasPointValues() {
+        return hasPointValues;
+    }
+
+    /**
+     * Returns the number of fields
+     */
+    public int size() {
+        return byName.size();
+    }
+
+    /**
+     * Returns an iterator over all the fieldinfo objects present,
+     * ordered by ascending field number
+     */
+    // TODO: what happens if in fact a different order is used?
+    @Override
+    public Iterator<FieldInfo> iterator() {
+        return values.iterator();
+    }
+
+    /**
+     * Return the fieldinfo object referenced by the field name
+     *
+     * @return the FieldInfo object or null when the given fieldName
+     * doesn't exist.
+     */
+    public FieldInfo fieldInfo(String fieldName) {
+        return byName.get(fieldName);
+    }
+
+    /**
+     * Return the fieldinfo object referenced by the fieldNumber.
+     *
+     * @param fieldNumber field's number.
+     * @return the FieldInfo object or null when the given fieldNumber
+     * doesn't exist.
+     * @throws IllegalArgumentException if fieldNumber is negative
+     */
+    public FieldInfo fieldInfo(int fieldNumber) {
+        if (fieldNumber < 0) {
+            throw new IllegalArgumentException("Illegal field number: " + fieldNumber);
+        }
+        if (fieldNumber >= byNumber.length) {
+            return null;
+        }
+        return byNumber[fieldNumber];
+    }
+
+    /**
+     * Assigns index-wide numbers to field names, so that a field has the
+     * same number in all segments of an index, and checks that the doc values
+     * type and point dimensions of a field never change across documents and
+     * segments.
+     */
+    static final class FieldNumbers {
+
+        private final Map<Integer, String> numberToName = new HashMap<>();
+        private final Map<String, Integer> nameToNumber = new HashMap<>();
+        private final Map<String, DocValuesType> docValuesType = new HashMap<>();
+        // data dimension count, index dimension count, num bytes
+        private final Map<String, int[]> dimensions = new HashMap<>();
+
+        // only used by addOrGet to assign new numbers
+        private int lowestUnassignedFieldNumber = -1;
+
+        FieldNumbers() {
+        }
+
+        /**
+         * Returns the global field number for the given field name. If the name
+         * does not exist yet it tries to add it with the given preferred field
+         * number assigned if possible otherwise the first unassigned field number
+         * is used as the field number.
+         *
+         * @throws IllegalArgumentException if the doc values type or the point
+         *                                  dimensions conflict with the ones the field already has
+         */
+        synchronized int addOrGet(String fieldName, int preferredFieldNumber, DocValuesType dvType,
+                                  int dataDimensionCount, int indexDimensionCount, int dimensionNumBytes) {
+            if (dvType != DocValuesType.NONE) {
+                final DocValuesType currentDVType = docValuesType.get(fieldName);
+                if (currentDVType == null || currentDVType == DocValuesType.NONE) {
+                    docValuesType.put(fieldName, dvType);
+                } else if (currentDVType != dvType) {
+                    throw new IllegalArgumentException("cannot change DocValues type from " + currentDVType + " to " + dvType + " for field \"" + fieldName + "\"");
+                }
+            }
+            if (dataDimensionCount != 0) {
+                final int[] dims = dimensions.get(fieldName);
+                if (dims == null) {
+                    dimensions.put(fieldName, new int[]{dataDimensionCount, indexDimensionCount, dimensionNumBytes});
+                } else if (dims[0] != dataDimensionCount || dims[1] != indexDimensionCount || dims[2] != dimensionNumBytes) {
+                    throw new IllegalArgumentException("cannot change point dimensions from dataDimensionCount=" + dims[0]
+                            + ", indexDimensionCount=" + dims[1] + ", numBytes=" + dims[2] + " to dataDimensionCount=" + dataDimensionCount
+                            + ", indexDimensionCount=" + indexDimensionCount + ", numBytes=" + dimensionNumBytes + " for field \"" + fieldName + "\"");
+                }
+            }
+
+            Integer fieldNumber = nameToNumber.get(fieldName);
+            if (fieldNumber == null) {
+                final Integer preferredBoxed = preferredFieldNumber;
+                if (preferredFieldNumber != -1 && numberToName.containsKey(preferredBoxed) == false) {
+                    // cool - we can use this number globally
+                    fieldNumber = preferredBoxed;
+                } else {
+                    // find a new FieldNumber
+                    while (numberToName.containsKey(++lowestUnassignedFieldNumber)) {
+                        // might not be up to date - lets do the work once needed
+                    }
+                    fieldNumber = lowestUnassignedFieldNumber;
+                }
+                assert fieldNumber >= 0;
+                numberToName.put(fieldNumber, fieldName);
+                nameToNumber.put(fieldName, fieldNumber);
+            }
+            return fieldNumber;
+        }
+    }
+
+    /**
+     * Collects the {@link FieldInfo}s of a segment while it is written. Field
+     * numbers are taken from the index-wide {@link FieldNumbers}.
+     */
+    static final class Builder {
+
+        private final HashMap<String, FieldInfo> byName = new HashMap<>();
+        final FieldNumbers globalFieldNumbers;
+
+        Builder(FieldNumbers globalFieldNumbers) {
+            assert globalFieldNumbers != null;
+            this.globalFieldNumbers = globalFieldNumbers;
+        }
+
+        /**
+         * Returns the {@link FieldInfo} of the given field, or {@code null}
+         * if it was not added to this builder.
+         */
+        FieldInfo fieldInfo(String fieldName) {
+            return byName.get(fieldName);
+        }
+
+        /**
+         * Adds a field with the properties of {@code fieldType}, or updates the
+         * existing one, and returns its {@link FieldInfo}.
+         *
+         * @throws IllegalArgumentException if the field type conflicts with the
+         *                                  doc values type or point dimensions of the field
+         */
+        FieldInfo addOrUpdate(String name, IndexableFieldType fieldType) {
+            return addOrUpdateInternal(name, -1, fieldType.storeTermVectors(), fieldType.omitNorms(), false,
+                    fieldType.indexOptions(), fieldType.docValuesType(), fieldType.getAttributes(),
+                    fieldType.pointDataDimensionCount(), fieldType.pointIndexDimensionCount(), fieldType.pointNumBytes());
+        }
+
+        /**
+         * Adds a field of another segment, trying to keep its number, or merges
+         * it into the existing one.
+         */
+        FieldInfo add(FieldInfo fi) {
+            return addOrUpdateInternal(fi.name, fi.number, fi.hasVectors(), fi.omitsNorms(), fi.hasPayloads(),
+                    fi.getIndexOptions(), fi.getDocValuesType(), new HashMap<>(fi.attributes()),
+                    fi.getPointDataDimensionCount(), fi.getPointIndexDimensionCount(), fi.getPointNumBytes());
+        }
+
+        private FieldInfo addOrUpdateInternal(String name, int preferredFieldNumber, boolean storeTermVector,
+                                              boolean omitNorms, boolean storePayloads, IndexOptions indexOptions,
+                                              DocValuesType docValues, Map<String, String> attributes,
+                                              int dataDimensionCount, int indexDimensionCount, int dimensionNumBytes) {
+            if (docValues == null) {
+                throw new NullPointerException("DocValuesType must not be null");
+            }
+            FieldInfo fi = byName.get(name);
+            if (fi == null) {
+                // this field wasn't yet added to this in-RAM
+                // segment's FieldInfo, so now we get a global
+                // number for this field.  If the field was seen
+                // before then we'll get the same name and number,
+                // else we'll allocate a new one:
+                final int fieldNumber = globalFieldNumbers.addOrGet(name, preferredFieldNumber, docValues,
+                        dataDimensionCount, indexDimensionCount, dimensionNumBytes);
+                fi = new FieldInfo(name, fieldNumber, storeTermVector, omitNorms, storePayloads, indexOptions, docValues,
+                        attributes == null ? new HashMap<>() : attributes,
+                        dataDimensionCount, indexDimensionCount, dimensionNumBytes);
+                byName.put(fi.name, fi);
+            } else {
+                if (docValues != DocValuesType.NONE || dataDimensionCount != 0) {
+                    // only the global numbers check consistency across segments
+                    globalFieldNumbers.addOrGet(name, fi.number, docValues,
+                            dataDimensionCount, indexDimensionCount, dimensionNumBytes);
+                }
+                fi.update(storeTermVector, omitNorms, storePayloads, indexOptions, attributes,
+                        dataDimensionCount, indexDimensionCount, dimensionNumBytes);
+                if (docValues != DocValuesType.NONE) {
+                    fi.setDocValuesType(docValues);
+                }
+            }
+            return fi;
+        }
+
+        /**
+         * Returns the number of fields added so far.
+         */
+        int size() {
+            return byName.size();
+        }
+
+        FieldInfos finish() {
+            return new FieldInfos(byName.values().toArray(new FieldInfo[0]));
+        }
+    }
+}
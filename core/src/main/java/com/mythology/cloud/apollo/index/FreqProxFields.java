@@ -0,0 +1,325 @@
+package com.mythology.cloud.apollo.index;
+
+import com.mythology.cloud.apollo.store.ByteArrayDataInput;
+import com.mythology.cloud.apollo.util.BytesRef;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Implements limited (iterators only, no stats) {@link Fields} interface over
+ * the in-RAM buffered postings of a segment, so that they can be handed to a
+ * {@link com.mythology.cloud.apollo.codecs.FieldsConsumer} on flush. Terms are
+ * sorted every time the {@link Terms} of a field are requested.
+ * <p>
+ * 在内存倒排缓冲之上实现的{@link Fields}视图，刷新时交给词典写入器；每次请求字段的词项时对其排序。
+ * </p>
+ */
+final class FreqProxFields extends Fields {
+
+    private final Map<String, FreqProxTermsWriterPerField> fields = new TreeMap<>();
+
+    FreqProxFields(Collection<FreqProxTermsWriterPerField> fieldList) {
+        for (FreqProxTermsWriterPerField field : fieldList) {
+            fields.put(field.fieldInfo.name, field);
+        }
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return fields.keySet().iterator();
+    }
+
+    @Override
+    public Terms terms(String field) throws IOException {
+        final FreqProxTermsWriterPerField perField = fields.get(field);
+        return perField == null ? null : new FreqProxTerms(perField);
+    }
+
+    @Override
+    public int size() {
+        return fields.size();
+    }
+
+    private static final class FreqProxTerms extends Terms {
+        final FreqProxTermsWriterPerField terms;
+        final int[] sortedTermIDs;
+
+        FreqProxTerms(FreqProxTermsWriterPerField terms) {
+            this.terms = terms;
+            this.sortedTermIDs = terms.bytesHash.sort();
+        }
+
+        @Override
+        public TermsEnum iterator() {
+            return new FreqProxTermsEnum(this);
+        }
+
+        @Override
+        public long size() {
+            return terms.bytesHash.size();
+        }
+
+        @Override
+        public long getSumTotalTermFreq() {
+            // ask FieldsConsumer to compute the stats
+            return -1;
+        }
+
+        @Override
+        public long getSumDocFreq() {
+            // ask FieldsConsumer to compute the stats
+            return -1;
+        }
+
+        @Override
+        public int getDocCount() {
+            return terms.docCount;
+        }
+
+        @Override
+        public boolean hasFreqs() {
+            return terms.fieldInfo.getIndexOptions().compareTo(IndexOptions.DOCS_AND_FREQS) >= 0;
+        }
+
+        @Override
+        public boolean hasOffsets() {
+            // NOTE: the in-memory buffer may have indexed offsets
+            // because that's what FieldInfo said when we started,
+            // but during indexing this may have been downgraded:
+            return terms.fieldInfo.getIndexOptions().compareTo(IndexOptions.DOCS_AND_FREQS_AND_POSITIONS_AND_OFFSETS) >= 0;
+        }
+
+        @Override
+        public boolean hasPositions() {
+            // NOTE: the in-memory buffer may have indexed positions
+            // because that's what FieldInfo said when we started,
+            // but during indexing this may have been downgraded:
+            return terms.fieldInfo.getIndexOptions().compareTo(IndexOptions.DOCS_AND_FREQS_AND_POSITIONS) >= 0;
+        }
+
+        @Override
+        public boolean hasPayloads() {
+            return false;
+        }
+    }
+
+    private static final class FreqProxTermsEnum extends TermsEnum {
+        final FreqProxTermsWriterPerField terms;
+        final int[] sortedTermIDs;
+        final int numTerms;
+        final BytesRef scratch = new BytesRef();
+        int ord = -1;
+
+        FreqProxTermsEnum(FreqProxTerms terms) {
+            this.terms = terms.terms;
+            this.sortedTermIDs = terms.sortedTermIDs;
+            this.numTerms = sortedTermIDs.length;
+        }
+
+        // binary search
+        @Override
+        public SeekStatus seekCeil(BytesRef text) {
+            int lo = 0;
+            int hi = numTerms - 1;
+            while (hi >= lo) {
+                int mid = (lo + hi) >>> 1;
+                int textStart = sortedTermIDs[mid];
+                terms.bytesHash.get(textStart, scratch);
+                int cmp = scratch.compareTo(text);
+                if (cmp < 0) {
+                    lo = mid + 1;
+                } else if (cmp > 0) {
+                    hi = mid - 1;
+                } else {
+                    // found:
+                    ord = mid;
+                    return SeekStatus.FOUND;
+                }
+            }
+
+            // not found:
+            ord = lo;
+            if (ord >= numTerms) {
+                return SeekStatus.END;
+            } else {
+                terms.bytesHash.get(sortedTermIDs[ord], scratch);
+                return SeekStatus.NOT_FOUND;
+            }
+        }
+
+        @Override
+        public void seekExact(long ord) {
+            this.ord = (int) ord;
+            terms.bytesHash.get(sortedTermIDs[this.ord], scratch);
+        }
+
+        @Override
+        public BytesRef next() {
+            ord++;
+            if (ord >= numTerms) {
+                return null;
+            } else {
+                terms.bytesHash.get(sortedTermIDs[ord], scratch);
+                return scratch;
+            }
+        }
+
+        @Override
+        public BytesRef term() {
+            return scratch;
+        }
+
+        @Override
+        public long ord() {
+            return ord;
+        }
+
+        @Override
+        public int docFreq() {
+            return terms.docFreqs[sortedTermIDs[ord]];
+        }
+
+        @Override
+        public long totalTermFreq() {
+            // the total is only known once the postings were iterated
+            return -1;
+        }
+
+        @Override
+        public PostingsEnum postings(PostingsEnum reuse, int flags) {
+            final FreqProxPostingsEnum postings;
+            if (reuse instanceof FreqProxPostingsEnum && ((FreqProxPostingsEnum) reuse).terms == terms) {
+                postings = (FreqProxPostingsEnum) reuse;
+            } else {
+                postings = new FreqProxPostingsEnum(terms);
+            }
+            postings.reset(sortedTermIDs[ord]);
+            return postings;
+        }
+    }
+
+    private static final class FreqProxPostingsEnum extends PostingsEnum {
+        final FreqProxTermsWriterPerField terms;
+        final boolean readFreq;
+        final boolean readPositions;
+        final boolean readOffsets;
+        final ByteArrayDataInput docReader = new ByteArrayDataInput();
+        final ByteArrayDataInput posReader = new ByteArrayDataInput();
+
+        int docID = -1;
+        int freq;
+        int posLeft;
+        int position;
+        int startOffset;
+        int endOffset;
+
+        FreqProxPostingsEnum(FreqProxTermsWriterPerField terms) {
+            this.terms = terms;
+            // data is read as it was recorded, but only exposed as far as the
+            // final index options of the field allow
+            final IndexOptions indexOptions = terms.fieldInfo.getIndexOptions();
+            readFreq = terms.hasFreq && indexOptions.compareTo(IndexOptions.DOCS_AND_FREQS) >= 0;
+            readPositions = terms.hasProx && indexOptions.compareTo(IndexOptions.DOCS_AND_FREQS_AND_POSITIONS) >= 0;
+            readOffsets = terms.hasOffsets && indexOptions.compareTo(IndexOptions.DOCS_AND_FREQS_AND_POSITIONS_AND_OFFSETS) >= 0;
+        }
+
+        void reset(int termID) {
+            docReader.reset(terms.docStreams[termID], 0, terms.docStreamLengths[termID]);
+            if (terms.hasProx) {
+                posReader.reset(terms.proxStreams[termID], 0, terms.proxStreamLengths[termID]);
+            }
+            docID = -1;
+            posLeft = 0;
+        }
+
+        @Override
+        public int docID() {
+            return docID;
+        }
+
+        @Override
+        public int nextDoc() throws IOException {
+            if (docID == -1) {
+                docID = 0;
+            }
+            // skip the positions of the current doc if they were not consumed
+            while (posLeft != 0) {
+                nextPosition();
+            }
+
+            if (docReader.eof()) {
+                docID = NO_MORE_DOCS;
+                return docID;
+            }
+
+            final int code = docReader.readVInt();
+            if (terms.hasFreq) {
+                docID += code >>> 1;
+                if ((code & 1) != 0) {
+                    freq = 1;
+                } else {
+                    freq = docReader.readVInt();
+                }
+            } else {
+                docID += code;
+                freq = 1;
+            }
+
+            if (terms.hasProx) {
+                posLeft = freq;
+                position = 0;
+                startOffset = 0;
+            }
+            return docID;
+        }
+
+        @Override
+        public int advance(int target) throws IOException {
+            return slowAdvance(target);
+        }
+
+        @Override
+        public long cost() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int freq() {
+            return readFreq ? freq : 1;
+        }
+
+        @Override
+        public int nextPosition() throws IOException {
+            if (terms.hasProx == false) {
+                return -1;
+            }
+            assert posLeft > 0;
+            posLeft--;
+            position += posReader.readVInt();
+            if (terms.hasOffsets) {
+                startOffset += posReader.readVInt();
+                endOffset = startOffset + posReader.readVInt();
+            }
+            return readPositions ? position : -1;
+        }
+
+        @Override
+        public int startOffset() {
+            return readOffsets ? startOffset : -1;
+        }
+
+        @Override
+        public int endOffset() {
+            return readOffsets ? endOffset : -1;
+        }
+
+        @Override
+        public BytesRef getPayload() {
+            return null;
+        }
+    }
+}
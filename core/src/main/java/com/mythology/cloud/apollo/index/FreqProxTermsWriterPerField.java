@@ -0,0 +1,219 @@
+package com.mythology.cloud.apollo.index;
+
+import com.mythology.cloud.apollo.util.Accountable;
+import com.mythology.cloud.apollo.util.ArrayUtil;
+import com.mythology.cloud.apollo.util.BytesRef;
+import com.mythology.cloud.apollo.util.BytesRefHash;
+import com.mythology.cloud.apollo.util.RamUsageEstimator;
+
+/**
+ * Buffers the postings of one field of an in-memory segment.
+ * <p>
+ * Terms are deduplicated by a {@link BytesRefHash}, and every term owns two
+ * growable byte streams: one with the delta-coded doc IDs and frequencies of
+ * the documents it occurs in, and one with the delta-coded positions and
+ * offsets of its occurrences. The entry of a document is only appended to
+ * the doc stream once the term is seen in a later document, or on
+ * {@link #finish()}, since its frequency is not known before.
+ * <p>
+ * What is recorded is decided by the {@link IndexOptions} of the field when
+ * its first document is inverted: later documents may only downgrade them,
+ * in which case the extra data is ignored on flush.
+ * <p>
+ * 单个字段的内存倒排缓冲：用{@link BytesRefHash}为词项去重，每个词项有两个字节流，
+ * 分别保存差值编码的文档号/词频以及位置/偏移。
+ * </p>
+ */
+final class FreqProxTermsWriterPerField implements Accountable {
+
+    private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(FreqProxTermsWriterPerField.class);
+    private static final int INITIAL_STREAM_SIZE = 8;
+
+    final FieldInfo fieldInfo;
+    final boolean hasFreq;
+    final boolean hasProx;
+    final boolean hasOffsets;
+
+    final BytesRefHash bytesHash = new BytesRefHash();
+
+    // doc that is currently accumulating occurrences, per term
+    int[] pendingDocIDs = new int[0];
+    // last doc that was appended to the doc stream, per term
+    int[] lastWrittenDocIDs = new int[0];
+    // number of docs, per term
+    int[] docFreqs = new int[0];
+    // occurrences in the pending doc, per term
+    int[] termFreqs = new int[0];
+    int[] lastPositions = new int[0];
+    int[] lastOffsets = new int[0];
+
+    byte[][] docStreams = new byte[0][];
+    int[] docStreamLengths = new int[0];
+    byte[][] proxStreams = new byte[0][];
+    int[] proxStreamLengths = new int[0];
+
+    // number of docs that have at least one term in this field
+    int docCount;
+    private int lastDocID = -1;
+    private long streamBytesUsed;
+    private boolean finished;
+
+    FreqProxTermsWriterPerField(FieldInfo fieldInfo) {
+        this.fieldInfo = fieldInfo;
+        final IndexOptions indexOptions = fieldInfo.getIndexOptions();
+        assert indexOptions != IndexOptions.NONE;
+        hasFreq = indexOptions.compareTo(IndexOptions.DOCS_AND_FREQS) >= 0;
+        hasProx = indexOptions.compareTo(IndexOptions.DOCS_AND_FREQS_AND_POSITIONS) >= 0;
+        hasOffsets = indexOptions.compareTo(IndexOptions.DOCS_AND_FREQS_AND_POSITIONS_AND_OFFSETS) >= 0;
+    }
+
+    /**
+     * Records an occurrence of {@code term} in {@code docID}. Documents must
+     * be added in increasing order, and the positions of a document in
+     * non-decreasing order.
+     */
+    void add(BytesRef term, int docID, int position, int startOffset, int endOffset) {
+        assert finished == false;
+        assert docID >= lastDocID;
+        if (docID != lastDocID) {
+            docCount++;
+            lastDocID = docID;
+        }
+        int termID = bytesHash.add(term);
+        if (termID >= 0) {
+            // first occurrence of the term
+            if (termID == pendingDocIDs.length) {
+                grow(termID + 1);
+            }
+            pendingDocIDs[termID] = docID;
+            lastWrittenDocIDs[termID] = 0;
+            docFreqs[termID] = 1;
+            termFreqs[termID] = 1;
+            docStreamLengths[termID] = 0;
+            proxStreamLengths[termID] = 0;
+            lastPositions[termID] = 0;
+            lastOffsets[termID] = 0;
+        } else {
+            termID = -termID - 1;
+            if (pendingDocIDs[termID] != docID) {
+                assert docID > pendingDocIDs[termID];
+                writeDoc(termID);
+                pendingDocIDs[termID] = docID;
+                docFreqs[termID]++;
+                termFreqs[termID] = 1;
+                lastPositions[termID] = 0;
+                lastOffsets[termID] = 0;
+            } else {
+                termFreqs[termID]++;
+            }
+        }
+        if (hasProx) {
+            assert position >= lastPositions[termID];
+            writeProx(termID, position - lastPositions[termID]);
+            lastPositions[termID] = position;
+            if (hasOffsets) {
+                assert startOffset >= lastOffsets[termID] && endOffset >= startOffset;
+                writeProx(termID, startOffset - lastOffsets[termID]);
+                writeProx(termID, endOffset - startOffset);
+                lastOffsets[termID] = startOffset;
+            }
+        }
+    }
+
+    // appends the entry of the pending doc of a term to its doc stream
+    private void writeDoc(int termID) {
+        final int delta = pendingDocIDs[termID] - lastWrittenDocIDs[termID];
+        if (hasFreq) {
+            final int freq = termFreqs[termID];
+            if (freq == 1) {
+                writeDocVInt(termID, (delta << 1) | 1);
+            } else {
+                writeDocVInt(termID, delta << 1);
+                writeDocVInt(termID, freq);
+            }
+        } else {
+            writeDocVInt(termID, delta);
+        }
+        lastWrittenDocIDs[termID] = pendingDocIDs[termID];
+    }
+
+    private void writeDocVInt(int termID, int i) {
+        byte[] stream = docStreams[termID];
+        int upto = docStreamLengths[termID];
+        if (stream == null || upto + 5 > stream.length) {
+            stream = docStreams[termID] = growStream(stream, upto + 5);
+        }
+        docStreamLengths[termID] = writeVInt(stream, upto, i);
+    }
+
+    private void writeProx(int termID, int i) {
+        byte[] stream = proxStreams[termID];
+        int upto = proxStreamLengths[termID];
+        if (stream == null || upto + 5 > stream.length) {
+            stream = proxStreams[termID] = growStream(stream, upto + 5);
+        }
+        proxStreamLengths[termID] = writeVInt(stream, upto, i);
+    }
+
+    private byte[] growStream(byte[] stream, int minSize) {
+        if (stream == null) {
+            stream = new byte[Math.max(INITIAL_STREAM_SIZE, minSize)];
+            streamBytesUsed += RamUsageEstimator.sizeOf(stream);
+        } else {
+            final long before = RamUsageEstimator.sizeOf(stream);
+            stream = ArrayUtil.grow(stream, minSize);
+            streamBytesUsed += RamUsageEstimator.sizeOf(stream) - before;
+        }
+        return stream;
+    }
+
+    private static int writeVInt(byte[] bytes, int upto, int i) {
+        while ((i & ~0x7F) != 0) {
+            bytes[upto++] = (byte) ((i & 0x7F) | 0x80);
+            i >>>= 7;
+        }
+        bytes[upto++] = (byte) i;
+        return upto;
+    }
+
+    private void grow(int minSize) {
+        final int newSize = ArrayUtil.oversize(minSize, Integer.BYTES);
+        pendingDocIDs = ArrayUtil.growExact(pendingDocIDs, newSize);
+        lastWrittenDocIDs = ArrayUtil.growExact(lastWrittenDocIDs, newSize);
+        docFreqs = ArrayUtil.growExact(docFreqs, newSize);
+        termFreqs = ArrayUtil.growExact(termFreqs, newSize);
+        lastPositions = ArrayUtil.growExact(lastPositions, newSize);
+        lastOffsets = ArrayUtil.growExact(lastOffsets, newSize);
+        docStreams = ArrayUtil.growExact(docStreams, newSize);
+        docStreamLengths = ArrayUtil.growExact(docStreamLengths, newSize);
+        proxStreams = ArrayUtil.growExact(proxStreams, newSize);
+        proxStreamLengths = ArrayUtil.growExact(proxStreamLengths, newSize);
+    }
+
+    /**
+     * Appends the pending doc of every term to its stream. Called once,
+     * before the field is flushed.
+     */
+    void finish() {
+        assert finished == false;
+        finished = true;
+        for (int termID = 0, numTerms = bytesHash.size(); termID < numTerms; termID++) {
+            writeDoc(termID);
+        }
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        // 8 int arrays, 2 arrays of references
+        final long perTerm = 8L * Integer.BYTES + 2L * RamUsageEstimator.NUM_BYTES_OBJECT_REF;
+        return BASE_RAM_BYTES_USED
+                + bytesHash.ramBytesUsed()
+                + pendingDocIDs.length * perTerm
+                + streamBytesUsed;
+    }
+
+    @Override
+    public String toString() {
+        return "FreqProxTermsWriterPerField(field=" + fieldInfo.name + ",terms=" + bytesHash.size() + ")";
+    }
+}
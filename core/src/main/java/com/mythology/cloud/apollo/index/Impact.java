@@ -0,0 +1,44 @@
+package com.mythology.cloud.apollo.index;
+
+/**
+ * Per-document scoring factors.
+ */
+public final class Impact {
+
+    /**
+     * Term frequency of the term in the document.
+     */
+    public int freq;
+
+    /**
+     * Norm factor of the document.
+     */
+    public long norm;
+
+    /**
+     * Constructor.
+     */
+    public Impact(int freq, long norm) {
+        this.freq = freq;
+        this.norm = norm;
+    }
+
+    @Override
+    public String toString() {
+        return "{freq=" + freq + ",norm=" + norm + "}";
+    }
+
+    @Override
+    public int hashCode() {
+        int h = freq;
+        h = 31 * h + Long.hashCode(norm);
+        return h;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == null || getClass() != obj.getClass()) return false;
+        Impact other = (Impact) obj;
+        return freq == other.freq && norm == other.norm;
+    }
+}
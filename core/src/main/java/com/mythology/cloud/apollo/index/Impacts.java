@@ -0,0 +1,43 @@
+package com.mythology.cloud.apollo.index;
+
+import java.util.List;
+
+/**
+ * Information about upcoming impacts, ie. (freq, norm) pairs.
+ * <p>
+ * 影响因子：按层级给出后续文档块内具有竞争力的(词频, 归一化因子)对，用于跳过不可能进入Top-K的文档块。
+ * </p>
+ */
+public abstract class Impacts {
+
+    /**
+     * Sole constructor. Typically invoked by sub-classes.
+     */
+    protected Impacts() {
+    }
+
+    /**
+     * Return the number of levels on which we have impacts.
+     * The returned value is always greater than 0 and may not always be the
+     * same, even on a single postings list, depending on the current doc ID.
+     */
+    public abstract int numLevels();
+
+    /**
+     * Return the maximum inclusive doc ID until which the list of impacts
+     * returned by {@link #getImpacts(int)} is valid. This is a non-decreasing
+     * function of {@code level}.
+     */
+    public abstract int getDocIdUpTo(int level);
+
+    /**
+     * Return impacts on the given level. These impacts are sorted by increasing
+     * frequency and increasing unsigned norm, and only valid until the doc ID
+     * returned by {@link #getDocIdUpTo(int)} for the same level, included.
+     * The returned list is never empty.
+     * NOTE: There is no guarantee that these impacts actually appear in postings,
+     * only that they trigger scores that are greater than or equal to the impacts
+     * that actually appear in postings.
+     */
+    public abstract List<Impact> getImpacts(int level);
+}
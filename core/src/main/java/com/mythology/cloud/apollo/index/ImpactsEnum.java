@@ -0,0 +1,19 @@
+package com.mythology.cloud.apollo.index;
+
+/**
+ * Extension of {@link PostingsEnum} which also provides information about
+ * upcoming impacts.
+ * <p>
+ * 带影响因子的倒排表迭代器：在遍历文档的同时提供后续文档块的最大得分因子，支持Block-Max WAND等Top-K剪枝。
+ * </p>
+ *
+ * @lucene.experimental
+ */
+public abstract class ImpactsEnum extends PostingsEnum implements ImpactsSource {
+
+    /**
+     * Sole constructor.
+     */
+    protected ImpactsEnum() {
+    }
+}
@@ -0,0 +1,36 @@
+package com.mythology.cloud.apollo.index;
+
+import java.io.IOException;
+
+/**
+ * Source of {@link Impacts}.
+ *
+ * @lucene.internal
+ */
+public interface ImpactsSource {
+
+    /**
+     * Shallow-advance to {@code target}. This is cheaper than calling
+     * {@link ImpactsEnum#advance(int)} and allows further calls to
+     * {@link #getImpacts()} to ignore doc IDs that are less than {@code target}
+     * in order to get more precise information about impacts.
+     * This method may not be called on targets that are less than the current
+     * {@link ImpactsEnum#docID()}.
+     * After this method has been called, {@link ImpactsEnum#nextDoc()} may not be
+     * called if the current doc ID is less than {@code target - 1} and
+     * {@link ImpactsEnum#advance(int)} may not be called on targets that are
+     * less than {@code target}.
+     */
+    void advanceShallow(int target) throws IOException;
+
+    /**
+     * Get information about upcoming impacts for doc ids that are greater than
+     * or equal to the maximum of {@link ImpactsEnum#docID()} and the last
+     * target that was passed to {@link #advanceShallow(int)}.
+     * This method may not be called on an unpositioned iterator on which
+     * {@link #advanceShallow(int)} has never been called.
+     * NOTE: advancing this iterator may invalidate the returned impacts, so they
+     * should not be used after the iterator has been advanced.
+     */
+    Impacts getImpacts() throws IOException;
+}
@@ -0,0 +1,18 @@
+package com.mythology.cloud.apollo.index;
+
+import java.io.FileNotFoundException;
+
+/**
+ * Signals that no index was found in the Directory. Possibly because the
+ * directory is empty, however can also indicate an index corruption.
+ */
+public final class IndexNotFoundException extends FileNotFoundException {
+
+    /**
+     * Creates IndexFileNotFoundException with the
+     * description message.
+     */
+    public IndexNotFoundException(String msg) {
+        super(msg);
+    }
+}
@@ -0,0 +1,833 @@
+package com.mythology.cloud.apollo.index;
+
+import com.mythology.cloud.apollo.codecs.FieldInfosFormat;
+import com.mythology.cloud.apollo.document.DocumentBatch;
+import com.mythology.cloud.apollo.index.IndexWriterConfig.OpenMode;
+import com.mythology.cloud.apollo.index.MergePolicy.OneMerge;
+import com.mythology.cloud.apollo.search.Sort;
+import com.mythology.cloud.apollo.store.Directory;
+import com.mythology.cloud.apollo.util.Accountable;
+import com.mythology.cloud.apollo.util.IOUtils;
+import com.mythology.cloud.apollo.util.InfoStream;
+import com.mythology.cloud.apollo.util.ThreadInterruptedException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An <code>IndexWriter</code> creates and maintains an index.
+ * <p>
+ * Documents are added with {@link #addDocument(Iterable)}, which may be
+ * called by many threads at once: each thread buffers its documents in an
+ * in-memory segment of its own, so indexing threads do not contend on a
+ * shared buffer. In-memory segments are written to the {@link Directory} as
+ * new segments (flushed) when the RAM they use together reaches
+ * {@link IndexWriterConfig#setRAMBufferSizeMB(double)}, when one of them
+ * holds {@link IndexWriterConfig#setMaxBufferedDocs(int)} documents, or on
+ * {@link #flush()}.
+ * <p>
+ * Flushed segments are only visible to readers once they were committed
+ * with {@link #commit()}, which writes a new <tt>segments_N</tt> file that
+ * references them. {@link #close()} commits too.
+ * <p>
+ * Whenever segments are flushed, the {@link MergePolicy} is asked which
+ * segments should be merged, and the {@link MergeScheduler} runs the
+ * selected merges, by default in background threads whose writes are
+ * throttled (see {@link ConcurrentMergeScheduler}). A merged segment replaces
+ * the segments it was merged from; the files of these are deleted as soon as
+ * no commit references them anymore.
+ * <p>
+ * 索引写入器：多个线程可以同时添加文档，每个线程在独占的内存段中缓冲文档；内存段在总内存达到缓冲区大小、
+ * 文档数达到上限或调用{@link #flush()}时写成新段，调用{@link #commit()}后才对读取方可见。
+ * 每次刷新后由合并策略选择要合并的段，合并调度器(默认在限速的后台线程中)执行合并，
+ * 被合并的段的文件在不再被任何提交引用时删除。
+ * </p>
+ *
+ * @lucene.experimental
+ */
+public class IndexWriter implements Closeable, Accountable, MergePolicy.MergeContext {
+
+    /**
+     * Hard limit on maximum number of documents that may be added to the
+     * index.  If you try to add more than this you'll hit {@code IllegalArgumentException}.
+     */
+    // We defensively subtract 128 to be well below the lowest
+    // ArrayUtil.MAX_ARRAY_LENGTH on "typical" JVMs.  We don't just use
+    // ArrayUtil.MAX_ARRAY_LENGTH here because this can vary across JVMs:
+    public static final int MAX_DOCS = Integer.MAX_VALUE - 128;
+
+    // Use package-private instance var to enforce the limit so testing
+    // can use less electricity:
+    private static int actualMaxDocs = MAX_DOCS;
+
+    /**
+     * Used only for testing.
+     */
+    static void setMaxDocs(int maxDocs) {
+        if (maxDocs > MAX_DOCS) {
+            // Cannot go higher than the hard max:
+            throw new IllegalArgumentException("maxDocs must be <= IndexWriter.MAX_DOCS=" + MAX_DOCS + "; got: " + maxDocs);
+        }
+        IndexWriter.actualMaxDocs = maxDocs;
+    }
+
+    static int getActualMaxDocs() {
+        return IndexWriter.actualMaxDocs;
+    }
+
+    private final Directory directory;
+    private final IndexWriterConfig config;
+    private final FieldInfos.FieldNumbers globalFieldNumbers = new FieldInfos.FieldNumbers();
+    private final Schema schema = new Schema(globalFieldNumbers);
+    private final DocumentsWriter docWriter;
+
+    // segments that were flushed so far, guarded by this
+    private final SegmentInfos segmentInfos;
+    // number of docs that were added, including the buffered ones
+    private final AtomicLong pendingNumDocs = new AtomicLong();
+    // serializes commits
+    private final Object commitLock = new Object();
+
+    private final MergePolicy mergePolicy;
+    private final MergeScheduler mergeScheduler;
+    private final InfoStream infoStream;
+
+    // registered merges that no thread started yet, guarded by this
+    private final Deque<OneMerge> pendingMerges = new ArrayDeque<>();
+    // merges that a thread is executing, guarded by this
+    private final Set<OneMerge> runningMerges = new HashSet<>();
+    // segments of all pending or running merges, guarded by this
+    private final Set<SegmentInfo> mergingSegments = new HashSet<>();
+    // true once no new merges may be registered, guarded by this
+    private boolean stopMerges;
+
+    // files referenced by the last commit, including its segments_N, and
+    // by the commit that is being written, guarded by this
+    private Set<String> committedFiles;
+    private Set<String> committingFiles = Collections.emptySet();
+    // files that are not referenced by any segment anymore, but could not
+    // be deleted yet because a commit still references them, guarded by this
+    private final Set<String> pendingDeletes = new HashSet<>();
+
+    private volatile boolean closed;
+
+    /**
+     * Constructs a new IndexWriter per the settings given in <code>conf</code>.
+     * <p>
+     * Note that the passed in {@link IndexWriterConfig} is cloned, so
+     * changes to it afterwards have no effect on this writer.
+     *
+     * @param d    the index directory. The index is either created or appended
+     *             according <code>conf.getOpenMode()</code>.
+     * @param conf the configuration settings according to which IndexWriter should
+     *             be initialized.
+     * @throws IndexNotFoundException if the open mode is {@link OpenMode#APPEND}
+     *                                and the directory holds no index
+     * @throws IOException            if the directory cannot be read/written to
+     */
+    public IndexWriter(Directory d, IndexWriterConfig conf) throws IOException {
+        this.directory = d;
+        this.config = conf.clone();
+        this.mergePolicy = config.getMergePolicy();
+        this.mergeScheduler = config.getMergeScheduler();
+        this.infoStream = config.getInfoStream();
+        mergeScheduler.setInfoStream(infoStream);
+
+        final OpenMode mode = config.getOpenMode();
+        final boolean indexExists = SegmentInfos.getLastCommitGeneration(directory.listAll()) != -1;
+        if (indexExists == false && mode == OpenMode.APPEND) {
+            throw new IndexNotFoundException("no segments* file found in " + directory + ": cannot open the index with OpenMode.APPEND");
+        }
+        if (indexExists) {
+            segmentInfos = SegmentInfos.readLatestCommit(directory);
+            committedFiles = new HashSet<>(segmentInfos.files(true));
+            if (mode == OpenMode.CREATE) {
+                // keep the generation and the segment counter, so that the next
+                // commit supersedes the existing one and new segment names are unique
+                segmentInfos.clear();
+                // the files of the existing commit go away with the next commit
+                pendingDeletes.addAll(committedFiles);
+            }
+        } else {
+            segmentInfos = new SegmentInfos();
+            committedFiles = new HashSet<>();
+        }
+
+        validateIndexSort();
+
+        for (SegmentInfo info : segmentInfos) {
+            final FieldInfos fieldInfos = FieldInfosFormat.read(directory, info.name);
+            for (FieldInfo fi : fieldInfos) {
+                globalFieldNumbers.addOrGet(fi.name, fi.number, fi.getDocValuesType(),
+                        fi.getPointDataDimensionCount(), fi.getPointIndexDimensionCount(), fi.getPointNumBytes());
+            }
+        }
+        pendingNumDocs.set(segmentInfos.totalMaxDoc());
+
+        docWriter = new DocumentsWriter(this, config, directory, globalFieldNumbers);
+
+        if (infoStream.isEnabled("IW")) {
+            infoStream.message("IW", "init: create=" + (indexExists == false || mode == OpenMode.CREATE) + "\n" + config);
+        }
+    }
+
+    /**
+     * Confirms that the incoming index sort (if any) matches the existing index sort (if any).
+     */
+    private void validateIndexSort() {
+        final Sort indexSort = config.getIndexSort();
+        if (indexSort != null) {
+            for (SegmentInfo info : segmentInfos) {
+                final Sort segmentIndexSort = info.getIndexSort();
+                if (indexSort.equals(segmentIndexSort) == false) {
+                    throw new IllegalArgumentException("cannot change previous indexSort=" + segmentIndexSort
+                            + " (from segment=" + info + ") to new indexSort=" + indexSort);
+                }
+            }
+        }
+    }
+
+    /**
+     * Used internally to throw an {@link IllegalStateException} if this
+     * IndexWriter has been closed.
+     */
+    protected final void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("this IndexWriter is closed");
+        }
+    }
+
+    /**
+     * Adds a document to this index.
+     * <p>
+     * Note that if an Exception is hit (for example disk full)
+     * then the index will be consistent, but this document
+     * may not have been added. If the exception is an
+     * {@link IllegalArgumentException} the document was invalid and
+     * nothing was added, otherwise the documents that were buffered
+     * by the same indexing thread may have been lost too.
+     * <p>
+     * The writer does not keep references to the document, its fields or
+     * their values after this method returns, so the same instances may be
+     * updated and added again, see
+     * {@link com.mythology.cloud.apollo.document.DocumentBuilder}.
+     *
+     * @throws IOException if there is a low-level IO error
+     */
+    public void addDocument(Iterable<? extends IndexableField> doc) throws IOException {
+        ensureOpen();
+        reserveDocs(1);
+        // gives the reservation back if the document is not added
+        if (docWriter.addDocument(doc)) {
+            maybeMerge(MergeTrigger.SEGMENT_FLUSH);
+        }
+    }
+
+    /**
+     * Adds all the documents of a {@link DocumentBatch} to this index. The
+     * documents are added to a single in-memory segment, and get consecutive
+     * doc IDs in the order of the batch unless the index is sorted.
+     * <p>
+     * The batch is validated before anything is buffered: if it is invalid,
+     * an {@link IllegalArgumentException} is thrown and none of its documents
+     * is added. The writer does not keep references to the batch after this
+     * method returns, so it may be cleared and refilled.
+     *
+     * @throws IOException if there is a low-level IO error
+     */
+    public void addDocuments(DocumentBatch batch) throws IOException {
+        ensureOpen();
+        if (batch.numDocs() == 0) {
+            return;
+        }
+        reserveDocs(batch.numDocs());
+        // gives the reservation back if the documents are not added
+        if (docWriter.addBatch(batch)) {
+            maybeMerge(MergeTrigger.SEGMENT_FLUSH);
+        }
+    }
+
+    private void reserveDocs(long addedNumDocs) {
+        assert addedNumDocs >= 0;
+        if (pendingNumDocs.addAndGet(addedNumDocs) > actualMaxDocs) {
+            // Reserve failed: put the docs back and throw exc:
+            pendingNumDocs.addAndGet(-addedNumDocs);
+            throw new IllegalArgumentException("number of documents in the index cannot exceed " + actualMaxDocs);
+        }
+    }
+
+    /**
+     * Moves all in-memory segments to the Directory, but does not commit
+     * (fsync) them (call {@link #commit()} for that).
+     */
+    public final void flush() throws IOException {
+        ensureOpen();
+        docWriter.flushAllThreads();
+        maybeMerge(MergeTrigger.FULL_FLUSH);
+    }
+
+    /**
+     * Commits all pending changes (added documents) to the index, and syncs
+     * all referenced index files, such that a reader will see the changes
+     * and the index updates will survive an OS or machine crash or power
+     * loss.
+     *
+     * @throws IOException if there is a low-level IO error
+     */
+    public final void commit() throws IOException {
+        ensureOpen();
+        synchronized (commitLock) {
+            docWriter.flushAllThreads();
+            final SegmentInfos toCommit;
+            synchronized (this) {
+                toCommit = segmentInfos.clone();
+                // merges that finish while the commit is written must not
+                // delete the files it references
+                committingFiles = new HashSet<>(toCommit.files(false));
+            }
+            boolean success = false;
+            try {
+                // sync the files without blocking the publishing of new segments
+                toCommit.commit(directory);
+                success = true;
+            } finally {
+                synchronized (this) {
+                    committingFiles = Collections.emptySet();
+                    if (success) {
+                        segmentInfos.updateGeneration(toCommit);
+                        final Set<String> previousFiles = committedFiles;
+                        committedFiles = new HashSet<>(toCommit.files(true));
+                        // the previous segments_N, and the segments that were
+                        // merged away since the previous commit
+                        previousFiles.addAll(pendingDeletes);
+                        pendingDeletes.clear();
+                        deleteUnreferencedFiles(previousFiles);
+                    } else {
+                        deleteUnreferencedFiles(new HashSet<>(pendingDeletes));
+                    }
+                }
+            }
+        }
+        maybeMerge(MergeTrigger.FULL_FLUSH);
+    }
+
+    /**
+     * Flushes all buffered documents, waits for all running and pending
+     * merges to finish, commits, then closes this writer. Documents that are
+     * added concurrently by other threads may be lost.
+     *
+     * @throws IOException if there is a low-level IO error
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            flush();
+            waitForMerges();
+            synchronized (this) {
+                stopMerges = true;
+            }
+            commit();
+        } finally {
+            closed = true;
+            try {
+                mergeScheduler.close();
+            } finally {
+                docWriter.close();
+            }
+        }
+        if (infoStream.isEnabled("IW")) {
+            infoStream.message("IW", "closed");
+        }
+    }
+
+    /**
+     * Returns true if this writer was not closed yet.
+     */
+    public boolean isOpen() {
+        return closed == false;
+    }
+
+    /**
+     * Returns the Directory used by this index.
+     */
+    public Directory getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Returns the schema registry of this index, which interns field types
+     * and numbers fields.
+     */
+    public Schema getSchema() {
+        return schema;
+    }
+
+    /**
+     * Returns a copy of the config this writer was created with.
+     */
+    public IndexWriterConfig getConfig() {
+        return config.clone();
+    }
+
+    /**
+     * Returns total number of docs in this index, including
+     * docs not yet flushed (still in the RAM buffer).
+     */
+    public int maxDoc() {
+        ensureOpen();
+        return (int) pendingNumDocs.get();
+    }
+
+    /**
+     * Expert:  Return the number of documents currently
+     * buffered in RAM.
+     */
+    public int numRamDocs() {
+        ensureOpen();
+        return docWriter.getNumDocsInRAM();
+    }
+
+    /**
+     * Returns a copy of the segments that were flushed so far, including the
+     * ones that were not committed yet.
+     */
+    public synchronized SegmentInfos cloneSegmentInfos() {
+        return segmentInfos.clone();
+    }
+
+    /**
+     * Returns the RAM used by the documents that are buffered in memory.
+     */
+    @Override
+    public long ramBytesUsed() {
+        return docWriter.ramBytesUsed();
+    }
+
+    @Override
+    public InfoStream getInfoStream() {
+        return infoStream;
+    }
+
+    /**
+     * Expert: returns the segments that are merged or queued for merge. Must
+     * be called while holding the lock of this writer, as the
+     * {@link MergePolicy} does.
+     */
+    @Override
+    public Set<SegmentInfo> getMergingSegments() {
+        assert Thread.holdsLock(this);
+        return Collections.unmodifiableSet(mergingSegments);
+    }
+
+    /**
+     * Expert: asks the mergePolicy whether any merges are
+     * necessary now and if so, runs the requested merges and
+     * then iterate (test again if merges are needed) until no
+     * more merges are returned by the mergePolicy.
+     * <p>
+     * Explicit calls to maybeMerge() are usually not
+     * necessary. The most common case is when merge policy
+     * parameters have changed.
+     * <p>
+     * This method will call the {@link MergePolicy} with
+     * {@link MergeTrigger#EXPLICIT}.
+     *
+     * @throws IOException if there is a low-level IO error
+     */
+    public final void maybeMerge() throws IOException {
+        ensureOpen();
+        maybeMerge(MergeTrigger.EXPLICIT);
+    }
+
+    private void maybeMerge(MergeTrigger trigger) throws IOException {
+        assert Thread.holdsLock(this) == false;
+        final boolean newMergesFound = updatePendingMerges(trigger);
+        mergeScheduler.merge(this, trigger, newMergesFound);
+    }
+
+    private synchronized boolean updatePendingMerges(MergeTrigger trigger) throws IOException {
+        if (stopMerges) {
+            return false;
+        }
+        final MergePolicy.MergeSpecification spec = mergePolicy.findMerges(trigger, segmentInfos, this);
+        boolean newMergesFound = spec != null;
+        if (newMergesFound) {
+            for (OneMerge merge : spec.merges) {
+                registerMerge(merge);
+            }
+        }
+        return newMergesFound;
+    }
+
+    /**
+     * Checks whether this merge involves any segments
+     * already participating in a merge.  If not, this merge
+     * is "registered", meaning we record that its segments
+     * are now participating in a merge, and true is
+     * returned.  Else (the merge conflicts) false is
+     * returned.
+     */
+    private synchronized boolean registerMerge(OneMerge merge) throws IOException {
+        if (merge.registerDone) {
+            return true;
+        }
+        assert merge.segments.size() > 0;
+
+        if (stopMerges) {
+            merge.setAborted();
+            throw new MergePolicy.MergeAbortedException("merge is aborted: " + segString(merge.segments));
+        }
+
+        final List<SegmentInfo> current = segmentInfos.asList();
+        for (SegmentInfo info : merge.segments) {
+            if (mergingSegments.contains(info)) {
+                if (infoStream.isEnabled("IW")) {
+                    infoStream.message("IW", "reject merge " + segString(merge.segments) + ": segment " + info + " is already marked for merge");
+                }
+                return false;
+            }
+            if (current.contains(info) == false) {
+                if (infoStream.isEnabled("IW")) {
+                    infoStream.message("IW", "reject merge " + segString(merge.segments) + ": segment " + info + " does not exist in live infos");
+                }
+                return false;
+            }
+        }
+
+        pendingMerges.add(merge);
+
+        if (infoStream.isEnabled("IW")) {
+            infoStream.message("IW", "add merge to pendingMerges: " + segString(merge.segments) + " [total " + pendingMerges.size() + " pending]");
+        }
+
+        long totalBytes = 0;
+        for (SegmentInfo info : merge.segments) {
+            totalBytes += info.sizeInBytes();
+        }
+        // there are no deletes, so the merged segment is expected to be as
+        // large as the segments it is merged from
+        merge.totalMergeBytes = totalBytes;
+        merge.estimatedMergeBytes = totalBytes;
+
+        mergingSegments.addAll(merge.segments);
+        merge.registerDone = true;
+        return true;
+    }
+
+    /**
+     * Expert: the {@link MergeScheduler} calls this method to retrieve the next
+     * merge requested by the MergePolicy
+     *
+     * @lucene.experimental
+     */
+    public synchronized OneMerge getNextMerge() {
+        if (pendingMerges.size() == 0) {
+            return null;
+        }
+        // Advance the merge from pending to running
+        final OneMerge merge = pendingMerges.removeFirst();
+        runningMerges.add(merge);
+        return merge;
+    }
+
+    /**
+     * Expert: returns true if there are merges waiting to be scheduled.
+     *
+     * @lucene.experimental
+     */
+    public synchronized boolean hasPendingMerges() {
+        return pendingMerges.size() != 0;
+    }
+
+    /**
+     * Merges the indicated segments, replacing them in the stack with a
+     * single segment.
+     *
+     * @lucene.experimental
+     */
+    public void merge(OneMerge merge) throws IOException {
+        boolean success = false;
+        final long t0 = System.currentTimeMillis();
+        try {
+            try {
+                mergeInit(merge);
+                if (infoStream.isEnabled("IW")) {
+                    infoStream.message("IW", "now merge\n  merge=" + segString(merge.segments) + "\n  index=" + segString());
+                }
+                mergeMiddle(merge);
+                success = true;
+            } catch (Throwable t) {
+                handleMergeException(t, merge);
+            }
+        } finally {
+            synchronized (this) {
+                mergeFinish(merge);
+                if (success == false) {
+                    if (infoStream.isEnabled("IW")) {
+                        infoStream.message("IW", "hit exception during merge");
+                    }
+                } else if (merge.isAborted() == false) {
+                    // the merged segment may now be part of a new merge
+                    updatePendingMerges(MergeTrigger.MERGE_FINISHED);
+                }
+            }
+        }
+        if (merge.info != null && merge.isAborted() == false) {
+            if (infoStream.isEnabled("IW")) {
+                infoStream.message("IW", "merge time " + (System.currentTimeMillis() - t0) + " msec for " + merge.info.maxDoc() + " docs");
+            }
+        }
+    }
+
+    private void handleMergeException(Throwable t, OneMerge merge) throws IOException {
+        merge.error = t;
+        if (t instanceof MergePolicy.MergeAbortedException) {
+            // the merge was aborted on purpose, its partial files were deleted
+            if (infoStream.isEnabled("IW")) {
+                infoStream.message("IW", "merge " + segString(merge.segments) + " was aborted");
+            }
+        } else {
+            throw IOUtils.rethrowAlways(t);
+        }
+    }
+
+    private synchronized void mergeInit(OneMerge merge) throws IOException {
+        assert merge.registerDone;
+        merge.mergeInit();
+        merge.checkAborted();
+        merge.mergeStartNS = System.nanoTime();
+    }
+
+    /**
+     * Does the actual (time-consuming) work of the merge,
+     * but without holding synchronized lock on IndexWriter
+     * instance
+     */
+    private void mergeMiddle(OneMerge merge) throws IOException {
+        final String mergedName = newSegmentName();
+        // the directory of the merge, which throttles its writes
+        final Directory mergeDirectory = mergeScheduler.wrapForMerge(merge, directory);
+
+        boolean success = false;
+        try {
+            final MergeState mergeState;
+            boolean merged = false;
+            merge.readers = new ArrayList<>(merge.segments.size());
+            try {
+                for (SegmentInfo info : merge.segments) {
+                    merge.readers.add(new SegmentReader(info));
+                }
+                final SegmentMerger merger = new SegmentMerger(merge.readers, mergedName, config.getIndexSort(), infoStream, mergeDirectory,
+                        globalFieldNumbers);
+                merge.checkAborted();
+                mergeState = merger.merge();
+                merged = true;
+            } finally {
+                // release the merged segments before their files may be deleted
+                final List<SegmentReader> readers = merge.readers;
+                merge.readers = null;
+                if (merged) {
+                    IOUtils.close(readers);
+                } else {
+                    IOUtils.closeWhileHandlingException(readers);
+                }
+            }
+
+            final Map<String, String> diagnostics = new HashMap<>();
+            diagnostics.put(SegmentInfo.SOURCE, SegmentInfo.SOURCE_MERGE);
+            diagnostics.put("mergeFactor", Integer.toString(merge.segments.size()));
+            merge.info = new SegmentInfo(directory, mergedName, mergeState.maxDoc,
+                    SegmentInfo.listFiles(directory, mergedName), diagnostics, config.getIndexSort());
+
+            if (infoStream.isEnabled("IW")) {
+                final double sec = (System.nanoTime() - merge.mergeStartNS) / 1000000000.;
+                final double segmentMB = merge.info.sizeInBytes() / 1024. / 1024.;
+                final Map<MergePolicy.OneMergeProgress.PauseReason, Long> pauseTimes = merge.getMergeProgress().getPauseTimes();
+                final double stoppedSec = nsToSec(pauseTimes.get(MergePolicy.OneMergeProgress.PauseReason.STOPPED));
+                final double throttleSec = nsToSec(pauseTimes.get(MergePolicy.OneMergeProgress.PauseReason.PAUSED));
+                infoStream.message("IW", String.format(Locale.ROOT,
+                        "%.1f sec to merge segment [%s, %d docs, %.2f MB vs estimate %.2f MB, %.2f MB/sec] "
+                                + "(%.1f sec stopped, %.1f sec paused)",
+                        sec, mergedName, mergeState.maxDoc, segmentMB, merge.estimatedMergeBytes / 1024. / 1024.,
+                        sec == 0 ? 0 : segmentMB / sec, stoppedSec, throttleSec));
+            }
+
+            success = commitMerge(merge);
+        } finally {
+            if (success == false) {
+                IOUtils.deleteFilesIgnoringExceptions(directory, SegmentInfo.listFiles(directory, mergedName));
+            }
+        }
+    }
+
+    private static double nsToSec(Long ns) {
+        return ns == null ? 0 : ns / 1000000000.;
+    }
+
+    // replaces the merged segments with the new one, returns false if the
+    // merge was aborted
+    private synchronized boolean commitMerge(OneMerge merge) throws IOException {
+        if (merge.isAborted()) {
+            if (infoStream.isEnabled("IW")) {
+                infoStream.message("IW", "commitMerge: skip: it was aborted");
+            }
+            return false;
+        }
+
+        if (infoStream.isEnabled("IW")) {
+            infoStream.message("IW", "commitMerge: " + segString(merge.segments) + " into " + merge.info.name);
+        }
+
+        segmentInfos.applyMergeChanges(merge, merge.info);
+
+        final Set<String> mergedAway = new HashSet<>();
+        for (SegmentInfo info : merge.segments) {
+            mergedAway.addAll(info.files());
+        }
+        deleteUnreferencedFiles(mergedAway);
+        return true;
+    }
+
+    /**
+     * Does finishing for a merge, which is fast but holds
+     * the synchronized lock on IndexWriter instance.
+     */
+    final synchronized void mergeFinish(OneMerge merge) {
+        // forceMerge, addIndexes or waitForMerges may be waiting
+        // on merges to finish.
+        notifyAll();
+
+        // It's possible we are called twice, eg if there was an
+        // exception inside mergeInit
+        if (merge.registerDone) {
+            for (SegmentInfo info : merge.segments) {
+                mergingSegments.remove(info);
+            }
+            merge.registerDone = false;
+        }
+        runningMerges.remove(merge);
+    }
+
+    /**
+     * Wait for any currently outstanding merges to finish.
+     */
+    private void waitForMerges() throws IOException {
+        // Give merge scheduler last chance to run, in case
+        // any pending merges are waiting:
+        mergeScheduler.merge(this, MergeTrigger.CLOSING, false);
+
+        synchronized (this) {
+            if (infoStream.isEnabled("IW")) {
+                infoStream.message("IW", "waitForMerges");
+            }
+
+            while (pendingMerges.size() > 0 || runningMerges.size() > 0) {
+                doWait();
+            }
+
+            // sanity check
+            assert 0 == mergingSegments.size();
+
+            if (infoStream.isEnabled("IW")) {
+                infoStream.message("IW", "waitForMerges done");
+            }
+        }
+    }
+
+    private synchronized void doWait() {
+        // NOTE: the callers of this method should in theory
+        // be able to do simply wait(), but, as a defense
+        // against thread timing hazards where notifyAll()
+        // fails to be called, we wait for at most 1 second
+        // and then return so caller can check if wait
+        // conditions are satisfied:
+        try {
+            wait(1000);
+        } catch (InterruptedException ie) {
+            throw new ThreadInterruptedException(ie);
+        }
+    }
+
+    // deletes the files that neither a live segment, the last commit nor the
+    // commit being written references, and remembers the ones that a commit
+    // still references
+    private synchronized void deleteUnreferencedFiles(Collection<String> candidates) {
+        final Collection<String> live = segmentInfos.files(false);
+        final List<String> toDelete = new ArrayList<>();
+        for (String file : candidates) {
+            if (live.contains(file)) {
+                continue;
+            }
+            if (committedFiles.contains(file) || committingFiles.contains(file)) {
+                pendingDeletes.add(file);
+            } else {
+                toDelete.add(file);
+            }
+        }
+        if (toDelete.isEmpty() == false) {
+            if (infoStream.isEnabled("IW")) {
+                infoStream.message("IW", "delete " + toDelete);
+            }
+            IOUtils.deleteFilesIgnoringExceptions(directory, toDelete);
+        }
+    }
+
+    /**
+     * Returns a string description of all segments, for
+     * debugging.
+     *
+     * @lucene.internal
+     */
+    public synchronized String segString() {
+        return segString(segmentInfos);
+    }
+
+    private synchronized String segString(Iterable<SegmentInfo> infos) {
+        final StringBuilder buffer = new StringBuilder();
+        for (final SegmentInfo info : infos) {
+            if (buffer.length() > 0) {
+                buffer.append(' ');
+            }
+            buffer.append(info);
+            if (mergingSegments.contains(info)) {
+                buffer.append(" [merging]");
+            }
+        }
+        return buffer.toString();
+    }
+
+    // called by DocumentsWriter when a new in-memory segment is started
+    synchronized String newSegmentName() {
+        return "_" + Long.toString(segmentInfos.counter++, Character.MAX_RADIX);
+    }
+
+    // called by DocumentsWriter once an in-memory segment was written
+    synchronized void publishFlushedSegment(SegmentInfo info) {
+        segmentInfos.add(info);
+    }
+
+    // called by DocumentsWriter when buffered documents were discarded
+    void onAbortedDocuments(int numDocs) {
+        pendingNumDocs.addAndGet(-numDocs);
+    }
+
+    @Override
+    public String toString() {
+        return "IndexWriter(" + directory + ")";
+    }
+}
@@ -0,0 +1,323 @@
+package com.mythology.cloud.apollo.index;
+
+import com.mythology.cloud.apollo.analysis.Analyzer;
+import com.mythology.cloud.apollo.analysis.WhitespaceAnalyzer;
+import com.mythology.cloud.apollo.search.Sort;
+import com.mythology.cloud.apollo.search.SortField;
+import com.mythology.cloud.apollo.util.InfoStream;
+import com.mythology.cloud.apollo.util.PrintStreamInfoStream;
+
+import java.io.PrintStream;
+
+/**
+ * Holds all the configuration that is used to create an {@link IndexWriter}.
+ * Once {@link IndexWriter} has been created with this object, changes to this
+ * object will not affect the {@link IndexWriter} instance.
+ * <p>
+ * All setters return this instance, so that calls can be chained:
+ * <pre class="prettyprint">
+ * IndexWriterConfig conf = new IndexWriterConfig()
+ *     .setRAMBufferSizeMB(64)
+ *     .setOpenMode(OpenMode.CREATE_OR_APPEND);
+ * </pre>
+ * <p>
+ * {@link IndexWriter}的配置，所有setter都返回自身以便链式调用。
+ * </p>
+ */
+public final class IndexWriterConfig implements Cloneable {
+
+    /**
+     * Specifies the open mode for {@link IndexWriter}.
+     */
+    public enum OpenMode {
+        /**
+         * Creates a new index or overwrites an existing one.
+         */
+        CREATE,
+
+        /**
+         * Opens an existing index.
+         */
+        APPEND,
+
+        /**
+         * Creates a new index if one does not exist,
+         * otherwise it opens the index and documents will be appended.
+         */
+        CREATE_OR_APPEND
+    }
+
+    /**
+     * Denotes a flush trigger is disabled.
+     */
+    public final static int DISABLE_AUTO_FLUSH = -1;
+
+    /**
+     * Disabled by default (because IndexWriter flushes by RAM usage by default).
+     */
+    public final static int DEFAULT_MAX_BUFFERED_DOCS = DISABLE_AUTO_FLUSH;
+
+    /**
+     * Default value is 16 MB (which means flush when buffered docs consume
+     * approximately 16 MB RAM).
+     */
+    public final static double DEFAULT_RAM_BUFFER_SIZE_MB = 16.0;
+
+    private OpenMode openMode = OpenMode.CREATE_OR_APPEND;
+    private double ramBufferSizeMB = DEFAULT_RAM_BUFFER_SIZE_MB;
+    private int maxBufferedDocs = DEFAULT_MAX_BUFFERED_DOCS;
+    private MergePolicy mergePolicy = new TieredMergePolicy();
+    private MergeScheduler mergeScheduler = new ConcurrentMergeScheduler();
+    private InfoStream infoStream = InfoStream.NO_OUTPUT;
+    private Sort indexSort = null;
+    private Analyzer analyzer = new WhitespaceAnalyzer();
+
+    /**
+     * Creates a new config with the default settings.
+     */
+    public IndexWriterConfig() {
+    }
+
+    /**
+     * Specifies {@link OpenMode} of the index.
+     * <p>Only takes effect when IndexWriter is first created.
+     */
+    public IndexWriterConfig setOpenMode(OpenMode openMode) {
+        if (openMode == null) {
+            throw new IllegalArgumentException("openMode must not be null");
+        }
+        this.openMode = openMode;
+        return this;
+    }
+
+    /**
+     * Returns the {@link OpenMode} set by {@link #setOpenMode(OpenMode)}.
+     */
+    public OpenMode getOpenMode() {
+        return openMode;
+    }
+
+    /**
+     * Determines the amount of RAM that may be used for buffering added
+     * documents before they are flushed as a new segment. Generally for
+     * faster indexing performance it's best to flush by RAM usage instead of
+     * document count and use as large a RAM buffer as you can.
+     * <p>
+     * When this is set, the writer will flush whenever the buffered documents
+     * of all indexing threads use this much RAM. Pass in
+     * {@link #DISABLE_AUTO_FLUSH} to prevent triggering a flush due to RAM
+     * usage. Note that if flushing by document count is also enabled, then the
+     * flush will be triggered by whichever comes first.
+     * <p>
+     * The default value is {@link #DEFAULT_RAM_BUFFER_SIZE_MB}.
+     *
+     * @throws IllegalArgumentException if ramBufferSizeMB is enabled but non-positive, or it disables
+     *                                  ramBufferSizeMB when maxBufferedDocs is already disabled
+     */
+    public IndexWriterConfig setRAMBufferSizeMB(double ramBufferSizeMB) {
+        if (ramBufferSizeMB != DISABLE_AUTO_FLUSH && ramBufferSizeMB <= 0.0) {
+            throw new IllegalArgumentException("ramBufferSize should be > 0.0 MB when enabled");
+        }
+        if (ramBufferSizeMB == DISABLE_AUTO_FLUSH && maxBufferedDocs == DISABLE_AUTO_FLUSH) {
+            throw new IllegalArgumentException("at least one of ramBufferSize and maxBufferedDocs must be enabled");
+        }
+        this.ramBufferSizeMB = ramBufferSizeMB;
+        return this;
+    }
+
+    /**
+     * Returns the value set by {@link #setRAMBufferSizeMB(double)} if enabled.
+     */
+    public double getRAMBufferSizeMB() {
+        return ramBufferSizeMB;
+    }
+
+    /**
+     * Determines the minimal number of documents required before the buffered
+     * in-memory documents of one indexing thread are flushed as a new Segment.
+     * Large values generally give faster indexing.
+     * <p>
+     * When this is set, each in-memory segment is flushed once it holds this
+     * many documents. Pass in {@link #DISABLE_AUTO_FLUSH} to prevent
+     * triggering a flush due to number of buffered documents. Note that if
+     * flushing by RAM usage is also enabled, then the flush will be triggered
+     * by whichever comes first.
+     * <p>
+     * Disabled by default (writer flushes by RAM usage).
+     *
+     * @throws IllegalArgumentException if maxBufferedDocs is enabled but smaller than 2, or it disables
+     *                                  maxBufferedDocs when ramBufferSizeMB is already disabled
+     */
+    public IndexWriterConfig setMaxBufferedDocs(int maxBufferedDocs) {
+        if (maxBufferedDocs != DISABLE_AUTO_FLUSH && maxBufferedDocs < 2) {
+            throw new IllegalArgumentException("maxBufferedDocs must at least be 2 when enabled");
+        }
+        if (maxBufferedDocs == DISABLE_AUTO_FLUSH && ramBufferSizeMB == DISABLE_AUTO_FLUSH) {
+            throw new IllegalArgumentException("at least one of ramBufferSize and maxBufferedDocs must be enabled");
+        }
+        this.maxBufferedDocs = maxBufferedDocs;
+        return this;
+    }
+
+    /**
+     * Returns the number of buffered added documents that will trigger a flush
+     * if enabled.
+     */
+    public int getMaxBufferedDocs() {
+        return maxBufferedDocs;
+    }
+
+    /**
+     * Expert: {@link MergePolicy} is invoked whenever there are changes to the
+     * segments in the index. Its role is to select which merges to do, if any,
+     * and return a {@link MergePolicy.MergeSpecification} describing the merges.
+     * <p>
+     * Only takes effect when IndexWriter is first created. The default is
+     * {@link TieredMergePolicy}.
+     */
+    public IndexWriterConfig setMergePolicy(MergePolicy mergePolicy) {
+        if (mergePolicy == null) {
+            throw new IllegalArgumentException("mergePolicy must not be null");
+        }
+        this.mergePolicy = mergePolicy;
+        return this;
+    }
+
+    /**
+     * Returns the current MergePolicy in use by this writer.
+     *
+     * @see #setMergePolicy(MergePolicy)
+     */
+    public MergePolicy getMergePolicy() {
+        return mergePolicy;
+    }
+
+    /**
+     * Expert: sets the merge scheduler used by this writer. The default is
+     * {@link ConcurrentMergeScheduler}.
+     * <p>
+     * <b>NOTE:</b> the merge scheduler cannot be null. The scheduler is
+     * owned by the writer it is passed to, so a config with a merge scheduler
+     * must only be used to create a single {@link IndexWriter}.
+     * <p>
+     * Only takes effect when IndexWriter is first created.
+     */
+    public IndexWriterConfig setMergeScheduler(MergeScheduler mergeScheduler) {
+        if (mergeScheduler == null) {
+            throw new IllegalArgumentException("mergeScheduler must not be null");
+        }
+        this.mergeScheduler = mergeScheduler;
+        return this;
+    }
+
+    /**
+     * Returns the {@link MergeScheduler} that was set by
+     * {@link #setMergeScheduler(MergeScheduler)}.
+     */
+    public MergeScheduler getMergeScheduler() {
+        return mergeScheduler;
+    }
+
+    /**
+     * Information about merges, flushes and throttling will be printed to
+     * this. The default is {@link InfoStream#NO_OUTPUT}.
+     */
+    public IndexWriterConfig setInfoStream(InfoStream infoStream) {
+        if (infoStream == null) {
+            throw new IllegalArgumentException("Cannot set InfoStream implementation to null. "
+                    + "To disable logging use InfoStream.NO_OUTPUT");
+        }
+        this.infoStream = infoStream;
+        return this;
+    }
+
+    /**
+     * Convenience method that uses {@link PrintStreamInfoStream}.  Must not be null.
+     */
+    public IndexWriterConfig setInfoStream(PrintStream printStream) {
+        if (printStream == null) {
+            throw new IllegalArgumentException("printStream must not be null");
+        }
+        return setInfoStream(new PrintStreamInfoStream(printStream));
+    }
+
+    /**
+     * Returns the {@link InfoStream} set by {@link #setInfoStream(InfoStream)}.
+     */
+    public InfoStream getInfoStream() {
+        return infoStream;
+    }
+
+    /**
+     * Set the {@link Sort} order to use for all (flushed and merged) segments.
+     * Documents are sorted when an in-memory segment is flushed, and merges
+     * interleave the documents of the merged segments so that they stay
+     * sorted. Each sort field must have doc values of the type matching its
+     * {@link SortField.Type}: {@link DocValuesType#SORTED} for
+     * {@link SortField.Type#STRING}, and {@link DocValuesType#NUMERIC} for
+     * the numeric types.
+     * <p>
+     * An existing index can only be opened with the sort it was created with.
+     */
+    public IndexWriterConfig setIndexSort(Sort sort) {
+        if (sort != null) {
+            for (SortField sortField : sort.getSort()) {
+                // throws IllegalArgumentException on unsupported types
+                Sorter.getDocValuesType(sortField);
+            }
+        }
+        this.indexSort = sort;
+        return this;
+    }
+
+    /**
+     * Returns the index-time {@link Sort} order, or null if documents are
+     * not sorted. Applied to all flushed and merged segments.
+     */
+    public Sort getIndexSort() {
+        return indexSort;
+    }
+
+    /**
+     * Set the {@link Analyzer} that tokenized fields are analyzed with. Each
+     * indexing thread reuses the token stream components of the analyzer.
+     * <p>
+     * Only takes effect when IndexWriter is first created. The default is
+     * {@link WhitespaceAnalyzer}.
+     */
+    public IndexWriterConfig setAnalyzer(Analyzer analyzer) {
+        if (analyzer == null) {
+            throw new IllegalArgumentException("analyzer must not be null");
+        }
+        this.analyzer = analyzer;
+        return this;
+    }
+
+    /**
+     * Returns the analyzer that tokenized fields are analyzed with.
+     */
+    public Analyzer getAnalyzer() {
+        return analyzer;
+    }
+
+    @Override
+    public IndexWriterConfig clone() {
+        try {
+            return (IndexWriterConfig) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "openMode=" + openMode + "\n"
+                + "ramBufferSizeMB=" + ramBufferSizeMB + "\n"
+                + "maxBufferedDocs=" + maxBufferedDocs + "\n"
+                + "mergePolicy=" + mergePolicy + "\n"
+                + "mergeScheduler=" + mergeScheduler + "\n"
+                + "infoStream=" + infoStream.getClass().getName() + "\n"
+                + "indexSort=" + indexSort + "\n"
+                + "analyzer=" + analyzer.getClass().getName() + "\n";
+    }
+}
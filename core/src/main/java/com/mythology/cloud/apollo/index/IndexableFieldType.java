@@ -15,7 +15,8 @@ public interface IndexableFieldType {
 
     /**
      * True if this field's value should be analyzed by the
-     * {@link Analyzer}.
+     * {@link Analyzer}. A binary value of a tokenized field is analyzed as
+     * UTF-8 text.
      * <p>
      * This has no effect if {@link #indexOptions()} returns
      * IndexOptions.NONE.
@@ -0,0 +1,341 @@
+package com.mythology.cloud.apollo.index;
+
+import com.mythology.cloud.apollo.codecs.FieldsProducer;
+import com.mythology.cloud.apollo.util.BytesRef;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static com.mythology.cloud.apollo.search.DocIdSetIterator.NO_MORE_DOCS;
+
+/**
+ * A {@link Fields} implementation that merges the postings of the segments
+ * of a {@link MergeState}, and remaps their doc IDs with
+ * {@link MergeState#docMaps}. Terms are enumerated in order across all
+ * segments, and the postings of a term are those of every segment that
+ * holds it, one after the other. Only {@link TermsEnum#next()} and
+ * {@link TermsEnum#postings(PostingsEnum, int)} are supported, which is all
+ * a {@link com.mythology.cloud.apollo.codecs.FieldsConsumer} needs to write
+ * the merged segment.
+ * <p>
+ * 合并多个段的倒排：按序枚举所有段的词项，每个词项的倒排依次拼接各段的倒排并重映射文档号，仅供合并时写出新段使用。
+ * </p>
+ *
+ * @lucene.internal
+ */
+public class MappedMultiFields extends Fields {
+
+    private final MergeState mergeState;
+    private final List<String> fields;
+
+    /**
+     * Create a new MappedMultiFields for merging, based on the supplied
+     * mergestate.
+     */
+    public MappedMultiFields(MergeState mergeState) {
+        this.mergeState = mergeState;
+        final Set<String> fields = new TreeSet<>();
+        for (FieldsProducer producer : mergeState.fieldsProducers) {
+            if (producer != null) {
+                for (String field : producer) {
+                    fields.add(field);
+                }
+            }
+        }
+        this.fields = Collections.unmodifiableList(new ArrayList<>(fields));
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return fields.iterator();
+    }
+
+    @Override
+    public Terms terms(String field) throws IOException {
+        final List<Terms> subs = new ArrayList<>();
+        final List<Integer> readerIndexes = new ArrayList<>();
+        for (int i = 0; i < mergeState.fieldsProducers.length; i++) {
+            final FieldsProducer producer = mergeState.fieldsProducers[i];
+            if (producer == null) {
+                continue;
+            }
+            final Terms terms = producer.terms(field);
+            if (terms != null) {
+                subs.add(terms);
+                readerIndexes.add(i);
+            }
+        }
+        if (subs.isEmpty()) {
+            return null;
+        }
+        return new MappedMultiTerms(mergeState.mergeFieldInfos.fieldInfo(field), mergeState, subs, readerIndexes);
+    }
+
+    @Override
+    public int size() {
+        return fields.size();
+    }
+
+    private static class MappedMultiTerms extends Terms {
+        final FieldInfo fieldInfo;
+        final MergeState mergeState;
+        final List<Terms> subs;
+        final List<Integer> readerIndexes;
+
+        MappedMultiTerms(FieldInfo fieldInfo, MergeState mergeState, List<Terms> subs, List<Integer> readerIndexes) {
+            this.fieldInfo = fieldInfo;
+            this.mergeState = mergeState;
+            this.subs = subs;
+            this.readerIndexes = readerIndexes;
+        }
+
+        @Override
+        public TermsEnum iterator() throws IOException {
+            final List<TermsEnumWithSlice> subEnums = new ArrayList<>(subs.size());
+            for (int i = 0; i < subs.size(); i++) {
+                final int readerIndex = readerIndexes.get(i);
+                subEnums.add(new TermsEnumWithSlice(readerIndex, mergeState.docMaps[readerIndex], subs.get(i).iterator()));
+            }
+            return new MappedMultiTermsEnum(subEnums, mergeState.needsIndexSort);
+        }
+
+        @Override
+        public long size() {
+            return -1;
+        }
+
+        @Override
+        public long getSumTotalTermFreq() {
+            return -1;
+        }
+
+        @Override
+        public long getSumDocFreq() {
+            return -1;
+        }
+
+        @Override
+        public int getDocCount() throws IOException {
+            // segments hold disjoint documents
+            int docCount = 0;
+            for (Terms terms : subs) {
+                docCount += terms.getDocCount();
+            }
+            return docCount;
+        }
+
+        @Override
+        public boolean hasFreqs() {
+            return fieldInfo.getIndexOptions().compareTo(IndexOptions.DOCS_AND_FREQS) >= 0;
+        }
+
+        @Override
+        public boolean hasOffsets() {
+            return fieldInfo.getIndexOptions().compareTo(IndexOptions.DOCS_AND_FREQS_AND_POSITIONS_AND_OFFSETS) >= 0;
+        }
+
+        @Override
+        public boolean hasPositions() {
+            return fieldInfo.getIndexOptions().compareTo(IndexOptions.DOCS_AND_FREQS_AND_POSITIONS) >= 0;
+        }
+
+        @Override
+        public boolean hasPayloads() {
+            return fieldInfo.hasPayloads();
+        }
+    }
+
+    private static final class TermsEnumWithSlice {
+        final int readerIndex;
+        final MergeState.DocMap docMap;
+        final TermsEnum terms;
+        BytesRef current;
+
+        TermsEnumWithSlice(int readerIndex, MergeState.DocMap docMap, TermsEnum terms) {
+            this.readerIndex = readerIndex;
+            this.docMap = docMap;
+            this.terms = terms;
+        }
+    }
+
+    private static final class MappedMultiTermsEnum extends TermsEnum {
+
+        // sub enums that are positioned on a term, ordered by term, then by
+        // segment so that the postings of a term are visited in doc ID order
+        private final PriorityQueue<TermsEnumWithSlice> queue = new PriorityQueue<>(
+                (a, b) -> {
+                    final int cmp = a.current.compareTo(b.current);
+                    return cmp != 0 ? cmp : Integer.compare(a.readerIndex, b.readerIndex);
+                });
+        // sub enums that are positioned on the current term
+        private final List<TermsEnumWithSlice> matches = new ArrayList<>();
+        private BytesRef current;
+        // true if the documents of the segments interleave in the merged segment
+        private final boolean needsIndexSort;
+
+        MappedMultiTermsEnum(List<TermsEnumWithSlice> subs, boolean needsIndexSort) {
+            // none is positioned yet
+            matches.addAll(subs);
+            this.needsIndexSort = needsIndexSort;
+        }
+
+        @Override
+        public BytesRef next() throws IOException {
+            for (TermsEnumWithSlice sub : matches) {
+                sub.current = sub.terms.next();
+                if (sub.current != null) {
+                    queue.add(sub);
+                }
+            }
+            matches.clear();
+            if (queue.isEmpty()) {
+                current = null;
+                return null;
+            }
+            final TermsEnumWithSlice top = queue.poll();
+            matches.add(top);
+            current = top.current;
+            while (queue.isEmpty() == false && queue.peek().current.equals(current)) {
+                matches.add(queue.poll());
+            }
+            return current;
+        }
+
+        @Override
+        public BytesRef term() {
+            return current;
+        }
+
+        @Override
+        public int docFreq() throws IOException {
+            int docFreq = 0;
+            for (TermsEnumWithSlice sub : matches) {
+                docFreq += sub.terms.docFreq();
+            }
+            return docFreq;
+        }
+
+        @Override
+        public long totalTermFreq() throws IOException {
+            long sum = 0;
+            for (TermsEnumWithSlice sub : matches) {
+                final long v = sub.terms.totalTermFreq();
+                if (v == -1) {
+                    return v;
+                }
+                sum += v;
+            }
+            return sum;
+        }
+
+        @Override
+        public PostingsEnum postings(PostingsEnum reuse, int flags) throws IOException {
+            final List<MappingPostingsSub> subs = new ArrayList<>(matches.size());
+            long cost = 0;
+            for (TermsEnumWithSlice sub : matches) {
+                final PostingsEnum postings = sub.terms.postings(null, flags);
+                cost += postings.cost();
+                subs.add(new MappingPostingsSub(sub.docMap, postings));
+            }
+            return new MappingMultiPostingsEnum(DocIDMerger.of(subs, needsIndexSort), cost);
+        }
+
+        @Override
+        public SeekStatus seekCeil(BytesRef text) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void seekExact(long ord) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long ord() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static final class MappingPostingsSub extends DocIDMerger.Sub {
+        final PostingsEnum postings;
+
+        MappingPostingsSub(MergeState.DocMap docMap, PostingsEnum postings) {
+            super(docMap);
+            this.postings = postings;
+        }
+
+        @Override
+        public int nextDoc() throws IOException {
+            return postings.nextDoc();
+        }
+    }
+
+    private static final class MappingMultiPostingsEnum extends PostingsEnum {
+        private final DocIDMerger<MappingPostingsSub> docIDMerger;
+        private final long cost;
+        private MappingPostingsSub current;
+        private int doc = -1;
+
+        MappingMultiPostingsEnum(DocIDMerger<MappingPostingsSub> docIDMerger, long cost) {
+            this.docIDMerger = docIDMerger;
+            this.cost = cost;
+        }
+
+        @Override
+        public int freq() throws IOException {
+            return current.postings.freq();
+        }
+
+        @Override
+        public int docID() {
+            return doc;
+        }
+
+        @Override
+        public int advance(int target) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int nextDoc() throws IOException {
+            current = docIDMerger.next();
+            if (current == null) {
+                doc = NO_MORE_DOCS;
+            } else {
+                doc = current.mappedDocID;
+            }
+            return doc;
+        }
+
+        @Override
+        public int nextPosition() throws IOException {
+            return current.postings.nextPosition();
+        }
+
+        @Override
+        public int startOffset() throws IOException {
+            return current.postings.startOffset();
+        }
+
+        @Override
+        public int endOffset() throws IOException {
+            return current.postings.endOffset();
+        }
+
+        @Override
+        public BytesRef getPayload() throws IOException {
+            return current.postings.getPayload();
+        }
+
+        @Override
+        public long cost() {
+            return cost;
+        }
+    }
+}
@@ -0,0 +1,482 @@
+package com.mythology.cloud.apollo.index;
+
+import com.mythology.cloud.apollo.util.InfoStream;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * <p>Expert: a MergePolicy determines the sequence of
+ * primitive merge operations.</p>
+ *
+ * <p>Whenever the segments in an index have been altered by
+ * {@link IndexWriter}, either the addition of a newly
+ * flushed segment or a previous merge that may now need
+ * to cascade, {@link IndexWriter} invokes {@link
+ * #findMerges} to give the MergePolicy a chance to pick
+ * merges that are now required.  This method returns a
+ * {@link MergeSpecification} instance describing the set of
+ * merges that should be done, or null if no merges are
+ * necessary.</p>
+ *
+ * <p>The default MergePolicy is {@link
+ * TieredMergePolicy}.</p>
+ * <p>
+ * 合并策略：每当段发生变化时，{@link IndexWriter}调用{@link #findMerges}，由策略决定需要执行哪些合并。
+ * </p>
+ *
+ * @lucene.experimental
+ */
+public abstract class MergePolicy {
+
+    /**
+     * Progress and state for an executing merge. This class
+     * encapsulates the logic to pause and resume the merge thread
+     * or to abort the merge entirely.
+     *
+     * @lucene.experimental
+     */
+    public static class OneMergeProgress {
+        /**
+         * Reason for pausing the merge thread.
+         */
+        public static enum PauseReason {
+            /**
+             * Stopped (because of throughput rate set to 0, typically).
+             */
+            STOPPED,
+            /**
+             * Temporarily paused because of exceeded throughput rate.
+             */
+            PAUSED,
+            /**
+             * Other reason.
+             */
+            OTHER
+        }
+
+        private final ReentrantLock pauseLock = new ReentrantLock();
+        private final Condition pausing = pauseLock.newCondition();
+
+        /**
+         * Pause times (in nanoseconds) for each {@link PauseReason}.
+         */
+        private final EnumMap<PauseReason, AtomicLong> pauseTimesNS;
+
+        private volatile boolean aborted;
+
+        /**
+         * This field is for sanity-check purposes only. Only the same thread that invoked
+         * {@link OneMerge#mergeInit()} is permitted to be calling
+         * {@link #pauseNanos}. This is always verified at runtime.
+         */
+        private Thread owner;
+
+        /**
+         * Creates a new merge progress info.
+         */
+        public OneMergeProgress() {
+            // Place all the pause reasons in there immediately so that we can simply update values.
+            pauseTimesNS = new EnumMap<PauseReason, AtomicLong>(PauseReason.class);
+            for (PauseReason p : PauseReason.values()) {
+                pauseTimesNS.put(p, new AtomicLong());
+            }
+        }
+
+        /**
+         * Abort the merge this progress tracks at the next
+         * possible moment.
+         */
+        public void abort() {
+            aborted = true;
+            wakeup(); // wakeup any paused merge thread.
+        }
+
+        /**
+         * Return the aborted state of this merge.
+         */
+        public boolean isAborted() {
+            return aborted;
+        }
+
+        /**
+         * Pauses the calling thread for at least <code>pauseNanos</code> nanoseconds
+         * unless the merge is aborted or the external condition returns <code>false</code>,
+         * in which case control returns immediately.
+         * <p>
+         * The external condition is required so that other threads can terminate the pausing immediately,
+         * before <code>pauseNanos</code> expires. We can't rely on just {@link Condition#awaitNanos(long)} alone
+         * because it can return due to spurious wakeups too.
+         *
+         * @param condition The pause condition that should return false if immediate return from this
+         *                  method is needed. Other threads can wake up any sleeping thread by calling
+         *                  {@link #wakeup}, but it'd fall to sleep for the remainder of the requested time if this
+         *                  condition
+         */
+        public void pauseNanos(long pauseNanos, PauseReason reason, BooleanSupplier condition) throws InterruptedException {
+            if (Thread.currentThread() != owner) {
+                throw new RuntimeException("Only the merge owner thread can call pauseNanos(). This thread: "
+                        + Thread.currentThread().getName() + ", owner thread: "
+                        + owner);
+            }
+
+            long start = System.nanoTime();
+            AtomicLong timeUpdate = pauseTimesNS.get(reason);
+            pauseLock.lock();
+            try {
+                while (pauseNanos > 0 && !aborted && condition.getAsBoolean()) {
+                    pauseNanos = pausing.awaitNanos(pauseNanos);
+                }
+            } finally {
+                pauseLock.unlock();
+                timeUpdate.addAndGet(System.nanoTime() - start);
+            }
+        }
+
+        /**
+         * Request a wakeup for any threads stalled in {@link #pauseNanos}.
+         */
+        public void wakeup() {
+            pauseLock.lock();
+            try {
+                pausing.signalAll();
+            } finally {
+                pauseLock.unlock();
+            }
+        }
+
+        /**
+         * Returns pause reasons and associated times in nanoseconds.
+         */
+        public Map<PauseReason, Long> getPauseTimes() {
+            Set<Map.Entry<PauseReason, AtomicLong>> entries = pauseTimesNS.entrySet();
+            return entries.stream()
+                    .collect(Collectors.toMap(
+                            (e) -> e.getKey(),
+                            (e) -> e.getValue().get()));
+        }
+
+        final void setMergeThread(Thread owner) {
+            assert this.owner == null;
+            this.owner = owner;
+        }
+    }
+
+    /**
+     * OneMerge provides the information necessary to perform
+     * an individual primitive merge operation, resulting in
+     * a single new segment.  The merge spec includes the
+     * subset of segments to be merged.
+     *
+     * @lucene.experimental
+     */
+    public static class OneMerge {
+        SegmentInfo info;         // used by IndexWriter
+        boolean registerDone;     // used by IndexWriter
+        List<SegmentReader> readers;        // used by IndexWriter
+
+        /**
+         * Estimated size in bytes of the merged segment.
+         */
+        public volatile long estimatedMergeBytes;       // used by IndexWriter
+
+        // Sum of sizeInBytes of all SegmentInfos; set by IW.mergeInit
+        volatile long totalMergeBytes;
+
+        /**
+         * Segments to be merged.
+         */
+        public final List<SegmentInfo> segments;
+
+        /**
+         * Control used to pause/stop/resume the merge thread.
+         */
+        private final OneMergeProgress mergeProgress;
+
+        volatile long mergeStartNS = -1;
+
+        /**
+         * Total number of documents in segments to be merged, not accounting for deletions.
+         */
+        public final int totalMaxDoc;
+        Throwable error;
+
+        /**
+         * Sole constructor.
+         *
+         * @param segments List of {@link SegmentInfo}s
+         *                 to be merged.
+         */
+        public OneMerge(List<SegmentInfo> segments) {
+            if (0 == segments.size()) {
+                throw new RuntimeException("segments must include at least one segment");
+            }
+            // clone the list, as the in list may be based off original SegmentInfos and may be modified
+            this.segments = new ArrayList<>(segments);
+            int count = 0;
+            for (SegmentInfo info : segments) {
+                count += info.maxDoc();
+            }
+            totalMaxDoc = count;
+
+            mergeProgress = new OneMergeProgress();
+        }
+
+        /**
+         * Called by {@link IndexWriter} after the merge started and from the
+         * thread that will be executing the merge.
+         */
+        public void mergeInit() throws IOException {
+            mergeProgress.setMergeThread(Thread.currentThread());
+        }
+
+        /**
+         * Returns a readable description of the current merge
+         * state.
+         */
+        public String segString() {
+            StringBuilder b = new StringBuilder();
+            final int numSegments = segments.size();
+            for (int i = 0; i < numSegments; i++) {
+                if (i > 0) {
+                    b.append(' ');
+                }
+                b.append(segments.get(i).toString());
+            }
+            if (info != null) {
+                b.append(" into ").append(info.name);
+            }
+            if (isAborted()) {
+                b.append(" [ABORTED]");
+            }
+            return b.toString();
+        }
+
+        /**
+         * Returns the total size in bytes of this merge. Note that this does not
+         * indicate the size of the merged segment, but the
+         * input total size. This is only set once the merge is
+         * initialized by IndexWriter.
+         */
+        public long totalBytesSize() {
+            return totalMergeBytes;
+        }
+
+        /**
+         * Returns the total number of documents that are included with this merge.
+         */
+        public int totalNumDocs() {
+            return totalMaxDoc;
+        }
+
+        /**
+         * Marks the merge as aborted. If this is called
+         * before the merge is committed then the merge will
+         * not be committed.
+         */
+        public void setAborted() {
+            mergeProgress.abort();
+        }
+
+        /**
+         * Returns true if this merge was or should be aborted.
+         */
+        public boolean isAborted() {
+            return mergeProgress.isAborted();
+        }
+
+        /**
+         * Checks if merge has been aborted and throws a merge exception if so.
+         */
+        public void checkAborted() throws MergeAbortedException {
+            if (isAborted()) {
+                throw new MergePolicy.MergeAbortedException("merge is aborted: " + segString());
+            }
+        }
+
+        /**
+         * Returns a {@link OneMergeProgress} instance for this merge, which provides
+         * statistics of the merge threads (run time vs. sleep time) if merging is throttled.
+         */
+        public OneMergeProgress getMergeProgress() {
+            return mergeProgress;
+        }
+
+        @Override
+        public String toString() {
+            return "OneMerge(" + segString() + ")";
+        }
+    }
+
+    /**
+     * A MergeSpecification instance provides the information
+     * necessary to perform multiple merges.  It simply
+     * contains a list of {@link OneMerge} instances.
+     */
+    public static class MergeSpecification {
+
+        /**
+         * The subset of segments to be included in the primitive merge.
+         */
+        public final List<OneMerge> merges = new ArrayList<>();
+
+        /**
+         * Sole constructor.  Use {@link
+         * #add(MergePolicy.OneMerge)} to add merges.
+         */
+        public MergeSpecification() {
+        }
+
+        /**
+         * Adds the provided {@link OneMerge} to this
+         * specification.
+         */
+        public void add(OneMerge merge) {
+            merges.add(merge);
+        }
+
+        /**
+         * Returns a description of the merges in this specification.
+         */
+        public String segString() {
+            StringBuilder b = new StringBuilder();
+            b.append("MergeSpec:\n");
+            final int count = merges.size();
+            for (int i = 0; i < count; i++) {
+                b.append("  ").append(1 + i).append(": ").append(merges.get(i).segString()).append('\n');
+            }
+            return b.toString();
+        }
+    }
+
+    /**
+     * Exception thrown if there are any problems while executing a merge.
+     */
+    public static class MergeException extends RuntimeException {
+        /**
+         * Create a {@code MergeException}.
+         */
+        public MergeException(String message) {
+            super(message);
+        }
+
+        /**
+         * Create a {@code MergeException}.
+         */
+        public MergeException(Throwable exc) {
+            super(exc);
+        }
+    }
+
+    /**
+     * Thrown when a merge was explicitly aborted with
+     * {@link OneMerge#setAborted()}.  Normally this exception is
+     * privately caught and suppressed by the {@link MergeScheduler}.
+     */
+    public static class MergeAbortedException extends IOException {
+        /**
+         * Create a {@link MergeAbortedException}.
+         */
+        public MergeAbortedException() {
+            super("merge is aborted");
+        }
+
+        /**
+         * Create a {@link MergeAbortedException} with a
+         * specified message.
+         */
+        public MergeAbortedException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Creates a new merge policy instance.
+     */
+    protected MergePolicy() {
+    }
+
+    /**
+     * Determine what set of merge operations are now necessary on the index.
+     * {@link IndexWriter} calls this whenever there is a change to the segments.
+     * This call is always synchronized on the {@link IndexWriter} instance so
+     * only one thread at a time will call this method.
+     *
+     * @param mergeTrigger the event that triggered the merge
+     * @param segmentInfos the total set of segments in the index
+     * @param mergeContext the IndexWriter to find the merges on
+     */
+    public abstract MergeSpecification findMerges(MergeTrigger mergeTrigger, SegmentInfos segmentInfos, MergeContext mergeContext)
+            throws IOException;
+
+    /**
+     * Return the byte size of the provided {@link
+     * SegmentInfo}. Segments have no deleted documents, so this is
+     * simply the size of their files.
+     */
+    protected long size(SegmentInfo info, MergeContext mergeContext) throws IOException {
+        return info.sizeInBytes();
+    }
+
+    /**
+     * Builds a String representation of the given SegmentInfo instances
+     */
+    protected final String segString(MergeContext mergeContext, Iterable<SegmentInfo> infos) {
+        final StringBuilder b = new StringBuilder();
+        for (SegmentInfo info : infos) {
+            if (b.length() > 0) {
+                b.append(' ');
+            }
+            b.append(info.toString());
+            if (mergeContext.getMergingSegments().contains(info)) {
+                b.append(" [merging]");
+            }
+        }
+        return b.toString();
+    }
+
+    /**
+     * Print a debug message to {@link MergeContext}'s {@code
+     * infoStream}.
+     */
+    protected final void message(String message, MergeContext mergeContext) {
+        if (verbose(mergeContext)) {
+            mergeContext.getInfoStream().message("MP", message);
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if the info-stream is in verbose mode
+     *
+     * @see #message(String, MergeContext)
+     */
+    protected final boolean verbose(MergeContext mergeContext) {
+        return mergeContext.getInfoStream().isEnabled("MP");
+    }
+
+    /**
+     * This interface represents the current context of the merge selection process.
+     * It allows to access real-time information like the currently merging segments.
+     */
+    public interface MergeContext {
+
+        /**
+         * Returns the info stream that can be used to log messages
+         */
+        InfoStream getInfoStream();
+
+        /**
+         * Returns an unmodifiable set of segments that are merged or queued for merge.
+         */
+        Set<SegmentInfo> getMergingSegments();
+    }
+}
@@ -0,0 +1,186 @@
+package com.mythology.cloud.apollo.index;
+
+import com.mythology.cloud.apollo.codecs.DocValuesProducer;
+import com.mythology.cloud.apollo.codecs.FieldsProducer;
+import com.mythology.cloud.apollo.codecs.PointsReader;
+import com.mythology.cloud.apollo.codecs.StoredFieldsReader;
+import com.mythology.cloud.apollo.codecs.TermVectorsReader;
+import com.mythology.cloud.apollo.search.Sort;
+import com.mythology.cloud.apollo.util.InfoStream;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Holds common state used during segment merging.
+ * <p>
+ * 段合并期间共享的状态：被合并段的各部分读取器、合并后的字段信息，以及旧文档号到新文档号的映射。
+ * </p>
+ *
+ * @lucene.experimental
+ */
+public class MergeState {
+
+    /**
+     * Name of the new segment being merged.
+     */
+    public final String segmentName;
+
+    /**
+     * Number of documents in the new segment.
+     */
+    public final int maxDoc;
+
+    /**
+     * Maps document IDs from old segments to document IDs in the new segment
+     */
+    public final DocMap[] docMaps;
+
+    /**
+     * {@link FieldInfos} of the newly merged segment.
+     */
+    public FieldInfos mergeFieldInfos;
+
+    /**
+     * Stored field producers being merged
+     */
+    public final StoredFieldsReader[] storedFieldsReaders;
+
+    /**
+     * Term vector producers being merged
+     */
+    public final TermVectorsReader[] termVectorsReaders;
+
+    /**
+     * DocValues producers being merged
+     */
+    public final DocValuesProducer[] docValuesProducers;
+
+    /**
+     * FieldInfos being merged
+     */
+    public final FieldInfos[] fieldInfos;
+
+    /**
+     * Postings to merge
+     */
+    public final FieldsProducer[] fieldsProducers;
+
+    /**
+     * Point readers to merge
+     */
+    public final PointsReader[] pointsReaders;
+
+    /**
+     * Max docs per reader
+     */
+    public final int[] maxDocs;
+
+    /**
+     * InfoStream for debugging messages.
+     */
+    public final InfoStream infoStream;
+
+    /**
+     * Index sort of the merged segment, or null if the index is not sorted.
+     */
+    public final Sort indexSort;
+
+    /**
+     * Indicates if the index needs to be sorted, i.e. documents of the
+     * segments being merged interleave in the merged segment
+     */
+    public boolean needsIndexSort;
+
+    /**
+     * Sole constructor.
+     */
+    MergeState(List<SegmentReader> readers, String segmentName, Sort indexSort, InfoStream infoStream) throws IOException {
+        final int numReaders = readers.size();
+        this.segmentName = segmentName;
+        this.indexSort = indexSort;
+        this.infoStream = infoStream;
+
+        maxDocs = new int[numReaders];
+        fieldsProducers = new FieldsProducer[numReaders];
+        storedFieldsReaders = new StoredFieldsReader[numReaders];
+        termVectorsReaders = new TermVectorsReader[numReaders];
+        docValuesProducers = new DocValuesProducer[numReaders];
+        pointsReaders = new PointsReader[numReaders];
+        fieldInfos = new FieldInfos[numReaders];
+
+        int numDocs = 0;
+        for (int i = 0; i < numReaders; i++) {
+            final SegmentReader reader = readers.get(i);
+
+            maxDocs[i] = reader.maxDoc();
+            fieldInfos[i] = reader.getFieldInfos();
+
+            storedFieldsReaders[i] = reader.getFieldsReader().getMergeInstance();
+
+            termVectorsReaders[i] = reader.getTermVectorsReader();
+            if (termVectorsReaders[i] != null) {
+                termVectorsReaders[i] = termVectorsReaders[i].getMergeInstance();
+            }
+
+            docValuesProducers[i] = reader.getDocValuesReader();
+            if (docValuesProducers[i] != null) {
+                docValuesProducers[i] = docValuesProducers[i].getMergeInstance();
+            }
+
+            pointsReaders[i] = reader.getPointsReader();
+            fieldsProducers[i] = reader.getPostingsReader();
+
+            numDocs += maxDocs[i];
+        }
+        this.maxDoc = numDocs;
+        docMaps = buildDocMaps(readers, indexSort);
+    }
+
+    private DocMap[] buildDocMaps(List<SegmentReader> readers, Sort indexSort) throws IOException {
+        if (indexSort != null) {
+            // each segment is sorted by the index sort already, so the merged
+            // segment is a merge-sort of them
+            final DocMap[] result = MultiSorter.sort(indexSort, readers);
+            if (result != null) {
+                needsIndexSort = true;
+                return result;
+            }
+            // the segments are already in index sort order
+        }
+        return buildDocBaseDocMaps(readers);
+    }
+
+    // without deletions the new segment is the concatenation of the old ones
+    private static DocMap[] buildDocBaseDocMaps(List<SegmentReader> readers) {
+        final DocMap[] docMaps = new DocMap[readers.size()];
+        int docBase = 0;
+        for (int i = 0; i < docMaps.length; i++) {
+            final int base = docBase;
+            docMaps[i] = new DocMap() {
+                @Override
+                public int get(int docID) {
+                    return base + docID;
+                }
+            };
+            docBase += readers.get(i).maxDoc();
+        }
+        return docMaps;
+    }
+
+    /**
+     * A map of doc IDs.
+     */
+    public static abstract class DocMap {
+        /**
+         * Sole constructor
+         */
+        public DocMap() {
+        }
+
+        /**
+         * Return the mapped docID or -1 if the given doc is not mapped.
+         */
+        public abstract int get(int docID);
+    }
+}
@@ -0,0 +1,37 @@
+package com.mythology.cloud.apollo.index;
+
+/**
+ * MergeTrigger is passed to
+ * {@link MergePolicy#findMerges(MergeTrigger, SegmentInfos, MergePolicy.MergeContext)} to indicate the
+ * event that triggered the merge.
+ * <p>
+ * 触发合并的事件。
+ * </p>
+ */
+public enum MergeTrigger {
+    /**
+     * Merge was triggered by a segment flush.
+     */
+    SEGMENT_FLUSH,
+
+    /**
+     * Merge was triggered by a full flush. Full flushes
+     * can be caused by a commit, NRT reader reopen or a close call on the index writer.
+     */
+    FULL_FLUSH,
+
+    /**
+     * Merge has been triggered explicitly by the user.
+     */
+    EXPLICIT,
+
+    /**
+     * Merge was triggered by a successfully finished merge.
+     */
+    MERGE_FINISHED,
+
+    /**
+     * Merge was triggered by a closing IndexWriter.
+     */
+    CLOSING
+}
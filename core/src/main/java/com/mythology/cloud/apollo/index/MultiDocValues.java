@@ -0,0 +1,319 @@
+package com.mythology.cloud.apollo.index;
+
+import com.mythology.cloud.apollo.util.BytesRef;
+import com.mythology.cloud.apollo.util.LongValues;
+
+import java.io.IOException;
+
+/**
+ * Top-level views over the DocValues of several leaves.
+ * <p>
+ * Ordinals of the views returned by this class are global ordinals, resolved
+ * through an {@link OrdinalMap}: comparing or counting values across leaves
+ * never compares bytes.
+ * <p><b>NOTE</b>: for multi readers, you'll get better
+ * performance by gathering the sub readers and iterating over every leaf
+ * with {@link OrdinalMap#getGlobalOrds(int)}, rather than using this class.
+ * <p>
+ * 跨段(leaf)的DocValues视图，返回的序号均为全局序号。
+ * </p>
+ *
+ * @lucene.experimental
+ */
+public class MultiDocValues {
+
+    /**
+     * No instantiation
+     */
+    private MultiDocValues() {
+    }
+
+    /**
+     * Returns the index of the leaf that contains {@code docID}, given the
+     * doc ID of the first document of every leaf.
+     */
+    static int subIndex(int docID, int[] docStarts) {
+        // leaves may be empty, so the last leaf that starts at or before docID
+        // wins; docs beyond the last leaf map to docStarts.length - 1
+        int lo = 0;
+        int hi = docStarts.length - 1;
+        while (lo <= hi) {
+            final int mid = (lo + hi) >>> 1;
+            if (docStarts[mid] <= docID) {
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return hi;
+    }
+
+    /**
+     * Implements SortedDocValues over n subs, using an OrdinalMap
+     *
+     * @lucene.internal
+     */
+    public static class MultiSortedDocValues extends SortedDocValues {
+        /**
+         * docbase for each leaf: parallel with {@link #values}, plus the total number of docs
+         */
+        public final int docStarts[];
+        /**
+         * leaf values
+         */
+        public final SortedDocValues values[];
+        /**
+         * ordinal map mapping ords from <code>values</code> to global ord space
+         */
+        public final OrdinalMap mapping;
+        private final long totalCost;
+
+        private int nextLeaf;
+        private SortedDocValues currentValues;
+        private LongValues currentGlobalOrds;
+        private int currentDocStart;
+        private int docID = -1;
+
+        /**
+         * Creates a new MultiSortedDocValues over <code>values</code>
+         */
+        public MultiSortedDocValues(SortedDocValues values[], int docStarts[], OrdinalMap mapping, long totalCost) throws IOException {
+            assert docStarts.length == values.length + 1;
+            this.values = values;
+            this.docStarts = docStarts;
+            this.mapping = mapping;
+            this.totalCost = totalCost;
+        }
+
+        @Override
+        public int docID() {
+            return docID;
+        }
+
+        private void setLeaf(int leaf) {
+            currentValues = values[leaf];
+            currentDocStart = docStarts[leaf];
+            currentGlobalOrds = mapping.getGlobalOrds(leaf);
+            nextLeaf = leaf + 1;
+        }
+
+        @Override
+        public int nextDoc() throws IOException {
+            while (true) {
+                while (currentValues == null) {
+                    if (nextLeaf == values.length) {
+                        docID = NO_MORE_DOCS;
+                        return docID;
+                    }
+                    setLeaf(nextLeaf);
+                }
+                int newDocID = currentValues.nextDoc();
+                if (newDocID == NO_MORE_DOCS) {
+                    currentValues = null;
+                } else {
+                    docID = currentDocStart + newDocID;
+                    return docID;
+                }
+            }
+        }
+
+        @Override
+        public int advance(int targetDocID) throws IOException {
+            if (targetDocID <= docID) {
+                throw new IllegalArgumentException("can only advance beyond current document: on docID=" + docID + " but targetDocID=" + targetDocID);
+            }
+            int readerIndex = subIndex(targetDocID, docStarts);
+            if (readerIndex >= nextLeaf) {
+                if (readerIndex == values.length) {
+                    currentValues = null;
+                    docID = NO_MORE_DOCS;
+                    return docID;
+                }
+                setLeaf(readerIndex);
+            }
+            int newDocID = currentValues.advance(targetDocID - currentDocStart);
+            if (newDocID == NO_MORE_DOCS) {
+                currentValues = null;
+                return nextDoc();
+            } else {
+                docID = currentDocStart + newDocID;
+                return docID;
+            }
+        }
+
+        @Override
+        public boolean advanceExact(int targetDocID) throws IOException {
+            if (targetDocID < docID) {
+                throw new IllegalArgumentException("can only advance beyond current document: on docID=" + docID + " but targetDocID=" + targetDocID);
+            }
+            int readerIndex = subIndex(targetDocID, docStarts);
+            if (readerIndex >= nextLeaf) {
+                if (readerIndex == values.length) {
+                    throw new IllegalArgumentException("Out of range: " + targetDocID);
+                }
+                setLeaf(readerIndex);
+            }
+            docID = targetDocID;
+            return currentValues.advanceExact(targetDocID - currentDocStart);
+        }
+
+        @Override
+        public int ordValue() throws IOException {
+            return (int) currentGlobalOrds.get(currentValues.ordValue());
+        }
+
+        @Override
+        public BytesRef lookupOrd(int ord) throws IOException {
+            int subIndex = mapping.getFirstSegmentNumber(ord);
+            int segmentOrd = (int) mapping.getFirstSegmentOrd(ord);
+            return values[subIndex].lookupOrd(segmentOrd);
+        }
+
+        @Override
+        public int getValueCount() {
+            return (int) mapping.getValueCount();
+        }
+
+        @Override
+        public long cost() {
+            return totalCost;
+        }
+    }
+
+    /**
+     * Implements MultiSortedSetDocValues over n subs, using an OrdinalMap
+     *
+     * @lucene.internal
+     */
+    public static class MultiSortedSetDocValues extends SortedSetDocValues {
+        /**
+         * docbase for each leaf: parallel with {@link #values}, plus the total number of docs
+         */
+        public final int docStarts[];
+        /**
+         * leaf values
+         */
+        public final SortedSetDocValues values[];
+        /**
+         * ordinal map mapping ords from <code>values</code> to global ord space
+         */
+        public final OrdinalMap mapping;
+        private final long totalCost;
+
+        private int nextLeaf;
+        private SortedSetDocValues currentValues;
+        private LongValues currentGlobalOrds;
+        private int currentDocStart;
+        private int docID = -1;
+
+        /**
+         * Creates a new MultiSortedSetDocValues over <code>values</code>
+         */
+        public MultiSortedSetDocValues(SortedSetDocValues values[], int docStarts[], OrdinalMap mapping, long totalCost) throws IOException {
+            assert docStarts.length == values.length + 1;
+            this.values = values;
+            this.docStarts = docStarts;
+            this.mapping = mapping;
+            this.totalCost = totalCost;
+        }
+
+        @Override
+        public int docID() {
+            return docID;
+        }
+
+        private void setLeaf(int leaf) {
+            currentValues = values[leaf];
+            currentDocStart = docStarts[leaf];
+            currentGlobalOrds = mapping.getGlobalOrds(leaf);
+            nextLeaf = leaf + 1;
+        }
+
+        @Override
+        public int nextDoc() throws IOException {
+            while (true) {
+                while (currentValues == null) {
+                    if (nextLeaf == values.length) {
+                        docID = NO_MORE_DOCS;
+                        return docID;
+                    }
+                    setLeaf(nextLeaf);
+                }
+                int newDocID = currentValues.nextDoc();
+                if (newDocID == NO_MORE_DOCS) {
+                    currentValues = null;
+                } else {
+                    docID = currentDocStart + newDocID;
+                    return docID;
+                }
+            }
+        }
+
+        @Override
+        public int advance(int targetDocID) throws IOException {
+            if (targetDocID <= docID) {
+                throw new IllegalArgumentException("can only advance beyond current document: on docID=" + docID + " but targetDocID=" + targetDocID);
+            }
+            int readerIndex = subIndex(targetDocID, docStarts);
+            if (readerIndex >= nextLeaf) {
+                if (readerIndex == values.length) {
+                    currentValues = null;
+                    docID = NO_MORE_DOCS;
+                    return docID;
+                }
+                setLeaf(readerIndex);
+            }
+            int newDocID = currentValues.advance(targetDocID - currentDocStart);
+            if (newDocID == NO_MORE_DOCS) {
+                currentValues = null;
+                return nextDoc();
+            } else {
+                docID = currentDocStart + newDocID;
+                return docID;
+            }
+        }
+
+        @Override
+        public boolean advanceExact(int targetDocID) throws IOException {
+            if (targetDocID < docID) {
+                throw new IllegalArgumentException("can only advance beyond current document: on docID=" + docID + " but targetDocID=" + targetDocID);
+            }
+            int readerIndex = subIndex(targetDocID, docStarts);
+            if (readerIndex >= nextLeaf) {
+                if (readerIndex == values.length) {
+                    throw new IllegalArgumentException("Out of range: " + targetDocID);
+                }
+                setLeaf(readerIndex);
+            }
+            docID = targetDocID;
+            return currentValues.advanceExact(targetDocID - currentDocStart);
+        }
+
+        @Override
+        public long nextOrd() throws IOException {
+            long segmentOrd = currentValues.nextOrd();
+            if (segmentOrd == NO_MORE_ORDS) {
+                return segmentOrd;
+            } else {
+                return currentGlobalOrds.get(segmentOrd);
+            }
+        }
+
+        @Override
+        public BytesRef lookupOrd(long ord) throws IOException {
+            int subIndex = mapping.getFirstSegmentNumber(ord);
+            long segmentOrd = mapping.getFirstSegmentOrd(ord);
+            return values[subIndex].lookupOrd(segmentOrd);
+        }
+
+        @Override
+        public long getValueCount() {
+            return mapping.getValueCount();
+        }
+
+        @Override
+        public long cost() {
+            return totalCost;
+        }
+    }
+}
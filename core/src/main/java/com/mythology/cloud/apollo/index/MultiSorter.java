@@ -0,0 +1,244 @@
+package com.mythology.cloud.apollo.index;
+
+import com.mythology.cloud.apollo.codecs.DocValuesProducer;
+import com.mythology.cloud.apollo.search.DocIdSetIterator;
+import com.mythology.cloud.apollo.search.Sort;
+import com.mythology.cloud.apollo.search.SortField;
+import com.mythology.cloud.apollo.util.LongValues;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Computes the doc maps of a merge of segments that are each sorted by the
+ * index sort, so that the merged segment is sorted too: the segments are
+ * merge-sorted with a priority queue over their current documents.
+ * <p>
+ * 计算各自按索引排序有序的多个段合并时的文档号映射：用优先队列对各段的当前文档做归并排序，使合并后的段仍然有序。
+ * </p>
+ */
+final class MultiSorter {
+
+    private MultiSorter() {
+    }
+
+    /**
+     * Does a merge sort of the leaves of the incoming reader, returning {@link MergeState.DocMap} to map each leaf's
+     * documents into the merged segment.  The documents for each incoming leaf reader must already be sorted by the same sort!
+     * Returns null if the merge sort is not needed (segments are already in index sort order).
+     */
+    static MergeState.DocMap[] sort(Sort sort, List<SegmentReader> readers) throws IOException {
+
+        // TODO: optimize if only 1 reader is incoming, though that's a rare case
+
+        SortField[] fields = sort.getSort();
+        final ComparableProvider[][] comparables = new ComparableProvider[fields.length][];
+        final int[] reverseMuls = new int[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            comparables[i] = getComparableProviders(readers, fields[i]);
+            reverseMuls[i] = fields[i].getReverse() ? -1 : 1;
+        }
+        int leafCount = readers.size();
+
+        PriorityQueue<LeafAndDocID> queue = new PriorityQueue<>(Math.max(1, leafCount), (a, b) -> {
+            for (int i = 0; i < comparables.length; i++) {
+                @SuppressWarnings({"unchecked", "rawtypes"})
+                int cmp = reverseMuls[i] * ((Comparable) a.values[i]).compareTo(b.values[i]);
+                if (cmp != 0) {
+                    return cmp;
+                }
+            }
+
+            // tie-break by docID natural order:
+            if (a.readerIndex != b.readerIndex) {
+                return Integer.compare(a.readerIndex, b.readerIndex);
+            } else {
+                return Integer.compare(a.docID, b.docID);
+            }
+        });
+
+        final int[][] mappedDocIDs = new int[leafCount][];
+
+        for (int i = 0; i < leafCount; i++) {
+            SegmentReader reader = readers.get(i);
+            mappedDocIDs[i] = new int[reader.maxDoc()];
+            if (reader.maxDoc() > 0) {
+                LeafAndDocID leaf = new LeafAndDocID(i, reader.maxDoc(), comparables.length);
+                for (int j = 0; j < comparables.length; j++) {
+                    leaf.values[j] = comparables[j][i].getComparable(leaf.docID);
+                    assert leaf.values[j] != null;
+                }
+                queue.add(leaf);
+            }
+        }
+
+        // merge sort:
+        int mappedDocID = 0;
+        int lastReaderIndex = 0;
+        boolean isSorted = true;
+        while (queue.size() != 0) {
+            LeafAndDocID top = queue.poll();
+            if (lastReaderIndex > top.readerIndex) {
+                // merge sort is needed
+                isSorted = false;
+            }
+            lastReaderIndex = top.readerIndex;
+            mappedDocIDs[top.readerIndex][top.docID] = mappedDocID++;
+            top.docID++;
+            if (top.docID < top.maxDoc) {
+                for (int j = 0; j < comparables.length; j++) {
+                    top.values[j] = comparables[j][top.readerIndex].getComparable(top.docID);
+                    assert top.values[j] != null;
+                }
+                queue.add(top);
+            }
+        }
+        if (isSorted) {
+            return null;
+        }
+
+        MergeState.DocMap[] docMaps = new MergeState.DocMap[leafCount];
+        for (int i = 0; i < leafCount; i++) {
+            final int[] remapped = mappedDocIDs[i];
+            docMaps[i] = new MergeState.DocMap() {
+                @Override
+                public int get(int docID) {
+                    return remapped[docID];
+                }
+            };
+        }
+
+        return docMaps;
+    }
+
+    private static class LeafAndDocID {
+        final int readerIndex;
+        final int maxDoc;
+        final Object[] values;
+        int docID;
+
+        LeafAndDocID(int readerIndex, int maxDoc, int numComparables) {
+            this.readerIndex = readerIndex;
+            this.maxDoc = maxDoc;
+            this.values = new Object[numComparables];
+        }
+    }
+
+    /**
+     * Returns an object for this docID whose .compareTo represents the requested {@link SortField} sort order.
+     */
+    private interface ComparableProvider {
+        Comparable<?> getComparable(int docID) throws IOException;
+    }
+
+    // advances the iterator to docID, docs must be requested in increasing order
+    private static boolean advanceExact(DocIdSetIterator values, int docID) throws IOException {
+        int readerDocID = values.docID();
+        while (readerDocID < docID) {
+            readerDocID = values.nextDoc();
+        }
+        return readerDocID == docID;
+    }
+
+    private static NumericDocValues getNumeric(SegmentReader reader, String field) throws IOException {
+        final FieldInfo fi = reader.getFieldInfos().fieldInfo(field);
+        final DocValuesProducer producer = reader.getDocValuesReader();
+        if (fi == null || fi.getDocValuesType() != DocValuesType.NUMERIC || producer == null) {
+            return DocValues.emptyNumeric();
+        }
+        return producer.getNumeric(fi);
+    }
+
+    private static SortedDocValues getSorted(SegmentReader reader, String field) throws IOException {
+        final FieldInfo fi = reader.getFieldInfos().fieldInfo(field);
+        final DocValuesProducer producer = reader.getDocValuesReader();
+        if (fi == null || fi.getDocValuesType() != DocValuesType.SORTED || producer == null) {
+            return DocValues.emptySorted();
+        }
+        return producer.getSorted(fi);
+    }
+
+    /**
+     * Returns {@code ComparableProvider}s for the provided readers to represent the requested {@link SortField} sort order.
+     */
+    private static ComparableProvider[] getComparableProviders(List<SegmentReader> readers, SortField sortField) throws IOException {
+
+        ComparableProvider[] providers = new ComparableProvider[readers.size()];
+        final Object missingValue = sortField.getMissingValue();
+
+        switch (sortField.getType()) {
+
+            case STRING: {
+                // this uses the efficient segment-local ordinal map:
+                final SortedDocValues[] values = new SortedDocValues[readers.size()];
+                for (int i = 0; i < readers.size(); i++) {
+                    values[i] = getSorted(readers.get(i), sortField.getField());
+                }
+                OrdinalMap ordinalMap = OrdinalMap.build(null, values);
+                final int missingOrd;
+                if (missingValue == SortField.STRING_LAST) {
+                    missingOrd = Integer.MAX_VALUE;
+                } else {
+                    missingOrd = Integer.MIN_VALUE;
+                }
+
+                for (int readerIndex = 0; readerIndex < readers.size(); readerIndex++) {
+                    // the ordinal map consumed the iterators, so pull fresh ones
+                    final SortedDocValues readerValues = getSorted(readers.get(readerIndex), sortField.getField());
+                    final LongValues globalOrds = ordinalMap.getGlobalOrds(readerIndex);
+                    providers[readerIndex] = docID -> {
+                        if (advanceExact(readerValues, docID)) {
+                            // translate segment's ord to global ord space:
+                            return Math.toIntExact(globalOrds.get(readerValues.ordValue()));
+                        } else {
+                            return missingOrd;
+                        }
+                    };
+                }
+            }
+            break;
+
+            case LONG: {
+                final Long missing = missingValue == null ? 0L : (Long) missingValue;
+                for (int readerIndex = 0; readerIndex < readers.size(); readerIndex++) {
+                    final NumericDocValues values = getNumeric(readers.get(readerIndex), sortField.getField());
+                    providers[readerIndex] = docID -> advanceExact(values, docID) ? values.longValue() : missing;
+                }
+            }
+            break;
+
+            case INT: {
+                final Integer missing = missingValue == null ? 0 : (Integer) missingValue;
+                for (int readerIndex = 0; readerIndex < readers.size(); readerIndex++) {
+                    final NumericDocValues values = getNumeric(readers.get(readerIndex), sortField.getField());
+                    providers[readerIndex] = docID -> advanceExact(values, docID) ? (int) values.longValue() : missing;
+                }
+            }
+            break;
+
+            case DOUBLE: {
+                final Double missing = missingValue == null ? 0.0 : (Double) missingValue;
+                for (int readerIndex = 0; readerIndex < readers.size(); readerIndex++) {
+                    final NumericDocValues values = getNumeric(readers.get(readerIndex), sortField.getField());
+                    providers[readerIndex] = docID -> advanceExact(values, docID) ? Double.longBitsToDouble(values.longValue()) : missing;
+                }
+            }
+            break;
+
+            case FLOAT: {
+                final Float missing = missingValue == null ? 0.0f : (Float) missingValue;
+                for (int readerIndex = 0; readerIndex < readers.size(); readerIndex++) {
+                    final NumericDocValues values = getNumeric(readers.get(readerIndex), sortField.getField());
+                    providers[readerIndex] = docID -> advanceExact(values, docID) ? Float.intBitsToFloat((int) values.longValue()) : missing;
+                }
+            }
+            break;
+
+            default:
+                throw new IllegalArgumentException("unhandled SortField.getType()=" + sortField.getType());
+        }
+
+        return providers;
+    }
+}
@@ -0,0 +1,139 @@
+package com.mythology.cloud.apollo.index;
+
+import com.mythology.cloud.apollo.codecs.DocValuesConsumer;
+import com.mythology.cloud.apollo.search.SortField;
+import com.mythology.cloud.apollo.util.ArrayUtil;
+import com.mythology.cloud.apollo.util.RamUsageEstimator;
+
+import java.io.IOException;
+
+/**
+ * Buffers up pending long per doc, then flushes when
+ * segment flushes.
+ */
+final class NumericDocValuesWriter extends DocValuesWriter {
+
+    private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(NumericDocValuesWriter.class);
+
+    private int[] docs = new int[16];
+    private long[] values = new long[16];
+    private int count;
+
+    NumericDocValuesWriter(FieldInfo fieldInfo) {
+        super(fieldInfo);
+    }
+
+    void addValue(int docID, long value) {
+        if (count > 0 && docID <= docs[count - 1]) {
+            throw new IllegalArgumentException("DocValuesField \"" + fieldInfo.name + "\" appears more than once in this document (only one value is allowed per field)");
+        }
+        if (count == docs.length) {
+            docs = ArrayUtil.grow(docs, count + 1);
+            values = ArrayUtil.growExact(values, docs.length);
+        }
+        docs[count] = docID;
+        values[count] = value;
+        count++;
+    }
+
+    /**
+     * Bulk version of {@link #addValue}: adds one value to each of the given
+     * docs, which must be in increasing order.
+     */
+    void addValues(int[] docIDs, long[] docValues, int num) {
+        if (num == 0) {
+            return;
+        }
+        if (count > 0 && docIDs[0] <= docs[count - 1]) {
+            throw new IllegalArgumentException("DocValuesField \"" + fieldInfo.name + "\" appears more than once in this document (only one value is allowed per field)");
+        }
+        if (count + num > docs.length) {
+            docs = ArrayUtil.grow(docs, count + num);
+            values = ArrayUtil.growExact(values, docs.length);
+        }
+        System.arraycopy(docIDs, 0, docs, count, num);
+        System.arraycopy(docValues, 0, values, count, num);
+        count += num;
+    }
+
+    @Override
+    Sorter.DocComparator getDocComparator(int maxDoc, SortField sortField) throws IOException {
+        return Sorter.getDocComparator(maxDoc, sortField, () -> null, () -> new BufferedNumericDocValues(docs, values, count));
+    }
+
+    @Override
+    void flush(int maxDoc, Sorter.DocMap sortMap, DocValuesConsumer consumer) throws IOException {
+        final int[] flushDocs;
+        final long[] flushValues;
+        if (sortMap == null) {
+            flushDocs = docs;
+            flushValues = values;
+        } else {
+            final int[] order = sortDocs(docs, count, sortMap);
+            flushDocs = mapDocs(docs, order, sortMap);
+            flushValues = new long[count];
+            for (int i = 0; i < count; i++) {
+                flushValues[i] = values[order[i]];
+            }
+        }
+        consumer.addNumericField(fieldInfo, new EmptyDocValuesProducer() {
+            @Override
+            public NumericDocValues getNumeric(FieldInfo field) {
+                return new BufferedNumericDocValues(flushDocs, flushValues, count);
+            }
+        });
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        return BASE_RAM_BYTES_USED + RamUsageEstimator.sizeOf(docs) + RamUsageEstimator.sizeOf(values);
+    }
+
+    // iterates over the values we have in ram
+    private static final class BufferedNumericDocValues extends NumericDocValues {
+        final int[] docs;
+        final long[] values;
+        final int count;
+        int index = -1;
+        int docID = -1;
+
+        BufferedNumericDocValues(int[] docs, long[] values, int count) {
+            this.docs = docs;
+            this.values = values;
+            this.count = count;
+        }
+
+        @Override
+        public int docID() {
+            return docID;
+        }
+
+        @Override
+        public int nextDoc() {
+            return docID = docAt(docs, count, ++index);
+        }
+
+        @Override
+        public int advance(int target) {
+            index = DocValuesWriter.advance(docs, count, Math.max(index, 0), target);
+            return docID = docAt(docs, count, index);
+        }
+
+        @Override
+        public boolean advanceExact(int target) {
+            index = DocValuesWriter.advance(docs, count, Math.max(index, 0), target);
+            docID = target;
+            return index < count && docs[index] == target;
+        }
+
+        @Override
+        public long cost() {
+            return count;
+        }
+
+        @Override
+        public long longValue() {
+            return values[index];
+        }
+    }
+}
@@ -0,0 +1,328 @@
+package com.mythology.cloud.apollo.index;
+
+import com.mythology.cloud.apollo.util.Accountable;
+import com.mythology.cloud.apollo.util.Accountables;
+import com.mythology.cloud.apollo.util.ArrayUtil;
+import com.mythology.cloud.apollo.util.BytesRef;
+import com.mythology.cloud.apollo.util.LongValues;
+import com.mythology.cloud.apollo.util.RamUsageEstimator;
+import com.mythology.cloud.apollo.util.packed.PackedInts;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Maps per-segment ordinals to/from global ordinal space, using a compact packed-ints representation.
+ * <p>
+ * Global ordinals are the ordinals of the union of the terms of all segments,
+ * in sorted order. Once the map is built, code that aggregates over a
+ * {@link SortedDocValues} or {@link SortedSetDocValues} field across segments
+ * (faceting, terms aggregations) can translate every segment ordinal with a
+ * single packed-ints lookup and count into one {@code int[]} of size
+ * {@link #getValueCount()}, instead of comparing {@link BytesRef}s per document:
+ * <pre class="prettyprint">
+ *   int[] counts = new int[(int) map.getValueCount()];
+ *   for (int i = 0; i &lt; leafValues.length; ++i) {
+ *     LongValues toGlobal = map.getGlobalOrds(i);
+ *     SortedSetDocValues dv = leafValues[i];
+ *     for (int doc = dv.nextDoc(); doc != NO_MORE_DOCS; doc = dv.nextDoc()) {
+ *       for (long ord = dv.nextOrd(); ord != NO_MORE_ORDS; ord = dv.nextOrd()) {
+ *         counts[(int) toGlobal.get(ord)]++;
+ *       }
+ *     }
+ *   }
+ * </pre>
+ * Building the map requires a merge of the terms of all segments, so it should
+ * be built once per reader and cached, see {@link OrdinalMapCache}.
+ * <p>
+ * 全局序号映射：把各段(segment)的局部序号映射到所有段合并后的有序词项空间，
+ * 使跨段的分面统计只需一次查表即可累加到同一个{@code int[]}，无需逐文档比较字节。
+ * </p>
+ *
+ * @lucene.internal
+ */
+public class OrdinalMap implements Accountable {
+
+    private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(OrdinalMap.class);
+
+    /**
+     * Read access to the sorted terms of one segment.
+     */
+    private static abstract class SegmentTerms {
+        abstract long getValueCount();
+
+        abstract BytesRef lookupOrd(long ord) throws IOException;
+    }
+
+    /**
+     * Cursor over the terms of one segment, used to merge all segments in a
+     * priority queue.
+     */
+    private static final class TermCursor {
+        final SegmentTerms terms;
+        final int segmentIndex;
+        long ord = -1;
+        BytesRef term;
+
+        TermCursor(SegmentTerms terms, int segmentIndex) {
+            this.terms = terms;
+            this.segmentIndex = segmentIndex;
+        }
+
+        boolean next() throws IOException {
+            if (++ord >= terms.getValueCount()) {
+                term = null;
+                return false;
+            }
+            term = terms.lookupOrd(ord);
+            return true;
+        }
+    }
+
+    /**
+     * Create an ordinal map for the given {@link SortedDocValues} instances.
+     *
+     * @param owner  a cache key
+     * @param values the values of every segment, in reader order; only
+     *               {@link SortedDocValues#lookupOrd(int)} and
+     *               {@link SortedDocValues#getValueCount()} are used
+     * @see #build(IndexReader.CacheKey, SortedSetDocValues[])
+     */
+    public static OrdinalMap build(IndexReader.CacheKey owner, SortedDocValues[] values) throws IOException {
+        final SegmentTerms[] segments = new SegmentTerms[values.length];
+        for (int i = 0; i < values.length; ++i) {
+            final SortedDocValues dv = values[i];
+            segments[i] = new SegmentTerms() {
+                @Override
+                long getValueCount() {
+                    return dv.getValueCount();
+                }
+
+                @Override
+                BytesRef lookupOrd(long ord) throws IOException {
+                    return dv.lookupOrd((int) ord);
+                }
+            };
+        }
+        return new OrdinalMap(owner, segments);
+    }
+
+    /**
+     * Create an ordinal map for the given {@link SortedSetDocValues} instances.
+     *
+     * @param owner  a cache key
+     * @param values the values of every segment, in reader order; only
+     *               {@link SortedSetDocValues#lookupOrd(long)} and
+     *               {@link SortedSetDocValues#getValueCount()} are used
+     */
+    public static OrdinalMap build(IndexReader.CacheKey owner, SortedSetDocValues[] values) throws IOException {
+        final SegmentTerms[] segments = new SegmentTerms[values.length];
+        for (int i = 0; i < values.length; ++i) {
+            final SortedSetDocValues dv = values[i];
+            segments[i] = new SegmentTerms() {
+                @Override
+                long getValueCount() {
+                    return dv.getValueCount();
+                }
+
+                @Override
+                BytesRef lookupOrd(long ord) throws IOException {
+                    return dv.lookupOrd(ord);
+                }
+            };
+        }
+        return new OrdinalMap(owner, segments);
+    }
+
+    /**
+     * Cache key of the reader this map was built for
+     */
+    public final IndexReader.CacheKey owner;
+    // number of global ordinals
+    final long valueCount;
+    // globalOrd -> (globalOrd - segmentOrd) where segmentOrd is the the ordinal in the first segment that contains this term
+    final PackedInts.Reader globalOrdDeltas;
+    // globalOrd -> first segment container
+    final PackedInts.Reader firstSegments;
+    // for every segment, segmentOrd -> globalOrd
+    final LongValues[] segmentToGlobalOrds;
+    // ram usage
+    final long ramBytesUsed;
+
+    OrdinalMap(IndexReader.CacheKey owner, SegmentTerms[] segments) throws IOException {
+        this.owner = owner;
+
+        // global ordinals are used as array indices by callers, so they are
+        // limited to the int space
+        long[][] ordDeltas = new long[segments.length][];
+        for (int i = 0; i < segments.length; ++i) {
+            ordDeltas[i] = new long[Math.toIntExact(segments[i].getValueCount())];
+        }
+        long[] globalOrdDeltasBuffer = new long[16];
+        int[] firstSegmentsBuffer = new int[16];
+
+        // merge the terms of all segments: ties are broken by segment index so
+        // that the first cursor that is popped for a term is its first segment
+        PriorityQueue<TermCursor> queue = new PriorityQueue<>(Math.max(1, segments.length), (a, b) -> {
+            int cmp = a.term.compareTo(b.term);
+            return cmp != 0 ? cmp : Integer.compare(a.segmentIndex, b.segmentIndex);
+        });
+        for (int i = 0; i < segments.length; ++i) {
+            TermCursor cursor = new TermCursor(segments[i], i);
+            if (cursor.next()) {
+                queue.add(cursor);
+            }
+        }
+
+        final List<TermCursor> matches = new ArrayList<>(segments.length);
+        int globalOrd = 0;
+        while (queue.isEmpty() == false) {
+            // pop all cursors that are positioned on the smallest term
+            TermCursor top = queue.poll();
+            matches.add(top);
+            while (queue.isEmpty() == false && queue.peek().term.equals(top.term)) {
+                matches.add(queue.poll());
+            }
+
+            globalOrdDeltasBuffer = ArrayUtil.grow(globalOrdDeltasBuffer, globalOrd + 1);
+            firstSegmentsBuffer = ArrayUtil.grow(firstSegmentsBuffer, globalOrd + 1);
+            globalOrdDeltasBuffer[globalOrd] = globalOrd - top.ord;
+            firstSegmentsBuffer[globalOrd] = top.segmentIndex;
+            for (TermCursor cursor : matches) {
+                ordDeltas[cursor.segmentIndex][(int) cursor.ord] = globalOrd - cursor.ord;
+            }
+
+            // the term of the top cursor is only valid until it is advanced
+            for (TermCursor cursor : matches) {
+                if (cursor.next()) {
+                    queue.add(cursor);
+                }
+            }
+            matches.clear();
+            if (globalOrd == Integer.MAX_VALUE) {
+                throw new IllegalStateException("Too many unique terms to build global ordinals: more than " + Integer.MAX_VALUE);
+            }
+            globalOrd++;
+        }
+        this.valueCount = globalOrd;
+
+        long ramBytesUsed = BASE_RAM_BYTES_USED + RamUsageEstimator.alignObjectSize(
+                RamUsageEstimator.NUM_BYTES_ARRAY_HEADER + (long) RamUsageEstimator.NUM_BYTES_OBJECT_REF * segments.length);
+        this.globalOrdDeltas = pack(globalOrdDeltasBuffer, globalOrd);
+        this.firstSegments = pack(firstSegmentsBuffer, globalOrd);
+        this.segmentToGlobalOrds = new LongValues[segments.length];
+        for (int i = 0; i < segments.length; ++i) {
+            final PackedInts.Reader deltas = pack(ordDeltas[i], ordDeltas[i].length);
+            if (deltas == null) {
+                // this segment has all the terms: the mapping is the identity
+                segmentToGlobalOrds[i] = LongValues.IDENTITY;
+            } else {
+                segmentToGlobalOrds[i] = new LongValues() {
+                    @Override
+                    public long get(long ord) {
+                        return ord + deltas.get((int) ord);
+                    }
+                };
+                ramBytesUsed += deltas.ramBytesUsed();
+            }
+        }
+        if (globalOrdDeltas != null) {
+            ramBytesUsed += globalOrdDeltas.ramBytesUsed();
+        }
+        if (firstSegments != null) {
+            ramBytesUsed += firstSegments.ramBytesUsed();
+        }
+        this.ramBytesUsed = ramBytesUsed;
+    }
+
+    /**
+     * Pack the first {@code size} values, or return {@code null} if they are all 0.
+     */
+    private static PackedInts.Reader pack(long[] values, int size) {
+        long max = 0;
+        for (int i = 0; i < size; ++i) {
+            max |= values[i];
+        }
+        if (max == 0) {
+            return null;
+        }
+        final PackedInts.Mutable packed = PackedInts.getMutable(size, PackedInts.unsignedBitsRequired(max));
+        for (int i = 0; i < size; ++i) {
+            packed.set(i, values[i]);
+        }
+        return packed;
+    }
+
+    private static PackedInts.Reader pack(int[] values, int size) {
+        int max = 0;
+        for (int i = 0; i < size; ++i) {
+            max |= values[i];
+        }
+        if (max == 0) {
+            return null;
+        }
+        final PackedInts.Mutable packed = PackedInts.getMutable(size, PackedInts.bitsRequired(max));
+        for (int i = 0; i < size; ++i) {
+            packed.set(i, values[i]);
+        }
+        return packed;
+    }
+
+    /**
+     * Given a segment number, return a {@link LongValues} instance that maps
+     * segment ordinals to global ordinals.
+     */
+    public LongValues getGlobalOrds(int segmentIndex) {
+        return segmentToGlobalOrds[segmentIndex];
+    }
+
+    /**
+     * Given global ordinal, returns the ordinal of the first segment which contains
+     * this ordinal (the corresponding to the segment return {@link #getFirstSegmentNumber}).
+     */
+    public long getFirstSegmentOrd(long globalOrd) {
+        if (globalOrdDeltas == null) {
+            return globalOrd;
+        }
+        return globalOrd - globalOrdDeltas.get((int) globalOrd);
+    }
+
+    /**
+     * Given a global ordinal, returns the index of the first
+     * segment that contains this term.
+     */
+    public int getFirstSegmentNumber(long globalOrd) {
+        if (firstSegments == null) {
+            return 0;
+        }
+        return (int) firstSegments.get((int) globalOrd);
+    }
+
+    /**
+     * Returns the total number of unique terms in global ord space.
+     */
+    public long getValueCount() {
+        return valueCount;
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        return ramBytesUsed;
+    }
+
+    @Override
+    public Collection<Accountable> getChildResources() {
+        List<Accountable> resources = new ArrayList<>();
+        if (globalOrdDeltas != null) {
+            resources.add(Accountables.namedAccountable("global ord deltas", globalOrdDeltas));
+        }
+        if (firstSegments != null) {
+            resources.add(Accountables.namedAccountable("first segments", firstSegments));
+        }
+        return Collections.unmodifiableList(resources);
+    }
+}
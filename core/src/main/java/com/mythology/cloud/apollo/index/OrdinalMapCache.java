@@ -0,0 +1,106 @@
+package com.mythology.cloud.apollo.index;
+
+import com.mythology.cloud.apollo.util.Accountable;
+import com.mythology.cloud.apollo.util.Accountables;
+import com.mythology.cloud.apollo.util.IOSupplier;
+import com.mythology.cloud.apollo.util.RamUsageEstimator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache of {@link OrdinalMap}s, keyed by {@link IndexReader.CacheKey} and field.
+ * <p>
+ * Maps are built lazily, the first time global ordinals are requested for a
+ * field of a given reader, and are evicted when the reader is closed thanks to
+ * a {@link IndexReader.ClosedListener} registered on the reader's
+ * {@link IndexReader.CacheHelper}. Concurrent requests for the same field of
+ * the same reader build the map only once.
+ * <p>
+ * 全局序号缓存：按读取器的缓存键和字段名懒加载构建{@link OrdinalMap}，并在读取器关闭时自动清除。
+ * </p>
+ *
+ * @lucene.experimental
+ */
+public final class OrdinalMapCache implements Accountable {
+
+    private final Map<IndexReader.CacheKey, Map<String, OrdinalMap>> cache = new ConcurrentHashMap<>();
+
+    /**
+     * Sole constructor.
+     */
+    public OrdinalMapCache() {
+    }
+
+    /**
+     * Return the {@link OrdinalMap} of {@code field} for the reader that
+     * {@code cacheHelper} belongs to, building it from the per-leaf values
+     * returned by {@code leafValues} if it is not cached yet.
+     *
+     * @param cacheHelper the {@link IndexReader#getReaderCacheHelper() cache helper} of the
+     *                    top-level reader, or {@code null} if the reader may not be cached on,
+     *                    in which case the map is built on every call
+     * @param field       the name of a {@link DocValuesType#SORTED} or {@link DocValuesType#SORTED_SET} field
+     * @param leafValues  supplies the values of every leaf, in reader order
+     */
+    public OrdinalMap getOrdinalMap(IndexReader.CacheHelper cacheHelper, String field,
+                                    IOSupplier<SortedSetDocValues[]> leafValues) throws IOException {
+        if (cacheHelper == null) {
+            return OrdinalMap.build(null, leafValues.get());
+        }
+        final IndexReader.CacheKey key = cacheHelper.getKey();
+        Map<String, OrdinalMap> fieldToMap = cache.get(key);
+        if (fieldToMap == null) {
+            final Map<String, OrdinalMap> newMap = new ConcurrentHashMap<>();
+            fieldToMap = cache.putIfAbsent(key, newMap);
+            if (fieldToMap == null) {
+                fieldToMap = newMap;
+                cacheHelper.addClosedListener(cache::remove);
+            }
+        }
+
+        OrdinalMap map = fieldToMap.get(field);
+        if (map == null) {
+            // building merges the terms of all leaves, make sure that
+            // concurrent callers don't do it twice
+            synchronized (fieldToMap) {
+                map = fieldToMap.get(field);
+                if (map == null) {
+                    map = OrdinalMap.build(key, leafValues.get());
+                    fieldToMap.put(field, map);
+                }
+            }
+        }
+        return map;
+    }
+
+    /**
+     * Evict all maps that were built for the given reader.
+     */
+    public void evict(IndexReader.CacheKey key) {
+        cache.remove(key);
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        long ramBytesUsed = 0;
+        for (Map<String, OrdinalMap> fieldToMap : cache.values()) {
+            ramBytesUsed += RamUsageEstimator.sizeOfMap(fieldToMap);
+        }
+        return ramBytesUsed;
+    }
+
+    @Override
+    public Collection<Accountable> getChildResources() {
+        List<Accountable> resources = new ArrayList<>();
+        for (Map<String, OrdinalMap> fieldToMap : cache.values()) {
+            resources.addAll(Accountables.namedAccountables("field", fieldToMap));
+        }
+        return Collections.unmodifiableList(resources);
+    }
+}
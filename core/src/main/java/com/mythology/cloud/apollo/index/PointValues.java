@@ -0,0 +1,142 @@
+package com.mythology.cloud.apollo.index;
+
+import java.io.IOException;
+
+/**
+ * Access to indexed numeric values.
+ * <p>
+ * Points represent numeric values and are indexed differently than ordinary text. Instead of an inverted index,
+ * points are indexed with datastructures such as <a href="https://en.wikipedia.org/wiki/K-d_tree">KD-trees</a>.
+ * These structures are optimized for operations such as <i>range</i>, <i>distance</i>, <i>nearest-neighbor</i>,
+ * and <i>point-in-polygon</i> queries.
+ * <h1>Basic Point Types</h1>
+ * A point is made of one to {@link #MAX_DIMENSIONS} dimensions of {@link IndexableFieldType#pointNumBytes()}
+ * bytes each. Values of every dimension are encoded so that comparing them as unsigned bytes
+ * gives the same result as comparing the original values, see
+ * {@link com.mythology.cloud.apollo.util.NumericUtils}.
+ * <p>
+ * Only the first {@link IndexableFieldType#pointIndexDimensionCount()} dimensions are used to
+ * organize the tree; the remaining data dimensions are only stored and passed to
+ * {@link IntersectVisitor#visit(int, byte[])}.
+ * <p>
+ * 点值(Point)的访问接口：数值和多维数值不走倒排索引，而是用KD树组织，范围、包围盒、距离查询只需访问相交的单元格。
+ * </p>
+ *
+ * @lucene.experimental
+ */
+public abstract class PointValues {
+
+    /**
+     * Maximum number of bytes for each dimension
+     */
+    public static final int MAX_NUM_BYTES = 16;
+
+    /**
+     * Maximum number of dimensions
+     */
+    public static final int MAX_DIMENSIONS = 8;
+
+    /**
+     * Default constructor
+     */
+    protected PointValues() {
+    }
+
+    /**
+     * Used by {@link #intersect} to check how each recursive cell corresponds to the query.
+     */
+    public enum Relation {
+        /**
+         * Return this if the cell is fully contained by the query
+         */
+        CELL_INSIDE_QUERY,
+        /**
+         * Return this if the cell and query do not overlap
+         */
+        CELL_OUTSIDE_QUERY,
+        /**
+         * Return this if the cell partially overlaps the query
+         */
+        CELL_CROSSES_QUERY
+    }
+
+    /**
+     * We recurse the BKD tree, using a provided instance of this to guide the recursion.
+     *
+     * @lucene.experimental
+     */
+    public interface IntersectVisitor {
+        /**
+         * Called for all documents in a leaf cell that's fully contained by the query.  The
+         * consumer should blindly accept the docID.
+         */
+        void visit(int docID) throws IOException;
+
+        /**
+         * Called for all documents in a leaf cell that crosses the query.  The consumer
+         * should scrutinize the packedValue to decide whether to accept it.
+         */
+        void visit(int docID, byte[] packedValue) throws IOException;
+
+        /**
+         * Called for non-leaf cells to test how the cell relates to the query, to
+         * determine how to further recurse down the tree.
+         */
+        Relation compare(byte[] minPackedValue, byte[] maxPackedValue);
+
+        /**
+         * Notifies the caller that this many documents are about to be visited
+         */
+        default void grow(int count) {
+        }
+    }
+
+    /**
+     * Finds all documents and points matching the provided visitor.
+     * This method does not enforce live documents, so it's up to the caller
+     * to test whether each document is deleted, if necessary.
+     */
+    public abstract void intersect(IntersectVisitor visitor) throws IOException;
+
+    /**
+     * Estimate the number of points that would be visited by {@link #intersect}
+     * with the given {@link IntersectVisitor}. This should run many times faster
+     * than {@link #intersect(IntersectVisitor)}.
+     */
+    public abstract long estimatePointCount(IntersectVisitor visitor);
+
+    /**
+     * Returns minimum value for each index dimension, packed, or null if {@link #size} is <code>0</code>
+     */
+    public abstract byte[] getMinPackedValue() throws IOException;
+
+    /**
+     * Returns maximum value for each index dimension, packed, or null if {@link #size} is <code>0</code>
+     */
+    public abstract byte[] getMaxPackedValue() throws IOException;
+
+    /**
+     * Returns how many data dimensions are represented in the values
+     */
+    public abstract int getNumDataDimensions() throws IOException;
+
+    /**
+     * Returns how many dimensions are used for the index
+     */
+    public abstract int getNumIndexDimensions() throws IOException;
+
+    /**
+     * Returns the number of bytes per dimension
+     */
+    public abstract int getBytesPerDimension() throws IOException;
+
+    /**
+     * Returns the total number of indexed points across all documents.
+     */
+    public abstract long size();
+
+    /**
+     * Returns the total number of documents that have indexed at least one point.
+     */
+    public abstract int getDocCount();
+}
@@ -0,0 +1,160 @@
+package com.mythology.cloud.apollo.index;
+
+import com.mythology.cloud.apollo.codecs.PointsWriter;
+import com.mythology.cloud.apollo.util.Accountable;
+import com.mythology.cloud.apollo.util.ArrayUtil;
+import com.mythology.cloud.apollo.util.BytesRef;
+import com.mythology.cloud.apollo.util.FutureArrays;
+import com.mythology.cloud.apollo.util.RamUsageEstimator;
+
+import java.io.IOException;
+
+/**
+ * Buffers up pending byte[][] value(s) per doc, then flushes when segment flushes.
+ */
+final class PointValuesWriter implements Accountable {
+
+    private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(PointValuesWriter.class);
+
+    private final FieldInfo fieldInfo;
+    private final int packedBytesLength;
+    private byte[] bytes = new byte[64];
+    private int[] docIDs = new int[16];
+    private int numPoints;
+    private int numDocs;
+    private int lastDocID = -1;
+
+    PointValuesWriter(FieldInfo fieldInfo) {
+        this.fieldInfo = fieldInfo;
+        this.packedBytesLength = fieldInfo.getPointDataDimensionCount() * fieldInfo.getPointNumBytes();
+    }
+
+    // TODO: if exactly the same value is added to exactly the same doc, should we dedup?
+    void addPackedValue(int docID, BytesRef value) {
+        if (value == null) {
+            throw new IllegalArgumentException("field=" + fieldInfo.name + ": point value must not be null");
+        }
+        if (value.length != packedBytesLength) {
+            throw new IllegalArgumentException("field=" + fieldInfo.name + ": this field's value has length=" + value.length + " but should be " + packedBytesLength);
+        }
+        if (numPoints == docIDs.length) {
+            docIDs = ArrayUtil.grow(docIDs, numPoints + 1);
+        }
+        bytes = ArrayUtil.grow(bytes, (numPoints + 1) * packedBytesLength);
+        System.arraycopy(value.bytes, value.offset, bytes, numPoints * packedBytesLength, packedBytesLength);
+        docIDs[numPoints] = docID;
+        if (docID != lastDocID) {
+            numDocs++;
+            lastDocID = docID;
+        }
+        numPoints++;
+    }
+
+    /**
+     * Bulk version of {@link #addPackedValue}: adds one point to each of the
+     * given docs, which must be in increasing order, {@code packedValues}
+     * holding the packed values of the points one after the other.
+     */
+    void addPackedValues(int[] docs, BytesRef packedValues, int num) {
+        if (packedValues.length != num * packedBytesLength) {
+            throw new IllegalArgumentException("field=" + fieldInfo.name + ": expected " + num + " values of length " + packedBytesLength + ", got " + packedValues.length + " bytes");
+        }
+        if (num == 0) {
+            return;
+        }
+        assert docs[0] >= lastDocID;
+        if (numPoints + num > docIDs.length) {
+            docIDs = ArrayUtil.grow(docIDs, numPoints + num);
+        }
+        bytes = ArrayUtil.grow(bytes, (numPoints + num) * packedBytesLength);
+        System.arraycopy(packedValues.bytes, packedValues.offset, bytes, numPoints * packedBytesLength, packedValues.length);
+        System.arraycopy(docs, 0, docIDs, numPoints, num);
+        numDocs += docs[0] == lastDocID ? num - 1 : num;
+        lastDocID = docs[num - 1];
+        numPoints += num;
+    }
+
+    /**
+     * Writes the buffered points with {@code writer}, renumbering the docs
+     * with {@code sortMap} unless it is null. Points do not need to be
+     * visited in doc ID order, so only their doc IDs are remapped.
+     */
+    void flush(PointsWriter writer, Sorter.DocMap sortMap) throws IOException {
+        final int numDataDims = fieldInfo.getPointDataDimensionCount();
+        final int bytesPerDim = fieldInfo.getPointNumBytes();
+        final byte[] minPackedValue = new byte[packedBytesLength];
+        final byte[] maxPackedValue = new byte[packedBytesLength];
+        System.arraycopy(bytes, 0, minPackedValue, 0, packedBytesLength);
+        System.arraycopy(bytes, 0, maxPackedValue, 0, packedBytesLength);
+        for (int i = 1; i < numPoints; i++) {
+            for (int dim = 0; dim < numDataDims; dim++) {
+                final int offset = i * packedBytesLength + dim * bytesPerDim;
+                final int dimOffset = dim * bytesPerDim;
+                if (FutureArrays.compareUnsigned(bytes, offset, offset + bytesPerDim, minPackedValue, dimOffset, dimOffset + bytesPerDim) < 0) {
+                    System.arraycopy(bytes, offset, minPackedValue, dimOffset, bytesPerDim);
+                } else if (FutureArrays.compareUnsigned(bytes, offset, offset + bytesPerDim, maxPackedValue, dimOffset, dimOffset + bytesPerDim) > 0) {
+                    System.arraycopy(bytes, offset, maxPackedValue, dimOffset, bytesPerDim);
+                }
+            }
+        }
+
+        final PointValues values = new PointValues() {
+            @Override
+            public void intersect(IntersectVisitor visitor) throws IOException {
+                final byte[] packedValue = new byte[packedBytesLength];
+                visitor.grow(numPoints);
+                for (int i = 0; i < numPoints; i++) {
+                    System.arraycopy(bytes, i * packedBytesLength, packedValue, 0, packedBytesLength);
+                    visitor.visit(sortMap == null ? docIDs[i] : sortMap.oldToNew(docIDs[i]), packedValue);
+                }
+            }
+
+            @Override
+            public long estimatePointCount(IntersectVisitor visitor) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public byte[] getMinPackedValue() {
+                return minPackedValue;
+            }
+
+            @Override
+            public byte[] getMaxPackedValue() {
+                return maxPackedValue;
+            }
+
+            @Override
+            public int getNumDataDimensions() {
+                return numDataDims;
+            }
+
+            @Override
+            public int getNumIndexDimensions() {
+                return fieldInfo.getPointIndexDimensionCount();
+            }
+
+            @Override
+            public int getBytesPerDimension() {
+                return bytesPerDim;
+            }
+
+            @Override
+            public long size() {
+                return numPoints;
+            }
+
+            @Override
+            public int getDocCount() {
+                return numDocs;
+            }
+        };
+
+        writer.writeField(fieldInfo, values);
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        return BASE_RAM_BYTES_USED + RamUsageEstimator.sizeOf(bytes) + RamUsageEstimator.sizeOf(docIDs);
+    }
+}
@@ -0,0 +1,317 @@
+package com.mythology.cloud.apollo.index;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The schema registry of an index, see {@link IndexWriter#getSchema()}.
+ * <p>
+ * Field types are interned by content: {@link #intern(IndexableFieldType)}
+ * returns the same immutable {@link Type} for all the field types that have
+ * the same properties, so that types can be compared by identity. A {@link Type}
+ * also precomputes its properties as bit {@link Type#flags() flags}, which the
+ * indexing chain tests instead of calling the {@link IndexableFieldType}
+ * methods of every field of every document; fields whose type is not a
+ * {@link Type} keep working, but do not get these shortcuts.
+ * <p>
+ * Field names get the same dense, index-wide numbers as their
+ * {@link FieldInfo#number}, see {@link #fieldNumber(String)}.
+ * <p>
+ * 索引的模式注册表：按内容驻留字段类型，相同属性的字段类型对应同一个不可变的{@link Type}，可按引用比较；
+ * {@link Type}预先把属性计算为位标志，索引链路直接检查标志而不必对每个文档的每个字段调用接口方法。
+ * 字段名的编号与其{@link FieldInfo#number}相同。
+ * </p>
+ *
+ * @lucene.experimental
+ */
+public final class Schema {
+
+    /**
+     * An immutable, interned field type. Two types of the same {@link Schema}
+     * are equal if and only if they are the same instance.
+     */
+    public static final class Type implements IndexableFieldType {
+
+        /**
+         * Flag of indexed types, whose {@link #indexOptions()} are not {@link IndexOptions#NONE}.
+         */
+        public static final int INDEXED = 1;
+        /**
+         * Flag of {@link #stored() stored} types.
+         */
+        public static final int STORED = 1 << 1;
+        /**
+         * Flag of {@link #tokenized() tokenized} types.
+         */
+        public static final int TOKENIZED = 1 << 2;
+        /**
+         * Flag of types that {@link #storeTermVectors() store term vectors}.
+         */
+        public static final int TERM_VECTORS = 1 << 3;
+        /**
+         * Flag of types that have doc values, whose {@link #docValuesType()} is not {@link DocValuesType#NONE}.
+         */
+        public static final int DOC_VALUES = 1 << 4;
+        /**
+         * Flag of types that index points, whose {@link #pointDataDimensionCount()} is not 0.
+         */
+        public static final int POINTS = 1 << 5;
+
+        private final Schema schema;
+        private final int flags;
+        private final boolean storeTermVectorOffsets;
+        private final boolean storeTermVectorPositions;
+        private final boolean storeTermVectorPayloads;
+        private final boolean omitNorms;
+        private final IndexOptions indexOptions;
+        private final DocValuesType docValuesType;
+        private final int pointDataDimensionCount;
+        private final int pointIndexDimensionCount;
+        private final int pointNumBytes;
+        private final Map<String, String> attributes;
+        private final int hashCode;
+
+        private Type(Schema schema, IndexableFieldType type) {
+            this.schema = schema;
+            this.flags = Schema.flags(type);
+            this.storeTermVectorOffsets = type.storeTermVectorOffsets();
+            this.storeTermVectorPositions = type.storeTermVectorPositions();
+            this.storeTermVectorPayloads = type.storeTermVectorPayloads();
+            this.omitNorms = type.omitNorms();
+            this.indexOptions = Objects.requireNonNull(type.indexOptions(), "indexOptions must not be null");
+            this.docValuesType = Objects.requireNonNull(type.docValuesType(), "docValuesType must not be null");
+            this.pointDataDimensionCount = type.pointDataDimensionCount();
+            this.pointIndexDimensionCount = type.pointIndexDimensionCount();
+            this.pointNumBytes = type.pointNumBytes();
+            final Map<String, String> attributes = type.getAttributes();
+            this.attributes = attributes == null || attributes.isEmpty()
+                    ? null
+                    : Collections.unmodifiableMap(new HashMap<>(attributes));
+            this.hashCode = computeHashCode();
+        }
+
+        /**
+         * The properties of this type, as a combination of {@link #INDEXED},
+         * {@link #STORED}, {@link #TOKENIZED}, {@link #TERM_VECTORS},
+         * {@link #DOC_VALUES} and {@link #POINTS}.
+         */
+        public int flags() {
+            return flags;
+        }
+
+        @Override
+        public boolean stored() {
+            return (flags & STORED) != 0;
+        }
+
+        @Override
+        public boolean tokenized() {
+            return (flags & TOKENIZED) != 0;
+        }
+
+        @Override
+        public boolean storeTermVectors() {
+            return (flags & TERM_VECTORS) != 0;
+        }
+
+        @Override
+        public boolean storeTermVectorOffsets() {
+            return storeTermVectorOffsets;
+        }
+
+        @Override
+        public boolean storeTermVectorPositions() {
+            return storeTermVectorPositions;
+        }
+
+        @Override
+        public boolean storeTermVectorPayloads() {
+            return storeTermVectorPayloads;
+        }
+
+        @Override
+        public boolean omitNorms() {
+            return omitNorms;
+        }
+
+        @Override
+        public IndexOptions indexOptions() {
+            return indexOptions;
+        }
+
+        @Override
+        public DocValuesType docValuesType() {
+            return docValuesType;
+        }
+
+        @Override
+        public int pointDataDimensionCount() {
+            return pointDataDimensionCount;
+        }
+
+        @Override
+        public int pointIndexDimensionCount() {
+            return pointIndexDimensionCount;
+        }
+
+        @Override
+        public int pointNumBytes() {
+            return pointNumBytes;
+        }
+
+        @Override
+        public Map<String, String> getAttributes() {
+            return attributes;
+        }
+
+        private int computeHashCode() {
+            int h = flags;
+            h = 31 * h + (storeTermVectorOffsets ? 1 : 0);
+            h = 31 * h + (storeTermVectorPositions ? 1 : 0);
+            h = 31 * h + (storeTermVectorPayloads ? 1 : 0);
+            h = 31 * h + (omitNorms ? 1 : 0);
+            h = 31 * h + indexOptions.hashCode();
+            h = 31 * h + docValuesType.hashCode();
+            h = 31 * h + pointDataDimensionCount;
+            h = 31 * h + pointIndexDimensionCount;
+            h = 31 * h + pointNumBytes;
+            h = 31 * h + Objects.hashCode(attributes);
+            return h;
+        }
+
+        // compares the properties, interned types are then equal iff they are the same instance
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null || obj.getClass() != Type.class) {
+                return false;
+            }
+            final Type other = (Type) obj;
+            return schema == other.schema
+                    && hashCode == other.hashCode
+                    && flags == other.flags
+                    && storeTermVectorOffsets == other.storeTermVectorOffsets
+                    && storeTermVectorPositions == other.storeTermVectorPositions
+                    && storeTermVectorPayloads == other.storeTermVectorPayloads
+                    && omitNorms == other.omitNorms
+                    && indexOptions == other.indexOptions
+                    && docValuesType == other.docValuesType
+                    && pointDataDimensionCount == other.pointDataDimensionCount
+                    && pointIndexDimensionCount == other.pointIndexDimensionCount
+                    && pointNumBytes == other.pointNumBytes
+                    && Objects.equals(attributes, other.attributes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public String toString() {
+            final StringJoiner sj = new StringJoiner(",", "Type(", ")");
+            if (stored()) {
+                sj.add("stored");
+            }
+            if (indexOptions != IndexOptions.NONE) {
+                sj.add("indexOptions=" + indexOptions);
+                if (tokenized()) {
+                    sj.add("tokenized");
+                }
+                if (omitNorms) {
+                    sj.add("omitNorms");
+                }
+            }
+            if (storeTermVectors()) {
+                sj.add("termVectors"
+                        + (storeTermVectorPositions ? "+positions" : "")
+                        + (storeTermVectorOffsets ? "+offsets" : "")
+                        + (storeTermVectorPayloads ? "+payloads" : ""));
+            }
+            if (docValuesType != DocValuesType.NONE) {
+                sj.add("docValuesType=" + docValuesType);
+            }
+            if (pointDataDimensionCount != 0) {
+                sj.add("pointDimensions=" + pointDataDimensionCount + "/" + pointIndexDimensionCount);
+                sj.add("pointNumBytes=" + pointNumBytes);
+            }
+            if (attributes != null) {
+                sj.add("attributes=" + attributes);
+            }
+            return sj.toString();
+        }
+    }
+
+    /**
+     * Compute the {@link Type#flags() flags} of any field type, reading them
+     * directly from interned types.
+     */
+    public static int flags(IndexableFieldType type) {
+        if (type instanceof Type) {
+            return ((Type) type).flags;
+        }
+        int flags = 0;
+        if (type.indexOptions() != IndexOptions.NONE) {
+            flags |= Type.INDEXED;
+        }
+        if (type.stored()) {
+            flags |= Type.STORED;
+        }
+        if (type.tokenized()) {
+            flags |= Type.TOKENIZED;
+        }
+        if (type.storeTermVectors()) {
+            flags |= Type.TERM_VECTORS;
+        }
+        if (type.docValuesType() != DocValuesType.NONE) {
+            flags |= Type.DOC_VALUES;
+        }
+        if (type.pointDataDimensionCount() != 0) {
+            flags |= Type.POINTS;
+        }
+        return flags;
+    }
+
+    private final FieldInfos.FieldNumbers fieldNumbers;
+    private final Map<Type, Type> types = new ConcurrentHashMap<>();
+
+    Schema(FieldInfos.FieldNumbers fieldNumbers) {
+        this.fieldNumbers = fieldNumbers;
+    }
+
+    /**
+     * Return the interned {@link Type} that has the same properties as the
+     * given field type, registering it if needed. The type is copied, later
+     * changes to a mutable field type do not affect the returned instance.
+     */
+    public Type intern(IndexableFieldType type) {
+        if (type instanceof Type && ((Type) type).schema == this) {
+            return (Type) type;
+        }
+        final Type key = new Type(this, type);
+        final Type existing = types.putIfAbsent(key, key);
+        return existing == null ? key : existing;
+    }
+
+    /**
+     * Return the number of distinct types of this schema.
+     */
+    public int numTypes() {
+        return types.size();
+    }
+
+    /**
+     * Return the index-wide number of the given field, which is also its
+     * {@link FieldInfo#number} in all segments, assigning one if the field is
+     * new. Numbers are dense, starting at 0.
+     */
+    public int fieldNumber(String name) {
+        return fieldNumbers.addOrGet(Objects.requireNonNull(name, "name must not be null"), -1, DocValuesType.NONE, 0, 0, 0);
+    }
+}
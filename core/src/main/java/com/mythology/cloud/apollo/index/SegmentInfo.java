@@ -0,0 +1,165 @@
+package com.mythology.cloud.apollo.index;
+
+import com.mythology.cloud.apollo.search.Sort;
+import com.mythology.cloud.apollo.store.Directory;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Information about a segment such as its name, directory, number of
+ * documents, the files that it is made of and the sort order of its
+ * documents.
+ * <p>
+ * 段信息：段名、所在目录、文档数、组成该段的文件、文档的排序方式以及诊断信息(例如产生该段的是刷新还是合并)。
+ * </p>
+ *
+ * @lucene.experimental
+ */
+public final class SegmentInfo {
+
+    /**
+     * Diagnostics key of the operation that created the segment.
+     */
+    public static final String SOURCE = "source";
+    /**
+     * Source of a segment that was flushed from the in-memory buffer.
+     */
+    public static final String SOURCE_FLUSH = "flush";
+    /**
+     * Source of a segment that was produced by a merge.
+     */
+    public static final String SOURCE_MERGE = "merge";
+
+    /**
+     * Unique segment name in the directory.
+     */
+    public final String name;
+
+    /**
+     * Where this segment resides.
+     */
+    public final Directory dir;
+
+    private final int maxDoc;
+    private final Set<String> files;
+    private final Map<String, String> diagnostics;
+    private final Sort indexSort;
+
+    // lazily computed
+    private volatile long sizeInBytes = -1;
+
+    /**
+     * Construct a new complete SegmentInfo instance from input, for a
+     * segment whose documents are not sorted.
+     */
+    public SegmentInfo(Directory dir, String name, int maxDoc, Set<String> files, Map<String, String> diagnostics) {
+        this(dir, name, maxDoc, files, diagnostics, null);
+    }
+
+    /**
+     * Construct a new complete SegmentInfo instance from input.
+     *
+     * @param indexSort the sort order of the documents of the segment, or
+     *                  null if they are in indexing order
+     */
+    public SegmentInfo(Directory dir, String name, int maxDoc, Set<String> files, Map<String, String> diagnostics, Sort indexSort) {
+        if (maxDoc <= 0) {
+            throw new IllegalArgumentException("maxDoc must be > 0, got " + maxDoc + " for segment " + name);
+        }
+        this.dir = dir;
+        this.name = name;
+        this.maxDoc = maxDoc;
+        this.files = Collections.unmodifiableSet(new TreeSet<>(files));
+        this.diagnostics = Collections.unmodifiableMap(new HashMap<>(diagnostics));
+        this.indexSort = indexSort;
+    }
+
+    /**
+     * Returns number of documents in this segment.
+     */
+    public int maxDoc() {
+        return maxDoc;
+    }
+
+    /**
+     * Return all files referenced by this SegmentInfo.
+     */
+    public Set<String> files() {
+        return files;
+    }
+
+    /**
+     * Returns diagnostics saved into the segment when it was written.
+     */
+    public Map<String, String> getDiagnostics() {
+        return diagnostics;
+    }
+
+    /**
+     * Return the sort order of this segment, or null if the index has no sort.
+     */
+    public Sort getIndexSort() {
+        return indexSort;
+    }
+
+    /**
+     * Returns total size in bytes of all files of this segment.
+     */
+    public long sizeInBytes() throws IOException {
+        if (sizeInBytes == -1) {
+            long sum = 0;
+            for (final String fileName : files) {
+                sum += dir.fileLength(fileName);
+            }
+            sizeInBytes = sum;
+        }
+        return sizeInBytes;
+    }
+
+    @Override
+    public String toString() {
+        return name + "(" + maxDoc + " docs" + (diagnostics.containsKey(SOURCE) ? ", " + diagnostics.get(SOURCE) : "")
+                + (indexSort != null ? ", sort=" + indexSort : "") + ")";
+    }
+
+    /**
+     * We consider another SegmentInfo instance equal if it
+     * has the same dir and same name.
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (obj instanceof SegmentInfo) {
+            final SegmentInfo other = (SegmentInfo) obj;
+            return other.dir == dir && other.name.equals(name);
+        } else {
+            return false;
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        return dir.hashCode() + name.hashCode();
+    }
+
+    /**
+     * Returns the names of the files of {@code segment} in {@code dir}.
+     * Codecs name all the files of a segment after the segment, followed by
+     * a dot and an extension.
+     */
+    static Set<String> listFiles(Directory dir, String segment) throws IOException {
+        final String prefix = segment + ".";
+        final Set<String> files = new TreeSet<>();
+        for (String file : dir.listAll()) {
+            if (file.startsWith(prefix)) {
+                files.add(file);
+            }
+        }
+        return files;
+    }
+}
@@ -0,0 +1,522 @@
+package com.mythology.cloud.apollo.index;
+
+import com.mythology.cloud.apollo.codecs.CodecUtil;
+import com.mythology.cloud.apollo.search.Sort;
+import com.mythology.cloud.apollo.search.SortField;
+import com.mythology.cloud.apollo.store.DataInput;
+import com.mythology.cloud.apollo.store.DataOutput;
+import com.mythology.cloud.apollo.store.Directory;
+import com.mythology.cloud.apollo.store.IndexInput;
+import com.mythology.cloud.apollo.store.IndexOutput;
+import com.mythology.cloud.apollo.util.IOUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A collection of segmentInfo objects with methods for operating on those
+ * segments in relation to the file system.
+ * <p>
+ * The active segments in the index are stored in the segment info file,
+ * <tt>segments_N</tt>. There may be one or more <tt>segments_N</tt> files in
+ * the index; however, the one with the largest generation is the active one
+ * (when older segments_N files are present it's because they temporarily
+ * cannot be deleted). A commit first writes <tt>pending_segments_N</tt>, then
+ * syncs the segment files and renames it, so that a crash never leaves a
+ * partially written commit behind.
+ * <p>
+ * Files:
+ * <ul>
+ * <li><tt>segments_N</tt>: Header, Counter, SegCount, &lt;SegName, MaxDoc, Files, Diagnostics, IndexSort&gt;<sup>SegCount</sup>, Footer</li>
+ * <li>Counter --&gt; {@link com.mythology.cloud.apollo.store.DataOutput#writeVLong VLong}, used to name new segments</li>
+ * <li>SegCount, MaxDoc --&gt; {@link com.mythology.cloud.apollo.store.DataOutput#writeVInt VInt}</li>
+ * <li>SegName --&gt; {@link com.mythology.cloud.apollo.store.DataOutput#writeString String}</li>
+ * <li>Files --&gt; {@link com.mythology.cloud.apollo.store.DataOutput#writeSetOfStrings Set&lt;String&gt;}</li>
+ * <li>Diagnostics --&gt; {@link com.mythology.cloud.apollo.store.DataOutput#writeMapOfStrings Map&lt;String,String&gt;}</li>
+ * <li>IndexSort --&gt; NumSortFields, &lt;FieldName, SortType, Reverse, MissingValue&gt;<sup>NumSortFields</sup>,
+ * where NumSortFields is 0 for segments that are not sorted</li>
+ * </ul>
+ * <p>
+ * 段集合：记录索引当前包含哪些段，提交时先写<tt>pending_segments_N</tt>，同步段文件后再重命名为<tt>segments_N</tt>。
+ * </p>
+ *
+ * @lucene.experimental
+ */
+public final class SegmentInfos implements Cloneable, Iterable<SegmentInfo> {
+
+    /**
+     * Name of the index segment file
+     */
+    public static final String SEGMENTS = "segments";
+
+    /**
+     * Name of pending index segment file
+     */
+    static final String PENDING_SEGMENTS = "pending_segments";
+
+    static final String CODEC_NAME = "segments";
+    static final int VERSION_START = 0;
+    static final int VERSION_INDEX_SORT = 1;
+    static final int VERSION_CURRENT = VERSION_INDEX_SORT;
+
+    /**
+     * Used to name new segments.
+     */
+    public long counter;
+
+    // generation of the "segments_N" for the next commit
+    private long generation;
+    // generation of the "segments_N" file we last successfully read or wrote
+    private long lastGeneration;
+
+    private List<SegmentInfo> segments = new ArrayList<>();
+
+    /**
+     * Sole constructor. Typically you call this and then
+     * use {@link #readLatestCommit(Directory)} to populate each
+     * {@link SegmentInfo}. Alternatively, you can add/remove your own
+     * {@link SegmentInfo}s.
+     */
+    public SegmentInfos() {
+    }
+
+    /**
+     * Returns the {@link SegmentInfo} at the provided index.
+     */
+    public SegmentInfo info(int i) {
+        return segments.get(i);
+    }
+
+    /**
+     * Get the generation of the most recent commit to the
+     * list of index files (N in the segments_N file).
+     *
+     * @param files -- array of file names to check
+     */
+    public static long getLastCommitGeneration(String[] files) {
+        long max = -1;
+        for (String file : files) {
+            if (file.startsWith(SEGMENTS + "_")) {
+                long gen = generationFromSegmentsFileName(file);
+                if (gen > max) {
+                    max = gen;
+                }
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Get the segments_N filename in use by this segment infos.
+     */
+    public String getSegmentsFileName() {
+        return fileNameFromGeneration(SEGMENTS, lastGeneration);
+    }
+
+    /**
+     * Parse the generation off the segments file name and
+     * return it.
+     */
+    public static long generationFromSegmentsFileName(String fileName) {
+        if (fileName.equals(SEGMENTS)) {
+            return 0;
+        } else if (fileName.startsWith(SEGMENTS + "_")) {
+            return Long.parseLong(fileName.substring(1 + SEGMENTS.length()), Character.MAX_RADIX);
+        } else {
+            throw new IllegalArgumentException("fileName \"" + fileName + "\" is not a segments file");
+        }
+    }
+
+    static String fileNameFromGeneration(String base, long gen) {
+        if (gen <= 0) {
+            return base;
+        }
+        return base + "_" + Long.toString(gen, Character.MAX_RADIX);
+    }
+
+    /**
+     * Returns the generation of the last commit that was read or written.
+     */
+    public long getGeneration() {
+        return lastGeneration;
+    }
+
+    /**
+     * Find the latest commit ({@code segments_N file}) and
+     * load all {@link SegmentInfo}s.
+     *
+     * @throws IndexNotFoundException if the directory holds no commit
+     */
+    public static SegmentInfos readLatestCommit(Directory directory) throws IOException {
+        final long gen = getLastCommitGeneration(directory.listAll());
+        if (gen == -1) {
+            throw new IndexNotFoundException("no segments* file found in " + directory);
+        }
+        return readCommit(directory, fileNameFromGeneration(SEGMENTS, gen));
+    }
+
+    /**
+     * Read a particular segmentFileName.  Note that this may
+     * throw an IOException if a commit is in process.
+     */
+    public static SegmentInfos readCommit(Directory directory, String segmentFileName) throws IOException {
+        final long generation = generationFromSegmentsFileName(segmentFileName);
+        try (IndexInput input = directory.openInput(segmentFileName)) {
+            final int format = CodecUtil.checkHeader(input, CODEC_NAME, VERSION_START, VERSION_CURRENT);
+            final SegmentInfos infos = new SegmentInfos();
+            infos.generation = generation;
+            infos.lastGeneration = generation;
+            infos.counter = input.readVLong();
+            final int numSegments = input.readVInt();
+            if (numSegments < 0) {
+                throw new CorruptIndexException("invalid segment count: " + numSegments, input);
+            }
+            for (int seg = 0; seg < numSegments; seg++) {
+                final String segName = input.readString();
+                final int maxDoc = input.readVInt();
+                if (maxDoc <= 0) {
+                    throw new CorruptIndexException("invalid maxDoc: " + maxDoc + " for segment " + segName, input);
+                }
+                final Set<String> files = input.readSetOfStrings();
+                final Map<String, String> diagnostics = input.readMapOfStrings();
+                final Sort indexSort = format >= VERSION_INDEX_SORT ? readIndexSort(input) : null;
+                infos.add(new SegmentInfo(directory, segName, maxDoc, files, diagnostics, indexSort));
+            }
+            CodecUtil.checkFooter(input);
+            return infos;
+        }
+    }
+
+    private static Sort readIndexSort(IndexInput input) throws IOException {
+        final int numSortFields = input.readVInt();
+        if (numSortFields == 0) {
+            return null;
+        }
+        final SortField[] sortFields = new SortField[numSortFields];
+        for (int i = 0; i < numSortFields; i++) {
+            final String fieldName = input.readString();
+            final int sortTypeID = input.readByte();
+            final SortField.Type sortType;
+            switch (sortTypeID) {
+                case 0:
+                    sortType = SortField.Type.STRING;
+                    break;
+                case 1:
+                    sortType = SortField.Type.LONG;
+                    break;
+                case 2:
+                    sortType = SortField.Type.INT;
+                    break;
+                case 3:
+                    sortType = SortField.Type.DOUBLE;
+                    break;
+                case 4:
+                    sortType = SortField.Type.FLOAT;
+                    break;
+                default:
+                    throw new CorruptIndexException("invalid index sort field type ID: " + sortTypeID, input);
+            }
+            final byte b = input.readByte();
+            final boolean reverse;
+            if (b == 0) {
+                reverse = true;
+            } else if (b == 1) {
+                reverse = false;
+            } else {
+                throw new CorruptIndexException("invalid index sort reverse: " + b, input);
+            }
+
+            sortFields[i] = new SortField(fieldName, sortType, reverse);
+            final Object missingValue = readMissingValue(input, sortType);
+            if (missingValue != null) {
+                sortFields[i].setMissingValue(missingValue);
+            }
+        }
+        return new Sort(sortFields);
+    }
+
+    private static Object readMissingValue(DataInput input, SortField.Type sortType) throws IOException {
+        final byte b = input.readByte();
+        if (b == 0) {
+            return null;
+        }
+        switch (sortType) {
+            case STRING:
+                if (b == 1) {
+                    return SortField.STRING_LAST;
+                } else if (b == 2) {
+                    return SortField.STRING_FIRST;
+                }
+                throw new CorruptIndexException("invalid missing value flag: " + b, input);
+            case LONG:
+                return input.readLong();
+            case INT:
+                return input.readInt();
+            case DOUBLE:
+                return Double.longBitsToDouble(input.readLong());
+            case FLOAT:
+                return Float.intBitsToFloat(input.readInt());
+            default:
+                throw new AssertionError("unhandled sortType=" + sortType);
+        }
+    }
+
+    private static void writeIndexSort(DataOutput output, Sort indexSort) throws IOException {
+        final int numSortFields = indexSort == null ? 0 : indexSort.getSort().length;
+        output.writeVInt(numSortFields);
+        for (int i = 0; i < numSortFields; ++i) {
+            final SortField sortField = indexSort.getSort()[i];
+            output.writeString(sortField.getField());
+            final int sortTypeID;
+            switch (sortField.getType()) {
+                case STRING:
+                    sortTypeID = 0;
+                    break;
+                case LONG:
+                    sortTypeID = 1;
+                    break;
+                case INT:
+                    sortTypeID = 2;
+                    break;
+                case DOUBLE:
+                    sortTypeID = 3;
+                    break;
+                case FLOAT:
+                    sortTypeID = 4;
+                    break;
+                default:
+                    throw new IllegalStateException("Unexpected sort type: " + sortField.getType());
+            }
+            output.writeByte((byte) sortTypeID);
+            output.writeByte((byte) (sortField.getReverse() ? 0 : 1));
+
+            // write missing value
+            final Object missingValue = sortField.getMissingValue();
+            if (missingValue == null) {
+                output.writeByte((byte) 0);
+            } else {
+                switch (sortField.getType()) {
+                    case STRING:
+                        if (missingValue == SortField.STRING_LAST) {
+                            output.writeByte((byte) 1);
+                        } else if (missingValue == SortField.STRING_FIRST) {
+                            output.writeByte((byte) 2);
+                        } else {
+                            throw new AssertionError("unrecognized missing value for STRING field \""
+                                    + sortField.getField() + "\": " + missingValue);
+                        }
+                        break;
+                    case LONG:
+                        output.writeByte((byte) 1);
+                        output.writeLong(((Long) missingValue).longValue());
+                        break;
+                    case INT:
+                        output.writeByte((byte) 1);
+                        output.writeInt(((Integer) missingValue).intValue());
+                        break;
+                    case DOUBLE:
+                        output.writeByte((byte) 1);
+                        output.writeLong(Double.doubleToLongBits(((Double) missingValue).doubleValue()));
+                        break;
+                    case FLOAT:
+                        output.writeByte((byte) 1);
+                        output.writeInt(Float.floatToIntBits(((Float) missingValue).floatValue()));
+                        break;
+                    default:
+                        throw new IllegalStateException("Unexpected sort type: " + sortField.getType());
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes this commit: the files of all segments are synced, and
+     * {@code segments_N} becomes visible atomically, by renaming a pending
+     * file, once everything it references is durable.
+     */
+    void commit(Directory directory) throws IOException {
+        final long nextGeneration = Math.max(generation, lastGeneration) + 1;
+        final String pendingFileName = fileNameFromGeneration(PENDING_SEGMENTS, nextGeneration);
+        boolean success = false;
+        try {
+            try (IndexOutput output = directory.createOutput(pendingFileName)) {
+                CodecUtil.writeHeader(output, CODEC_NAME, VERSION_CURRENT);
+                output.writeVLong(counter);
+                output.writeVInt(size());
+                for (SegmentInfo si : this) {
+                    output.writeString(si.name);
+                    output.writeVInt(si.maxDoc());
+                    output.writeSetOfStrings(si.files());
+                    output.writeMapOfStrings(si.getDiagnostics());
+                    writeIndexSort(output, si.getIndexSort());
+                }
+                CodecUtil.writeFooter(output);
+            }
+            final Set<String> toSync = new HashSet<>(files(false));
+            toSync.add(pendingFileName);
+            directory.sync(toSync);
+            final String segmentsFileName = fileNameFromGeneration(SEGMENTS, nextGeneration);
+            directory.rename(pendingFileName, segmentsFileName);
+            directory.sync(Collections.singleton(segmentsFileName));
+            success = true;
+        } finally {
+            if (success == false) {
+                IOUtils.deleteFilesIgnoringExceptions(directory, Collections.singleton(pendingFileName));
+            }
+        }
+        generation = nextGeneration;
+        lastGeneration = nextGeneration;
+    }
+
+    /**
+     * Carry over generation numbers from another SegmentInfos
+     */
+    void updateGeneration(SegmentInfos other) {
+        lastGeneration = other.lastGeneration;
+        generation = other.generation;
+    }
+
+    /**
+     * Returns all file names referenced by SegmentInfo.
+     * The returned collection is recomputed on each
+     * invocation.
+     */
+    public Collection<String> files(boolean includeSegmentsFile) {
+        final Set<String> files = new HashSet<>();
+        if (includeSegmentsFile && lastGeneration > 0) {
+            files.add(getSegmentsFileName());
+        }
+        for (SegmentInfo info : this) {
+            files.addAll(info.files());
+        }
+        return files;
+    }
+
+    /**
+     * Returns sum of all segment's maxDocs.
+     */
+    public int totalMaxDoc() {
+        long count = 0;
+        for (SegmentInfo info : this) {
+            count += info.maxDoc();
+        }
+        // we should never hit this, checks should happen elsewhere...
+        assert count <= IndexWriter.getActualMaxDocs();
+        return (int) count;
+    }
+
+    /**
+     * Returns a copy of this instance, also copying each
+     * SegmentInfo.
+     */
+    @Override
+    public SegmentInfos clone() {
+        try {
+            final SegmentInfos sis = (SegmentInfos) super.clone();
+            // deep clone, first recreate all collections:
+            sis.segments = new ArrayList<>(segments);
+            return sis;
+        } catch (CloneNotSupportedException e) {
+            throw new RuntimeException("should not happen", e);
+        }
+    }
+
+    /**
+     * Returns an <b>unmodifiable</b> {@link Iterator} of contained segments in order.
+     */
+    @Override
+    public Iterator<SegmentInfo> iterator() {
+        return asList().iterator();
+    }
+
+    /**
+     * Returns all contained segments as an <b>unmodifiable</b> {@link List} view.
+     */
+    public List<SegmentInfo> asList() {
+        return Collections.unmodifiableList(segments);
+    }
+
+    /**
+     * Returns number of {@link SegmentInfo}s.
+     */
+    public int size() {
+        return segments.size();
+    }
+
+    /**
+     * Appends the provided {@link SegmentInfo}.
+     */
+    public void add(SegmentInfo si) {
+        if (segments.contains(si)) {
+            throw new IllegalStateException("Cannot add the same segment two times to this SegmentInfos instance");
+        }
+        segments.add(si);
+    }
+
+    /**
+     * Clear all {@link SegmentInfo}s.
+     */
+    public void clear() {
+        segments.clear();
+    }
+
+    /**
+     * Remove the provided {@link SegmentInfo}.
+     */
+    public boolean remove(SegmentInfo si) {
+        return segments.remove(si);
+    }
+
+    /**
+     * Replaces all segments in this instance with the
+     * merged segment, which takes the position of the first
+     * segment of the merge.
+     */
+    void applyMergeChanges(MergePolicy.OneMerge merge, SegmentInfo mergedInfo) {
+        final Set<SegmentInfo> mergedAway = new HashSet<>(merge.segments);
+        boolean inserted = false;
+        int newSegIdx = 0;
+        for (int segIdx = 0, cnt = segments.size(); segIdx < cnt; segIdx++) {
+            assert segIdx >= newSegIdx;
+            final SegmentInfo info = segments.get(segIdx);
+            if (mergedAway.contains(info)) {
+                if (!inserted) {
+                    segments.set(segIdx, mergedInfo);
+                    inserted = true;
+                    newSegIdx++;
+                }
+            } else {
+                segments.set(newSegIdx, info);
+                newSegIdx++;
+            }
+        }
+
+        // the rest of the segments in list are leftovers of the compaction
+        segments.subList(newSegIdx, segments.size()).clear();
+
+        // the merged segments are always present, as only the writer that
+        // registered the merge removes segments
+        assert inserted;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder buffer = new StringBuilder();
+        buffer.append(getSegmentsFileName()).append(": ");
+        final int count = size();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                buffer.append(' ');
+            }
+            buffer.append(info(i));
+        }
+        return buffer.toString();
+    }
+}
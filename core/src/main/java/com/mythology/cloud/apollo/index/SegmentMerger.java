@@ -0,0 +1,196 @@
+package com.mythology.cloud.apollo.index;
+
+import com.mythology.cloud.apollo.codecs.DocValuesConsumer;
+import com.mythology.cloud.apollo.codecs.FieldInfosFormat;
+import com.mythology.cloud.apollo.codecs.FieldsConsumer;
+import com.mythology.cloud.apollo.codecs.PointsWriter;
+import com.mythology.cloud.apollo.codecs.PostingsWriterBase;
+import com.mythology.cloud.apollo.codecs.StoredFieldsWriter;
+import com.mythology.cloud.apollo.codecs.TermVectorsWriter;
+import com.mythology.cloud.apollo.codecs.blocktree.BlockTreeTermsFormat;
+import com.mythology.cloud.apollo.codecs.columnar.ColumnarDocValuesFormat;
+import com.mythology.cloud.apollo.codecs.compressing.CompressingStoredFieldsWriter;
+import com.mythology.cloud.apollo.codecs.points.BKDPointsFormat;
+import com.mythology.cloud.apollo.codecs.postings.BlockPostingsFormat;
+import com.mythology.cloud.apollo.codecs.vectors.BlockTermVectorsFormat;
+import com.mythology.cloud.apollo.search.Sort;
+import com.mythology.cloud.apollo.store.Directory;
+import com.mythology.cloud.apollo.util.IOUtils;
+import com.mythology.cloud.apollo.util.InfoStream;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * The SegmentMerger class combines two or more Segments, represented by a
+ * {@link SegmentReader}, into a single Segment.  Call the merge method to combine the
+ * segments.
+ * <p>
+ * 把多个段合并为一个新段：合并字段信息，再依次合并存储字段、倒排、DocValues、点数据和词向量。
+ * </p>
+ *
+ * @see #merge
+ */
+final class SegmentMerger {
+    private final Directory directory;
+
+    private final InfoStream infoStream;
+
+    final MergeState mergeState;
+    private final FieldInfos.Builder fieldInfosBuilder;
+
+    // note, just like in codec apis Directory 'dir' is NOT the same as segmentInfo.dir!!
+    SegmentMerger(List<SegmentReader> readers, String segmentName, Sort indexSort, InfoStream infoStream, Directory dir,
+                  FieldInfos.FieldNumbers fieldNumbers) throws IOException {
+        mergeState = new MergeState(readers, segmentName, indexSort, infoStream);
+        directory = dir;
+        this.infoStream = infoStream;
+        this.fieldInfosBuilder = new FieldInfos.Builder(fieldNumbers);
+    }
+
+    /**
+     * True if any merging should happen
+     */
+    boolean shouldMerge() {
+        return mergeState.maxDoc > 0;
+    }
+
+    /**
+     * Merges the readers into the directory passed to the constructor
+     *
+     * @return The number of documents that were merged
+     * @throws CorruptIndexException if the index is corrupt
+     * @throws IOException           if there is a low-level IO error
+     */
+    MergeState merge() throws IOException {
+        if (!shouldMerge()) {
+            throw new IllegalStateException("Merge would result in 0 document segment");
+        }
+        mergeFieldInfos();
+        final String segment = mergeState.segmentName;
+
+        long t0 = 0;
+        if (infoStream.isEnabled("SM")) {
+            t0 = System.nanoTime();
+        }
+        int numMerged = mergeFields();
+        if (infoStream.isEnabled("SM")) {
+            long t1 = System.nanoTime();
+            infoStream.message("SM", ((t1 - t0) / 1000000) + " msec to merge stored fields [" + numMerged + " docs]");
+        }
+        assert numMerged == mergeState.maxDoc : "numMerged=" + numMerged + " vs mergeState.maxDoc=" + mergeState.maxDoc;
+
+        if (hasPostings(mergeState.mergeFieldInfos)) {
+            if (infoStream.isEnabled("SM")) {
+                t0 = System.nanoTime();
+            }
+            mergeTerms();
+            if (infoStream.isEnabled("SM")) {
+                long t1 = System.nanoTime();
+                infoStream.message("SM", ((t1 - t0) / 1000000) + " msec to merge postings [" + numMerged + " docs]");
+            }
+        }
+
+        if (mergeState.mergeFieldInfos.hasDocValues()) {
+            if (infoStream.isEnabled("SM")) {
+                t0 = System.nanoTime();
+            }
+            try (DocValuesConsumer consumer = ColumnarDocValuesFormat.fieldsConsumer(directory, segment, mergeState.maxDoc)) {
+                consumer.merge(mergeState);
+            }
+            if (infoStream.isEnabled("SM")) {
+                long t1 = System.nanoTime();
+                infoStream.message("SM", ((t1 - t0) / 1000000) + " msec to merge doc values [" + numMerged + " docs]");
+            }
+        }
+
+        if (mergeState.mergeFieldInfos.hasPointValues()) {
+            if (infoStream.isEnabled("SM")) {
+                t0 = System.nanoTime();
+            }
+            try (PointsWriter writer = BKDPointsFormat.fieldsWriter(directory, segment, mergeState.maxDoc)) {
+                writer.merge(mergeState);
+            }
+            if (infoStream.isEnabled("SM")) {
+                long t1 = System.nanoTime();
+                infoStream.message("SM", ((t1 - t0) / 1000000) + " msec to merge points [" + numMerged + " docs]");
+            }
+        }
+
+        if (mergeState.mergeFieldInfos.hasVectors()) {
+            if (infoStream.isEnabled("SM")) {
+                t0 = System.nanoTime();
+            }
+            numMerged = mergeVectors();
+            if (infoStream.isEnabled("SM")) {
+                long t1 = System.nanoTime();
+                infoStream.message("SM", ((t1 - t0) / 1000000) + " msec to merge vectors [" + numMerged + " docs]");
+            }
+            assert numMerged == mergeState.maxDoc;
+        }
+
+        // write the merged infos
+        FieldInfosFormat.write(directory, segment, mergeState.mergeFieldInfos);
+
+        return mergeState;
+    }
+
+    private static boolean hasPostings(FieldInfos fieldInfos) {
+        for (FieldInfo fi : fieldInfos) {
+            if (fi.getIndexOptions() != IndexOptions.NONE) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void mergeFieldInfos() {
+        for (FieldInfos readerFieldInfos : mergeState.fieldInfos) {
+            for (FieldInfo fi : readerFieldInfos) {
+                fieldInfosBuilder.add(fi);
+            }
+        }
+        mergeState.mergeFieldInfos = fieldInfosBuilder.finish();
+    }
+
+    /**
+     * Merge stored fields from each of the segments into the new one.
+     *
+     * @return The number of documents in all of the readers
+     * @throws CorruptIndexException if the index is corrupt
+     * @throws IOException           if there is a low-level IO error
+     */
+    private int mergeFields() throws IOException {
+        try (StoredFieldsWriter fieldsWriter = new CompressingStoredFieldsWriter(directory, mergeState.segmentName)) {
+            return fieldsWriter.merge(mergeState);
+        }
+    }
+
+    /**
+     * Merge the TermVectors from each of the segments into the new one.
+     *
+     * @throws IOException if there is a low-level IO error
+     */
+    private int mergeVectors() throws IOException {
+        try (TermVectorsWriter termVectorsWriter = BlockTermVectorsFormat.vectorsWriter(directory, mergeState.segmentName)) {
+            return termVectorsWriter.merge(mergeState);
+        }
+    }
+
+    private void mergeTerms() throws IOException {
+        final String segment = mergeState.segmentName;
+        final FieldInfos infos = mergeState.mergeFieldInfos;
+        final PostingsWriterBase postingsWriter = BlockPostingsFormat.postingsWriter(directory, segment, infos);
+        FieldsConsumer consumer = null;
+        try {
+            consumer = BlockTreeTermsFormat.fieldsConsumer(directory, segment, infos, postingsWriter);
+        } finally {
+            if (consumer == null) {
+                IOUtils.closeWhileHandlingException(postingsWriter);
+            }
+        }
+        try (FieldsConsumer fieldsConsumer = consumer) {
+            fieldsConsumer.merge(mergeState);
+        }
+    }
+}
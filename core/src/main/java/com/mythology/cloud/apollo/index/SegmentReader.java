@@ -0,0 +1,238 @@
+package com.mythology.cloud.apollo.index;
+
+import com.mythology.cloud.apollo.codecs.DocValuesProducer;
+import com.mythology.cloud.apollo.codecs.FieldInfosFormat;
+import com.mythology.cloud.apollo.codecs.FieldsProducer;
+import com.mythology.cloud.apollo.codecs.PointsReader;
+import com.mythology.cloud.apollo.codecs.PostingsReaderBase;
+import com.mythology.cloud.apollo.codecs.StoredFieldsReader;
+import com.mythology.cloud.apollo.codecs.TermVectorsReader;
+import com.mythology.cloud.apollo.codecs.blocktree.BlockTreeTermsFormat;
+import com.mythology.cloud.apollo.codecs.columnar.ColumnarDocValuesFormat;
+import com.mythology.cloud.apollo.codecs.compressing.CompressingStoredFieldsReader;
+import com.mythology.cloud.apollo.codecs.points.BKDPointsFormat;
+import com.mythology.cloud.apollo.codecs.postings.BlockPostingsFormat;
+import com.mythology.cloud.apollo.codecs.vectors.BlockTermVectorsFormat;
+import com.mythology.cloud.apollo.store.Directory;
+import com.mythology.cloud.apollo.util.Accountable;
+import com.mythology.cloud.apollo.util.Accountables;
+import com.mythology.cloud.apollo.util.IOUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Opens the files of a segment written by {@link IndexWriter}, and gives
+ * access to the readers of each of its parts: the terms dictionary and
+ * postings, stored fields, doc values, points and term vectors. The readers
+ * of parts that the segment does not have are {@code null}.
+ * <p>
+ * 打开{@link IndexWriter}写出的段，提供词典与倒排、存储字段、DocValues、点数据和词向量各部分的读取器；
+ * 段中不存在的部分对应的读取器为{@code null}。
+ * </p>
+ *
+ * @lucene.experimental
+ */
+public final class SegmentReader implements Closeable, Accountable {
+
+    private final SegmentInfo si;
+    private final FieldInfos fieldInfos;
+
+    private final FieldsProducer fields;
+    private final StoredFieldsReader fieldsReader;
+    private final DocValuesProducer docValuesProducer;
+    private final PointsReader pointsReader;
+    private final TermVectorsReader termVectorsReader;
+
+    /**
+     * Opens the segment described by {@code si}.
+     *
+     * @throws CorruptIndexException if the index is corrupt
+     * @throws IOException           if there is a low-level IO error
+     */
+    public SegmentReader(SegmentInfo si) throws IOException {
+        this.si = si;
+        final Directory dir = si.dir;
+        final String segment = si.name;
+        fieldInfos = FieldInfosFormat.read(dir, segment);
+
+        FieldsProducer fields = null;
+        StoredFieldsReader fieldsReader = null;
+        DocValuesProducer docValuesProducer = null;
+        PointsReader pointsReader = null;
+        TermVectorsReader termVectorsReader = null;
+        boolean success = false;
+        try {
+            if (hasPostings(fieldInfos)) {
+                final PostingsReaderBase postingsReader = BlockPostingsFormat.postingsReader(dir, segment, fieldInfos);
+                try {
+                    fields = BlockTreeTermsFormat.fieldsProducer(dir, segment, fieldInfos, postingsReader);
+                } finally {
+                    if (fields == null) {
+                        IOUtils.closeWhileHandlingException(postingsReader);
+                    }
+                }
+            }
+            fieldsReader = new CompressingStoredFieldsReader(dir, segment, fieldInfos);
+            if (fieldInfos.hasDocValues()) {
+                docValuesProducer = ColumnarDocValuesFormat.fieldsProducer(dir, segment, fieldInfos, si.maxDoc());
+            }
+            if (fieldInfos.hasPointValues()) {
+                pointsReader = BKDPointsFormat.fieldsReader(dir, segment, fieldInfos);
+            }
+            if (fieldInfos.hasVectors()) {
+                termVectorsReader = BlockTermVectorsFormat.vectorsReader(dir, segment, fieldInfos);
+            }
+            success = true;
+        } finally {
+            if (success == false) {
+                IOUtils.closeWhileHandlingException(fields, fieldsReader, docValuesProducer, pointsReader, termVectorsReader);
+            }
+        }
+        this.fields = fields;
+        this.fieldsReader = fieldsReader;
+        this.docValuesProducer = docValuesProducer;
+        this.pointsReader = pointsReader;
+        this.termVectorsReader = termVectorsReader;
+    }
+
+    private static boolean hasPostings(FieldInfos fieldInfos) {
+        for (FieldInfo fi : fieldInfos) {
+            if (fi.getIndexOptions() != IndexOptions.NONE) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Return the SegmentInfo of the segment this reader is reading.
+     */
+    public SegmentInfo getSegmentInfo() {
+        return si;
+    }
+
+    /**
+     * Returns the number of documents in this segment.
+     */
+    public int maxDoc() {
+        return si.maxDoc();
+    }
+
+    /**
+     * Get the {@link FieldInfos} describing all fields in
+     * this reader.
+     */
+    public FieldInfos getFieldInfos() {
+        return fieldInfos;
+    }
+
+    /**
+     * Returns the {@link Terms} for this field, or null if the field has no
+     * postings.
+     */
+    public Terms terms(String field) throws IOException {
+        return fields == null ? null : fields.terms(field);
+    }
+
+    /**
+     * Expert: retrieve thread-private {@link StoredFieldsReader}.
+     */
+    public StoredFieldsReader getFieldsReader() {
+        return fieldsReader;
+    }
+
+    /**
+     * Expert: retrieve underlying FieldsProducer, or null if no field is
+     * indexed.
+     */
+    public FieldsProducer getPostingsReader() {
+        return fields;
+    }
+
+    /**
+     * Expert: retrieve underlying DocValuesProducer, or null if no field
+     * has doc values.
+     */
+    public DocValuesProducer getDocValuesReader() {
+        return docValuesProducer;
+    }
+
+    /**
+     * Expert: retrieve underlying PointsReader, or null if no field has
+     * points.
+     */
+    public PointsReader getPointsReader() {
+        return pointsReader;
+    }
+
+    /**
+     * Expert: retrieve underlying TermVectorsReader, or null if no field
+     * has term vectors.
+     */
+    public TermVectorsReader getTermVectorsReader() {
+        return termVectorsReader;
+    }
+
+    /**
+     * Expert: visits the fields of a stored document.
+     */
+    public void document(int docID, StoredFieldVisitor visitor) throws IOException {
+        if (docID < 0 || docID >= maxDoc()) {
+            throw new IndexOutOfBoundsException("docID must be >= 0 and < maxDoc=" + maxDoc() + " (got docID=" + docID + ")");
+        }
+        fieldsReader.visitDocument(docID, visitor);
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        long ramBytesUsed = 0;
+        if (fields != null) {
+            ramBytesUsed += fields.ramBytesUsed();
+        }
+        ramBytesUsed += fieldsReader.ramBytesUsed();
+        if (docValuesProducer != null) {
+            ramBytesUsed += docValuesProducer.ramBytesUsed();
+        }
+        if (pointsReader != null) {
+            ramBytesUsed += pointsReader.ramBytesUsed();
+        }
+        if (termVectorsReader != null) {
+            ramBytesUsed += termVectorsReader.ramBytesUsed();
+        }
+        return ramBytesUsed;
+    }
+
+    @Override
+    public Collection<Accountable> getChildResources() {
+        final List<Accountable> resources = new ArrayList<>();
+        if (fields != null) {
+            resources.add(Accountables.namedAccountable("postings", fields));
+        }
+        resources.add(Accountables.namedAccountable("stored fields", fieldsReader));
+        if (docValuesProducer != null) {
+            resources.add(Accountables.namedAccountable("docvalues", docValuesProducer));
+        }
+        if (pointsReader != null) {
+            resources.add(Accountables.namedAccountable("points", pointsReader));
+        }
+        if (termVectorsReader != null) {
+            resources.add(Accountables.namedAccountable("term vectors", termVectorsReader));
+        }
+        return Collections.unmodifiableList(resources);
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOUtils.close(fields, fieldsReader, docValuesProducer, pointsReader, termVectorsReader);
+    }
+
+    @Override
+    public String toString() {
+        return "SegmentReader(" + si + ")";
+    }
+}
@@ -0,0 +1,97 @@
+package com.mythology.cloud.apollo.index;
+
+import com.mythology.cloud.apollo.util.BytesRef;
+
+import java.io.IOException;
+
+/**
+ * A per-document byte[] with presorted values.  This is fundamentally an
+ * iterator over the int ord values per document, with random access APIs
+ * to resolve an int ord to BytesRef.
+ * <p>
+ * Per-Document values in a SortedDocValues are deduplicated, dereferenced,
+ * and sorted into a dictionary of unique values. A pointer to the
+ * dictionary value (ordinal) can be retrieved for each document. Ordinals
+ * are dense and in increasing sorted order.
+ * <p>
+ * 排序和分面只需比较序号(ordinal)，只有在需要输出结果时才通过{@link #lookupOrd(int)}解析为字节。
+ * </p>
+ */
+public abstract class SortedDocValues extends BinaryDocValues {
+
+    /**
+     * Sole constructor. (For invocation by subclass
+     * constructors, typically implicit.)
+     */
+    protected SortedDocValues() {
+    }
+
+    /**
+     * Returns the ordinal for the current docID.
+     * It is illegal to call this method after {@link #advanceExact(int)}
+     * returned {@code false}.
+     *
+     * @return ordinal for the document: this is dense, starts at 0, then
+     * increments by 1 for the next value in sorted order.
+     */
+    public abstract int ordValue() throws IOException;
+
+    /**
+     * Retrieves the value for the specified ordinal. The returned
+     * {@link BytesRef} may be re-used across calls to {@link #lookupOrd(int)}
+     * so make sure to {@link BytesRef#deepCopyOf(BytesRef) copy it} if you want
+     * to keep it around.
+     *
+     * @param ord ordinal to lookup (must be &gt;= 0 and &lt; {@link #getValueCount()})
+     * @see #ordValue()
+     */
+    public abstract BytesRef lookupOrd(int ord) throws IOException;
+
+    @Override
+    public BytesRef binaryValue() throws IOException {
+        int ord = ordValue();
+        if (ord == -1) {
+            return EMPTY_BYTES;
+        } else {
+            return lookupOrd(ord);
+        }
+    }
+
+    private static final BytesRef EMPTY_BYTES = new BytesRef();
+
+    /**
+     * Returns the number of unique values.
+     *
+     * @return number of unique values in this SortedDocValues. This is
+     * also equivalent to one plus the maximum ordinal.
+     */
+    public abstract int getValueCount();
+
+    /**
+     * If {@code key} exists, returns its ordinal, else
+     * returns {@code -insertionPoint-1}, like {@code
+     * Arrays.binarySearch}.
+     *
+     * @param key Key to look up
+     **/
+    public int lookupTerm(BytesRef key) throws IOException {
+        int low = 0;
+        int high = getValueCount() - 1;
+
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            final BytesRef term = lookupOrd(mid);
+            int cmp = term.compareTo(key);
+
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid; // key found
+            }
+        }
+
+        return -(low + 1);  // key not found.
+    }
+}
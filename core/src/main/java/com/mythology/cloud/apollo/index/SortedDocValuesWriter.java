@@ -0,0 +1,169 @@
+package com.mythology.cloud.apollo.index;
+
+import com.mythology.cloud.apollo.codecs.DocValuesConsumer;
+import com.mythology.cloud.apollo.search.SortField;
+import com.mythology.cloud.apollo.util.ArrayUtil;
+import com.mythology.cloud.apollo.util.BytesRef;
+import com.mythology.cloud.apollo.util.BytesRefHash;
+import com.mythology.cloud.apollo.util.RamUsageEstimator;
+
+import java.io.IOException;
+
+/**
+ * Buffers up pending byte[] per doc, deref and sorting via
+ * int ord, then flushes when segment flushes.
+ */
+final class SortedDocValuesWriter extends DocValuesWriter {
+
+    private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(SortedDocValuesWriter.class);
+
+    final BytesRefHash hash = new BytesRefHash();
+    private int[] docs = new int[16];
+    // id of the value of docs[i] in the hash
+    private int[] termIDs = new int[16];
+    private int count;
+    // computed once the values are final
+    private int[] sortedValues;
+    private int[] ordMap;
+
+    SortedDocValuesWriter(FieldInfo fieldInfo) {
+        super(fieldInfo);
+    }
+
+    void addValue(int docID, BytesRef value) {
+        if (count > 0 && docID <= docs[count - 1]) {
+            throw new IllegalArgumentException("DocValuesField \"" + fieldInfo.name + "\" appears more than once in this document (only one value is allowed per field)");
+        }
+        if (value == null) {
+            throw new IllegalArgumentException("field \"" + fieldInfo.name + "\": null value not allowed");
+        }
+        if (value.length > BytesRefHash.MAX_LENGTH) {
+            throw new IllegalArgumentException("DocValuesField \"" + fieldInfo.name + "\" is too large, must be <= " + BytesRefHash.MAX_LENGTH);
+        }
+        if (count == docs.length) {
+            docs = ArrayUtil.grow(docs, count + 1);
+            termIDs = ArrayUtil.growExact(termIDs, docs.length);
+        }
+        int termID = hash.add(value);
+        if (termID < 0) {
+            termID = -termID - 1;
+        }
+        docs[count] = docID;
+        termIDs[count] = termID;
+        count++;
+    }
+
+    private void finishOrds() {
+        if (sortedValues == null) {
+            sortedValues = hash.sort();
+            ordMap = new int[sortedValues.length];
+            for (int ord = 0; ord < sortedValues.length; ord++) {
+                ordMap[sortedValues[ord]] = ord;
+            }
+        }
+    }
+
+    @Override
+    Sorter.DocComparator getDocComparator(int maxDoc, SortField sortField) throws IOException {
+        finishOrds();
+        return Sorter.getDocComparator(maxDoc, sortField,
+                () -> new BufferedSortedDocValues(hash, sortedValues, ordMap, docs, termIDs, count), () -> null);
+    }
+
+    @Override
+    void flush(int maxDoc, Sorter.DocMap sortMap, DocValuesConsumer consumer) throws IOException {
+        finishOrds();
+        final int[] flushDocs;
+        final int[] flushTermIDs;
+        if (sortMap == null) {
+            flushDocs = docs;
+            flushTermIDs = termIDs;
+        } else {
+            final int[] order = sortDocs(docs, count, sortMap);
+            flushDocs = mapDocs(docs, order, sortMap);
+            flushTermIDs = new int[count];
+            for (int i = 0; i < count; i++) {
+                flushTermIDs[i] = termIDs[order[i]];
+            }
+        }
+        consumer.addSortedField(fieldInfo, new EmptyDocValuesProducer() {
+            @Override
+            public SortedDocValues getSorted(FieldInfo field) {
+                return new BufferedSortedDocValues(hash, sortedValues, ordMap, flushDocs, flushTermIDs, count);
+            }
+        });
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        return BASE_RAM_BYTES_USED + hash.ramBytesUsed() + RamUsageEstimator.sizeOf(docs) + RamUsageEstimator.sizeOf(termIDs);
+    }
+
+    // iterates over the values we have in ram
+    private static final class BufferedSortedDocValues extends SortedDocValues {
+        final BytesRefHash hash;
+        final BytesRef scratch = new BytesRef();
+        final int[] sortedValues;
+        final int[] ordMap;
+        final int[] docs;
+        final int[] termIDs;
+        final int count;
+        int index = -1;
+        int docID = -1;
+
+        BufferedSortedDocValues(BytesRefHash hash, int[] sortedValues, int[] ordMap, int[] docs, int[] termIDs, int count) {
+            this.hash = hash;
+            this.sortedValues = sortedValues;
+            this.ordMap = ordMap;
+            this.docs = docs;
+            this.termIDs = termIDs;
+            this.count = count;
+        }
+
+        @Override
+        public int docID() {
+            return docID;
+        }
+
+        @Override
+        public int nextDoc() {
+            return docID = docAt(docs, count, ++index);
+        }
+
+        @Override
+        public int advance(int target) {
+            index = DocValuesWriter.advance(docs, count, Math.max(index, 0), target);
+            return docID = docAt(docs, count, index);
+        }
+
+        @Override
+        public boolean advanceExact(int target) {
+            index = DocValuesWriter.advance(docs, count, Math.max(index, 0), target);
+            docID = target;
+            return index < count && docs[index] == target;
+        }
+
+        @Override
+        public long cost() {
+            return count;
+        }
+
+        @Override
+        public int ordValue() {
+            return ordMap[termIDs[index]];
+        }
+
+        @Override
+        public BytesRef lookupOrd(int ord) {
+            assert ord >= 0 && ord < sortedValues.length;
+            assert sortedValues[ord] >= 0 && sortedValues[ord] < sortedValues.length;
+            hash.get(sortedValues[ord], scratch);
+            return scratch;
+        }
+
+        @Override
+        public int getValueCount() {
+            return hash.size();
+        }
+    }
+}
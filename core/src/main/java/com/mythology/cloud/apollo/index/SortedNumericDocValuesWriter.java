@@ -0,0 +1,169 @@
+package com.mythology.cloud.apollo.index;
+
+import com.mythology.cloud.apollo.codecs.DocValuesConsumer;
+import com.mythology.cloud.apollo.util.ArrayUtil;
+import com.mythology.cloud.apollo.util.RamUsageEstimator;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Buffers up pending long[] per doc, sorts, then flushes when segment flushes.
+ */
+final class SortedNumericDocValuesWriter extends DocValuesWriter {
+
+    private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(SortedNumericDocValuesWriter.class);
+
+    private int[] docs = new int[16];
+    // values[ends[i-1]:ends[i]] are the values of docs[i]
+    private int[] ends = new int[16];
+    private long[] values = new long[16];
+    private int count;
+    private int numValues;
+
+    SortedNumericDocValuesWriter(FieldInfo fieldInfo) {
+        super(fieldInfo);
+    }
+
+    void addValue(int docID, long value) {
+        assert count == 0 || docID >= docs[count - 1];
+        if (count == 0 || docID != docs[count - 1]) {
+            // first value of the doc: values of the previous doc are final
+            if (count > 0) {
+                Arrays.sort(values, count == 1 ? 0 : ends[count - 2], ends[count - 1]);
+            }
+            if (count == docs.length) {
+                docs = ArrayUtil.grow(docs, count + 1);
+                ends = ArrayUtil.growExact(ends, docs.length);
+            }
+            docs[count++] = docID;
+        }
+        if (numValues == values.length) {
+            values = ArrayUtil.grow(values, numValues + 1);
+        }
+        values[numValues++] = value;
+        ends[count - 1] = numValues;
+    }
+
+    /**
+     * Bulk version of {@link #addValue}: adds a single value to each of the
+     * given docs, which must be in increasing order and greater than the docs
+     * that already have values.
+     */
+    void addValues(int[] docIDs, long[] docValues, int num) {
+        if (num == 0) {
+            return;
+        }
+        assert count == 0 || docIDs[0] > docs[count - 1];
+        if (count > 0) {
+            Arrays.sort(values, count == 1 ? 0 : ends[count - 2], ends[count - 1]);
+        }
+        if (count + num > docs.length) {
+            docs = ArrayUtil.grow(docs, count + num);
+            ends = ArrayUtil.growExact(ends, docs.length);
+        }
+        values = ArrayUtil.grow(values, numValues + num);
+        System.arraycopy(docIDs, 0, docs, count, num);
+        System.arraycopy(docValues, 0, values, numValues, num);
+        for (int i = 0; i < num; ++i) {
+            ends[count + i] = numValues + i + 1;
+        }
+        count += num;
+        numValues += num;
+    }
+
+    @Override
+    void flush(int maxDoc, Sorter.DocMap sortMap, DocValuesConsumer consumer) throws IOException {
+        if (count > 0) {
+            Arrays.sort(values, count == 1 ? 0 : ends[count - 2], ends[count - 1]);
+        }
+        final int[] flushDocs;
+        final int[] flushEnds;
+        final long[] flushValues;
+        if (sortMap == null) {
+            flushDocs = docs;
+            flushEnds = ends;
+            flushValues = values;
+        } else {
+            final int[] order = sortDocs(docs, count, sortMap);
+            flushDocs = mapDocs(docs, order, sortMap);
+            flushValues = new long[numValues];
+            flushEnds = permuteRanges(ends, order, values, flushValues);
+        }
+        consumer.addSortedNumericField(fieldInfo, new EmptyDocValuesProducer() {
+            @Override
+            public SortedNumericDocValues getSortedNumeric(FieldInfo field) {
+                return new BufferedSortedNumericDocValues(flushDocs, flushEnds, flushValues, count);
+            }
+        });
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        return BASE_RAM_BYTES_USED + RamUsageEstimator.sizeOf(docs) + RamUsageEstimator.sizeOf(ends) + RamUsageEstimator.sizeOf(values);
+    }
+
+    // iterates over the values we have in ram
+    private static final class BufferedSortedNumericDocValues extends SortedNumericDocValues {
+        final int[] docs;
+        final int[] ends;
+        final long[] values;
+        final int count;
+        int index = -1;
+        int docID = -1;
+        int valueUpto;
+
+        BufferedSortedNumericDocValues(int[] docs, int[] ends, long[] values, int count) {
+            this.docs = docs;
+            this.ends = ends;
+            this.values = values;
+            this.count = count;
+        }
+
+        private void setIndex(int index) {
+            this.index = index;
+            if (index < count) {
+                valueUpto = index == 0 ? 0 : ends[index - 1];
+            }
+        }
+
+        @Override
+        public int docID() {
+            return docID;
+        }
+
+        @Override
+        public int nextDoc() {
+            setIndex(index + 1);
+            return docID = docAt(docs, count, index);
+        }
+
+        @Override
+        public int advance(int target) {
+            setIndex(DocValuesWriter.advance(docs, count, Math.max(index, 0), target));
+            return docID = docAt(docs, count, index);
+        }
+
+        @Override
+        public boolean advanceExact(int target) {
+            setIndex(DocValuesWriter.advance(docs, count, Math.max(index, 0), target));
+            docID = target;
+            return index < count && docs[index] == target;
+        }
+
+        @Override
+        public long cost() {
+            return count;
+        }
+
+        @Override
+        public long nextValue() {
+            return values[valueUpto++];
+        }
+
+        @Override
+        public int docValueCount() {
+            return ends[index] - (index == 0 ? 0 : ends[index - 1]);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.mythology.cloud.apollo.index;
+
+import com.mythology.cloud.apollo.codecs.DocValuesConsumer;
+import com.mythology.cloud.apollo.util.ArrayUtil;
+import com.mythology.cloud.apollo.util.BytesRef;
+import com.mythology.cloud.apollo.util.BytesRefHash;
+import com.mythology.cloud.apollo.util.RamUsageEstimator;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Buffers up pending byte[]s per doc, deref and sorting via
+ * int ord, then flushes when segment flushes.
+ */
+final class SortedSetDocValuesWriter extends DocValuesWriter {
+
+    private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(SortedSetDocValuesWriter.class);
+
+    final BytesRefHash hash = new BytesRefHash();
+    private int[] docs = new int[16];
+    // termIDs[ends[i-1]:ends[i]] are the values of docs[i], in insertion order
+    private int[] ends = new int[16];
+    private int[] termIDs = new int[16];
+    private int count;
+    private int numValues;
+
+    SortedSetDocValuesWriter(FieldInfo fieldInfo) {
+        super(fieldInfo);
+    }
+
+    void addValue(int docID, BytesRef value) {
+        assert count == 0 || docID >= docs[count - 1];
+        if (value == null) {
+            throw new IllegalArgumentException("field \"" + fieldInfo.name + "\": null value not allowed");
+        }
+        if (value.length > BytesRefHash.MAX_LENGTH) {
+            throw new IllegalArgumentException("DocValuesField \"" + fieldInfo.name + "\" is too large, must be <= " + BytesRefHash.MAX_LENGTH);
+        }
+        if (count == 0 || docID != docs[count - 1]) {
+            if (count == docs.length) {
+                docs = ArrayUtil.grow(docs, count + 1);
+                ends = ArrayUtil.growExact(ends, docs.length);
+            }
+            docs[count++] = docID;
+        }
+        int termID = hash.add(value);
+        if (termID < 0) {
+            termID = -termID - 1;
+        }
+        if (numValues == termIDs.length) {
+            termIDs = ArrayUtil.grow(termIDs, numValues + 1);
+        }
+        termIDs[numValues++] = termID;
+        ends[count - 1] = numValues;
+    }
+
+    @Override
+    void flush(int maxDoc, Sorter.DocMap sortMap, DocValuesConsumer consumer) throws IOException {
+        final int[] sortedValues = hash.sort();
+        final int[] ordMap = new int[sortedValues.length];
+        for (int ord = 0; ord < sortedValues.length; ord++) {
+            ordMap[sortedValues[ord]] = ord;
+        }
+        // map to ords, then sort and dedup the ords of every doc, in place
+        final int[] ords = new int[numValues];
+        final int[] ordEnds = new int[count];
+        int upto = 0;
+        for (int i = 0; i < count; i++) {
+            final int start = i == 0 ? 0 : ends[i - 1];
+            final int docStart = upto;
+            for (int j = start; j < ends[i]; j++) {
+                ords[upto++] = ordMap[termIDs[j]];
+            }
+            Arrays.sort(ords, docStart, upto);
+            int unique = docStart + 1;
+            for (int j = docStart + 1; j < upto; j++) {
+                if (ords[j] != ords[unique - 1]) {
+                    ords[unique++] = ords[j];
+                }
+            }
+            upto = unique;
+            ordEnds[i] = upto;
+        }
+        final int[] flushDocs;
+        final int[] flushEnds;
+        final int[] flushOrds;
+        if (sortMap == null) {
+            flushDocs = docs;
+            flushEnds = ordEnds;
+            flushOrds = ords;
+        } else {
+            final int[] order = sortDocs(docs, count, sortMap);
+            flushDocs = mapDocs(docs, order, sortMap);
+            flushOrds = new int[upto];
+            flushEnds = permuteRanges(ordEnds, order, ords, flushOrds);
+        }
+        consumer.addSortedSetField(fieldInfo, new EmptyDocValuesProducer() {
+            @Override
+            public SortedSetDocValues getSortedSet(FieldInfo field) {
+                return new BufferedSortedSetDocValues(hash, sortedValues, flushDocs, flushEnds, flushOrds, count);
+            }
+        });
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        return BASE_RAM_BYTES_USED + hash.ramBytesUsed() + RamUsageEstimator.sizeOf(docs)
+                + RamUsageEstimator.sizeOf(ends) + RamUsageEstimator.sizeOf(termIDs);
+    }
+
+    // iterates over the values we have in ram
+    private static final class BufferedSortedSetDocValues extends SortedSetDocValues {
+        final BytesRefHash hash;
+        final BytesRef scratch = new BytesRef();
+        final int[] sortedValues;
+        final int[] docs;
+        final int[] ends;
+        final int[] ords;
+        final int count;
+        int index = -1;
+        int docID = -1;
+        int ordUpto;
+        int ordEnd;
+
+        BufferedSortedSetDocValues(BytesRefHash hash, int[] sortedValues, int[] docs, int[] ends, int[] ords, int count) {
+            this.hash = hash;
+            this.sortedValues = sortedValues;
+            this.docs = docs;
+            this.ends = ends;
+            this.ords = ords;
+            this.count = count;
+        }
+
+        private void setIndex(int index) {
+            this.index = index;
+            if (index < count) {
+                ordUpto = index == 0 ? 0 : ends[index - 1];
+                ordEnd = ends[index];
+            }
+        }
+
+        @Override
+        public int docID() {
+            return docID;
+        }
+
+        @Override
+        public int nextDoc() {
+            setIndex(index + 1);
+            return docID = docAt(docs, count, index);
+        }
+
+        @Override
+        public int advance(int target) {
+            setIndex(DocValuesWriter.advance(docs, count, Math.max(index, 0), target));
+            return docID = docAt(docs, count, index);
+        }
+
+        @Override
+        public boolean advanceExact(int target) {
+            setIndex(DocValuesWriter.advance(docs, count, Math.max(index, 0), target));
+            docID = target;
+            return index < count && docs[index] == target;
+        }
+
+        @Override
+        public long cost() {
+            return count;
+        }
+
+        @Override
+        public long nextOrd() {
+            if (ordUpto == ordEnd) {
+                return NO_MORE_ORDS;
+            } else {
+                return ords[ordUpto++];
+            }
+        }
+
+        @Override
+        public BytesRef lookupOrd(long ord) {
+            assert ord >= 0 && ord < sortedValues.length;
+            hash.get(sortedValues[(int) ord], scratch);
+            return scratch;
+        }
+
+        @Override
+        public long getValueCount() {
+            return hash.size();
+        }
+    }
+}
@@ -0,0 +1,359 @@
+package com.mythology.cloud.apollo.index;
+
+import com.mythology.cloud.apollo.search.DocIdSetIterator;
+import com.mythology.cloud.apollo.search.Sort;
+import com.mythology.cloud.apollo.search.SortField;
+import com.mythology.cloud.apollo.util.IOSupplier;
+import com.mythology.cloud.apollo.util.TimSorter;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Sorts documents of a given index by returning a permutation on the document
+ * IDs.
+ * <p>
+ * The permutation is computed with a {@link TimSorter} over the doc IDs, as
+ * documents are often added in an order that is close to the sort order,
+ * e.g. by timestamp, which TimSort sorts in close to linear time.
+ * <p>
+ * 按索引排序条件计算文档号的置换：用{@link TimSorter}对文档号排序，文档按接近排序顺序添加时(例如按时间戳)接近线性时间。
+ * </p>
+ *
+ * @lucene.experimental
+ */
+final class Sorter {
+    final Sort sort;
+
+    /**
+     * Creates a new Sorter to sort the index with {@code sort}
+     */
+    Sorter(Sort sort) {
+        if (sort.needsScores()) {
+            throw new IllegalArgumentException("Cannot sort an index with a Sort that refers to the relevance score");
+        }
+        this.sort = sort;
+    }
+
+    /**
+     * A permutation of doc IDs. For every document ID between <tt>0</tt> and
+     * {@code size()}, <code>oldToNew(newToOld(docID))</code> must
+     * return <code>docID</code>.
+     */
+    static abstract class DocMap {
+
+        /**
+         * Given a doc ID from the original index, return its ordinal in the
+         * sorted index.
+         */
+        abstract int oldToNew(int docID);
+
+        /**
+         * Given the ordinal of a doc ID, return its doc ID in the original index.
+         */
+        abstract int newToOld(int docID);
+
+        /**
+         * Return the number of documents in this map. This must be equal to the
+         * {@link SegmentReader#maxDoc() number of documents} of the
+         * segment which is sorted.
+         */
+        abstract int size();
+    }
+
+    /**
+     * Check consistency of a {@link DocMap}, useful for assertions.
+     */
+    static boolean isConsistent(DocMap docMap) {
+        final int maxDoc = docMap.size();
+        for (int i = 0; i < maxDoc; ++i) {
+            final int newID = docMap.oldToNew(i);
+            final int oldID = docMap.newToOld(newID);
+            assert newID >= 0 && newID < maxDoc : "doc IDs must be in [0-" + maxDoc + "[, got " + newID;
+            assert i == oldID : "mapping is inconsistent: " + i + " --oldToNew--> " + newID + " --newToOld--> " + oldID;
+            if (i != oldID || newID < 0 || newID >= maxDoc) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A comparator of doc IDs.
+     */
+    interface DocComparator {
+
+        /**
+         * Compare docID1 against docID2. The contract for the return value is the
+         * same as {@link java.util.Comparator#compare(Object, Object)}.
+         */
+        int compare(int docID1, int docID2);
+    }
+
+    private static final class DocValueSorter extends TimSorter {
+
+        private final int[] docs;
+        private final Sorter.DocComparator comparator;
+        private final int[] tmp;
+
+        DocValueSorter(int[] docs, Sorter.DocComparator comparator) {
+            super(docs.length / 64);
+            this.docs = docs;
+            this.comparator = comparator;
+            tmp = new int[docs.length / 64];
+        }
+
+        @Override
+        protected int compare(int i, int j) {
+            return comparator.compare(docs[i], docs[j]);
+        }
+
+        @Override
+        protected void swap(int i, int j) {
+            int tmpDoc = docs[i];
+            docs[i] = docs[j];
+            docs[j] = tmpDoc;
+        }
+
+        @Override
+        protected void copy(int src, int dest) {
+            docs[dest] = docs[src];
+        }
+
+        @Override
+        protected void save(int i, int len) {
+            System.arraycopy(docs, i, tmp, 0, len);
+        }
+
+        @Override
+        protected void restore(int i, int j) {
+            docs[j] = tmp[i];
+        }
+
+        @Override
+        protected int compareSaved(int i, int j) {
+            return comparator.compare(tmp[i], docs[j]);
+        }
+    }
+
+    /**
+     * Computes the old-to-new permutation over the given comparator.
+     */
+    private static Sorter.DocMap sort(final int maxDoc, DocComparator comparator) {
+        // check if the index is sorted
+        boolean sorted = true;
+        for (int i = 1; i < maxDoc; ++i) {
+            if (comparator.compare(i - 1, i) > 0) {
+                sorted = false;
+                break;
+            }
+        }
+        if (sorted) {
+            return null;
+        }
+
+        // sort doc IDs
+        final int[] docs = new int[maxDoc];
+        for (int i = 0; i < maxDoc; i++) {
+            docs[i] = i;
+        }
+
+        DocValueSorter sorter = new DocValueSorter(docs, comparator);
+        // It can be common to sort a reader, add docs, sort it again, ... and in
+        // that case timSort can save a lot of time
+        sorter.sort(0, docs.length); // docs is now the newToOld mapping
+
+        final int[] newToOld = docs;
+        final int[] oldToNew = new int[maxDoc];
+        for (int i = 0; i < maxDoc; ++i) {
+            oldToNew[newToOld[i]] = i;
+        }
+
+        return new Sorter.DocMap() {
+
+            @Override
+            public int oldToNew(int docID) {
+                return oldToNew[docID];
+            }
+
+            @Override
+            public int newToOld(int docID) {
+                return newToOld[docID];
+            }
+
+            @Override
+            public int size() {
+                return maxDoc;
+            }
+        };
+    }
+
+    /**
+     * Returns the doc values type that a field needs to be sorted by
+     * {@code sortField}.
+     *
+     * @throws IllegalArgumentException if the index can not be sorted by
+     *                                  {@code sortField}
+     */
+    static DocValuesType getDocValuesType(SortField sortField) {
+        switch (sortField.getType()) {
+            case STRING:
+                return DocValuesType.SORTED;
+            case INT:
+            case LONG:
+            case FLOAT:
+            case DOUBLE:
+                return DocValuesType.NUMERIC;
+            default:
+                throw new IllegalArgumentException("invalid SortField type: must be one of STRING, INT, LONG, FLOAT or DOUBLE but got: " + sortField);
+        }
+    }
+
+    /**
+     * Returns a comparator of the doc IDs of a segment with {@code maxDoc}
+     * documents, in the order of {@code sortField}. Only the supplier of the
+     * doc values type that the field is sorted by is used.
+     */
+    static DocComparator getDocComparator(int maxDoc, SortField sortField,
+                                          IOSupplier<SortedDocValues> sortedProvider,
+                                          IOSupplier<NumericDocValues> numericProvider) throws IOException {
+
+        final int reverseMul = sortField.getReverse() ? -1 : 1;
+        final Object missingValue = sortField.getMissingValue();
+
+        switch (sortField.getType()) {
+
+            case STRING: {
+                final SortedDocValues sorted = sortedProvider.get();
+                final int missingOrd;
+                if (missingValue == SortField.STRING_LAST) {
+                    missingOrd = Integer.MAX_VALUE;
+                } else {
+                    missingOrd = Integer.MIN_VALUE;
+                }
+
+                final int[] ords = new int[maxDoc];
+                Arrays.fill(ords, missingOrd);
+                int docID;
+                while ((docID = sorted.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
+                    ords[docID] = sorted.ordValue();
+                }
+
+                return (docID1, docID2) -> reverseMul * Integer.compare(ords[docID1], ords[docID2]);
+            }
+
+            case LONG: {
+                final NumericDocValues dvs = numericProvider.get();
+                long[] values = new long[maxDoc];
+                if (missingValue != null) {
+                    Arrays.fill(values, (Long) missingValue);
+                }
+                while (true) {
+                    int docID = dvs.nextDoc();
+                    if (docID == DocIdSetIterator.NO_MORE_DOCS) {
+                        break;
+                    }
+                    values[docID] = dvs.longValue();
+                }
+
+                return (docID1, docID2) -> reverseMul * Long.compare(values[docID1], values[docID2]);
+            }
+
+            case INT: {
+                final NumericDocValues dvs = numericProvider.get();
+                int[] values = new int[maxDoc];
+                if (missingValue != null) {
+                    Arrays.fill(values, (Integer) missingValue);
+                }
+
+                while (true) {
+                    int docID = dvs.nextDoc();
+                    if (docID == DocIdSetIterator.NO_MORE_DOCS) {
+                        break;
+                    }
+                    values[docID] = (int) dvs.longValue();
+                }
+
+                return (docID1, docID2) -> reverseMul * Integer.compare(values[docID1], values[docID2]);
+            }
+
+            case DOUBLE: {
+                final NumericDocValues dvs = numericProvider.get();
+                double[] values = new double[maxDoc];
+                if (missingValue != null) {
+                    Arrays.fill(values, (Double) missingValue);
+                }
+                while (true) {
+                    int docID = dvs.nextDoc();
+                    if (docID == DocIdSetIterator.NO_MORE_DOCS) {
+                        break;
+                    }
+                    values[docID] = Double.longBitsToDouble(dvs.longValue());
+                }
+
+                return (docID1, docID2) -> reverseMul * Double.compare(values[docID1], values[docID2]);
+            }
+
+            case FLOAT: {
+                final NumericDocValues dvs = numericProvider.get();
+                float[] values = new float[maxDoc];
+                if (missingValue != null) {
+                    Arrays.fill(values, (Float) missingValue);
+                }
+                while (true) {
+                    int docID = dvs.nextDoc();
+                    if (docID == DocIdSetIterator.NO_MORE_DOCS) {
+                        break;
+                    }
+                    values[docID] = Float.intBitsToFloat((int) dvs.longValue());
+                }
+
+                return (docID1, docID2) -> reverseMul * Float.compare(values[docID1], values[docID2]);
+            }
+
+            default:
+                throw new IllegalArgumentException("unhandled SortField.getType()=" + sortField.getType());
+        }
+    }
+
+    /**
+     * Returns a mapping from the old document ID to its new location in the
+     * sorted index, given one comparator per field of the sort. Implementations
+     * can use the auxiliary
+     * {@link #sort(int, DocComparator)} to compute the old-to-new permutation
+     * given a list of documents and their corresponding values.
+     * <p>
+     * A return value of <tt>null</tt> is allowed and means that
+     * the documents are already sorted.
+     */
+    DocMap sort(int maxDoc, DocComparator[] comparators) {
+        assert comparators.length == sort.getSort().length;
+        final DocComparator comparator = (docID1, docID2) -> {
+            for (DocComparator c : comparators) {
+                final int comp = c.compare(docID1, docID2);
+                if (comp != 0) {
+                    return comp;
+                }
+            }
+            return Integer.compare(docID1, docID2); // docid order tiebreak
+        };
+
+        return sort(maxDoc, comparator);
+    }
+
+    /**
+     * Returns the identifier of this {@link Sorter}.
+     * <p>This identifier is similar to {@link Object#hashCode()} and should be
+     * chosen so that two instances of this class that sort documents likewise
+     * will have the same identifier. On the contrary, this identifier should be
+     * different on different {@link Sort sorts}.
+     */
+    public String getID() {
+        return sort.toString();
+    }
+
+    @Override
+    public String toString() {
+        return getID();
+    }
+}
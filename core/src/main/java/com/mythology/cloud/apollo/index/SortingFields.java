@@ -0,0 +1,348 @@
+package com.mythology.cloud.apollo.index;
+
+import com.mythology.cloud.apollo.util.ArrayUtil;
+import com.mythology.cloud.apollo.util.BytesRef;
+import com.mythology.cloud.apollo.util.TimSorter;
+
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * A {@link Fields} view of the postings of an in-memory segment whose docs
+ * are renumbered with a {@link Sorter.DocMap} on flush. Terms are not
+ * affected, but the postings of every term are buffered and sorted by new
+ * doc ID, together with their positions, offsets and payloads, when they
+ * are requested.
+ * <p>
+ * 刷新排序段时的倒排视图：词项不变，每个词项的倒排表在被请求时整体缓冲，并连同位置、偏移和负载一起按新文档号排序。
+ * </p>
+ */
+final class SortingFields extends Fields {
+
+    private final Fields in;
+    private final Sorter.DocMap docMap;
+
+    SortingFields(Fields in, Sorter.DocMap docMap) {
+        this.in = in;
+        this.docMap = docMap;
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return in.iterator();
+    }
+
+    @Override
+    public Terms terms(String field) throws IOException {
+        final Terms terms = in.terms(field);
+        return terms == null ? null : new SortingTerms(terms, docMap);
+    }
+
+    @Override
+    public int size() {
+        return in.size();
+    }
+
+    private static final class SortingTerms extends Terms {
+
+        private final Terms in;
+        private final Sorter.DocMap docMap;
+
+        SortingTerms(Terms in, Sorter.DocMap docMap) {
+            this.in = in;
+            this.docMap = docMap;
+        }
+
+        @Override
+        public TermsEnum iterator() throws IOException {
+            return new SortingTermsEnum(in.iterator(), docMap);
+        }
+
+        @Override
+        public long size() throws IOException {
+            return in.size();
+        }
+
+        @Override
+        public long getSumTotalTermFreq() throws IOException {
+            return in.getSumTotalTermFreq();
+        }
+
+        @Override
+        public long getSumDocFreq() throws IOException {
+            return in.getSumDocFreq();
+        }
+
+        @Override
+        public int getDocCount() throws IOException {
+            return in.getDocCount();
+        }
+
+        @Override
+        public boolean hasFreqs() {
+            return in.hasFreqs();
+        }
+
+        @Override
+        public boolean hasOffsets() {
+            return in.hasOffsets();
+        }
+
+        @Override
+        public boolean hasPositions() {
+            return in.hasPositions();
+        }
+
+        @Override
+        public boolean hasPayloads() {
+            return in.hasPayloads();
+        }
+    }
+
+    private static final class SortingTermsEnum extends TermsEnum {
+
+        private final TermsEnum in;
+        private final Sorter.DocMap docMap;
+
+        SortingTermsEnum(TermsEnum in, Sorter.DocMap docMap) {
+            this.in = in;
+            this.docMap = docMap;
+        }
+
+        @Override
+        public SeekStatus seekCeil(BytesRef text) throws IOException {
+            return in.seekCeil(text);
+        }
+
+        @Override
+        public void seekExact(long ord) throws IOException {
+            in.seekExact(ord);
+        }
+
+        @Override
+        public BytesRef next() throws IOException {
+            return in.next();
+        }
+
+        @Override
+        public BytesRef term() throws IOException {
+            return in.term();
+        }
+
+        @Override
+        public long ord() throws IOException {
+            return in.ord();
+        }
+
+        @Override
+        public int docFreq() throws IOException {
+            return in.docFreq();
+        }
+
+        @Override
+        public long totalTermFreq() throws IOException {
+            return in.totalTermFreq();
+        }
+
+        @Override
+        public PostingsEnum postings(PostingsEnum reuse, int flags) throws IOException {
+            final SortingPostingsEnum postings;
+            if (reuse instanceof SortingPostingsEnum) {
+                postings = (SortingPostingsEnum) reuse;
+            } else {
+                postings = new SortingPostingsEnum(docMap);
+            }
+            postings.reset(in.postings(null, flags), flags);
+            return postings;
+        }
+    }
+
+    /**
+     * Buffers the postings of a term and replays them in new doc ID order.
+     */
+    private static final class SortingPostingsEnum extends PostingsEnum {
+
+        private final Sorter.DocMap docMap;
+
+        // new doc ID and entry index of the buffered docs, sorted by new doc ID
+        private int[] docs = new int[16];
+        private int[] entries = new int[16];
+        // freq and index of the first position of each entry, by entry index
+        private int[] freqs = new int[16];
+        private int[] posStarts = new int[16];
+        private int[] positions = new int[16];
+        private int[] startOffsets = new int[16];
+        private int[] endOffsets = new int[16];
+        private BytesRef[] payloads = new BytesRef[16];
+        private int numDocs;
+
+        private int upto;
+        private int docID;
+        private int posUpto;
+
+        private final DocSorter sorter;
+
+        SortingPostingsEnum(Sorter.DocMap docMap) {
+            this.docMap = docMap;
+            this.sorter = new DocSorter(docMap.size() / 64);
+        }
+
+        void reset(PostingsEnum in, int flags) throws IOException {
+            final boolean withFreqs = PostingsEnum.featureRequested(flags, PostingsEnum.FREQS);
+            final boolean withPositions = PostingsEnum.featureRequested(flags, PostingsEnum.POSITIONS);
+            final boolean withOffsets = PostingsEnum.featureRequested(flags, PostingsEnum.OFFSETS);
+            final boolean withPayloads = PostingsEnum.featureRequested(flags, PostingsEnum.PAYLOADS);
+            numDocs = 0;
+            int numPositions = 0;
+            for (int doc = in.nextDoc(); doc != NO_MORE_DOCS; doc = in.nextDoc()) {
+                if (numDocs == docs.length) {
+                    docs = ArrayUtil.grow(docs, numDocs + 1);
+                    entries = ArrayUtil.growExact(entries, docs.length);
+                    freqs = ArrayUtil.growExact(freqs, docs.length);
+                    posStarts = ArrayUtil.growExact(posStarts, docs.length);
+                }
+                final int freq = withFreqs ? in.freq() : 1;
+                docs[numDocs] = docMap.oldToNew(doc);
+                entries[numDocs] = numDocs;
+                freqs[numDocs] = freq;
+                posStarts[numDocs] = numPositions;
+                if (withPositions) {
+                    if (numPositions + freq > positions.length) {
+                        positions = ArrayUtil.grow(positions, numPositions + freq);
+                        startOffsets = ArrayUtil.growExact(startOffsets, positions.length);
+                        endOffsets = ArrayUtil.growExact(endOffsets, positions.length);
+                        payloads = ArrayUtil.growExact(payloads, positions.length);
+                    }
+                    for (int i = 0; i < freq; i++) {
+                        positions[numPositions] = in.nextPosition();
+                        if (withOffsets) {
+                            startOffsets[numPositions] = in.startOffset();
+                            endOffsets[numPositions] = in.endOffset();
+                        } else {
+                            startOffsets[numPositions] = endOffsets[numPositions] = -1;
+                        }
+                        BytesRef payload = null;
+                        if (withPayloads) {
+                            payload = in.getPayload();
+                            if (payload != null) {
+                                payload = BytesRef.deepCopyOf(payload);
+                            }
+                        }
+                        payloads[numPositions] = payload;
+                        numPositions++;
+                    }
+                }
+                numDocs++;
+            }
+            sorter.sort(0, numDocs);
+            upto = -1;
+            docID = -1;
+        }
+
+        @Override
+        public int docID() {
+            return docID;
+        }
+
+        @Override
+        public int nextDoc() {
+            if (++upto >= numDocs) {
+                return docID = NO_MORE_DOCS;
+            }
+            posUpto = posStarts[entries[upto]];
+            return docID = docs[upto];
+        }
+
+        @Override
+        public int advance(int target) {
+            // the consumer only iterates
+            int doc;
+            do {
+                doc = nextDoc();
+            } while (doc < target);
+            return doc;
+        }
+
+        @Override
+        public long cost() {
+            return numDocs;
+        }
+
+        @Override
+        public int freq() {
+            return freqs[entries[upto]];
+        }
+
+        @Override
+        public int nextPosition() {
+            return positions[posUpto++];
+        }
+
+        @Override
+        public int startOffset() {
+            return startOffsets[posUpto - 1];
+        }
+
+        @Override
+        public int endOffset() {
+            return endOffsets[posUpto - 1];
+        }
+
+        @Override
+        public BytesRef getPayload() {
+            return payloads[posUpto - 1];
+        }
+
+        // sorts docs and entries by doc; the postings of a term are often
+        // close to the sorted order already, which TimSorter takes advantage of
+        private final class DocSorter extends TimSorter {
+
+            private final int[] tmpDocs;
+            private final int[] tmpEntries;
+
+            DocSorter(int maxTempSlots) {
+                super(maxTempSlots);
+                tmpDocs = new int[maxTempSlots];
+                tmpEntries = new int[maxTempSlots];
+            }
+
+            @Override
+            protected int compare(int i, int j) {
+                return Integer.compare(docs[i], docs[j]);
+            }
+
+            @Override
+            protected void swap(int i, int j) {
+                final int tmpDoc = docs[i];
+                docs[i] = docs[j];
+                docs[j] = tmpDoc;
+                final int tmpEntry = entries[i];
+                entries[i] = entries[j];
+                entries[j] = tmpEntry;
+            }
+
+            @Override
+            protected void copy(int src, int dest) {
+                docs[dest] = docs[src];
+                entries[dest] = entries[src];
+            }
+
+            @Override
+            protected void save(int i, int len) {
+                System.arraycopy(docs, i, tmpDocs, 0, len);
+                System.arraycopy(entries, i, tmpEntries, 0, len);
+            }
+
+            @Override
+            protected void restore(int i, int j) {
+                docs[j] = tmpDocs[i];
+                entries[j] = tmpEntries[i];
+            }
+
+            @Override
+            protected int compareSaved(int i, int j) {
+                return Integer.compare(tmpDocs[i], docs[j]);
+            }
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.mythology.cloud.apollo.index;
+
+import com.mythology.cloud.apollo.codecs.StoredFieldsReader;
+import com.mythology.cloud.apollo.codecs.StoredFieldsWriter;
+import com.mythology.cloud.apollo.codecs.compressing.CompressingStoredFieldsReader;
+import com.mythology.cloud.apollo.codecs.compressing.CompressingStoredFieldsWriter;
+import com.mythology.cloud.apollo.store.Directory;
+import com.mythology.cloud.apollo.store.TrackingDirectoryWrapper;
+import com.mythology.cloud.apollo.util.BytesRef;
+import com.mythology.cloud.apollo.util.IOUtils;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Stored fields of an in-memory segment of a sorted index. Documents are
+ * buffered in a temporary segment in indexing order, and copied to the
+ * actual segment in the sorted order on flush, after which the temporary
+ * files are deleted.
+ * <p>
+ * 排序索引中内存段的存储字段：文档先按索引顺序写入临时段，刷新时按排序后的顺序复制到真正的段，再删除临时文件。
+ * </p>
+ */
+final class SortingStoredFieldsConsumer extends StoredFieldsConsumer {
+
+    // directory and name of the actual segment
+    private final Directory segmentDirectory;
+    private final String segmentName;
+    private final TrackingDirectoryWrapper tmpDirectory;
+
+    SortingStoredFieldsConsumer(Directory directory, String segment) {
+        super(new TrackingDirectoryWrapper(directory), segment + "_sort");
+        this.segmentDirectory = directory;
+        this.segmentName = segment;
+        this.tmpDirectory = (TrackingDirectoryWrapper) this.directory;
+    }
+
+    @Override
+    void flush(FieldInfos fieldInfos, int numDocs, Sorter.DocMap sortMap) throws IOException {
+        try {
+            writer.finish(fieldInfos, numDocs);
+        } finally {
+            IOUtils.close(writer);
+            writer = null;
+        }
+        try (StoredFieldsReader reader = new CompressingStoredFieldsReader(tmpDirectory, segment, fieldInfos);
+             StoredFieldsWriter sortWriter = new CompressingStoredFieldsWriter(segmentDirectory, segmentName)) {
+            final CopyVisitor visitor = new CopyVisitor(sortWriter);
+            for (int docID = 0; docID < numDocs; docID++) {
+                sortWriter.startDocument();
+                reader.visitDocument(sortMap == null ? docID : sortMap.newToOld(docID), visitor);
+                sortWriter.finishDocument();
+            }
+            sortWriter.finish(fieldInfos, numDocs);
+        } finally {
+            IOUtils.deleteFilesIgnoringExceptions(tmpDirectory, tmpDirectory.getCreatedFiles());
+        }
+    }
+
+    @Override
+    void abort() {
+        super.abort();
+        IOUtils.deleteFilesIgnoringExceptions(tmpDirectory, tmpDirectory.getCreatedFiles());
+    }
+
+    /**
+     * A visitor that copies every field it sees in the given writer.
+     */
+    private static class CopyVisitor extends StoredFieldVisitor implements IndexableField {
+        final StoredFieldsWriter writer;
+        BytesRef binaryValue;
+        String stringValue;
+        Number numericValue;
+        FieldInfo currentField;
+
+        CopyVisitor(StoredFieldsWriter writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void binaryField(FieldInfo fieldInfo, byte[] value) throws IOException {
+            binaryField(fieldInfo, new BytesRef(value));
+        }
+
+        @Override
+        public void binaryField(FieldInfo fieldInfo, BytesRef value) throws IOException {
+            reset(fieldInfo);
+            // the value is written before this call returns, no need to copy it
+            binaryValue = value;
+            write();
+        }
+
+        @Override
+        public void stringField(FieldInfo fieldInfo, byte[] value) throws IOException {
+            stringField(fieldInfo, new BytesRef(value));
+        }
+
+        @Override
+        public void stringField(FieldInfo fieldInfo, BytesRef value) throws IOException {
+            reset(fieldInfo);
+            stringValue = value.utf8ToString();
+            write();
+        }
+
+        @Override
+        public void intField(FieldInfo fieldInfo, int value) throws IOException {
+            reset(fieldInfo);
+            numericValue = value;
+            write();
+        }
+
+        @Override
+        public void longField(FieldInfo fieldInfo, long value) throws IOException {
+            reset(fieldInfo);
+            numericValue = value;
+            write();
+        }
+
+        @Override
+        public void floatField(FieldInfo fieldInfo, float value) throws IOException {
+            reset(fieldInfo);
+            numericValue = value;
+            write();
+        }
+
+        @Override
+        public void doubleField(FieldInfo fieldInfo, double value) throws IOException {
+            reset(fieldInfo);
+            numericValue = value;
+            write();
+        }
+
+        @Override
+        public Status needsField(FieldInfo fieldInfo) throws IOException {
+            return Status.YES;
+        }
+
+        @Override
+        public String name() {
+            return currentField.name;
+        }
+
+        @Override
+        public IndexableFieldType fieldType() {
+            // only the value of a stored field is known when it is read back
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public BytesRef binaryValue() {
+            return binaryValue;
+        }
+
+        @Override
+        public String stringValue() {
+            return stringValue;
+        }
+
+        @Override
+        public Number numericValue() {
+            return numericValue;
+        }
+
+        @Override
+        public Reader readerValue() {
+            return null;
+        }
+
+        void reset(FieldInfo field) {
+            currentField = field;
+            binaryValue = null;
+            stringValue = null;
+            numericValue = null;
+        }
+
+        void write() throws IOException {
+            writer.writeField(currentField, this);
+        }
+    }
+}
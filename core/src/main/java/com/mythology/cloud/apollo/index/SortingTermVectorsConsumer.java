@@ -0,0 +1,56 @@
+package com.mythology.cloud.apollo.index;
+
+import com.mythology.cloud.apollo.codecs.TermVectorsReader;
+import com.mythology.cloud.apollo.codecs.TermVectorsWriter;
+import com.mythology.cloud.apollo.codecs.vectors.BlockTermVectorsFormat;
+import com.mythology.cloud.apollo.store.Directory;
+import com.mythology.cloud.apollo.store.TrackingDirectoryWrapper;
+import com.mythology.cloud.apollo.util.IOUtils;
+
+import java.io.IOException;
+
+/**
+ * Term vectors of an in-memory segment of a sorted index. Vectors are
+ * buffered in a temporary segment in indexing order, and copied to the
+ * actual segment in the sorted order on flush, after which the temporary
+ * files are deleted.
+ * <p>
+ * 排序索引中内存段的词向量：先按索引顺序写入临时段，刷新时按排序后的顺序复制到真正的段，再删除临时文件。
+ * </p>
+ */
+final class SortingTermVectorsConsumer extends TermVectorsConsumer {
+
+    // directory and name of the actual segment
+    private final Directory segmentDirectory;
+    private final String segmentName;
+    private final TrackingDirectoryWrapper tmpDirectory;
+
+    SortingTermVectorsConsumer(Directory directory, String segment) {
+        super(new TrackingDirectoryWrapper(directory), segment + "_sort");
+        this.segmentDirectory = directory;
+        this.segmentName = segment;
+        this.tmpDirectory = (TrackingDirectoryWrapper) this.directory;
+    }
+
+    @Override
+    void flush(FieldInfos fieldInfos, int numDocs, Sorter.DocMap sortMap) throws IOException {
+        if (finish(fieldInfos, numDocs) == false) {
+            return;
+        }
+        try (TermVectorsReader reader = BlockTermVectorsFormat.vectorsReader(tmpDirectory, segment, fieldInfos);
+             TermVectorsWriter sortWriter = BlockTermVectorsFormat.vectorsWriter(segmentDirectory, segmentName)) {
+            for (int docID = 0; docID < numDocs; docID++) {
+                sortWriter.addAllDocVectors(reader.get(sortMap == null ? docID : sortMap.newToOld(docID)), fieldInfos);
+            }
+            sortWriter.finish(fieldInfos, numDocs);
+        } finally {
+            IOUtils.deleteFilesIgnoringExceptions(tmpDirectory, tmpDirectory.getCreatedFiles());
+        }
+    }
+
+    @Override
+    void abort() {
+        super.abort();
+        IOUtils.deleteFilesIgnoringExceptions(tmpDirectory, tmpDirectory.getCreatedFiles());
+    }
+}
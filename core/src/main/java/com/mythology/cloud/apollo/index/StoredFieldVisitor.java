@@ -0,0 +1,132 @@
+package com.mythology.cloud.apollo.index;
+
+import com.mythology.cloud.apollo.util.ArrayUtil;
+import com.mythology.cloud.apollo.util.BytesRef;
+
+import java.io.IOException;
+
+/**
+ * Expert: provides a low-level means of accessing the stored field
+ * values in an index.  See {@link IndexReader#document(int,
+ * StoredFieldVisitor)}.
+ *
+ * <p><b>NOTE</b>: a {@code StoredFieldVisitor} implementation
+ * should not try to load or visit other stored documents in
+ * the same reader because the implementation of stored
+ * fields for most codecs is not reeentrant and you will see
+ * strange exceptions as a result.
+ *
+ * <p>See {@link com.mythology.cloud.apollo.document.DocumentStoredFieldVisitor}, which is a
+ * <code>StoredFieldVisitor</code> that builds the
+ * {@link com.mythology.cloud.apollo.document.Document} containing all stored fields.  This is
+ * used by {@link IndexReader#document(int)}.
+ *
+ * <p>String and binary values are first passed to the {@link BytesRef}
+ * variants of {@link #stringField(FieldInfo, BytesRef)} and
+ * {@link #binaryField(FieldInfo, BytesRef)}, which by default copy the value
+ * and delegate to the {@code byte[]} variants. Visitors that do not need to
+ * keep the bytes should override the {@link BytesRef} variants to avoid the
+ * copy.
+ *
+ * <p>
+ * 字符串和二进制字段首先以{@link BytesRef}形式传给访问器，其内容直接引用读取器的解压缓冲区，仅在回调期间有效；
+ * 默认实现会复制一份再调用{@code byte[]}版本。
+ * </p>
+ *
+ * @lucene.experimental
+ */
+public abstract class StoredFieldVisitor {
+
+    /**
+     * Sole constructor. (For invocation by subclass
+     * constructors, typically implicit.)
+     */
+    protected StoredFieldVisitor() {
+    }
+
+    /**
+     * Process a binary field.
+     *
+     * @param value newly allocated byte array with the binary contents.
+     */
+    public void binaryField(FieldInfo fieldInfo, byte[] value) throws IOException {
+    }
+
+    /**
+     * Process a binary field. The provided {@link BytesRef} is a view of the
+     * reader's buffer that is only valid for the duration of this call, and
+     * its bytes must not be modified. The default implementation copies the
+     * value and calls {@link #binaryField(FieldInfo, byte[])}.
+     */
+    public void binaryField(FieldInfo fieldInfo, BytesRef value) throws IOException {
+        binaryField(fieldInfo, ArrayUtil.copyOfSubArray(value.bytes, value.offset, value.offset + value.length));
+    }
+
+    /**
+     * Process a string field; the provided byte[] value is a UTF-8 encoded string value.
+     */
+    public void stringField(FieldInfo fieldInfo, byte[] value) throws IOException {
+    }
+
+    /**
+     * Process a string field; the provided {@link BytesRef} is a UTF-8 encoded
+     * string value. It is a view of the reader's buffer that is only valid for
+     * the duration of this call, and its bytes must not be modified. The
+     * default implementation copies the value and calls
+     * {@link #stringField(FieldInfo, byte[])}.
+     */
+    public void stringField(FieldInfo fieldInfo, BytesRef value) throws IOException {
+        stringField(fieldInfo, ArrayUtil.copyOfSubArray(value.bytes, value.offset, value.offset + value.length));
+    }
+
+    /**
+     * Process a int numeric field.
+     */
+    public void intField(FieldInfo fieldInfo, int value) throws IOException {
+    }
+
+    /**
+     * Process a long numeric field.
+     */
+    public void longField(FieldInfo fieldInfo, long value) throws IOException {
+    }
+
+    /**
+     * Process a float numeric field.
+     */
+    public void floatField(FieldInfo fieldInfo, float value) throws IOException {
+    }
+
+    /**
+     * Process a double numeric field.
+     */
+    public void doubleField(FieldInfo fieldInfo, double value) throws IOException {
+    }
+
+    /**
+     * Hook before processing a field.
+     * Before a field is processed, this method is invoked so that
+     * subclasses can return a {@link Status} representing whether
+     * they need that particular field or not, or to stop processing
+     * entirely.
+     */
+    public abstract Status needsField(FieldInfo fieldInfo) throws IOException;
+
+    /**
+     * Enumeration of possible return values for {@link #needsField}.
+     */
+    public static enum Status {
+        /**
+         * YES: the field should be visited.
+         */
+        YES,
+        /**
+         * NO: don't visit this field, but continue processing fields for this document.
+         */
+        NO,
+        /**
+         * STOP: don't visit this field and stop processing any other fields for this document.
+         */
+        STOP
+    }
+}
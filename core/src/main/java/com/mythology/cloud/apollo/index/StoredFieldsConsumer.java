@@ -0,0 +1,61 @@
+package com.mythology.cloud.apollo.index;
+
+import com.mythology.cloud.apollo.codecs.StoredFieldsWriter;
+import com.mythology.cloud.apollo.codecs.compressing.CompressingStoredFieldsWriter;
+import com.mythology.cloud.apollo.store.Directory;
+import com.mythology.cloud.apollo.util.IOUtils;
+
+import java.io.IOException;
+
+/**
+ * Writes the stored fields of an in-memory segment one document at a time.
+ * The {@link StoredFieldsWriter} is created with the first document.
+ * <p>
+ * 按文档逐个写出内存段的存储字段，写入器在第一个文档到来时创建。
+ * </p>
+ */
+class StoredFieldsConsumer {
+
+    final Directory directory;
+    final String segment;
+    StoredFieldsWriter writer;
+
+    StoredFieldsConsumer(Directory directory, String segment) {
+        this.directory = directory;
+        this.segment = segment;
+    }
+
+    void startDocument() throws IOException {
+        if (writer == null) {
+            writer = new CompressingStoredFieldsWriter(directory, segment);
+        }
+        writer.startDocument();
+    }
+
+    void writeField(FieldInfo info, IndexableField field) throws IOException {
+        writer.writeField(info, field);
+    }
+
+    void finishDocument() throws IOException {
+        writer.finishDocument();
+    }
+
+    /**
+     * Finishes the stored fields of the segment, whose docs are renumbered
+     * with {@code sortMap} unless it is null.
+     */
+    void flush(FieldInfos fieldInfos, int numDocs, Sorter.DocMap sortMap) throws IOException {
+        assert sortMap == null;
+        try {
+            writer.finish(fieldInfos, numDocs);
+        } finally {
+            IOUtils.close(writer);
+            writer = null;
+        }
+    }
+
+    void abort() {
+        IOUtils.closeWhileHandlingException(writer);
+        writer = null;
+    }
+}
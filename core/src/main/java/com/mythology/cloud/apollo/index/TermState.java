@@ -0,0 +1,43 @@
+package com.mythology.cloud.apollo.index;
+
+/**
+ * Encapsulates all required internal state to position the associated
+ * {@link TermsEnum} without re-seeking.
+ * <p>
+ * 词项状态：保存定位到某个词项所需的内部状态（如倒排文件指针），以便无需重新查找词典即可获取其倒排表。
+ * </p>
+ *
+ * @lucene.experimental
+ * @see TermsEnum
+ */
+public abstract class TermState implements Cloneable {
+
+    /**
+     * Sole constructor. (For invocation by subclass
+     * constructors, typically implicit.)
+     */
+    protected TermState() {
+    }
+
+    /**
+     * Copies the content of the given {@link TermState} to this instance
+     *
+     * @param other the TermState to copy
+     */
+    public abstract void copyFrom(TermState other);
+
+    @Override
+    public TermState clone() {
+        try {
+            return (TermState) super.clone();
+        } catch (CloneNotSupportedException cnse) {
+            // should not happen
+            throw new RuntimeException(cnse);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "TermState";
+    }
+}
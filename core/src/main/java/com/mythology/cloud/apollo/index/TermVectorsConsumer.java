@@ -0,0 +1,127 @@
+package com.mythology.cloud.apollo.index;
+
+import com.mythology.cloud.apollo.codecs.TermVectorsWriter;
+import com.mythology.cloud.apollo.codecs.vectors.BlockTermVectorsFormat;
+import com.mythology.cloud.apollo.store.Directory;
+import com.mythology.cloud.apollo.util.Accountable;
+import com.mythology.cloud.apollo.util.IOUtils;
+import com.mythology.cloud.apollo.util.RamUsageEstimator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Writes the term vectors of an in-memory segment one document at a time.
+ * The {@link TermVectorsWriter} is only created once the first document with
+ * a vector is finished, and every document must be written to it, so the
+ * documents without vectors that precede a document with vectors are written
+ * as empty ones.
+ * <p>
+ * 按文档逐个写出内存段的词向量；写入器在第一个带词向量的文档出现时才创建，之前的文档补写为空。
+ * </p>
+ */
+class TermVectorsConsumer implements Accountable {
+
+    private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(TermVectorsConsumer.class);
+
+    final Directory directory;
+    final String segment;
+
+    TermVectorsWriter writer;
+    // number of docs written to the writer so far
+    private int numDocsWritten;
+
+    // fields of the current document that have a vector
+    private final List<TermVectorsConsumerPerField> pendingFields = new ArrayList<>();
+
+    TermVectorsConsumer(Directory directory, String segment) {
+        this.directory = directory;
+        this.segment = segment;
+    }
+
+    /**
+     * Registers {@code perField} as a field with a vector in the current
+     * document, unless it was already.
+     */
+    void addField(TermVectorsConsumerPerField perField) {
+        if (pendingFields.contains(perField) == false) {
+            pendingFields.add(perField);
+        }
+    }
+
+    /**
+     * Writes the vectors of document {@code docID}.
+     */
+    void finishDocument(int docID) throws IOException {
+        if (pendingFields.isEmpty()) {
+            // will be filled later if needed
+            return;
+        }
+        if (writer == null) {
+            writer = BlockTermVectorsFormat.vectorsWriter(directory, segment);
+        }
+        fill(docID);
+
+        // codecs expect the fields of a document in name order
+        pendingFields.sort(Comparator.comparing(perField -> perField.fieldInfo.name));
+        writer.startDocument(pendingFields.size());
+        for (TermVectorsConsumerPerField perField : pendingFields) {
+            perField.finishDocument(writer);
+        }
+        writer.finishDocument();
+        numDocsWritten++;
+        pendingFields.clear();
+    }
+
+    // writes empty vectors for the docs before docID
+    private void fill(int docID) throws IOException {
+        while (numDocsWritten < docID) {
+            writer.startDocument(0);
+            writer.finishDocument();
+            numDocsWritten++;
+        }
+    }
+
+    /**
+     * Finishes the term vectors of the segment, if any field has vectors.
+     * The docs of the segment are renumbered with {@code sortMap} unless it
+     * is null.
+     */
+    void flush(FieldInfos fieldInfos, int numDocs, Sorter.DocMap sortMap) throws IOException {
+        assert sortMap == null;
+        finish(fieldInfos, numDocs);
+    }
+
+    // returns true if term vectors were written
+    final boolean finish(FieldInfos fieldInfos, int numDocs) throws IOException {
+        if (writer == null && fieldInfos.hasVectors()) {
+            // only documents that were rejected had vectors
+            writer = BlockTermVectorsFormat.vectorsWriter(directory, segment);
+        }
+        if (writer == null) {
+            return false;
+        }
+        try {
+            fill(numDocs);
+            writer.finish(fieldInfos, numDocs);
+        } finally {
+            IOUtils.close(writer);
+            writer = null;
+        }
+        return true;
+    }
+
+    void abort() {
+        IOUtils.closeWhileHandlingException(writer);
+        writer = null;
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        // the per-field buffers are accounted by their owner
+        return BASE_RAM_BYTES_USED + RamUsageEstimator.shallowSizeOfInstance(ArrayList.class)
+                + (long) pendingFields.size() * RamUsageEstimator.NUM_BYTES_OBJECT_REF;
+    }
+}
@@ -0,0 +1,136 @@
+package com.mythology.cloud.apollo.index;
+
+import com.mythology.cloud.apollo.codecs.TermVectorsWriter;
+import com.mythology.cloud.apollo.util.Accountable;
+import com.mythology.cloud.apollo.util.ArrayUtil;
+import com.mythology.cloud.apollo.util.BytesRef;
+import com.mythology.cloud.apollo.util.BytesRefHash;
+import com.mythology.cloud.apollo.util.RamUsageEstimator;
+
+import java.io.IOException;
+
+/**
+ * Buffers the term vector of one field of the document that is currently
+ * inverted. Occurrences are recorded in the order they are seen, which is
+ * the position order, and grouped by term with a counting sort when the
+ * vector is written.
+ * <p>
+ * 当前文档单个字段的词向量缓冲：按出现顺序记录，写出时按词项分组。
+ * </p>
+ */
+final class TermVectorsConsumerPerField implements Accountable {
+
+    private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(TermVectorsConsumerPerField.class);
+
+    final FieldInfo fieldInfo;
+    final BytesRefHash terms = new BytesRefHash();
+
+    // whether any instance of the field in the current document asked for them
+    boolean doVectorPositions;
+    boolean doVectorOffsets;
+
+    private int[] freqs = new int[0];
+    private int[] occurrenceTerms = new int[0];
+    private int[] positions = new int[0];
+    private int[] startOffsets = new int[0];
+    private int[] endOffsets = new int[0];
+    private int numOccurrences;
+
+    private final BytesRef scratch = new BytesRef();
+
+    TermVectorsConsumerPerField(FieldInfo fieldInfo) {
+        this.fieldInfo = fieldInfo;
+    }
+
+    /**
+     * Records an occurrence of {@code term} in the current document.
+     */
+    void add(BytesRef term, int position, int startOffset, int endOffset) {
+        int termID = terms.add(term);
+        if (termID >= 0) {
+            if (termID == freqs.length) {
+                freqs = ArrayUtil.grow(freqs, termID + 1);
+            }
+            freqs[termID] = 0;
+        } else {
+            termID = -termID - 1;
+        }
+        freqs[termID]++;
+
+        if (numOccurrences == occurrenceTerms.length) {
+            final int newSize = ArrayUtil.oversize(numOccurrences + 1, Integer.BYTES);
+            occurrenceTerms = ArrayUtil.growExact(occurrenceTerms, newSize);
+            positions = ArrayUtil.growExact(positions, newSize);
+            startOffsets = ArrayUtil.growExact(startOffsets, newSize);
+            endOffsets = ArrayUtil.growExact(endOffsets, newSize);
+        }
+        occurrenceTerms[numOccurrences] = termID;
+        positions[numOccurrences] = position;
+        startOffsets[numOccurrences] = startOffset;
+        endOffsets[numOccurrences] = endOffset;
+        numOccurrences++;
+    }
+
+    /**
+     * Writes the vector of the current document and resets this buffer.
+     */
+    void finishDocument(TermVectorsWriter writer) throws IOException {
+        final int[] sortedTermIDs = terms.sort();
+        final int numTerms = sortedTermIDs.length;
+
+        // counting sort of the occurrences by term rank; occurrences of the same
+        // term keep their relative order, so positions stay sorted
+        final int[] upto = new int[numTerms];
+        for (int rank = 0, start = 0; rank < numTerms; rank++) {
+            upto[rank] = start;
+            start += freqs[sortedTermIDs[rank]];
+        }
+        final int[] rankOf = new int[numTerms];
+        for (int rank = 0; rank < numTerms; rank++) {
+            rankOf[sortedTermIDs[rank]] = rank;
+        }
+        final int[] order = new int[numOccurrences];
+        for (int i = 0; i < numOccurrences; i++) {
+            order[upto[rankOf[occurrenceTerms[i]]]++] = i;
+        }
+
+        writer.startField(fieldInfo, numTerms, doVectorPositions, doVectorOffsets, false);
+        int next = 0;
+        for (int rank = 0; rank < numTerms; rank++) {
+            final int termID = sortedTermIDs[rank];
+            final int freq = freqs[termID];
+            terms.get(termID, scratch);
+            writer.startTerm(scratch, freq);
+            if (doVectorPositions || doVectorOffsets) {
+                for (int i = 0; i < freq; i++) {
+                    final int occurrence = order[next + i];
+                    writer.addPosition(doVectorPositions ? positions[occurrence] : -1,
+                            doVectorOffsets ? startOffsets[occurrence] : -1,
+                            doVectorOffsets ? endOffsets[occurrence] : -1,
+                            null);
+                }
+            }
+            next += freq;
+            writer.finishTerm();
+        }
+        writer.finishField();
+
+        terms.clear();
+        numOccurrences = 0;
+        doVectorPositions = false;
+        doVectorOffsets = false;
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        return BASE_RAM_BYTES_USED
+                + terms.ramBytesUsed()
+                + RamUsageEstimator.sizeOf(freqs)
+                + 4 * RamUsageEstimator.sizeOf(occurrenceTerms);
+    }
+
+    @Override
+    public String toString() {
+        return "TermVectorsConsumerPerField(field=" + fieldInfo.name + ")";
+    }
+}
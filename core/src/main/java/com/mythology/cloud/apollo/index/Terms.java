@@ -0,0 +1,85 @@
+package com.mythology.cloud.apollo.index;
+
+import java.io.IOException;
+
+/**
+ * Access to the terms in a specific field.  See {@link Fields}.
+ * <p>
+ * 某个字段中全部词项的访问入口。
+ * </p>
+ *
+ * @lucene.experimental
+ */
+public abstract class Terms {
+
+    /**
+     * Sole constructor. (For invocation by subclass
+     * constructors, typically implicit.)
+     */
+    protected Terms() {
+    }
+
+    /**
+     * Returns an iterator that will step through all
+     * terms. This method will not return null.
+     */
+    public abstract TermsEnum iterator() throws IOException;
+
+    /**
+     * Returns the number of terms for this field, or -1 if this
+     * measure isn't stored by the codec. Note that, just like
+     * other term measures, this measure does not take deleted
+     * documents into account.
+     */
+    public abstract long size() throws IOException;
+
+    /**
+     * Returns the sum of {@link TermsEnum#totalTermFreq} for
+     * all terms in this field.  Note that, just like other term
+     * measures, this measure does not take deleted documents
+     * into account.
+     */
+    public abstract long getSumTotalTermFreq() throws IOException;
+
+    /**
+     * Returns the sum of {@link TermsEnum#docFreq()} for
+     * all terms in this field.  Note that, just like other term
+     * measures, this measure does not take deleted documents
+     * into account.
+     */
+    public abstract long getSumDocFreq() throws IOException;
+
+    /**
+     * Returns the number of documents that have at least one
+     * term for this field.  Note that, just like other term
+     * measures, this measure does not take deleted documents
+     * into account.
+     */
+    public abstract int getDocCount() throws IOException;
+
+    /**
+     * Returns true if documents in this field store
+     * per-document term frequency ({@link PostingsEnum#freq}).
+     */
+    public abstract boolean hasFreqs();
+
+    /**
+     * Returns true if documents in this field store offsets.
+     */
+    public abstract boolean hasOffsets();
+
+    /**
+     * Returns true if documents in this field store positions.
+     */
+    public abstract boolean hasPositions();
+
+    /**
+     * Returns true if documents in this field store payloads.
+     */
+    public abstract boolean hasPayloads();
+
+    /**
+     * Zero-length array of {@link Terms}.
+     */
+    public final static Terms[] EMPTY_ARRAY = new Terms[0];
+}
@@ -0,0 +1,192 @@
+package com.mythology.cloud.apollo.index;
+
+import com.mythology.cloud.apollo.util.BytesRef;
+import com.mythology.cloud.apollo.util.BytesRefIterator;
+
+import java.io.IOException;
+
+/**
+ * Iterator to seek ({@link #seekCeil(BytesRef)}, {@link
+ * #seekExact(BytesRef)}) or step through ({@link
+ * #next} terms to obtain frequency information ({@link
+ * #docFreq}), {@link PostingsEnum} or {@link
+ * PostingsEnum} for the current term ({@link
+ * #postings}.
+ *
+ * <p>Term enumerations are always ordered by
+ * BytesRef.compareTo, which is Unicode sort
+ * order if the terms are UTF-8 bytes.  Each term in the
+ * enumeration is greater than the one before it.</p>
+ *
+ * <p>The TermsEnum is unpositioned when you first obtain it
+ * and you must first successfully call {@link #next} or one
+ * of the <code>seek</code> methods.
+ * <p>
+ * 词项枚举器：按字节序遍历或定位词项，并获取当前词项的统计信息与倒排表。
+ * </p>
+ *
+ * @lucene.experimental
+ */
+public abstract class TermsEnum implements BytesRefIterator {
+
+    /**
+     * Sole constructor. (For invocation by subclass
+     * constructors, typically implicit.)
+     */
+    protected TermsEnum() {
+    }
+
+    /**
+     * Represents returned result from {@link #seekCeil}.
+     */
+    public enum SeekStatus {
+        /**
+         * The term was not found, and the end of iteration was hit.
+         */
+        END,
+        /**
+         * The precise term was found.
+         */
+        FOUND,
+        /**
+         * A different term was found after the requested term
+         */
+        NOT_FOUND
+    }
+
+    /**
+     * Attempts to seek to the exact term, returning
+     * true if the term is found.  If this returns false, the
+     * enum is unpositioned.  For some codecs, seekExact may
+     * be substantially faster than {@link #seekCeil}.
+     */
+    public boolean seekExact(BytesRef text) throws IOException {
+        return seekCeil(text) == SeekStatus.FOUND;
+    }
+
+    /**
+     * Seeks to the specified term, if it exists, or to the
+     * next (ceiling) term.  Returns SeekStatus to
+     * indicate whether exact term was found, a different
+     * term was found, or EOF was hit.  The target term may
+     * be before or after the current term.  If this returns
+     * SeekStatus.END, the enum is unpositioned.
+     */
+    public abstract SeekStatus seekCeil(BytesRef text) throws IOException;
+
+    /**
+     * Seeks to the specified term by ordinal (position) as
+     * previously returned by {@link #ord}.  The target ord
+     * may be before or after the current ord, and must be
+     * within bounds.
+     */
+    public abstract void seekExact(long ord) throws IOException;
+
+    /**
+     * Returns current term. Do not call this when the enum
+     * is unpositioned.
+     */
+    public abstract BytesRef term() throws IOException;
+
+    /**
+     * Returns ordinal position for current term.  This is an
+     * optional method (the codec may throw {@link
+     * UnsupportedOperationException}).  Do not call this
+     * when the enum is unpositioned.
+     */
+    public abstract long ord() throws IOException;
+
+    /**
+     * Returns the number of documents containing the current
+     * term.  Do not call this when the enum is unpositioned.
+     */
+    public abstract int docFreq() throws IOException;
+
+    /**
+     * Returns the total number of occurrences of this term
+     * across all documents (the sum of the freq() for each
+     * doc that has this term).
+     * Note that, like other term measures, this measure does not
+     * take deleted documents into account.
+     */
+    public abstract long totalTermFreq() throws IOException;
+
+    /**
+     * Get {@link PostingsEnum} for the current term.  Do not
+     * call this when the enum is unpositioned.  This method
+     * will not return null.
+     * <p>
+     * <b>NOTE</b>: the returned iterator may return deleted documents, so
+     * deleted documents have to be checked on top of the {@link PostingsEnum}.
+     * <p>
+     * Use this method if you only require documents and frequencies,
+     * and do not need any proximity data.
+     * This method is equivalent to
+     * {@link #postings(PostingsEnum, int) postings(reuse, PostingsEnum.FREQS)}
+     *
+     * @param reuse pass a prior PostingsEnum for possible reuse
+     * @see #postings(PostingsEnum, int)
+     */
+    public final PostingsEnum postings(PostingsEnum reuse) throws IOException {
+        return postings(reuse, PostingsEnum.FREQS);
+    }
+
+    /**
+     * Get {@link PostingsEnum} for the current term, with
+     * control over whether freqs, positions, offsets or payloads
+     * are required.  Do not call this when the enum is
+     * unpositioned.  This method will not return null.
+     * <p>
+     * <b>NOTE</b>: the returned iterator may return deleted documents, so
+     * deleted documents have to be checked on top of the {@link PostingsEnum}.
+     *
+     * @param reuse pass a prior PostingsEnum for possible reuse
+     * @param flags specifies which optional per-document values
+     *              you require; see {@link PostingsEnum#FREQS}
+     */
+    public abstract PostingsEnum postings(PostingsEnum reuse, int flags) throws IOException;
+
+    /**
+     * An empty TermsEnum for quickly returning an empty instance.
+     */
+    public static final TermsEnum EMPTY = new TermsEnum() {
+        @Override
+        public SeekStatus seekCeil(BytesRef term) {
+            return SeekStatus.END;
+        }
+
+        @Override
+        public void seekExact(long ord) {
+        }
+
+        @Override
+        public BytesRef term() {
+            throw new IllegalStateException("this method should never be called");
+        }
+
+        @Override
+        public int docFreq() {
+            throw new IllegalStateException("this method should never be called");
+        }
+
+        @Override
+        public long totalTermFreq() {
+            throw new IllegalStateException("this method should never be called");
+        }
+
+        @Override
+        public long ord() {
+            throw new IllegalStateException("this method should never be called");
+        }
+
+        @Override
+        public PostingsEnum postings(PostingsEnum reuse, int flags) {
+            throw new IllegalStateException("this method should never be called");
+        }
+
+        @Override
+        public BytesRef next() {
+            return null;
+        }
+    };
+}
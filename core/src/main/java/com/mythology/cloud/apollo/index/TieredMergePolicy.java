@@ -0,0 +1,491 @@
+package com.mythology.cloud.apollo.index;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Merges segments of approximately equal size, subject to
+ * an allowed number of segments per tier.  This merge policy is
+ * able to merge non-adjacent segment, and separates how
+ * many segments are merged at once ({@link
+ * #setMaxMergeAtOnce}) from how many segments are allowed
+ * per tier ({@link #setSegmentsPerTier}).
+ *
+ * <p>For normal merging, this policy first computes a
+ * "budget" of how many segments are allowed to be in the
+ * index.  If the index is over-budget, then the policy
+ * sorts segments by decreasing size, and then finds the
+ * least-cost merge.  Merge cost is measured by a combination
+ * of the "skew" of the merge (size of largest segment divided
+ * by smallest segment) and total merge size, so that merges
+ * with lower skew and smaller size are favored.
+ *
+ * <p>If a merge will produce a segment that's larger than
+ * {@link #setMaxMergedSegmentMB}, then the policy will
+ * merge fewer segments to keep the segment size under budget.
+ *
+ * <p><b>NOTE</b>: segments are written without deletions for
+ * now, so the size of a segment is the size of its files.
+ * <p>
+ * 分层合并策略：按段的字节大小分层，每层允许的段数有限；超出预算时在按大小降序排列的段中挑选
+ * 偏斜最小、总大小较小的一组段进行合并，可以合并不相邻的段。
+ * </p>
+ *
+ * @lucene.experimental
+ */
+public class TieredMergePolicy extends MergePolicy {
+
+    private int maxMergeAtOnce = 10;
+    private long maxMergedSegmentBytes = 5 * 1024 * 1024 * 1024L;
+
+    private long floorSegmentBytes = 2 * 1024 * 1024L;
+    private double segsPerTier = 10.0;
+
+    /**
+     * Sole constructor, setting all settings to their
+     * defaults.
+     */
+    public TieredMergePolicy() {
+    }
+
+    /**
+     * Maximum number of segments to be merged at a time
+     * during "normal" merging.  Default is 10.
+     */
+    public TieredMergePolicy setMaxMergeAtOnce(int v) {
+        if (v < 2) {
+            throw new IllegalArgumentException("maxMergeAtOnce must be > 1 (got " + v + ")");
+        }
+        maxMergeAtOnce = v;
+        return this;
+    }
+
+    /**
+     * Returns the current maxMergeAtOnce setting.
+     *
+     * @see #setMaxMergeAtOnce
+     */
+    public int getMaxMergeAtOnce() {
+        return maxMergeAtOnce;
+    }
+
+    /**
+     * Maximum sized segment to produce during
+     * normal merging.  This setting is approximate: the
+     * estimate of the merged segment size is made by summing
+     * sizes of to-be-merged segments.  Default is 5 GB.
+     */
+    public TieredMergePolicy setMaxMergedSegmentMB(double v) {
+        if (v < 0.0) {
+            throw new IllegalArgumentException("maxMergedSegmentMB must be >=0 (got " + v + ")");
+        }
+        v *= 1024 * 1024;
+        maxMergedSegmentBytes = v > Long.MAX_VALUE ? Long.MAX_VALUE : (long) v;
+        return this;
+    }
+
+    /**
+     * Returns the current maxMergedSegmentMB setting.
+     *
+     * @see #setMaxMergedSegmentMB
+     */
+    public double getMaxMergedSegmentMB() {
+        return maxMergedSegmentBytes / 1024 / 1024.;
+    }
+
+    /**
+     * Segments smaller than this are "rounded up" to this
+     * size, ie treated as equal (floor) size for merge
+     * selection.  This is to prevent frequent flushing of
+     * tiny segments from allowing a long tail in the index.
+     * Default is 2 MB.
+     */
+    public TieredMergePolicy setFloorSegmentMB(double v) {
+        if (v <= 0.0) {
+            throw new IllegalArgumentException("floorSegmentMB must be > 0.0 (got " + v + ")");
+        }
+        v *= 1024 * 1024;
+        floorSegmentBytes = v > Long.MAX_VALUE ? Long.MAX_VALUE : (long) v;
+        return this;
+    }
+
+    /**
+     * Returns the current floorSegmentMB.
+     *
+     * @see #setFloorSegmentMB
+     */
+    public double getFloorSegmentMB() {
+        return floorSegmentBytes / (1024 * 1024.);
+    }
+
+    /**
+     * Sets the allowed number of segments per tier.  Smaller
+     * values mean more merging but fewer segments.
+     *
+     * <p><b>NOTE</b>: this value should be {@code >=} the {@link
+     * #setMaxMergeAtOnce} otherwise you'll force too much
+     * merging to occur.</p>
+     *
+     * <p>Default is 10.0.</p>
+     */
+    public TieredMergePolicy setSegmentsPerTier(double v) {
+        if (v < 2.0) {
+            throw new IllegalArgumentException("segmentsPerTier must be >= 2.0 (got " + v + ")");
+        }
+        segsPerTier = v;
+        return this;
+    }
+
+    /**
+     * Returns the current segmentsPerTier setting.
+     *
+     * @see #setSegmentsPerTier
+     */
+    public double getSegmentsPerTier() {
+        return segsPerTier;
+    }
+
+    private static class SegmentSize {
+        final SegmentInfo segInfo;
+        final long sizeInBytes;
+        final String name;
+
+        SegmentSize(SegmentInfo info, final long sizeInBytes) {
+            segInfo = info;
+            this.name = info.name;
+            this.sizeInBytes = sizeInBytes;
+        }
+    }
+
+    /**
+     * Holds score and explanation for a single candidate
+     * merge.
+     */
+    protected static abstract class MergeScore {
+        /**
+         * Sole constructor. (For invocation by subclass
+         * constructors, typically implicit.)
+         */
+        protected MergeScore() {
+        }
+
+        /**
+         * Returns the score for this merge candidate; lower
+         * scores are better.
+         */
+        abstract double getScore();
+
+        /**
+         * Human readable explanation of how the merge got this
+         * score.
+         */
+        abstract String getExplanation();
+    }
+
+    // size() reads the file lengths of the segment, so we call it once per
+    // segment and sort by that:
+    private List<SegmentSize> getSortedBySegmentSize(final SegmentInfos infos, final MergeContext mergeContext) throws IOException {
+        List<SegmentSize> sortedBySize = new ArrayList<>();
+
+        for (SegmentInfo info : infos) {
+            sortedBySize.add(new SegmentSize(info, size(info, mergeContext)));
+        }
+
+        sortedBySize.sort((o1, o2) -> {
+            // Sort by largest size:
+            int cmp = Long.compare(o2.sizeInBytes, o1.sizeInBytes);
+            // Then sort by ascending name:
+            if (cmp == 0) {
+                cmp = o1.name.compareTo(o2.name);
+            }
+            return cmp;
+
+        });
+
+        return sortedBySize;
+    }
+
+    @Override
+    public MergeSpecification findMerges(MergeTrigger mergeTrigger, SegmentInfos infos, MergeContext mergeContext) throws IOException {
+        final Set<SegmentInfo> merging = mergeContext.getMergingSegments();
+        // Compute total index bytes & print details about the index
+        long totIndexBytes = 0;
+        long minSegmentBytes = Long.MAX_VALUE;
+
+        long mergingBytes = 0;
+
+        List<SegmentSize> sortedInfos = getSortedBySegmentSize(infos, mergeContext);
+        Iterator<SegmentSize> iter = sortedInfos.iterator();
+        while (iter.hasNext()) {
+            SegmentSize segSize = iter.next();
+            final long segBytes = segSize.sizeInBytes;
+            if (verbose(mergeContext)) {
+                String extra = merging.contains(segSize.segInfo) ? " [merging]" : "";
+                if (segBytes >= maxMergedSegmentBytes) {
+                    extra += " [skip: too large]";
+                } else if (segBytes < floorSegmentBytes) {
+                    extra += " [floored]";
+                }
+                message("  seg=" + segString(mergeContext, Collections.singleton(segSize.segInfo)) + " size="
+                        + String.format(Locale.ROOT, "%.3f", segBytes / 1024 / 1024.) + " MB" + extra, mergeContext);
+            }
+            if (merging.contains(segSize.segInfo)) {
+                mergingBytes += segSize.sizeInBytes;
+                iter.remove();
+            }
+            minSegmentBytes = Math.min(segBytes, minSegmentBytes);
+            totIndexBytes += segBytes;
+        }
+
+        // If we have too-large segments, grace them out of the maximum segment count
+        int tooBigCount = 0;
+        iter = sortedInfos.iterator();
+        while (iter.hasNext()) {
+            SegmentSize segSize = iter.next();
+            if (segSize.sizeInBytes > maxMergedSegmentBytes / 2) {
+                iter.remove();
+                tooBigCount++; // Just for reporting purposes.
+                totIndexBytes -= segSize.sizeInBytes;
+            }
+        }
+
+        final int mergeFactor = (int) Math.min(maxMergeAtOnce, segsPerTier);
+        // Compute max allowed segments in the index
+        long levelSize = Math.max(minSegmentBytes, floorSegmentBytes);
+        long bytesLeft = totIndexBytes;
+        double allowedSegCount = 0;
+        while (true) {
+            final double segCountLevel = bytesLeft / (double) levelSize;
+            if (segCountLevel < segsPerTier || levelSize == maxMergedSegmentBytes) {
+                allowedSegCount += Math.ceil(segCountLevel);
+                break;
+            }
+            allowedSegCount += segsPerTier;
+            bytesLeft -= segsPerTier * levelSize;
+            levelSize = Math.min(maxMergedSegmentBytes, levelSize * mergeFactor);
+        }
+        // allowedSegCount may occasionally be less than segsPerTier
+        // if segment sizes are below the floor size
+        allowedSegCount = Math.max(allowedSegCount, segsPerTier);
+
+        if (verbose(mergeContext) && tooBigCount > 0) {
+            message("  allowedSegmentCount=" + allowedSegCount + " vs count=" + infos.size()
+                    + " (eligible count=" + sortedInfos.size() + ") tooBigCount= " + tooBigCount, mergeContext);
+        }
+        return doFindMerges(sortedInfos, maxMergedSegmentBytes, mergeFactor, (int) allowedSegCount,
+                mergeContext, mergingBytes >= maxMergedSegmentBytes);
+    }
+
+    private MergeSpecification doFindMerges(List<SegmentSize> sortedEligibleInfos,
+                                            final long maxMergedSegmentBytes,
+                                            final int mergeFactor, final int allowedSegCount,
+                                            MergeContext mergeContext,
+                                            boolean maxMergeIsRunning) throws IOException {
+
+        List<SegmentSize> sortedEligible = new ArrayList<>(sortedEligibleInfos);
+
+        int originalSortedSize = sortedEligible.size();
+        if (verbose(mergeContext)) {
+            message("findMerges: " + originalSortedSize + " segments", mergeContext);
+        }
+        if (originalSortedSize == 0) {
+            return null;
+        }
+
+        final Set<SegmentInfo> toBeMerged = new HashSet<>();
+
+        MergeSpecification spec = null;
+
+        // Cycle to possibly select more than one merge:
+        // Only put one merge that hits the maximum merged size in the list
+        // of merges per cycle. We'll pick up another merge next time around.
+        boolean haveOneLargeMerge = false;
+
+        while (true) {
+
+            // Gather eligible segments for merging, ie segments
+            // not already being merged and not already picked (by
+            // prior iteration of this loop) for merging:
+
+            // Remove ineligible segments. These are either already being merged or already picked by prior iterations
+            Iterator<SegmentSize> iter = sortedEligible.iterator();
+            while (iter.hasNext()) {
+                SegmentSize segSize = iter.next();
+                if (toBeMerged.contains(segSize.segInfo)) {
+                    iter.remove();
+                }
+            }
+
+            if (verbose(mergeContext)) {
+                message("  allowedSegmentCount=" + allowedSegCount + " vs count=" + originalSortedSize
+                        + " (eligible count=" + sortedEligible.size() + ")", mergeContext);
+            }
+
+            if (sortedEligible.size() == 0) {
+                return spec;
+            }
+
+            if (sortedEligible.size() <= allowedSegCount) {
+                return spec;
+            }
+
+            // OK we are over budget -- find best merge!
+            MergeScore bestScore = null;
+            List<SegmentInfo> best = null;
+            boolean bestTooLarge = false;
+            long bestMergeBytes = 0;
+
+            for (int startIdx = 0; startIdx < sortedEligible.size(); startIdx++) {
+
+                long totAfterMergeBytes = 0;
+
+                final List<SegmentInfo> candidate = new ArrayList<>();
+                final List<Long> candidateSizes = new ArrayList<>();
+                boolean hitTooLarge = false;
+                long bytesThisMerge = 0;
+                for (int idx = startIdx; idx < sortedEligible.size() && candidate.size() < mergeFactor && bytesThisMerge < maxMergedSegmentBytes; idx++) {
+                    final SegmentSize segSize = sortedEligible.get(idx);
+                    final long segBytes = segSize.sizeInBytes;
+
+                    if (totAfterMergeBytes + segBytes > maxMergedSegmentBytes) {
+                        hitTooLarge = true;
+                        // NOTE: we continue, so that we can try
+                        // "packing" smaller segments into this merge
+                        // to see if we can get closer to the max
+                        // size; this in general is not perfect since
+                        // this is really "bin packing" and we'd have
+                        // to try different permutations.
+                        continue;
+                    }
+                    candidate.add(segSize.segInfo);
+                    candidateSizes.add(segBytes);
+                    bytesThisMerge += segBytes;
+                    totAfterMergeBytes += segBytes;
+                }
+
+                // A singleton merge makes no sense without deletions
+                if (candidate.size() <= 1) {
+                    continue;
+                }
+
+                // If we didn't find a too-large merge and have a list of candidates
+                // whose length is less than the merge factor, it means we are reaching
+                // the tail of the list of segments and will only find smaller merges.
+                // Stop here.
+                if (bestScore != null && hitTooLarge == false && candidate.size() < mergeFactor) {
+                    break;
+                }
+
+                final MergeScore score = score(candidateSizes, hitTooLarge);
+                if (verbose(mergeContext)) {
+                    message("  maybe=" + segString(mergeContext, candidate) + " score=" + score.getScore() + " " + score.getExplanation()
+                            + " tooLarge=" + hitTooLarge + " size=" + String.format(Locale.ROOT, "%.3f MB", totAfterMergeBytes / 1024. / 1024.), mergeContext);
+                }
+
+                if ((bestScore == null || score.getScore() < bestScore.getScore()) && (!hitTooLarge || !maxMergeIsRunning)) {
+                    best = candidate;
+                    bestScore = score;
+                    bestTooLarge = hitTooLarge;
+                    bestMergeBytes = totAfterMergeBytes;
+                }
+            }
+
+            if (best == null) {
+                return spec;
+            }
+            if (haveOneLargeMerge == false || bestTooLarge == false) {
+
+                haveOneLargeMerge |= bestTooLarge;
+
+                if (spec == null) {
+                    spec = new MergeSpecification();
+                }
+                final OneMerge merge = new OneMerge(best);
+                spec.add(merge);
+
+                if (verbose(mergeContext)) {
+                    message("  add merge=" + segString(mergeContext, merge.segments) + " size=" + String.format(Locale.ROOT, "%.3f MB", bestMergeBytes / 1024. / 1024.)
+                            + " score=" + String.format(Locale.ROOT, "%.3f", bestScore.getScore()) + " " + bestScore.getExplanation()
+                            + (bestTooLarge ? " [max merge]" : ""), mergeContext);
+                }
+            }
+            // whether we're going to return this list in the spec of not, we need to remove it from
+            // consideration on the next loop.
+            toBeMerged.addAll(best);
+        }
+    }
+
+    /**
+     * Expert: scores one merge, given the sizes of its segments in
+     * decreasing order; subclasses can override.
+     */
+    protected MergeScore score(List<Long> candidateSizes, boolean hitTooLarge) throws IOException {
+        long totAfterMergeBytes = 0;
+        long totAfterMergeBytesFloored = 0;
+        for (long segBytes : candidateSizes) {
+            totAfterMergeBytes += segBytes;
+            totAfterMergeBytesFloored += floorSize(segBytes);
+        }
+
+        // Roughly measure "skew" of the merge, i.e. how
+        // "balanced" the merge is (whether it merges segments
+        // of about the same size), which can be in [0..1]:
+        final double skew;
+        if (hitTooLarge) {
+            // Pretend the merge has perfect skew; skew doesn't
+            // matter in this case because this merge will not
+            // "cascade" and so it cannot lead to N^2 merge cost
+            // over time:
+            final int mergeFactor = (int) Math.min(maxMergeAtOnce, segsPerTier);
+            skew = 1.0 / mergeFactor;
+        } else {
+            skew = ((double) floorSize(candidateSizes.get(0))) / totAfterMergeBytesFloored;
+        }
+
+        // Strongly favor merges with less skew (smaller
+        // mergeScore is better):
+        double mergeScore = skew;
+
+        // Gently favor smaller merges over bigger ones.  We
+        // don't want to make this exponent too large else we
+        // can end up doing poor merges of small segments in
+        // order to avoid the large merges:
+        mergeScore *= Math.pow(totAfterMergeBytes, 0.05);
+
+        final double finalMergeScore = mergeScore;
+
+        return new MergeScore() {
+
+            @Override
+            public double getScore() {
+                return finalMergeScore;
+            }
+
+            @Override
+            public String getExplanation() {
+                return "skew=" + String.format(Locale.ROOT, "%.3f", skew);
+            }
+        };
+    }
+
+    private long floorSize(long bytes) {
+        return Math.max(floorSegmentBytes, bytes);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[" + getClass().getSimpleName() + ": ");
+        sb.append("maxMergeAtOnce=").append(maxMergeAtOnce).append(", ");
+        sb.append("maxMergedSegmentMB=").append(maxMergedSegmentBytes / 1024 / 1024.).append(", ");
+        sb.append("floorSegmentMB=").append(floorSegmentBytes / 1024 / 1024.).append(", ");
+        sb.append("segmentsPerTier=").append(segsPerTier);
+        sb.append("]");
+        return sb.toString();
+    }
+}
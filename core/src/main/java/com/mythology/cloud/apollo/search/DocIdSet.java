@@ -0,0 +1,88 @@
+package com.mythology.cloud.apollo.search;
+
+import com.mythology.cloud.apollo.util.Accountable;
+import com.mythology.cloud.apollo.util.Bits;
+import com.mythology.cloud.apollo.util.RamUsageEstimator;
+
+import java.io.IOException;
+
+/**
+ * A DocIdSet contains a set of doc ids. Implementing classes must
+ * only implement {@link #iterator} to provide access to the set.
+ * <p>
+ * 文档ID集合，实现类只需提供 {@link #iterator} 即可访问集合，可选地通过 {@link #bits} 提供随机访问。
+ * </p>
+ */
+public abstract class DocIdSet implements Accountable {
+
+    /**
+     * An empty {@code DocIdSet} instance
+     */
+    public static final DocIdSet EMPTY = new DocIdSet() {
+
+        @Override
+        public DocIdSetIterator iterator() {
+            return DocIdSetIterator.empty();
+        }
+
+        // we explicitly provide no random access, as this filter is 100% sparse and iterator exits faster
+        @Override
+        public Bits bits() {
+            return null;
+        }
+
+        @Override
+        public long ramBytesUsed() {
+            return 0L;
+        }
+    };
+
+    /**
+     * A {@code DocIdSet} that matches all doc ids up to a specified doc (excluded).
+     */
+    public static DocIdSet all(int maxDoc) {
+        return new DocIdSet() {
+
+            @Override
+            public DocIdSetIterator iterator() throws IOException {
+                return DocIdSetIterator.all(maxDoc);
+            }
+
+            @Override
+            public Bits bits() throws IOException {
+                return new Bits.MatchAllBits(maxDoc);
+            }
+
+            @Override
+            public long ramBytesUsed() {
+                return RamUsageEstimator.NUM_BYTES_OBJECT_HEADER + Integer.BYTES;
+            }
+        };
+    }
+
+    /**
+     * Provides a {@link DocIdSetIterator} to access the set.
+     * This implementation can return <code>null</code> if there
+     * are no docs that match.
+     */
+    public abstract DocIdSetIterator iterator() throws IOException;
+
+    /**
+     * Optionally provides a {@link Bits} interface for random access
+     * to matching documents.
+     *
+     * @return {@code null}, if this {@code DocIdSet} does not support random access.
+     * In contrast to {@link #iterator()}, a return value of {@code null}
+     * <b>does not</b> imply that no documents match the filter!
+     * The default implementation does not provide random access, so you
+     * only need to implement this method if your DocIdSet can
+     * guarantee random access to every docid in O(1) time without
+     * external disk access (as {@link Bits} interface cannot throw
+     * {@link IOException}). This is generally true for bit sets
+     * like {@link com.mythology.cloud.apollo.util.FixedBitSet}, which return
+     * itself if they are used as {@code DocIdSet}.
+     */
+    public Bits bits() throws IOException {
+        return null;
+    }
+}
@@ -0,0 +1,546 @@
+package com.mythology.cloud.apollo.search;
+
+import com.mythology.cloud.apollo.index.BinaryDocValues;
+import com.mythology.cloud.apollo.index.DocValuesType;
+import com.mythology.cloud.apollo.index.FieldInfo;
+import com.mythology.cloud.apollo.index.NumericDocValues;
+import com.mythology.cloud.apollo.index.SegmentReader;
+import com.mythology.cloud.apollo.index.SortedDocValues;
+import com.mythology.cloud.apollo.index.SortedNumericDocValues;
+import com.mythology.cloud.apollo.index.SortedSetDocValues;
+import com.mythology.cloud.apollo.index.StoredFieldVisitor;
+import com.mythology.cloud.apollo.codecs.DocValuesProducer;
+import com.mythology.cloud.apollo.util.ArrayUtil;
+import com.mythology.cloud.apollo.util.BytesRef;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Streams every matching document of an index, rather than the top hits,
+ * together with the selected stored fields and doc values.
+ * <p>
+ * Leaves are visited in order and documents in doc ID order within each
+ * leaf. Exported documents are handed to a {@link BatchConsumer} in batches
+ * of a configurable size, whose memory is reused from one batch to the next:
+ * only one batch is held in memory at any time, whatever the number of
+ * matches. Each batch carries a {@link Checkpoint} from which an export that
+ * was stopped can be resumed on the same leaves.
+ * <p>
+ * 流式导出全部匹配文档(而不是前N个)及其选定的存储字段和DocValues：按段顺序、段内按文档号顺序访问，
+ * 以可配置大小的批次交给消费者，批次内存循环复用，因此任何时刻只持有一个批次；每个批次附带检查点，
+ * 中断的导出可以在同一组段上从检查点继续。
+ * </p>
+ *
+ * @lucene.experimental
+ */
+public final class DocumentExporter {
+
+    /**
+     * Returns the documents of a leaf that should be exported.
+     */
+    @FunctionalInterface
+    public interface LeafMatcher {
+
+        /**
+         * Return an unpositioned iterator over the matching documents of
+         * {@code leaf}, or {@code null} if none of them match.
+         */
+        DocIdSetIterator matches(SegmentReader leaf) throws IOException;
+    }
+
+    /**
+     * Receives the exported documents.
+     */
+    @FunctionalInterface
+    public interface BatchConsumer {
+
+        /**
+         * Consume a batch. The batch and its documents are only valid until
+         * this method returns.
+         *
+         * @return whether the export should go on, if {@code false} the export
+         * stops and returns the checkpoint of this batch
+         */
+        boolean accept(Batch batch) throws IOException;
+    }
+
+    private final List<SegmentReader> leaves;
+    private final int[] docBases;
+    private final Set<String> storedFields;
+    private final List<String> docValuesFields;
+    private final int batchSize;
+
+    /**
+     * Create an exporter over the given leaves, in this order.
+     *
+     * @param storedFields    the stored fields to export, or {@code null} for all of them
+     * @param docValuesFields the doc values fields to export, in this order
+     * @param batchSize       the maximum number of documents of a batch
+     */
+    public DocumentExporter(List<SegmentReader> leaves, Set<String> storedFields, List<String> docValuesFields, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be > 0, got " + batchSize);
+        }
+        this.leaves = new ArrayList<>(leaves);
+        this.docBases = new int[leaves.size()];
+        int docBase = 0;
+        for (int i = 0; i < leaves.size(); ++i) {
+            docBases[i] = docBase;
+            docBase += leaves.get(i).maxDoc();
+        }
+        this.storedFields = storedFields == null ? null : Collections.unmodifiableSet(new HashSet<>(storedFields));
+        this.docValuesFields = Collections.unmodifiableList(new ArrayList<>(docValuesFields));
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Export the documents that {@code matcher} matches, starting at
+     * {@code from}.
+     *
+     * @param matcher  the documents to export, or {@code null} to export all documents
+     * @param from     where to start from, or {@code null} to start from the first leaf
+     * @param consumer receives the batches
+     * @return {@code null} if all matching documents were exported, or the checkpoint
+     * to resume from if the consumer stopped the export
+     * @throws IllegalArgumentException if {@code from} was not taken on the same leaves
+     */
+    public Checkpoint export(LeafMatcher matcher, Checkpoint from, BatchConsumer consumer) throws IOException {
+        int leafOrd = 0;
+        int fromDoc = 0;
+        if (from != null) {
+            if (from.leaf > leaves.size()
+                    || (from.leaf < leaves.size() && from.segment.equals(leaves.get(from.leaf).getSegmentInfo().name) == false)) {
+                throw new IllegalArgumentException("Checkpoint " + from + " was not taken on these leaves");
+            }
+            leafOrd = from.leaf;
+            fromDoc = from.doc;
+        }
+
+        final Batch batch = new Batch(batchSize);
+        final StoredFieldsCollector storedFieldsCollector = new StoredFieldsCollector(storedFields);
+        for (; leafOrd < leaves.size(); ++leafOrd, fromDoc = 0) {
+            final SegmentReader leaf = leaves.get(leafOrd);
+            final int maxDoc = leaf.maxDoc();
+            if (fromDoc >= maxDoc) {
+                continue;
+            }
+            final DocIdSetIterator it = matcher == null ? DocIdSetIterator.all(maxDoc) : matcher.matches(leaf);
+            if (it == null) {
+                continue;
+            }
+            final LeafDocValues docValues = new LeafDocValues(leaf, docValuesFields);
+            for (int doc = it.advance(fromDoc); doc != DocIdSetIterator.NO_MORE_DOCS; doc = it.nextDoc()) {
+                final ExportedDocument exported = batch.next(docBases[leafOrd] + doc);
+                storedFieldsCollector.document = exported;
+                if (storedFields == null || storedFields.isEmpty() == false) {
+                    leaf.document(doc, storedFieldsCollector);
+                }
+                docValues.collect(doc, exported);
+
+                if (batch.size == batchSize) {
+                    final Checkpoint checkpoint = new Checkpoint(leafOrd, leaf.getSegmentInfo().name, doc + 1);
+                    if (flush(batch, checkpoint, consumer) == false) {
+                        return checkpoint;
+                    }
+                }
+            }
+        }
+        if (batch.size > 0) {
+            final Checkpoint checkpoint = new Checkpoint(leaves.size(), "", 0);
+            if (flush(batch, checkpoint, consumer) == false) {
+                return checkpoint;
+            }
+        }
+        return null;
+    }
+
+    private static void checkIndex(int index, int length) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("Index " + index + " out-of-bounds for length " + length);
+        }
+    }
+
+    private static boolean flush(Batch batch, Checkpoint checkpoint, BatchConsumer consumer) throws IOException {
+        batch.checkpoint = checkpoint;
+        try {
+            return consumer.accept(batch);
+        } finally {
+            batch.clear();
+        }
+    }
+
+    /**
+     * A position in an export: the leaf to resume from, and the first doc
+     * ID to consider in that leaf. A checkpoint is only valid on the leaves
+     * it was taken on, which is verified through the segment name.
+     */
+    public static final class Checkpoint {
+
+        private final int leaf;
+        private final String segment;
+        private final int doc;
+
+        /**
+         * Rebuild a checkpoint from its parts, for instance after it was
+         * persisted.
+         */
+        public Checkpoint(int leaf, String segment, int doc) {
+            if (leaf < 0 || doc < 0) {
+                throw new IllegalArgumentException("leaf and doc must be >= 0, got leaf=" + leaf + ", doc=" + doc);
+            }
+            this.leaf = leaf;
+            this.segment = Objects.requireNonNull(segment);
+            this.doc = doc;
+        }
+
+        /**
+         * The ordinal of the leaf to resume from.
+         */
+        public int getLeaf() {
+            return leaf;
+        }
+
+        /**
+         * The name of the segment of that leaf.
+         */
+        public String getSegment() {
+            return segment;
+        }
+
+        /**
+         * The first leaf-local doc ID to consider.
+         */
+        public int getDoc() {
+            return doc;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == null || obj.getClass() != getClass()) {
+                return false;
+            }
+            final Checkpoint that = (Checkpoint) obj;
+            return leaf == that.leaf && doc == that.doc && segment.equals(that.segment);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(leaf, segment, doc);
+        }
+
+        @Override
+        public String toString() {
+            return "Checkpoint(leaf=" + leaf + ",segment=" + segment + ",doc=" + doc + ")";
+        }
+    }
+
+    /**
+     * A batch of exported documents. Instances are reused.
+     */
+    public static final class Batch {
+
+        private ExportedDocument[] docs;
+        private int size;
+        private Checkpoint checkpoint;
+
+        private Batch(int batchSize) {
+            // don't allocate more than what the first batches need
+            docs = new ExportedDocument[Math.min(batchSize, 64)];
+        }
+
+        ExportedDocument next(int docID) {
+            if (size == docs.length) {
+                docs = ArrayUtil.grow(docs, size + 1);
+            }
+            if (docs[size] == null) {
+                docs[size] = new ExportedDocument();
+            }
+            final ExportedDocument doc = docs[size++];
+            doc.docID = docID;
+            return doc;
+        }
+
+        void clear() {
+            for (int i = 0; i < size; ++i) {
+                docs[i].clear();
+            }
+            size = 0;
+            checkpoint = null;
+        }
+
+        /**
+         * The number of documents of this batch.
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Return the {@code i}-th document of this batch.
+         */
+        public ExportedDocument get(int i) {
+            checkIndex(i, size);
+            return docs[i];
+        }
+
+        /**
+         * The checkpoint to resume from in order to export the documents
+         * that come after this batch.
+         */
+        public Checkpoint checkpoint() {
+            return checkpoint;
+        }
+    }
+
+    /**
+     * An exported document: its doc ID and the values of its selected
+     * fields. Stored fields come first in the order in which they were
+     * stored, followed by doc values in the order of the doc values fields.
+     * Multi-valued fields have one entry per value.
+     * <p>
+     * Values are {@link String}s, {@link BytesRef}s or {@link Number}s for
+     * stored fields, and {@link Long}s or {@link BytesRef}s for doc values.
+     */
+    public static final class ExportedDocument {
+
+        private int docID;
+        private String[] names = new String[4];
+        private Object[] values = new Object[4];
+        private int numValues;
+
+        void add(String name, Object value) {
+            if (numValues == names.length) {
+                names = ArrayUtil.grow(names, numValues + 1);
+                values = ArrayUtil.growExact(values, names.length);
+            }
+            names[numValues] = name;
+            values[numValues] = value;
+            numValues++;
+        }
+
+        void clear() {
+            for (int i = 0; i < numValues; ++i) {
+                names[i] = null;
+                values[i] = null;
+            }
+            numValues = 0;
+        }
+
+        /**
+         * The doc ID of this document, across all leaves.
+         */
+        public int docID() {
+            return docID;
+        }
+
+        /**
+         * The number of exported values.
+         */
+        public int numValues() {
+            return numValues;
+        }
+
+        /**
+         * The field name of the {@code i}-th value.
+         */
+        public String name(int i) {
+            checkIndex(i, numValues);
+            return names[i];
+        }
+
+        /**
+         * The {@code i}-th value.
+         */
+        public Object value(int i) {
+            checkIndex(i, numValues);
+            return values[i];
+        }
+
+        /**
+         * Return the first value of {@code field}, or {@code null} if it has
+         * none.
+         */
+        public Object get(String field) {
+            for (int i = 0; i < numValues; ++i) {
+                if (names[i].equals(field)) {
+                    return values[i];
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Return all values of {@code field}.
+         */
+        public List<Object> getValues(String field) {
+            final List<Object> result = new ArrayList<>();
+            for (int i = 0; i < numValues; ++i) {
+                if (names[i].equals(field)) {
+                    result.add(values[i]);
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder sb = new StringBuilder("ExportedDocument(doc=").append(docID);
+            for (int i = 0; i < numValues; ++i) {
+                sb.append(',').append(names[i]).append('=').append(values[i]);
+            }
+            return sb.append(')').toString();
+        }
+    }
+
+    /**
+     * Adds the selected stored fields of a document to an
+     * {@link ExportedDocument}.
+     */
+    private static final class StoredFieldsCollector extends StoredFieldVisitor {
+
+        private final Set<String> fields;
+        ExportedDocument document;
+
+        StoredFieldsCollector(Set<String> fields) {
+            this.fields = fields;
+        }
+
+        @Override
+        public Status needsField(FieldInfo fieldInfo) {
+            return fields == null || fields.contains(fieldInfo.name) ? Status.YES : Status.NO;
+        }
+
+        @Override
+        public void binaryField(FieldInfo fieldInfo, byte[] value) {
+            document.add(fieldInfo.name, new BytesRef(value));
+        }
+
+        @Override
+        public void binaryField(FieldInfo fieldInfo, BytesRef value) {
+            document.add(fieldInfo.name, BytesRef.deepCopyOf(value));
+        }
+
+        @Override
+        public void stringField(FieldInfo fieldInfo, byte[] value) {
+            document.add(fieldInfo.name, new String(value, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public void stringField(FieldInfo fieldInfo, BytesRef value) {
+            document.add(fieldInfo.name, value.utf8ToString());
+        }
+
+        @Override
+        public void intField(FieldInfo fieldInfo, int value) {
+            document.add(fieldInfo.name, value);
+        }
+
+        @Override
+        public void longField(FieldInfo fieldInfo, long value) {
+            document.add(fieldInfo.name, value);
+        }
+
+        @Override
+        public void floatField(FieldInfo fieldInfo, float value) {
+            document.add(fieldInfo.name, value);
+        }
+
+        @Override
+        public void doubleField(FieldInfo fieldInfo, double value) {
+            document.add(fieldInfo.name, value);
+        }
+    }
+
+    /**
+     * The doc values of the exported fields of a leaf. Iterators only go
+     * forward, which is fine since docs are exported in order.
+     */
+    private static final class LeafDocValues {
+
+        private final String[] names;
+        private final Object[] iterators;
+
+        LeafDocValues(SegmentReader leaf, List<String> fields) throws IOException {
+            final List<String> names = new ArrayList<>();
+            final List<Object> iterators = new ArrayList<>();
+            final DocValuesProducer producer = leaf.getDocValuesReader();
+            if (producer != null) {
+                for (String field : fields) {
+                    final FieldInfo info = leaf.getFieldInfos().fieldInfo(field);
+                    if (info == null || info.getDocValuesType() == DocValuesType.NONE) {
+                        continue;
+                    }
+                    final Object iterator;
+                    switch (info.getDocValuesType()) {
+                        case NUMERIC:
+                            iterator = producer.getNumeric(info);
+                            break;
+                        case BINARY:
+                            iterator = producer.getBinary(info);
+                            break;
+                        case SORTED:
+                            iterator = producer.getSorted(info);
+                            break;
+                        case SORTED_NUMERIC:
+                            iterator = producer.getSortedNumeric(info);
+                            break;
+                        case SORTED_SET:
+                            iterator = producer.getSortedSet(info);
+                            break;
+                        default:
+                            throw new AssertionError();
+                    }
+                    names.add(field);
+                    iterators.add(iterator);
+                }
+            }
+            this.names = names.toArray(new String[0]);
+            this.iterators = iterators.toArray();
+        }
+
+        void collect(int doc, ExportedDocument document) throws IOException {
+            for (int i = 0; i < names.length; ++i) {
+                final String name = names[i];
+                final Object iterator = iterators[i];
+                // SortedDocValues extends BinaryDocValues, check it first
+                if (iterator instanceof SortedDocValues) {
+                    final SortedDocValues values = (SortedDocValues) iterator;
+                    if (values.advanceExact(doc)) {
+                        document.add(name, BytesRef.deepCopyOf(values.lookupOrd(values.ordValue())));
+                    }
+                } else if (iterator instanceof NumericDocValues) {
+                    final NumericDocValues values = (NumericDocValues) iterator;
+                    if (values.advanceExact(doc)) {
+                        document.add(name, values.longValue());
+                    }
+                } else if (iterator instanceof BinaryDocValues) {
+                    final BinaryDocValues values = (BinaryDocValues) iterator;
+                    if (values.advanceExact(doc)) {
+                        document.add(name, BytesRef.deepCopyOf(values.binaryValue()));
+                    }
+                } else if (iterator instanceof SortedNumericDocValues) {
+                    final SortedNumericDocValues values = (SortedNumericDocValues) iterator;
+                    if (values.advanceExact(doc)) {
+                        for (int j = 0, count = values.docValueCount(); j < count; ++j) {
+                            document.add(name, values.nextValue());
+                        }
+                    }
+                } else {
+                    final SortedSetDocValues values = (SortedSetDocValues) iterator;
+                    if (values.advanceExact(doc)) {
+                        for (long ord = values.nextOrd(); ord != SortedSetDocValues.NO_MORE_ORDS; ord = values.nextOrd()) {
+                            document.add(name, BytesRef.deepCopyOf(values.lookupOrd(ord)));
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
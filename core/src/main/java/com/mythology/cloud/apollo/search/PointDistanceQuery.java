@@ -0,0 +1,188 @@
+package com.mythology.cloud.apollo.search;
+
+import com.mythology.cloud.apollo.index.PointValues;
+import com.mythology.cloud.apollo.index.PointValues.IntersectVisitor;
+import com.mythology.cloud.apollo.index.PointValues.Relation;
+import com.mythology.cloud.apollo.util.NumericUtils;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Distance query for multi-dimensional double points, encoded with
+ * {@link NumericUtils#doubleToSortableLong} and {@link NumericUtils#longToSortableBytes}:
+ * matches points whose euclidean distance to {@code center} is less than or
+ * equal to {@code radius}.
+ * <p>
+ * Every cell of the BKD tree is related to the sphere through the closest and
+ * the farthest corner of the cell: cells whose closest point is beyond the
+ * radius are skipped, cells whose farthest corner is within the radius are
+ * collected without decoding their points, and only the points of leaf cells
+ * that cross the sphere are checked one by one.
+ * <p>
+ * 点值距离查询：按单元格到圆心的最近/最远距离裁剪KD树，只解码与球面相交的叶子块。
+ * </p>
+ *
+ * @lucene.experimental
+ */
+public final class PointDistanceQuery extends Query {
+    final String field;
+    final double[] center;
+    final double radius;
+    private final double radiusSquared;
+
+    /**
+     * Create a distance query.
+     *
+     * @param field  field name. must not be {@code null}.
+     * @param center the coordinates of the center, one per indexed dimension
+     * @param radius maximum distance from the center (inclusive), must be finite and non-negative
+     */
+    public PointDistanceQuery(String field, double[] center, double radius) {
+        if (field == null) {
+            throw new IllegalArgumentException("field must not be null");
+        }
+        if (center == null || center.length == 0) {
+            throw new IllegalArgumentException("center must have at least one dimension");
+        }
+        for (double value : center) {
+            if (Double.isFinite(value) == false) {
+                throw new IllegalArgumentException("center must be finite, got " + Arrays.toString(center));
+            }
+        }
+        if (Double.isFinite(radius) == false || radius < 0) {
+            throw new IllegalArgumentException("radius must be finite and non-negative, got " + radius);
+        }
+        this.field = field;
+        this.center = center.clone();
+        this.radius = radius;
+        this.radiusSquared = radius * radius;
+    }
+
+    private static double decode(byte[] packedValue, int dim) {
+        return NumericUtils.sortableLongToDouble(NumericUtils.sortableBytesToLong(packedValue, dim * Double.BYTES));
+    }
+
+    @Override
+    public void visit(QueryVisitor visitor) {
+        if (visitor.acceptField(field)) {
+            visitor.visitLeaf(this);
+        }
+    }
+
+    /**
+     * Returns a visitor that passes the doc IDs of matching points to {@code matches}.
+     */
+    public IntersectVisitor getIntersectVisitor(IntConsumer matches) {
+        return new IntersectVisitor() {
+            @Override
+            public void visit(int docID) {
+                matches.accept(docID);
+            }
+
+            @Override
+            public void visit(int docID, byte[] packedValue) {
+                double distanceSquared = 0;
+                for (int dim = 0; dim < center.length; dim++) {
+                    final double diff = decode(packedValue, dim) - center[dim];
+                    distanceSquared += diff * diff;
+                }
+                if (distanceSquared <= radiusSquared) {
+                    matches.accept(docID);
+                }
+            }
+
+            @Override
+            public Relation compare(byte[] minPackedValue, byte[] maxPackedValue) {
+                double minDistanceSquared = 0;
+                double maxDistanceSquared = 0;
+                for (int dim = 0; dim < center.length; dim++) {
+                    final double min = decode(minPackedValue, dim);
+                    final double max = decode(maxPackedValue, dim);
+                    final double c = center[dim];
+                    // closest point of the cell in this dimension
+                    final double near = c < min ? min - c : (c > max ? c - max : 0);
+                    // farthest corner of the cell in this dimension
+                    final double far = Math.max(Math.abs(c - min), Math.abs(max - c));
+                    minDistanceSquared += near * near;
+                    maxDistanceSquared += far * far;
+                }
+                if (minDistanceSquared > radiusSquared) {
+                    return Relation.CELL_OUTSIDE_QUERY;
+                } else if (maxDistanceSquared <= radiusSquared) {
+                    return Relation.CELL_INSIDE_QUERY;
+                } else {
+                    return Relation.CELL_CROSSES_QUERY;
+                }
+            }
+        };
+    }
+
+    /**
+     * Passes the doc ID of every point of {@code values} that matches this
+     * query to {@code matches}; only the cells of the tree that intersect the
+     * sphere are visited. Doc IDs are not deduplicated when a document has
+     * several matching points.
+     *
+     * @throws IllegalArgumentException if {@code values} was not indexed as double points with as
+     *                                  many index dimensions as the center
+     */
+    public void intersect(PointValues values, IntConsumer matches) throws IOException {
+        if (values.getNumIndexDimensions() != center.length) {
+            throw new IllegalArgumentException("field=\"" + field + "\" was indexed with numIndexDimensions=" + values.getNumIndexDimensions() + " but this query has numDims=" + center.length);
+        }
+        if (values.getBytesPerDimension() != Double.BYTES) {
+            throw new IllegalArgumentException("field=\"" + field + "\" was indexed with bytesPerDim=" + values.getBytesPerDimension() + " but this query has bytesPerDim=" + Double.BYTES);
+        }
+        values.intersect(getIntersectVisitor(matches));
+    }
+
+    public String getField() {
+        return field;
+    }
+
+    public double[] getCenter() {
+        return center.clone();
+    }
+
+    public double getRadius() {
+        return radius;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = classHash();
+        hash = 31 * hash + field.hashCode();
+        hash = 31 * hash + Arrays.hashCode(center);
+        hash = 31 * hash + Double.hashCode(radius);
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return sameClassAs(other) &&
+                equalsTo(getClass().cast(other));
+    }
+
+    private boolean equalsTo(PointDistanceQuery other) {
+        return field.equals(other.field) &&
+                Arrays.equals(center, other.center) &&
+                Double.compare(radius, other.radius) == 0;
+    }
+
+    @Override
+    public String toString(String field) {
+        final StringBuilder sb = new StringBuilder();
+        if (this.field.equals(field) == false) {
+            sb.append(this.field);
+            sb.append(':');
+        }
+        sb.append("distance(center=");
+        sb.append(Arrays.toString(center));
+        sb.append(" radius=");
+        sb.append(radius);
+        sb.append(')');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,299 @@
+package com.mythology.cloud.apollo.search;
+
+import com.mythology.cloud.apollo.index.PointValues;
+import com.mythology.cloud.apollo.index.PointValues.IntersectVisitor;
+import com.mythology.cloud.apollo.index.PointValues.Relation;
+import com.mythology.cloud.apollo.util.BytesRef;
+import com.mythology.cloud.apollo.util.FutureArrays;
+import com.mythology.cloud.apollo.util.NumericUtils;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.IntConsumer;
+
+/**
+ * Range query against single or multidimensional points.
+ * <p>
+ * The constructor works on the underlying binary encoding: to create range
+ * queries over long or double values, refer to the factory methods
+ * {@link #newLongRange} and {@link #newDoubleRange}.
+ * <p>
+ * A range over every indexed dimension is also a bounding box query: the
+ * same visitor relates each cell of the BKD tree to the box, so cells that are
+ * outside of the box are skipped, cells that are inside are collected without
+ * decoding their points, and only the points of leaf cells that cross the
+ * box are compared one by one.
+ * <p>
+ * 点值范围查询（同时也是多维包围盒查询）：只访问与查询框相交的KD树单元格。
+ * </p>
+ *
+ * @lucene.experimental
+ * @see PointValues
+ */
+public class PointRangeQuery extends Query {
+    final String field;
+    final int numDims;
+    final int bytesPerDim;
+    final byte[] lowerPoint;
+    final byte[] upperPoint;
+
+    /**
+     * Expert: create a multidimensional range query for point values.
+     *
+     * @param field      field name. must not be {@code null}.
+     * @param lowerPoint lower portion of the range (inclusive).
+     * @param upperPoint upper portion of the range (inclusive).
+     * @param numDims    number of dimensions.
+     * @throws IllegalArgumentException if {@code field} is null, or if {@code lowerValue.length != upperValue.length}
+     */
+    public PointRangeQuery(String field, byte[] lowerPoint, byte[] upperPoint, int numDims) {
+        checkArgs(field, lowerPoint, upperPoint);
+        this.field = field;
+        if (numDims <= 0) {
+            throw new IllegalArgumentException("numDims must be positive, got " + numDims);
+        }
+        if (lowerPoint.length == 0) {
+            throw new IllegalArgumentException("lowerPoint has length of zero");
+        }
+        if (lowerPoint.length % numDims != 0) {
+            throw new IllegalArgumentException("lowerPoint is not a fixed multiple of numDims");
+        }
+        if (lowerPoint.length != upperPoint.length) {
+            throw new IllegalArgumentException("lowerPoint has length=" + lowerPoint.length + " but upperPoint has different length=" + upperPoint.length);
+        }
+        this.numDims = numDims;
+        this.bytesPerDim = lowerPoint.length / numDims;
+
+        this.lowerPoint = lowerPoint;
+        this.upperPoint = upperPoint;
+    }
+
+    /**
+     * Check preconditions for all factory methods
+     *
+     * @throws IllegalArgumentException if {@code field}, {@code lowerPoint} or {@code upperPoint} are null.
+     */
+    public static void checkArgs(String field, Object lowerPoint, Object upperPoint) {
+        if (field == null) {
+            throw new IllegalArgumentException("field must not be null");
+        }
+        if (lowerPoint == null) {
+            throw new IllegalArgumentException("lowerPoint must not be null");
+        }
+        if (upperPoint == null) {
+            throw new IllegalArgumentException("upperPoint must not be null");
+        }
+    }
+
+    /**
+     * Create a range query for multi-dimensional long values, encoded with
+     * {@link NumericUtils#longToSortableBytes}. Bounds are inclusive.
+     */
+    public static PointRangeQuery newLongRange(String field, long[] lowerValue, long[] upperValue) {
+        checkArgs(field, lowerValue, upperValue);
+        if (lowerValue.length != upperValue.length) {
+            throw new IllegalArgumentException("lowerValue has length=" + lowerValue.length + " but upperValue has different length=" + upperValue.length);
+        }
+        final byte[] lower = new byte[lowerValue.length * Long.BYTES];
+        final byte[] upper = new byte[upperValue.length * Long.BYTES];
+        for (int dim = 0; dim < lowerValue.length; dim++) {
+            NumericUtils.longToSortableBytes(lowerValue[dim], lower, dim * Long.BYTES);
+            NumericUtils.longToSortableBytes(upperValue[dim], upper, dim * Long.BYTES);
+        }
+        return new PointRangeQuery(field, lower, upper, lowerValue.length) {
+            @Override
+            protected String toString(int dimension, byte[] value) {
+                return Long.toString(NumericUtils.sortableBytesToLong(value, 0));
+            }
+        };
+    }
+
+    /**
+     * Create a range query for multi-dimensional double values, encoded with
+     * {@link NumericUtils#doubleToSortableLong} and {@link NumericUtils#longToSortableBytes}.
+     * Bounds are inclusive, so a bounding box is {@code newDoubleRange(field, {minX, minY}, {maxX, maxY})}.
+     */
+    public static PointRangeQuery newDoubleRange(String field, double[] lowerValue, double[] upperValue) {
+        checkArgs(field, lowerValue, upperValue);
+        if (lowerValue.length != upperValue.length) {
+            throw new IllegalArgumentException("lowerValue has length=" + lowerValue.length + " but upperValue has different length=" + upperValue.length);
+        }
+        final byte[] lower = new byte[lowerValue.length * Double.BYTES];
+        final byte[] upper = new byte[upperValue.length * Double.BYTES];
+        for (int dim = 0; dim < lowerValue.length; dim++) {
+            NumericUtils.longToSortableBytes(NumericUtils.doubleToSortableLong(lowerValue[dim]), lower, dim * Double.BYTES);
+            NumericUtils.longToSortableBytes(NumericUtils.doubleToSortableLong(upperValue[dim]), upper, dim * Double.BYTES);
+        }
+        return new PointRangeQuery(field, lower, upper, lowerValue.length) {
+            @Override
+            protected String toString(int dimension, byte[] value) {
+                return Double.toString(NumericUtils.sortableLongToDouble(NumericUtils.sortableBytesToLong(value, 0)));
+            }
+        };
+    }
+
+    @Override
+    public void visit(QueryVisitor visitor) {
+        if (visitor.acceptField(field)) {
+            visitor.visitLeaf(this);
+        }
+    }
+
+    /**
+     * Returns a visitor that passes the doc IDs of matching points to {@code matches}.
+     */
+    public IntersectVisitor getIntersectVisitor(IntConsumer matches) {
+        return new IntersectVisitor() {
+            @Override
+            public void visit(int docID) {
+                matches.accept(docID);
+            }
+
+            @Override
+            public void visit(int docID, byte[] packedValue) {
+                for (int dim = 0; dim < numDims; dim++) {
+                    int offset = dim * bytesPerDim;
+                    if (FutureArrays.compareUnsigned(packedValue, offset, offset + bytesPerDim, lowerPoint, offset, offset + bytesPerDim) < 0) {
+                        // Doc's value is too low, in this dimension
+                        return;
+                    }
+                    if (FutureArrays.compareUnsigned(packedValue, offset, offset + bytesPerDim, upperPoint, offset, offset + bytesPerDim) > 0) {
+                        // Doc's value is too high, in this dimension
+                        return;
+                    }
+                }
+
+                // Doc is in-bounds
+                matches.accept(docID);
+            }
+
+            @Override
+            public Relation compare(byte[] minPackedValue, byte[] maxPackedValue) {
+                boolean crosses = false;
+
+                for (int dim = 0; dim < numDims; dim++) {
+                    int offset = dim * bytesPerDim;
+
+                    if (FutureArrays.compareUnsigned(minPackedValue, offset, offset + bytesPerDim, upperPoint, offset, offset + bytesPerDim) > 0 ||
+                            FutureArrays.compareUnsigned(maxPackedValue, offset, offset + bytesPerDim, lowerPoint, offset, offset + bytesPerDim) < 0) {
+                        return Relation.CELL_OUTSIDE_QUERY;
+                    }
+
+                    crosses |= FutureArrays.compareUnsigned(minPackedValue, offset, offset + bytesPerDim, lowerPoint, offset, offset + bytesPerDim) < 0 ||
+                            FutureArrays.compareUnsigned(maxPackedValue, offset, offset + bytesPerDim, upperPoint, offset, offset + bytesPerDim) > 0;
+                }
+
+                if (crosses) {
+                    return Relation.CELL_CROSSES_QUERY;
+                } else {
+                    return Relation.CELL_INSIDE_QUERY;
+                }
+            }
+        };
+    }
+
+    /**
+     * Passes the doc ID of every point of {@code values} that matches this
+     * query to {@code matches}; only the cells of the tree that intersect the
+     * range are visited. Doc IDs are not deduplicated when a document has
+     * several matching points.
+     *
+     * @throws IllegalArgumentException if {@code values} was not indexed with the same number of
+     *                                  dimensions or bytes per dimension as this query
+     */
+    public void intersect(PointValues values, IntConsumer matches) throws IOException {
+        if (values.getNumIndexDimensions() != numDims) {
+            throw new IllegalArgumentException("field=\"" + field + "\" was indexed with numIndexDimensions=" + values.getNumIndexDimensions() + " but this query has numDims=" + numDims);
+        }
+        if (bytesPerDim != values.getBytesPerDimension()) {
+            throw new IllegalArgumentException("field=\"" + field + "\" was indexed with bytesPerDim=" + values.getBytesPerDimension() + " but this query has bytesPerDim=" + bytesPerDim);
+        }
+        values.intersect(getIntersectVisitor(matches));
+    }
+
+    public String getField() {
+        return field;
+    }
+
+    public int getNumDims() {
+        return numDims;
+    }
+
+    public int getBytesPerDim() {
+        return bytesPerDim;
+    }
+
+    public byte[] getLowerPoint() {
+        return lowerPoint.clone();
+    }
+
+    public byte[] getUpperPoint() {
+        return upperPoint.clone();
+    }
+
+    @Override
+    public final int hashCode() {
+        int hash = classHash();
+        hash = 31 * hash + field.hashCode();
+        hash = 31 * hash + Arrays.hashCode(lowerPoint);
+        hash = 31 * hash + Arrays.hashCode(upperPoint);
+        hash = 31 * hash + numDims;
+        hash = 31 * hash + bytesPerDim;
+        return hash;
+    }
+
+    @Override
+    public final boolean equals(Object o) {
+        return sameClassAs(o) &&
+                equalsTo(getClass().cast(o));
+    }
+
+    private boolean equalsTo(PointRangeQuery other) {
+        return Objects.equals(field, other.field) &&
+                numDims == other.numDims &&
+                bytesPerDim == other.bytesPerDim &&
+                Arrays.equals(lowerPoint, other.lowerPoint) &&
+                Arrays.equals(upperPoint, other.upperPoint);
+    }
+
+    @Override
+    public final String toString(String field) {
+        final StringBuilder sb = new StringBuilder();
+        if (this.field.equals(field) == false) {
+            sb.append(this.field);
+            sb.append(':');
+        }
+
+        // print ourselves as "range per dimension"
+        for (int i = 0; i < numDims; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+
+            int startOffset = bytesPerDim * i;
+
+            sb.append('[');
+            sb.append(toString(i, Arrays.copyOfRange(lowerPoint, startOffset, startOffset + bytesPerDim)));
+            sb.append(" TO ");
+            sb.append(toString(i, Arrays.copyOfRange(upperPoint, startOffset, startOffset + bytesPerDim)));
+            sb.append(']');
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Returns a string of a single value in a human-readable format for debugging.
+     * This is used by {@link #toString()}.
+     * <p>
+     * The default implementation prints the encoded bytes.
+     *
+     * @param dimension dimension of the particular value
+     * @param value     single value, never null
+     * @return human readable value for debugging
+     */
+    protected String toString(int dimension, byte[] value) {
+        return new BytesRef(value).toString();
+    }
+}
@@ -0,0 +1,147 @@
+package com.mythology.cloud.apollo.search;
+
+import java.util.Arrays;
+
+/**
+ * Encapsulates sort criteria for returned hits.
+ * <p>
+ * A Sort is also used as the index-time sort of an
+ * {@link com.mythology.cloud.apollo.index.IndexWriter}, see
+ * {@link com.mythology.cloud.apollo.index.IndexWriterConfig#setIndexSort(Sort)}:
+ * the documents of every segment are then ordered by it, so that a search
+ * whose sort is a prefix of the index sort can stop collecting a segment
+ * once it collected enough hits, see {@link #canEarlyTerminate(Sort, Sort)}.
+ * <p>
+ * 排序条件；也可以作为索引排序，使每个段内的文档按该条件有序，查询排序是索引排序的前缀时每个段可以提前终止收集。
+ * </p>
+ */
+public class Sort {
+
+    /**
+     * Represents sorting by computed relevance. Using this sort criteria returns
+     * the same results as calling
+     * {@link IndexSearcher#search(Query, int) IndexSearcher#search()}without a sort criteria,
+     * only with slightly more overhead.
+     */
+    public static final Sort RELEVANCE = new Sort();
+
+    /**
+     * Represents sorting by index order.
+     */
+    public static final Sort INDEXORDER = new Sort(SortField.FIELD_DOC);
+
+    // internal representation of the sort criteria
+    SortField[] fields;
+
+    /**
+     * Sorts by computed relevance. This is the same sort criteria as calling
+     * {@link IndexSearcher#search(Query, int) IndexSearcher#search()}without a sort criteria,
+     * only with slightly more overhead.
+     */
+    public Sort() {
+        this(SortField.FIELD_SCORE);
+    }
+
+    /**
+     * Sets the sort to the given criteria in succession: the
+     * first SortField is checked first, but if it produces a
+     * tie, then the second SortField is used to break the tie,
+     * etc.  Finally, if there is still a tie after all SortFields
+     * are checked, the internal Lucene docid is used to break it.
+     */
+    public Sort(SortField... fields) {
+        setSort(fields);
+    }
+
+    /**
+     * Sets the sort to the given criteria in succession: the
+     * first SortField is checked first, but if it produces a
+     * tie, then the second SortField is used to break the tie,
+     * etc.  Finally, if there is still a tie after all SortFields
+     * are checked, the internal Lucene docid is used to break it.
+     */
+    public void setSort(SortField... fields) {
+        if (fields.length == 0) {
+            throw new IllegalArgumentException("There must be at least 1 sort field");
+        }
+        this.fields = fields;
+    }
+
+    /**
+     * Representation of the sort criteria.
+     *
+     * @return Array of SortField objects used in this sort criteria
+     */
+    public SortField[] getSort() {
+        return fields;
+    }
+
+    /**
+     * Returns true if the relevance score is needed to sort documents.
+     */
+    public boolean needsScores() {
+        for (SortField sortField : fields) {
+            if (sortField.needsScores()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns whether collecting the top hits of a segment that is sorted by
+     * {@code indexSort} in {@code searchSort} order may stop once the
+     * requested number of hits were collected, which is the case when
+     * {@code searchSort} is a prefix of {@code indexSort}. A segment whose
+     * index sort is {@code null} is not sorted.
+     */
+    public static boolean canEarlyTerminate(Sort searchSort, Sort indexSort) {
+        if (indexSort == null) {
+            return false;
+        }
+        final SortField[] fields1 = searchSort.getSort();
+        final SortField[] fields2 = indexSort.getSort();
+        // early termination is possible if fields1 is a prefix of fields2
+        if (fields1.length > fields2.length) {
+            return false;
+        }
+        return Arrays.asList(fields1).equals(Arrays.asList(fields2).subList(0, fields1.length));
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder buffer = new StringBuilder();
+
+        for (int i = 0; i < fields.length; i++) {
+            buffer.append(fields[i].toString());
+            if ((i + 1) < fields.length) {
+                buffer.append(',');
+            }
+        }
+
+        return buffer.toString();
+    }
+
+    /**
+     * Returns true if <code>o</code> is equal to this.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Sort)) {
+            return false;
+        }
+        final Sort other = (Sort) o;
+        return Arrays.equals(this.fields, other.fields);
+    }
+
+    /**
+     * Returns a hash code value for this object.
+     */
+    @Override
+    public int hashCode() {
+        return 0x45aaf665 + Arrays.hashCode(fields);
+    }
+}
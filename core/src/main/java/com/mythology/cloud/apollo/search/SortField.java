@@ -0,0 +1,298 @@
+package com.mythology.cloud.apollo.search;
+
+import java.util.Objects;
+
+/**
+ * Stores information about how to sort documents by terms in an individual
+ * field.  Fields must be indexed with doc values of the matching type:
+ * {@link Type#STRING} sorts by the value of a
+ * {@link com.mythology.cloud.apollo.index.DocValuesType#SORTED} field, the
+ * numeric types by the value of a
+ * {@link com.mythology.cloud.apollo.index.DocValuesType#NUMERIC} field.
+ * <p>
+ * 描述如何按单个字段排序：字符串类型按SORTED DocValues排序，数值类型按NUMERIC DocValues排序。
+ * </p>
+ *
+ * @see Sort
+ */
+public class SortField {
+
+    /**
+     * Specifies the type of the terms to be sorted, or special types such as CUSTOM
+     */
+    public static enum Type {
+
+        /**
+         * Sort by document score (relevance).  Sort values are Float and higher
+         * values are at the front.
+         */
+        SCORE,
+
+        /**
+         * Sort by document number (index order).  Sort values are Integer and lower
+         * values are at the front.
+         */
+        DOC,
+
+        /**
+         * Sort using term values as Strings.  Sort values are String and lower
+         * values are at the front.
+         */
+        STRING,
+
+        /**
+         * Sort using term values as encoded Integers.  Sort values are Integer and
+         * lower values are at the front.
+         */
+        INT,
+
+        /**
+         * Sort using term values as encoded Floats.  Sort values are Float and
+         * lower values are at the front.
+         */
+        FLOAT,
+
+        /**
+         * Sort using term values as encoded Longs.  Sort values are Long and
+         * lower values are at the front.
+         */
+        LONG,
+
+        /**
+         * Sort using term values as encoded Doubles.  Sort values are Double and
+         * lower values are at the front.
+         */
+        DOUBLE
+    }
+
+    /**
+     * Represents sorting by document score (relevance).
+     */
+    public static final SortField FIELD_SCORE = new SortField(null, Type.SCORE);
+
+    /**
+     * Represents sorting by document number (index order).
+     */
+    public static final SortField FIELD_DOC = new SortField(null, Type.DOC);
+
+    /**
+     * Pass this to {@link #setMissingValue} to have missing
+     * string values sort first.
+     */
+    public final static Object STRING_FIRST = new Object() {
+        @Override
+        public String toString() {
+            return "SortField.STRING_FIRST";
+        }
+    };
+
+    /**
+     * Pass this to {@link #setMissingValue} to have missing
+     * string values sort last.
+     */
+    public final static Object STRING_LAST = new Object() {
+        @Override
+        public String toString() {
+            return "SortField.STRING_LAST";
+        }
+    };
+
+    private String field;
+    private Type type;  // defaults to determining type dynamically
+    boolean reverse = false;  // defaults to natural order
+
+    /**
+     * Used for 'sortMissingFirst/Last'
+     */
+    protected Object missingValue = null;
+
+    /**
+     * Creates a sort by terms in the given field with the type of term
+     * values explicitly given.
+     *
+     * @param field Name of field to sort by.  Can be <code>null</code> if
+     *              <code>type</code> is SCORE or DOC.
+     * @param type  Type of values in the terms.
+     */
+    public SortField(String field, Type type) {
+        initFieldType(field, type);
+    }
+
+    /**
+     * Creates a sort, possibly in reverse, by terms in the given field with the
+     * type of term values explicitly given.
+     *
+     * @param field   Name of field to sort by.  Can be <code>null</code> if
+     *                <code>type</code> is SCORE or DOC.
+     * @param type    Type of values in the terms.
+     * @param reverse True if natural order should be reversed.
+     */
+    public SortField(String field, Type type, boolean reverse) {
+        initFieldType(field, type);
+        this.reverse = reverse;
+    }
+
+    // Sets field & type, and ensures field is not NULL unless
+    // type is SCORE or DOC
+    private void initFieldType(String field, Type type) {
+        this.type = Objects.requireNonNull(type, "type must not be null");
+        if (field == null) {
+            if (type != Type.SCORE && type != Type.DOC) {
+                throw new IllegalArgumentException("field can only be null when type is SCORE or DOC");
+            }
+        } else {
+            this.field = field;
+        }
+    }
+
+    /**
+     * Return the value to use for documents that don't have a value.
+     * A value of {@code null} indicates that default should be used.
+     */
+    public Object getMissingValue() {
+        return missingValue;
+    }
+
+    /**
+     * Set the value to use for documents that don't have a value.
+     */
+    public void setMissingValue(Object missingValue) {
+        if (type == Type.STRING) {
+            if (missingValue != STRING_FIRST && missingValue != STRING_LAST) {
+                throw new IllegalArgumentException("For STRING type, missing value must be either STRING_FIRST or STRING_LAST");
+            }
+        } else if (type == Type.INT) {
+            if (missingValue != null && missingValue.getClass() != Integer.class) {
+                throw new IllegalArgumentException("Missing values for Type.INT can only be of type java.lang.Integer, but got " + missingValue.getClass());
+            }
+        } else if (type == Type.LONG) {
+            if (missingValue != null && missingValue.getClass() != Long.class) {
+                throw new IllegalArgumentException("Missing values for Type.LONG can only be of type java.lang.Long, but got " + missingValue.getClass());
+            }
+        } else if (type == Type.FLOAT) {
+            if (missingValue != null && missingValue.getClass() != Float.class) {
+                throw new IllegalArgumentException("Missing values for Type.FLOAT can only be of type java.lang.Float, but got " + missingValue.getClass());
+            }
+        } else if (type == Type.DOUBLE) {
+            if (missingValue != null && missingValue.getClass() != Double.class) {
+                throw new IllegalArgumentException("Missing values for Type.DOUBLE can only be of type java.lang.Double, but got " + missingValue.getClass());
+            }
+        } else {
+            throw new IllegalArgumentException("Missing value only works for sort fields of type STRING, INT, LONG, FLOAT or DOUBLE");
+        }
+        this.missingValue = missingValue;
+    }
+
+    /**
+     * Returns the name of the field.  Could return <code>null</code>
+     * if the sort is by SCORE or DOC.
+     *
+     * @return Name of field, possibly <code>null</code>.
+     */
+    public String getField() {
+        return field;
+    }
+
+    /**
+     * Returns the type of contents in the field.
+     *
+     * @return One of the constants SCORE, DOC, STRING, INT, FLOAT, LONG or DOUBLE.
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Returns whether the sort should be reversed.
+     *
+     * @return True if natural order should be reversed.
+     */
+    public boolean getReverse() {
+        return reverse;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder buffer = new StringBuilder();
+        switch (type) {
+            case SCORE:
+                buffer.append("<score>");
+                break;
+
+            case DOC:
+                buffer.append("<doc>");
+                break;
+
+            case STRING:
+                buffer.append("<string: \"").append(field).append("\">");
+                break;
+
+            case INT:
+                buffer.append("<int: \"").append(field).append("\">");
+                break;
+
+            case LONG:
+                buffer.append("<long: \"").append(field).append("\">");
+                break;
+
+            case FLOAT:
+                buffer.append("<float: \"").append(field).append("\">");
+                break;
+
+            case DOUBLE:
+                buffer.append("<double: \"").append(field).append("\">");
+                break;
+
+            default:
+                buffer.append("<???: \"").append(field).append("\">");
+                break;
+        }
+
+        if (reverse) {
+            buffer.append('!');
+        }
+        if (missingValue != null) {
+            buffer.append(" missingValue=");
+            buffer.append(missingValue);
+        }
+
+        return buffer.toString();
+    }
+
+    /**
+     * Returns true if <code>o</code> is equal to this.  Two sort fields are
+     * equal if they sort by the same field, type and direction, and use the
+     * same missing value.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof SortField)) {
+            return false;
+        }
+        final SortField other = (SortField) o;
+        return (
+                Objects.equals(other.field, this.field)
+                        && other.type == this.type
+                        && other.reverse == this.reverse
+                        && Objects.equals(this.missingValue, other.missingValue)
+        );
+    }
+
+    /**
+     * Returns a hash code for this {@link SortField} instance.
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hash(field, type, reverse, missingValue);
+    }
+
+    /**
+     * Whether the relevance score is needed to sort documents.
+     */
+    public boolean needsScores() {
+        return type == Type.SCORE;
+    }
+}
@@ -0,0 +1,184 @@
+package com.mythology.cloud.apollo.store;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * An {@link IndexInput} over a single {@link ByteBuffer}. When the buffer is a
+ * {@link java.nio.MappedByteBuffer} (see {@link MMapDirectory}) all reads are
+ * served from the page cache without copying the file onto the heap, which is
+ * what the off-heap index structures rely on.
+ * <p>
+ * Absolute reads through {@link RandomAccessInput} do not move the file pointer.
+ *
+ * @lucene.internal
+ */
+public final class ByteBufferIndexInput extends IndexInput implements RandomAccessInput {
+
+    private ByteBuffer buffer;
+    private final long length;
+    private final boolean isClone;
+
+    /**
+     * Wraps the whole of the given buffer; position and limit of {@code buffer}
+     * are not modified.
+     */
+    public ByteBufferIndexInput(String resourceDescription, ByteBuffer buffer) {
+        this(resourceDescription, buffer.duplicate(), false);
+    }
+
+    private ByteBufferIndexInput(String resourceDescription, ByteBuffer buffer, boolean isClone) {
+        super(resourceDescription);
+        buffer.position(0);
+        this.buffer = buffer;
+        this.length = buffer.limit();
+        this.isClone = isClone;
+    }
+
+    private ByteBuffer ensureOpen() {
+        final ByteBuffer buffer = this.buffer;
+        if (buffer == null) {
+            throw new AlreadyClosedException("Already closed: " + this);
+        }
+        return buffer;
+    }
+
+    @Override
+    public byte readByte() throws IOException {
+        try {
+            return ensureOpen().get();
+        } catch (BufferUnderflowException e) {
+            throw new EOFException("read past EOF: " + this);
+        }
+    }
+
+    @Override
+    public void readBytes(byte[] b, int offset, int len) throws IOException {
+        try {
+            ensureOpen().get(b, offset, len);
+        } catch (BufferUnderflowException e) {
+            throw new EOFException("read past EOF: " + this);
+        }
+    }
+
+    @Override
+    public short readShort() throws IOException {
+        try {
+            return ensureOpen().getShort();
+        } catch (BufferUnderflowException e) {
+            throw new EOFException("read past EOF: " + this);
+        }
+    }
+
+    @Override
+    public int readInt() throws IOException {
+        try {
+            return ensureOpen().getInt();
+        } catch (BufferUnderflowException e) {
+            throw new EOFException("read past EOF: " + this);
+        }
+    }
+
+    @Override
+    public long readLong() throws IOException {
+        try {
+            return ensureOpen().getLong();
+        } catch (BufferUnderflowException e) {
+            throw new EOFException("read past EOF: " + this);
+        }
+    }
+
+    @Override
+    public void skipBytes(long numBytes) throws IOException {
+        seek(getFilePointer() + numBytes);
+    }
+
+    @Override
+    public long getFilePointer() {
+        return ensureOpen().position();
+    }
+
+    @Override
+    public void seek(long pos) throws IOException {
+        if (pos < 0 || pos > length) {
+            throw new EOFException("seek past EOF: pos=" + pos + " vs length=" + length + ": " + this);
+        }
+        ensureOpen().position((int) pos);
+    }
+
+    @Override
+    public long length() {
+        return length;
+    }
+
+    @Override
+    public byte readByte(long pos) throws IOException {
+        try {
+            return ensureOpen().get((int) pos);
+        } catch (IndexOutOfBoundsException e) {
+            throw new EOFException("seek past EOF: " + this);
+        }
+    }
+
+    @Override
+    public short readShort(long pos) throws IOException {
+        try {
+            return ensureOpen().getShort((int) pos);
+        } catch (IndexOutOfBoundsException e) {
+            throw new EOFException("seek past EOF: " + this);
+        }
+    }
+
+    @Override
+    public int readInt(long pos) throws IOException {
+        try {
+            return ensureOpen().getInt((int) pos);
+        } catch (IndexOutOfBoundsException e) {
+            throw new EOFException("seek past EOF: " + this);
+        }
+    }
+
+    @Override
+    public long readLong(long pos) throws IOException {
+        try {
+            return ensureOpen().getLong((int) pos);
+        } catch (IndexOutOfBoundsException e) {
+            throw new EOFException("seek past EOF: " + this);
+        }
+    }
+
+    @Override
+    public ByteBufferIndexInput clone() {
+        final ByteBuffer buffer = ensureOpen();
+        final ByteBufferIndexInput clone = new ByteBufferIndexInput(toString(), buffer.duplicate(), true);
+        clone.buffer.position(buffer.position());
+        return clone;
+    }
+
+    @Override
+    public ByteBufferIndexInput slice(String sliceDescription, long offset, long length) {
+        if (offset < 0 || length < 0 || offset + length > this.length) {
+            throw new IllegalArgumentException("slice() " + sliceDescription + " out of bounds: offset=" + offset
+                    + ",length=" + length + ",fileLength=" + this.length + ": " + this);
+        }
+        final ByteBuffer slice = ensureOpen().duplicate();
+        slice.position((int) offset);
+        slice.limit((int) (offset + length));
+        return new ByteBufferIndexInput(getFullSliceDescription(sliceDescription), slice.slice(), true);
+    }
+
+    @Override
+    public RandomAccessInput randomAccessSlice(long offset, long length) {
+        return slice("randomaccess", offset, length);
+    }
+
+    @Override
+    public void close() {
+        // clones never own the buffer: only the original unsets it
+        if (isClone == false) {
+            buffer = null;
+        }
+    }
+}
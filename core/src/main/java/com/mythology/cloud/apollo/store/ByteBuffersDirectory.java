@@ -0,0 +1,140 @@
+package com.mythology.cloud.apollo.store;
+
+import com.mythology.cloud.apollo.util.Accountable;
+import com.mythology.cloud.apollo.util.RamUsageEstimator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.NoSuchFileException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A heap-based {@link Directory} implementation. Files are buffered in a
+ * {@link GrowableByteArrayDataOutput} while they are written and become
+ * visible to {@link #openInput} once their output is closed.
+ * <p>
+ * This is mostly useful for tests and for small, short-lived indexes: contents
+ * are lost on close and count against the Java heap.
+ */
+public final class ByteBuffersDirectory extends Directory implements Accountable {
+
+    private final ConcurrentHashMap<String, byte[]> files = new ConcurrentHashMap<>();
+    private volatile boolean isOpen = true;
+
+    @Override
+    public String[] listAll() throws IOException {
+        ensureOpen();
+        final String[] names = files.keySet().toArray(new String[0]);
+        Arrays.sort(names);
+        return names;
+    }
+
+    @Override
+    public void deleteFile(String name) throws IOException {
+        ensureOpen();
+        if (files.remove(name) == null) {
+            throw new NoSuchFileException(name);
+        }
+    }
+
+    @Override
+    public long fileLength(String name) throws IOException {
+        ensureOpen();
+        final byte[] file = files.get(name);
+        if (file == null) {
+            throw new NoSuchFileException(name);
+        }
+        return file.length;
+    }
+
+    @Override
+    public IndexOutput createOutput(String name) throws IOException {
+        ensureOpen();
+        if (files.containsKey(name)) {
+            throw new FileAlreadyExistsException(name);
+        }
+        return new IndexOutput("ByteBuffersIndexOutput(name=\"" + name + "\")", name) {
+            private final GrowableByteArrayDataOutput out = new GrowableByteArrayDataOutput(1024);
+            private boolean closed;
+
+            @Override
+            public void writeByte(byte b) {
+                out.writeByte(b);
+            }
+
+            @Override
+            public void writeBytes(byte[] b, int offset, int length) {
+                out.writeBytes(b, offset, length);
+            }
+
+            @Override
+            public long getFilePointer() {
+                return out.getPosition();
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (closed == false) {
+                    closed = true;
+                    if (files.putIfAbsent(name, Arrays.copyOf(out.getBytes(), out.getPosition())) != null) {
+                        throw new FileAlreadyExistsException(name);
+                    }
+                }
+            }
+        };
+    }
+
+    @Override
+    public void sync(Collection<String> names) throws IOException {
+        ensureOpen();
+        // nothing to do: files only live on the heap
+    }
+
+    @Override
+    public void rename(String source, String dest) throws IOException {
+        ensureOpen();
+        final byte[] file = files.get(source);
+        if (file == null) {
+            throw new NoSuchFileException(source);
+        }
+        if (files.putIfAbsent(dest, file) != null) {
+            throw new FileAlreadyExistsException(dest);
+        }
+        files.remove(source);
+    }
+
+    @Override
+    public IndexInput openInput(String name) throws IOException {
+        ensureOpen();
+        final byte[] file = files.get(name);
+        if (file == null) {
+            throw new NoSuchFileException(name);
+        }
+        return new ByteBufferIndexInput("ByteBuffersIndexInput(name=\"" + name + "\")", ByteBuffer.wrap(file));
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        long bytes = RamUsageEstimator.shallowSizeOf(this);
+        for (byte[] file : files.values()) {
+            bytes += RamUsageEstimator.sizeOf(file);
+        }
+        return bytes;
+    }
+
+    @Override
+    protected void ensureOpen() throws AlreadyClosedException {
+        if (isOpen == false) {
+            throw new AlreadyClosedException("this Directory is closed");
+        }
+    }
+
+    @Override
+    public void close() {
+        isOpen = false;
+        files.clear();
+    }
+}
@@ -0,0 +1,282 @@
+package com.mythology.cloud.apollo.store;
+
+import com.mythology.cloud.apollo.util.BytesRef;
+import com.mythology.cloud.apollo.util.BytesRefBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Abstract base class for performing read operations of Lucene's low-level
+ * data types.
+ *
+ * <p>{@code DataInput} may only be used from one thread, because it is not
+ * thread safe (it keeps internal state like file position). To allow
+ * multithreaded use, every {@code DataInput} instance must be cloned before
+ * it is used in another thread. Subclasses must therefore implement {@link #clone()},
+ * returning a new {@code DataInput} which operates on the same underlying
+ * resource, but positioned independently.
+ */
+public abstract class DataInput implements Cloneable {
+
+    private static final int SKIP_BUFFER_SIZE = 1024;
+
+    /* This buffer is used to skip over bytes with the default implementation of
+     * skipBytes. The reason why we need to use an instance member instead of
+     * sharing a single instance across threads is that some delegating
+     * implementations of DataInput might want to reuse the provided buffer in
+     * order to eg. update the checksum. If we shared the same buffer across
+     * threads, then another thread might update the buffer while the checksum is
+     * being computed, making it invalid. See LUCENE-5583 for more information.
+     */
+    private byte[] skipBuffer;
+
+    /**
+     * Reads and returns a single byte.
+     *
+     * @see DataOutput#writeByte(byte)
+     */
+    public abstract byte readByte() throws IOException;
+
+    /**
+     * Reads a specified number of bytes into an array at the specified offset.
+     *
+     * @param b      the array to read bytes into
+     * @param offset the offset in the array to start storing bytes
+     * @param len    the number of bytes to read
+     * @see DataOutput#writeBytes(byte[], int, int)
+     */
+    public abstract void readBytes(byte[] b, int offset, int len) throws IOException;
+
+    /**
+     * Reads two bytes and returns a short.
+     *
+     * @see DataOutput#writeByte(byte)
+     */
+    public short readShort() throws IOException {
+        return (short) (((readByte() & 0xFF) << 8) | (readByte() & 0xFF));
+    }
+
+    /**
+     * Reads four bytes and returns an int.
+     *
+     * @see DataOutput#writeInt(int)
+     */
+    public int readInt() throws IOException {
+        return ((readByte() & 0xFF) << 24) | ((readByte() & 0xFF) << 16)
+                | ((readByte() & 0xFF) << 8) | (readByte() & 0xFF);
+    }
+
+    /**
+     * Reads an int stored in variable-length format.  Reads between one and
+     * five bytes.  Smaller values take fewer bytes.  Negative numbers are
+     * supported, but should be avoided.
+     * <p>
+     * The format is described further in {@link DataOutput#writeVInt(int)}.
+     *
+     * @see DataOutput#writeVInt(int)
+     */
+    public int readVInt() throws IOException {
+        byte b = readByte();
+        if (b >= 0) {
+            return b;
+        }
+        int i = b & 0x7F;
+        b = readByte();
+        i |= (b & 0x7F) << 7;
+        if (b >= 0) {
+            return i;
+        }
+        b = readByte();
+        i |= (b & 0x7F) << 14;
+        if (b >= 0) {
+            return i;
+        }
+        b = readByte();
+        i |= (b & 0x7F) << 21;
+        if (b >= 0) {
+            return i;
+        }
+        b = readByte();
+        // Warning: the next ands use 0x0F / 0xF0 - beware copy/paste errors:
+        i |= (b & 0x0F) << 28;
+        if ((b & 0xF0) == 0) {
+            return i;
+        }
+        throw new IOException("Invalid vInt detected (too many bits)");
+    }
+
+    /**
+     * Read a zig-zag-encoded {@link #readVInt() variable-length} integer.
+     *
+     * @see DataOutput#writeZInt(int)
+     */
+    public int readZInt() throws IOException {
+        final int i = readVInt();
+        return (i >>> 1) ^ -(i & 1);
+    }
+
+    /**
+     * Reads eight bytes and returns a long.
+     *
+     * @see DataOutput#writeLong(long)
+     */
+    public long readLong() throws IOException {
+        return (((long) readInt()) << 32) | (readInt() & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Reads a long stored in variable-length format.  Reads between one and
+     * nine bytes.  Smaller values take fewer bytes.  Negative numbers are not
+     * supported.
+     * <p>
+     * The format is described further in {@link DataOutput#writeVInt(int)}.
+     *
+     * @see DataOutput#writeVLong(long)
+     */
+    public long readVLong() throws IOException {
+        return readVLong(false);
+    }
+
+    private long readVLong(boolean allowNegative) throws IOException {
+        long i = 0L;
+        for (int shift = 0; shift < 63; shift += 7) {
+            final byte b = readByte();
+            i |= (b & 0x7FL) << shift;
+            if (b >= 0) {
+                return i;
+            }
+        }
+        // the tenth byte only carries the sign bit of a zig-zag encoded long
+        final byte b = readByte();
+        if (allowNegative && b == 1) {
+            return i | (1L << 63);
+        }
+        throw new IOException("Invalid vLong detected (negative values disallowed)");
+    }
+
+    /**
+     * Read a zig-zag-encoded {@link #readVLong() variable-length} long.
+     *
+     * @see DataOutput#writeZLong(long)
+     */
+    public long readZLong() throws IOException {
+        final long l = readVLong(true);
+        return (l >>> 1) ^ -(l & 1);
+    }
+
+    /**
+     * Reads a string.
+     *
+     * @see DataOutput#writeString(String)
+     */
+    public String readString() throws IOException {
+        int length = readVInt();
+        final byte[] bytes = new byte[length];
+        readBytes(bytes, 0, length);
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads length-prefixed bytes into the given builder and returns a view of
+     * them. The returned {@link BytesRef} is only valid until the next call.
+     *
+     * @see DataOutput#writeBytesRef(BytesRef)
+     */
+    public BytesRef readBytesRef(BytesRefBuilder builder) throws IOException {
+        final int length = readVInt();
+        builder.grow(length);
+        readBytes(builder.bytes(), 0, length);
+        builder.setLength(length);
+        return builder.get();
+    }
+
+    /**
+     * Returns a clone of this stream.
+     *
+     * <p>Clones of a stream access the same data, and are positioned at the same
+     * point as the stream they were cloned from.
+     *
+     * <p>Expert: Subclasses must ensure that clones may be positioned at
+     * different points in the input from each other and from the stream they
+     * were cloned from.
+     */
+    @Override
+    public DataInput clone() {
+        try {
+            return (DataInput) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new Error("This cannot happen: Failing to clone DataInput", e);
+        }
+    }
+
+    /**
+     * Reads a Map&lt;String,String&gt; previously written
+     * with {@link DataOutput#writeMapOfStrings(Map)}.
+     *
+     * @return An immutable map containing the written contents.
+     */
+    public Map<String, String> readMapOfStrings() throws IOException {
+        int count = readVInt();
+        if (count == 0) {
+            return Collections.emptyMap();
+        } else if (count == 1) {
+            return Collections.singletonMap(readString(), readString());
+        } else {
+            Map<String, String> map = new HashMap<>();
+            for (int i = 0; i < count; i++) {
+                final String key = readString();
+                final String val = readString();
+                map.put(key, val);
+            }
+            return Collections.unmodifiableMap(map);
+        }
+    }
+
+    /**
+     * Reads a Set&lt;String&gt; previously written
+     * with {@link DataOutput#writeSetOfStrings(Set)}.
+     *
+     * @return An immutable set containing the written contents.
+     */
+    public Set<String> readSetOfStrings() throws IOException {
+        int count = readVInt();
+        if (count == 0) {
+            return Collections.emptySet();
+        } else if (count == 1) {
+            return Collections.singleton(readString());
+        } else {
+            Set<String> set = new HashSet<>();
+            for (int i = 0; i < count; i++) {
+                set.add(readString());
+            }
+            return Collections.unmodifiableSet(set);
+        }
+    }
+
+    /**
+     * Skip over <code>numBytes</code> bytes. The contract on this method is that it
+     * should have the same behavior as reading the same number of bytes into a
+     * buffer and discarding its content. Negative values of <code>numBytes</code>
+     * are not supported.
+     */
+    public void skipBytes(final long numBytes) throws IOException {
+        if (numBytes < 0) {
+            throw new IllegalArgumentException("numBytes must be >= 0, got " + numBytes);
+        }
+        if (skipBuffer == null) {
+            skipBuffer = new byte[SKIP_BUFFER_SIZE];
+        }
+        assert skipBuffer.length == SKIP_BUFFER_SIZE;
+        for (long skipped = 0; skipped < numBytes; ) {
+            final int step = (int) Math.min(SKIP_BUFFER_SIZE, numBytes - skipped);
+            readBytes(skipBuffer, 0, step);
+            skipped += step;
+        }
+    }
+}
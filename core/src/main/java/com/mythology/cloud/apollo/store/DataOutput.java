@@ -0,0 +1,244 @@
+package com.mythology.cloud.apollo.store;
+
+import com.mythology.cloud.apollo.util.BytesRef;
+import com.mythology.cloud.apollo.util.UnicodeUtil;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Abstract base class for performing write operations of Lucene's low-level
+ * data types.
+ *
+ * <p>{@code DataOutput} may only be used from one thread, because it is not
+ * thread safe (it keeps internal state like file position).
+ */
+public abstract class DataOutput {
+
+    private static final int COPY_BUFFER_SIZE = 16384;
+    private byte[] copyBuffer;
+
+    /**
+     * Writes a single byte.
+     * <p>
+     * The most primitive data type is an eight-bit byte. Files are
+     * accessed as sequences of bytes. All other data types are defined
+     * as sequences of bytes, so file formats are byte-order independent.
+     *
+     * @see DataInput#readByte()
+     */
+    public abstract void writeByte(byte b) throws IOException;
+
+    /**
+     * Writes an array of bytes.
+     *
+     * @param b      the bytes to write
+     * @param length the number of bytes to write
+     * @see DataInput#readBytes(byte[], int, int)
+     */
+    public void writeBytes(byte[] b, int length) throws IOException {
+        writeBytes(b, 0, length);
+    }
+
+    /**
+     * Writes an array of bytes.
+     *
+     * @param b      the bytes to write
+     * @param offset the offset in the byte array
+     * @param length the number of bytes to write
+     * @see DataInput#readBytes(byte[], int, int)
+     */
+    public abstract void writeBytes(byte[] b, int offset, int length) throws IOException;
+
+    /**
+     * Writes an int as four bytes.
+     * <p>
+     * 32-bit unsigned integer written as four bytes, high-order bytes first.
+     *
+     * @see DataInput#readInt()
+     */
+    public void writeInt(int i) throws IOException {
+        writeByte((byte) (i >> 24));
+        writeByte((byte) (i >> 16));
+        writeByte((byte) (i >> 8));
+        writeByte((byte) i);
+    }
+
+    /**
+     * Writes a short as two bytes.
+     *
+     * @see DataInput#readShort()
+     */
+    public void writeShort(short i) throws IOException {
+        writeByte((byte) (i >> 8));
+        writeByte((byte) i);
+    }
+
+    /**
+     * Writes an int in a variable-length format.  Writes between one and
+     * five bytes.  Smaller values take fewer bytes.  Negative numbers are
+     * supported, but should be avoided.
+     * <p>VByte is a variable-length format for positive integers is defined where the
+     * high-order bit of each byte indicates whether more bytes remain to be read. The
+     * low-order seven bits are appended as increasingly more significant bits in the
+     * resulting integer value. Thus values from zero to 127 may be stored in a single
+     * byte, values from 128 to 16,383 may be stored in two bytes, and so on.</p>
+     *
+     * <p>
+     * 以可变长度格式写一个int。写入1到5个字节，较小的值占用较少的字节。
+     * </p>
+     *
+     * @param i Smaller values take fewer bytes.  Negative numbers are
+     *          supported, but should be avoided.
+     * @see DataInput#readVInt()
+     */
+    public final void writeVInt(int i) throws IOException {
+        while ((i & ~0x7F) != 0) {
+            writeByte((byte) ((i & 0x7F) | 0x80));
+            i >>>= 7;
+        }
+        writeByte((byte) i);
+    }
+
+    /**
+     * Write a zig-zag-encoded {@link #writeVInt(int) variable-length} integer.
+     * This is typically useful to write small signed ints.
+     *
+     * @see DataInput#readZInt()
+     */
+    public final void writeZInt(int i) throws IOException {
+        writeVInt((i >> 31) ^ (i << 1));
+    }
+
+    /**
+     * Writes a long as eight bytes.
+     * <p>
+     * 64-bit unsigned integer written as eight bytes, high-order bytes first.
+     *
+     * @see DataInput#readLong()
+     */
+    public void writeLong(long i) throws IOException {
+        writeInt((int) (i >> 32));
+        writeInt((int) i);
+    }
+
+    /**
+     * Writes an long in a variable-length format.  Writes between one and nine
+     * bytes.  Smaller values take fewer bytes.  Negative numbers are not
+     * supported.
+     * <p>
+     * The format is described further in {@link DataOutput#writeVInt(int)}.
+     *
+     * @see DataInput#readVLong()
+     */
+    public final void writeVLong(long i) throws IOException {
+        if (i < 0) {
+            throw new IllegalArgumentException("cannot write negative vLong (got: " + i + ")");
+        }
+        writeSignedVLong(i);
+    }
+
+    // write a potentially negative vLong
+    private void writeSignedVLong(long i) throws IOException {
+        while ((i & ~0x7FL) != 0L) {
+            writeByte((byte) ((i & 0x7FL) | 0x80L));
+            i >>>= 7;
+        }
+        writeByte((byte) i);
+    }
+
+    /**
+     * Write a zig-zag-encoded {@link #writeVLong(long) variable-length} long.
+     * Writes between one and ten bytes. This is typically useful to write small
+     * signed ints.
+     *
+     * @see DataInput#readZLong()
+     */
+    public final void writeZLong(long i) throws IOException {
+        writeSignedVLong((i >> 63) ^ (i << 1));
+    }
+
+    /**
+     * Writes a string.
+     * <p>
+     * Writes strings as UTF-8 encoded bytes. First the length, in bytes, is
+     * written as a {@link #writeVInt VInt}, followed by the bytes.
+     *
+     * @see DataInput#readString()
+     */
+    public void writeString(String s) throws IOException {
+        final byte[] utf8 = new byte[UnicodeUtil.maxUTF8Length(s.length())];
+        final int length = UnicodeUtil.UTF16toUTF8(s, 0, s.length(), utf8);
+        writeVInt(length);
+        writeBytes(utf8, 0, length);
+    }
+
+    /**
+     * Writes the bytes of a {@link BytesRef}, prefixed with their length as a
+     * {@link #writeVInt VInt}.
+     *
+     * @see DataInput#readBytesRef(com.mythology.cloud.apollo.util.BytesRefBuilder)
+     */
+    public void writeBytesRef(BytesRef ref) throws IOException {
+        writeVInt(ref.length);
+        writeBytes(ref.bytes, ref.offset, ref.length);
+    }
+
+    /**
+     * Copy numBytes bytes from input to ourself.
+     */
+    public void copyBytes(DataInput input, long numBytes) throws IOException {
+        assert numBytes >= 0 : "numBytes=" + numBytes;
+        long left = numBytes;
+        if (copyBuffer == null) {
+            copyBuffer = new byte[COPY_BUFFER_SIZE];
+        }
+        while (left > 0) {
+            final int toCopy;
+            if (left > COPY_BUFFER_SIZE) {
+                toCopy = COPY_BUFFER_SIZE;
+            } else {
+                toCopy = (int) left;
+            }
+            input.readBytes(copyBuffer, 0, toCopy);
+            writeBytes(copyBuffer, 0, toCopy);
+            left -= toCopy;
+        }
+    }
+
+    /**
+     * Writes a String map.
+     * <p>
+     * First the size is written as an {@link #writeVInt(int) vInt},
+     * followed by each key-value pair written as two consecutive
+     * {@link #writeString(String) String}s.
+     *
+     * @param map Input map.
+     * @throws NullPointerException if {@code map} is null.
+     */
+    public void writeMapOfStrings(Map<String, String> map) throws IOException {
+        writeVInt(map.size());
+        for (Map.Entry<String, String> entry : map.entrySet()) {
+            writeString(entry.getKey());
+            writeString(entry.getValue());
+        }
+    }
+
+    /**
+     * Writes a String set.
+     * <p>
+     * First the size is written as an {@link #writeVInt(int) vInt},
+     * followed by each value written as a
+     * {@link #writeString(String) String}.
+     *
+     * @param set Input set.
+     * @throws NullPointerException if {@code set} is null.
+     */
+    public void writeSetOfStrings(Set<String> set) throws IOException {
+        writeVInt(set.size());
+        for (String value : set) {
+            writeString(value);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.mythology.cloud.apollo.store;
+
+import java.io.Closeable;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.util.Collection;
+
+/**
+ * A {@code Directory} provides an abstraction layer for storing a
+ * list of files. A directory contains only files (no sub-folder hierarchy).
+ * <p>
+ * Implementing classes must comply with the following:
+ *
+ * <ul>
+ * <li>A file in a directory can be created ({@link #createOutput}), appended
+ * to, then closed.</li>
+ * <li>A file open for writing may not be available
+ * for read access until the corresponding {@link IndexOutput} is closed.</li>
+ * <li>Once a file is created it must only be opened for input ({@link #openInput}), or
+ * deleted ({@link #deleteFile}). Calling {@link #createOutput} on an existing file
+ * must throw {@link java.nio.file.FileAlreadyExistsException}.</li>
+ * </ul>
+ *
+ * <p>
+ * 目录只包含文件（没有子文件夹层次结构），文件写入并关闭后只能被读取或删除。
+ * </p>
+ *
+ * @see MMapDirectory
+ * @see ByteBuffersDirectory
+ */
+public abstract class Directory implements Closeable {
+
+    /**
+     * Returns names of all files stored in this directory.
+     * The output must be in sorted (UTF-16, java's {@link String#compareTo}) order.
+     *
+     * @throws IOException in case of I/O error
+     */
+    public abstract String[] listAll() throws IOException;
+
+    /**
+     * Removes an existing file in the directory.
+     * <p>
+     * This method must throw either {@link NoSuchFileException} or {@link FileNotFoundException}
+     * if {@code name} points to a non-existing file.
+     *
+     * @param name the name of an existing file.
+     * @throws IOException in case of I/O error
+     */
+    public abstract void deleteFile(String name) throws IOException;
+
+    /**
+     * Returns the byte length of a file in the directory.
+     * <p>
+     * This method must throw either {@link NoSuchFileException} or {@link FileNotFoundException}
+     * if {@code name} points to a non-existing file.
+     *
+     * @param name the name of an existing file.
+     * @throws IOException in case of I/O error
+     */
+    public abstract long fileLength(String name) throws IOException;
+
+    /**
+     * Creates a new, empty file in the directory and returns an {@link IndexOutput}
+     * instance for appending data to this file.
+     * <p>
+     * This method must throw {@link java.nio.file.FileAlreadyExistsException} if the file
+     * already exists.
+     *
+     * @param name the name of the file to create.
+     * @throws IOException in case of I/O error
+     */
+    public abstract IndexOutput createOutput(String name) throws IOException;
+
+    /**
+     * Ensures that any writes to these files are moved to
+     * stable storage (made durable).
+     * <p>
+     * Lucene uses this to properly commit changes to the index, to prevent a machine/OS crash
+     * from corrupting the index.
+     */
+    public abstract void sync(Collection<String> names) throws IOException;
+
+    /**
+     * Renames {@code source} file to {@code dest} file where
+     * {@code dest} must not already exist in the directory.
+     * <p>
+     * It is permitted for this operation to not be truly atomic, for example
+     * both {@code source} and {@code dest} can be visible temporarily in {@link #listAll()}.
+     * However, the implementation of this method must ensure the content of
+     * {@code dest} appears as the entire {@code source} atomically. So once
+     * {@code dest} is visible for readers, the entire content of previous {@code source}
+     * is visible.
+     */
+    public abstract void rename(String source, String dest) throws IOException;
+
+    /**
+     * Opens a stream for reading an existing file.
+     * <p>
+     * This method must throw either {@link NoSuchFileException} or {@link FileNotFoundException}
+     * if {@code name} points to a non-existing file.
+     *
+     * @param name the name of an existing file.
+     * @throws IOException in case of I/O error
+     */
+    public abstract IndexInput openInput(String name) throws IOException;
+
+    /**
+     * Closes the directory.
+     */
+    @Override
+    public abstract void close() throws IOException;
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + '@' + Integer.toHexString(hashCode());
+    }
+
+    /**
+     * Ensures this directory is still open.
+     *
+     * @throws AlreadyClosedException if this directory is closed.
+     */
+    protected void ensureOpen() throws AlreadyClosedException {
+    }
+}
@@ -0,0 +1,88 @@
+package com.mythology.cloud.apollo.store;
+
+import java.io.IOException;
+import java.util.Collection;
+
+/**
+ * Directory implementation that delegates calls to another directory.
+ * This class can be used to add limitations on top of an existing
+ * {@link Directory} implementation such as
+ * {@link RateLimitedIndexOutput rate limiting}.
+ * <p>
+ * 把调用委托给另一个目录的目录实现，用于在已有目录之上附加限制，例如限速。
+ * </p>
+ */
+public abstract class FilterDirectory extends Directory {
+
+    /**
+     * Get the wrapped instance by <code>dir</code> as long as this reader is
+     * an instance of {@link FilterDirectory}.
+     */
+    public static Directory unwrap(Directory dir) {
+        while (dir instanceof FilterDirectory) {
+            dir = ((FilterDirectory) dir).getDelegate();
+        }
+        return dir;
+    }
+
+    protected final Directory in;
+
+    /**
+     * Sole constructor, typically called from sub-classes.
+     */
+    protected FilterDirectory(Directory in) {
+        this.in = in;
+    }
+
+    /**
+     * Return the wrapped {@link Directory}.
+     */
+    public final Directory getDelegate() {
+        return in;
+    }
+
+    @Override
+    public String[] listAll() throws IOException {
+        return in.listAll();
+    }
+
+    @Override
+    public void deleteFile(String name) throws IOException {
+        in.deleteFile(name);
+    }
+
+    @Override
+    public long fileLength(String name) throws IOException {
+        return in.fileLength(name);
+    }
+
+    @Override
+    public IndexOutput createOutput(String name) throws IOException {
+        return in.createOutput(name);
+    }
+
+    @Override
+    public void sync(Collection<String> names) throws IOException {
+        in.sync(names);
+    }
+
+    @Override
+    public void rename(String source, String dest) throws IOException {
+        in.rename(source, dest);
+    }
+
+    @Override
+    public IndexInput openInput(String name) throws IOException {
+        return in.openInput(name);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "(" + in.toString() + ")";
+    }
+}
@@ -0,0 +1,118 @@
+package com.mythology.cloud.apollo.store;
+
+import com.mythology.cloud.apollo.util.Accountable;
+import com.mythology.cloud.apollo.util.ArrayUtil;
+import com.mythology.cloud.apollo.util.RamUsageEstimator;
+import com.mythology.cloud.apollo.util.UnicodeUtil;
+
+/**
+ * A {@link DataOutput} that can be used to build a byte[].
+ *
+ * @lucene.internal
+ */
+public final class GrowableByteArrayDataOutput extends DataOutput implements Accountable {
+
+    private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(GrowableByteArrayDataOutput.class);
+
+    /**
+     * Minimum utf8 byte size of a string over which double pass over string is to save memory during encode
+     */
+    static final int MIN_UTF8_SIZE_TO_ENABLE_DOUBLE_PASS_ENCODING = 65536;
+
+    /**
+     * The bytes
+     */
+    private byte[] bytes;
+
+    /**
+     * The length
+     */
+    private int length;
+
+    // scratch for utf8 encoding of small strings
+    private byte[] scratchBytes;
+
+    /**
+     * Create a {@link GrowableByteArrayDataOutput} with the given initial capacity.
+     */
+    public GrowableByteArrayDataOutput(int cp) {
+        this.bytes = new byte[ArrayUtil.oversize(cp, 1)];
+        this.length = 0;
+    }
+
+    @Override
+    public void writeByte(byte b) {
+        if (length >= bytes.length) {
+            bytes = ArrayUtil.grow(bytes);
+        }
+        bytes[length++] = b;
+    }
+
+    @Override
+    public void writeBytes(byte[] b, int off, int len) {
+        final int newLength = length + len;
+        if (newLength > bytes.length) {
+            bytes = ArrayUtil.grow(bytes, newLength);
+        }
+        System.arraycopy(b, off, bytes, length, len);
+        length = newLength;
+    }
+
+    @Override
+    public void writeString(String string) {
+        int maxLen = UnicodeUtil.maxUTF8Length(string.length());
+        if (maxLen <= MIN_UTF8_SIZE_TO_ENABLE_DOUBLE_PASS_ENCODING) {
+            // string is small enough that we don't need to save memory by falling back to double-pass approach
+            // this is just an optimized writeString() that re-uses scratchBytes.
+            if (scratchBytes == null) {
+                scratchBytes = new byte[ArrayUtil.oversize(maxLen, Character.BYTES)];
+            } else {
+                scratchBytes = ArrayUtil.grow(scratchBytes, maxLen);
+            }
+            int len = UnicodeUtil.UTF16toUTF8(string, 0, string.length(), scratchBytes);
+            writeVIntUnchecked(len);
+            writeBytes(scratchBytes, 0, len);
+        } else {
+            // use a double pass approach to avoid allocating a large intermediate buffer for string encoding
+            int numBytes = UnicodeUtil.calcUTF16toUTF8Length(string, 0, string.length());
+            writeVIntUnchecked(numBytes);
+            bytes = ArrayUtil.grow(bytes, length + numBytes);
+            length = UnicodeUtil.UTF16toUTF8(string, 0, string.length(), bytes, length);
+        }
+    }
+
+    private void writeVIntUnchecked(int i) {
+        try {
+            writeVInt(i);
+        } catch (java.io.IOException e) {
+            throw new AssertionError("cannot happen: in-memory output", e);
+        }
+    }
+
+    /**
+     * Returns the backing array, only valid up to {@link #getPosition()}.
+     */
+    public byte[] getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Returns the number of bytes written so far.
+     */
+    public int getPosition() {
+        return length;
+    }
+
+    /**
+     * Sets the write position back to {@code 0}, keeping the buffer.
+     */
+    public void reset() {
+        length = 0;
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        return BASE_RAM_BYTES_USED + RamUsageEstimator.sizeOf(bytes)
+                + (scratchBytes == null ? 0 : RamUsageEstimator.sizeOf(scratchBytes));
+    }
+}
@@ -0,0 +1,92 @@
+package com.mythology.cloud.apollo.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A {@link DataOutput} for appending data to a file in a {@link Directory}.
+ * <p>
+ * Instances of this class are <b>not</b> thread-safe.
+ *
+ * @see Directory
+ * @see IndexInput
+ */
+public abstract class IndexOutput extends DataOutput implements Closeable {
+
+    /**
+     * Full description of this output, e.g. which class such as {@code FSIndexOutput}, and the full path to the file
+     */
+    private final String resourceDescription;
+
+    /**
+     * Just the name part from {@code resourceDescription}
+     */
+    private final String name;
+
+    /**
+     * Sole constructor.  resourceDescription should be non-null, opaque string
+     * describing this resource; it's returned from {@link #toString}.
+     */
+    protected IndexOutput(String resourceDescription, String name) {
+        if (resourceDescription == null) {
+            throw new IllegalArgumentException("resourceDescription must not be null");
+        }
+        this.resourceDescription = resourceDescription;
+        this.name = name;
+    }
+
+    /**
+     * Returns the name used to create this {@code IndexOutput}.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Closes this stream to further operations.
+     */
+    @Override
+    public abstract void close() throws IOException;
+
+    /**
+     * Returns the current position in this file, where the next write will
+     * occur.
+     */
+    public abstract long getFilePointer();
+
+    @Override
+    public String toString() {
+        return resourceDescription;
+    }
+
+    /**
+     * Aligns the current file pointer to multiples of {@code alignmentBytes} bytes to improve reads
+     * with mmap. This will write between 0 and {@code (alignmentBytes-1)} zero bytes using
+     * {@link #writeByte(byte)}.
+     *
+     * @param alignmentBytes the alignment to which it should forward file pointer (must be a power of 2)
+     * @return the new file pointer after alignment
+     */
+    public final long alignFilePointer(int alignmentBytes) throws IOException {
+        final long offset = alignOffset(getFilePointer(), alignmentBytes);
+        final int count = (int) (offset - getFilePointer());
+        for (int i = 0; i < count; i++) {
+            writeByte((byte) 0);
+        }
+        return getFilePointer();
+    }
+
+    /**
+     * Aligns the given {@code offset} to multiples of {@code alignmentBytes} bytes by rounding up.
+     * The alignment must be a power of 2.
+     */
+    public static final long alignOffset(long offset, int alignmentBytes) {
+        if (offset < 0L) {
+            throw new IllegalArgumentException("Offset must be positive");
+        }
+        if (1 != Integer.bitCount(alignmentBytes) || alignmentBytes < 0) {
+            throw new IllegalArgumentException("Alignment must be a power of 2");
+        }
+        return (offset - 1L + alignmentBytes) & (-alignmentBytes);
+    }
+}
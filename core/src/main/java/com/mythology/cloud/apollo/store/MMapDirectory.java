@@ -0,0 +1,142 @@
+package com.mythology.cloud.apollo.store;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * File-based {@link Directory} implementation that uses
+ * mmap for reading, and {@link OutputStreamIndexOutput} for writing.
+ *
+ * <p><b>NOTE</b>: memory mapping uses up a portion of the
+ * virtual memory address space in your process equal to the
+ * size of the file being mapped.  Before using this class,
+ * be sure your have plenty of virtual address space, e.g. by
+ * using a 64 bit JRE.
+ *
+ * <p>Files are mapped as a single {@link MappedByteBuffer}, so a single file
+ * may not exceed {@link Integer#MAX_VALUE} bytes. Codecs keep their files below
+ * that size by writing one file per segment and structure.
+ *
+ * <p>
+ * 基于文件的目录实现，读取时使用mmap将文件映射到堆外内存，写入时使用输出流。
+ * </p>
+ */
+public class MMapDirectory extends Directory {
+
+    /**
+     * Default buffer size for writes.
+     */
+    static final int CHUNK_SIZE = 8192;
+
+    protected final Path directory;
+    private volatile boolean isOpen = true;
+
+    /**
+     * Create a new MMapDirectory for the named location, creating it if needed.
+     */
+    public MMapDirectory(Path path) throws IOException {
+        Files.createDirectories(path);
+        this.directory = path.toRealPath();
+    }
+
+    /**
+     * Returns the underlying filesystem directory
+     */
+    public Path getDirectory() {
+        ensureOpen();
+        return directory;
+    }
+
+    @Override
+    public String[] listAll() throws IOException {
+        ensureOpen();
+        final List<String> entries = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path path : stream) {
+                entries.add(path.getFileName().toString());
+            }
+        }
+        final String[] array = entries.toArray(new String[entries.size()]);
+        java.util.Arrays.sort(array);
+        return array;
+    }
+
+    @Override
+    public void deleteFile(String name) throws IOException {
+        ensureOpen();
+        Files.delete(directory.resolve(name));
+    }
+
+    @Override
+    public long fileLength(String name) throws IOException {
+        ensureOpen();
+        return Files.size(directory.resolve(name));
+    }
+
+    @Override
+    public IndexOutput createOutput(String name) throws IOException {
+        ensureOpen();
+        final Path path = directory.resolve(name);
+        return new OutputStreamIndexOutput("MMapIndexOutput(path=\"" + path + "\")", name,
+                Files.newOutputStream(path, StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW), CHUNK_SIZE);
+    }
+
+    @Override
+    public void sync(Collection<String> names) throws IOException {
+        ensureOpen();
+        for (String name : names) {
+            try (FileChannel channel = FileChannel.open(directory.resolve(name), StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+        }
+    }
+
+    @Override
+    public void rename(String source, String dest) throws IOException {
+        ensureOpen();
+        Files.move(directory.resolve(source), directory.resolve(dest), StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Creates an IndexInput for the file with the given name.
+     */
+    @Override
+    public IndexInput openInput(String name) throws IOException {
+        ensureOpen();
+        final Path path = directory.resolve(name);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("File too large to be mapped as a single buffer: " + path + " (" + size + " bytes)");
+            }
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return new ByteBufferIndexInput("MMapIndexInput(path=\"" + path + "\")", buffer);
+        }
+    }
+
+    @Override
+    protected void ensureOpen() throws AlreadyClosedException {
+        if (isOpen == false) {
+            throw new AlreadyClosedException("this Directory is closed");
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        isOpen = false;
+    }
+
+    @Override
+    public String toString() {
+        return this.getClass().getSimpleName() + "@" + directory;
+    }
+}
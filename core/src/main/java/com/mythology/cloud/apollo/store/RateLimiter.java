@@ -0,0 +1,47 @@
+package com.mythology.cloud.apollo.store;
+
+import java.io.IOException;
+
+/**
+ * Abstract base class to rate limit IO.  Typically implementations are
+ * shared across multiple IndexInputs or IndexOutputs (for example
+ * those involved all merging).  Those IndexInputs and
+ * IndexOutputs would call {@link #pause} whenever the have read
+ * or written more than {@link #getMinPauseCheckBytes} bytes.
+ * <p>
+ * 限制IO速率的抽象基类：读写超过{@link #getMinPauseCheckBytes}字节后调用{@link #pause}。
+ * </p>
+ */
+public abstract class RateLimiter {
+
+    /**
+     * Sets an updated MB per second rate limit.
+     * A subclass is allowed to perform dynamic updates of the rate limit
+     * during use.
+     */
+    public abstract void setMBPerSec(double mbPerSec);
+
+    /**
+     * The current MB per second rate limit.
+     */
+    public abstract double getMBPerSec();
+
+    /**
+     * Pauses, if necessary, to keep the instantaneous IO
+     * rate at or below the target.
+     * <p>
+     * Note: the implementation is thread-safe
+     * </p>
+     *
+     * @return the pause time in nano seconds
+     */
+    public abstract long pause(long bytes) throws IOException;
+
+    /**
+     * How many bytes caller should add up itself before invoking {@link #pause}.
+     * NOTE: The value returned by this method may change over time and is not guaranteed
+     * to be constant throughout the lifetime of the RateLimiter. Users are advised to
+     * refresh their local values with calls to this method to ensure consistency.
+     */
+    public abstract long getMinPauseCheckBytes();
+}
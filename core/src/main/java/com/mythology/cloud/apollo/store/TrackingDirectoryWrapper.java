@@ -0,0 +1,53 @@
+package com.mythology.cloud.apollo.store;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A delegating Directory that records which files were
+ * written to and deleted.
+ * <p>
+ * 记录通过它创建和删除了哪些文件的委托目录。
+ * </p>
+ */
+public final class TrackingDirectoryWrapper extends FilterDirectory {
+
+    private final Set<String> createdFileNames = Collections.synchronizedSet(new HashSet<String>());
+
+    public TrackingDirectoryWrapper(Directory in) {
+        super(in);
+    }
+
+    @Override
+    public void deleteFile(String name) throws IOException {
+        in.deleteFile(name);
+        createdFileNames.remove(name);
+    }
+
+    @Override
+    public IndexOutput createOutput(String name) throws IOException {
+        IndexOutput output = in.createOutput(name);
+        createdFileNames.add(name);
+        return output;
+    }
+
+    @Override
+    public void rename(String source, String dest) throws IOException {
+        in.rename(source, dest);
+        synchronized (createdFileNames) {
+            createdFileNames.add(dest);
+            createdFileNames.remove(source);
+        }
+    }
+
+    /**
+     * NOTE: returns a copy of the created files.
+     */
+    public Set<String> getCreatedFiles() {
+        synchronized (createdFileNames) {
+            return new HashSet<>(createdFileNames);
+        }
+    }
+}
@@ -85,6 +85,27 @@ public class Accountables {
         return namedAccountable(description + " [" + in + "]", in.getChildResources(), in.ramBytesUsed());
     }
 
+    /**
+     * Returns an accountable with the provided description whose children are
+     * point-in-time views of the given resources, and whose RAM usage is the
+     * sum of theirs. This describes composites that are not {@link Accountable}
+     * themselves, such as the segment readers of an index, so that the whole
+     * tree can be printed with {@link #toString(Accountable)}.
+     * <p>
+     * 用给定描述和一组资源构造Accountable，内存占用为各资源之和，可用于描述本身不可计量的组合(如索引的各段读取器)。
+     * </p>
+     */
+    public static Accountable namedAccountable(String description, Iterable<? extends Accountable> resources) {
+        List<Accountable> children = new ArrayList<>();
+        long bytes = 0;
+        for (Accountable resource : resources) {
+            final long resourceBytes = resource.ramBytesUsed();
+            children.add(namedAccountable(resource.toString(), resource.getChildResources(), resourceBytes));
+            bytes += resourceBytes;
+        }
+        return namedAccountable(description, Collections.unmodifiableList(children), bytes);
+    }
+
     /**
      * Returns an accountable with the provided description and bytes.
      */
@@ -0,0 +1,10 @@
+package com.mythology.cloud.apollo.util;
+
+/**
+ * Base interface for attributes.
+ * <p>
+ * 属性的基础接口。
+ * </p>
+ */
+public interface Attribute {
+}
@@ -0,0 +1,52 @@
+package com.mythology.cloud.apollo.util;
+
+/**
+ * Base class for Attributes that can be added to a
+ * {@link AttributeSource}.
+ * <p>
+ * Attributes are used to add data in a dynamic, yet type-safe way to a source
+ * of usually streamed objects, e.g. a {@link com.mythology.cloud.apollo.analysis.TokenStream}.
+ * <p>
+ * 可以添加到{@link AttributeSource}的属性实现的基类。
+ * </p>
+ */
+public abstract class AttributeImpl implements Cloneable, Attribute {
+
+    /**
+     * Clears the values in this AttributeImpl and resets it to its
+     * default value. If this implementation implements more than one Attribute interface
+     * it clears all.
+     */
+    public abstract void clear();
+
+    /**
+     * Clears the values in this AttributeImpl and resets it to its value
+     * at the end of the field. If this implementation implements more than one Attribute interface
+     * it clears all.
+     * <p>
+     * The default implementation simply calls {@link #clear()}
+     */
+    public void end() {
+        clear();
+    }
+
+    /**
+     * Copies the values from this Attribute into the passed-in
+     * target attribute. The target implementation must support all the
+     * Attributes this implementation supports.
+     */
+    public abstract void copyTo(AttributeImpl target);
+
+    /**
+     * In most cases the clone is, and should be, deep in order to be able to
+     * properly capture the state of all attributes.
+     */
+    @Override
+    public AttributeImpl clone() {
+        try {
+            return (AttributeImpl) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new RuntimeException(e);  // shouldn't happen
+        }
+    }
+}
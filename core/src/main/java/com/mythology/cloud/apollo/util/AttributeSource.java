@@ -0,0 +1,200 @@
+package com.mythology.cloud.apollo.util;
+
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An AttributeSource contains a list of different {@link AttributeImpl}s,
+ * and methods to add and get them. There can only be a single instance
+ * of an attribute in the same AttributeSource instance. This is ensured
+ * by passing in the actual type of the Attribute (Class&lt;Attribute&gt;) to
+ * the {@link #addAttribute(Class)}, which then checks if an instance of
+ * that type is already present. If yes, it returns the instance, otherwise
+ * it creates a new instance and returns it.
+ * <p>
+ * The implementation of an attribute interface {@code FooAttribute} is the
+ * class {@code FooAttributeImpl} of the same package, which is looked up once
+ * per interface and instantiated once per source. Clearing attributes between
+ * tokens iterates over an array and does not allocate.
+ * <p>
+ * 属性源：持有一组{@link AttributeImpl}，同一属性源中每种属性只有一个实例；
+ * 属性接口{@code FooAttribute}的实现类为同一包中的{@code FooAttributeImpl}。
+ * </p>
+ */
+public class AttributeSource {
+
+    // the attributes of a source, shared with all the sources created from it
+    private static final class Attributes {
+        final Map<Class<? extends Attribute>, AttributeImpl> byInterface = new IdentityHashMap<>();
+        final Map<Class<? extends AttributeImpl>, AttributeImpl> byImpl = new IdentityHashMap<>();
+        AttributeImpl[] impls = new AttributeImpl[0];
+    }
+
+    private static final ClassValue<Class<? extends AttributeImpl>> IMPL_CLASSES = new ClassValue<Class<? extends AttributeImpl>>() {
+        @Override
+        protected Class<? extends AttributeImpl> computeValue(Class<?> attClass) {
+            try {
+                return Class.forName(attClass.getName() + "Impl", true, attClass.getClassLoader())
+                        .asSubclass(AttributeImpl.class);
+            } catch (ClassNotFoundException | ClassCastException e) {
+                throw new IllegalArgumentException("Cannot find implementing class for: " + attClass.getName(), e);
+            }
+        }
+    };
+
+    private static final ClassValue<List<Class<? extends Attribute>>> IMPL_INTERFACES = new ClassValue<List<Class<? extends Attribute>>>() {
+        @Override
+        protected List<Class<? extends Attribute>> computeValue(Class<?> implClass) {
+            final List<Class<? extends Attribute>> interfaces = new ArrayList<>();
+            for (Class<?> clazz = implClass; clazz != null; clazz = clazz.getSuperclass()) {
+                for (Class<?> curInterface : clazz.getInterfaces()) {
+                    if (curInterface != Attribute.class && Attribute.class.isAssignableFrom(curInterface)) {
+                        interfaces.add(curInterface.asSubclass(Attribute.class));
+                    }
+                }
+            }
+            return Collections.unmodifiableList(interfaces);
+        }
+    };
+
+    private final Attributes attributes;
+
+    /**
+     * An AttributeSource without attributes.
+     */
+    public AttributeSource() {
+        this.attributes = new Attributes();
+    }
+
+    /**
+     * An AttributeSource that uses the same attributes as the supplied one.
+     */
+    public AttributeSource(AttributeSource input) {
+        if (input == null) {
+            throw new IllegalArgumentException("input AttributeSource must not be null");
+        }
+        this.attributes = input.attributes;
+    }
+
+    /**
+     * The caller must pass in a Class&lt;? extends Attribute&gt; value.
+     * This method first checks if an instance of that class is
+     * already in this AttributeSource and returns it. Otherwise a
+     * new instance is created, added to this AttributeSource and returned.
+     */
+    public final <T extends Attribute> T addAttribute(Class<T> attClass) {
+        AttributeImpl attImpl = attributes.byInterface.get(attClass);
+        if (attImpl == null) {
+            if (!(attClass.isInterface() && Attribute.class.isAssignableFrom(attClass))) {
+                throw new IllegalArgumentException(
+                        "addAttribute() only accepts an interface that extends Attribute, but " +
+                                attClass.getName() + " does not fulfil this contract."
+                );
+            }
+            attImpl = createAttributeInstance(IMPL_CLASSES.get(attClass));
+            addAttributeImpl(attImpl);
+        }
+        return attClass.cast(attImpl);
+    }
+
+    /**
+     * Expert: Adds a custom AttributeImpl instance with one or more Attribute interfaces.
+     * <p><b>NOTE:</b> It is not guaranteed, that <code>att</code> is added to
+     * the <code>AttributeSource</code>, because the provided attributes may already exist.
+     * You should always retrieve the wanted attributes using {@link #getAttribute} after adding
+     * with this method and cast to your class.
+     */
+    public final void addAttributeImpl(AttributeImpl att) {
+        final Class<? extends AttributeImpl> clazz = att.getClass();
+        if (attributes.byImpl.containsKey(clazz)) {
+            return;
+        }
+        boolean added = false;
+        for (Class<? extends Attribute> curInterface : IMPL_INTERFACES.get(clazz)) {
+            if (!attributes.byInterface.containsKey(curInterface)) {
+                attributes.byInterface.put(curInterface, att);
+                added = true;
+            }
+        }
+        if (added) {
+            attributes.byImpl.put(clazz, att);
+            final AttributeImpl[] impls = ArrayUtil.growExact(attributes.impls, attributes.impls.length + 1);
+            impls[impls.length - 1] = att;
+            attributes.impls = impls;
+        }
+    }
+
+    /**
+     * Returns true, iff this AttributeSource has any attributes
+     */
+    public final boolean hasAttributes() {
+        return attributes.impls.length > 0;
+    }
+
+    /**
+     * The caller must pass in a Class&lt;? extends Attribute&gt; value.
+     * Returns true, iff this AttributeSource contains the passed-in Attribute.
+     */
+    public final boolean hasAttribute(Class<? extends Attribute> attClass) {
+        return attributes.byInterface.containsKey(attClass);
+    }
+
+    /**
+     * Returns the instance of the passed in Attribute contained in this AttributeSource
+     * <p>
+     * The caller must pass in a Class&lt;? extends Attribute&gt; value.
+     *
+     * @return instance of the passed in Attribute, or {@code null} if this AttributeSource
+     * does not contain the Attribute.
+     */
+    public final <T extends Attribute> T getAttribute(Class<T> attClass) {
+        return attClass.cast(attributes.byInterface.get(attClass));
+    }
+
+    /**
+     * Resets all Attributes in this AttributeSource by calling
+     * {@link AttributeImpl#clear()} on each Attribute implementation.
+     */
+    public final void clearAttributes() {
+        for (AttributeImpl impl : attributes.impls) {
+            impl.clear();
+        }
+    }
+
+    /**
+     * Resets all Attributes in this AttributeSource by calling
+     * {@link AttributeImpl#end()} on each Attribute implementation.
+     */
+    public final void endAttributes() {
+        for (AttributeImpl impl : attributes.impls) {
+            impl.end();
+        }
+    }
+
+    private static AttributeImpl createAttributeInstance(Class<? extends AttributeImpl> implClass) {
+        if (Modifier.isAbstract(implClass.getModifiers())) {
+            throw new IllegalArgumentException("Cannot instantiate abstract class: " + implClass.getName());
+        }
+        try {
+            return implClass.getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("Cannot instantiate implementing class: " + implClass.getName(), e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder().append('(');
+        for (AttributeImpl impl : attributes.impls) {
+            if (sb.length() > 1) {
+                sb.append(',');
+            }
+            sb.append(impl);
+        }
+        return sb.append(')').toString();
+    }
+}
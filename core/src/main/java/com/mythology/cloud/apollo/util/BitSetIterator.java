@@ -0,0 +1,95 @@
+package com.mythology.cloud.apollo.util;
+
+import com.mythology.cloud.apollo.search.DocIdSetIterator;
+
+/**
+ * A {@link DocIdSetIterator} which iterates over set bits in a
+ * bit set.
+ *
+ * <p>
+ * 遍历位集合中置位文档的迭代器，借助 {@link BitSet#nextSetBit(int)} 按字跳过未置位的区间。
+ * </p>
+ *
+ * @lucene.internal
+ */
+public class BitSetIterator extends DocIdSetIterator {
+
+    private static <T extends BitSet> T getBitSet(DocIdSetIterator iterator, Class<? extends T> clazz) {
+        if (iterator instanceof BitSetIterator) {
+            BitSet bits = ((BitSetIterator) iterator).bits;
+            assert bits != null;
+            if (clazz.isInstance(bits)) {
+                return clazz.cast(bits);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * If the provided iterator wraps a {@link FixedBitSet}, returns it, otherwise returns null.
+     */
+    public static FixedBitSet getFixedBitSetOrNull(DocIdSetIterator iterator) {
+        return getBitSet(iterator, FixedBitSet.class);
+    }
+
+    /**
+     * If the provided iterator wraps a {@link SparseFixedBitSet}, returns it, otherwise returns null.
+     */
+    public static SparseFixedBitSet getSparseFixedBitSetOrNull(DocIdSetIterator iterator) {
+        return getBitSet(iterator, SparseFixedBitSet.class);
+    }
+
+    private final BitSet bits;
+    private final int length;
+    private final long cost;
+    private int doc = -1;
+
+    /**
+     * Sole constructor.
+     */
+    public BitSetIterator(BitSet bits, long cost) {
+        if (cost < 0) {
+            throw new IllegalArgumentException("cost must be >= 0, got " + cost);
+        }
+        this.bits = bits;
+        this.length = bits.length();
+        this.cost = cost;
+    }
+
+    /**
+     * Return the wrapped {@link BitSet}.
+     */
+    public BitSet getBitSet() {
+        return bits;
+    }
+
+    @Override
+    public int docID() {
+        return doc;
+    }
+
+    /**
+     * Set the current doc id that this iterator is on.
+     */
+    public void setDocId(int docId) {
+        this.doc = docId;
+    }
+
+    @Override
+    public int nextDoc() {
+        return advance(doc + 1);
+    }
+
+    @Override
+    public int advance(int target) {
+        if (target >= length) {
+            return doc = NO_MORE_DOCS;
+        }
+        return doc = bits.nextSetBit(target);
+    }
+
+    @Override
+    public long cost() {
+        return cost;
+    }
+}
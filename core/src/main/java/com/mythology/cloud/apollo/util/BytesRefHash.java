@@ -0,0 +1,247 @@
+package com.mythology.cloud.apollo.util;
+
+import java.util.Arrays;
+
+/**
+ * {@link BytesRefHash} is a special purpose hash-map like data-structure
+ * optimized for {@link BytesRef} instances. BytesRefHash maintains mappings of
+ * byte arrays to ids (Map&lt;BytesRef,int&gt;) storing the hashed bytes
+ * efficiently in a single growing byte array, each value prefixed with its
+ * length on one or two bytes. Ids are assigned densely, in insertion order,
+ * starting at 0, so that callers can keep per-value data in parallel arrays
+ * indexed by id.
+ * <p>
+ * Note: The maximum capacity {@link BytesRef} instance passed to
+ * {@link #add(BytesRef)} must not be longer than {@link #MAX_LENGTH}.
+ * <p>
+ * 字节串哈希表：所有值连续存放在一个可增长的字节数组中，按插入顺序分配从0开始的稠密编号，
+ * 调用方可以用编号索引并行数组保存每个值的附加数据。
+ * </p>
+ *
+ * @lucene.internal
+ */
+public final class BytesRefHash implements Accountable {
+
+    private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(BytesRefHash.class);
+
+    /**
+     * Largest length of a value.
+     */
+    public static final int MAX_LENGTH = (1 << 15) - 1;
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    // values, each prefixed with its length
+    private byte[] pool = new byte[128];
+    private int poolUpto;
+
+    // id -> start of the value in the pool
+    private int[] bytesStart;
+    private int count;
+
+    // open addressing, -1 marks empty slots
+    private int[] ids;
+    private int hashMask;
+    private int hashHalfSize;
+
+    private final BytesRef scratch = new BytesRef();
+
+    /**
+     * Creates a new {@link BytesRefHash} with a default initial capacity.
+     */
+    public BytesRefHash() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a new {@link BytesRefHash} that can hold {@code capacity} values
+     * before rehashing.
+     */
+    public BytesRefHash(int capacity) {
+        int hashSize = Integer.highestOneBit(Math.max(DEFAULT_CAPACITY, capacity)) << 1;
+        ids = new int[hashSize];
+        Arrays.fill(ids, -1);
+        hashMask = hashSize - 1;
+        hashHalfSize = hashSize >> 1;
+        bytesStart = new int[ArrayUtil.oversize(hashHalfSize, Integer.BYTES)];
+    }
+
+    /**
+     * Returns the number of values in this hash.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Populates and returns a {@link BytesRef} with the bytes for the given
+     * id. The returned reference points into the pool of this hash and is only
+     * valid until the next call to {@link #add(BytesRef)} or {@link #clear()}.
+     *
+     * @param id  the id
+     * @param ref the {@link BytesRef} to populate
+     * @return the given BytesRef instance populated with the bytes for the given id
+     */
+    public BytesRef get(int id, BytesRef ref) {
+        assert id >= 0 && id < count : "id=" + id + " count=" + count;
+        int start = bytesStart[id];
+        int length = pool[start] & 0xFF;
+        if ((length & 0x80) == 0) {
+            start += 1;
+        } else {
+            length = (length & 0x7F) | ((pool[start + 1] & 0xFF) << 7);
+            start += 2;
+        }
+        ref.bytes = pool;
+        ref.offset = start;
+        ref.length = length;
+        return ref;
+    }
+
+    /**
+     * Returns the ids of all values, sorted by unsigned byte order of the
+     * values. This does not modify the hash.
+     */
+    public int[] sort() {
+        final int[] sorted = new int[count];
+        for (int i = 0; i < count; i++) {
+            sorted[i] = i;
+        }
+        new IntroSorter() {
+            private final BytesRef pivot = new BytesRef();
+            private final BytesRef scratch1 = new BytesRef();
+            private final BytesRef scratch2 = new BytesRef();
+
+            @Override
+            protected void swap(int i, int j) {
+                final int tmp = sorted[i];
+                sorted[i] = sorted[j];
+                sorted[j] = tmp;
+            }
+
+            @Override
+            protected int compare(int i, int j) {
+                return get(sorted[i], scratch1).compareTo(get(sorted[j], scratch2));
+            }
+
+            @Override
+            protected void setPivot(int i) {
+                get(sorted[i], pivot);
+            }
+
+            @Override
+            protected int comparePivot(int j) {
+                return pivot.compareTo(get(sorted[j], scratch2));
+            }
+        }.sort(0, count);
+        return sorted;
+    }
+
+    /**
+     * Adds a new {@link BytesRef}
+     *
+     * @param bytes the bytes to hash
+     * @return the id the given bytes are hashed if there was no mapping for the
+     * given bytes, otherwise <code>(-(id)-1)</code>. This guarantees
+     * that the return value will always be &gt;= 0 if the given bytes
+     * haven't been hashed before.
+     * @throws IllegalArgumentException if the given bytes are longer than {@link #MAX_LENGTH}
+     */
+    public int add(BytesRef bytes) {
+        final int length = bytes.length;
+        if (length > MAX_LENGTH) {
+            throw new IllegalArgumentException("bytes can be at most " + MAX_LENGTH + " in length; got " + length);
+        }
+        final int slot = findSlot(bytes);
+        int id = ids[slot];
+        if (id != -1) {
+            return -(id + 1);
+        }
+
+        // new entry
+        if (poolUpto + 2 + length > pool.length) {
+            if ((long) poolUpto + 2 + length > ArrayUtil.MAX_ARRAY_LENGTH) {
+                throw new IllegalStateException("BytesRefHash is full: cannot store more than " + ArrayUtil.MAX_ARRAY_LENGTH + " bytes");
+            }
+            pool = ArrayUtil.grow(pool, poolUpto + 2 + length);
+        }
+        if (count == bytesStart.length) {
+            bytesStart = ArrayUtil.grow(bytesStart, count + 1);
+        }
+        id = count++;
+        bytesStart[id] = poolUpto;
+        if (length < 0x80) {
+            pool[poolUpto++] = (byte) length;
+        } else {
+            pool[poolUpto++] = (byte) (0x80 | (length & 0x7F));
+            pool[poolUpto++] = (byte) (length >>> 7);
+        }
+        System.arraycopy(bytes.bytes, bytes.offset, pool, poolUpto, length);
+        poolUpto += length;
+        ids[slot] = id;
+
+        if (count == hashHalfSize) {
+            rehash(2 * ids.length);
+        }
+        return id;
+    }
+
+    /**
+     * Returns the id of the given {@link BytesRef}.
+     *
+     * @param bytes the bytes to look for
+     * @return the id of the given bytes, or {@code -1} if there is no mapping for the
+     * given bytes.
+     */
+    public int find(BytesRef bytes) {
+        return ids[findSlot(bytes)];
+    }
+
+    private int findSlot(BytesRef bytes) {
+        // final position within the hash table is determined by linear probing
+        int code = StringHelper.murmurhash3_x86_32(bytes, StringHelper.GOOD_FAST_HASH_SEED);
+        int slot = code & hashMask;
+        final BytesRef scratch = this.scratch;
+        int id;
+        while ((id = ids[slot]) != -1 && get(id, scratch).bytesEquals(bytes) == false) {
+            slot = (slot + 1) & hashMask;
+        }
+        return slot;
+    }
+
+    private void rehash(int newSize) {
+        final int newMask = newSize - 1;
+        final int[] newIds = new int[newSize];
+        Arrays.fill(newIds, -1);
+        for (int i = 0; i < ids.length; i++) {
+            final int id = ids[i];
+            if (id != -1) {
+                int slot = StringHelper.murmurhash3_x86_32(get(id, scratch), StringHelper.GOOD_FAST_HASH_SEED) & newMask;
+                while (newIds[slot] != -1) {
+                    slot = (slot + 1) & newMask;
+                }
+                newIds[slot] = id;
+            }
+        }
+        ids = newIds;
+        hashMask = newMask;
+        hashHalfSize = newSize >> 1;
+    }
+
+    /**
+     * Removes all values, keeping the allocated memory for reuse.
+     */
+    public void clear() {
+        count = 0;
+        poolUpto = 0;
+        Arrays.fill(ids, -1);
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        return BASE_RAM_BYTES_USED
+                + RamUsageEstimator.sizeOf(pool)
+                + RamUsageEstimator.sizeOf(bytesStart)
+                + RamUsageEstimator.sizeOf(ids);
+    }
+}
@@ -0,0 +1,30 @@
+package com.mythology.cloud.apollo.util;
+
+import java.io.IOException;
+
+/**
+ * A simple iterator interface for {@link BytesRef} iteration.
+ * <p>
+ * {@link BytesRef}的简单迭代器接口。
+ * </p>
+ */
+public interface BytesRefIterator {
+
+    /**
+     * Increments the iteration to the next {@link BytesRef} in the iterator.
+     * Returns the resulting {@link BytesRef} or <code>null</code> if the end of
+     * the iterator is reached. The returned BytesRef may be re-used across calls
+     * to next. After this method returns null, do not call it again: the results
+     * are undefined.
+     *
+     * @return the next {@link BytesRef} in the iterator or <code>null</code> if
+     * the end of the iterator is reached.
+     * @throws IOException If there is a low-level I/O error.
+     */
+    BytesRef next() throws IOException;
+
+    /**
+     * Singleton BytesRefIterator that iterates over 0 BytesRefs.
+     */
+    BytesRefIterator EMPTY = () -> null;
+}
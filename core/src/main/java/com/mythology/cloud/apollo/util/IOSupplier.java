@@ -0,0 +1,21 @@
+package com.mythology.cloud.apollo.util;
+
+import java.io.IOException;
+
+/**
+ * This is a result supplier that is allowed to throw an IOException.
+ *
+ * @param <T> the suppliers result type.
+ * @see java.util.function.Supplier
+ */
+@FunctionalInterface
+public interface IOSupplier<T> {
+
+    /**
+     * Gets the result.
+     *
+     * @return the result
+     * @throws IOException if producing the result throws an {@link IOException}
+     */
+    T get() throws IOException;
+}
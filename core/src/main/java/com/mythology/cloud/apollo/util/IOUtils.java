@@ -0,0 +1,172 @@
+package com.mythology.cloud.apollo.util;
+
+import com.mythology.cloud.apollo.store.Directory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Utilities for dealing with {@link Closeable}s.
+ *
+ * <p>
+ * 关闭资源的工具方法，保证所有资源都被关闭，并抛出遇到的第一个异常。
+ * </p>
+ *
+ * @lucene.internal
+ */
+public final class IOUtils {
+
+    private IOUtils() {
+    } // no instance
+
+    /**
+     * Closes all given <tt>Closeable</tt>s.  Some of the
+     * <tt>Closeable</tt>s may be null; they are
+     * ignored.  After everything is closed, the method either
+     * throws the first exception it hit while closing, or
+     * completes normally if there were no exceptions.
+     *
+     * @param objects objects to call <tt>close()</tt> on
+     */
+    public static void close(Closeable... objects) throws IOException {
+        close(Arrays.asList(objects));
+    }
+
+    /**
+     * Closes all given <tt>Closeable</tt>s.
+     *
+     * @see #close(Closeable...)
+     */
+    public static void close(Iterable<? extends Closeable> objects) throws IOException {
+        Throwable th = null;
+        for (Closeable object : objects) {
+            try {
+                if (object != null) {
+                    object.close();
+                }
+            } catch (Throwable t) {
+                th = useOrSuppress(th, t);
+            }
+        }
+
+        if (th != null) {
+            throw rethrowAlways(th);
+        }
+    }
+
+    /**
+     * Closes all given <tt>Closeable</tt>s, suppressing all thrown exceptions.
+     * Some of the <tt>Closeable</tt>s may be null, they are ignored.
+     *
+     * @param objects objects to call <tt>close()</tt> on
+     */
+    public static void closeWhileHandlingException(Closeable... objects) {
+        closeWhileHandlingException(Arrays.asList(objects));
+    }
+
+    /**
+     * Closes all given <tt>Closeable</tt>s, suppressing all thrown non {@link VirtualMachineError} exceptions.
+     * Even if a {@link VirtualMachineError} is thrown all given closeable are closed.
+     *
+     * @see #closeWhileHandlingException(Closeable...)
+     */
+    public static void closeWhileHandlingException(Iterable<? extends Closeable> objects) {
+        VirtualMachineError firstError = null;
+        Throwable firstThrowable = null;
+        for (Closeable object : objects) {
+            try {
+                if (object != null) {
+                    object.close();
+                }
+            } catch (VirtualMachineError e) {
+                firstError = useOrSuppress(firstError, e);
+            } catch (Throwable t) {
+                firstThrowable = useOrSuppress(firstThrowable, t);
+            }
+        }
+        if (firstError != null) {
+            // we ensure that we bubble up any errors. We can't recover from these but need to make sure they are
+            // bubbled up. if a non-VMError is thrown we also add the suppressed exceptions to it.
+            if (firstThrowable != null) {
+                firstError.addSuppressed(firstThrowable);
+            }
+            throw firstError;
+        }
+    }
+
+    /**
+     * Returns the second throwable if the first is null otherwise adds the second as suppressed to the first
+     * and returns it.
+     */
+    public static <T extends Throwable> T useOrSuppress(T first, T second) {
+        if (first == null) {
+            return second;
+        } else {
+            first.addSuppressed(second);
+        }
+        return first;
+    }
+
+    /**
+     * This utility method takes a previously caught (non-null)
+     * {@code Throwable} and rethrows either the original argument
+     * if it was a subclass of the {@code IOException} or an
+     * {@code RuntimeException} with the cause set to the argument.
+     *
+     * <p>This method <strong>never returns any value</strong>, even though it declares
+     * a return value of type {@link Error}. The return value declaration
+     * is very useful to let the compiler know that the code path following
+     * the invocation of this method is unreachable. So in most cases the
+     * invocation of this method will be guarded by an {@code if} and
+     * used together with a {@code throw} statement, as in:
+     * </p>
+     * <pre>{@code
+     *   if (t != null) throw IOUtils.rethrowAlways(t)
+     * }
+     * </pre>
+     *
+     * @param th The throwable to rethrow, <strong>must not be null</strong>.
+     * @return This method always results in an exception, it never returns any value.
+     * See method documentation for details and usage example.
+     * @throws IOException      if the argument was an instance of IOException
+     * @throws RuntimeException with the {@link RuntimeException#getCause()} set
+     *                          to the argument, if it was not an instance of IOException.
+     */
+    public static Error rethrowAlways(Throwable th) throws IOException, RuntimeException {
+        if (th == null) {
+            throw new AssertionError("rethrow argument must not be null.");
+        }
+
+        if (th instanceof IOException) {
+            throw (IOException) th;
+        }
+
+        if (th instanceof RuntimeException) {
+            throw (RuntimeException) th;
+        }
+
+        if (th instanceof Error) {
+            throw (Error) th;
+        }
+
+        throw new RuntimeException(th);
+    }
+
+    /**
+     * Deletes all given files, suppressing all thrown IOExceptions.
+     * Some of the files may be null, they are ignored.
+     */
+    public static void deleteFilesIgnoringExceptions(Directory dir, Collection<String> files) {
+        for (String name : files) {
+            if (name != null) {
+                try {
+                    dir.deleteFile(name);
+                } catch (Throwable ignored) {
+                    // ignore
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.mythology.cloud.apollo.util;
+
+import java.io.Closeable;
+
+/**
+ * Debugging API for Lucene classes such as {@link com.mythology.cloud.apollo.index.IndexWriter}
+ * and {@link com.mythology.cloud.apollo.index.ConcurrentMergeScheduler}.
+ * <p>
+ * NOTE: Enabling infostreams may cause performance degradation
+ * in some components.
+ * <p>
+ * 调试信息输出接口，按组件名称过滤，例如合并调度器用它报告合并进度与吞吐量。
+ * </p>
+ *
+ * @lucene.internal
+ */
+public abstract class InfoStream implements Closeable {
+
+    /**
+     * Instance of InfoStream that does no logging at all.
+     */
+    public static final InfoStream NO_OUTPUT = new NoOutput();
+
+    private static final class NoOutput extends InfoStream {
+        @Override
+        public void message(String component, String message) {
+            assert false : "message() should not be called when isEnabled returns false";
+        }
+
+        @Override
+        public boolean isEnabled(String component) {
+            return false;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * prints a message
+     */
+    public abstract void message(String component, String message);
+
+    /**
+     * returns true if messages are enabled and should be posted to {@link #message}.
+     */
+    public abstract boolean isEnabled(String component);
+}
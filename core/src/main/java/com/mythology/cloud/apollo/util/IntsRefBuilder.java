@@ -0,0 +1,123 @@
+package com.mythology.cloud.apollo.util;
+
+/**
+ * A builder for {@link IntsRef} instances.
+ * <p>
+ * IntsRef构建器，可复用的可增长int数组。
+ * </p>
+ *
+ * @lucene.internal
+ */
+public class IntsRefBuilder {
+
+    private final IntsRef ref;
+
+    /**
+     * Sole constructor.
+     */
+    public IntsRefBuilder() {
+        ref = new IntsRef();
+    }
+
+    /**
+     * Return a reference to the ints of this builder.
+     */
+    public int[] ints() {
+        return ref.ints;
+    }
+
+    /**
+     * Return the number of ints in this buffer.
+     */
+    public int length() {
+        return ref.length;
+    }
+
+    /**
+     * Set the length.
+     */
+    public void setLength(int length) {
+        this.ref.length = length;
+    }
+
+    /**
+     * Empty this builder.
+     */
+    public void clear() {
+        setLength(0);
+    }
+
+    /**
+     * Return the int at the given offset.
+     */
+    public int intAt(int offset) {
+        return ref.ints[offset];
+    }
+
+    /**
+     * Set an int.
+     */
+    public void setIntAt(int offset, int b) {
+        ref.ints[offset] = b;
+    }
+
+    /**
+     * Append the provided int to this buffer.
+     */
+    public void append(int i) {
+        grow(ref.length + 1);
+        ref.ints[ref.length++] = i;
+    }
+
+    /**
+     * Used to grow the reference array.
+     * <p>
+     * In general this should not be used as it does not take the offset into account.
+     */
+    public void grow(int newLength) {
+        ref.ints = ArrayUtil.grow(ref.ints, newLength);
+    }
+
+    /**
+     * Copies the given array into this instance.
+     */
+    public void copyInts(int[] otherInts, int otherOffset, int otherLength) {
+        grow(otherLength);
+        System.arraycopy(otherInts, otherOffset, ref.ints, 0, otherLength);
+        ref.length = otherLength;
+    }
+
+    /**
+     * Copies the given array into this instance.
+     */
+    public void copyInts(IntsRef ints) {
+        copyInts(ints.ints, ints.offset, ints.length);
+    }
+
+    /**
+     * Return a {@link IntsRef} that points to the internal content of this
+     * builder. Any update to the content of this builder might invalidate
+     * the provided <code>ref</code> and vice-versa.
+     */
+    public IntsRef get() {
+        assert ref.offset == 0 : "Modifying the offset of the returned ref is illegal";
+        return ref;
+    }
+
+    /**
+     * Build a new {@link IntsRef} that has the same content as this builder.
+     */
+    public IntsRef toIntsRef() {
+        return IntsRef.deepCopyOf(get());
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int hashCode() {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,43 @@
+package com.mythology.cloud.apollo.util;
+
+/**
+ * Abstraction over an array of longs.
+ *
+ * <p>
+ * 对long数组的抽象，通常由按位压缩(bit-packed)的数据实现随机访问。
+ * </p>
+ *
+ * @lucene.internal
+ */
+public abstract class LongValues {
+
+    /**
+     * An instance that returns the provided value.
+     */
+    public static final LongValues IDENTITY = new LongValues() {
+
+        @Override
+        public long get(long index) {
+            return index;
+        }
+
+    };
+
+    /**
+     * An instance that always returns {@code 0}.
+     */
+    public static final LongValues ZEROES = new LongValues() {
+
+        @Override
+        public long get(long index) {
+            return 0;
+        }
+
+    };
+
+    /**
+     * Get value at <code>index</code>.
+     */
+    public abstract long get(long index);
+
+}
@@ -0,0 +1,67 @@
+package com.mythology.cloud.apollo.util;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * InfoStream implementation over a {@link PrintStream}
+ * such as <code>System.out</code>.
+ * <p>
+ * 输出到{@link PrintStream}的{@link InfoStream}。
+ * </p>
+ *
+ * @lucene.internal
+ */
+public class PrintStreamInfoStream extends InfoStream {
+
+    // Used for printing messages
+    private static final AtomicInteger MESSAGE_ID = new AtomicInteger();
+    protected final int messageID;
+
+    protected final PrintStream stream;
+
+    public PrintStreamInfoStream(PrintStream stream) {
+        this(stream, MESSAGE_ID.getAndIncrement());
+    }
+
+    public PrintStreamInfoStream(PrintStream stream, int messageID) {
+        this.stream = stream;
+        this.messageID = messageID;
+    }
+
+    @Override
+    public void message(String component, String message) {
+        stream.println(component + " " + messageID + " [" + getTimestamp() + "; " + Thread.currentThread().getName() + "]: " + message);
+    }
+
+    @Override
+    public boolean isEnabled(String component) {
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!isSystemStream()) {
+            stream.close();
+        }
+    }
+
+    public boolean isSystemStream() {
+        return stream == System.out || stream == System.err;
+    }
+
+    /**
+     * Returns the current time as string for insertion into log messages.
+     */
+    protected String getTimestamp() {
+        // We "misuse" Java's date formatting here to get a human readable timestamp,
+        // which is thread-safe as the DateFormat instance is created per call.
+        final DateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS", Locale.ROOT);
+        return dateFormat.format(new Date());
+    }
+}
@@ -0,0 +1,857 @@
+package com.mythology.cloud.apollo.util;
+
+import com.mythology.cloud.apollo.search.DocIdSet;
+import com.mythology.cloud.apollo.search.DocIdSetIterator;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * {@link DocIdSet} implementation inspired from http://roaringbitmap.org/
+ * <p>
+ * The space is divided into blocks of 2^16 bits and each block is encoded
+ * independently. Each non-empty block is stored in the smallest of three
+ * containers: a sorted array of the 16 lower bits of its doc IDs, a bitmap
+ * of 1024 longs, or a list of runs of consecutive doc IDs. Empty blocks
+ * take no space. This makes the set small for sparse filters, while the
+ * dense blocks of dense filters are combined 64 doc IDs at a time.
+ * <p>
+ * Sets are immutable once built, and can be combined with another set or
+ * with {@link Bits}, for instance the live docs of a segment, which returns
+ * a new set and shares the containers that are not modified.
+ * <p>
+ * 受 roaring bitmap 启发的文档ID集合：文档号空间按 2^16 分块，每个非空块选用数组、位图、游程三种容器中最小的一种存储，
+ * 空块不占空间；因此稀疏过滤器占用很小，稠密块之间的合并按64位字进行。集合构建后不可变，可以与另一集合或 {@link Bits}
+ * 做并、交运算，未改变的容器在结果中共享。
+ * </p>
+ *
+ * @lucene.experimental
+ */
+public class RoaringDocIdSet extends DocIdSet {
+
+    private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(RoaringDocIdSet.class);
+
+    private static final int BLOCK_BITS = 16;
+    private static final int BLOCK_SIZE = 1 << BLOCK_BITS;
+    private static final int BLOCK_MASK = BLOCK_SIZE - 1;
+    private static final int BITMAP_WORDS = BLOCK_SIZE >>> 6;
+    // a bitmap container takes 8KB, which is what an array container of
+    // 4096 docs takes: array containers never hold more docs than that
+    private static final int MAX_ARRAY_LENGTH = 1 << 12;
+
+    /**
+     * A builder of {@link RoaringDocIdSet}s.
+     */
+    public static class Builder {
+
+        private final int maxDoc;
+        private final Container[] containers;
+        private int cardinality;
+        private int lastDocId;
+        private int currentBlock;
+
+        // the docs of the current block go to the buffer, and to a bitmap
+        // once there are too many of them for an array container
+        private final char[] buffer;
+        private int bufferSize;
+        private long[] words;
+        private int currentBlockCardinality;
+
+        /**
+         * Sole constructor.
+         */
+        public Builder(int maxDoc) {
+            this.maxDoc = maxDoc;
+            this.containers = new Container[(maxDoc + BLOCK_MASK) >>> BLOCK_BITS];
+            this.lastDocId = -1;
+            this.currentBlock = -1;
+            this.buffer = new char[MAX_ARRAY_LENGTH];
+        }
+
+        private void flush() {
+            assert currentBlockCardinality <= BLOCK_SIZE;
+            if (words != null) {
+                containers[currentBlock] = Container.optimize(words, currentBlockCardinality);
+            } else if (bufferSize > 0) {
+                containers[currentBlock] = Container.optimize(Arrays.copyOf(buffer, bufferSize));
+            }
+            bufferSize = 0;
+            words = null;
+            currentBlockCardinality = 0;
+        }
+
+        /**
+         * Add a new doc-id to this builder.
+         * NOTE: doc ids must be added in order.
+         */
+        public Builder add(int docId) {
+            if (docId <= lastDocId) {
+                throw new IllegalArgumentException("Doc ids must be added in-order, got " + docId + " which is <= lastDocID=" + lastDocId);
+            }
+            if (docId >= maxDoc) {
+                throw new IllegalArgumentException("docId=" + docId + " is out of bounds, maxDoc=" + maxDoc);
+            }
+            final int block = docId >>> BLOCK_BITS;
+            if (block != currentBlock) {
+                // we went to a different block, let's flush what we buffered and start from fresh
+                if (currentBlock != -1) {
+                    flush();
+                }
+                currentBlock = block;
+            }
+
+            final char low = (char) docId;
+            if (words == null) {
+                if (bufferSize < buffer.length) {
+                    buffer[bufferSize++] = low;
+                } else {
+                    // too many docs for an array container, switch to a bitmap
+                    words = new long[BITMAP_WORDS];
+                    for (int i = 0; i < bufferSize; ++i) {
+                        words[buffer[i] >>> 6] |= 1L << buffer[i];
+                    }
+                    bufferSize = 0;
+                    words[low >>> 6] |= 1L << low;
+                }
+            } else {
+                words[low >>> 6] |= 1L << low;
+            }
+
+            lastDocId = docId;
+            currentBlockCardinality++;
+            cardinality++;
+            return this;
+        }
+
+        /**
+         * Add the content of the provided {@link DocIdSetIterator}.
+         */
+        public Builder add(DocIdSetIterator disi) throws IOException {
+            for (int doc = disi.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = disi.nextDoc()) {
+                add(doc);
+            }
+            return this;
+        }
+
+        /**
+         * Build an instance.
+         */
+        public RoaringDocIdSet build() {
+            if (currentBlock != -1) {
+                flush();
+                currentBlock = -1;
+            }
+            return new RoaringDocIdSet(maxDoc, containers, cardinality);
+        }
+    }
+
+    private final int maxDoc;
+    private final Container[] containers;
+    private final int cardinality;
+    private final long ramBytesUsed;
+
+    private RoaringDocIdSet(int maxDoc, Container[] containers, int cardinality) {
+        this.maxDoc = maxDoc;
+        this.containers = containers;
+        this.cardinality = cardinality;
+        long ramBytesUsed = BASE_RAM_BYTES_USED + RamUsageEstimator.shallowSizeOf(containers);
+        for (Container container : containers) {
+            if (container != null) {
+                ramBytesUsed += container.ramBytesUsed();
+            }
+        }
+        this.ramBytesUsed = ramBytesUsed;
+    }
+
+    private static RoaringDocIdSet of(int maxDoc, Container[] containers) {
+        int cardinality = 0;
+        for (Container container : containers) {
+            if (container != null) {
+                cardinality += container.cardinality();
+            }
+        }
+        return new RoaringDocIdSet(maxDoc, containers, cardinality);
+    }
+
+    /**
+     * Return the number of documents in this {@link DocIdSet}. This method
+     * runs in constant-time.
+     */
+    public int cardinality() {
+        return cardinality;
+    }
+
+    /**
+     * Return the exclusive upper bound of the doc ids of this set.
+     */
+    public int maxDoc() {
+        return maxDoc;
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        return ramBytesUsed;
+    }
+
+    @Override
+    public DocIdSetIterator iterator() {
+        if (cardinality == 0) {
+            return null;
+        }
+        return new Iterator();
+    }
+
+    @Override
+    public Bits bits() {
+        return new Bits() {
+
+            @Override
+            public boolean get(int index) {
+                final Container container = containers[index >>> BLOCK_BITS];
+                return container != null && container.get(index & BLOCK_MASK);
+            }
+
+            @Override
+            public int length() {
+                return maxDoc;
+            }
+        };
+    }
+
+    /**
+     * Return a new set that contains the docs that are in this set or in
+     * {@code other}.
+     */
+    public RoaringDocIdSet union(RoaringDocIdSet other) {
+        final Container[] result = new Container[Math.max(containers.length, other.containers.length)];
+        for (int block = 0; block < result.length; ++block) {
+            final Container a = block < containers.length ? containers[block] : null;
+            final Container b = block < other.containers.length ? other.containers[block] : null;
+            if (a == null) {
+                result[block] = b;
+            } else if (b == null) {
+                result[block] = a;
+            } else {
+                result[block] = Container.union(a, b);
+            }
+        }
+        return of(Math.max(maxDoc, other.maxDoc), result);
+    }
+
+    /**
+     * Return a new set that contains the docs that are both in this set and
+     * in {@code other}.
+     */
+    public RoaringDocIdSet intersect(RoaringDocIdSet other) {
+        final Container[] result = new Container[Math.min(containers.length, other.containers.length)];
+        for (int block = 0; block < result.length; ++block) {
+            final Container a = containers[block];
+            final Container b = other.containers[block];
+            if (a != null && b != null) {
+                result[block] = Container.intersect(a, b);
+            }
+        }
+        return of(Math.min(maxDoc, other.maxDoc), result);
+    }
+
+    /**
+     * Return a new set that contains the docs of this set that are set in
+     * {@code bits}, such as the live docs of a segment. Docs that are beyond
+     * the length of {@code bits} are not retained. This is done 64 docs at a
+     * time if {@code bits} is a {@link FixedBitSet}.
+     */
+    public RoaringDocIdSet intersect(Bits bits) {
+        final FixedBitSet bitSet = bits instanceof FixedBitSet ? (FixedBitSet) bits : null;
+        final Container[] result = new Container[containers.length];
+        for (int block = 0; block < result.length; ++block) {
+            final Container container = containers[block];
+            if (container == null) {
+                continue;
+            }
+            final int base = block << BLOCK_BITS;
+            if (bitSet != null) {
+                final long[] words = new long[BITMAP_WORDS];
+                container.orInto(words);
+                andWords(words, bitSet, base);
+                result[block] = Container.optimize(words);
+            } else if (container.cardinality() <= MAX_ARRAY_LENGTH) {
+                final char[] values = new char[container.cardinality()];
+                int size = 0;
+                final Container.Iterator it = container.iterator();
+                for (int low = it.nextValue(); low != DocIdSetIterator.NO_MORE_DOCS; low = it.nextValue()) {
+                    final int doc = base | low;
+                    if (doc < bits.length() && bits.get(doc)) {
+                        values[size++] = (char) low;
+                    }
+                }
+                result[block] = Container.optimize(Arrays.copyOf(values, size));
+            } else {
+                final long[] words = new long[BITMAP_WORDS];
+                final Container.Iterator it = container.iterator();
+                for (int low = it.nextValue(); low != DocIdSetIterator.NO_MORE_DOCS; low = it.nextValue()) {
+                    final int doc = base | low;
+                    if (doc < bits.length() && bits.get(doc)) {
+                        words[low >>> 6] |= 1L << low;
+                    }
+                }
+                result[block] = Container.optimize(words);
+            }
+        }
+        return of(maxDoc, result);
+    }
+
+    /**
+     * Return a new set that contains the docs that are in this set or set in
+     * {@code bits}. This is done 64 docs at a time if {@code bits} is a
+     * {@link FixedBitSet}.
+     */
+    public RoaringDocIdSet union(Bits bits) {
+        final FixedBitSet bitSet = bits instanceof FixedBitSet ? (FixedBitSet) bits : null;
+        final int maxDoc = Math.max(this.maxDoc, bits.length());
+        final Container[] result = new Container[(maxDoc + BLOCK_MASK) >>> BLOCK_BITS];
+        for (int block = 0; block < result.length; ++block) {
+            final Container container = block < containers.length ? containers[block] : null;
+            final int base = block << BLOCK_BITS;
+            final long[] words = new long[BITMAP_WORDS];
+            if (container != null) {
+                container.orInto(words);
+            }
+            if (bitSet != null) {
+                orWords(words, bitSet, base);
+            } else {
+                final int end = Math.min(bits.length(), base + BLOCK_SIZE);
+                for (int doc = base; doc < end; ++doc) {
+                    if (bits.get(doc)) {
+                        words[(doc & BLOCK_MASK) >>> 6] |= 1L << doc;
+                    }
+                }
+            }
+            result[block] = Container.optimize(words);
+        }
+        return of(maxDoc, result);
+    }
+
+    // words &= the words of the block of bitSet that starts at base
+    private static void andWords(long[] words, FixedBitSet bitSet, int base) {
+        final long[] bits = bitSet.getBits();
+        final int offset = base >>> 6;
+        // the ghost bits of bitSet are clear
+        final int numWords = Math.max(0, Math.min(BITMAP_WORDS, FixedBitSet.bits2words(bitSet.length()) - offset));
+        for (int i = 0; i < numWords; ++i) {
+            words[i] &= bits[offset + i];
+        }
+        Arrays.fill(words, numWords, BITMAP_WORDS, 0L);
+    }
+
+    // words |= the words of the block of bitSet that starts at base
+    private static void orWords(long[] words, FixedBitSet bitSet, int base) {
+        final long[] bits = bitSet.getBits();
+        final int offset = base >>> 6;
+        final int numWords = Math.max(0, Math.min(BITMAP_WORDS, FixedBitSet.bits2words(bitSet.length()) - offset));
+        for (int i = 0; i < numWords; ++i) {
+            words[i] |= bits[offset + i];
+        }
+    }
+
+    @Override
+    public String toString() {
+        int arrays = 0, bitmaps = 0, runs = 0;
+        for (Container container : containers) {
+            if (container instanceof ArrayContainer) {
+                arrays++;
+            } else if (container instanceof BitmapContainer) {
+                bitmaps++;
+            } else if (container instanceof RunContainer) {
+                runs++;
+            }
+        }
+        return "RoaringDocIdSet(cardinality=" + cardinality + ",arrays=" + arrays + ",bitmaps=" + bitmaps + ",runs=" + runs + ")";
+    }
+
+    private class Iterator extends DocIdSetIterator {
+
+        int block;
+        Container.Iterator sub;
+        int doc;
+
+        Iterator() {
+            doc = -1;
+            block = -1;
+            sub = null;
+        }
+
+        @Override
+        public int docID() {
+            return doc;
+        }
+
+        @Override
+        public int nextDoc() {
+            if (sub != null) {
+                final int low = sub.nextValue();
+                if (low != NO_MORE_DOCS) {
+                    return doc = (block << BLOCK_BITS) | low;
+                }
+            }
+            return firstDocFromNextBlock();
+        }
+
+        @Override
+        public int advance(int target) {
+            final int targetBlock = target >>> BLOCK_BITS;
+            if (targetBlock != block) {
+                block = targetBlock;
+                if (block >= containers.length) {
+                    sub = null;
+                    return doc = NO_MORE_DOCS;
+                }
+                sub = containers[block] == null ? null : containers[block].iterator();
+            }
+            if (sub != null) {
+                final int low = sub.advance(target & BLOCK_MASK);
+                if (low != NO_MORE_DOCS) {
+                    return doc = (block << BLOCK_BITS) | low;
+                }
+            }
+            return firstDocFromNextBlock();
+        }
+
+        private int firstDocFromNextBlock() {
+            while (true) {
+                block += 1;
+                if (block >= containers.length) {
+                    sub = null;
+                    return doc = NO_MORE_DOCS;
+                } else if (containers[block] != null) {
+                    sub = containers[block].iterator();
+                    final int low = sub.nextValue();
+                    assert low != NO_MORE_DOCS;
+                    return doc = (block << BLOCK_BITS) | low;
+                }
+            }
+        }
+
+        @Override
+        public long cost() {
+            return cardinality;
+        }
+    }
+
+    /**
+     * The docs of a block, identified by their 16 lower bits.
+     */
+    private abstract static class Container implements Accountable {
+
+        /**
+         * Iterates over the values of a container in order.
+         */
+        abstract static class Iterator {
+
+            /**
+             * Return the next value, or {@link DocIdSetIterator#NO_MORE_DOCS}.
+             */
+            abstract int nextValue();
+
+            /**
+             * Return the first value that is greater than or equal to the
+             * target, or {@link DocIdSetIterator#NO_MORE_DOCS}. The target
+             * is greater than the current value.
+             */
+            abstract int advance(int target);
+        }
+
+        abstract int cardinality();
+
+        abstract boolean get(int low);
+
+        abstract Iterator iterator();
+
+        /**
+         * Set the bits of the values of this container in {@code words}.
+         */
+        abstract void orInto(long[] words);
+
+        static Container union(Container a, Container b) {
+            if (a.cardinality() + b.cardinality() <= MAX_ARRAY_LENGTH) {
+                final char[] values = new char[a.cardinality() + b.cardinality()];
+                int size = 0;
+                final Iterator itA = a.iterator();
+                final Iterator itB = b.iterator();
+                int lowA = itA.nextValue();
+                int lowB = itB.nextValue();
+                while (lowA != DocIdSetIterator.NO_MORE_DOCS || lowB != DocIdSetIterator.NO_MORE_DOCS) {
+                    if (lowA < lowB) {
+                        values[size++] = (char) lowA;
+                        lowA = itA.nextValue();
+                    } else if (lowB < lowA) {
+                        values[size++] = (char) lowB;
+                        lowB = itB.nextValue();
+                    } else {
+                        values[size++] = (char) lowA;
+                        lowA = itA.nextValue();
+                        lowB = itB.nextValue();
+                    }
+                }
+                return optimize(Arrays.copyOf(values, size));
+            }
+            final long[] words = new long[BITMAP_WORDS];
+            a.orInto(words);
+            b.orInto(words);
+            return optimize(words);
+        }
+
+        static Container intersect(Container a, Container b) {
+            if (a.cardinality() > b.cardinality()) {
+                final Container tmp = a;
+                a = b;
+                b = tmp;
+            }
+            if (a.cardinality() <= MAX_ARRAY_LENGTH) {
+                // check the values of the smaller container against the larger one
+                final char[] values = new char[a.cardinality()];
+                int size = 0;
+                final Iterator it = a.iterator();
+                for (int low = it.nextValue(); low != DocIdSetIterator.NO_MORE_DOCS; low = it.nextValue()) {
+                    if (b.get(low)) {
+                        values[size++] = (char) low;
+                    }
+                }
+                return optimize(Arrays.copyOf(values, size));
+            }
+            final long[] wordsA = new long[BITMAP_WORDS];
+            a.orInto(wordsA);
+            final long[] wordsB;
+            if (b instanceof BitmapContainer) {
+                wordsB = ((BitmapContainer) b).bits.getBits();
+            } else {
+                wordsB = new long[BITMAP_WORDS];
+                b.orInto(wordsB);
+            }
+            for (int i = 0; i < BITMAP_WORDS; ++i) {
+                wordsA[i] &= wordsB[i];
+            }
+            return optimize(wordsA);
+        }
+
+        /**
+         * Return the smallest container for the given sorted values, or null
+         * if there are none.
+         */
+        static Container optimize(char[] values) {
+            assert values.length <= MAX_ARRAY_LENGTH;
+            if (values.length == 0) {
+                return null;
+            }
+            int numRuns = 1;
+            for (int i = 1; i < values.length; ++i) {
+                assert values[i] > values[i - 1];
+                if (values[i] != values[i - 1] + 1) {
+                    numRuns++;
+                }
+            }
+            if (RunContainer.bytes(numRuns) < ArrayContainer.bytes(values.length)) {
+                final char[] starts = new char[numRuns];
+                final char[] lasts = new char[numRuns];
+                int run = 0;
+                starts[0] = values[0];
+                for (int i = 1; i < values.length; ++i) {
+                    if (values[i] != values[i - 1] + 1) {
+                        lasts[run++] = values[i - 1];
+                        starts[run] = values[i];
+                    }
+                }
+                lasts[run] = values[values.length - 1];
+                return new RunContainer(starts, lasts, values.length);
+            }
+            return new ArrayContainer(values);
+        }
+
+        /**
+         * Return the smallest container for the given bitmap, or null if no
+         * bits are set.
+         */
+        static Container optimize(long[] words) {
+            int cardinality = 0;
+            for (long word : words) {
+                cardinality += Long.bitCount(word);
+            }
+            return optimize(words, cardinality);
+        }
+
+        static Container optimize(long[] words, int cardinality) {
+            assert words.length == BITMAP_WORDS;
+            if (cardinality == 0) {
+                return null;
+            }
+            // a run starts at every set bit whose previous bit is clear
+            int numRuns = 0;
+            long carry = 0;
+            for (long word : words) {
+                numRuns += Long.bitCount(word & ~((word << 1) | carry));
+                carry = word >>> 63;
+            }
+
+            final long runBytes = RunContainer.bytes(numRuns);
+            final long arrayBytes = cardinality <= MAX_ARRAY_LENGTH ? ArrayContainer.bytes(cardinality) : Long.MAX_VALUE;
+            if (runBytes < arrayBytes && runBytes < BitmapContainer.BYTES) {
+                final char[] starts = new char[numRuns];
+                final char[] lasts = new char[numRuns];
+                int run = 0, ended = 0;
+                for (int i = 0; i < words.length; ++i) {
+                    final long word = words[i];
+                    final long prev = i == 0 ? 0L : words[i - 1] >>> 63;
+                    final long next = i + 1 < words.length ? words[i + 1] << 63 : 0L;
+                    // runs end at every set bit whose next bit is clear, in the
+                    // same order as they start
+                    for (long runStarts = word & ~((word << 1) | prev); runStarts != 0; runStarts &= runStarts - 1) {
+                        starts[run++] = (char) ((i << 6) | Long.numberOfTrailingZeros(runStarts));
+                    }
+                    for (long runEnds = word & ~((word >>> 1) | next); runEnds != 0; runEnds &= runEnds - 1) {
+                        lasts[ended++] = (char) ((i << 6) | Long.numberOfTrailingZeros(runEnds));
+                    }
+                }
+                assert run == numRuns && ended == numRuns;
+                return new RunContainer(starts, lasts, cardinality);
+            } else if (arrayBytes < BitmapContainer.BYTES) {
+                final char[] values = new char[cardinality];
+                int size = 0;
+                for (int i = 0; i < words.length; ++i) {
+                    for (long word = words[i]; word != 0; word &= word - 1) {
+                        values[size++] = (char) ((i << 6) | Long.numberOfTrailingZeros(word));
+                    }
+                }
+                assert size == cardinality;
+                return new ArrayContainer(values);
+            }
+            return new BitmapContainer(new FixedBitSet(words, BLOCK_SIZE), cardinality);
+        }
+    }
+
+    /**
+     * A sorted array of values, for sparse blocks.
+     */
+    private static final class ArrayContainer extends Container {
+
+        private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(ArrayContainer.class);
+
+        static long bytes(int cardinality) {
+            return (long) Character.BYTES * cardinality;
+        }
+
+        private final char[] values;
+
+        ArrayContainer(char[] values) {
+            this.values = values;
+        }
+
+        @Override
+        int cardinality() {
+            return values.length;
+        }
+
+        @Override
+        boolean get(int low) {
+            return Arrays.binarySearch(values, (char) low) >= 0;
+        }
+
+        @Override
+        Iterator iterator() {
+            return new Iterator() {
+                int i = -1;
+
+                @Override
+                int nextValue() {
+                    if (++i >= values.length) {
+                        return DocIdSetIterator.NO_MORE_DOCS;
+                    }
+                    return values[i];
+                }
+
+                @Override
+                int advance(int target) {
+                    // exponential search, then binary search
+                    int lo = i + 1;
+                    int step = 1;
+                    int hi = lo;
+                    while (hi < values.length && values[hi] < target) {
+                        lo = hi + 1;
+                        hi += step;
+                        step <<= 1;
+                    }
+                    hi = Math.min(hi, values.length);
+                    while (lo < hi) {
+                        final int mid = (lo + hi) >>> 1;
+                        if (values[mid] < target) {
+                            lo = mid + 1;
+                        } else {
+                            hi = mid;
+                        }
+                    }
+                    i = lo;
+                    return i < values.length ? values[i] : DocIdSetIterator.NO_MORE_DOCS;
+                }
+            };
+        }
+
+        @Override
+        void orInto(long[] words) {
+            for (char value : values) {
+                words[value >>> 6] |= 1L << value;
+            }
+        }
+
+        @Override
+        public long ramBytesUsed() {
+            return BASE_RAM_BYTES_USED + RamUsageEstimator.sizeOf(values);
+        }
+    }
+
+    /**
+     * A bitmap of the 2^16 values of the block, for dense blocks.
+     */
+    private static final class BitmapContainer extends Container {
+
+        private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(BitmapContainer.class);
+        static final long BYTES = (long) Long.BYTES * BITMAP_WORDS;
+
+        final FixedBitSet bits;
+        private final int cardinality;
+
+        BitmapContainer(FixedBitSet bits, int cardinality) {
+            assert bits.length() == BLOCK_SIZE;
+            this.bits = bits;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        boolean get(int low) {
+            return bits.get(low);
+        }
+
+        @Override
+        Iterator iterator() {
+            return new Iterator() {
+                int value = -1;
+
+                @Override
+                int nextValue() {
+                    return advance(value + 1);
+                }
+
+                @Override
+                int advance(int target) {
+                    if (target >= BLOCK_SIZE) {
+                        return value = DocIdSetIterator.NO_MORE_DOCS;
+                    }
+                    return value = bits.nextSetBit(target);
+                }
+            };
+        }
+
+        @Override
+        void orInto(long[] words) {
+            final long[] bits = this.bits.getBits();
+            for (int i = 0; i < BITMAP_WORDS; ++i) {
+                words[i] |= bits[i];
+            }
+        }
+
+        @Override
+        public long ramBytesUsed() {
+            return BASE_RAM_BYTES_USED + bits.ramBytesUsed();
+        }
+    }
+
+    /**
+     * Runs of consecutive values, for blocks whose values are clustered.
+     */
+    private static final class RunContainer extends Container {
+
+        private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(RunContainer.class);
+
+        static long bytes(int numRuns) {
+            return 2L * Character.BYTES * numRuns;
+        }
+
+        // first and last value of each run, both inclusive
+        private final char[] starts;
+        private final char[] lasts;
+        private final int cardinality;
+
+        RunContainer(char[] starts, char[] lasts, int cardinality) {
+            assert starts.length == lasts.length;
+            this.starts = starts;
+            this.lasts = lasts;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        boolean get(int low) {
+            // the last run that starts on or before low
+            int run = Arrays.binarySearch(starts, (char) low);
+            if (run >= 0) {
+                return true;
+            }
+            run = -2 - run;
+            return run >= 0 && low <= lasts[run];
+        }
+
+        @Override
+        Iterator iterator() {
+            return new Iterator() {
+                int run = 0;
+                int value = -1;
+
+                @Override
+                int nextValue() {
+                    return advance(value + 1);
+                }
+
+                @Override
+                int advance(int target) {
+                    while (run < starts.length && lasts[run] < target) {
+                        run++;
+                    }
+                    if (run == starts.length) {
+                        return value = DocIdSetIterator.NO_MORE_DOCS;
+                    }
+                    return value = Math.max(target, starts[run]);
+                }
+            };
+        }
+
+        @Override
+        void orInto(long[] words) {
+            for (int run = 0; run < starts.length; ++run) {
+                final int start = starts[run];
+                final int end = lasts[run] + 1;
+                final int startWord = start >>> 6;
+                final int endWord = (end - 1) >>> 6;
+                final long startMask = -1L << start;
+                final long endMask = -1L >>> -end;
+                if (startWord == endWord) {
+                    words[startWord] |= startMask & endMask;
+                } else {
+                    words[startWord] |= startMask;
+                    Arrays.fill(words, startWord + 1, endWord, -1L);
+                    words[endWord] |= endMask;
+                }
+            }
+        }
+
+        @Override
+        public long ramBytesUsed() {
+            return BASE_RAM_BYTES_USED + RamUsageEstimator.sizeOf(starts) + RamUsageEstimator.sizeOf(lasts);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.mythology.cloud.apollo.util;
+
+/**
+ * Thrown by lucene on detecting that Thread.interrupt() had
+ * been called.  Unlike Java's InterruptedException, this
+ * exception is not checked..
+ * <p>
+ * 检测到线程被中断时抛出的非受检异常。
+ * </p>
+ */
+public final class ThreadInterruptedException extends RuntimeException {
+    public ThreadInterruptedException(InterruptedException ie) {
+        super(ie);
+    }
+}
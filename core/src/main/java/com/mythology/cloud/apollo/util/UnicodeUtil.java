@@ -112,6 +112,15 @@ public final class UnicodeUtil {
             Character.MIN_SUPPLEMENTARY_CODE_POINT -
                     (UNI_SUR_HIGH_START << HALF_SHIFT) - UNI_SUR_LOW_START;
 
+    /**
+     * Returns the code point of a surrogate pair. The caller must make sure
+     * that {@code high} is in {@link #UNI_SUR_HIGH_START}..{@link #UNI_SUR_HIGH_END}
+     * and {@code low} in {@link #UNI_SUR_LOW_START}..{@link #UNI_SUR_LOW_END}.
+     */
+    public static int toCodePoint(char high, char low) {
+        return (high << HALF_SHIFT) + low + SURROGATE_OFFSET;
+    }
+
     /**
      * Maximum number of UTF8 bytes per UTF16 character.
      */
@@ -446,6 +455,47 @@ public final class UnicodeUtil {
         return codePointCount;
     }
 
+    /**
+     * Calculates the number of UTF16 code units necessary to represent a UTF8
+     * sequence, ie. the length of the equivalent {@link String}.
+     *
+     * <p>This method assumes valid UTF8 input and performs the same checks as
+     * {@link #codePointCount(BytesRef)}.
+     *
+     * @throws IllegalArgumentException If invalid codepoint header byte occurs or the
+     *                                  content is prematurely truncated.
+     */
+    public static int calcUTF8toUTF16Length(BytesRef utf8) {
+        int pos = utf8.offset;
+        final int limit = pos + utf8.length;
+        final byte[] bytes = utf8.bytes;
+
+        int utf16Length = 0;
+        while (pos < limit) {
+            int v = bytes[pos] & 0xFF;
+            if (v < 0x80) {
+                pos += 1;
+                utf16Length += 1;
+            } else if (v >= 0xc0 && v < 0xe0) {
+                pos += 2;
+                utf16Length += 1;
+            } else if (v >= 0xe0 && v < 0xf0) {
+                pos += 3;
+                utf16Length += 1;
+            } else if (v >= 0xf0 && v < 0xf8) {
+                // supplementary characters need a surrogate pair
+                pos += 4;
+                utf16Length += 2;
+            } else {
+                throw new IllegalArgumentException();
+            }
+        }
+
+        if (pos > limit) throw new IllegalArgumentException();
+
+        return utf16Length;
+    }
+
     /**
      * <p>This method assumes valid UTF8 input. This method
      * <strong>does not perform</strong> full UTF8 validation, it will check only the
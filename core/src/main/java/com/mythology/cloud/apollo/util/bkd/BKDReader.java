@@ -0,0 +1,297 @@
+package com.mythology.cloud.apollo.util.bkd;
+
+import com.mythology.cloud.apollo.codecs.CodecUtil;
+import com.mythology.cloud.apollo.index.CorruptIndexException;
+import com.mythology.cloud.apollo.index.PointValues;
+import com.mythology.cloud.apollo.store.IndexInput;
+import com.mythology.cloud.apollo.util.Accountable;
+import com.mythology.cloud.apollo.util.RamUsageEstimator;
+
+import java.io.IOException;
+
+/**
+ * Handles intersection of an multi-dimensional shape in byte[] space with a block KD-tree previously written with {@link BKDWriter}.
+ * <p>
+ * Only the index of the tree (split dimensions and values, leaf block file
+ * pointers) is loaded on heap; leaf blocks are read from the
+ * {@link IndexInput} when the query needs them, so cells that do not
+ * intersect the query are never read.
+ * <p>
+ * 块KD树读取器：只在堆上加载树的索引部分，叶子块按需从磁盘读取，与查询不相交的单元格不会被访问。
+ * </p>
+ *
+ * @lucene.experimental
+ */
+public final class BKDReader extends PointValues implements Accountable {
+
+    private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(BKDReader.class);
+
+    // Packed array of byte[] holding all split values in the full binary tree:
+    final byte[] splitPackedValues;
+    final int leafNodeOffset;
+    final long[] leafBlockFPs;
+    final int numDataDims;
+    final int numIndexDims;
+    final int bytesPerDim;
+    final int bytesPerIndexEntry;
+    final IndexInput in;
+    final int maxPointsInLeafNode;
+    final byte[] minPackedValue;
+    final byte[] maxPackedValue;
+    final long pointCount;
+    final int docCount;
+    final int packedBytesLength;
+    final int packedIndexBytesLength;
+
+    /**
+     * Caller must pre-seek the provided {@link IndexInput} to the index location that {@link BKDWriter#finish} returned
+     */
+    public BKDReader(IndexInput in) throws IOException {
+        CodecUtil.checkHeader(in, BKDWriter.CODEC_NAME, BKDWriter.VERSION_START, BKDWriter.VERSION_CURRENT);
+        numDataDims = in.readVInt();
+        numIndexDims = in.readVInt();
+        maxPointsInLeafNode = in.readVInt();
+        bytesPerDim = in.readVInt();
+        if (numDataDims < 1 || numDataDims > MAX_DIMENSIONS || numIndexDims < 1 || numIndexDims > numDataDims) {
+            throw new CorruptIndexException("numDataDims=" + numDataDims + " numIndexDims=" + numIndexDims, in);
+        }
+        if (bytesPerDim < 1 || bytesPerDim > MAX_NUM_BYTES) {
+            throw new CorruptIndexException("bytesPerDim=" + bytesPerDim, in);
+        }
+        bytesPerIndexEntry = 1 + bytesPerDim;
+        packedBytesLength = numDataDims * bytesPerDim;
+        packedIndexBytesLength = numIndexDims * bytesPerDim;
+
+        // Read index:
+        int numLeaves = in.readVInt();
+        if (Integer.bitCount(numLeaves) != 1) {
+            throw new CorruptIndexException("numLeaves must be a power of 2, got " + numLeaves, in);
+        }
+        leafNodeOffset = numLeaves;
+
+        minPackedValue = new byte[packedIndexBytesLength];
+        maxPackedValue = new byte[packedIndexBytesLength];
+        in.readBytes(minPackedValue, 0, packedIndexBytesLength);
+        in.readBytes(maxPackedValue, 0, packedIndexBytesLength);
+
+        pointCount = in.readVLong();
+        docCount = in.readVInt();
+
+        splitPackedValues = new byte[bytesPerIndexEntry * numLeaves];
+        in.readBytes(splitPackedValues, 0, splitPackedValues.length);
+
+        leafBlockFPs = new long[numLeaves];
+        long lastFP = 0;
+        for (int i = 0; i < numLeaves; i++) {
+            long delta = in.readVLong();
+            leafBlockFPs[i] = lastFP + delta;
+            lastFP += delta;
+        }
+
+        this.in = in;
+    }
+
+    /**
+     * Used to track all state for a single call to {@link #intersect}.
+     */
+    static final class IntersectState {
+        final IndexInput in;
+        final int[] scratchDocIDs;
+        final byte[] scratchPackedValue;
+        final int[] commonPrefixLengths;
+        final IntersectVisitor visitor;
+
+        IntersectState(IndexInput in, int numDims, int packedBytesLength, int maxPointsInLeafNode, IntersectVisitor visitor) {
+            this.in = in;
+            this.visitor = visitor;
+            this.commonPrefixLengths = new int[numDims];
+            this.scratchDocIDs = new int[maxPointsInLeafNode];
+            this.scratchPackedValue = new byte[packedBytesLength];
+        }
+    }
+
+    @Override
+    public void intersect(IntersectVisitor visitor) throws IOException {
+        final IntersectState state = new IntersectState(in.clone(), numDataDims, packedBytesLength, maxPointsInLeafNode, visitor);
+        intersect(state, 1, minPackedValue.clone(), maxPackedValue.clone());
+    }
+
+    private void intersect(IntersectState state, int nodeID, byte[] cellMinPacked, byte[] cellMaxPacked) throws IOException {
+        final Relation r = state.visitor.compare(cellMinPacked, cellMaxPacked);
+
+        if (r == Relation.CELL_OUTSIDE_QUERY) {
+            // This cell is fully outside of the query shape: stop recursing
+        } else if (r == Relation.CELL_INSIDE_QUERY) {
+            // This cell is fully inside of the query shape: recursively add all points in this cell without filtering
+            addAll(state, nodeID);
+        } else if (nodeID >= leafNodeOffset) {
+            visitDocValues(state, leafBlockFPs[nodeID - leafNodeOffset]);
+        } else {
+            // Non-leaf node: recurse on the split left and right nodes
+            final int address = nodeID * bytesPerIndexEntry;
+            final int splitDim = splitPackedValues[address] & 0xff;
+            assert splitDim < numIndexDims;
+
+            // Recurse on left sub-tree:
+            final byte[] splitPackedValue = cellMaxPacked.clone();
+            System.arraycopy(splitPackedValues, address + 1, splitPackedValue, splitDim * bytesPerDim, bytesPerDim);
+            intersect(state, 2 * nodeID, cellMinPacked, splitPackedValue);
+
+            // Recurse on right sub-tree:
+            System.arraycopy(cellMinPacked, 0, splitPackedValue, 0, packedIndexBytesLength);
+            System.arraycopy(splitPackedValues, address + 1, splitPackedValue, splitDim * bytesPerDim, bytesPerDim);
+            intersect(state, 2 * nodeID + 1, splitPackedValue, cellMaxPacked);
+        }
+    }
+
+    /**
+     * Fast path: this is called when the query box fully encompasses all cells under this node.
+     */
+    private void addAll(IntersectState state, int nodeID) throws IOException {
+        if (nodeID >= leafNodeOffset) {
+            visitDocIDs(state, leafBlockFPs[nodeID - leafNodeOffset]);
+        } else {
+            addAll(state, 2 * nodeID);
+            addAll(state, 2 * nodeID + 1);
+        }
+    }
+
+    /**
+     * Visit all doc IDs of a leaf block, without decoding the points
+     */
+    private void visitDocIDs(IntersectState state, long blockFP) throws IOException {
+        final IndexInput in = state.in;
+        in.seek(blockFP);
+        final int count = in.readVInt();
+        state.visitor.grow(count);
+        int doc = 0;
+        for (int i = 0; i < count; ++i) {
+            doc += in.readVInt();
+            state.visitor.visit(doc);
+        }
+    }
+
+    /**
+     * Visit all points of a leaf block, the visitor decides which ones match
+     */
+    private void visitDocValues(IntersectState state, long blockFP) throws IOException {
+        final IndexInput in = state.in;
+        in.seek(blockFP);
+        final int count = in.readVInt();
+        if (count > maxPointsInLeafNode) {
+            throw new CorruptIndexException("leaf block has " + count + " points, max is " + maxPointsInLeafNode, in);
+        }
+        if (count == 0) {
+            return;
+        }
+        final int[] docIDs = state.scratchDocIDs;
+        int doc = 0;
+        for (int i = 0; i < count; ++i) {
+            doc += in.readVInt();
+            docIDs[i] = doc;
+        }
+
+        final byte[] packedValue = state.scratchPackedValue;
+        final int[] commonPrefixLengths = state.commonPrefixLengths;
+        for (int dim = 0; dim < numDataDims; dim++) {
+            final int prefix = in.readVInt();
+            if (prefix > bytesPerDim) {
+                throw new CorruptIndexException("common prefix of " + prefix + " bytes, max is " + bytesPerDim, in);
+            }
+            commonPrefixLengths[dim] = prefix;
+            in.readBytes(packedValue, dim * bytesPerDim, prefix);
+        }
+
+        state.visitor.grow(count);
+        for (int i = 0; i < count; ++i) {
+            for (int dim = 0; dim < numDataDims; dim++) {
+                final int prefix = commonPrefixLengths[dim];
+                in.readBytes(packedValue, dim * bytesPerDim + prefix, bytesPerDim - prefix);
+            }
+            state.visitor.visit(docIDs[i], packedValue);
+        }
+    }
+
+    @Override
+    public long estimatePointCount(IntersectVisitor visitor) {
+        return estimatePointCount(visitor, 1, minPackedValue.clone(), maxPackedValue.clone());
+    }
+
+    private long estimatePointCount(IntersectVisitor visitor, int nodeID, byte[] cellMinPacked, byte[] cellMaxPacked) {
+        final Relation r = visitor.compare(cellMinPacked, cellMaxPacked);
+
+        if (r == Relation.CELL_OUTSIDE_QUERY) {
+            // This cell is fully outside of the query shape: stop recursing
+            return 0L;
+        } else if (r == Relation.CELL_INSIDE_QUERY) {
+            // the tree is fully balanced: all leaves under this node have the same number of points, +/- 1
+            final long numLeaves = leafNodeOffset / Integer.highestOneBit(nodeID);
+            return pointCount * numLeaves / leafNodeOffset;
+        } else if (nodeID >= leafNodeOffset) {
+            // Assume half the points matched
+            return (pointCount / leafNodeOffset + 1) / 2;
+        } else {
+            final int address = nodeID * bytesPerIndexEntry;
+            final int splitDim = splitPackedValues[address] & 0xff;
+
+            final byte[] splitPackedValue = cellMaxPacked.clone();
+            System.arraycopy(splitPackedValues, address + 1, splitPackedValue, splitDim * bytesPerDim, bytesPerDim);
+            final long leftCost = estimatePointCount(visitor, 2 * nodeID, cellMinPacked, splitPackedValue);
+
+            System.arraycopy(cellMinPacked, 0, splitPackedValue, 0, packedIndexBytesLength);
+            System.arraycopy(splitPackedValues, address + 1, splitPackedValue, splitDim * bytesPerDim, bytesPerDim);
+            final long rightCost = estimatePointCount(visitor, 2 * nodeID + 1, splitPackedValue, cellMaxPacked);
+            return leftCost + rightCost;
+        }
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        return BASE_RAM_BYTES_USED +
+                RamUsageEstimator.sizeOf(splitPackedValues) +
+                RamUsageEstimator.sizeOf(leafBlockFPs) +
+                RamUsageEstimator.sizeOf(minPackedValue) +
+                RamUsageEstimator.sizeOf(maxPackedValue);
+    }
+
+    @Override
+    public String toString() {
+        return "BKDReader(dims=" + numDataDims + ",bytesPerDim=" + bytesPerDim + ",points=" + pointCount
+                + ",docs=" + docCount + ",leaves=" + leafBlockFPs.length + ")";
+    }
+
+    @Override
+    public byte[] getMinPackedValue() {
+        return minPackedValue.clone();
+    }
+
+    @Override
+    public byte[] getMaxPackedValue() {
+        return maxPackedValue.clone();
+    }
+
+    @Override
+    public int getNumDataDimensions() {
+        return numDataDims;
+    }
+
+    @Override
+    public int getNumIndexDimensions() {
+        return numIndexDims;
+    }
+
+    @Override
+    public int getBytesPerDimension() {
+        return bytesPerDim;
+    }
+
+    @Override
+    public long size() {
+        return pointCount;
+    }
+
+    @Override
+    public int getDocCount() {
+        return docCount;
+    }
+}
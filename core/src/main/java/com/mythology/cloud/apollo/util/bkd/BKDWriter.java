@@ -0,0 +1,381 @@
+package com.mythology.cloud.apollo.util.bkd;
+
+import com.mythology.cloud.apollo.codecs.CodecUtil;
+import com.mythology.cloud.apollo.index.PointValues;
+import com.mythology.cloud.apollo.store.IndexOutput;
+import com.mythology.cloud.apollo.util.ArrayUtil;
+import com.mythology.cloud.apollo.util.FutureArrays;
+import com.mythology.cloud.apollo.util.IntroSelector;
+import com.mythology.cloud.apollo.util.IntroSorter;
+import com.mythology.cloud.apollo.util.NumericUtils;
+
+import java.io.IOException;
+
+/**
+ * Recursively builds a block KD-tree to assign all incoming points in N-dim space to smaller
+ * and smaller N-dim rectangles (cells) until the number of points in a given
+ * rectangle is &lt;= <code>maxPointsInLeafNode</code>.  The tree is
+ * fully balanced, which means the leaf nodes will have between 50% and 100% of
+ * the requested <code>maxPointsInLeafNode</code>.  Values that fall exactly
+ * on a cell boundary may be in either cell.
+ * <p>
+ * The number of dimensions can be 1 to {@link PointValues#MAX_DIMENSIONS}, but every byte[] value is fixed length.
+ * <p>
+ * At every inner node, points are partitioned around the median of the index
+ * dimension whose cell has the largest span, using an {@link IntroSelector}
+ * over point ordinals so that the packed values themselves are never moved.
+ * <p>
+ * Leaf blocks are written first, in tree order, with the doc IDs of the block,
+ * the common prefix of every dimension and the remaining suffix bytes of every
+ * point. The index, made of the split dimension and value of every inner node
+ * and the file pointer of every leaf block, is written last; it is the only
+ * part of the tree that {@link BKDReader} loads in memory.
+ * <p>
+ * Points are buffered on heap until {@link #finish} is called.
+ * <p>
+ * 块KD树写入器：递归地按跨度最大的维度取中位数切分点集，直到每个叶子块中的点数不超过
+ * <code>maxPointsInLeafNode</code>；叶子块按树序写入，最后写入常驻内存的索引。
+ * </p>
+ *
+ * @lucene.experimental
+ */
+public class BKDWriter {
+
+    public static final String CODEC_NAME = "BKD";
+    public static final int VERSION_START = 0;
+    public static final int VERSION_CURRENT = VERSION_START;
+
+    /**
+     * Default maximum number of point in each leaf block
+     */
+    public static final int DEFAULT_MAX_POINTS_IN_LEAF_NODE = 512;
+
+    /**
+     * How many dimensions we are storing at the leaf (data) nodes
+     */
+    protected final int numDataDims;
+
+    /**
+     * How many dimensions we are indexing in the internal nodes
+     */
+    protected final int numIndexDims;
+
+    /**
+     * How many bytes each value in each dimension takes.
+     */
+    protected final int bytesPerDim;
+
+    /**
+     * numDataDims * bytesPerDim
+     */
+    protected final int packedBytesLength;
+
+    /**
+     * numIndexDims * bytesPerDim
+     */
+    protected final int packedIndexBytesLength;
+
+    protected final int maxPointsInLeafNode;
+    protected final int maxDoc;
+
+    private final long[] docsSeen;
+    private final int[] commonPrefixLengths;
+    private byte[] packedValues = new byte[0];
+    private int[] docIDs = new int[0];
+    private int pointCount;
+    private boolean finished;
+
+    public BKDWriter(int maxDoc, int numDataDims, int numIndexDims, int bytesPerDim, int maxPointsInLeafNode) {
+        verifyParams(numDataDims, numIndexDims, maxPointsInLeafNode);
+        if (bytesPerDim <= 0 || bytesPerDim > PointValues.MAX_NUM_BYTES) {
+            throw new IllegalArgumentException("bytesPerDim must be 1.." + PointValues.MAX_NUM_BYTES + "; got " + bytesPerDim);
+        }
+        this.maxDoc = maxDoc;
+        this.numDataDims = numDataDims;
+        this.numIndexDims = numIndexDims;
+        this.bytesPerDim = bytesPerDim;
+        this.maxPointsInLeafNode = maxPointsInLeafNode;
+        this.packedBytesLength = numDataDims * bytesPerDim;
+        this.packedIndexBytesLength = numIndexDims * bytesPerDim;
+        this.docsSeen = new long[(maxDoc + 63) >>> 6];
+        this.commonPrefixLengths = new int[numDataDims];
+    }
+
+    public static void verifyParams(int numDims, int numIndexDims, int maxPointsInLeafNode) {
+        // We encode dim in a single byte in the splitPackedValues, but we only expose 4 bits for it now, in case we want to use
+        // remaining 4 bits for another purpose later
+        if (numDims < 1 || numDims > PointValues.MAX_DIMENSIONS) {
+            throw new IllegalArgumentException("numDims must be 1 .. " + PointValues.MAX_DIMENSIONS + " (got: " + numDims + ")");
+        }
+        if (numIndexDims < 1 || numIndexDims > numDims) {
+            throw new IllegalArgumentException("numIndexDims must be 1 .. " + numDims + " (got: " + numIndexDims + ")");
+        }
+        if (maxPointsInLeafNode <= 0) {
+            throw new IllegalArgumentException("maxPointsInLeafNode must be > 0; got " + maxPointsInLeafNode);
+        }
+        if (maxPointsInLeafNode > ArrayUtil.MAX_ARRAY_LENGTH) {
+            throw new IllegalArgumentException("maxPointsInLeafNode must be <= ArrayUtil.MAX_ARRAY_LENGTH (= " + ArrayUtil.MAX_ARRAY_LENGTH + "); got " + maxPointsInLeafNode);
+        }
+    }
+
+    /**
+     * Buffers a point; values of all data dimensions are concatenated in {@code packedValue}.
+     */
+    public void add(byte[] packedValue, int docID) {
+        if (finished) {
+            throw new IllegalStateException("already finished");
+        }
+        if (packedValue.length != packedBytesLength) {
+            throw new IllegalArgumentException("packedValue should be length=" + packedBytesLength + " (got: " + packedValue.length + ")");
+        }
+        if (docID < 0 || docID >= maxDoc) {
+            throw new IllegalArgumentException("docID must be 0.." + (maxDoc - 1) + "; got " + docID);
+        }
+        if (pointCount == ArrayUtil.MAX_ARRAY_LENGTH) {
+            throw new IllegalStateException("cannot add more than " + ArrayUtil.MAX_ARRAY_LENGTH + " points");
+        }
+        packedValues = ArrayUtil.grow(packedValues, Math.multiplyExact(pointCount + 1, packedBytesLength));
+        docIDs = ArrayUtil.grow(docIDs, pointCount + 1);
+        System.arraycopy(packedValue, 0, packedValues, pointCount * packedBytesLength, packedBytesLength);
+        docIDs[pointCount] = docID;
+        docsSeen[docID >>> 6] |= 1L << docID;
+        pointCount++;
+    }
+
+    /**
+     * How many points have been added so far
+     */
+    public long getPointCount() {
+        return pointCount;
+    }
+
+    /**
+     * Writes the BKD tree to the provided {@link IndexOutput} and returns the file offset where index was written,
+     * or -1 if no points were added.
+     */
+    public long finish(IndexOutput out) throws IOException {
+        if (finished) {
+            throw new IllegalStateException("already finished");
+        }
+        finished = true;
+        if (pointCount == 0) {
+            return -1;
+        }
+
+        // fully balanced tree: every leaf gets the same number of points, +/- 1
+        long countPerLeaf = pointCount;
+        long innerNodeCount = 1;
+        while (countPerLeaf > maxPointsInLeafNode) {
+            countPerLeaf = (countPerLeaf + 1) / 2;
+            innerNodeCount *= 2;
+        }
+        final int numLeaves = Math.toIntExact(innerNodeCount);
+
+        final byte[] minPackedValue = new byte[packedIndexBytesLength];
+        final byte[] maxPackedValue = new byte[packedIndexBytesLength];
+        computeBounds(minPackedValue, maxPackedValue);
+
+        final int[] ords = new int[pointCount];
+        for (int i = 0; i < pointCount; ++i) {
+            ords[i] = i;
+        }
+        // node IDs start at 1: the children of node N are 2*N and 2*N+1, and
+        // leaves are numLeaves..2*numLeaves-1
+        final byte[] splitPackedValues = new byte[numLeaves * (1 + bytesPerDim)];
+        final long[] leafBlockFPs = new long[numLeaves];
+        build(1, numLeaves, ords, 0, pointCount, out, minPackedValue.clone(), maxPackedValue.clone(),
+                splitPackedValues, leafBlockFPs);
+
+        final long indexFP = out.getFilePointer();
+        CodecUtil.writeHeader(out, CODEC_NAME, VERSION_CURRENT);
+        out.writeVInt(numDataDims);
+        out.writeVInt(numIndexDims);
+        out.writeVInt(maxPointsInLeafNode);
+        out.writeVInt(bytesPerDim);
+        out.writeVInt(numLeaves);
+        out.writeBytes(minPackedValue, 0, packedIndexBytesLength);
+        out.writeBytes(maxPackedValue, 0, packedIndexBytesLength);
+        out.writeVLong(pointCount);
+        out.writeVInt(docCount());
+        out.writeBytes(splitPackedValues, 0, splitPackedValues.length);
+        long lastFP = 0;
+        for (long fp : leafBlockFPs) {
+            out.writeVLong(fp - lastFP);
+            lastFP = fp;
+        }
+        return indexFP;
+    }
+
+    private int docCount() {
+        int count = 0;
+        for (long bits : docsSeen) {
+            count += Long.bitCount(bits);
+        }
+        return count;
+    }
+
+    private void computeBounds(byte[] minPackedValue, byte[] maxPackedValue) {
+        System.arraycopy(packedValues, 0, minPackedValue, 0, packedIndexBytesLength);
+        System.arraycopy(packedValues, 0, maxPackedValue, 0, packedIndexBytesLength);
+        for (int i = 1; i < pointCount; ++i) {
+            final int offset = i * packedBytesLength;
+            for (int dim = 0; dim < numIndexDims; dim++) {
+                final int start = dim * bytesPerDim;
+                final int end = start + bytesPerDim;
+                if (FutureArrays.compareUnsigned(packedValues, offset + start, offset + end, minPackedValue, start, end) < 0) {
+                    System.arraycopy(packedValues, offset + start, minPackedValue, start, bytesPerDim);
+                } else if (FutureArrays.compareUnsigned(packedValues, offset + start, offset + end, maxPackedValue, start, end) > 0) {
+                    System.arraycopy(packedValues, offset + start, maxPackedValue, start, bytesPerDim);
+                }
+            }
+        }
+    }
+
+    private void build(int nodeID, int numLeaves, int[] ords, int from, int to, IndexOutput out,
+                       byte[] minPackedValue, byte[] maxPackedValue,
+                       byte[] splitPackedValues, long[] leafBlockFPs) throws IOException {
+        if (nodeID >= numLeaves) {
+            leafBlockFPs[nodeID - numLeaves] = out.getFilePointer();
+            writeLeafBlock(out, ords, from, to);
+            return;
+        }
+
+        final int splitDim = split(minPackedValue, maxPackedValue);
+        final int mid = (from + to) >>> 1;
+        select(ords, from, to, mid, splitDim);
+
+        final int splitOffset = ords[mid] * packedBytesLength + splitDim * bytesPerDim;
+        final int address = nodeID * (1 + bytesPerDim);
+        splitPackedValues[address] = (byte) splitDim;
+        System.arraycopy(packedValues, splitOffset, splitPackedValues, address + 1, bytesPerDim);
+
+        final byte[] maxSplitPackedValue = maxPackedValue.clone();
+        System.arraycopy(packedValues, splitOffset, maxSplitPackedValue, splitDim * bytesPerDim, bytesPerDim);
+        build(2 * nodeID, numLeaves, ords, from, mid, out, minPackedValue, maxSplitPackedValue,
+                splitPackedValues, leafBlockFPs);
+
+        final byte[] minSplitPackedValue = minPackedValue.clone();
+        System.arraycopy(packedValues, splitOffset, minSplitPackedValue, splitDim * bytesPerDim, bytesPerDim);
+        build(2 * nodeID + 1, numLeaves, ords, mid, to, out, minSplitPackedValue, maxPackedValue,
+                splitPackedValues, leafBlockFPs);
+    }
+
+    /**
+     * Pick the index dimension whose cell has the largest span.
+     */
+    protected int split(byte[] minPackedValue, byte[] maxPackedValue) {
+        final byte[] scratchDiff = new byte[bytesPerDim];
+        final byte[] maxDiff = new byte[bytesPerDim];
+        int splitDim = -1;
+        for (int dim = 0; dim < numIndexDims; dim++) {
+            NumericUtils.subtract(bytesPerDim, dim, maxPackedValue, minPackedValue, scratchDiff);
+            if (splitDim == -1 || FutureArrays.compareUnsigned(scratchDiff, 0, bytesPerDim, maxDiff, 0, bytesPerDim) > 0) {
+                System.arraycopy(scratchDiff, 0, maxDiff, 0, bytesPerDim);
+                splitDim = dim;
+            }
+        }
+        return splitDim;
+    }
+
+    /**
+     * Partition {@code ords[from:to]} so that the point at {@code k} is the one that would be there if
+     * points were sorted on {@code dim}.
+     */
+    private void select(int[] ords, int from, int to, int k, int dim) {
+        final int dimOffset = dim * bytesPerDim;
+        new IntroSelector() {
+            final byte[] pivot = new byte[bytesPerDim];
+            int pivotDoc;
+
+            @Override
+            protected void swap(int i, int j) {
+                int tmp = ords[i];
+                ords[i] = ords[j];
+                ords[j] = tmp;
+            }
+
+            @Override
+            protected void setPivot(int i) {
+                System.arraycopy(packedValues, ords[i] * packedBytesLength + dimOffset, pivot, 0, bytesPerDim);
+                pivotDoc = docIDs[ords[i]];
+            }
+
+            @Override
+            protected int comparePivot(int j) {
+                final int offset = ords[j] * packedBytesLength + dimOffset;
+                int cmp = FutureArrays.compareUnsigned(pivot, 0, bytesPerDim, packedValues, offset, offset + bytesPerDim);
+                if (cmp != 0) {
+                    return cmp;
+                }
+                return Integer.compare(pivotDoc, docIDs[ords[j]]);
+            }
+        }.select(from, to, k);
+    }
+
+    private void writeLeafBlock(IndexOutput out, int[] ords, int from, int to) throws IOException {
+        final int count = to - from;
+        assert count >= 0 && count <= maxPointsInLeafNode;
+        if (count == 0) {
+            // only happens when there are fewer points than leaves, ie. with tiny leaves
+            out.writeVInt(0);
+            return;
+        }
+
+        // points of a leaf are written in doc ID order, which compresses doc
+        // IDs and makes visitors consume them sequentially
+        new IntroSorter() {
+            int pivot;
+
+            @Override
+            protected void swap(int i, int j) {
+                int tmp = ords[i];
+                ords[i] = ords[j];
+                ords[j] = tmp;
+            }
+
+            @Override
+            protected void setPivot(int i) {
+                pivot = ords[i];
+            }
+
+            @Override
+            protected int comparePivot(int j) {
+                int cmp = Integer.compare(docIDs[pivot], docIDs[ords[j]]);
+                return cmp != 0 ? cmp : Integer.compare(pivot, ords[j]);
+            }
+        }.sort(from, to);
+
+        out.writeVInt(count);
+        int previous = 0;
+        for (int i = from; i < to; ++i) {
+            final int doc = docIDs[ords[i]];
+            out.writeVInt(doc - previous);
+            previous = doc;
+        }
+
+        // common prefix of every dimension, then the suffixes of every point
+        final int firstOffset = ords[from] * packedBytesLength;
+        for (int dim = 0; dim < numDataDims; dim++) {
+            final int start = dim * bytesPerDim;
+            int prefix = bytesPerDim;
+            for (int i = from + 1; i < to && prefix > 0; ++i) {
+                final int offset = ords[i] * packedBytesLength + start;
+                int mismatch = FutureArrays.mismatch(packedValues, firstOffset + start, firstOffset + start + prefix,
+                        packedValues, offset, offset + prefix);
+                if (mismatch != -1) {
+                    prefix = mismatch;
+                }
+            }
+            commonPrefixLengths[dim] = prefix;
+            out.writeVInt(prefix);
+            out.writeBytes(packedValues, firstOffset + start, prefix);
+        }
+        for (int i = from; i < to; ++i) {
+            final int offset = ords[i] * packedBytesLength;
+            for (int dim = 0; dim < numDataDims; dim++) {
+                final int prefix = commonPrefixLengths[dim];
+                out.writeBytes(packedValues, offset + dim * bytesPerDim + prefix, bytesPerDim - prefix);
+            }
+        }
+    }
+}
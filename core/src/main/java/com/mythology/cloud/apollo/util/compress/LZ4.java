@@ -0,0 +1,262 @@
+package com.mythology.cloud.apollo.util.compress;
+
+import com.mythology.cloud.apollo.store.DataInput;
+import com.mythology.cloud.apollo.store.DataOutput;
+import com.mythology.cloud.apollo.util.FutureArrays;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * LZ4 compression and decompression routines.
+ * <p>
+ * https://github.com/lz4/lz4/tree/dev/lib
+ * http://fastcompression.blogspot.fr/p/lz4.html
+ * <p>
+ * The high-compression option is not implemented: this is a pure-Java port of
+ * the fast block format only. Compression may make use of a preset dictionary
+ * that is laid out in the same buffer right before the bytes to compress, which
+ * lets short inputs (eg. a block of small JSON documents) reference byte
+ * sequences they never contained themselves.
+ *
+ * <p>
+ * LZ4压缩与解压。字典与待压缩数据位于同一个byte[]中，字典紧挨在数据之前，匹配可以引用字典中的字节。
+ * </p>
+ *
+ * @lucene.internal
+ */
+public final class LZ4 {
+
+    private LZ4() {
+    }
+
+    /**
+     * Window size: this is the maximum supported distance between two strings so that LZ4 can replace the second one by a reference to the first one.
+     */
+    public static final int MAX_DISTANCE = 1 << 16; // maximum distance of a reference
+
+    static final int MEMORY_USAGE = 14;
+    static final int MIN_MATCH = 4; // minimum length of a match
+    static final int LAST_LITERALS = 5; // the last 5 bytes must be encoded as literals
+
+    private static int hash(int i, int hashBits) {
+        return (i * -1640531535) >>> (32 - hashBits);
+    }
+
+    private static int readInt(byte[] buf, int i) {
+        return ((buf[i] & 0xFF) << 24) | ((buf[i + 1] & 0xFF) << 16) | ((buf[i + 2] & 0xFF) << 8) | (buf[i + 3] & 0xFF);
+    }
+
+    private static int commonBytes(byte[] b, int o1, int o2, int limit) {
+        assert o1 < o2;
+        // never -1 because lengths always differ
+        return FutureArrays.mismatch(b, o1, limit, b, o2, limit);
+    }
+
+    /**
+     * Decompress at least {@code decompressedLen} bytes into
+     * {@code dest[dOff:]}. Please note that {@code dest} must be large
+     * enough to be able to hold <b>all</b> decompressed data (meaning that you
+     * need to know the total decompressed length).
+     * If the given bytes were compressed using a preset dictionary then the same
+     * dictionary must be present in {@code dest[dOff-dictLen:dOff]}.
+     *
+     * @return the new offset in {@code dest}
+     */
+    public static int decompress(DataInput compressed, int decompressedLen, byte[] dest, int dOff) throws IOException {
+        final int destEnd = dOff + decompressedLen;
+
+        do {
+            // literals
+            final int token = compressed.readByte() & 0xFF;
+            int literalLen = token >>> 4;
+
+            if (literalLen != 0) {
+                if (literalLen == 0x0F) {
+                    byte len;
+                    while ((len = compressed.readByte()) == (byte) 0xFF) {
+                        literalLen += 0xFF;
+                    }
+                    literalLen += len & 0xFF;
+                }
+                compressed.readBytes(dest, dOff, literalLen);
+                dOff += literalLen;
+            }
+
+            if (dOff >= destEnd) {
+                break;
+            }
+
+            // matchs
+            final int matchDec = (compressed.readByte() & 0xFF) | ((compressed.readByte() & 0xFF) << 8);
+            assert matchDec > 0;
+
+            int matchLen = token & 0x0F;
+            if (matchLen == 0x0F) {
+                int len;
+                while ((len = compressed.readByte()) == (byte) 0xFF) {
+                    matchLen += 0xFF;
+                }
+                matchLen += len & 0xFF;
+            }
+            matchLen += MIN_MATCH;
+
+            // copying a multiple of 8 bytes can make decompression from 5% to 10% faster
+            final int fastLen = (matchLen + 7) & 0xFFFFFFF8;
+            if (matchDec < matchLen || dOff + fastLen > destEnd) {
+                // overlap -> naive incremental copy
+                for (int ref = dOff - matchDec, end = dOff + matchLen; dOff < end; ++ref, ++dOff) {
+                    dest[dOff] = dest[ref];
+                }
+            } else {
+                // no overlap -> arraycopy
+                System.arraycopy(dest, dOff - matchDec, dest, dOff, fastLen);
+                dOff += matchLen;
+            }
+        } while (dOff < destEnd);
+
+        return dOff;
+    }
+
+    private static void encodeLen(int l, DataOutput out) throws IOException {
+        while (l >= 0xFF) {
+            out.writeByte((byte) 0xFF);
+            l -= 0xFF;
+        }
+        out.writeByte((byte) l);
+    }
+
+    private static void encodeLiterals(byte[] bytes, int token, int anchor, int literalLen, DataOutput out) throws IOException {
+        out.writeByte((byte) token);
+
+        // encode literal length
+        if (literalLen >= 0x0F) {
+            encodeLen(literalLen - 0x0F, out);
+        }
+
+        // encode literals
+        out.writeBytes(bytes, anchor, literalLen);
+    }
+
+    private static void encodeLastLiterals(byte[] bytes, int anchor, int literalLen, DataOutput out) throws IOException {
+        final int token = Math.min(literalLen, 0x0F) << 4;
+        encodeLiterals(bytes, token, anchor, literalLen, out);
+    }
+
+    private static void encodeSequence(byte[] bytes, int anchor, int matchRef, int matchOff, int matchLen, DataOutput out) throws IOException {
+        final int literalLen = matchOff - anchor;
+        assert matchLen >= 4;
+        // encode token
+        final int token = (Math.min(literalLen, 0x0F) << 4) | Math.min(matchLen - 4, 0x0F);
+        encodeLiterals(bytes, token, anchor, literalLen, out);
+
+        // encode match dec
+        final int matchDec = matchOff - matchRef;
+        assert matchDec > 0 && matchDec < 1 << 16;
+        out.writeByte((byte) matchDec);
+        out.writeByte((byte) (matchDec >>> 8));
+
+        // encode match len
+        if (matchLen >= MIN_MATCH + 0x0F) {
+            encodeLen(matchLen - 0x0F - MIN_MATCH, out);
+        }
+    }
+
+    /**
+     * A hash table that maps 4-byte sequences to their last position. The
+     * table is reused across calls to save allocations, which is why it is
+     * {@link #reset reset} rather than re-created for every block.
+     */
+    public static final class HashTable {
+        private final int[] table = new int[1 << MEMORY_USAGE];
+
+        void reset() {
+            Arrays.fill(table, -1);
+        }
+
+        int getAndSet(byte[] bytes, int off) {
+            final int h = hash(readInt(bytes, off), MEMORY_USAGE);
+            final int ref = table[h];
+            table[h] = off;
+            return ref;
+        }
+
+        void set(byte[] bytes, int off) {
+            table[hash(readInt(bytes, off), MEMORY_USAGE)] = off;
+        }
+    }
+
+    /**
+     * Compress {@code bytes[off:off+len]} into {@code out} using a 64KB hash
+     * table. {@code ht} shouldn't be shared across threads but can safely be
+     * reused.
+     */
+    public static void compress(byte[] bytes, int off, int len, DataOutput out, HashTable ht) throws IOException {
+        compressWithDictionary(bytes, off, 0, len, out, ht);
+    }
+
+    /**
+     * Compress {@code bytes[dictOff+dictLen:dictOff+dictLen+len]} into
+     * {@code out} using a 64KB hash table.
+     * {@code bytes[dictOff:dictOff+dictLen]} will be used as a dictionary.
+     * {@code dictLen} must not be greater than {@link #MAX_DISTANCE 64kB}.
+     * {@code ht} shouldn't be shared across threads but can safely be reused.
+     */
+    public static void compressWithDictionary(byte[] bytes, int dictOff, int dictLen, int len, DataOutput out, HashTable ht) throws IOException {
+        if (dictLen > MAX_DISTANCE) {
+            throw new IllegalArgumentException("dictLen must not be greater than 64kB, but got " + dictLen);
+        }
+        final int base = dictOff;
+        final int end = dictOff + dictLen + len;
+
+        int off = dictOff + dictLen;
+        int anchor = off;
+
+        if (len > LAST_LITERALS + MIN_MATCH) {
+
+            final int limit = end - LAST_LITERALS;
+            final int matchLimit = limit - MIN_MATCH;
+            ht.reset();
+
+            // feed the dictionary so that matches may point into it
+            for (int i = base; i < dictOff + dictLen && i <= matchLimit; ++i) {
+                ht.set(bytes, i);
+            }
+
+            main:
+            while (off <= limit) {
+                // find a match
+                int ref;
+                while (true) {
+                    if (off >= matchLimit) {
+                        break main;
+                    }
+                    ref = ht.getAndSet(bytes, off);
+                    if (ref != -1 && ref >= base && off - ref < MAX_DISTANCE && readInt(bytes, ref) == readInt(bytes, off)) {
+                        break;
+                    }
+                    ++off;
+                }
+
+                // compute match length
+                int matchLen = MIN_MATCH + commonBytes(bytes, ref + MIN_MATCH, off + MIN_MATCH, limit);
+
+                // try to find a better match
+                while (off > anchor && ref > base && bytes[off - 1] == bytes[ref - 1]) {
+                    --off;
+                    --ref;
+                    ++matchLen;
+                }
+
+                encodeSequence(bytes, anchor, ref, off, matchLen, out);
+                off += matchLen;
+                anchor = off;
+            }
+        }
+
+        // last literals
+        final int literalLen = end - anchor;
+        assert literalLen >= LAST_LITERALS || literalLen == len;
+        encodeLastLiterals(bytes, anchor, end - anchor, out);
+    }
+}
@@ -0,0 +1,474 @@
+package com.mythology.cloud.apollo.util.fst;
+
+import com.mythology.cloud.apollo.store.GrowableByteArrayDataOutput;
+import com.mythology.cloud.apollo.util.ArrayUtil;
+import com.mythology.cloud.apollo.util.FutureArrays;
+import com.mythology.cloud.apollo.util.IntsRef;
+import com.mythology.cloud.apollo.util.IntsRefBuilder;
+import com.mythology.cloud.apollo.util.RamUsageEstimator;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Builds a minimal FST (maps an IntsRef term to an arbitrary
+ * output) from pre-sorted terms with outputs.  The FST is written
+ * on-the-fly into a compact serialized format byte array, which can
+ * be saved to / loaded from a Directory or used directly
+ * for traversal.  The FST is always finite (no cycles).
+ *
+ * <p>NOTE: The algorithm is described at
+ * http://citeseerx.ist.psu.edu/viewdoc/summary?doi=10.1.1.24.3698</p>
+ *
+ * <p>The parameterized type T is the output type.  See the
+ * subclasses of {@link Outputs}.
+ *
+ * <p>Input labels must be bytes (0-255) and inputs must be added in
+ * strictly increasing order.
+ * <p>
+ * FST构建器：按有序输入增量地构建最小化FST，冻结的后缀节点通过哈希去重共享，输出尽量前移到公共前缀的边上。
+ * </p>
+ *
+ * @lucene.experimental
+ */
+public class Builder<T> {
+
+    private final Outputs<T> outputs;
+    private final T NO_OUTPUT;
+
+    // serialized nodes
+    private final GrowableByteArrayDataOutput bytes = new GrowableByteArrayDataOutput(1024);
+
+    // scratch buffers used to serialize a single node
+    private final GrowableByteArrayDataOutput arcBuffer = new GrowableByteArrayDataOutput(64);
+    private final GrowableByteArrayDataOutput nodeBuffer = new GrowableByteArrayDataOutput(64);
+    private int[] arcEnds = new int[8];
+
+    // open-addressing hash of already written nodes, for
+    // suffix sharing: address + 1, 0 means empty slot
+    private long[] hashTable = new long[16];
+    private int[] hashLengths = new int[16];
+    private int hashCount;
+
+    private final IntsRefBuilder lastInput = new IntsRefBuilder();
+
+    // current frontier
+    private UnCompiledNode<T>[] frontier;
+
+    private T emptyOutput;
+    private long inputCount;
+    private long nodeCount;
+
+    /**
+     * Instantiates an FST builder.
+     *
+     * @param outputs The output type for each input sequence. Applies only if building an FST.
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public Builder(Outputs<T> outputs) {
+        this.outputs = outputs;
+        NO_OUTPUT = outputs.getNoOutput();
+        final UnCompiledNode<T>[] f = (UnCompiledNode<T>[]) new UnCompiledNode[10];
+        frontier = f;
+        for (int idx = 0; idx < frontier.length; idx++) {
+            frontier[idx] = new UnCompiledNode<>(this, idx);
+        }
+    }
+
+    public long getInputCount() {
+        return inputCount;
+    }
+
+    public long getNodeCount() {
+        // 1+ in order to count the -1 implicit final node
+        return 1 + nodeCount;
+    }
+
+    /**
+     * Add the next input/output pair.  The provided input
+     * must be sorted after the previous one according to
+     * {@link IntsRef#compareTo}; adding the same input twice
+     * in a row is rejected.
+     */
+    public void add(IntsRef input, T output) throws IOException {
+        if (output == null) {
+            throw new IllegalArgumentException("output must not be null");
+        }
+        if (inputCount > 0 && input.compareTo(lastInput.get()) <= 0) {
+            throw new IllegalArgumentException("inputs are added out of order lastInput=" + lastInput.get() + " vs input=" + input);
+        }
+        for (int i = 0; i < input.length; i++) {
+            final int label = input.ints[input.offset + i];
+            if (label < 0 || label > 255) {
+                throw new IllegalArgumentException("label must be a byte (0-255), got " + label);
+            }
+        }
+        inputCount++;
+
+        if (input.length == 0) {
+            // empty input: only allowed as first input.  we have
+            // to special case this because the packed FST
+            // format cannot represent the empty input since
+            // 'finalness' is stored on the incoming arc, not on
+            // the node
+            frontier[0].isFinal = true;
+            emptyOutput = output;
+            return;
+        }
+
+        // compare shared prefix length
+        int pos1 = 0;
+        int pos2 = input.offset;
+        final int pos1Stop = Math.min(lastInput.length(), input.length);
+        while (pos1 < pos1Stop && lastInput.intAt(pos1) == input.ints[pos2]) {
+            pos1++;
+            pos2++;
+        }
+        final int prefixLenPlus1 = pos1 + 1;
+
+        if (frontier.length < input.length + 1) {
+            final UnCompiledNode<T>[] next = ArrayUtil.grow(frontier, input.length + 1);
+            for (int idx = frontier.length; idx < next.length; idx++) {
+                next[idx] = new UnCompiledNode<>(this, idx);
+            }
+            frontier = next;
+        }
+
+        // minimize/compile states from previous input's
+        // orphan'd suffix
+        freezeTail(prefixLenPlus1);
+
+        // init tail states for current input
+        for (int idx = prefixLenPlus1; idx <= input.length; idx++) {
+            frontier[idx - 1].addArc(input.ints[input.offset + idx - 1], frontier[idx]);
+        }
+
+        final UnCompiledNode<T> lastNode = frontier[input.length];
+        lastNode.isFinal = true;
+        lastNode.output = NO_OUTPUT;
+
+        // push conflicting outputs forward, only as far as
+        // needed
+        for (int idx = 1; idx < prefixLenPlus1; idx++) {
+            final UnCompiledNode<T> node = frontier[idx];
+            final UnCompiledNode<T> parentNode = frontier[idx - 1];
+
+            final T lastOutput = parentNode.getLastOutput(input.ints[input.offset + idx - 1]);
+
+            final T commonOutputPrefix;
+            final T wordSuffix;
+
+            if (lastOutput != NO_OUTPUT) {
+                commonOutputPrefix = outputs.common(output, lastOutput);
+                wordSuffix = outputs.subtract(lastOutput, commonOutputPrefix);
+                parentNode.setLastOutput(input.ints[input.offset + idx - 1], commonOutputPrefix);
+                node.prependOutput(wordSuffix);
+            } else {
+                commonOutputPrefix = NO_OUTPUT;
+            }
+
+            output = outputs.subtract(output, commonOutputPrefix);
+        }
+
+        frontier[prefixLenPlus1 - 1].setLastOutput(input.ints[input.offset + prefixLenPlus1 - 1], output);
+
+        // save last input
+        lastInput.copyInts(input);
+    }
+
+    /**
+     * Returns final FST.  NOTE: this will return null if
+     * nothing is accepted by the FST.
+     */
+    public FST<T> finish() throws IOException {
+        final UnCompiledNode<T> root = frontier[0];
+
+        // minimize nodes in the last word's suffix
+        freezeTail(0);
+        if (inputCount == 0) {
+            return null;
+        }
+
+        final long startNode = compileNode(root);
+        root.clear();
+
+        return new FST<>(outputs, emptyOutput, startNode, Arrays.copyOf(bytes.getBytes(), bytes.getPosition()), bytes.getPosition(), null);
+    }
+
+    private void freezeTail(int prefixLenPlus1) throws IOException {
+        final int downTo = Math.max(1, prefixLenPlus1);
+        for (int idx = lastInput.length(); idx >= downTo; idx--) {
+            final UnCompiledNode<T> node = frontier[idx];
+            final UnCompiledNode<T> parent = frontier[idx - 1];
+
+            final T nextFinalOutput = node.output;
+
+            // We "fake" the node as being final if it has no
+            // outgoing arcs; in theory we could leave it
+            // as non-final (the FST can represent this), but
+            // FSTEnum, Util, etc., have trouble w/ non-final
+            // dead-end states:
+            final boolean isFinal = node.isFinal || node.numArcs == 0;
+
+            // this node makes it and we now compile it.  first,
+            // compile any targets that were previously
+            // undecided:
+            final long address = compileNode(node);
+            parent.replaceLast(lastInput.intAt(idx - 1), address, nextFinalOutput, isFinal);
+            node.clear();
+        }
+    }
+
+    /**
+     * Serializes the node, or returns the address of an identical node that
+     * was already written.
+     */
+    private long compileNode(UnCompiledNode<T> node) throws IOException {
+        if (node.numArcs == 0) {
+            return FST.FINAL_END_NODE;
+        }
+
+        // serialize each arc, to compute the fixed arc width
+        arcBuffer.reset();
+        if (arcEnds.length < node.numArcs) {
+            arcEnds = ArrayUtil.grow(arcEnds, node.numArcs);
+        }
+        int maxBytesPerArc = 0;
+        int lastEnd = 0;
+        for (int arcIdx = 0; arcIdx < node.numArcs; arcIdx++) {
+            final BuilderArc<T> arc = node.arcs[arcIdx];
+            final long target = ((CompiledNode) arc.target).node;
+            int flags = 0;
+            if (arc.isFinal) {
+                flags |= FST.BIT_FINAL_ARC;
+            }
+            if (target == FST.FINAL_END_NODE) {
+                flags |= FST.BIT_STOP_NODE;
+            }
+            if (arc.output != NO_OUTPUT) {
+                flags |= FST.BIT_ARC_HAS_OUTPUT;
+            }
+            if (arc.nextFinalOutput != NO_OUTPUT) {
+                assert arc.isFinal;
+                flags |= FST.BIT_ARC_HAS_FINAL_OUTPUT;
+            }
+            arcBuffer.writeByte((byte) arc.label);
+            arcBuffer.writeByte((byte) flags);
+            if (target != FST.FINAL_END_NODE) {
+                arcBuffer.writeVLong(target);
+            }
+            if (arc.output != NO_OUTPUT) {
+                outputs.write(arc.output, arcBuffer);
+            }
+            if (arc.nextFinalOutput != NO_OUTPUT) {
+                outputs.write(arc.nextFinalOutput, arcBuffer);
+            }
+            arcEnds[arcIdx] = arcBuffer.getPosition();
+            maxBytesPerArc = Math.max(maxBytesPerArc, arcBuffer.getPosition() - lastEnd);
+            lastEnd = arcBuffer.getPosition();
+        }
+
+        // header followed by fixed width arcs
+        nodeBuffer.reset();
+        nodeBuffer.writeVInt(node.numArcs);
+        nodeBuffer.writeVInt(maxBytesPerArc);
+        int arcStart = 0;
+        for (int arcIdx = 0; arcIdx < node.numArcs; arcIdx++) {
+            final int arcLen = arcEnds[arcIdx] - arcStart;
+            nodeBuffer.writeBytes(arcBuffer.getBytes(), arcStart, arcLen);
+            for (int i = arcLen; i < maxBytesPerArc; i++) {
+                nodeBuffer.writeByte((byte) 0);
+            }
+            arcStart = arcEnds[arcIdx];
+        }
+
+        final byte[] nodeBytes = nodeBuffer.getBytes();
+        final int nodeLength = nodeBuffer.getPosition();
+        final int hash = hash(nodeBytes, nodeLength);
+        int pos = hash & (hashTable.length - 1);
+        while (hashTable[pos] != 0) {
+            final long address = hashTable[pos] - 1;
+            if (hashLengths[pos] == nodeLength
+                    && FutureArrays.equals(bytes.getBytes(), (int) address, (int) address + nodeLength, nodeBytes, 0, nodeLength)) {
+                return address;
+            }
+            pos = (pos + 1) & (hashTable.length - 1);
+        }
+
+        final long address = bytes.getPosition();
+        if (address + nodeLength > ArrayUtil.MAX_ARRAY_LENGTH) {
+            throw new IllegalStateException("FST too large: cannot exceed " + ArrayUtil.MAX_ARRAY_LENGTH + " bytes");
+        }
+        bytes.writeBytes(nodeBytes, 0, nodeLength);
+        nodeCount++;
+        hashTable[pos] = address + 1;
+        hashLengths[pos] = nodeLength;
+        if (++hashCount > hashTable.length * 2 / 3) {
+            rehash();
+        }
+        return address;
+    }
+
+    private static int hash(byte[] bytes, int length) {
+        int h = 0;
+        for (int i = 0; i < length; i++) {
+            h = 31 * h + bytes[i];
+        }
+        // mix the bits since the table size is a power of 2
+        return h ^ (h >>> 16);
+    }
+
+    private void rehash() {
+        final long[] oldTable = hashTable;
+        final int[] oldLengths = hashLengths;
+        hashTable = new long[oldTable.length * 2];
+        hashLengths = new int[oldTable.length * 2];
+        final byte[] nodes = bytes.getBytes();
+        final int mask = hashTable.length - 1;
+        for (int i = 0; i < oldTable.length; i++) {
+            if (oldTable[i] != 0) {
+                final int address = (int) (oldTable[i] - 1);
+                final int length = oldLengths[i];
+                int h = 0;
+                for (int j = 0; j < length; j++) {
+                    h = 31 * h + nodes[address + j];
+                }
+                int pos = (h ^ (h >>> 16)) & mask;
+                while (hashTable[pos] != 0) {
+                    pos = (pos + 1) & mask;
+                }
+                hashTable[pos] = oldTable[i];
+                hashLengths[pos] = length;
+            }
+        }
+    }
+
+    /**
+     * Returns an estimate of the memory used by this builder.
+     */
+    public long ramBytesUsed() {
+        return bytes.ramBytesUsed() + RamUsageEstimator.sizeOf(hashTable) + RamUsageEstimator.sizeOf(hashLengths);
+    }
+
+    /**
+     * Expert: holds a pending (seen but not yet serialized) arc.
+     */
+    static final class BuilderArc<T> {
+        int label;
+        Node target;
+        boolean isFinal;
+        T output;
+        T nextFinalOutput;
+    }
+
+    // NOTE: not many instances of Node or CompiledNode are in
+    // memory while the FST is being built; it's only the
+    // current "frontier":
+
+    interface Node {
+        boolean isCompiled();
+    }
+
+    static final class CompiledNode implements Node {
+        long node;
+
+        @Override
+        public boolean isCompiled() {
+            return true;
+        }
+    }
+
+    /**
+     * Expert: holds a pending (seen but not yet serialized) Node.
+     */
+    static final class UnCompiledNode<T> implements Node {
+        final Builder<T> owner;
+        int numArcs;
+        BuilderArc<T>[] arcs;
+        // TODO: instead of recording isFinal/output on the
+        // node, maybe we should use -1 arc to mean "end" (like
+        // we do when reading the FST).  Would simplify much
+        // code here...
+        T output;
+        boolean isFinal;
+
+        /**
+         * This node's depth, starting from the automaton root.
+         */
+        final int depth;
+
+        @SuppressWarnings({"rawtypes", "unchecked"})
+        UnCompiledNode(Builder<T> owner, int depth) {
+            this.owner = owner;
+            arcs = (BuilderArc<T>[]) new BuilderArc[1];
+            arcs[0] = new BuilderArc<>();
+            output = owner.NO_OUTPUT;
+            this.depth = depth;
+        }
+
+        @Override
+        public boolean isCompiled() {
+            return false;
+        }
+
+        void clear() {
+            numArcs = 0;
+            isFinal = false;
+            output = owner.NO_OUTPUT;
+            // We don't clear the depth here because it never changes
+            // for nodes on the frontier (even when reused).
+        }
+
+        T getLastOutput(int labelToMatch) {
+            assert numArcs > 0;
+            assert arcs[numArcs - 1].label == labelToMatch;
+            return arcs[numArcs - 1].output;
+        }
+
+        void addArc(int label, Node target) {
+            assert label >= 0;
+            assert numArcs == 0 || label > arcs[numArcs - 1].label : "arc[numArcs-1].label=" + arcs[numArcs - 1].label + " new label=" + label + " numArcs=" + numArcs;
+            if (numArcs == arcs.length) {
+                final BuilderArc<T>[] newArcs = ArrayUtil.grow(arcs, numArcs + 1);
+                for (int arcIdx = numArcs; arcIdx < newArcs.length; arcIdx++) {
+                    newArcs[arcIdx] = new BuilderArc<>();
+                }
+                arcs = newArcs;
+            }
+            final BuilderArc<T> arc = arcs[numArcs++];
+            arc.label = label;
+            arc.target = target;
+            arc.output = arc.nextFinalOutput = owner.NO_OUTPUT;
+            arc.isFinal = false;
+        }
+
+        void replaceLast(int labelToMatch, long address, T nextFinalOutput, boolean isFinal) {
+            assert numArcs > 0;
+            final BuilderArc<T> arc = arcs[numArcs - 1];
+            assert arc.label == labelToMatch : "arc.label=" + arc.label + " vs " + labelToMatch;
+            final CompiledNode target = new CompiledNode();
+            target.node = address;
+            arc.target = target;
+            arc.nextFinalOutput = nextFinalOutput;
+            arc.isFinal = isFinal;
+        }
+
+        void setLastOutput(int labelToMatch, T newOutput) {
+            assert numArcs > 0;
+            final BuilderArc<T> arc = arcs[numArcs - 1];
+            assert arc.label == labelToMatch;
+            arc.output = newOutput;
+        }
+
+        // pushes an output prefix forward onto all arcs
+        void prependOutput(T outputPrefix) {
+            for (int arcIdx = 0; arcIdx < numArcs; arcIdx++) {
+                arcs[arcIdx].output = owner.outputs.add(outputPrefix, arcs[arcIdx].output);
+            }
+
+            if (isFinal) {
+                output = owner.outputs.add(outputPrefix, output);
+            }
+        }
+    }
+}
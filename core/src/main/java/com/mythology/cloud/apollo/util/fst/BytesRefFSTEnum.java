@@ -0,0 +1,265 @@
+package com.mythology.cloud.apollo.util.fst;
+
+import com.mythology.cloud.apollo.util.ArrayUtil;
+import com.mythology.cloud.apollo.util.BytesRef;
+import com.mythology.cloud.apollo.util.RamUsageEstimator;
+
+import java.io.IOException;
+
+/**
+ * Enumerates all input (BytesRef) + output pairs in an
+ * FST.
+ * <p>
+ * Seeking follows one arc per byte of the target, so {@link #seekExact},
+ * {@link #seekCeil} and {@link #seekFloor} cost a number of binary searches
+ * proportional to the length of the target, independent of the number of
+ * inputs in the FST.
+ * <p>
+ * 按字节序枚举FST中的(输入,输出)对，支持精确定位、向上取整定位(seekCeil)和向下取整定位(seekFloor)，
+ * 定位代价与目标长度成正比。
+ * </p>
+ *
+ * @lucene.experimental
+ */
+public final class BytesRefFSTEnum<T> {
+
+    private final FST<T> fst;
+    private final FST.BytesReader fstReader;
+    private final T NO_OUTPUT;
+
+    // arcs[0] is the virtual root arc; arcs[i] is the arc
+    // for the (i-1)th byte of the current term
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private FST.Arc<T>[] arcs = new FST.Arc[10];
+
+    // outputs are cumulative
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private T[] output = (T[]) new Object[10];
+
+    private final BytesRef current = new BytesRef(10);
+    private final InputOutput<T> result = new InputOutput<>();
+
+    // length of the current term, -1 when unpositioned
+    private int upto = -1;
+
+    /**
+     * Holds a single input (BytesRef) + output pair.
+     */
+    public static class InputOutput<T> {
+        public BytesRef input;
+        public T output;
+    }
+
+    /**
+     * Sole constructor; the enum is unpositioned until {@link #next} or
+     * one of the seek methods is called.
+     */
+    public BytesRefFSTEnum(FST<T> fst) {
+        this.fst = fst;
+        fstReader = fst.getBytesReader();
+        NO_OUTPUT = fst.outputs.getNoOutput();
+        result.input = current;
+        current.offset = 0;
+    }
+
+    public InputOutput<T> current() {
+        return result;
+    }
+
+    public InputOutput<T> next() throws IOException {
+        if (upto == -1) {
+            rewind();
+            if (arcs[0].isFinal() == false && FST.targetHasArcs(arcs[0]) == false) {
+                upto = -1;
+                return null;
+            }
+            return pushFirst();
+        }
+        if (FST.targetHasArcs(arcs[upto])) {
+            fst.readFirstTargetArc(arcs[upto], getArc(upto + 1), fstReader);
+            upto++;
+            setCurrent(upto);
+            return pushFirst();
+        }
+        return backtrackNext();
+    }
+
+    /**
+     * Seeks to smallest term that's &gt;= target.
+     */
+    public InputOutput<T> seekCeil(BytesRef target) throws IOException {
+        rewind();
+        for (int i = 0; i < target.length; i++) {
+            final int label = target.bytes[target.offset + i] & 0xFF;
+            if (FST.targetHasArcs(arcs[upto]) == false) {
+                // the current term is a prefix of the target: the
+                // ceiling is the next term
+                return backtrackNext();
+            }
+            final FST.Arc<T> arc = fst.readCeilTargetArc(label, arcs[upto], getArc(upto + 1), fstReader);
+            if (arc == null) {
+                // all arcs of this node are smaller than the target
+                return backtrackNext();
+            }
+            upto++;
+            setCurrent(upto);
+            if (arc.label != label) {
+                return pushFirst();
+            }
+        }
+        if (arcs[upto].isFinal()) {
+            return setResult();
+        }
+        fst.readFirstTargetArc(arcs[upto], getArc(upto + 1), fstReader);
+        upto++;
+        setCurrent(upto);
+        return pushFirst();
+    }
+
+    /**
+     * Seeks to biggest term that's &lt;= target.
+     */
+    public InputOutput<T> seekFloor(BytesRef target) throws IOException {
+        rewind();
+        for (int i = 0; i < target.length; i++) {
+            final int label = target.bytes[target.offset + i] & 0xFF;
+            if (FST.targetHasArcs(arcs[upto]) == false) {
+                // the current term is a prefix of the target and
+                // no other term sorts between them
+                return setResult();
+            }
+            final FST.Arc<T> arc = fst.readFloorTargetArc(label, arcs[upto], getArc(upto + 1), fstReader);
+            if (arc == null) {
+                // all arcs of this node are bigger than the target
+                return backtrackPrevious();
+            }
+            upto++;
+            setCurrent(upto);
+            if (arc.label != label) {
+                return pushLast();
+            }
+        }
+        return backtrackPrevious();
+    }
+
+    /**
+     * Seeks to exactly this term, returning null if the term
+     * doesn't exist.  This is faster than using {@link
+     * #seekFloor} or {@link #seekCeil} because it
+     * short-circuits as soon the match is not found.
+     */
+    public InputOutput<T> seekExact(BytesRef target) throws IOException {
+        rewind();
+        for (int i = 0; i < target.length; i++) {
+            final int label = target.bytes[target.offset + i] & 0xFF;
+            if (fst.findTargetArc(label, arcs[upto], getArc(upto + 1), fstReader) == null) {
+                upto = -1;
+                return null;
+            }
+            upto++;
+            setCurrent(upto);
+        }
+        if (arcs[upto].isFinal() == false) {
+            upto = -1;
+            return null;
+        }
+        return setResult();
+    }
+
+    private void rewind() {
+        fst.getFirstArc(getArc(0));
+        output[0] = NO_OUTPUT;
+        upto = 0;
+    }
+
+    // descends from arcs[upto] to the smallest accepted term
+    private InputOutput<T> pushFirst() throws IOException {
+        while (arcs[upto].isFinal() == false) {
+            fst.readFirstTargetArc(arcs[upto], getArc(upto + 1), fstReader);
+            upto++;
+            setCurrent(upto);
+        }
+        return setResult();
+    }
+
+    // descends from arcs[upto] to the biggest accepted term
+    private InputOutput<T> pushLast() throws IOException {
+        while (FST.targetHasArcs(arcs[upto])) {
+            fst.readLastTargetArc(arcs[upto], getArc(upto + 1), fstReader);
+            upto++;
+            setCurrent(upto);
+        }
+        assert arcs[upto].isFinal();
+        return setResult();
+    }
+
+    // all terms under arcs[upto] were consumed: moves to the
+    // next sibling of the deepest arc that has one
+    private InputOutput<T> backtrackNext() throws IOException {
+        while (upto > 0) {
+            if (arcs[upto].isLast() == false) {
+                fst.readNextArc(arcs[upto], fstReader);
+                setCurrent(upto);
+                return pushFirst();
+            }
+            upto--;
+        }
+        upto = -1;
+        return null;
+    }
+
+    // all terms below arcs[upto] are too big: the floor is either
+    // the current prefix or the biggest term under a previous
+    // sibling of an arc on the path
+    private InputOutput<T> backtrackPrevious() throws IOException {
+        while (true) {
+            if (arcs[upto].isFinal()) {
+                return setResult();
+            }
+            if (upto == 0) {
+                upto = -1;
+                return null;
+            }
+            if (arcs[upto].arcIdx > 0) {
+                fst.readPreviousArc(arcs[upto], fstReader);
+                setCurrent(upto);
+                return pushLast();
+            }
+            upto--;
+        }
+    }
+
+    private void setCurrent(int idx) {
+        final FST.Arc<T> arc = arcs[idx];
+        if (current.bytes.length < idx) {
+            current.bytes = ArrayUtil.grow(current.bytes, idx);
+        }
+        current.bytes[idx - 1] = (byte) arc.label;
+        if (output.length <= idx) {
+            @SuppressWarnings({"rawtypes", "unchecked"}) final T[] newOutput =
+                    (T[]) new Object[ArrayUtil.oversize(1 + idx, RamUsageEstimator.NUM_BYTES_OBJECT_REF)];
+            System.arraycopy(output, 0, newOutput, 0, output.length);
+            output = newOutput;
+        }
+        output[idx] = fst.outputs.add(output[idx - 1], arc.output);
+    }
+
+    private InputOutput<T> setResult() {
+        current.length = upto;
+        result.output = fst.outputs.add(output[upto], arcs[upto].nextFinalOutput);
+        return result;
+    }
+
+    private FST.Arc<T> getArc(int idx) {
+        if (idx >= arcs.length) {
+            @SuppressWarnings({"rawtypes", "unchecked"}) final FST.Arc<T>[] newArcs =
+                    new FST.Arc[ArrayUtil.oversize(1 + idx, RamUsageEstimator.NUM_BYTES_OBJECT_REF)];
+            System.arraycopy(arcs, 0, newArcs, 0, arcs.length);
+            arcs = newArcs;
+        }
+        if (arcs[idx] == null) {
+            arcs[idx] = new FST.Arc<>();
+        }
+        return arcs[idx];
+    }
+}
@@ -0,0 +1,526 @@
+package com.mythology.cloud.apollo.util.fst;
+
+import com.mythology.cloud.apollo.codecs.CodecUtil;
+import com.mythology.cloud.apollo.store.DataInput;
+import com.mythology.cloud.apollo.store.DataOutput;
+import com.mythology.cloud.apollo.store.IndexInput;
+import com.mythology.cloud.apollo.store.RandomAccessInput;
+import com.mythology.cloud.apollo.util.Accountable;
+import com.mythology.cloud.apollo.util.RamUsageEstimator;
+
+import java.io.IOException;
+
+/**
+ * Represents an finite state machine (FST), using a
+ * compact byte[] format.
+ * <p> The format is similar to what's used by Morfologik
+ * (http://sourceforge.net/projects/morfologik).
+ * <p>
+ * Labels are bytes (0-255). Every node is written once, after all of its
+ * target nodes, as a header ({@code numArcs}, {@code bytesPerArc}) followed
+ * by its arcs sorted by label, each padded to {@code bytesPerArc} bytes so
+ * that the arc matching a label is found with a binary search. Following a
+ * key of length {@code n} therefore costs {@code n} binary searches over at
+ * most 256 arcs each.
+ * <p>
+ * The serialized bytes can be kept on heap or read directly from a
+ * {@link RandomAccessInput} slice of the index file (for instance a
+ * memory-mapped file), see {@link #read(IndexInput, Outputs, boolean)}.
+ * <p>
+ * 有限状态转换器(FST)：以紧凑的字节数组表示按字节标签组织的有向无环图，每个节点的出边按标签有序且定长，
+ * 可二分查找；字节可以加载到堆上，也可以直接从(内存映射的)索引文件中按需读取。
+ * </p>
+ *
+ * @lucene.experimental
+ */
+public final class FST<T> implements Accountable {
+
+    private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(FST.class);
+
+    static final int BIT_FINAL_ARC = 1;
+    static final int BIT_STOP_NODE = 1 << 1;
+    static final int BIT_ARC_HAS_OUTPUT = 1 << 2;
+    static final int BIT_ARC_HAS_FINAL_OUTPUT = 1 << 3;
+
+    /**
+     * Address of a node that has no outgoing arcs.
+     */
+    static final long FINAL_END_NODE = -1;
+
+    /**
+     * If arc has this label then that arc is final/accepted
+     */
+    public static final int END_LABEL = -1;
+
+    private static final String FILE_FORMAT_NAME = "FST";
+    private static final int VERSION_START = 0;
+    private static final int VERSION_CURRENT = VERSION_START;
+
+    public final Outputs<T> outputs;
+
+    // if non-null, this FST accepts the empty string and
+    // produces this output
+    final T emptyOutput;
+
+    final long startNode;
+
+    private final long numBytes;
+
+    // on-heap bytes, null when the FST is read off-heap
+    private final byte[] bytes;
+
+    // off-heap bytes, null when the FST is on heap
+    private final RandomAccessInput offHeapBytes;
+
+    FST(Outputs<T> outputs, T emptyOutput, long startNode, byte[] bytes, long numBytes, RandomAccessInput offHeapBytes) {
+        this.outputs = outputs;
+        this.emptyOutput = emptyOutput;
+        this.startNode = startNode;
+        this.bytes = bytes;
+        this.numBytes = numBytes;
+        this.offHeapBytes = offHeapBytes;
+    }
+
+    /**
+     * Load a previously saved FST on heap.
+     */
+    public FST(DataInput in, Outputs<T> outputs) throws IOException {
+        CodecUtil.checkHeader(in, FILE_FORMAT_NAME, VERSION_START, VERSION_CURRENT);
+        this.outputs = outputs;
+        if (in.readByte() == 1) {
+            emptyOutput = outputs.read(in);
+        } else {
+            emptyOutput = null;
+        }
+        startNode = in.readZLong();
+        numBytes = in.readVLong();
+        if (numBytes > Integer.MAX_VALUE) {
+            throw new IllegalStateException("FST of " + numBytes + " bytes cannot be loaded on heap");
+        }
+        bytes = new byte[(int) numBytes];
+        in.readBytes(bytes, 0, bytes.length);
+        offHeapBytes = null;
+    }
+
+    /**
+     * Load a previously saved FST. When {@code offHeap} is true, only the
+     * header is read: arcs are read on demand from a random-access slice of
+     * {@code in}, which is left positioned after the FST.
+     */
+    public static <T> FST<T> read(IndexInput in, Outputs<T> outputs, boolean offHeap) throws IOException {
+        if (offHeap == false) {
+            return new FST<>(in, outputs);
+        }
+        CodecUtil.checkHeader(in, FILE_FORMAT_NAME, VERSION_START, VERSION_CURRENT);
+        final T emptyOutput;
+        if (in.readByte() == 1) {
+            emptyOutput = outputs.read(in);
+        } else {
+            emptyOutput = null;
+        }
+        final long startNode = in.readZLong();
+        final long numBytes = in.readVLong();
+        final RandomAccessInput slice = in.randomAccessSlice(in.getFilePointer(), numBytes);
+        in.seek(in.getFilePointer() + numBytes);
+        return new FST<>(outputs, emptyOutput, startNode, null, numBytes, slice);
+    }
+
+    /**
+     * Save this FST to {@code out}.
+     */
+    public void save(DataOutput out) throws IOException {
+        CodecUtil.writeHeader(out, FILE_FORMAT_NAME, VERSION_CURRENT);
+        if (emptyOutput != null) {
+            out.writeByte((byte) 1);
+            outputs.write(emptyOutput, out);
+        } else {
+            out.writeByte((byte) 0);
+        }
+        out.writeZLong(startNode);
+        out.writeVLong(numBytes);
+        if (bytes != null) {
+            out.writeBytes(bytes, 0, (int) numBytes);
+        } else {
+            for (long pos = 0; pos < numBytes; pos++) {
+                out.writeByte(offHeapBytes.readByte(pos));
+            }
+        }
+    }
+
+    public T getEmptyOutput() {
+        return emptyOutput;
+    }
+
+    /**
+     * Returns the number of bytes used by the serialized nodes.
+     */
+    public long sizeInBytes() {
+        return numBytes;
+    }
+
+    /**
+     * Returns true if the arcs of this FST are read from disk rather than from the heap.
+     */
+    public boolean isOffHeap() {
+        return offHeapBytes != null;
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        long size = BASE_RAM_BYTES_USED;
+        if (bytes != null) {
+            size += RamUsageEstimator.sizeOf(bytes);
+        }
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "(input=BYTE1,output=" + outputs + ",numBytes=" + numBytes + ",offHeap=" + isOffHeap() + ")";
+    }
+
+    /**
+     * Fills virtual 'start' arc, ie, an empty incoming arc to
+     * the FST's start node
+     */
+    public Arc<T> getFirstArc(Arc<T> arc) {
+        final T NO_OUTPUT = outputs.getNoOutput();
+        arc.label = END_LABEL;
+        arc.output = NO_OUTPUT;
+        if (emptyOutput != null) {
+            arc.flags = BIT_FINAL_ARC;
+            arc.nextFinalOutput = emptyOutput;
+        } else {
+            arc.flags = 0;
+            arc.nextFinalOutput = NO_OUTPUT;
+        }
+        arc.target = startNode;
+        arc.arcIdx = 0;
+        arc.numArcs = 0;
+        return arc;
+    }
+
+    /**
+     * Returns true if the node at this address has any
+     * outgoing arcs
+     */
+    public static <T> boolean targetHasArcs(Arc<T> arc) {
+        return arc.target != FINAL_END_NODE;
+    }
+
+    /**
+     * Follow the {@code follow} arc and read the first arc of its target;
+     * returns the arc, or null if the target has no arcs.
+     */
+    public Arc<T> readFirstTargetArc(Arc<T> follow, Arc<T> arc, BytesReader in) throws IOException {
+        if (targetHasArcs(follow) == false) {
+            return null;
+        }
+        readNodeHeader(follow.target, arc, in);
+        return readArcByIndex(arc, 0, in);
+    }
+
+    /**
+     * Follow the {@code follow} arc and read the last arc of its target;
+     * returns the arc, or null if the target has no arcs.
+     */
+    public Arc<T> readLastTargetArc(Arc<T> follow, Arc<T> arc, BytesReader in) throws IOException {
+        if (targetHasArcs(follow) == false) {
+            return null;
+        }
+        readNodeHeader(follow.target, arc, in);
+        return readArcByIndex(arc, arc.numArcs - 1, in);
+    }
+
+    /**
+     * In-place read; returns the arc. The arc must not be the last arc of its node.
+     */
+    public Arc<T> readNextArc(Arc<T> arc, BytesReader in) throws IOException {
+        assert arc.isLast() == false;
+        return readArcByIndex(arc, arc.arcIdx + 1, in);
+    }
+
+    /**
+     * In-place read; returns the arc. The arc must not be the first arc of its node.
+     */
+    public Arc<T> readPreviousArc(Arc<T> arc, BytesReader in) throws IOException {
+        assert arc.arcIdx > 0;
+        return readArcByIndex(arc, arc.arcIdx - 1, in);
+    }
+
+    /**
+     * Finds an arc leaving the incoming arc, replacing the arc in place.
+     * This returns null if the arc was not found, else the incoming arc.
+     */
+    public Arc<T> findTargetArc(int labelToMatch, Arc<T> follow, Arc<T> arc, BytesReader in) throws IOException {
+        if (targetHasArcs(follow) == false) {
+            return null;
+        }
+        readNodeHeader(follow.target, arc, in);
+        final int idx = binarySearch(arc, labelToMatch, in);
+        if (idx < 0) {
+            return null;
+        }
+        return readArcByIndex(arc, idx, in);
+    }
+
+    /**
+     * Follow the {@code follow} arc and read the first arc of its target
+     * whose label is greater than or equal to {@code label}; returns null if
+     * there is no such arc.
+     */
+    Arc<T> readCeilTargetArc(int label, Arc<T> follow, Arc<T> arc, BytesReader in) throws IOException {
+        if (targetHasArcs(follow) == false) {
+            return null;
+        }
+        readNodeHeader(follow.target, arc, in);
+        int idx = binarySearch(arc, label, in);
+        if (idx < 0) {
+            idx = -1 - idx;
+            if (idx == arc.numArcs) {
+                return null;
+            }
+        }
+        return readArcByIndex(arc, idx, in);
+    }
+
+    /**
+     * Follow the {@code follow} arc and read the last arc of its target
+     * whose label is less than or equal to {@code label}; returns null if
+     * there is no such arc.
+     */
+    Arc<T> readFloorTargetArc(int label, Arc<T> follow, Arc<T> arc, BytesReader in) throws IOException {
+        if (targetHasArcs(follow) == false) {
+            return null;
+        }
+        readNodeHeader(follow.target, arc, in);
+        int idx = binarySearch(arc, label, in);
+        if (idx < 0) {
+            idx = -2 - idx;
+            if (idx < 0) {
+                return null;
+            }
+        }
+        return readArcByIndex(arc, idx, in);
+    }
+
+    private void readNodeHeader(long address, Arc<T> arc, BytesReader in) throws IOException {
+        in.setPosition(address);
+        arc.numArcs = in.readVInt();
+        arc.bytesPerArc = in.readVInt();
+        arc.posArcsStart = in.getPosition();
+    }
+
+    /**
+     * Returns the index of the arc with the given label in the node whose
+     * header was read into {@code arc}, or {@code -1-insertionPoint} if
+     * there is no such arc.
+     */
+    private int binarySearch(Arc<T> arc, int label, BytesReader in) throws IOException {
+        int low = 0;
+        int high = arc.numArcs - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            in.setPosition(arc.posArcsStart + (long) mid * arc.bytesPerArc);
+            final int midLabel = in.readByte() & 0xFF;
+            if (midLabel < label) {
+                low = mid + 1;
+            } else if (midLabel > label) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1 - low;
+    }
+
+    private Arc<T> readArcByIndex(Arc<T> arc, int idx, BytesReader in) throws IOException {
+        assert idx >= 0 && idx < arc.numArcs : "idx=" + idx + " numArcs=" + arc.numArcs;
+        in.setPosition(arc.posArcsStart + (long) idx * arc.bytesPerArc);
+        arc.arcIdx = idx;
+        arc.label = in.readByte() & 0xFF;
+        arc.flags = in.readByte();
+        if (arc.flag(BIT_STOP_NODE)) {
+            arc.target = FINAL_END_NODE;
+        } else {
+            arc.target = in.readVLong();
+        }
+        if (arc.flag(BIT_ARC_HAS_OUTPUT)) {
+            arc.output = outputs.read(in);
+        } else {
+            arc.output = outputs.getNoOutput();
+        }
+        if (arc.flag(BIT_ARC_HAS_FINAL_OUTPUT)) {
+            arc.nextFinalOutput = outputs.read(in);
+        } else {
+            arc.nextFinalOutput = outputs.getNoOutput();
+        }
+        return arc;
+    }
+
+    /**
+     * Returns a {@link BytesReader} for this FST, positioned at
+     * position 0.
+     */
+    public BytesReader getBytesReader() {
+        if (bytes != null) {
+            return new OnHeapBytesReader(bytes);
+        } else {
+            return new OffHeapBytesReader(offHeapBytes);
+        }
+    }
+
+    /**
+     * Represents a single arc.
+     */
+    public static final class Arc<T> {
+        public int label;
+        public T output;
+
+        // address of the target node, or FINAL_END_NODE
+        long target;
+
+        byte flags;
+        public T nextFinalOutput;
+
+        // index of this arc in its node, and the node's header
+        int arcIdx;
+        int numArcs;
+        int bytesPerArc;
+        long posArcsStart;
+
+        /**
+         * Returns this
+         */
+        public Arc<T> copyFrom(Arc<T> other) {
+            label = other.label;
+            target = other.target;
+            flags = other.flags;
+            output = other.output;
+            nextFinalOutput = other.nextFinalOutput;
+            arcIdx = other.arcIdx;
+            numArcs = other.numArcs;
+            bytesPerArc = other.bytesPerArc;
+            posArcsStart = other.posArcsStart;
+            return this;
+        }
+
+        boolean flag(int flag) {
+            return (flags & flag) != 0;
+        }
+
+        /**
+         * Returns true if the input that ends with this arc is accepted.
+         */
+        public boolean isFinal() {
+            return flag(BIT_FINAL_ARC);
+        }
+
+        /**
+         * Returns true if this is the last arc of its node.
+         */
+        public boolean isLast() {
+            return arcIdx >= numArcs - 1;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder b = new StringBuilder();
+            b.append("label=").append(label);
+            b.append(" target=").append(target);
+            if (isFinal()) {
+                b.append(" final");
+                b.append(" finalOutput=").append(nextFinalOutput);
+            }
+            b.append(" output=").append(output);
+            b.append(" arcIdx=").append(arcIdx).append('/').append(numArcs);
+            return b.toString();
+        }
+    }
+
+    /**
+     * Reads bytes stored in an FST.
+     */
+    public static abstract class BytesReader extends DataInput {
+        /**
+         * Get current read position.
+         */
+        public abstract long getPosition();
+
+        /**
+         * Set current read position.
+         */
+        public abstract void setPosition(long pos);
+    }
+
+    private static final class OnHeapBytesReader extends BytesReader {
+        private final byte[] bytes;
+        private int pos;
+
+        OnHeapBytesReader(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public byte readByte() {
+            return bytes[pos++];
+        }
+
+        @Override
+        public void readBytes(byte[] b, int offset, int len) {
+            System.arraycopy(bytes, pos, b, offset, len);
+            pos += len;
+        }
+
+        @Override
+        public void skipBytes(long count) {
+            pos += count;
+        }
+
+        @Override
+        public long getPosition() {
+            return pos;
+        }
+
+        @Override
+        public void setPosition(long pos) {
+            this.pos = (int) pos;
+        }
+    }
+
+    private static final class OffHeapBytesReader extends BytesReader {
+        private final RandomAccessInput in;
+        private long pos;
+
+        OffHeapBytesReader(RandomAccessInput in) {
+            this.in = in;
+        }
+
+        @Override
+        public byte readByte() throws IOException {
+            return in.readByte(pos++);
+        }
+
+        @Override
+        public void readBytes(byte[] b, int offset, int len) throws IOException {
+            for (int i = 0; i < len; i++) {
+                b[offset + i] = in.readByte(pos++);
+            }
+        }
+
+        @Override
+        public void skipBytes(long count) {
+            pos += count;
+        }
+
+        @Override
+        public long getPosition() {
+            return pos;
+        }
+
+        @Override
+        public void setPosition(long pos) {
+            this.pos = pos;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.mythology.cloud.apollo.util.fst;
+
+import com.mythology.cloud.apollo.store.DataInput;
+import com.mythology.cloud.apollo.store.DataOutput;
+
+import java.io.IOException;
+
+/**
+ * Represents the outputs for an FST, providing the basic
+ * algebra required for building and traversing the FST.
+ *
+ * <p>Note that any operation that returns NO_OUTPUT must
+ * return the same singleton object from {@link
+ * #getNoOutput}.</p>
+ * <p>
+ * FST输出的代数运算：求公共前缀、相减、相加以及序列化，构建时用于把输出尽量前移到靠近根的边上。
+ * </p>
+ *
+ * @lucene.experimental
+ */
+public abstract class Outputs<T> {
+
+    /**
+     * Eg common("foobar", "food") -&gt; "foo"
+     */
+    public abstract T common(T output1, T output2);
+
+    /**
+     * Eg subtract("foobar", "foo") -&gt; "bar"
+     */
+    public abstract T subtract(T output, T inc);
+
+    /**
+     * Eg add("foo", "bar") -&gt; "foobar"
+     */
+    public abstract T add(T prefix, T output);
+
+    /**
+     * Encode an output value into a {@link DataOutput}.
+     */
+    public abstract void write(T output, DataOutput out) throws IOException;
+
+    /**
+     * Decode an output value previously written with {@link
+     * #write(Object, DataOutput)}.
+     */
+    public abstract T read(DataInput in) throws IOException;
+
+    /**
+     * Skip the output; defaults to just calling {@link #read}
+     * and discarding the result.
+     */
+    public void skipOutput(DataInput in) throws IOException {
+        read(in);
+    }
+
+    /**
+     * NOTE: this output is compared with == so you must
+     * ensure that all methods return the single object if
+     * it's really no output
+     */
+    public abstract T getNoOutput();
+
+    public abstract String outputToString(T output);
+}
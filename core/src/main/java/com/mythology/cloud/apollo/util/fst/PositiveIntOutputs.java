@@ -0,0 +1,104 @@
+package com.mythology.cloud.apollo.util.fst;
+
+import com.mythology.cloud.apollo.store.DataInput;
+import com.mythology.cloud.apollo.store.DataOutput;
+
+import java.io.IOException;
+
+/**
+ * An FST {@link Outputs} implementation where each output
+ * is a non-negative long value.
+ *
+ * @lucene.experimental
+ */
+public final class PositiveIntOutputs extends Outputs<Long> {
+
+    private final static Long NO_OUTPUT = Long.valueOf(0);
+
+    private final static PositiveIntOutputs singleton = new PositiveIntOutputs();
+
+    private PositiveIntOutputs() {
+    }
+
+    public static PositiveIntOutputs getSingleton() {
+        return singleton;
+    }
+
+    @Override
+    public Long common(Long output1, Long output2) {
+        assert valid(output1);
+        assert valid(output2);
+        if (output1 == NO_OUTPUT || output2 == NO_OUTPUT) {
+            return NO_OUTPUT;
+        } else {
+            assert output1 > 0;
+            assert output2 > 0;
+            return Math.min(output1, output2);
+        }
+    }
+
+    @Override
+    public Long subtract(Long output, Long inc) {
+        assert valid(output);
+        assert valid(inc);
+        assert output >= inc;
+
+        if (inc == NO_OUTPUT) {
+            return output;
+        } else if (output.equals(inc)) {
+            return NO_OUTPUT;
+        } else {
+            return output - inc;
+        }
+    }
+
+    @Override
+    public Long add(Long prefix, Long output) {
+        assert valid(prefix);
+        assert valid(output);
+        if (prefix == NO_OUTPUT) {
+            return output;
+        } else if (output == NO_OUTPUT) {
+            return prefix;
+        } else {
+            return prefix + output;
+        }
+    }
+
+    @Override
+    public void write(Long output, DataOutput out) throws IOException {
+        assert valid(output);
+        out.writeVLong(output);
+    }
+
+    @Override
+    public Long read(DataInput in) throws IOException {
+        long v = in.readVLong();
+        if (v == 0) {
+            return NO_OUTPUT;
+        } else {
+            return v;
+        }
+    }
+
+    private boolean valid(Long o) {
+        assert o != null;
+        assert o == NO_OUTPUT || o > 0 : "o=" + o;
+        return true;
+    }
+
+    @Override
+    public Long getNoOutput() {
+        return NO_OUTPUT;
+    }
+
+    @Override
+    public String outputToString(Long output) {
+        return output.toString();
+    }
+
+    @Override
+    public String toString() {
+        return "PositiveIntOutputs";
+    }
+}
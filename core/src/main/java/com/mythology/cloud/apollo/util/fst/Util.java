@@ -0,0 +1,101 @@
+package com.mythology.cloud.apollo.util.fst;
+
+import com.mythology.cloud.apollo.util.BytesRef;
+import com.mythology.cloud.apollo.util.BytesRefBuilder;
+import com.mythology.cloud.apollo.util.IntsRef;
+import com.mythology.cloud.apollo.util.IntsRefBuilder;
+
+import java.io.IOException;
+
+/**
+ * Static helper methods.
+ * <p>
+ * FST工具方法：按输入查找输出，以及BytesRef与IntsRef之间的转换。
+ * </p>
+ *
+ * @lucene.experimental
+ */
+public final class Util {
+    private Util() {
+    }
+
+    /**
+     * Looks up the output for this input, or null if the
+     * input is not accepted.
+     */
+    public static <T> T get(FST<T> fst, IntsRef input) throws IOException {
+        // TODO: would be nice not to alloc this on every lookup
+        final FST.Arc<T> arc = fst.getFirstArc(new FST.Arc<T>());
+
+        final FST.BytesReader fstReader = fst.getBytesReader();
+
+        // Accumulate output as we go
+        T output = fst.outputs.getNoOutput();
+        for (int i = 0; i < input.length; i++) {
+            if (fst.findTargetArc(input.ints[input.offset + i], arc, arc, fstReader) == null) {
+                return null;
+            }
+            output = fst.outputs.add(output, arc.output);
+        }
+
+        if (arc.isFinal()) {
+            return fst.outputs.add(output, arc.nextFinalOutput);
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Looks up the output for this input, or null if the
+     * input is not accepted
+     */
+    public static <T> T get(FST<T> fst, BytesRef input) throws IOException {
+        final FST.BytesReader fstReader = fst.getBytesReader();
+
+        // TODO: would be nice not to alloc this on every lookup
+        final FST.Arc<T> arc = fst.getFirstArc(new FST.Arc<T>());
+
+        // Accumulate output as we go
+        T output = fst.outputs.getNoOutput();
+        for (int i = 0; i < input.length; i++) {
+            if (fst.findTargetArc(input.bytes[i + input.offset] & 0xFF, arc, arc, fstReader) == null) {
+                return null;
+            }
+            output = fst.outputs.add(output, arc.output);
+        }
+
+        if (arc.isFinal()) {
+            return fst.outputs.add(output, arc.nextFinalOutput);
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Just takes unsigned byte values from the BytesRef and
+     * converts into an IntsRef.
+     */
+    public static IntsRef toIntsRef(BytesRef input, IntsRefBuilder scratch) {
+        scratch.clear();
+        for (int i = 0; i < input.length; i++) {
+            scratch.append(input.bytes[i + input.offset] & 0xFF);
+        }
+        return scratch.get();
+    }
+
+    /**
+     * Just converts IntsRef to BytesRef; you must ensure the
+     * int values fit into a byte.
+     */
+    public static BytesRef toBytesRef(IntsRef input, BytesRefBuilder scratch) {
+        scratch.grow(input.length);
+        for (int i = 0; i < input.length; i++) {
+            final int value = input.ints[i + input.offset];
+            // NOTE: we allow -128 to 255
+            assert value >= Byte.MIN_VALUE && value <= 255 : "value " + value + " doesn't fit into byte";
+            scratch.setByteAt(i, (byte) value);
+        }
+        scratch.setLength(input.length);
+        return scratch.get();
+    }
+}
@@ -0,0 +1,103 @@
+package com.mythology.cloud.apollo.util.packed;
+
+import com.mythology.cloud.apollo.store.IndexInput;
+import com.mythology.cloud.apollo.store.RandomAccessInput;
+import com.mythology.cloud.apollo.util.Accountable;
+import com.mythology.cloud.apollo.util.LongValues;
+import com.mythology.cloud.apollo.util.RamUsageEstimator;
+
+import java.io.IOException;
+
+/**
+ * Retrieves an instance previously written by {@link DirectMonotonicWriter}.
+ *
+ * @lucene.internal
+ * @see DirectMonotonicWriter
+ */
+public final class DirectMonotonicReader {
+
+    private DirectMonotonicReader() {
+    }
+
+    /**
+     * In-memory metadata that needs to be kept around for
+     * {@link DirectMonotonicReader} to read data from disk.
+     */
+    public static class Meta implements Accountable {
+        private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(Meta.class);
+
+        final int blockShift;
+        final int numBlocks;
+        final long[] mins;
+        final float[] avgs;
+        final byte[] bpvs;
+        final long[] offsets;
+
+        Meta(long numValues, int blockShift) {
+            this.blockShift = blockShift;
+            long numBlocks = numValues >>> blockShift;
+            if ((numBlocks << blockShift) < numValues) {
+                numBlocks += 1;
+            }
+            this.numBlocks = (int) numBlocks;
+            this.mins = new long[this.numBlocks];
+            this.avgs = new float[this.numBlocks];
+            this.bpvs = new byte[this.numBlocks];
+            this.offsets = new long[this.numBlocks];
+        }
+
+        @Override
+        public long ramBytesUsed() {
+            return BASE_RAM_BYTES_USED
+                    + RamUsageEstimator.sizeOf(mins)
+                    + RamUsageEstimator.sizeOf(avgs)
+                    + RamUsageEstimator.sizeOf(bpvs)
+                    + RamUsageEstimator.sizeOf(offsets);
+        }
+    }
+
+    /**
+     * Load metadata from the given {@link IndexInput}.
+     *
+     * @see DirectMonotonicReader#getInstance(Meta, RandomAccessInput)
+     */
+    public static Meta loadMeta(IndexInput metaIn, long numValues, int blockShift) throws IOException {
+        Meta meta = new Meta(numValues, blockShift);
+        for (int i = 0; i < meta.numBlocks; ++i) {
+            meta.mins[i] = metaIn.readLong();
+            meta.avgs[i] = Float.intBitsToFloat(metaIn.readInt());
+            meta.offsets[i] = metaIn.readLong();
+            meta.bpvs[i] = metaIn.readByte();
+        }
+        return meta;
+    }
+
+    /**
+     * Retrieves an instance from the specified slice.
+     */
+    public static LongValues getInstance(Meta meta, RandomAccessInput data) throws IOException {
+        final LongValues[] readers = new LongValues[meta.numBlocks];
+        for (int i = 0; i < meta.mins.length; ++i) {
+            if (meta.bpvs[i] == 0) {
+                readers[i] = LongValues.ZEROES;
+            } else {
+                readers[i] = DirectReader.getInstance(data, meta.bpvs[i], meta.offsets[i]);
+            }
+        }
+        final int blockShift = meta.blockShift;
+
+        final long[] mins = meta.mins;
+        final float[] avgs = meta.avgs;
+        return new LongValues() {
+
+            @Override
+            public long get(long index) {
+                final int block = (int) (index >>> blockShift);
+                final long blockIndex = index & ((1 << blockShift) - 1);
+                final long delta = readers[block].get(blockIndex);
+                return mins[block] + (long) (avgs[block] * blockIndex) + delta;
+            }
+
+        };
+    }
+}
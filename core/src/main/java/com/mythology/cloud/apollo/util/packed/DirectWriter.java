@@ -0,0 +1,175 @@
+package com.mythology.cloud.apollo.util.packed;
+
+import com.mythology.cloud.apollo.store.DataOutput;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Class for writing packed integers to be directly read from Directory.
+ * Integers can be read on-the-fly via {@link DirectReader}.
+ * <p>
+ * Unlike PackedInts, it optimizes for read i/o operations and supports &gt; 2B values.
+ * Values are packed as a big-endian bit stream, and only the following bits per
+ * value are supported so that any value can be read with a single aligned-or-not
+ * {@code byte}, {@code short}, {@code int} or {@code long} read:
+ * 1, 2, 4, 8, 12, 16, 20, 24, 28, 32, 40, 48, 56, 64.
+ * Example usage:
+ * <pre class="prettyprint">
+ *   int bitsPerValue = DirectWriter.bitsRequired(100); // values up to and including 100
+ *   IndexOutput output = dir.createOutput("packed");
+ *   DirectWriter writer = DirectWriter.getInstance(output, numberOfValues, bitsPerValue);
+ *   for (int i = 0; i &lt; numberOfValues; i++) {
+ *     writer.add(value);
+ *   }
+ *   writer.finish();
+ *   output.close();
+ * </pre>
+ * <p>
+ * 按固定位宽把long值写成紧凑的位流，读取时无需解码整块数据，可直接按下标随机访问。
+ * </p>
+ *
+ * @see DirectReader
+ */
+public final class DirectWriter {
+
+    final int bitsPerValue;
+    final long numValues;
+    final DataOutput output;
+
+    long count;
+    boolean finished;
+
+    // bit accumulator for sub-byte and nibble-aligned widths, high-order bits first
+    long accumulator;
+    int accumulatedBits;
+    long bytesWritten;
+
+    DirectWriter(DataOutput output, long numValues, int bitsPerValue) {
+        this.output = output;
+        this.numValues = numValues;
+        this.bitsPerValue = bitsPerValue;
+    }
+
+    /**
+     * Adds a value to this writer
+     */
+    public void add(long l) throws IOException {
+        assert bitsPerValue == 64 || (l >= 0 && l <= PackedInts.maxValue(bitsPerValue)) : bitsPerValue;
+        assert !finished;
+        if (count >= numValues) {
+            throw new EOFException("Writing past end of stream");
+        }
+        if ((bitsPerValue & 7) == 0) {
+            for (int shift = bitsPerValue - 8; shift >= 0; shift -= 8) {
+                output.writeByte((byte) (l >>> shift));
+            }
+            bytesWritten += bitsPerValue >>> 3;
+        } else {
+            accumulator = (accumulator << bitsPerValue) | l;
+            accumulatedBits += bitsPerValue;
+            while (accumulatedBits >= 8) {
+                accumulatedBits -= 8;
+                output.writeByte((byte) (accumulator >>> accumulatedBits));
+                bytesWritten++;
+            }
+        }
+        count++;
+    }
+
+    /**
+     * finishes writing
+     */
+    public void finish() throws IOException {
+        if (count != numValues) {
+            throw new IllegalStateException("Wrong number of values added, expected: " + numValues + ", got: " + count);
+        }
+        assert !finished;
+        if (accumulatedBits > 0) {
+            output.writeByte((byte) (accumulator << (8 - accumulatedBits)));
+            bytesWritten++;
+            accumulatedBits = 0;
+        }
+        // pad so that the reader never reads past the end of the data when it
+        // fetches the last value with a wider-than-necessary read
+        if (numValues > 0) {
+            final long lastOffset = ((numValues - 1) * bitsPerValue) >>> 3;
+            final long padding = lastOffset + readBytes(bitsPerValue) - bytesWritten;
+            for (long i = 0; i < padding; ++i) {
+                output.writeByte((byte) 0);
+            }
+        }
+        finished = true;
+    }
+
+    /**
+     * Number of bytes that {@link DirectReader} reads to decode one value.
+     */
+    static int readBytes(int bitsPerValue) {
+        if (bitsPerValue <= 8) {
+            return 1;
+        } else if (bitsPerValue <= 16) {
+            return 2;
+        } else if (bitsPerValue <= 32) {
+            return 4;
+        } else {
+            return 8;
+        }
+    }
+
+    /**
+     * Returns an instance suitable for encoding {@code numValues} using {@code bitsPerValue}
+     */
+    public static DirectWriter getInstance(DataOutput output, long numValues, int bitsPerValue) {
+        if (Arrays.binarySearch(SUPPORTED_BITS_PER_VALUE, bitsPerValue) < 0) {
+            throw new IllegalArgumentException("Unsupported bitsPerValue " + bitsPerValue + ". Did you use bitsRequired?");
+        }
+        return new DirectWriter(output, numValues, bitsPerValue);
+    }
+
+    /**
+     * Round a number of bits per value to the next amount of bits per value that
+     * is supported by this writer.
+     *
+     * @param bitsRequired the amount of bits required
+     * @return the next number of bits per value that is gte the provided value
+     * and supported by this writer
+     */
+    private static int roundBits(int bitsRequired) {
+        int index = Arrays.binarySearch(SUPPORTED_BITS_PER_VALUE, bitsRequired);
+        if (index < 0) {
+            return SUPPORTED_BITS_PER_VALUE[-index - 1];
+        } else {
+            return bitsRequired;
+        }
+    }
+
+    /**
+     * Returns how many bits are required to hold values up
+     * to and including maxValue
+     *
+     * @param maxValue the maximum value that should be representable.
+     * @return the amount of bits needed to represent values from 0 to maxValue.
+     * @see PackedInts#bitsRequired(long)
+     */
+    public static int bitsRequired(long maxValue) {
+        return roundBits(PackedInts.bitsRequired(maxValue));
+    }
+
+    /**
+     * Returns how many bits are required to hold values up
+     * to and including maxValue, interpreted as an unsigned value.
+     *
+     * @param maxValue the maximum value that should be representable.
+     * @return the amount of bits needed to represent values from 0 to maxValue.
+     * @see PackedInts#unsignedBitsRequired(long)
+     */
+    public static int unsignedBitsRequired(long maxValue) {
+        return roundBits(PackedInts.unsignedBitsRequired(maxValue));
+    }
+
+    final static int SUPPORTED_BITS_PER_VALUE[] = new int[]{
+            1, 2, 4, 8, 12, 16, 20, 24, 28, 32, 40, 48, 56, 64
+    };
+}
@@ -0,0 +1,138 @@
+package com.mythology.cloud.apollo.util.packed;
+
+import com.mythology.cloud.apollo.util.RamUsageEstimator;
+
+import java.util.Arrays;
+
+/**
+ * Space optimized random access capable array of values with a fixed number of
+ * bits/value. Values are packed contiguously.
+ * <p>
+ * The implementation strives to perform as fast as possible under the
+ * constraint of contiguous bits, by avoiding expensive operations. This comes
+ * at the cost of code clarity.
+ * <p>
+ * Technical details: This implementation is a refinement of a non-branching
+ * version. The non-branching get and set methods meant that 2 or 4 atomics in
+ * the underlying array were always accessed, even for the cases where only
+ * 1 or 2 were needed. Even with caching, this had a detrimental effect on
+ * performance.
+ * Related to this issue, the old implementation used lookup tables for shifts
+ * and masks, which also proved to be a bit slower than calculating the shifts
+ * and masks on the fly.
+ * See https://issues.apache.org/jira/browse/LUCENE-4062 for details.
+ * <p>
+ * 值按固定位宽连续存放在long[]中，是堆内的紧凑随机访问数组。
+ * </p>
+ */
+class Packed64 extends PackedInts.Mutable {
+    static final int BLOCK_SIZE = 64; // 32 = int, 64 = long
+    static final int BLOCK_BITS = 6; // The #bits representing BLOCK_SIZE
+    static final int MOD_MASK = BLOCK_SIZE - 1; // x % BLOCK_SIZE
+
+    /**
+     * Values are stores contiguously in the blocks array.
+     */
+    private final long[] blocks;
+    /**
+     * A right-aligned mask of width BitsPerValue used by {@link #get(int)}.
+     */
+    private final long maskRight;
+    /**
+     * Optimization: Saves one lookup in {@link #get(int)}.
+     */
+    private final int bpvMinusBlockSize;
+
+    private final int valueCount;
+    private final int bitsPerValue;
+
+    /**
+     * Creates an array with the internal structures adjusted for the given
+     * limits and initialized to 0.
+     *
+     * @param valueCount   the number of elements.
+     * @param bitsPerValue the number of bits available for any given value.
+     */
+    public Packed64(int valueCount, int bitsPerValue) {
+        this.valueCount = valueCount;
+        this.bitsPerValue = bitsPerValue;
+        final long longCount = ((long) valueCount * bitsPerValue + BLOCK_SIZE - 1) >>> BLOCK_BITS;
+        this.blocks = new long[Math.toIntExact(longCount)];
+        maskRight = ~0L << (BLOCK_SIZE - bitsPerValue) >>> (BLOCK_SIZE - bitsPerValue);
+        bpvMinusBlockSize = bitsPerValue - BLOCK_SIZE;
+    }
+
+    /**
+     * @param index the position of the value.
+     * @return the value at the given index.
+     */
+    @Override
+    public long get(final int index) {
+        // The abstract index in a bit stream
+        final long majorBitPos = (long) index * bitsPerValue;
+        // The index in the backing long-array
+        final int elementPos = (int) (majorBitPos >>> BLOCK_BITS);
+        // The number of value-bits in the second long
+        final long endBits = (majorBitPos & MOD_MASK) + bpvMinusBlockSize;
+
+        if (endBits <= 0) { // Single block
+            return (blocks[elementPos] >>> -endBits) & maskRight;
+        }
+        // Two blocks
+        return ((blocks[elementPos] << endBits)
+                | (blocks[elementPos + 1] >>> (BLOCK_SIZE - endBits)))
+                & maskRight;
+    }
+
+    @Override
+    public void set(final int index, final long value) {
+        // The abstract index in a contiguous bit stream
+        final long majorBitPos = (long) index * bitsPerValue;
+        // The index in the backing long-array
+        final int elementPos = (int) (majorBitPos >>> BLOCK_BITS); // / BLOCK_SIZE
+        // The number of value-bits in the second long
+        final long endBits = (majorBitPos & MOD_MASK) + bpvMinusBlockSize;
+
+        if (endBits <= 0) { // Single block
+            blocks[elementPos] = blocks[elementPos] & ~(maskRight << -endBits)
+                    | (value << -endBits);
+            return;
+        }
+        // Two blocks
+        blocks[elementPos] = blocks[elementPos] & ~(maskRight >>> endBits)
+                | (value >>> endBits);
+        blocks[elementPos + 1] = blocks[elementPos + 1] & (~0L >>> endBits)
+                | (value << (BLOCK_SIZE - endBits));
+    }
+
+    @Override
+    public int size() {
+        return valueCount;
+    }
+
+    @Override
+    public int getBitsPerValue() {
+        return bitsPerValue;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(blocks, 0L);
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        return RamUsageEstimator.alignObjectSize(
+                RamUsageEstimator.NUM_BYTES_OBJECT_HEADER
+                        + 3 * Integer.BYTES   // bpvMinusBlockSize,valueCount,bitsPerValue
+                        + Long.BYTES          // maskRight
+                        + RamUsageEstimator.NUM_BYTES_OBJECT_REF) // blocks ref
+                + RamUsageEstimator.sizeOf(blocks);
+    }
+
+    @Override
+    public String toString() {
+        return "Packed64(bitsPerValue=" + bitsPerValue + ",size="
+                + size() + ",blocks=" + blocks.length + ")";
+    }
+}
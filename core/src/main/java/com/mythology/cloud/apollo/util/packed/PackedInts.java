@@ -0,0 +1,115 @@
+package com.mythology.cloud.apollo.util.packed;
+
+import com.mythology.cloud.apollo.util.Accountable;
+
+/**
+ * Simplistic compression for array of unsigned long values.
+ * Each value is {@code >= 0} and {@code <=} a specified maximum value.  The
+ * values are stored as packed ints, with each value
+ * consuming a fixed number of bits.
+ *
+ * @lucene.internal
+ */
+public class PackedInts {
+
+    private PackedInts() {
+    }
+
+    /**
+     * A read-only random access array of positive integers.
+     *
+     * @lucene.internal
+     */
+    public static abstract class Reader implements Accountable {
+
+        /**
+         * Get the long at the given index. Behavior is undefined for out-of-range indices.
+         */
+        public abstract long get(int index);
+
+        /**
+         * @return the number of values.
+         */
+        public abstract int size();
+    }
+
+    /**
+     * A packed integer array that can be modified.
+     *
+     * @lucene.internal
+     */
+    public static abstract class Mutable extends Reader {
+
+        /**
+         * @return the number of bits used to store any given value.
+         * Note: This does not imply that memory usage is
+         * {@code bitsPerValue * #values} as implementations are free to
+         * use non-space-optimal packing of bits.
+         */
+        public abstract int getBitsPerValue();
+
+        /**
+         * Set the value at the given index in the array.
+         *
+         * @param index where the value should be positioned.
+         * @param value a value conforming to the constraints set by the array.
+         */
+        public abstract void set(int index, long value);
+
+        /**
+         * Sets all values to 0.
+         */
+        public abstract void clear();
+    }
+
+    /**
+     * Create a packed integer array with the given amount of values initialized
+     * to 0. The valueCount and the bitsPerValue cannot be changed after creation.
+     * All Mutables known by this factory are kept fully in RAM.
+     *
+     * @param valueCount   the number of elements
+     * @param bitsPerValue the number of bits available for any given value
+     * @return a mutable packed integer array
+     */
+    public static Mutable getMutable(int valueCount, int bitsPerValue) {
+        if (bitsPerValue < 1 || bitsPerValue > 64) {
+            throw new IllegalArgumentException("bitsPerValue must be in [1, 64], got " + bitsPerValue);
+        }
+        return new Packed64(valueCount, bitsPerValue);
+    }
+
+    /**
+     * Returns how many bits are required to hold values up
+     * to and including maxValue
+     * NOTE: This method returns at least 1.
+     *
+     * @param maxValue the maximum value that should be representable.
+     * @return the amount of bits needed to represent values from 0 to maxValue.
+     */
+    public static int bitsRequired(long maxValue) {
+        if (maxValue < 0) {
+            throw new IllegalArgumentException("maxValue must be non-negative (got: " + maxValue + ")");
+        }
+        return unsignedBitsRequired(maxValue);
+    }
+
+    /**
+     * Returns how many bits are required to store <code>bits</code>,
+     * interpreted as an unsigned value.
+     * NOTE: This method returns at least 1.
+     */
+    public static int unsignedBitsRequired(long bits) {
+        return Math.max(1, 64 - Long.numberOfLeadingZeros(bits));
+    }
+
+    /**
+     * Calculates the maximum unsigned long that can be expressed with the given
+     * number of bits.
+     *
+     * @param bitsPerValue the number of bits available for any given value.
+     * @return the maximum value for the given bits.
+     */
+    public static long maxValue(int bitsPerValue) {
+        return bitsPerValue == 64 ? Long.MAX_VALUE : ~(~0L << bitsPerValue);
+    }
+}
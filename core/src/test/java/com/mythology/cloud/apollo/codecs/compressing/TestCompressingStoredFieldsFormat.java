@@ -0,0 +1,186 @@
+package com.mythology.cloud.apollo.codecs.compressing;
+
+import com.mythology.cloud.apollo.index.CorruptIndexException;
+import com.mythology.cloud.apollo.index.DocValuesType;
+import com.mythology.cloud.apollo.index.FieldInfo;
+import com.mythology.cloud.apollo.index.FieldInfos;
+import com.mythology.cloud.apollo.index.IndexOptions;
+import com.mythology.cloud.apollo.index.IndexableField;
+import com.mythology.cloud.apollo.index.IndexableFieldType;
+import com.mythology.cloud.apollo.index.StoredFieldVisitor;
+import com.mythology.cloud.apollo.store.ByteBuffersDirectory;
+import com.mythology.cloud.apollo.store.Directory;
+import com.mythology.cloud.apollo.store.IndexInput;
+import com.mythology.cloud.apollo.store.IndexOutput;
+import com.mythology.cloud.apollo.util.BytesRef;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestCompressingStoredFieldsFormat {
+
+    private static final class StoredValue implements IndexableField {
+        private final String name;
+        private final Object value;
+
+        StoredValue(String name, Object value) {
+            this.name = name;
+            this.value = value;
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+
+        @Override
+        public IndexableFieldType fieldType() {
+            return null;
+        }
+
+        @Override
+        public BytesRef binaryValue() {
+            return value instanceof BytesRef ? (BytesRef) value : null;
+        }
+
+        @Override
+        public String stringValue() {
+            return value instanceof String ? (String) value : null;
+        }
+
+        @Override
+        public Reader readerValue() {
+            return null;
+        }
+
+        @Override
+        public Number numericValue() {
+            return value instanceof Number ? (Number) value : null;
+        }
+    }
+
+    private static FieldInfo fieldInfo(String name, int number) {
+        return new FieldInfo(name, number, false, false, false, IndexOptions.NONE, DocValuesType.NONE,
+                new HashMap<>(), 0, 0, 0);
+    }
+
+    private static final FieldInfo ID = fieldInfo("id", 0);
+    private static final FieldInfo BODY = fieldInfo("body", 1);
+    private static final FieldInfos FIELD_INFOS = new FieldInfos(new FieldInfo[]{ID, BODY});
+
+    private static void writeDocs(Directory dir, int numDocs, int maxDocsPerChunk) throws IOException {
+        try (CompressingStoredFieldsWriter writer = new CompressingStoredFieldsWriter(dir, "_0",
+                "{\"body\":\"".getBytes(StandardCharsets.UTF_8), 1 << 14, maxDocsPerChunk)) {
+            for (int i = 0; i < numDocs; ++i) {
+                writer.startDocument();
+                writer.writeField(ID, new StoredValue("id", i));
+                writer.writeField(BODY, new StoredValue("body", "{\"body\":\"doc" + i + "\"}"));
+                writer.finishDocument();
+            }
+            writer.finish(FIELD_INFOS, numDocs);
+        }
+    }
+
+    private static String readDoc(CompressingStoredFieldsReader reader, int docID) throws IOException {
+        final StringBuilder sb = new StringBuilder();
+        reader.visitDocument(docID, new StoredFieldVisitor() {
+            @Override
+            public Status needsField(FieldInfo fieldInfo) {
+                return Status.YES;
+            }
+
+            @Override
+            public void intField(FieldInfo fieldInfo, int value) {
+                sb.append(fieldInfo.name).append('=').append(value).append(';');
+            }
+
+            @Override
+            public void stringField(FieldInfo fieldInfo, byte[] value) {
+                sb.append(fieldInfo.name).append('=').append(new String(value, StandardCharsets.UTF_8)).append(';');
+            }
+        });
+        return sb.toString();
+    }
+
+    private static String expectedDoc(int docID) {
+        return "id=" + docID + ";body={\"body\":\"doc" + docID + "\"};";
+    }
+
+    // enough blocks to grow the block index several times
+    @Test
+    public void testManyBlocks() throws IOException {
+        final int maxDocsPerChunk = 4;
+        final int numDocs = 100 * maxDocsPerChunk + 3;
+        try (Directory dir = new ByteBuffersDirectory()) {
+            writeDocs(dir, numDocs, maxDocsPerChunk);
+            try (CompressingStoredFieldsReader reader = new CompressingStoredFieldsReader(dir, "_0", FIELD_INFOS)) {
+                assertEquals(numDocs, reader.getNumDocs());
+                for (int i = 0; i < numDocs; ++i) {
+                    assertEquals(expectedDoc(i), readDoc(reader, i));
+                }
+            }
+        }
+    }
+
+    // a block that fails to load must not leave the previously loaded block cached in a broken state
+    @Test
+    public void testCorruptBlock() throws IOException {
+        final int maxDocsPerChunk = 4;
+        final int corruptDocBase = 40;
+        try (Directory dir = new ByteBuffersDirectory(); Directory corrupt = new ByteBuffersDirectory()) {
+            writeDocs(dir, 100, maxDocsPerChunk);
+
+            // block header: docBase, chunkDocs, the number of stored fields and the length of each doc
+            final String fieldsFile = CompressingStoredFieldsWriter.fieldsFileName("_0");
+            final byte[] data = new byte[(int) dir.fileLength(fieldsFile)];
+            try (IndexInput in = dir.openInput(fieldsFile)) {
+                in.readBytes(data, 0, data.length);
+            }
+            final byte[] header = {corruptDocBase, maxDocsPerChunk, 2, 2, 2, 2};
+            int headerStart = -1;
+            for (int i = 0; i + header.length < data.length; ++i) {
+                if (Arrays.equals(header, Arrays.copyOfRange(data, i, i + header.length))) {
+                    assertEquals("block header found twice", -1, headerStart);
+                    headerStart = i;
+                }
+            }
+            assertTrue(headerStart >= 0);
+            // make the length of the first doc disagree with the compressed data
+            data[headerStart + header.length]++;
+
+            for (String file : dir.listAll()) {
+                try (IndexOutput out = corrupt.createOutput(file)) {
+                    if (file.equals(fieldsFile)) {
+                        out.writeBytes(data, 0, data.length);
+                    } else {
+                        try (IndexInput in = dir.openInput(file)) {
+                            out.copyBytes(in, in.length());
+                        }
+                    }
+                }
+            }
+
+            try (CompressingStoredFieldsReader reader = new CompressingStoredFieldsReader(corrupt, "_0", FIELD_INFOS)) {
+                assertEquals(expectedDoc(0), readDoc(reader, 0));
+                try {
+                    readDoc(reader, corruptDocBase);
+                    fail("corrupt block was loaded");
+                } catch (CorruptIndexException | RuntimeException e) {
+                    // expected
+                }
+                // docs of earlier blocks are read again from the file
+                for (int i = 0; i < corruptDocBase; ++i) {
+                    assertEquals(expectedDoc(i), readDoc(reader, i));
+                }
+            }
+        }
+    }
+}
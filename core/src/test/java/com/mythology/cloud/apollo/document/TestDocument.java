@@ -0,0 +1,107 @@
+package com.mythology.cloud.apollo.document;
+
+import com.mythology.cloud.apollo.index.IndexableField;
+import com.mythology.cloud.apollo.index.IndexableFieldType;
+import com.mythology.cloud.apollo.util.BytesRef;
+import org.junit.Test;
+
+import java.io.Reader;
+import java.util.Iterator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+public class TestDocument {
+
+    private static final class StringValue implements IndexableField {
+        private final String name;
+        private final String value;
+
+        StringValue(String name, String value) {
+            this.name = name;
+            this.value = value;
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+
+        @Override
+        public IndexableFieldType fieldType() {
+            return null;
+        }
+
+        @Override
+        public BytesRef binaryValue() {
+            return null;
+        }
+
+        @Override
+        public String stringValue() {
+            return value;
+        }
+
+        @Override
+        public Reader readerValue() {
+            return null;
+        }
+
+        @Override
+        public Number numericValue() {
+            return null;
+        }
+    }
+
+    private static Document newDocument(int numFields) {
+        final Document doc = new Document();
+        for (int i = 0; i < numFields; ++i) {
+            doc.add(new StringValue("f" + i, "v" + i));
+        }
+        return doc;
+    }
+
+    @Test
+    public void testLookupsAfterIteratorRemove() {
+        final Document doc = newDocument(10);
+        // builds the field index
+        assertEquals("v5", doc.get("f5"));
+
+        final Iterator<IndexableField> it = doc.iterator();
+        it.next();
+        it.remove();
+
+        assertNull(doc.get("f0"));
+        for (int i = 1; i < 10; ++i) {
+            assertEquals("v" + i, doc.get("f" + i));
+            assertEquals("v" + i, doc.getField("f" + i).stringValue());
+        }
+        assertEquals(9, doc.getFields().size());
+    }
+
+    @Test
+    public void testIteratorRemoveAll() {
+        final Document doc = newDocument(12);
+        doc.add(new StringValue("f3", "w3"));
+        assertEquals(2, doc.getValues("f3").length);
+
+        for (Iterator<IndexableField> it = doc.iterator(); it.hasNext(); ) {
+            if (it.next().name().equals("f3")) {
+                it.remove();
+            }
+        }
+        assertEquals(0, doc.getValues("f3").length);
+        assertEquals("v11", doc.get("f11"));
+
+        for (Iterator<IndexableField> it = doc.iterator(); it.hasNext(); ) {
+            it.next();
+            it.remove();
+        }
+        assertFalse(doc.iterator().hasNext());
+        assertNull(doc.get("f11"));
+
+        doc.add(new StringValue("f11", "x"));
+        assertEquals("x", doc.get("f11"));
+    }
+}
@@ -0,0 +1,172 @@
+package com.mythology.cloud.apollo.index;
+
+import com.mythology.cloud.apollo.document.DocumentBatch;
+import com.mythology.cloud.apollo.document.DocumentBuilder;
+import com.mythology.cloud.apollo.store.ByteBuffersDirectory;
+import com.mythology.cloud.apollo.store.Directory;
+import com.mythology.cloud.apollo.util.BytesRef;
+import com.mythology.cloud.apollo.util.NumericUtils;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class TestIndexWriterDocumentBatch {
+
+    private static final class TestFieldType implements IndexableFieldType {
+        private final boolean stored;
+        private final IndexOptions indexOptions;
+        private final DocValuesType docValuesType;
+        private final int pointDimensionCount;
+        private final int pointNumBytes;
+
+        TestFieldType(boolean stored, IndexOptions indexOptions, DocValuesType docValuesType, int pointDimensionCount, int pointNumBytes) {
+            this.stored = stored;
+            this.indexOptions = indexOptions;
+            this.docValuesType = docValuesType;
+            this.pointDimensionCount = pointDimensionCount;
+            this.pointNumBytes = pointNumBytes;
+        }
+
+        @Override
+        public boolean stored() {
+            return stored;
+        }
+
+        @Override
+        public boolean tokenized() {
+            return false;
+        }
+
+        @Override
+        public boolean storeTermVectors() {
+            return false;
+        }
+
+        @Override
+        public boolean storeTermVectorOffsets() {
+            return false;
+        }
+
+        @Override
+        public boolean storeTermVectorPositions() {
+            return false;
+        }
+
+        @Override
+        public boolean storeTermVectorPayloads() {
+            return false;
+        }
+
+        @Override
+        public boolean omitNorms() {
+            return true;
+        }
+
+        @Override
+        public IndexOptions indexOptions() {
+            return indexOptions;
+        }
+
+        @Override
+        public DocValuesType docValuesType() {
+            return docValuesType;
+        }
+
+        @Override
+        public int pointDataDimensionCount() {
+            return pointDimensionCount;
+        }
+
+        @Override
+        public int pointIndexDimensionCount() {
+            return pointDimensionCount;
+        }
+
+        @Override
+        public int pointNumBytes() {
+            return pointNumBytes;
+        }
+
+        @Override
+        public Map<String, String> getAttributes() {
+            return null;
+        }
+    }
+
+    private static final IndexableFieldType ID_TYPE = new TestFieldType(true, IndexOptions.DOCS, DocValuesType.NONE, 0, 0);
+    private static final IndexableFieldType TS_TYPE = new TestFieldType(false, IndexOptions.NONE, DocValuesType.NUMERIC, 0, 0);
+    private static final IndexableFieldType POINT_TYPE = new TestFieldType(false, IndexOptions.NONE, DocValuesType.NONE, 1, Integer.BYTES);
+
+    private static BytesRef point(int value) {
+        final byte[] packed = new byte[Integer.BYTES];
+        NumericUtils.intToSortableBytes(value, packed, 0);
+        return new BytesRef(packed);
+    }
+
+    // single documents and batches over the same doc values and points fields
+    @Test
+    public void testAlternateDocumentsAndBatches() throws IOException {
+        final int rounds = 20;
+        final int batchSize = 3;
+        try (Directory dir = new ByteBuffersDirectory()) {
+            final IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig());
+            final DocumentBuilder builder = new DocumentBuilder();
+            final DocumentBatch batch = new DocumentBatch();
+            final int idColumn = batch.addColumn("id", ID_TYPE, DocumentBatch.ValueType.STRING);
+            final int tsColumn = batch.addColumn("ts", TS_TYPE, DocumentBatch.ValueType.LONG);
+            final int pointColumn = batch.addColumn("p", POINT_TYPE, DocumentBatch.ValueType.BYTES);
+            int id = 0;
+            for (int round = 0; round < rounds; ++round) {
+                builder.reset()
+                        .addString("id", ID_TYPE, Integer.toString(id))
+                        .addLong("ts", TS_TYPE, id * 10L)
+                        .addBytes("p", POINT_TYPE, point(id));
+                writer.addDocument(builder.getDocument());
+                ++id;
+
+                batch.clear();
+                for (int i = 0; i < batchSize; ++i) {
+                    batch.addDocument();
+                    batch.setString(idColumn, Integer.toString(id));
+                    batch.setLong(tsColumn, id * 10L);
+                    batch.setBytes(pointColumn, point(id));
+                    ++id;
+                }
+                writer.addDocuments(batch);
+            }
+            writer.close();
+
+            int numDocs = 0;
+            long numPoints = 0;
+            for (SegmentInfo si : SegmentInfos.readLatestCommit(dir)) {
+                try (SegmentReader reader = new SegmentReader(si)) {
+                    final NumericDocValues ts = reader.getDocValuesReader().getNumeric(reader.getFieldInfos().fieldInfo("ts"));
+                    for (int doc = 0; doc < reader.maxDoc(); ++doc) {
+                        final String[] storedId = new String[1];
+                        reader.document(doc, new StoredFieldVisitor() {
+                            @Override
+                            public Status needsField(FieldInfo fieldInfo) {
+                                return fieldInfo.name.equals("id") ? Status.YES : Status.NO;
+                            }
+
+                            @Override
+                            public void stringField(FieldInfo fieldInfo, byte[] value) {
+                                storedId[0] = new String(value, StandardCharsets.UTF_8);
+                            }
+                        });
+                        assertEquals(doc, ts.nextDoc());
+                        assertEquals(Long.parseLong(storedId[0]) * 10L, ts.longValue());
+                    }
+                    numDocs += reader.maxDoc();
+                    numPoints += reader.getPointsReader().getValues("p").size();
+                }
+            }
+            assertEquals(rounds * (1 + batchSize), numDocs);
+            assertEquals(rounds * (1 + batchSize), numPoints);
+        }
+    }
+}